@@ -41,10 +41,15 @@ import com.linkedin.pinot.common.metrics.MetricsHelper;
 import com.linkedin.pinot.common.response.ServerInstance;
 import com.linkedin.pinot.core.query.reduce.DefaultReduceService;
 import com.linkedin.pinot.requestHandler.BrokerRequestHandler;
+import com.linkedin.pinot.requestHandler.BrokerResultCache;
 import com.linkedin.pinot.routing.CfgBasedRouting;
 import com.linkedin.pinot.routing.HelixExternalViewBasedRouting;
 import com.linkedin.pinot.routing.RoutingTable;
 import com.linkedin.pinot.routing.TimeBoundaryService;
+import com.linkedin.pinot.transport.common.LatencyAwareReplicaSelection;
+import com.linkedin.pinot.transport.common.ReplicaSelection;
+import com.linkedin.pinot.transport.common.ReplicaSelection.ReplicaSelectionPolicy;
+import com.linkedin.pinot.transport.common.RoundRobinReplicaSelection;
 import com.linkedin.pinot.transport.conf.TransportClientConf;
 import com.linkedin.pinot.transport.conf.TransportClientConf.RoutingMode;
 import com.linkedin.pinot.transport.config.ConnectionPoolConfig;
@@ -66,9 +71,17 @@ public class BrokerServerBuilder {
   private static final String CLIENT_CONFIG_PREFIX = "pinot.broker.client";
   private static final String METRICS_CONFIG_PREFIX = "pinot.broker.metrics";
   private static final String BROKER_TIME_OUT_CONFIG = "pinot.broker.time.out";
+  private static final String SPECULATIVE_REQUESTS_CONFIG = "pinot.broker.speculative.requests";
+  private static final String SPECULATIVE_REQUEST_LATENCY_PERCENTILE_CONFIG =
+      "pinot.broker.speculative.request.latency.percentile";
+  private static final String REPLICA_SELECTION_CONFIG = "pinot.broker.replica.selection";
+  private static final String RESULT_CACHE_SIZE_BYTES_CONFIG = "pinot.broker.result.cache.size.bytes";
+  private static final String RESULT_CACHE_REALTIME_STALENESS_MS_CONFIG =
+      "pinot.broker.result.cache.realtime.staleness.ms";
 
   private static final Logger LOGGER = LoggerFactory.getLogger(BrokerServerBuilder.class);
   private static final long DEFAULT_BROKER_TIME_OUT = 10 * 1000L;
+  private static final int DEFAULT_SPECULATIVE_REQUESTS = 0;
 
   // Connection Pool Related
   private KeyedPool<ServerInstance, NettyClientConnection> _connPool;
@@ -161,7 +174,16 @@ public class BrokerServerBuilder {
     }
 
     // Setup ScatterGather
-    _scatterGather = new ScatterGatherImpl(_connPool, _requestSenderPool);
+    // Speculative requests are sent to another replica once a server has not responded within this percentile of
+    // the response latencies
+    int numSpeculativeRequests = _config.getInt(SPECULATIVE_REQUESTS_CONFIG, DEFAULT_SPECULATIVE_REQUESTS);
+    double speculativeRequestLatencyPercentile =
+        _config.getDouble(SPECULATIVE_REQUEST_LATENCY_PERCENTILE_CONFIG,
+            ScatterGatherImpl.DEFAULT_SPECULATIVE_REQUEST_LATENCY_PERCENTILE);
+    LOGGER.info("Speculative requests: " + numSpeculativeRequests + ", latency percentile: "
+        + speculativeRequestLatencyPercentile);
+    _scatterGather =
+        new ScatterGatherImpl(_connPool, _requestSenderPool, _poolTimeoutExecutor, speculativeRequestLatencyPercentile);
 
     // Setup Broker Request Handler
     long brokerTimeOut = DEFAULT_BROKER_TIME_OUT;
@@ -176,13 +198,43 @@ public class BrokerServerBuilder {
 
     _requestHandler =
         new BrokerRequestHandler(_routingTable, _timeBoundaryService, _scatterGather, new DefaultReduceService(),
-            _brokerMetrics, brokerTimeOut);
+            _brokerMetrics, brokerTimeOut, numSpeculativeRequests, buildReplicaSelection(),
+            buildResultCache());
 
     //TODO: Start Broker Server : Code goes here. Broker Server part should use request handler to submit requests
 
     LOGGER.info("Network initialized !!");
   }
 
+  private ReplicaSelection buildReplicaSelection() {
+    ReplicaSelectionPolicy policy = ReplicaSelectionPolicy.ROUND_ROBIN;
+    if (_config.containsKey(REPLICA_SELECTION_CONFIG)) {
+      try {
+        policy = ReplicaSelectionPolicy.valueOf(_config.getString(REPLICA_SELECTION_CONFIG).toUpperCase());
+      } catch (Exception e) {
+        LOGGER.warn("Caught exception while reading replica selection from config, using round robin", e);
+      }
+    }
+    LOGGER.info("Replica selection policy is - " + policy);
+    if (policy == ReplicaSelectionPolicy.LATENCY_AWARE) {
+      return new LatencyAwareReplicaSelection();
+    }
+    return new RoundRobinReplicaSelection();
+  }
+
+  private BrokerResultCache buildResultCache() {
+    // Result cache is turned off by default, realtime tables are only cached with a staleness bound
+    long sizeBytes = _config.getLong(RESULT_CACHE_SIZE_BYTES_CONFIG, 0L);
+    if (sizeBytes <= 0) {
+      LOGGER.info("Result cache is disabled");
+      return null;
+    }
+    long realtimeStalenessMs = _config.getLong(RESULT_CACHE_REALTIME_STALENESS_MS_CONFIG, 0L);
+    LOGGER.info("Result cache size is - " + sizeBytes + " bytes, realtime staleness is - " + realtimeStalenessMs
+        + " ms");
+    return new BrokerResultCache(sizeBytes, realtimeStalenessMs);
+  }
+
   public void buildHTTP() {
     // build server which has servlet
     Configuration c = _config.subset(CLIENT_CONFIG_PREFIX);
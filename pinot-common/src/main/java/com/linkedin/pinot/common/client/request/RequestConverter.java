@@ -27,8 +27,10 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 
 import com.linkedin.pinot.common.client.request.filter.FilterQueryTreeConstructor;
+import com.linkedin.pinot.common.client.request.filter.QueryFilterQueryTreeConstructor;
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.FilterOperator;
 import com.linkedin.pinot.common.request.GroupBy;
 import com.linkedin.pinot.common.request.QuerySource;
 import com.linkedin.pinot.common.request.Selection;
@@ -286,9 +288,24 @@ public class RequestConverter {
       req.setAggregationsInfo(aggInfos);
     }
 
+    FilterQueryTree filterQuery = null;
     if (requestJSON.has("filter")) {
-      final FilterQueryTree filterQuery =
-          FilterQueryTreeConstructor.constructFilter(requestJSON.getJSONObject("filter"));
+      filterQuery = FilterQueryTreeConstructor.constructFilter(requestJSON.getJSONObject("filter"));
+    }
+    // The compiler moves the first LIKE predicate of the where clause to the query, apart from the filter
+    final JSONObject queryJSON = requestJSON.optJSONObject(QueryFilterQueryTreeConstructor.FILTER_TYPE);
+    if (queryJSON != null && queryJSON.has(QueryFilterQueryTreeConstructor.WILDCARD_QUERY_TYPE)) {
+      final FilterQueryTree wildcardQuery =
+          FilterQueryTreeConstructor.constructFilter(new JSONObject().put(QueryFilterQueryTreeConstructor.FILTER_TYPE,
+              queryJSON));
+      if (filterQuery == null) {
+        filterQuery = wildcardQuery;
+      } else {
+        filterQuery =
+            new FilterQueryTree(null, null, FilterOperator.AND, Arrays.asList(filterQuery, wildcardQuery));
+      }
+    }
+    if (filterQuery != null) {
       RequestUtils.generateFilterFromTree(filterQuery, req);
     }
     // System.out.println(requestJSON);
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.client.request.filter;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.json.JSONObject;
+
+import com.linkedin.pinot.common.request.FilterOperator;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+
+
+/**
+ * Constructs the filters of the LIKE predicates, compiled as wildcard queries where '*' matches any sequence of
+ * characters and '?' any single character. They are turned into REGEX filters on anchored java regular expressions.
+ */
+public class QueryFilterQueryTreeConstructor extends FilterQueryTreeConstructor {
+  public static final String FILTER_TYPE = "query";
+  public static final String WILDCARD_QUERY_TYPE = "wildcard";
+
+  private static final String REGEX_META_CHARACTERS = ".[]{}()*+?^$|\\";
+
+  @Override
+  protected FilterQueryTree doConstructFilter(Object param) throws Exception {
+    JSONObject json = (JSONObject) param;
+
+    Iterator<String> iter = json.keys();
+    if (!iter.hasNext())
+      return null;
+
+    String queryType = iter.next();
+    if (!WILDCARD_QUERY_TYPE.equals(queryType)) {
+      throw new IllegalArgumentException("Query type '" + queryType + "' not supported");
+    }
+    JSONObject wildcardJson = json.getJSONObject(queryType);
+    Iterator<String> fieldIter = wildcardJson.keys();
+    if (!fieldIter.hasNext())
+      return null;
+
+    String field = fieldIter.next();
+    List<String> vals = new ArrayList<String>();
+    vals.add(wildcardToRegex(wildcardJson.getString(field)));
+    return new FilterQueryTree(field, vals, FilterOperator.REGEX, null);
+  }
+
+  public static String wildcardToRegex(String wildcard) {
+    StringBuilder regex = new StringBuilder();
+    for (int i = 0; i < wildcard.length(); i++) {
+      char c = wildcard.charAt(i);
+      if (c == '*') {
+        regex.append(".*");
+      } else if (c == '?') {
+        regex.append('.');
+      } else {
+        if (REGEX_META_CHARACTERS.indexOf(c) >= 0) {
+          regex.append('\\');
+        }
+        regex.append(c);
+      }
+    }
+    return regex.toString();
+  }
+}
@@ -29,6 +29,7 @@ public class IndexingConfig {
   private static final Logger LOGGER = LoggerFactory.getLogger(IndexingConfig.class);
 
   private List<String> invertedIndexColumns;
+  private List<String> noDictionaryColumns;
   private List<String> sortedColumn = new ArrayList<String>();
   private String loadMode;
   private String lazyLoad;
@@ -62,6 +63,17 @@ public class IndexingConfig {
     this.invertedIndexColumns = invertedIndexColumns;
   }
 
+  /**
+   * Numeric single value columns stored raw in a fixed width forward index, without a dictionary.
+   */
+  public List<String> getNoDictionaryColumns() {
+    return noDictionaryColumns;
+  }
+
+  public void setNoDictionaryColumns(List<String> noDictionaryColumns) {
+    this.noDictionaryColumns = noDictionaryColumns;
+  }
+
   public String getLoadMode() {
     return loadMode;
   }
@@ -27,6 +27,9 @@ public class QueryException {
   public static final ProcessingException JSON_COMPILATION_ERROR = new ProcessingException(101);
   public static final ProcessingException PQL_PARSING_ERROR = new ProcessingException(150);
   public static final ProcessingException QUERY_EXECUTION_ERROR = new ProcessingException(200);
+  public static final ProcessingException SERVER_SCHEDULER_DOWN_ERROR = new ProcessingException(210);
+  public static final ProcessingException SERVER_OUT_OF_CAPACITY_ERROR = new ProcessingException(211);
+  public static final ProcessingException SERVER_SCHEDULER_TIMEOUT_ERROR = new ProcessingException(212);
   public static final ProcessingException EXECUTION_TIMEOUT_ERROR = new ProcessingException(250);
   public static final ProcessingException BROKER_GATHER_ERROR = new ProcessingException(300);
   public static final ProcessingException FUTURE_CALL_ERROR = new ProcessingException(350);
@@ -44,6 +47,9 @@ public class QueryException {
     JSON_COMPILATION_ERROR.setMessage("JsonCompilationError");
     PQL_PARSING_ERROR.setMessage(" PQLParsingError");
     QUERY_EXECUTION_ERROR.setMessage("QueryExecutionError");
+    SERVER_SCHEDULER_DOWN_ERROR.setMessage("ServerShuttingDown");
+    SERVER_OUT_OF_CAPACITY_ERROR.setMessage("ServerOutOfCapacity");
+    SERVER_SCHEDULER_TIMEOUT_ERROR.setMessage("ServerSchedulerTimeout");
     EXECUTION_TIMEOUT_ERROR.setMessage("ExecutionTimeout");
     BROKER_GATHER_ERROR.setMessage("BrokerGatherError");
     FUTURE_CALL_ERROR.setMessage("FutureCallError");
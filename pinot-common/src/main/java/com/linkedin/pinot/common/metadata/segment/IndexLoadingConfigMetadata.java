@@ -29,14 +29,22 @@ import org.apache.commons.configuration.Configuration;
  */
 public class IndexLoadingConfigMetadata {
 
-  private final static String KEY_OF_LOADING_INVERTED_INDEX = "metadata.loading.inverted.index.columns";
+  public final static String KEY_OF_LOADING_INVERTED_INDEX = "metadata.loading.inverted.index.columns";
+  // Load the indexes of the columns of mmap segments on their first access instead of when loading the segments
+  public final static String KEY_OF_LAZY_LOADING_COLUMNS = "metadata.loading.lazy.columns";
+  // Lazily loaded columns not accessed for this long are released, disabled when not positive
+  public final static String KEY_OF_IDLE_COLUMN_RELEASE_TIME_MS = "metadata.loading.idle.column.release.time.ms";
   private final Set<String> _loadingInvertedIndexColumnSet = new HashSet<String>();
+  private boolean _lazyLoadingColumns;
+  private long _idleColumnReleaseTimeMs;
 
   public IndexLoadingConfigMetadata(Configuration tableDataManagerConfig) {
     List<String> valueOfLoadingInvertedIndexConfig = tableDataManagerConfig.getList(KEY_OF_LOADING_INVERTED_INDEX, null);
     if ((valueOfLoadingInvertedIndexConfig != null) && (!valueOfLoadingInvertedIndexConfig.isEmpty())) {
       initLoadingInvertedIndexColumnSet(valueOfLoadingInvertedIndexConfig.toArray(new String[0]));
     }
+    _lazyLoadingColumns = tableDataManagerConfig.getBoolean(KEY_OF_LAZY_LOADING_COLUMNS, false);
+    _idleColumnReleaseTimeMs = tableDataManagerConfig.getLong(KEY_OF_IDLE_COLUMN_RELEASE_TIME_MS, -1L);
   }
 
   public void initLoadingInvertedIndexColumnSet(String[] columnCollections) {
@@ -51,4 +59,20 @@ public class IndexLoadingConfigMetadata {
     return _loadingInvertedIndexColumnSet.contains(columnName);
   }
 
+  public boolean isLazyLoadingColumns() {
+    return _lazyLoadingColumns;
+  }
+
+  public void setLazyLoadingColumns(boolean lazyLoadingColumns) {
+    _lazyLoadingColumns = lazyLoadingColumns;
+  }
+
+  public long getIdleColumnReleaseTimeMs() {
+    return _idleColumnReleaseTimeMs;
+  }
+
+  public void setIdleColumnReleaseTimeMs(long idleColumnReleaseTimeMs) {
+    _idleColumnReleaseTimeMs = idleColumnReleaseTimeMs;
+  }
+
 }
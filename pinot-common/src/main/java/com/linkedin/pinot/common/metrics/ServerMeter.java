@@ -26,7 +26,8 @@ public enum ServerMeter implements AbstractMetrics.Meter {
   QUERIES("queries", true),
   UNCAUGHT_EXCEPTIONS("exceptions", true),
   RESPONSE_SERIALIZATION_EXCEPTIONS("exceptions", true),
-  QUERY_EXECUTION_EXCEPTIONS("exceptions", false);
+  QUERY_EXECUTION_EXCEPTIONS("exceptions", false),
+  SCHEDULER_REJECTED_QUERIES("queries", false);
 
   private final String meterName;
   private final String unit;
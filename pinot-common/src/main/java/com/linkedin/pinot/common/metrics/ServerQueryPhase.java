@@ -24,6 +24,7 @@ import com.linkedin.pinot.common.Utils;
 */
 public enum ServerQueryPhase implements AbstractMetrics.QueryPhase {
   TOTAL_QUERY_TIME,
+  SCHEDULER_WAIT,
   SEGMENT_PRUNING,
   BUILD_QUERY_PLAN,
   QUERY_PLAN_EXECUTION,
@@ -184,6 +184,13 @@ public class CommonConstants {
       public static final String CURRENT_NUMBER_OF_SEGMENTS = "currentNumberOfSegments";
       public static final String CURRENT_NUMBER_OF_DOCUMENTS = "currentNumberOfDocuments";
       public static final String NUMBER_OF_DELETED_SEGMENTS = "numberOfDeletedSegments";
+      public static final String REALTIME_OFF_HEAP_MEMORY_USED = "realtimeOffHeapMemoryUsed";
+      public static final String REALTIME_ROWS_CONSUMED = "realtimeRowsConsumed";
+      public static final String REALTIME_ROWS_DECODE_FAILED = "realtimeRowsDecodeFailed";
+      public static final String REALTIME_DECODE_LATENCY = "realtimeDecodeLatency";
+      public static final String COLUMN_NUM_LOADS = "columnNumLoads";
+      public static final String COLUMN_NUM_RELEASES = "columnNumReleases";
+      public static final String COLUMN_TOTAL_LOAD_TIME_MS = "columnTotalLoadTimeMs";
     }
 
   }
@@ -56,7 +56,12 @@ public class DataTable {
 
   DataSchema schema;
 
-  static int VERSION = 1;
+  /**
+   * Version 1 encodes the OBJECT cells with java serialization, version 2 with DataTableObjectSerDe.
+   */
+  static int VERSION = 2;
+
+  private int version = VERSION;
 
   private Map<String, Map<Integer, String>> dictionary;
 
@@ -176,7 +181,7 @@ public class DataTable {
 
     final ByteBuffer input = ByteBuffer.wrap(buffer);
 
-    final int version = input.getInt();
+    version = input.getInt();
     numRows = input.getInt();
     numCols = input.getInt();
     // READ dictionary
@@ -251,7 +256,7 @@ public class DataTable {
     // DICTIONARY, METADATA,
     // SCHEMA, DATATABLE, VARIABLE DATA BUFFER --> 4 + 4 + 4 + 5*8 = 52
     // bytes
-    out.writeInt(VERSION);
+    out.writeInt(version);
     out.writeInt(numRows);
     out.writeInt(numCols);
     // dictionary
@@ -706,7 +711,24 @@ public class DataTable {
     final int length = positionCursorInVariableBuffer(rowId, colId);
     final byte[] serData = new byte[length];
     variableSizeData.get(serData);
-    return (T) deserialize(serData);
+    if (version < 2) {
+      return (T) deserialize(serData);
+    }
+    try {
+      return (T) DataTableObjectSerDe.deserialize(serData);
+    } catch (final IOException e) {
+      // A missing value would silently change the query results, fail the DataTable instead
+      throw new RuntimeException("Caught exception while deserializing object at row " + rowId + " column " + colId,
+          e);
+    }
+  }
+
+  /**
+   *
+   * @return
+   */
+  public int getVersion() {
+    return version;
   }
 
   /**
@@ -0,0 +1,380 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.utils;
+
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Binary encoding of the OBJECT cells of a DataTable, used from DataTable version 2 on.
+ *
+ * Each value starts with a one byte type tag followed by the type specific payload: primitive values, primitive
+ * arrays and int open hash sets are written as fixed width values prefixed by their number of elements, strings are
+ * length prefixed UTF-8 bytes, and string keyed maps (the group by results) write each group key followed by its
+ * value, with the value type tag written only once when all the values have the same type.
+ *
+ * Types defined outside of pinot-common (eg. the intermediate results of the aggregation functions) are plugged in
+ * through {@link CustomSerDe} implementations listed in META-INF/services, which are registered when this class is
+ * loaded so that servers and brokers agree on them, or through {@link #registerCustomSerDe(byte, Class, CustomSerDe)}.
+ * Any other value is written with java serialization.
+ */
+public class DataTableObjectSerDe {
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  public static final byte JAVA_SERIALIZED = 0;
+  public static final byte STRING = 1;
+  public static final byte INTEGER = 2;
+  public static final byte LONG = 3;
+  public static final byte DOUBLE = 4;
+  public static final byte INT_ARRAY = 5;
+  public static final byte LONG_ARRAY = 6;
+  public static final byte DOUBLE_ARRAY = 7;
+  public static final byte INT_OPEN_HASH_SET = 8;
+  public static final byte STRING_KEYED_MAP = 9;
+
+  /**
+   * Type tags from this value on are reserved for the custom serializers.
+   */
+  public static final byte FIRST_CUSTOM_TYPE = 64;
+
+  // Written in place of the value type of a map whose values do not all have the same type
+  private static final byte MIXED_VALUE_TYPES = -1;
+
+  private static final Map<Class<?>, Byte> CUSTOM_TYPES = new ConcurrentHashMap<Class<?>, Byte>();
+  private static final Map<Byte, CustomSerDe> CUSTOM_SERDES = new ConcurrentHashMap<Byte, CustomSerDe>();
+
+  static {
+    for (CustomSerDe serDe : ServiceLoader.load(CustomSerDe.class, DataTableObjectSerDe.class.getClassLoader())) {
+      registerCustomSerDe(serDe.getType(), serDe.getValueClass(), serDe);
+    }
+  }
+
+  /**
+   * Serializer for a type that is not known to pinot-common. Implementations listed in
+   * META-INF/services/com.linkedin.pinot.common.utils.DataTableObjectSerDe$CustomSerDe must have a public no-arg
+   * constructor.
+   */
+  public interface CustomSerDe {
+    /**
+     * @return type tag written before the values, at least FIRST_CUSTOM_TYPE.
+     */
+    byte getType();
+
+    /**
+     * @return exact class of the values encoded by this serializer.
+     */
+    Class<?> getValueClass();
+
+    void serialize(Object value, DataOutputStream out) throws IOException;
+
+    Object deserialize(DataInputStream in) throws IOException;
+  }
+
+  private DataTableObjectSerDe() {
+  }
+
+  /**
+   * Registers the serializer of the given class. The type tag is part of the wire format, so it must never change
+   * once used, and must be at least FIRST_CUSTOM_TYPE.
+   *
+   * @param type
+   * @param clazz
+   * @param serDe
+   */
+  public static void registerCustomSerDe(byte type, Class<?> clazz, CustomSerDe serDe) {
+    if (type < FIRST_CUSTOM_TYPE) {
+      throw new IllegalArgumentException("Custom type " + type + " must be at least " + FIRST_CUSTOM_TYPE);
+    }
+    Byte registeredType = CUSTOM_TYPES.get(clazz);
+    if (registeredType != null && registeredType != type) {
+      throw new IllegalStateException("Class " + clazz.getName() + " is already registered with type "
+          + registeredType);
+    }
+    CUSTOM_TYPES.put(clazz, type);
+    CUSTOM_SERDES.put(type, serDe);
+  }
+
+  /**
+   *
+   * @param value
+   * @return
+   * @throws IOException
+   */
+  public static byte[] serialize(Object value) throws IOException {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(baos);
+    final byte type = getType(value);
+    out.writeByte(type);
+    writeValue(type, value, out);
+    out.flush();
+    return baos.toByteArray();
+  }
+
+  /**
+   *
+   * @param bytes
+   * @return
+   * @throws IOException
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> T deserialize(byte[] bytes) throws IOException {
+    final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+    return (T) readValue(in.readByte(), in);
+  }
+
+  private static byte getType(Object value) {
+    if (value instanceof String) {
+      return STRING;
+    }
+    if (value instanceof Integer) {
+      return INTEGER;
+    }
+    if (value instanceof Long) {
+      return LONG;
+    }
+    if (value instanceof Double) {
+      return DOUBLE;
+    }
+    if (value instanceof int[]) {
+      return INT_ARRAY;
+    }
+    if (value instanceof long[]) {
+      return LONG_ARRAY;
+    }
+    if (value instanceof double[]) {
+      return DOUBLE_ARRAY;
+    }
+    if (value != null) {
+      // Subclasses may carry extra state, so only the exact classes get the compact encoding
+      if (value.getClass() == IntOpenHashSet.class) {
+        return INT_OPEN_HASH_SET;
+      }
+      Byte customType = CUSTOM_TYPES.get(value.getClass());
+      if (customType != null) {
+        return customType;
+      }
+      if (value instanceof Map && isStringKeyedMap((Map<?, ?>) value)) {
+        return STRING_KEYED_MAP;
+      }
+    }
+    return JAVA_SERIALIZED;
+  }
+
+  private static boolean isStringKeyedMap(Map<?, ?> map) {
+    for (Object key : map.keySet()) {
+      if (!(key instanceof String)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void writeValue(byte type, Object value, DataOutputStream out) throws IOException {
+    switch (type) {
+      case STRING:
+        writeString((String) value, out);
+        break;
+      case INTEGER:
+        out.writeInt((Integer) value);
+        break;
+      case LONG:
+        out.writeLong((Long) value);
+        break;
+      case DOUBLE:
+        out.writeDouble((Double) value);
+        break;
+      case INT_ARRAY: {
+        final int[] array = (int[]) value;
+        out.writeInt(array.length);
+        for (int element : array) {
+          out.writeInt(element);
+        }
+        break;
+      }
+      case LONG_ARRAY: {
+        final long[] array = (long[]) value;
+        out.writeInt(array.length);
+        for (long element : array) {
+          out.writeLong(element);
+        }
+        break;
+      }
+      case DOUBLE_ARRAY: {
+        final double[] array = (double[]) value;
+        out.writeInt(array.length);
+        for (double element : array) {
+          out.writeDouble(element);
+        }
+        break;
+      }
+      case INT_OPEN_HASH_SET: {
+        final IntOpenHashSet set = (IntOpenHashSet) value;
+        out.writeInt(set.size());
+        final IntIterator iterator = set.iterator();
+        while (iterator.hasNext()) {
+          out.writeInt(iterator.nextInt());
+        }
+        break;
+      }
+      case STRING_KEYED_MAP:
+        writeStringKeyedMap((Map<?, ?>) value, out);
+        break;
+      case JAVA_SERIALIZED: {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final ObjectOutputStream objectOut = new ObjectOutputStream(baos);
+        objectOut.writeObject(value);
+        objectOut.close();
+        out.writeInt(baos.size());
+        baos.writeTo(out);
+        break;
+      }
+      default:
+        CUSTOM_SERDES.get(type).serialize(value, out);
+        break;
+    }
+  }
+
+  private static void writeStringKeyedMap(Map<?, ?> map, DataOutputStream out) throws IOException {
+    byte valueType = MIXED_VALUE_TYPES;
+    boolean first = true;
+    for (Object value : map.values()) {
+      final byte type = getType(value);
+      if (first) {
+        valueType = type;
+        first = false;
+      } else if (type != valueType) {
+        valueType = MIXED_VALUE_TYPES;
+        break;
+      }
+    }
+    out.writeInt(map.size());
+    out.writeByte(valueType);
+    for (Entry<?, ?> entry : map.entrySet()) {
+      writeString((String) entry.getKey(), out);
+      if (valueType == MIXED_VALUE_TYPES) {
+        final byte type = getType(entry.getValue());
+        out.writeByte(type);
+        writeValue(type, entry.getValue(), out);
+      } else {
+        writeValue(valueType, entry.getValue(), out);
+      }
+    }
+  }
+
+  private static void writeString(String value, DataOutputStream out) throws IOException {
+    final byte[] bytes = value.getBytes(UTF8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static Object readValue(byte type, DataInputStream in) throws IOException {
+    switch (type) {
+      case STRING:
+        return readString(in);
+      case INTEGER:
+        return in.readInt();
+      case LONG:
+        return in.readLong();
+      case DOUBLE:
+        return in.readDouble();
+      case INT_ARRAY: {
+        final int[] array = new int[in.readInt()];
+        for (int i = 0; i < array.length; i++) {
+          array[i] = in.readInt();
+        }
+        return array;
+      }
+      case LONG_ARRAY: {
+        final long[] array = new long[in.readInt()];
+        for (int i = 0; i < array.length; i++) {
+          array[i] = in.readLong();
+        }
+        return array;
+      }
+      case DOUBLE_ARRAY: {
+        final double[] array = new double[in.readInt()];
+        for (int i = 0; i < array.length; i++) {
+          array[i] = in.readDouble();
+        }
+        return array;
+      }
+      case INT_OPEN_HASH_SET: {
+        final int size = in.readInt();
+        final IntOpenHashSet set = new IntOpenHashSet(size);
+        for (int i = 0; i < size; i++) {
+          set.add(in.readInt());
+        }
+        return set;
+      }
+      case STRING_KEYED_MAP:
+        return readStringKeyedMap(in);
+      case JAVA_SERIALIZED: {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        final ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes));
+        try {
+          return objectIn.readObject();
+        } catch (ClassNotFoundException e) {
+          throw new IOException("Caught exception while deserializing java serialized value", e);
+        } finally {
+          objectIn.close();
+        }
+      }
+      default:
+        final CustomSerDe serDe = CUSTOM_SERDES.get(type);
+        if (serDe == null) {
+          throw new IOException("No serializer registered for type " + type);
+        }
+        return serDe.deserialize(in);
+    }
+  }
+
+  private static Map<String, Object> readStringKeyedMap(DataInputStream in) throws IOException {
+    final int size = in.readInt();
+    final byte valueType = in.readByte();
+    final Map<String, Object> map = new HashMap<String, Object>((int) (size / 0.75f) + 1);
+    for (int i = 0; i < size; i++) {
+      final String key = readString(in);
+      if (valueType == MIXED_VALUE_TYPES) {
+        map.put(key, readValue(in.readByte(), in));
+      } else {
+        map.put(key, readValue(valueType, in));
+      }
+    }
+    return map;
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    final byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, UTF8);
+  }
+}
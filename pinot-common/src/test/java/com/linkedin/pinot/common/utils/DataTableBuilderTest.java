@@ -15,13 +15,19 @@
  */
 package com.linkedin.pinot.common.utils;
 
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
@@ -275,6 +281,93 @@ public class DataTableBuilderTest {
 
   }
 
+  @Test
+  public void testGroupByResultObjects() throws Exception {
+    DataSchema schema =
+        new DataSchema(new String[] { "functionName", "GroupByResultMap" }, new DataType[] { DataType.STRING,
+            DataType.OBJECT });
+    Map<String, Serializable> countMap = new HashMap<String, Serializable>();
+    countMap.put("2358\tmember", 4L);
+    countMap.put("2359\tgroup", 1L);
+    Map<String, Serializable> distinctCountMap = new HashMap<String, Serializable>();
+    IntOpenHashSet set = new IntOpenHashSet();
+    set.add(3);
+    set.add(-7);
+    set.add(Integer.MAX_VALUE);
+    distinctCountMap.put("2358\tmember", set);
+    distinctCountMap.put("2359\tgroup", new IntOpenHashSet());
+    Map<String, Serializable> mixedMap = new HashMap<String, Serializable>();
+    mixedMap.put("sum", 2.5);
+    mixedMap.put("\u00e9t\u00e9", "utf8");
+    mixedMap.put("other", new A(5));
+    mixedMap.put("empty", new HashMap<String, Serializable>());
+    List<Map<String, Serializable>> maps = Arrays.asList(countMap, distinctCountMap, mixedMap);
+
+    DataTableBuilder builder = new DataTableBuilder(schema);
+    builder.open();
+    for (Map<String, Serializable> map : maps) {
+      builder.startRow();
+      builder.setColumn(0, "function");
+      builder.setColumn(1, map);
+      builder.finishRow();
+    }
+    builder.seal();
+    DataTable newDataTable = new DataTable(builder.build().toBytes());
+    Assert.assertEquals(DataTable.VERSION, newDataTable.getVersion());
+    for (int rowId = 0; rowId < maps.size(); rowId++) {
+      Assert.assertEquals(maps.get(rowId), newDataTable.getObject(rowId, 1));
+    }
+  }
+
+  @Test
+  public void testPrimitiveArrayObjects() throws Exception {
+    DataSchema schema =
+        new DataSchema(new String[] { "int", "long", "double" }, new DataType[] { DataType.OBJECT, DataType.OBJECT,
+            DataType.OBJECT });
+    int[] intArray = new int[] { 1, -2, 3 };
+    long[] longArray = new long[] { Long.MIN_VALUE, 0L };
+    double[] doubleArray = new double[0];
+    DataTableBuilder builder = new DataTableBuilder(schema);
+    builder.open();
+    builder.startRow();
+    builder.setColumn(0, (Object) intArray);
+    builder.setColumn(1, (Object) longArray);
+    builder.setColumn(2, (Object) doubleArray);
+    builder.finishRow();
+    builder.seal();
+    DataTable newDataTable = new DataTable(builder.build().toBytes());
+    Assert.assertTrue(Arrays.equals(intArray, (int[]) newDataTable.getObject(0, 0)));
+    Assert.assertTrue(Arrays.equals(longArray, (long[]) newDataTable.getObject(0, 1)));
+    Assert.assertTrue(Arrays.equals(doubleArray, (double[]) newDataTable.getObject(0, 2)));
+  }
+
+  @Test
+  public void testReadVersion1ObjectColumn() throws Exception {
+    Map<String, Serializable> map = new HashMap<String, Serializable>();
+    map.put("2358\tmember", 4.0);
+    map.put("2359\tgroup", 1.0);
+
+    // Version 1 data tables hold java serialized objects
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(baos);
+    out.writeObject(map);
+    out.close();
+    byte[] objectBytes = baos.toByteArray();
+    ByteBuffer fixedSizeData = ByteBuffer.allocate(8);
+    fixedSizeData.putInt(0);
+    fixedSizeData.putInt(objectBytes.length);
+    DataSchema schema = new DataSchema(new String[] { "GroupByResultMap" }, new DataType[] { DataType.OBJECT });
+    DataTable dataTable =
+        new DataTable(1, new HashMap<String, Map<Integer, String>>(), new HashMap<String, String>(), schema,
+            fixedSizeData.array(), objectBytes);
+    byte[] bytes = dataTable.toBytes();
+    ByteBuffer.wrap(bytes).putInt(0, 1);
+
+    DataTable newDataTable = new DataTable(bytes);
+    Assert.assertEquals(1, newDataTable.getVersion());
+    Assert.assertEquals(map, newDataTable.getObject(0, 0));
+  }
+
   private void validate(DataType type, DataTable dataTable, Object[] arr, int rowId, int colId) {
     switch (type) {
       case BOOLEAN:
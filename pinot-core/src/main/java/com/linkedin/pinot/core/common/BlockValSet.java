@@ -26,6 +26,18 @@ public interface BlockValSet {
   BlockValIterator iterator();
 
   DataType getValueType();
+
+  /**
+   * Reads the dictionary ids of a single value column for a batch of docIds, this avoids going through
+   * the per doc skipTo/nextIntVal iterator calls when scanning a block of docIds.
+   *
+   * @param inDocIds docIds to read, docIds outside of the block are not allowed
+   * @param inStartPos position of the first docId to read in inDocIds
+   * @param inDocIdsSize number of docIds to read
+   * @param outDictionaryIds array receiving the dictionary ids
+   * @param outStartPos position of the first dictionary id in outDictionaryIds
+   */
+  void getDictionaryIds(int[] inDocIds, int inStartPos, int inDocIdsSize, int[] outDictionaryIds, int outStartPos);
 /*
   int getDictionaryId(int docId);
 
@@ -22,12 +22,52 @@ import com.linkedin.pinot.core.common.Predicate;
 import com.linkedin.pinot.core.common.Predicate.Type;
 
 
+/**
+ * Predicate matching the values of a column against a java regular expression. The whole value has to match, so
+ * the LIKE filters are sent as anchored expressions, eg 'abc%' as 'abc.*'.
+ */
 public class RegexPredicate extends Predicate {
 
+  private static final String REGEX_META_CHARACTERS = ".[]{}()*+?^$|";
+  private static final String MATCH_ANY_SUFFIX = ".*";
+
   public RegexPredicate(String lhs, List<String> rhs) {
     super(lhs, Type.REGEX, rhs);
   }
 
+  public String getRegex() {
+    return getRhs().get(0);
+  }
+
+  /**
+   * Returns the literal prefix of expressions of the form 'prefix.*', which match a contiguous range of sorted
+   * values, or null for any other expression.
+   */
+  public String getLiteralPrefix() {
+    final String regex = getRegex();
+    final StringBuilder prefix = new StringBuilder();
+    int i = 0;
+    while (i < regex.length()) {
+      final char c = regex.charAt(i);
+      if (c == '\\') {
+        if (i + 1 == regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+          break;
+        }
+        prefix.append(regex.charAt(i + 1));
+        i += 2;
+      } else if (REGEX_META_CHARACTERS.indexOf(c) >= 0) {
+        break;
+      } else {
+        prefix.append(c);
+        i++;
+      }
+    }
+    if (!regex.substring(i).equals(MATCH_ANY_SUFFIX)) {
+      return null;
+    }
+    return prefix.toString();
+  }
+
   @Override
   public String toString() {
     return "Predicate: type: " + getType() + ", left : " + getLhs() + ", right : " + Arrays.toString(getRhs().toArray(new String[0])) + "\n";
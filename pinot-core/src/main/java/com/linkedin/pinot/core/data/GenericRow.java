@@ -31,35 +31,118 @@ import com.linkedin.pinot.common.data.RowEvent;
 /**
  * A plain implementation of RowEvent based on HashMap.
  *
+ * Rows can also be backed by an array of value slots resolved once for a set of fields, which decoders reuse across
+ * records to avoid building a map per record. Such rows share their field names and positions with the rows created
+ * through {@link #newRowWithSameFields()}.
  *
  */
 public class GenericRow implements RowEvent {
   private Map<String, Object> _fieldMap = new HashMap<String, Object>();
   private static ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
+  // Only set for rows backed by an array of value slots
+  private String[] _fieldNames = null;
+  private Map<String, Integer> _fieldIndexes = null;
+  private Object[] _values = null;
+
+  public GenericRow() {
+  }
+
+  /**
+   * Creates a row backed by an array of value slots, one per field name.
+   */
+  public GenericRow(String[] fieldNames) {
+    Map<String, Integer> fieldIndexes = new HashMap<String, Integer>();
+    for (int i = 0; i < fieldNames.length; i++) {
+      fieldIndexes.put(fieldNames[i], i);
+    }
+    initValues(fieldNames.clone(), fieldIndexes);
+  }
+
+  private void initValues(String[] fieldNames, Map<String, Integer> fieldIndexes) {
+    _fieldMap = null;
+    _fieldNames = fieldNames;
+    _fieldIndexes = fieldIndexes;
+    _values = new Object[fieldNames.length];
+  }
+
+  /**
+   * Returns a new empty row backed by an array of value slots, with the same fields as this row.
+   */
+  public GenericRow newRowWithSameFields() {
+    if (_values == null) {
+      return new GenericRow(getFieldNames());
+    }
+    GenericRow row = new GenericRow();
+    row.initValues(_fieldNames, _fieldIndexes);
+    return row;
+  }
+
+  /**
+   * Sets the value at the given position of a row backed by an array of value slots.
+   */
+  public void setValue(int fieldIndex, Object value) {
+    _values[fieldIndex] = value;
+  }
+
+  /**
+   * Returns the value at the given position of a row backed by an array of value slots.
+   */
+  public Object getValue(int fieldIndex) {
+    return _values[fieldIndex];
+  }
+
   @Override
   public void init(Map<String, Object> field) {
     _fieldMap = field;
+    _fieldNames = null;
+    _fieldIndexes = null;
+    _values = null;
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * The field names of a row backed by an array of value slots are shared with the other rows with the same fields and
+   * must not be modified.
+   */
   @Override
   public String[] getFieldNames() {
+    if (_values != null) {
+      return _fieldNames;
+    }
     return _fieldMap.keySet().toArray(new String[_fieldMap.size()]);
   }
 
   @Override
   public Object getValue(String fieldName) {
+    if (_values != null) {
+      Integer fieldIndex = _fieldIndexes.get(fieldName);
+      return fieldIndex == null ? null : _values[fieldIndex];
+    }
     return _fieldMap.get(fieldName);
   }
 
+  private Map<String, Object> getFieldMap() {
+    if (_values == null) {
+      return _fieldMap;
+    }
+    Map<String, Object> fieldMap = new HashMap<String, Object>();
+    for (int i = 0; i < _fieldNames.length; i++) {
+      fieldMap.put(_fieldNames[i], _values[i]);
+    }
+    return fieldMap;
+  }
+
   @Override
   public String toString() {
+    Map<String, Object> fieldMap = getFieldMap();
     StringBuilder b = new StringBuilder();
-    for (String key : _fieldMap.keySet()) {
-      if (_fieldMap.get(key) instanceof Object[]) {
-        b.append(key + " : " + Arrays.toString((Object[]) _fieldMap.get(key)) + ", ");
+    for (String key : fieldMap.keySet()) {
+      if (fieldMap.get(key) instanceof Object[]) {
+        b.append(key + " : " + Arrays.toString((Object[]) fieldMap.get(key)) + ", ");
       } else {
-        b.append(key + " : " + _fieldMap.get(key) + ", ");
+        b.append(key + " : " + fieldMap.get(key) + ", ");
       }
 
     }
@@ -77,7 +160,7 @@ static TypeReference typeReference = new TypeReference<Map<String, Object>>() {
 
   public byte[] toBytes() throws IOException {
     StringWriter writer = new StringWriter();
-    OBJECT_MAPPER.writeValue(writer, _fieldMap);
+    OBJECT_MAPPER.writeValue(writer, getFieldMap());
     return writer.toString().getBytes(Charset.forName("UTF-8"));
   }
 }
@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.core.data.extractors;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -30,6 +31,8 @@ import com.linkedin.pinot.core.data.GenericRow;
 public class PlainFieldExtractor implements FieldExtractor {
 
   Schema _schema = null;
+  // Field names of the last row already holding exactly the columns of the schema, see transform
+  private String[] _schemaFieldNames = null;
 
   // Made public so it can be used in Pinot Admin code.
   public PlainFieldExtractor(Schema schema) {
@@ -39,6 +42,7 @@ public class PlainFieldExtractor implements FieldExtractor {
   @Override
   public void setSchema(Schema schema) {
     _schema = schema;
+    _schemaFieldNames = null;
   }
 
   @Override
@@ -48,6 +52,16 @@ public class PlainFieldExtractor implements FieldExtractor {
 
   @Override
   public GenericRow transform(GenericRow row) {
+    // Rows backed by an array of value slots share their field names, a row with the same field names as a row already
+    // holding exactly the columns of the schema can be returned as is
+    String[] fieldNames = row.getFieldNames();
+    if (fieldNames == _schemaFieldNames) {
+      return row;
+    }
+    if (fieldNames.length == _schema.size() && _schema.getColumnNames().containsAll(Arrays.asList(fieldNames))) {
+      _schemaFieldNames = fieldNames;
+      return row;
+    }
     Map<String, Object> fieldMap = new HashMap<String, Object>();
     if (_schema.size() > 0) {
       for (String column : _schema.getColumnNames()) {
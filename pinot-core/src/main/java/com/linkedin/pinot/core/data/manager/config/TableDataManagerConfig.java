@@ -15,15 +15,21 @@
  */
 package com.linkedin.pinot.core.data.manager.config;
 
+import java.util.List;
+import java.util.Map;
+
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.linkedin.pinot.common.config.AbstractTableConfig;
 import com.linkedin.pinot.common.config.TableNameBuilder;
 import com.linkedin.pinot.common.metadata.segment.IndexLoadingConfigMetadata;
 import com.linkedin.pinot.common.segment.ReadMode;
 import com.linkedin.pinot.common.utils.CommonConstants.Helix.TableType;
+import com.linkedin.pinot.core.operator.MCombineOperator;
 
 
 /**
@@ -32,8 +38,19 @@ import com.linkedin.pinot.common.utils.CommonConstants.Helix.TableType;
  *
  */
 public class TableDataManagerConfig {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TableDataManagerConfig.class);
 
   private static final String TABLE_DATA_MANAGER_NUM_QUERY_EXECUTOR_THREADS = "numQueryExecutorThreads";
+  // Max number of segments of a single query processed concurrently, can be set in the table custom configs
+  public static final String TABLE_DATA_MANAGER_MAX_THREADS_PER_QUERY = "maxThreadsPerQuery";
+  // Min number of segments of a single query processed by each thread, can be set in the table custom configs
+  public static final String TABLE_DATA_MANAGER_MIN_SEGMENTS_PER_THREAD = "minSegmentsPerThread";
+  // Size in bytes of the per segment query results cache of offline tables, can be set in the table custom configs
+  public static final String TABLE_DATA_MANAGER_SEGMENT_RESULT_CACHE_SIZE_BYTES = "segmentResultCacheSizeBytes";
+  // Lazy loading of the columns of mmap segments, and release of the columns idle for the given time, can be set in the
+  // table custom configs
+  public static final String TABLE_DATA_MANAGER_LAZY_LOADING_COLUMNS = "lazyLoadingColumns";
+  public static final String TABLE_DATA_MANAGER_IDLE_COLUMN_RELEASE_TIME_MS = "idleColumnReleaseTimeMs";
   private static final String TABLE_DATA_MANAGER_TYPE = "dataManagerType";
   private static final String READ_MODE = "readMode";
   private static final String TABLE_DATA_MANAGER_DATA_DIRECTORY = "directory";
@@ -69,6 +86,20 @@ public class TableDataManagerConfig {
     return _tableDataManagerConfig.getInt(TABLE_DATA_MANAGER_NUM_QUERY_EXECUTOR_THREADS, 10);
   }
 
+  public int getMaxThreadsPerQuery() {
+    return _tableDataManagerConfig.getInt(TABLE_DATA_MANAGER_MAX_THREADS_PER_QUERY,
+        MCombineOperator.DEFAULT_MAX_THREADS_PER_QUERY);
+  }
+
+  public int getMinSegmentsPerThread() {
+    return _tableDataManagerConfig.getInt(TABLE_DATA_MANAGER_MIN_SEGMENTS_PER_THREAD,
+        MCombineOperator.DEFAULT_MIN_SEGMENTS_PER_THREAD);
+  }
+
+  public long getSegmentResultCacheSizeBytes() {
+    return _tableDataManagerConfig.getLong(TABLE_DATA_MANAGER_SEGMENT_RESULT_CACHE_SIZE_BYTES, 0L);
+  }
+
   public static TableDataManagerConfig getDefaultHelixTableDataManagerConfig(
       InstanceDataManagerConfig _instanceDataManagerConfig, String tableName) throws ConfigurationException {
     TableType tableType = TableNameBuilder.getTableTypeFromTableName(tableName);
@@ -102,6 +133,65 @@ public class TableDataManagerConfig {
   public void overrideConfigs(AbstractTableConfig tableConfig) {
     _tableDataManagerConfig.setProperty(READ_MODE, tableConfig.getIndexingConfig().getLoadMode().toLowerCase());
     _tableDataManagerConfig.setProperty(TABLE_DATA_MANAGER_NAME, tableConfig.getTableName());
+    // Inverted indexes missing from the segments are created when loading them
+    List<String> invertedIndexColumns = tableConfig.getIndexingConfig().getInvertedIndexColumns();
+    if (invertedIndexColumns != null && !invertedIndexColumns.isEmpty()) {
+      _tableDataManagerConfig.setProperty(IndexLoadingConfigMetadata.KEY_OF_LOADING_INVERTED_INDEX,
+          invertedIndexColumns);
+    }
+    if (tableConfig.getCustomConfigs() != null && tableConfig.getCustomConfigs().getCustomConfigs() != null) {
+      Map<String, String> customConfigs = tableConfig.getCustomConfigs().getCustomConfigs();
+      String maxThreadsPerQuery = customConfigs.get(TABLE_DATA_MANAGER_MAX_THREADS_PER_QUERY);
+      if (maxThreadsPerQuery != null) {
+        try {
+          _tableDataManagerConfig.setProperty(TABLE_DATA_MANAGER_MAX_THREADS_PER_QUERY,
+              Integer.parseInt(maxThreadsPerQuery));
+        } catch (NumberFormatException e) {
+          logInvalidCustomConfig(tableConfig, TABLE_DATA_MANAGER_MAX_THREADS_PER_QUERY, maxThreadsPerQuery);
+        }
+      }
+      String minSegmentsPerThread = customConfigs.get(TABLE_DATA_MANAGER_MIN_SEGMENTS_PER_THREAD);
+      if (minSegmentsPerThread != null) {
+        try {
+          _tableDataManagerConfig.setProperty(TABLE_DATA_MANAGER_MIN_SEGMENTS_PER_THREAD,
+              Integer.parseInt(minSegmentsPerThread));
+        } catch (NumberFormatException e) {
+          logInvalidCustomConfig(tableConfig, TABLE_DATA_MANAGER_MIN_SEGMENTS_PER_THREAD, minSegmentsPerThread);
+        }
+      }
+      String segmentResultCacheSizeBytes = customConfigs.get(TABLE_DATA_MANAGER_SEGMENT_RESULT_CACHE_SIZE_BYTES);
+      if (segmentResultCacheSizeBytes != null) {
+        try {
+          _tableDataManagerConfig.setProperty(TABLE_DATA_MANAGER_SEGMENT_RESULT_CACHE_SIZE_BYTES,
+              Long.parseLong(segmentResultCacheSizeBytes));
+        } catch (NumberFormatException e) {
+          logInvalidCustomConfig(tableConfig, TABLE_DATA_MANAGER_SEGMENT_RESULT_CACHE_SIZE_BYTES,
+              segmentResultCacheSizeBytes);
+        }
+      }
+      String lazyLoadingColumns = customConfigs.get(TABLE_DATA_MANAGER_LAZY_LOADING_COLUMNS);
+      if (lazyLoadingColumns != null) {
+        _tableDataManagerConfig.setProperty(IndexLoadingConfigMetadata.KEY_OF_LAZY_LOADING_COLUMNS,
+            Boolean.parseBoolean(lazyLoadingColumns));
+      }
+      String idleColumnReleaseTimeMs = customConfigs.get(TABLE_DATA_MANAGER_IDLE_COLUMN_RELEASE_TIME_MS);
+      if (idleColumnReleaseTimeMs != null) {
+        try {
+          _tableDataManagerConfig.setProperty(IndexLoadingConfigMetadata.KEY_OF_IDLE_COLUMN_RELEASE_TIME_MS,
+              Long.parseLong(idleColumnReleaseTimeMs));
+        } catch (NumberFormatException e) {
+          logInvalidCustomConfig(tableConfig, TABLE_DATA_MANAGER_IDLE_COLUMN_RELEASE_TIME_MS, idleColumnReleaseTimeMs);
+        }
+      }
+    }
+  }
+
+  /**
+   * A bad custom config should not prevent the table from being served, the default value is used instead.
+   */
+  private static void logInvalidCustomConfig(AbstractTableConfig tableConfig, String key, String value) {
+    LOGGER.warn("Invalid value '{}' for custom config {} of table {}, using the default value", value, key,
+        tableConfig.getTableName());
   }
 
   public IndexLoadingConfigMetadata getIndexLoadingConfigMetadata() {
@@ -17,11 +17,15 @@ package com.linkedin.pinot.core.data.manager.offline;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
@@ -42,9 +46,14 @@ import com.linkedin.pinot.common.utils.NamedThreadFactory;
 import com.linkedin.pinot.core.data.manager.config.TableDataManagerConfig;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl.ColumnLoadStats;
 import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.index.loader.BackgroundInvertedIndexCreator;
 import com.yammer.metrics.Metrics;
 import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.Gauge;
 
 
 /**
@@ -68,12 +77,19 @@ public class OfflineTableDataManager implements TableDataManager {
       .newSingleThreadExecutor(new NamedThreadFactory("SegmentAsyncExecutorService"));
   private String _tableDataDir;
   private int _numberOfTableQueryExecutorThreads;
+  private int _maxThreadsPerQuery;
+  private int _minSegmentsPerThread;
+  private SegmentResultCache _segmentResultCache;
   private IndexLoadingConfigMetadata _indexLoadingConfigMetadata;
+  private ScheduledExecutorService _idleColumnReleaseExecutorService;
 
   private final Map<String, OfflineSegmentDataManager> _segmentsMap = new ConcurrentHashMap<String, OfflineSegmentDataManager>();
   private final List<String> _activeSegments = new ArrayList<String>();
   private final List<String> _loadingSegments = new ArrayList<String>();
   private Map<String, AtomicInteger> _referenceCounts = new ConcurrentHashMap<String, AtomicInteger>();
+  // Columns of the lazily loaded segments for which the load gauges are registered
+  private final Set<String> _columnsWithLoadGauges =
+      Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
   private Counter _currentNumberOfSegments = Metrics.newCounter(OfflineTableDataManager.class,
       CommonConstants.Metric.Server.CURRENT_NUMBER_OF_SEGMENTS);
@@ -106,6 +122,12 @@ public class OfflineTableDataManager implements TableDataManager {
       new File(_tableDataDir).mkdirs();
     }
     _numberOfTableQueryExecutorThreads = _tableDataManagerConfig.getNumberOfTableQueryExecutorThreads();
+    _maxThreadsPerQuery = _tableDataManagerConfig.getMaxThreadsPerQuery();
+    _minSegmentsPerThread = _tableDataManagerConfig.getMinSegmentsPerThread();
+    long segmentResultCacheSizeBytes = _tableDataManagerConfig.getSegmentResultCacheSizeBytes();
+    if (segmentResultCacheSizeBytes > 0) {
+      _segmentResultCache = new SegmentResultCache(segmentResultCacheSizeBytes);
+    }
     //_numberOfTableQueryExecutorThreads = 1;
     if (_numberOfTableQueryExecutorThreads > 0) {
       _queryExecutorService =
@@ -117,6 +139,22 @@ public class OfflineTableDataManager implements TableDataManager {
     }
     _readMode = ReadMode.valueOf(_tableDataManagerConfig.getReadMode());
     _indexLoadingConfigMetadata = _tableDataManagerConfig.getIndexLoadingConfigMetadata();
+    final long idleColumnReleaseTimeMs = _indexLoadingConfigMetadata.getIdleColumnReleaseTimeMs();
+    if (_readMode == ReadMode.mmap && _indexLoadingConfigMetadata.isLazyLoadingColumns()
+        && idleColumnReleaseTimeMs > 0) {
+      _idleColumnReleaseExecutorService =
+          Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("idle-column-release-" + _tableName));
+      _idleColumnReleaseExecutorService.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            releaseIdleColumns(idleColumnReleaseTimeMs);
+          } catch (Exception e) {
+            LOGGER.error("Caught exception while releasing idle columns of table " + _tableName, e);
+          }
+        }
+      }, idleColumnReleaseTimeMs, idleColumnReleaseTimeMs, TimeUnit.MILLISECONDS);
+    }
     LOGGER
         .info("Initialized table : " + _tableName + " with :\n\tData Directory: " + _tableDataDir
             + "\n\tRead Mode : " + _readMode + "\n\tQuery Exeutor with "
@@ -144,6 +182,9 @@ public class OfflineTableDataManager implements TableDataManager {
     if (_isStarted) {
       _queryExecutorService.shutdown();
       _segmentAsyncExecutorService.shutdown();
+      if (_idleColumnReleaseExecutorService != null) {
+        _idleColumnReleaseExecutorService.shutdown();
+      }
       _tableDataManagerConfig = null;
       _isStarted = false;
     } else {
@@ -157,11 +198,13 @@ public class OfflineTableDataManager implements TableDataManager {
         ColumnarSegmentLoader.loadSegment(segmentMetadata, _readMode, _indexLoadingConfigMetadata);
     LOGGER.info("Added IndexSegment : " + indexSegment.getSegmentName() + " to table : " + _tableName);
     addSegment(indexSegment);
+    BackgroundInvertedIndexCreator.submit(indexSegment, _indexLoadingConfigMetadata, _readMode);
   }
 
   @Override
   public void addSegment(final IndexSegment indexSegmentToAdd) {
     LOGGER.info("Trying to add a new segment to table : " + _tableName);
+    registerColumnLoadGauges(indexSegmentToAdd);
 
     synchronized (getGlobalLock()) {
       if (!_segmentsMap.containsKey(indexSegmentToAdd.getSegmentName())) {
@@ -173,6 +216,9 @@ public class OfflineTableDataManager implements TableDataManager {
         LOGGER.info("Trying to refresh segment - " + indexSegmentToAdd.getSegmentName());
         OfflineSegmentDataManager segment = _segmentsMap.get(indexSegmentToAdd.getSegmentName());
         _segmentsMap.put(indexSegmentToAdd.getSegmentName(), new OfflineSegmentDataManager(indexSegmentToAdd));
+        if (_segmentResultCache != null) {
+          _segmentResultCache.invalidateSegment(indexSegmentToAdd.getSegmentName());
+        }
         if (segment != null) {
           _currentNumberOfDocuments.dec(segment.getSegment().getTotalDocs());
           _currentNumberOfDocuments.inc(indexSegmentToAdd.getTotalDocs());
@@ -189,6 +235,7 @@ public class OfflineTableDataManager implements TableDataManager {
         ColumnarSegmentLoader.loadSegment(segmentMetadata, _readMode, _indexLoadingConfigMetadata);
     LOGGER.info("Added IndexSegment : " + indexSegment.getSegmentName() + " to table : " + _tableName);
     addSegment(indexSegment);
+    BackgroundInvertedIndexCreator.submit(indexSegment, _indexLoadingConfigMetadata, _readMode);
   }
 
   @Override
@@ -224,6 +271,9 @@ public class OfflineTableDataManager implements TableDataManager {
         }
       }
       if (segment != null) {
+        if (_segmentResultCache != null) {
+          _segmentResultCache.invalidateSegment(segmentId);
+        }
         _currentNumberOfSegments.dec();
         _currentNumberOfDocuments.dec(segment.getSegment().getTotalDocs());
         _numDeletedSegments.inc();
@@ -238,11 +288,120 @@ public class OfflineTableDataManager implements TableDataManager {
         }
       });
 
-    } else {
-      count.decrementAndGet();
+    } else if (count.decrementAndGet() == 1) {
+      // The last query holding the segment is done, the columns released in the meantime can be closed
+      OfflineSegmentDataManager segment = _segmentsMap.get(segmentId);
+      if (segment != null && segment.getSegment() instanceof IndexSegmentImpl) {
+        closeReleasedColumns((IndexSegmentImpl) segment.getSegment(), count);
+      }
+    }
+  }
+
+  /**
+   * Releases the lazily loaded columns of the segments which have not been accessed for the given time. Their readers
+   * are closed once no query holds the segment anymore, as the queries acquiring the segment after the release load
+   * the columns again.
+   *
+   * @return the number of released columns.
+   */
+  public int releaseIdleColumns(long idleTimeMs) {
+    int numReleasedColumns = 0;
+    for (OfflineSegmentDataManager segmentDataManager : _segmentsMap.values()) {
+      if (!(segmentDataManager.getSegment() instanceof IndexSegmentImpl)) {
+        continue;
+      }
+      IndexSegmentImpl indexSegment = (IndexSegmentImpl) segmentDataManager.getSegment();
+      numReleasedColumns += indexSegment.releaseIdleColumns(idleTimeMs);
+      AtomicInteger count = _referenceCounts.get(segmentDataManager.getSegmentName());
+      if (count != null) {
+        closeReleasedColumns(indexSegment, count);
+      }
+    }
+    return numReleasedColumns;
+  }
+
+  /**
+   * Closes the released columns of a segment if no query holds it. Otherwise they are closed when the last query
+   * holding the segment returns it.
+   */
+  private static void closeReleasedColumns(IndexSegmentImpl indexSegment, AtomicInteger count) {
+    if (indexSegment.getNumReleasedIndexContainers() == 0) {
+      return;
+    }
+    // Read before checking the count: a query still using a column released before this point holds the segment
+    long lastReleaseSequence = indexSegment.getLastReleaseSequence();
+    // The table itself holds one reference to each of its segments
+    if (count.get() == 1) {
+      indexSegment.closeReleasedColumns(lastReleaseSequence);
     }
   }
 
+  /**
+   * Registers the gauges of the number of loads, releases and total load time of each lazily loaded column, summed
+   * over the segments of the table.
+   */
+  private void registerColumnLoadGauges(IndexSegment indexSegment) {
+    if (!(indexSegment instanceof IndexSegmentImpl) || !((IndexSegmentImpl) indexSegment).isLazyLoadingColumns()) {
+      return;
+    }
+    for (final String column : indexSegment.getColumnNames()) {
+      if (!_columnsWithLoadGauges.add(column)) {
+        continue;
+      }
+      String gaugePrefix = _tableName + "-" + column + "-";
+      Metrics.newGauge(OfflineTableDataManager.class, gaugePrefix + CommonConstants.Metric.Server.COLUMN_NUM_LOADS,
+          new Gauge<Long>() {
+            @Override
+            public Long value() {
+              long numLoads = 0;
+              for (ColumnLoadStats columnLoadStats : getColumnLoadStats(column)) {
+                numLoads += columnLoadStats.getNumLoads();
+              }
+              return numLoads;
+            }
+          });
+      Metrics.newGauge(OfflineTableDataManager.class,
+          gaugePrefix + CommonConstants.Metric.Server.COLUMN_NUM_RELEASES, new Gauge<Long>() {
+            @Override
+            public Long value() {
+              long numReleases = 0;
+              for (ColumnLoadStats columnLoadStats : getColumnLoadStats(column)) {
+                numReleases += columnLoadStats.getNumReleases();
+              }
+              return numReleases;
+            }
+          });
+      Metrics.newGauge(OfflineTableDataManager.class,
+          gaugePrefix + CommonConstants.Metric.Server.COLUMN_TOTAL_LOAD_TIME_MS, new Gauge<Long>() {
+            @Override
+            public Long value() {
+              long totalLoadTimeMs = 0;
+              for (ColumnLoadStats columnLoadStats : getColumnLoadStats(column)) {
+                totalLoadTimeMs += columnLoadStats.getTotalLoadTimeMs();
+              }
+              return totalLoadTimeMs;
+            }
+          });
+    }
+  }
+
+  /**
+   * @return the load statistics of a column in each lazily loaded segment of the table.
+   */
+  public List<ColumnLoadStats> getColumnLoadStats(String column) {
+    List<ColumnLoadStats> columnLoadStatsList = new ArrayList<ColumnLoadStats>();
+    for (OfflineSegmentDataManager segmentDataManager : _segmentsMap.values()) {
+      if (segmentDataManager.getSegment() instanceof IndexSegmentImpl) {
+        IndexSegmentImpl indexSegment = (IndexSegmentImpl) segmentDataManager.getSegment();
+        ColumnLoadStats columnLoadStats = indexSegment.getColumnLoadStats(column);
+        if (indexSegment.isLazyLoadingColumns() && columnLoadStats != null) {
+          columnLoadStatsList.add(columnLoadStats);
+        }
+      }
+    }
+    return columnLoadStatsList;
+  }
+
   @Override
   public boolean isStarted() {
     return _isStarted;
@@ -292,6 +451,21 @@ public class OfflineTableDataManager implements TableDataManager {
     return _queryExecutorService;
   }
 
+  @Override
+  public int getMaxThreadsPerQuery() {
+    return _maxThreadsPerQuery;
+  }
+
+  @Override
+  public int getMinSegmentsPerThread() {
+    return _minSegmentsPerThread;
+  }
+
+  @Override
+  public SegmentResultCache getSegmentResultCache() {
+    return _segmentResultCache;
+  }
+
   @Override
   public List<SegmentDataManager> getSegments(List<String> segmentList) {
     List<SegmentDataManager> ret = new ArrayList<SegmentDataManager>();
@@ -27,6 +27,7 @@ import com.linkedin.pinot.common.metadata.segment.SegmentZKMetadata;
 import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.core.data.manager.config.TableDataManagerConfig;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
 
 
 /**
@@ -120,4 +121,19 @@ public interface TableDataManager {
    */
   public ExecutorService getExecutorService();
 
+  /**
+   * @return max number of segments of a single query processed concurrently on the query ExecutorService.
+   */
+  public int getMaxThreadsPerQuery();
+
+  /**
+   * @return min number of segments of a single query processed by each thread of the query ExecutorService.
+   */
+  public int getMinSegmentsPerThread();
+
+  /**
+   * @return cache of the per segment query results, null if the results are not cached.
+   */
+  public SegmentResultCache getSegmentResultCache();
+
 }
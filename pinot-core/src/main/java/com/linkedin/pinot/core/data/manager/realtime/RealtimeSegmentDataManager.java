@@ -16,6 +16,7 @@
 package com.linkedin.pinot.core.data.manager.realtime;
 
 import java.io.File;
+import java.util.List;
 import java.util.TimerTask;
 import java.util.concurrent.TimeUnit;
 
@@ -28,17 +29,25 @@ import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.common.metadata.instance.InstanceZKMetadata;
 import com.linkedin.pinot.common.metadata.segment.RealtimeSegmentZKMetadata;
 import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.common.utils.CommonConstants;
 import com.linkedin.pinot.common.utils.CommonConstants.Segment.Realtime.Status;
 import com.linkedin.pinot.common.utils.CommonConstants.Segment.SegmentType;
+import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.data.manager.offline.SegmentDataManager;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
-import com.linkedin.pinot.core.realtime.StreamProvider;
+import com.linkedin.pinot.core.realtime.RawMessageStreamProvider;
 import com.linkedin.pinot.core.realtime.StreamProviderConfig;
 import com.linkedin.pinot.core.realtime.converter.RealtimeSegmentConverter;
+import com.linkedin.pinot.core.realtime.impl.PipelinedStreamConsumer;
 import com.linkedin.pinot.core.realtime.impl.RealtimeSegmentImpl;
 import com.linkedin.pinot.core.realtime.impl.kafka.KafkaHighLevelConsumerStreamProvider;
 import com.linkedin.pinot.core.realtime.impl.kafka.KafkaHighLevelStreamProviderConfig;
+import com.linkedin.pinot.core.realtime.impl.memory.DirectMemoryManager;
+import com.linkedin.pinot.core.realtime.impl.memory.MmapMemoryManager;
+import com.linkedin.pinot.core.realtime.impl.memory.RealtimeMemoryManager;
 import com.linkedin.pinot.core.segment.index.loader.Loaders;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Gauge;
 
 
 public class RealtimeSegmentDataManager implements SegmentDataManager {
@@ -52,6 +61,10 @@ public class RealtimeSegmentDataManager implements SegmentDataManager {
       "metadata.realtime.segment.numIndexedEventsToStopIndexing";
   private final static long DEFAULT_TIME_IN_MILLIS_TO_STOP_INDEXING = ONE_MINUTE_IN_MILLSEC * 60;
   private final static long DEFAULT_NUM_INDEXED_EVENTS_TO_STOP_INDEXING = 5000000;
+  // The messages are decoded by a few threads while the indexing thread indexes the rows decoded before
+  private final static int NUM_DECODING_THREADS = 2;
+  private final static int DECODING_BATCH_SIZE = 1000;
+  private final static int NUM_DECODING_BATCHES = 4;
 
   private final String segmentName;
   private final Schema schema;
@@ -59,7 +72,8 @@ public class RealtimeSegmentDataManager implements SegmentDataManager {
   private final RealtimeSegmentZKMetadata segmentMetatdaZk;
 
   private final StreamProviderConfig kafkaStreamProviderConfig;
-  private final StreamProvider kafkaStreamProvider;
+  private final RawMessageStreamProvider kafkaStreamProvider;
+  private final PipelinedStreamConsumer streamConsumer;
   private final File resourceDir;
   private final File resourceTmpDir;
   private final Object lock = new Object();
@@ -75,6 +89,8 @@ public class RealtimeSegmentDataManager implements SegmentDataManager {
   private long timeInMillisToStopIndexing = DEFAULT_TIME_IN_MILLIS_TO_STOP_INDEXING;
   private long numIndexedEventsToStopIndexing = DEFAULT_NUM_INDEXED_EVENTS_TO_STOP_INDEXING;
   private final String sortedColumn;
+  private final List<String> noDictionaryColumns;
+  private final String offHeapMemoryGaugeName;
 
   public RealtimeSegmentDataManager(final RealtimeSegmentZKMetadata segmentMetadata,
       final AbstractTableConfig tableConfig, InstanceZKMetadata instanceMetadata,
@@ -98,6 +114,7 @@ public class RealtimeSegmentDataManager implements SegmentDataManager {
         this.sortedColumn = null;
       }
     }
+    this.noDictionaryColumns = tableConfig.getIndexingConfig().getNoDictionaryColumns();
     this.segmentMetatdaZk = segmentMetadata;
     this.segmentName = segmentMetadata.getSegmentName();
 
@@ -115,12 +132,31 @@ public class RealtimeSegmentDataManager implements SegmentDataManager {
     this.kafkaStreamProvider = new KafkaHighLevelConsumerStreamProvider();
     this.kafkaStreamProvider.init(kafkaStreamProviderConfig);
     this.kafkaStreamProvider.start();
-    // lets create a new realtime segment
-    realtimeSegment = new RealtimeSegmentImpl(schema, FIVE_MILLION);
+    // no more messages than the segment can index are fetched, the offsets committed are those of all fetched messages
+    this.streamConsumer =
+        new PipelinedStreamConsumer(kafkaStreamProvider, segmentName, NUM_DECODING_THREADS, DECODING_BATCH_SIZE,
+            NUM_DECODING_BATCHES, FIVE_MILLION);
+    // lets create a new realtime segment, growing in mmap'd scratch files for mmap tables and in direct memory otherwise
+    RealtimeMemoryManager memoryManager;
+    if (mode == ReadMode.mmap) {
+      memoryManager = new MmapMemoryManager(resourceTmpDir, segmentName);
+    } else {
+      memoryManager = new DirectMemoryManager();
+    }
+    final RealtimeSegmentImpl consumingSegment = new RealtimeSegmentImpl(schema, FIVE_MILLION, memoryManager);
+    realtimeSegment = consumingSegment;
     ((RealtimeSegmentImpl) (realtimeSegment)).setSegmentName(segmentMetadata.getSegmentName());
     ((RealtimeSegmentImpl) (realtimeSegment)).setSegmentMetadata(segmentMetadata, this.schema);
     notifier = realtimeResourceManager;
 
+    offHeapMemoryGaugeName = segmentName + "-" + CommonConstants.Metric.Server.REALTIME_OFF_HEAP_MEMORY_USED;
+    Metrics.newGauge(RealtimeSegmentDataManager.class, offHeapMemoryGaugeName, new Gauge<Long>() {
+      @Override
+      public Long value() {
+        return consumingSegment.getOffHeapMemoryUsed();
+      }
+    });
+
     segmentStatusTask = new TimerTask() {
       @Override
       public void run() {
@@ -132,8 +168,34 @@ public class RealtimeSegmentDataManager implements SegmentDataManager {
     indexingThread = new Thread(new Runnable() {
       @Override
       public void run() {
-        // continue indexing until critertia is met
-        while (((RealtimeSegmentImpl) realtimeSegment).index(kafkaStreamProvider.next()) && keepIndexing) {
+        // continue indexing until critertia is met, the consumer is stopped once it is and hands out the rows of the
+        // messages already consumed from the stream, which all fit in the segment
+        boolean indexedAllRows = true;
+        try {
+          GenericRow row;
+          while ((row = streamConsumer.next()) != null) {
+            if (!consumingSegment.index(row)) {
+              LOGGER.error("Realtime segment {} rejected a consumed event", segmentName);
+              indexedAllRows = false;
+              break;
+            }
+          }
+        } catch (Exception e) {
+          LOGGER.error("Caught exception while consuming events", e);
+          indexedAllRows = false;
+        }
+        streamConsumer.shutdown();
+        if (!indexedAllRows) {
+          // the offsets of the fetched messages cannot be committed without the ones not indexed, so none is, the
+          // messages are consumed again once the stream provider is shut down
+          LOGGER.error("Stopped consuming without committing the offsets of realtime segment {}", segmentName);
+          segmentStatusTask.cancel();
+          try {
+            kafkaStreamProvider.shutdown();
+          } catch (Exception e) {
+            LOGGER.error("Caught exception while shutting down the stream provider", e);
+          }
+          return;
         }
 
         LOGGER.info("Indexing threshold reached, proceeding with index conversion");
@@ -148,6 +210,7 @@ public class RealtimeSegmentDataManager implements SegmentDataManager {
         RealtimeSegmentConverter conveter =
             new RealtimeSegmentConverter((RealtimeSegmentImpl) realtimeSegment, tempSegmentFolder.getAbsolutePath(),
                 schema, segmentMetadata.getTableName(), segmentMetadata.getSegmentName(), sortedColumn);
+        conveter.setNoDictionaryColumns(noDictionaryColumns);
         try {
           LOGGER.info("Trying to build segment!");
           conveter.build();
@@ -161,6 +224,7 @@ public class RealtimeSegmentDataManager implements SegmentDataManager {
 
           TimeUnit timeUnit = schema.getTimeFieldSpec().getOutgoingGranularitySpec().getTimeType();
           swap();
+          release(consumingSegment);
           RealtimeSegmentZKMetadata metadaToOverrite = new RealtimeSegmentZKMetadata();
           metadaToOverrite.setTableName(segmentMetadata.getTableName());
           metadaToOverrite.setSegmentName(segmentMetadata.getSegmentName());
@@ -180,6 +244,7 @@ public class RealtimeSegmentDataManager implements SegmentDataManager {
       }
     });
 
+    streamConsumer.start();
     indexingThread.start();
 
     LOGGER.debug("scheduling keepIndexing timer check");
@@ -196,6 +261,15 @@ public class RealtimeSegmentDataManager implements SegmentDataManager {
     }
   }
 
+  /**
+   * Releases the memory of the consuming segment once it has been swapped. Queries which acquired it before the swap
+   * keep reading it, its memory is reclaimed by the garbage collector once they are done.
+   */
+  private void release(RealtimeSegmentImpl consumingSegment) {
+    consumingSegment.destroy();
+    Metrics.defaultRegistry().removeMetric(RealtimeSegmentDataManager.class, offHeapMemoryGaugeName);
+  }
+
   @Override
   public IndexSegment getSegment() {
     return realtimeSegment;
@@ -210,7 +284,8 @@ public class RealtimeSegmentDataManager implements SegmentDataManager {
     if (keepIndexing) {
       LOGGER.info("Current indexed " + ((RealtimeSegmentImpl) realtimeSegment).getRawDocumentCount()
           + " raw events, success = " + ((RealtimeSegmentImpl) realtimeSegment).getSuccessIndexedCount()
-          + " docs, total = " + ((RealtimeSegmentImpl) realtimeSegment).getTotalDocs() + " docs in realtime segment");
+          + " docs, total = " + ((RealtimeSegmentImpl) realtimeSegment).getTotalDocs() + " docs in realtime segment, "
+          + ((RealtimeSegmentImpl) realtimeSegment).getOffHeapMemoryUsed() + " bytes off-heap");
       if ((System.currentTimeMillis() >= segmentEndTimeThreshold)
           || ((RealtimeSegmentImpl) realtimeSegment).getRawDocumentCount() >= numIndexedEventsToStopIndexing) {
         if (((RealtimeSegmentImpl) realtimeSegment).getRawDocumentCount() == 0) {
@@ -223,6 +298,7 @@ public class RealtimeSegmentDataManager implements SegmentDataManager {
             + " raw documents indexed, segment is aged "
             + ((System.currentTimeMillis() - start) / (ONE_MINUTE_IN_MILLSEC)) + " minutes");
         keepIndexing = false;
+        streamConsumer.stop();
       }
     }
   }
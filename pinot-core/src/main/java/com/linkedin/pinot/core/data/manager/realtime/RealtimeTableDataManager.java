@@ -49,6 +49,8 @@ import com.linkedin.pinot.core.data.manager.offline.SegmentDataManager;
 import com.linkedin.pinot.core.data.manager.offline.TableDataManager;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
+import com.linkedin.pinot.core.segment.index.loader.BackgroundInvertedIndexCreator;
 import com.yammer.metrics.Metrics;
 import com.yammer.metrics.core.Counter;
 
@@ -63,6 +65,8 @@ public class RealtimeTableDataManager implements TableDataManager {
   private TableDataManagerConfig _tableDataManagerConfig;
   private String _tableDataDir;
   private int _numberOfTableQueryExecutorThreads;
+  private int _maxThreadsPerQuery;
+  private int _minSegmentsPerThread;
   private IndexLoadingConfigMetadata _indexLoadingConfigMetadata;
   private ExecutorService _queryExecutorService;
 
@@ -105,6 +109,8 @@ public class RealtimeTableDataManager implements TableDataManager {
       new File(_tableDataDir).mkdirs();
     }
     _numberOfTableQueryExecutorThreads = _tableDataManagerConfig.getNumberOfTableQueryExecutorThreads();
+    _maxThreadsPerQuery = _tableDataManagerConfig.getMaxThreadsPerQuery();
+    _minSegmentsPerThread = _tableDataManagerConfig.getMinSegmentsPerThread();
     if (_numberOfTableQueryExecutorThreads > 0) {
       _queryExecutorService =
           Executors.newFixedThreadPool(_numberOfTableQueryExecutorThreads, new NamedThreadFactory(
@@ -181,6 +187,7 @@ public class RealtimeTableDataManager implements TableDataManager {
               _segmentsMap.put(segmentId, new OfflineSegmentDataManager(segment));
               markSegmentAsLoaded(segmentId);
               _referenceCounts.put(segmentId, new AtomicInteger(1));
+              BackgroundInvertedIndexCreator.submit(segment, _indexLoadingConfigMetadata, _readMode);
             }
           }
         }
@@ -329,6 +336,22 @@ public class RealtimeTableDataManager implements TableDataManager {
     return _queryExecutorService;
   }
 
+  @Override
+  public int getMaxThreadsPerQuery() {
+    return _maxThreadsPerQuery;
+  }
+
+  @Override
+  public int getMinSegmentsPerThread() {
+    return _minSegmentsPerThread;
+  }
+
+  @Override
+  public SegmentResultCache getSegmentResultCache() {
+    // Consuming segments change as events are indexed, their results are never cached
+    return null;
+  }
+
   public Object getGlobalLock() {
     return _globalLock;
   }
@@ -19,9 +19,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.zip.GZIPInputStream;
 
 import org.apache.avro.Schema.Field;
@@ -40,6 +38,7 @@ import com.linkedin.pinot.common.data.FieldSpec.DataType;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.data.extractors.FieldExtractor;
+import com.linkedin.pinot.core.realtime.impl.kafka.AvroRecordToPinotRowGenerator;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 
 
@@ -50,8 +49,10 @@ public class AvroRecordReader implements RecordReader {
   private DataFileStream<GenericRecord> _dataStream = null;
   private FieldExtractor _schemaExtractor = null;
 
-  private final GenericRow _genericRow = new GenericRow();
-  private final Map<String, Object> _fieldMap = new HashMap<String, Object>();
+  // The Avro record and the row are reused across records
+  private AvroRecordToPinotRowGenerator _rowGenerator = null;
+  private GenericRecord _avroRecord = null;
+  private GenericRow _genericRow = null;
 
   public AvroRecordReader(final FieldExtractor fieldExtractor, String filePath) throws Exception {
     _schemaExtractor = fieldExtractor;
@@ -76,6 +77,8 @@ public class AvroRecordReader implements RecordReader {
     }
 
     updateSchema(_schemaExtractor.getSchema());
+    _rowGenerator = new AvroRecordToPinotRowGenerator(_schemaExtractor.getSchema());
+    _genericRow = _rowGenerator.newRow();
   }
 
   @Override
@@ -85,31 +88,12 @@ public class AvroRecordReader implements RecordReader {
 
   @Override
   public GenericRow next() {
-    return _schemaExtractor.transform(getGenericRow(_dataStream.next()));
-  }
-
-  private GenericRow getGenericRow(GenericRecord rawRecord) {
-    for (final Field field : _dataStream.getSchema().getFields()) {
-      FieldSpec spec = _schemaExtractor.getSchema().getFieldSpecFor(field.name());
-      if (spec == null) {
-        continue;
-      }
-      Object value = rawRecord.get(field.name());
-      if (value instanceof Utf8) {
-        value = ((Utf8) value).toString();
-      }
-      if (value instanceof Array) {
-        value = transformAvroArrayToObjectArray((Array) value, spec);
-      }
-
-      if (value == null && spec.isSingleValueField()) {
-        value = getDefaultNullValue(spec);
-      }
-
-      _fieldMap.put(field.name(), value);
+    try {
+      _avroRecord = _dataStream.next(_avroRecord);
+    } catch (IOException e) {
+      throw new RuntimeException("Caught exception while reading " + _fileName, e);
     }
-    _genericRow.init(_fieldMap);
-    return _genericRow;
+    return _schemaExtractor.transform(_rowGenerator.transform(_avroRecord, _genericRow));
   }
 
   public static Object getDefaultNullValue(FieldSpec spec) {
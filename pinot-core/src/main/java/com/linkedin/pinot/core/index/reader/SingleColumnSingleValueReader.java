@@ -74,4 +74,16 @@ public interface SingleColumnSingleValueReader extends DataFileReader{
    * @return
    */
   byte[] getBytes(int row);
+
+  /**
+   * Batch version of {@link #getInt(int)}: reads the int values of rowSize rows, whose ids are
+   * taken from rows starting at rowStartPos, into values starting at valuesStartPos.
+   *
+   * @param rows
+   * @param rowStartPos
+   * @param rowSize
+   * @param values
+   * @param valuesStartPos
+   */
+  void readValues(int[] rows, int rowStartPos, int rowSize, int[] values, int valuesStartPos);
 }
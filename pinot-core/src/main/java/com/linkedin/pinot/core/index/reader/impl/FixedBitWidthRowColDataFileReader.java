@@ -268,6 +268,34 @@ public class FixedBitWidthRowColDataFileReader {
 
   }
 
+  /**
+   * Reads the values of a column for a batch of rows, hoisting the per column lookups out of the loop.
+   *
+   * @param rowIds
+   * @param col
+   * @param rowStartPos
+   * @param rowSize
+   * @param values
+   * @param valuesStartPos
+   */
+  public void getIntArray(int[] rowIds, int col, int rowStartPos, int rowSize, int[] values, int valuesStartPos) {
+    if (col >= cols) {
+      throw new IndexOutOfBoundsException("Column " + col + " is not with in expected range " + cols);
+    }
+    final int colBitOffSet = colBitOffSets[col];
+    final int colSizeInBits = colSizesInBits[col];
+    final int offset = offsets[col];
+    final int rowEndPos = rowStartPos + rowSize;
+    for (int i = rowStartPos; i < rowEndPos; i++) {
+      final int row = rowIds[i];
+      if (row >= rows) {
+        throw new IndexOutOfBoundsException("Row " + row + " is not with in expected range " + rows);
+      }
+      final int startBitOffset = row * rowSizeInBits + colBitOffSet;
+      values[valuesStartPos++] = customBitSet.readInt(startBitOffset, startBitOffset + colSizeInBits) - offset;
+    }
+  }
+
   public int getNumberOfRows() {
     return rows;
   }
@@ -17,15 +17,14 @@ package com.linkedin.pinot.core.index.readerwriter.impl;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
-import com.linkedin.pinot.common.utils.MmapUtils;
 import com.linkedin.pinot.core.index.reader.DataFileMetadata;
 import com.linkedin.pinot.core.index.reader.impl.FixedByteWidthRowColDataFileReader;
 import com.linkedin.pinot.core.index.readerwriter.SingleColumnMultiValueReaderWriter;
 import com.linkedin.pinot.core.index.writer.impl.FixedByteWidthRowColDataFileWriter;
+import com.linkedin.pinot.core.realtime.impl.memory.DirectMemoryManager;
+import com.linkedin.pinot.core.realtime.impl.memory.RealtimeMemoryManager;
 
 
 /**
@@ -33,10 +32,12 @@ import com.linkedin.pinot.core.index.writer.impl.FixedByteWidthRowColDataFileWri
  * Writes must be strictly sequential, while reads can be random <br>
  * It is very similar to the SingleColumnMultiValue format representation <br>
  * except that the variable size data buffer size is not known up front in case FixedByteSingleColumnMultiValueReaderWriter
- * This class allocates extra memory in chunks as needed.
+ * This class allocates extra memory in chunks as needed, both for the header and the data buffers, from a
+ * {@link RealtimeMemoryManager}. Chunks are never moved once allocated, and are published to the readers through
+ * volatile arrays.
  * Data format
  * <code>
- *  HEADER SECTION
+ *  HEADER SECTION (in chunks of a fixed number of rows)
  *    bufferId startIndex EndIndex
  *    bufferId startIndex EndIndex
  *    bufferId startIndex EndIndex
@@ -66,57 +67,94 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
 
   private static int SIZE_OF_INT = 4;
   private static int NUM_COLS_IN_HEADER = 3;
+  private static final int[] HEADER_COLUMN_SIZES = new int[] { SIZE_OF_INT, SIZE_OF_INT, SIZE_OF_INT };
 
   private static int AVERAGE_NUM_VALUES_PER_ROW = 10;//used to compute the initial size
   private static int INCREMENT_PERCENTAGE = 100;//Increments the Initial size by 100% of initial capacity every time we runs out of capacity
 
-  private ByteBuffer headerBuffer;
-  private List<ByteBuffer> dataBuffers = new ArrayList<ByteBuffer>();
-  private FixedByteWidthRowColDataFileWriter headerWriter;
-  private FixedByteWidthRowColDataFileReader headerReader;
-  private List<FixedByteWidthRowColDataFileWriter> dataWriters = new ArrayList<FixedByteWidthRowColDataFileWriter>();
-  private List<FixedByteWidthRowColDataFileReader> dataReaders = new ArrayList<FixedByteWidthRowColDataFileReader>();
+  private final RealtimeMemoryManager memoryManager;
+  private final String context;
+  private final boolean ownsMemoryManager;
+  private int headerRowsPerChunk;
+  private volatile FixedByteWidthRowColDataFileReader[] headerReaders = new FixedByteWidthRowColDataFileReader[0];
+  private FixedByteWidthRowColDataFileWriter[] headerWriters = new FixedByteWidthRowColDataFileWriter[0];
+  private volatile FixedByteWidthRowColDataFileReader[] dataReaders = new FixedByteWidthRowColDataFileReader[0];
   private FixedByteWidthRowColDataFileWriter currentDataWriter;
   private int currentDataWriterIndex = -1;
   private int currentCapacity = 0;
-  private int headerSize;
+  private int nextStartIndex = 0;
   private int incrementalCapacity;
   private int columnSizeInBytes;
   private int maxNumberOfMultiValuesPerRow;
 
   public FixedByteSingleColumnMultiValueReaderWriter(int rows, int columnSizeInBytes, int maxNumberOfMultiValuesPerRow)
       throws IOException {
-    int initialCapacity = Math.max(maxNumberOfMultiValuesPerRow, rows * AVERAGE_NUM_VALUES_PER_ROW);
-    int incrementalCapacity =
-        Math.max(maxNumberOfMultiValuesPerRow, (int) (initialCapacity * 1.0f * INCREMENT_PERCENTAGE / 100));
-    init(rows, columnSizeInBytes, maxNumberOfMultiValuesPerRow, initialCapacity, incrementalCapacity);
+    this(rows, columnSizeInBytes, maxNumberOfMultiValuesPerRow, getInitialCapacity(rows, maxNumberOfMultiValuesPerRow),
+        Math.max(maxNumberOfMultiValuesPerRow,
+            (int) (getInitialCapacity(rows, maxNumberOfMultiValuesPerRow) * 1.0f * INCREMENT_PERCENTAGE / 100)));
   }
 
   public FixedByteSingleColumnMultiValueReaderWriter(int rows, int columnSizeInBytes, int maxNumberOfMultiValuesPerRow,
       int initialCapacity, int incrementalCapacity) throws IOException {
+    this.memoryManager = new DirectMemoryManager();
+    this.context = "";
+    this.ownsMemoryManager = true;
     init(rows, columnSizeInBytes, maxNumberOfMultiValuesPerRow, initialCapacity, incrementalCapacity);
+    addHeaderChunk();
+  }
+
+  /**
+   * Creates a column growing by header chunks of the given number of rows and data chunks of the given number of
+   * values, allocated from the memory manager which owns them.
+   *
+   * @param rowsPerChunk Number of rows of each header chunk
+   * @param columnSizeInBytes Size of a value in bytes
+   * @param maxNumberOfMultiValuesPerRow Maximum number of values of a row
+   * @param valuesPerChunk Number of values of each data chunk, at least maxNumberOfMultiValuesPerRow
+   * @param memoryManager Memory manager to allocate the chunks from
+   * @param context Name of the column, for logging
+   */
+  public FixedByteSingleColumnMultiValueReaderWriter(int rowsPerChunk, int columnSizeInBytes,
+      int maxNumberOfMultiValuesPerRow, int valuesPerChunk, RealtimeMemoryManager memoryManager, String context) {
+    this.memoryManager = memoryManager;
+    this.context = context;
+    this.ownsMemoryManager = false;
+    int capacity = Math.max(maxNumberOfMultiValuesPerRow, valuesPerChunk);
+    init(rowsPerChunk, columnSizeInBytes, maxNumberOfMultiValuesPerRow, capacity, capacity);
+  }
 
+  private static int getInitialCapacity(int rows, int maxNumberOfMultiValuesPerRow) {
+    return Math.max(maxNumberOfMultiValuesPerRow, rows * AVERAGE_NUM_VALUES_PER_ROW);
   }
 
   private void init(int rows, int columnSizeInBytes, int maxNumberOfMultiValuesPerRow, int initialCapacity,
-      int incrementalCapacity) throws IOException {
+      int incrementalCapacity) {
     this.columnSizeInBytes = columnSizeInBytes;
     this.maxNumberOfMultiValuesPerRow = maxNumberOfMultiValuesPerRow;
-    headerSize = rows * SIZE_OF_INT * NUM_COLS_IN_HEADER;
-    headerBuffer = ByteBuffer.allocateDirect(headerSize);
-    headerBuffer.order(ByteOrder.nativeOrder());
-    //dataBufferId, startIndex, length
-    headerWriter =
-        new FixedByteWidthRowColDataFileWriter(headerBuffer, rows, 3,
-            new int[] { SIZE_OF_INT, SIZE_OF_INT, SIZE_OF_INT });
-    headerReader =
-        new FixedByteWidthRowColDataFileReader(headerBuffer, rows, 3,
-            new int[] { SIZE_OF_INT, SIZE_OF_INT, SIZE_OF_INT });
-    //at least create space for million entries, which for INT translates into 4mb buffer
+    this.headerRowsPerChunk = rows;
     this.incrementalCapacity = incrementalCapacity;
     addCapacity(initialCapacity);
   }
 
+  private void addHeaderChunk() {
+    ByteBuffer headerBuffer = memoryManager.allocate(headerRowsPerChunk * SIZE_OF_INT * NUM_COLS_IN_HEADER, context);
+    try {
+      //dataBufferId, startIndex, length
+      headerWriters = Arrays.copyOf(headerWriters, headerWriters.length + 1);
+      headerWriters[headerWriters.length - 1] =
+          new FixedByteWidthRowColDataFileWriter(headerBuffer, headerRowsPerChunk, NUM_COLS_IN_HEADER,
+              HEADER_COLUMN_SIZES);
+      FixedByteWidthRowColDataFileReader[] newHeaderReaders =
+          Arrays.copyOf(headerReaders, headerReaders.length + 1);
+      newHeaderReaders[newHeaderReaders.length - 1] =
+          new FixedByteWidthRowColDataFileReader(headerBuffer, headerRowsPerChunk, NUM_COLS_IN_HEADER,
+              HEADER_COLUMN_SIZES);
+      headerReaders = newHeaderReaders;
+    } catch (IOException e) {
+      throw new RuntimeException("Error while adding a header chunk of " + headerRowsPerChunk + " rows", e);
+    }
+  }
+
   /**
    * This method automatically computes the space needed based on the columnSizeInBytes
    * @param rowCapacity Additional capacity to be added in terms of number of rows
@@ -125,19 +163,19 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
   private void addCapacity(int rowCapacity) throws RuntimeException {
     ByteBuffer dataBuffer;
     try {
-      dataBuffer = ByteBuffer.allocateDirect(rowCapacity * columnSizeInBytes);
-      dataBuffer.order(ByteOrder.nativeOrder());
-      dataBuffers.add(dataBuffer);
+      dataBuffer = memoryManager.allocate(rowCapacity * columnSizeInBytes, context);
       currentDataWriter =
           new FixedByteWidthRowColDataFileWriter(dataBuffer, rowCapacity, 1, new int[] { columnSizeInBytes });
-      dataWriters.add(currentDataWriter);
 
       FixedByteWidthRowColDataFileReader dataFileReader =
           new FixedByteWidthRowColDataFileReader(dataBuffer, rowCapacity, 1, new int[] { columnSizeInBytes });
-      dataReaders.add(dataFileReader);
+      FixedByteWidthRowColDataFileReader[] newDataReaders = Arrays.copyOf(dataReaders, dataReaders.length + 1);
+      newDataReaders[newDataReaders.length - 1] = dataFileReader;
+      dataReaders = newDataReaders;
       //update the capacity
       currentCapacity = rowCapacity;
       currentDataWriterIndex = currentDataWriterIndex + 1;
+      nextStartIndex = 0;
     } catch (Exception e) {
       throw new RuntimeException("Error while expanding the capacity by allocating additional buffer with capacity:"
           + rowCapacity, e);
@@ -151,30 +189,29 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
 
   @Override
   public void close() {
-    for (ByteBuffer dataBuffer : dataBuffers) {
-      MmapUtils.unloadByteBuffer(dataBuffer);
+    // Chunks allocated from a shared memory manager are released along with it
+    if (ownsMemoryManager) {
+      memoryManager.close();
     }
-    MmapUtils.unloadByteBuffer(headerBuffer);
   }
 
   private int updateHeader(int row, int length) {
     assert (length < maxNumberOfMultiValuesPerRow);
-    int prevRowStartIndex = 0;
-    int prevRowLength = 0;
-    if (row > 0) {
-      prevRowStartIndex = headerReader.getInt(row - 1, 1);
-      prevRowLength = headerReader.getInt(row - 1, 2);
-    }
-    int newStartIndex = prevRowStartIndex + prevRowLength;
+    int newStartIndex = nextStartIndex;
     if (newStartIndex + length > currentCapacity) {
       addCapacity(incrementalCapacity);
-      prevRowStartIndex = 0;
-      prevRowLength = 0;
-      newStartIndex = prevRowStartIndex + prevRowLength;
+      newStartIndex = 0;
+    }
+    int chunkId = row / headerRowsPerChunk;
+    while (chunkId >= headerWriters.length) {
+      addHeaderChunk();
     }
-    headerWriter.setInt(row, 0, currentDataWriterIndex);
-    headerWriter.setInt(row, 1, newStartIndex);
-    headerWriter.setInt(row, 2, length);
+    FixedByteWidthRowColDataFileWriter headerWriter = headerWriters[chunkId];
+    int chunkRow = row % headerRowsPerChunk;
+    headerWriter.setInt(chunkRow, 0, currentDataWriterIndex);
+    headerWriter.setInt(chunkRow, 1, newStartIndex);
+    headerWriter.setInt(chunkRow, 2, length);
+    nextStartIndex = newStartIndex + length;
     return newStartIndex;
   }
 
@@ -245,10 +282,12 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
 
   @Override
   public int getCharArray(int row, char[] charArray) {
-    int bufferIndex = headerReader.getInt(row, 1);
-    int startIndex = headerReader.getInt(row, 1);
-    int length = headerReader.getInt(row, 2);
-    FixedByteWidthRowColDataFileReader dataReader = dataReaders.get(bufferIndex);
+    FixedByteWidthRowColDataFileReader headerReader = headerReaders[row / headerRowsPerChunk];
+    int headerRow = row % headerRowsPerChunk;
+    int bufferIndex = headerReader.getInt(headerRow, 0);
+    int startIndex = headerReader.getInt(headerRow, 1);
+    int length = headerReader.getInt(headerRow, 2);
+    FixedByteWidthRowColDataFileReader dataReader = dataReaders[bufferIndex];
     for (int i = 0; i < length; i++) {
       charArray[i] = dataReader.getChar(startIndex + i, 0);
     }
@@ -257,10 +296,12 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
 
   @Override
   public int getShortArray(int row, short[] shortsArray) {
-    int bufferIndex = headerReader.getInt(row, 1);
-    int startIndex = headerReader.getInt(row, 1);
-    int length = headerReader.getInt(row, 2);
-    FixedByteWidthRowColDataFileReader dataReader = dataReaders.get(bufferIndex);
+    FixedByteWidthRowColDataFileReader headerReader = headerReaders[row / headerRowsPerChunk];
+    int headerRow = row % headerRowsPerChunk;
+    int bufferIndex = headerReader.getInt(headerRow, 0);
+    int startIndex = headerReader.getInt(headerRow, 1);
+    int length = headerReader.getInt(headerRow, 2);
+    FixedByteWidthRowColDataFileReader dataReader = dataReaders[bufferIndex];
     for (int i = 0; i < length; i++) {
       shortsArray[i] = dataReader.getShort(startIndex + i, 0);
     }
@@ -269,10 +310,12 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
 
   @Override
   public int getIntArray(int row, int[] intArray) {
-    int bufferIndex = headerReader.getInt(row, 0);
-    int startIndex = headerReader.getInt(row, 1);
-    int length = headerReader.getInt(row, 2);
-    FixedByteWidthRowColDataFileReader dataReader = dataReaders.get(bufferIndex);
+    FixedByteWidthRowColDataFileReader headerReader = headerReaders[row / headerRowsPerChunk];
+    int headerRow = row % headerRowsPerChunk;
+    int bufferIndex = headerReader.getInt(headerRow, 0);
+    int startIndex = headerReader.getInt(headerRow, 1);
+    int length = headerReader.getInt(headerRow, 2);
+    FixedByteWidthRowColDataFileReader dataReader = dataReaders[bufferIndex];
     for (int i = 0; i < length; i++) {
       intArray[i] = dataReader.getInt(startIndex + i, 0);
     }
@@ -281,10 +324,12 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
 
   @Override
   public int getLongArray(int row, long[] longArray) {
-    int bufferIndex = headerReader.getInt(row, 0);
-    int startIndex = headerReader.getInt(row, 1);
-    int length = headerReader.getInt(row, 2);
-    FixedByteWidthRowColDataFileReader dataReader = dataReaders.get(bufferIndex);
+    FixedByteWidthRowColDataFileReader headerReader = headerReaders[row / headerRowsPerChunk];
+    int headerRow = row % headerRowsPerChunk;
+    int bufferIndex = headerReader.getInt(headerRow, 0);
+    int startIndex = headerReader.getInt(headerRow, 1);
+    int length = headerReader.getInt(headerRow, 2);
+    FixedByteWidthRowColDataFileReader dataReader = dataReaders[bufferIndex];
     for (int i = 0; i < length; i++) {
       longArray[i] = dataReader.getLong(startIndex + i, 0);
     }
@@ -293,10 +338,12 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
 
   @Override
   public int getFloatArray(int row, float[] floatArray) {
-    int bufferIndex = headerReader.getInt(row, 1);
-    int startIndex = headerReader.getInt(row, 1);
-    int length = headerReader.getInt(row, 2);
-    FixedByteWidthRowColDataFileReader dataReader = dataReaders.get(bufferIndex);
+    FixedByteWidthRowColDataFileReader headerReader = headerReaders[row / headerRowsPerChunk];
+    int headerRow = row % headerRowsPerChunk;
+    int bufferIndex = headerReader.getInt(headerRow, 0);
+    int startIndex = headerReader.getInt(headerRow, 1);
+    int length = headerReader.getInt(headerRow, 2);
+    FixedByteWidthRowColDataFileReader dataReader = dataReaders[bufferIndex];
     for (int i = 0; i < length; i++) {
       floatArray[i] = dataReader.getFloat(startIndex + i, 0);
     }
@@ -305,10 +352,12 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
 
   @Override
   public int getDoubleArray(int row, double[] doubleArray) {
-    int bufferIndex = headerReader.getInt(row, 1);
-    int startIndex = headerReader.getInt(row, 1);
-    int length = headerReader.getInt(row, 2);
-    FixedByteWidthRowColDataFileReader dataReader = dataReaders.get(bufferIndex);
+    FixedByteWidthRowColDataFileReader headerReader = headerReaders[row / headerRowsPerChunk];
+    int headerRow = row % headerRowsPerChunk;
+    int bufferIndex = headerReader.getInt(headerRow, 0);
+    int startIndex = headerReader.getInt(headerRow, 1);
+    int length = headerReader.getInt(headerRow, 2);
+    FixedByteWidthRowColDataFileReader dataReader = dataReaders[bufferIndex];
     for (int i = 0; i < length; i++) {
       doubleArray[i] = dataReader.getDouble(startIndex + i, 0);
     }
@@ -317,10 +366,12 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
 
   @Override
   public int getStringArray(int row, String[] stringArray) {
-    int bufferIndex = headerReader.getInt(row, 1);
-    int startIndex = headerReader.getInt(row, 1);
-    int length = headerReader.getInt(row, 2);
-    FixedByteWidthRowColDataFileReader dataReader = dataReaders.get(bufferIndex);
+    FixedByteWidthRowColDataFileReader headerReader = headerReaders[row / headerRowsPerChunk];
+    int headerRow = row % headerRowsPerChunk;
+    int bufferIndex = headerReader.getInt(headerRow, 0);
+    int startIndex = headerReader.getInt(headerRow, 1);
+    int length = headerReader.getInt(headerRow, 2);
+    FixedByteWidthRowColDataFileReader dataReader = dataReaders[bufferIndex];
     for (int i = 0; i < length; i++) {
       stringArray[i] = dataReader.getString(startIndex + i, 0);
     }
@@ -329,10 +380,12 @@ public class FixedByteSingleColumnMultiValueReaderWriter implements SingleColumn
 
   @Override
   public int getBytesArray(int row, byte[][] bytesArray) {
-    int bufferIndex = headerReader.getInt(row, 1);
-    int startIndex = headerReader.getInt(row, 1);
-    int length = headerReader.getInt(row, 2);
-    FixedByteWidthRowColDataFileReader dataReader = dataReaders.get(bufferIndex);
+    FixedByteWidthRowColDataFileReader headerReader = headerReaders[row / headerRowsPerChunk];
+    int headerRow = row % headerRowsPerChunk;
+    int bufferIndex = headerReader.getInt(headerRow, 0);
+    int startIndex = headerReader.getInt(headerRow, 1);
+    int length = headerReader.getInt(headerRow, 2);
+    FixedByteWidthRowColDataFileReader dataReader = dataReaders[bufferIndex];
     for (int i = 0; i < length; i++) {
       bytesArray[i] = dataReader.getBytes(startIndex + i, 0);
     }
@@ -16,47 +16,113 @@
 package com.linkedin.pinot.core.index.readerwriter.impl;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.util.Arrays;
 
 import com.linkedin.pinot.core.index.reader.DataFileMetadata;
 import com.linkedin.pinot.core.index.reader.SingleColumnSingleValueReader;
 import com.linkedin.pinot.core.index.reader.impl.FixedByteWidthRowColDataFileReader;
 import com.linkedin.pinot.core.index.writer.SingleColumnSingleValueWriter;
 import com.linkedin.pinot.core.index.writer.impl.FixedByteWidthRowColDataFileWriter;
+import com.linkedin.pinot.core.realtime.impl.memory.DirectMemoryManager;
+import com.linkedin.pinot.core.realtime.impl.memory.RealtimeMemoryManager;
 
 
+/**
+ * Fixed width single value column supporting writes by a single thread while other threads read it.
+ *
+ * The rows are stored in off-heap chunks of a fixed number of rows, allocated from a {@link RealtimeMemoryManager} the
+ * first time a row of the chunk is written, so that the column only grows as rows are added. Chunks are never moved
+ * once allocated, readers must only read the rows published to them by the writer.
+ */
 public class FixedByteSingleColumnSingleValueReaderWriter implements SingleColumnSingleValueReader,
     SingleColumnSingleValueWriter {
 
-  FixedByteWidthRowColDataFileReader reader;
-  FixedByteWidthRowColDataFileWriter writer;
-  private int cols;
-  private int[] colOffSets;
-  private int rowSize;
+  private final int rowsPerChunk;
+  private final int[] columnSizesInBytes;
+  private final int rowSize;
+  private final RealtimeMemoryManager memoryManager;
+  private final String context;
+  private final boolean ownsMemoryManager;
+
+  private volatile FixedByteWidthRowColDataFileReader[] readers = new FixedByteWidthRowColDataFileReader[0];
+  private FixedByteWidthRowColDataFileWriter[] writers = new FixedByteWidthRowColDataFileWriter[0];
 
   public FixedByteSingleColumnSingleValueReaderWriter(int rows, int columnSizesInBytes) throws IOException {
     this(rows, new int[]{columnSizesInBytes});
   }
   /**
+   * Creates a column with a single chunk of the given number of rows, allocated upfront in direct memory.
    *
    * @param rows
    * @param columnSizesInBytes
    */
   public FixedByteSingleColumnSingleValueReaderWriter(int rows, int[] columnSizesInBytes) throws IOException {
-    this.cols = 1;
-    colOffSets = new int[columnSizesInBytes.length];
-    rowSize = 0;
-    for (int i = 0; i < columnSizesInBytes.length; i++) {
-      colOffSets[i] = rowSize;
-      rowSize += columnSizesInBytes[i];
+    this(rows, columnSizesInBytes, new DirectMemoryManager(), "", true);
+    addChunk();
+  }
+
+  /**
+   * Creates a column growing by chunks of the given number of rows, allocated from the memory manager which owns them.
+   *
+   * @param rowsPerChunk Number of rows of each chunk
+   * @param columnSizeInBytes Size of a value in bytes
+   * @param memoryManager Memory manager to allocate the chunks from
+   * @param context Name of the column, for logging
+   */
+  public FixedByteSingleColumnSingleValueReaderWriter(int rowsPerChunk, int columnSizeInBytes,
+      RealtimeMemoryManager memoryManager, String context) {
+    this(rowsPerChunk, new int[] { columnSizeInBytes }, memoryManager, context, false);
+  }
+
+  private FixedByteSingleColumnSingleValueReaderWriter(int rowsPerChunk, int[] columnSizesInBytes,
+      RealtimeMemoryManager memoryManager, String context, boolean ownsMemoryManager) {
+    this.rowsPerChunk = rowsPerChunk;
+    this.columnSizesInBytes = columnSizesInBytes;
+    int rowSize = 0;
+    for (int columnSizeInBytes : columnSizesInBytes) {
+      rowSize += columnSizeInBytes;
+    }
+    this.rowSize = rowSize;
+    this.memoryManager = memoryManager;
+    this.context = context;
+    this.ownsMemoryManager = ownsMemoryManager;
+  }
+
+  private void addChunk() {
+    ByteBuffer buffer = memoryManager.allocate(rowSize * rowsPerChunk, context);
+    try {
+      FixedByteWidthRowColDataFileWriter writer =
+          new FixedByteWidthRowColDataFileWriter(buffer, rowsPerChunk, 1, columnSizesInBytes);
+      FixedByteWidthRowColDataFileReader reader =
+          new FixedByteWidthRowColDataFileReader(buffer, rowsPerChunk, 1, columnSizesInBytes);
+      writers = Arrays.copyOf(writers, writers.length + 1);
+      writers[writers.length - 1] = writer;
+      FixedByteWidthRowColDataFileReader[] newReaders = Arrays.copyOf(readers, readers.length + 1);
+      newReaders[newReaders.length - 1] = reader;
+      readers = newReaders;
+    } catch (IOException e) {
+      throw new RuntimeException("Caught exception while adding a chunk of " + rowsPerChunk + " rows to " + context, e);
+    }
+  }
+
+  private FixedByteWidthRowColDataFileWriter getWriter(int row) {
+    int chunkId = row / rowsPerChunk;
+    while (chunkId >= writers.length) {
+      addChunk();
     }
-    final int totalSize = rowSize * rows;
-    ByteBuffer buffer = ByteBuffer.allocateDirect(totalSize);
-    buffer.order(ByteOrder.nativeOrder());
-    reader = new FixedByteWidthRowColDataFileReader(buffer, rows, cols, columnSizesInBytes);
-    writer = new FixedByteWidthRowColDataFileWriter(buffer, rows, cols, columnSizesInBytes);
+    return writers[chunkId];
+  }
+
+  private FixedByteWidthRowColDataFileReader getReader(int row) {
+    return readers[row / rowsPerChunk];
+  }
+
+  /**
+   * Returns the number of rows the allocated chunks can hold.
+   */
+  public int getCapacity() {
+    return readers.length * rowsPerChunk;
   }
 
   @Override
@@ -66,8 +132,10 @@ public class FixedByteSingleColumnSingleValueReaderWriter implements SingleColum
 
   @Override
   public void close() throws IOException {
-    reader.close();
-    writer.close();
+    // Chunks allocated from a shared memory manager are released along with it
+    if (ownsMemoryManager) {
+      memoryManager.close();
+    }
   }
 
   @Override
@@ -77,87 +145,96 @@ public class FixedByteSingleColumnSingleValueReaderWriter implements SingleColum
 
   @Override
   public void setChar(int row, char ch) {
-    writer.setChar(row, 0, ch);
+    getWriter(row).setChar(row % rowsPerChunk, 0, ch);
   }
 
   @Override
   public void setInt(int row, int i) {
-    writer.setInt(row, 0, i);
+    getWriter(row).setInt(row % rowsPerChunk, 0, i);
 
   }
 
   @Override
   public void setShort(int row, short s) {
-    writer.setShort(row, 0, s);
+    getWriter(row).setShort(row % rowsPerChunk, 0, s);
 
   }
 
   @Override
   public void setLong(int row, long l) {
-    writer.setLong(row, 0, l);
+    getWriter(row).setLong(row % rowsPerChunk, 0, l);
 
   }
 
   @Override
   public void setFloat(int row, float f) {
-    writer.setFloat(row, 0, f);
+    getWriter(row).setFloat(row % rowsPerChunk, 0, f);
 
   }
 
   @Override
   public void setDouble(int row, double d) {
-    writer.setDouble(row, 0, d);
+    getWriter(row).setDouble(row % rowsPerChunk, 0, d);
 
   }
 
   @Override
   public void setString(int row, String string) throws Exception {
-    writer.setString(row, 0, string);
+    getWriter(row).setString(row % rowsPerChunk, 0, string);
   }
 
   @Override
   public void setBytes(int row, byte[] bytes) {
-    writer.setBytes(row, 0, bytes);
+    getWriter(row).setBytes(row % rowsPerChunk, 0, bytes);
   }
 
   @Override
   public char getChar(int row) {
-    return reader.getChar(row, 0);
+    return getReader(row).getChar(row % rowsPerChunk, 0);
   }
 
   @Override
   public short getShort(int row) {
-    return reader.getShort(row, 0);
+    return getReader(row).getShort(row % rowsPerChunk, 0);
   }
 
   @Override
   public int getInt(int row) {
-    return reader.getInt(row, 0);
+    return getReader(row).getInt(row % rowsPerChunk, 0);
+  }
+
+  @Override
+  public void readValues(int[] rows, int rowStartPos, int rowSize, int[] values, int valuesStartPos) {
+    int rowEndPos = rowStartPos + rowSize;
+    for (int i = rowStartPos; i < rowEndPos; i++) {
+      int row = rows[i];
+      values[valuesStartPos++] = getReader(row).getInt(row % rowsPerChunk, 0);
+    }
   }
 
   @Override
   public long getLong(int row) {
-    return reader.getLong(row, 0);
+    return getReader(row).getLong(row % rowsPerChunk, 0);
   }
 
   @Override
   public float getFloat(int row) {
-    return reader.getFloat(row, 0);
+    return getReader(row).getFloat(row % rowsPerChunk, 0);
   }
 
   @Override
   public double getDouble(int row) {
-    return reader.getDouble(row, 0);
+    return getReader(row).getDouble(row % rowsPerChunk, 0);
   }
 
   @Override
   public String getString(int row) {
-    return reader.getString(row, 0);
+    return getReader(row).getString(row % rowsPerChunk, 0);
   }
 
   @Override
   public byte[] getBytes(int row) {
-    return reader.getBytes(row, 0);
+    return getReader(row).getBytes(row % rowsPerChunk, 0);
   }
 
 }
@@ -67,6 +67,12 @@ public class SegmentGeneratorConfig {
   private RecordReaderConfig recordReaderConfig;
 
   private boolean createInvertedIndex = false;
+  private List<String> bloomFilterColumns = new ArrayList<String>();
+  private double bloomFilterFalsePositiveProbability = DEFAULT_BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY;
+  private List<String> varLengthDictionaryColumns = new ArrayList<String>();
+  private List<String> noDictionaryColumns = new ArrayList<String>();
+
+  public static final double DEFAULT_BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY = 0.05;
 
   /*
    *
@@ -98,6 +104,50 @@ public class SegmentGeneratorConfig {
     return this.createInvertedIndex;
   }
 
+  /**
+   * Columns for which a bloom filter of the values is created, used to prune the segment for equality predicates.
+   */
+  public void setBloomFilterColumns(List<String> columns) {
+    this.bloomFilterColumns = columns;
+  }
+
+  public List<String> getBloomFilterColumns() {
+    return this.bloomFilterColumns;
+  }
+
+  public void setBloomFilterFalsePositiveProbability(double probability) {
+    this.bloomFilterFalsePositiveProbability = probability;
+  }
+
+  public double getBloomFilterFalsePositiveProbability() {
+    return this.bloomFilterFalsePositiveProbability;
+  }
+
+  /**
+   * String columns whose dictionary stores each value with its own length, instead of padding all the values to the
+   * longest one, for columns with a few much longer values than the others.
+   */
+  public void setVarLengthDictionaryColumns(List<String> columns) {
+    this.varLengthDictionaryColumns = columns;
+  }
+
+  public List<String> getVarLengthDictionaryColumns() {
+    return this.varLengthDictionaryColumns;
+  }
+
+  /**
+   * Numeric single value columns whose values are stored as they are in a fixed width forward index, without a
+   * dictionary, for high cardinality metrics whose dictionary would be as big as the data. Such columns can be
+   * aggregated and selected, but not filtered or grouped on.
+   */
+  public void setNoDictionaryColumns(List<String> columns) {
+    this.noDictionaryColumns = columns;
+  }
+
+  public List<String> getNoDictionaryColumns() {
+    return this.noDictionaryColumns;
+  }
+
   public void setSegmentName(String segmentName) {
     properties.put(SEGMENT_NAME, segmentName);
   }
@@ -211,6 +261,9 @@ public class SegmentGeneratorConfig {
   }
 
   public SegmentVersion getSegmentVersion() {
+    if (!properties.containsKey(SEGMENT_INDEX_VERSION)) {
+      return SegmentVersion.v1;
+    }
     return SegmentVersion.valueOf(properties.get(SEGMENT_INDEX_VERSION).toString());
   }
 
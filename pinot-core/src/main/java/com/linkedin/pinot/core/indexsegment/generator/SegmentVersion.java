@@ -15,6 +15,11 @@
  */
 package com.linkedin.pinot.core.indexsegment.generator;
 
+/**
+ * v1: one file per column index.
+ * v2: all the column indexes in a single file, see SingleFileIndexDirectory.
+ */
 public enum SegmentVersion {
-  v1;
+  v1,
+  v2;
 }
@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator;
+
+/**
+ * Walks the docIds of a DocIdSetBlock in batches of at most maxBatchSize docIds, so that the column
+ * values of a whole batch can be read at once instead of one docId at a time.
+ *
+ * For a regular DocIdSetBlock the batches are views on the block's docId array, for a
+ * MatchEntireSegmentDocIdSetBlock the consecutive docIds are generated into an internal buffer.
+ * Instances are meant to be reused across blocks through {@link #init(DocIdSetBlock)}.
+ */
+public class DocIdBatchIterator {
+  public static final int DEFAULT_MAX_BATCH_SIZE = 5000;
+
+  private final int _maxBatchSize;
+  private int[] _generatedDocIds;
+
+  private int[] _docIds;
+  private boolean _matchEntireSegment;
+  private int _endPos;
+  private int _batchStartPos;
+  private int _batchSize;
+  private int _nextPos;
+
+  public DocIdBatchIterator() {
+    this(DEFAULT_MAX_BATCH_SIZE);
+  }
+
+  public DocIdBatchIterator(int maxBatchSize) {
+    _maxBatchSize = maxBatchSize;
+  }
+
+  public DocIdBatchIterator init(DocIdSetBlock docIdSetBlock) {
+    _endPos = docIdSetBlock.getSearchableLength();
+    _matchEntireSegment = docIdSetBlock instanceof MatchEntireSegmentDocIdSetBlock;
+    if (_matchEntireSegment) {
+      if (_generatedDocIds == null) {
+        _generatedDocIds = new int[_maxBatchSize];
+      }
+      _docIds = _generatedDocIds;
+    } else {
+      _docIds = docIdSetBlock.getDocIdSet();
+    }
+    _nextPos = 0;
+    _batchStartPos = 0;
+    _batchSize = 0;
+    return this;
+  }
+
+  /**
+   * Moves to the next batch of docIds.
+   *
+   * @return false once all the docIds of the block have been returned
+   */
+  public boolean next() {
+    if (_nextPos >= _endPos) {
+      _batchSize = 0;
+      return false;
+    }
+    _batchSize = Math.min(_maxBatchSize, _endPos - _nextPos);
+    if (_matchEntireSegment) {
+      for (int i = 0; i < _batchSize; i++) {
+        _generatedDocIds[i] = _nextPos + i;
+      }
+      _batchStartPos = 0;
+    } else {
+      _batchStartPos = _nextPos;
+    }
+    _nextPos += _batchSize;
+    return true;
+  }
+
+  /**
+   * @return array holding the docIds of the current batch, starting at {@link #getBatchStartPos()}
+   */
+  public int[] getDocIds() {
+    return _docIds;
+  }
+
+  public int getBatchStartPos() {
+    return _batchStartPos;
+  }
+
+  public int getBatchSize() {
+    return _batchSize;
+  }
+
+  public int getMaxBatchSize() {
+    return _maxBatchSize;
+  }
+}
@@ -17,16 +17,15 @@ package com.linkedin.pinot.core.operator;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.helix.manager.zk.ZKHelixManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,10 +36,6 @@ import com.linkedin.pinot.core.block.query.IntermediateResultsBlock;
 import com.linkedin.pinot.core.common.Block;
 import com.linkedin.pinot.core.common.BlockId;
 import com.linkedin.pinot.core.common.Operator;
-import com.linkedin.pinot.core.operator.query.MAggregationGroupByOperator;
-import com.linkedin.pinot.core.operator.query.MAggregationOperator;
-import com.linkedin.pinot.core.operator.query.MSelectionOnlyOperator;
-import com.linkedin.pinot.core.operator.query.MSelectionOrderByOperator;
 import com.linkedin.pinot.core.query.aggregation.CombineService;
 import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByOperatorService;
 
@@ -68,10 +63,12 @@ public class MCombineOperator implements Operator {
   private final BrokerRequest _brokerRequest;
   private final ExecutorService _executorService;
   private long _timeOutMs;
-  //Make this configurable
-  //These two control the parallelism on a per query basis, depending on the number of segments to process
-  private static int MAX_THREADS_PER_QUERY = 5;
-  private static int MIN_SEGMENTS_PER_THREAD = 10;
+  // These two control the parallelism on a per query basis, depending on the number of segments to process.
+  // Both can be overridden per table.
+  public static final int DEFAULT_MAX_THREADS_PER_QUERY = 5;
+  public static final int DEFAULT_MIN_SEGMENTS_PER_THREAD = 10;
+  private final int _maxThreadsPerQuery;
+  private final int _minSegmentsPerThread;
 
   private IntermediateResultsBlock _mergedBlock;
 
@@ -80,14 +77,28 @@ public class MCombineOperator implements Operator {
     _isParallel = false;
     _brokerRequest = brokerRequest;
     _executorService = null;
+    _maxThreadsPerQuery = 1;
+    _minSegmentsPerThread = DEFAULT_MIN_SEGMENTS_PER_THREAD;
   }
 
   public MCombineOperator(List<Operator> retOperators, ExecutorService executorService, long timeOutMs,
       BrokerRequest brokerRequest) {
+    this(retOperators, executorService, timeOutMs, brokerRequest, DEFAULT_MAX_THREADS_PER_QUERY);
+  }
+
+  public MCombineOperator(List<Operator> retOperators, ExecutorService executorService, long timeOutMs,
+      BrokerRequest brokerRequest, int maxThreadsPerQuery) {
+    this(retOperators, executorService, timeOutMs, brokerRequest, maxThreadsPerQuery, DEFAULT_MIN_SEGMENTS_PER_THREAD);
+  }
+
+  public MCombineOperator(List<Operator> retOperators, ExecutorService executorService, long timeOutMs,
+      BrokerRequest brokerRequest, int maxThreadsPerQuery, int minSegmentsPerThread) {
     _operators = retOperators;
     _executorService = executorService;
     _brokerRequest = brokerRequest;
     _timeOutMs = timeOutMs;
+    _maxThreadsPerQuery = Math.max(1, maxThreadsPerQuery);
+    _minSegmentsPerThread = Math.max(1, minSegmentsPerThread);
     if (_executorService != null) {
       _isParallel = true;
     } else {
@@ -108,137 +119,21 @@ public class MCombineOperator implements Operator {
   public Block nextBlock() {
     final long startTime = System.currentTimeMillis();
     if (_isParallel) {
-      final long queryEndTime = System.currentTimeMillis() + _timeOutMs;
-      int numGroups = Math.min(MAX_THREADS_PER_QUERY, (_operators.size() + MIN_SEGMENTS_PER_THREAD - 1) / MIN_SEGMENTS_PER_THREAD);
-
-      final List<List<Operator>> operatorGroups = new ArrayList<List<Operator>>(numGroups);
-      for (int i = 0; i < numGroups; i++) {
-        operatorGroups.add(new ArrayList<Operator>());
-      }
-      for (int i = 0; i < _operators.size(); i++) {
-        operatorGroups.get(i % numGroups).add(_operators.get(i));
-      }
-      final BlockingQueue<Block> blockingQueue = new ArrayBlockingQueue<Block>(operatorGroups.size());
-      // Submit operators.
-      for (final List<Operator> operatorGroup : operatorGroups) {
-        _executorService.submit(new Runnable() {
-          @Override
-          public void run() {
-            IntermediateResultsBlock mergedBlock = null;
-            try {
-              for (Operator operator : operatorGroup) {
-                IntermediateResultsBlock blockToMerge = (IntermediateResultsBlock) operator.nextBlock();
-                if (mergedBlock == null) {
-                  mergedBlock = blockToMerge;
-                } else {
-                  CombineService.mergeTwoBlocks(_brokerRequest, mergedBlock, blockToMerge);
-                }
-              }
-            } catch (Exception e) {
-              LOGGER.error("exception in the MCombine operator ", e);
-              mergedBlock = new IntermediateResultsBlock(e);
-            }
-            if (blockingQueue != null) {
-              blockingQueue.offer(mergedBlock);
-            }
-          }
-        });
-      }
-      LOGGER
-          .debug("Submitting operators to be run in parallel and it took:" + (System.currentTimeMillis() - startTime));
-
-      // Submit merger job:
-      Future<IntermediateResultsBlock> mergedBlockFuture =
-          _executorService.submit(new Callable<IntermediateResultsBlock>() {
-            @Override
-            public IntermediateResultsBlock call() throws Exception {
-              int mergedBlocksNumber = 0;
-              IntermediateResultsBlock mergedBlock = null;
-              while ((queryEndTime > System.currentTimeMillis()) && (mergedBlocksNumber < operatorGroups.size())) {
-                if (mergedBlock == null) {
-                  mergedBlock =
-                      (IntermediateResultsBlock) blockingQueue.poll(queryEndTime - System.currentTimeMillis(),
-                          TimeUnit.MILLISECONDS);
-                  if (mergedBlock != null) {
-                    mergedBlocksNumber++;
-                  }
-                  LOGGER.debug("Got response from operator 0 after: {}", (System.currentTimeMillis() - startTime));
-                } else {
-                  IntermediateResultsBlock blockToMerge =
-                      (IntermediateResultsBlock) blockingQueue.poll(queryEndTime - System.currentTimeMillis(),
-                          TimeUnit.MILLISECONDS);
-                  if (blockToMerge != null) {
-                    try {
-                      LOGGER.debug("Got response from operator {} after: {}", mergedBlocksNumber,
-                          (System.currentTimeMillis() - startTime));
-                      CombineService.mergeTwoBlocks(_brokerRequest, mergedBlock, blockToMerge);
-                      LOGGER.debug("Merged response from operator {} after: {}", mergedBlocksNumber,
-                          (System.currentTimeMillis() - startTime));
-                    } catch (Exception e) {
-                      mergedBlock.getExceptions().add(
-                          QueryException.getException(QueryException.MERGE_RESPONSE_ERROR, e));
-                    }
-                    mergedBlocksNumber++;
-                  }
-                }
-              }
-              return mergedBlock;
-            }
-          });
-
-      // Get merge results.
-      try {
-        _mergedBlock = mergedBlockFuture.get(queryEndTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
-      } catch (InterruptedException e) {
-        LOGGER.error("InterruptedException ", e);
-        if (_mergedBlock == null) {
-          _mergedBlock = new IntermediateResultsBlock(e);
-        }
-        List<ProcessingException> exceptions = _mergedBlock.getExceptions();
-        if (exceptions == null) {
-          exceptions = new ArrayList<ProcessingException>();
-        }
-        exceptions.add(QueryException.getException(QueryException.FUTURE_CALL_ERROR, e));
-        _mergedBlock.setExceptionsList(exceptions);
-      } catch (ExecutionException e) {
-        LOGGER.error("Execution Exception", e);
-        if (_mergedBlock == null) {
-          _mergedBlock = new IntermediateResultsBlock(e);
-        }
-        List<ProcessingException> exceptions = _mergedBlock.getExceptions();
-        if (exceptions == null) {
-          exceptions = new ArrayList<ProcessingException>();
-        }
-        exceptions.add(QueryException.getException(QueryException.MERGE_RESPONSE_ERROR, e));
-        _mergedBlock.setExceptionsList(exceptions);
-      } catch (TimeoutException e) {
-        LOGGER.error("TimeoutException ", e);
-        if (_mergedBlock == null) {
-          _mergedBlock = new IntermediateResultsBlock(e);
-        }
-        List<ProcessingException> exceptions = _mergedBlock.getExceptions();
-        if (exceptions == null) {
-          exceptions = new ArrayList<ProcessingException>();
-        }
-        exceptions.add(QueryException.getException(QueryException.EXECUTION_TIMEOUT_ERROR, e));
-        _mergedBlock.setExceptionsList(exceptions);
-      }
-
+      _mergedBlock = combineInParallel(startTime);
     } else {
+      // Any operator producing intermediate results can be combined (eg. the ones wrapped by the segment results
+      // cache), same as on the parallel path
       for (Operator operator : _operators) {
-        if ((operator instanceof MAggregationOperator) || (operator instanceof MSelectionOrderByOperator)
-            || (operator instanceof MSelectionOnlyOperator) || (operator instanceof MAggregationGroupByOperator)
-            || (operator instanceof MCombineOperator)) {
-          IntermediateResultsBlock block = (IntermediateResultsBlock) operator.nextBlock();
-          if (_mergedBlock == null) {
-            _mergedBlock = block;
-          } else {
-            CombineService.mergeTwoBlocks(_brokerRequest, _mergedBlock, block);
-          }
-        } else {
+        Block block = operator.nextBlock();
+        if (!(block instanceof IntermediateResultsBlock)) {
           throw new UnsupportedOperationException("Unsupported Operator to be processed in MResultOperator : "
               + operator);
         }
+        if (_mergedBlock == null) {
+          _mergedBlock = (IntermediateResultsBlock) block;
+        } else {
+          CombineService.mergeTwoBlocks(_brokerRequest, _mergedBlock, (IntermediateResultsBlock) block);
+        }
       }
     }
     if ((_brokerRequest.getAggregationsInfoSize() > 0) && (_brokerRequest.getGroupBy() != null)
@@ -251,7 +146,123 @@ public class MCombineOperator implements Operator {
     return _mergedBlock;
   }
 
+  /**
+   * Each segment operator is an independent task: up to _maxThreadsPerQuery workers pull the next segment from
+   * a shared counter, so a slow segment only delays the worker running it while the others keep draining the
+   * remaining segments. Each worker merges its segments into a partial result, then folds in the partial
+   * results of the workers which finished before it, so that partial results are merged in parallel and only
+   * the few left over are merged by the calling thread.
+   *
+   * On timeout, the workers stop picking up segments and the tasks which did not start yet are cancelled.
+   * Running tasks are not interrupted, since interrupting a thread blocked on a FileChannel closes the channel.
+   */
+  private IntermediateResultsBlock combineInParallel(long startTime) {
+    final long queryEndTime = startTime + _timeOutMs;
+    final int numOperators = _operators.size();
+    final int numTasks = Math.max(1,
+        Math.min(_maxThreadsPerQuery, (numOperators + _minSegmentsPerThread - 1) / _minSegmentsPerThread));
+
+    final AtomicInteger nextOperatorIndex = new AtomicInteger(0);
+    final AtomicBoolean isCancelled = new AtomicBoolean(false);
+    final ConcurrentLinkedQueue<IntermediateResultsBlock> partialBlocks =
+        new ConcurrentLinkedQueue<IntermediateResultsBlock>();
+    final CountDownLatch tasksDone = new CountDownLatch(numTasks);
+    final List<Future<?>> futures = new ArrayList<Future<?>>(numTasks);
+    for (int i = 0; i < numTasks; i++) {
+      futures.add(_executorService.submit(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            IntermediateResultsBlock mergedBlock = null;
+            int operatorIndex;
+            while (!isCancelled.get() && (operatorIndex = nextOperatorIndex.getAndIncrement()) < numOperators) {
+              IntermediateResultsBlock blockToMerge;
+              try {
+                blockToMerge = (IntermediateResultsBlock) _operators.get(operatorIndex).nextBlock();
+              } catch (Exception e) {
+                LOGGER.error("Caught exception while processing segment operator {}", operatorIndex, e);
+                blockToMerge = new IntermediateResultsBlock(e);
+                addException(blockToMerge, QueryException.getException(QueryException.QUERY_EXECUTION_ERROR, e));
+              }
+              mergedBlock = mergeBlocks(mergedBlock, blockToMerge);
+            }
+            IntermediateResultsBlock partialBlock;
+            while (!isCancelled.get() && (partialBlock = partialBlocks.poll()) != null) {
+              mergedBlock = mergeBlocks(mergedBlock, partialBlock);
+            }
+            if (mergedBlock != null) {
+              partialBlocks.offer(mergedBlock);
+            }
+          } finally {
+            tasksDone.countDown();
+          }
+        }
+      }));
+    }
+    LOGGER.debug("Submitting {} tasks for {} operators took: {}", numTasks, numOperators,
+        (System.currentTimeMillis() - startTime));
+
+    try {
+      if (!tasksDone.await(queryEndTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS)) {
+        cancel(isCancelled, futures);
+        TimeoutException e =
+            new TimeoutException("Timed out after " + _timeOutMs + "ms with " + (numOperators - Math.min(numOperators,
+                nextOperatorIndex.get())) + " segments not started");
+        LOGGER.error("TimeoutException ", e);
+        IntermediateResultsBlock timeoutBlock = new IntermediateResultsBlock(e);
+        addException(timeoutBlock, QueryException.getException(QueryException.EXECUTION_TIMEOUT_ERROR, e));
+        return timeoutBlock;
+      }
+    } catch (InterruptedException e) {
+      LOGGER.error("InterruptedException ", e);
+      cancel(isCancelled, futures);
+      IntermediateResultsBlock interruptedBlock = new IntermediateResultsBlock(e);
+      addException(interruptedBlock, QueryException.getException(QueryException.FUTURE_CALL_ERROR, e));
+      return interruptedBlock;
+    }
+
+    IntermediateResultsBlock mergedBlock = null;
+    IntermediateResultsBlock partialBlock;
+    while ((partialBlock = partialBlocks.poll()) != null) {
+      mergedBlock = mergeBlocks(mergedBlock, partialBlock);
+    }
+    return mergedBlock;
+  }
+
+  private void cancel(AtomicBoolean isCancelled, List<Future<?>> futures) {
+    isCancelled.set(true);
+    for (Future<?> future : futures) {
+      future.cancel(false);
+    }
+  }
+
+  private IntermediateResultsBlock mergeBlocks(IntermediateResultsBlock mergedBlock,
+      IntermediateResultsBlock blockToMerge) {
+    if (mergedBlock == null) {
+      return blockToMerge;
+    }
+    try {
+      CombineService.mergeTwoBlocks(_brokerRequest, mergedBlock, blockToMerge);
+    } catch (Exception e) {
+      LOGGER.error("Caught exception while merging blocks", e);
+      addException(mergedBlock, QueryException.getException(QueryException.MERGE_RESPONSE_ERROR, e));
+    }
+    return mergedBlock;
+  }
+
+  private static void addException(IntermediateResultsBlock block, ProcessingException processingException) {
+    List<ProcessingException> exceptions = block.getExceptions();
+    if (exceptions == null) {
+      exceptions = new ArrayList<ProcessingException>();
+      block.setExceptionsList(exceptions);
+    }
+    exceptions.add(processingException);
+  }
+
   private void trimToSize(BrokerRequest brokerRequest, IntermediateResultsBlock mergedBlock) {
+    if (mergedBlock == null || mergedBlock.getAggregationGroupByOperatorResult() == null) {
+      return;
+    }
     AggregationGroupByOperatorService aggregationGroupByOperatorService =
         new AggregationGroupByOperatorService(brokerRequest.getAggregationsInfo(), brokerRequest.getGroupBy());
     aggregationGroupByOperatorService.trimToSize(mergedBlock.getAggregationGroupByOperatorResult());
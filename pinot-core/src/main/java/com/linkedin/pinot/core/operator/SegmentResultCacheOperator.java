@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator;
+
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.core.block.query.IntermediateResultsBlock;
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockId;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.plan.maker.PlanMaker;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
+
+
+/**
+ * Returns the cached results of a segment, or runs the inner-segment plan and caches its results.
+ *
+ * The lookup happens in nextBlock, so cached results are deserialized by the combine workers in parallel, and the
+ * inner-segment plan is only made on cache misses.
+ */
+public class SegmentResultCacheOperator implements Operator {
+  private final PlanMaker _planMaker;
+  private final IndexSegment _indexSegment;
+  private final BrokerRequest _brokerRequest;
+  private final SegmentResultCache _segmentResultCache;
+  private final SegmentResultCache.CacheKey _cacheKey;
+
+  public SegmentResultCacheOperator(PlanMaker planMaker, IndexSegment indexSegment, BrokerRequest brokerRequest,
+      SegmentResultCache segmentResultCache, SegmentResultCache.CacheKey cacheKey) {
+    _planMaker = planMaker;
+    _indexSegment = indexSegment;
+    _brokerRequest = brokerRequest;
+    _segmentResultCache = segmentResultCache;
+    _cacheKey = cacheKey;
+  }
+
+  @Override
+  public boolean open() {
+    return true;
+  }
+
+  @Override
+  public Block nextBlock() {
+    IntermediateResultsBlock block = _segmentResultCache.get(_cacheKey, _brokerRequest);
+    if (block != null) {
+      return block;
+    }
+    block = (IntermediateResultsBlock) _planMaker.makeInnerSegmentPlan(_indexSegment, _brokerRequest).run().nextBlock();
+    if (block != null) {
+      _segmentResultCache.put(_cacheKey, _brokerRequest, block);
+    }
+    return block;
+  }
+
+  @Override
+  public Block nextBlock(BlockId BlockId) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean close() {
+    return true;
+  }
+}
@@ -17,7 +17,6 @@ package com.linkedin.pinot.core.operator.docidsets;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,7 +36,6 @@ public final class AndBlockDocIdSet implements FilterBlockDocIdSet {
   private static final Logger LOGGER = LoggerFactory.getLogger(AndOperator.class);
   boolean reachedEnd = false;
   int currentDocId = -1;
-  public final AtomicLong timeMeasure = new AtomicLong(0);
   private List<FilterBlockDocIdSet> blockDocIdSets;
   private int minDocId = Integer.MIN_VALUE;
   private int maxDocId = Integer.MAX_VALUE;
@@ -86,7 +84,6 @@ public final class AndBlockDocIdSet implements FilterBlockDocIdSet {
 
       @Override
       public int next() {
-        long start = System.currentTimeMillis();
         if (currentDocId == Constants.EOF) {
           return currentDocId;
         }
@@ -110,12 +107,6 @@ public final class AndBlockDocIdSet implements FilterBlockDocIdSet {
           }
         }
         currentDocId = currentMax;
-        long end = System.currentTimeMillis();
-        timeMeasure.addAndGet(end - start);
-        //Remove this after tracing is added
-//      if (currentDocId == Constants.EOF) {
-//        LOGGER.debug("AND operator took:" + timeMeasure.get());
-//      }
         return currentDocId;
       }
 
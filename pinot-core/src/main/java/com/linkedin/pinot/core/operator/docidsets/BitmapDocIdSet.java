@@ -18,7 +18,6 @@ package com.linkedin.pinot.core.operator.docidsets;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.PriorityQueue;
-import java.util.concurrent.atomic.AtomicLong;
 
 import org.roaringbitmap.IntIterator;
 import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
@@ -30,47 +29,50 @@ import com.linkedin.pinot.core.common.BlockDocIdIterator;
 import com.linkedin.pinot.core.common.BlockMetadata;
 import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.common.FilterBlockDocIdSet;
+import com.linkedin.pinot.core.operator.filter.utils.BitmapUtils;
 
 
 public class BitmapDocIdSet implements FilterBlockDocIdSet {
 
   final private ImmutableRoaringBitmap[] raw;
-  public final AtomicLong timeMeasure = new AtomicLong(0);
-  private BlockMetadata blockMetadata;
+  private final int minDocId;
+  private final int maxDocId;
   BitmapBasedBlockIdSetIterator bitmapBasedBlockIdSetIterator;
 
   public BitmapDocIdSet(BlockMetadata blockMetadata, ImmutableRoaringBitmap... bitmaps) {
-    this.blockMetadata = blockMetadata;
-    raw = bitmaps;
-    IntIterator[] iterators = new IntIterator[bitmaps.length];
-    for (int i = 0; i < bitmaps.length; i++) {
-      iterators[i] = bitmaps[i].getIntIterator();
-    }
-    bitmapBasedBlockIdSetIterator = new BitmapBasedBlockIdSetIterator(iterators);
-    bitmapBasedBlockIdSetIterator.setStartDocId(blockMetadata.getStartDocId());
-    bitmapBasedBlockIdSetIterator.setEndDocId(blockMetadata.getEndDocId());
+    this(blockMetadata.getStartDocId(), blockMetadata.getEndDocId(), bitmaps);
   }
 
   public BitmapDocIdSet(BlockMetadata blockMetadata, MutableRoaringBitmap... bitmaps) {
-    this.blockMetadata = blockMetadata;
+    this(blockMetadata.getStartDocId(), blockMetadata.getEndDocId(), bitmaps);
+  }
+
+  /**
+   * @param minDocId First document id of the block, inclusive
+   * @param maxDocId Last document id of the block, inclusive
+   * @param bitmaps Bitmaps to union
+   */
+  public BitmapDocIdSet(int minDocId, int maxDocId, ImmutableRoaringBitmap... bitmaps) {
+    this.minDocId = minDocId;
+    this.maxDocId = maxDocId;
     raw = bitmaps;
     IntIterator[] iterators = new IntIterator[bitmaps.length];
     for (int i = 0; i < bitmaps.length; i++) {
       iterators[i] = bitmaps[i].getIntIterator();
     }
     bitmapBasedBlockIdSetIterator = new BitmapBasedBlockIdSetIterator(iterators);
-    bitmapBasedBlockIdSetIterator.setStartDocId(blockMetadata.getStartDocId());
-    bitmapBasedBlockIdSetIterator.setEndDocId(blockMetadata.getEndDocId());
+    bitmapBasedBlockIdSetIterator.setStartDocId(minDocId);
+    bitmapBasedBlockIdSetIterator.setEndDocId(maxDocId);
   }
 
   @Override
   public int getMinDocId() {
-    return blockMetadata.getStartDocId();
+    return minDocId;
   }
 
   @Override
   public int getMaxDocId() {
-    return blockMetadata.getEndDocId();
+    return maxDocId;
   }
 
   /**
@@ -94,6 +96,19 @@ public class BitmapDocIdSet implements FilterBlockDocIdSet {
     return bitmapBasedBlockIdSetIterator;
   }
 
+  /**
+   * Returns the union of the bitmaps of the set, without copying them when there is only one.
+   */
+  public ImmutableRoaringBitmap getUnion() {
+    if (raw.length == 0) {
+      return new MutableRoaringBitmap();
+    }
+    if (raw.length == 1) {
+      return raw[0];
+    }
+    return BitmapUtils.fastBitmapOr(raw);
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public <T extends Object> T getRaw() {
@@ -129,7 +144,6 @@ public class BitmapDocIdSet implements FilterBlockDocIdSet {
 
     @Override
     public int advance(int targetDocId) {
-      long start = System.nanoTime();
       if (targetDocId < startDocId) {
         targetDocId = startDocId;
       } else if (targetDocId > endDocId) {
@@ -169,14 +183,11 @@ public class BitmapDocIdSet implements FilterBlockDocIdSet {
       } else {
         currentDocId = Constants.EOF;
       }
-      long end = System.nanoTime();
-      timeMeasure.addAndGet(end - start);
       return currentDocId;
     }
 
     @Override
     public int next() {
-      long start = System.nanoTime();
       if (currentDocId == Constants.EOF) {
         return currentDocId;
       }
@@ -205,8 +216,6 @@ public class BitmapDocIdSet implements FilterBlockDocIdSet {
       } else {
         currentDocId = Constants.EOF;
       }
-      long end = System.nanoTime();
-      timeMeasure.addAndGet(end - start);
       return currentDocId;
     }
 
@@ -18,7 +18,6 @@ package com.linkedin.pinot.core.operator.docidsets;
 import java.util.Iterator;
 import java.util.List;
 import java.util.PriorityQueue;
-import java.util.concurrent.atomic.AtomicLong;
 
 import com.linkedin.pinot.common.utils.Pairs;
 import com.linkedin.pinot.common.utils.Pairs.IntPair;
@@ -32,7 +31,6 @@ public final class OrBlockDocIdSet implements FilterBlockDocIdSet {
    * 
    */
   private final BlockDocIdIterator[] docIdIterators;
-  final public AtomicLong timeMeasure = new AtomicLong(0);
   private List<FilterBlockDocIdSet> docIdSets;
   private int maxDocId = Integer.MIN_VALUE;
   private int minDocId = Integer.MAX_VALUE;
@@ -88,7 +86,6 @@ public final class OrBlockDocIdSet implements FilterBlockDocIdSet {
           currentDocId = Constants.EOF;
           return currentDocId;
         }
-        long start = System.nanoTime();
 
         // Remove iterators that are before the target document id from the queue
         Iterator<IntPair> iterator = queue.iterator();
@@ -118,15 +115,11 @@ public final class OrBlockDocIdSet implements FilterBlockDocIdSet {
           currentDocId = Constants.EOF;
         }
 
-        long end = System.nanoTime();
-        timeMeasure.addAndGet(end - start);
         return currentDocId;
       }
 
       @Override
       public int next() {
-        long start = System.currentTimeMillis();
-
         if (currentDocId == Constants.EOF) {
           return currentDocId;
         }
@@ -154,12 +147,6 @@ public final class OrBlockDocIdSet implements FilterBlockDocIdSet {
         } else {
           currentDocId = Constants.EOF;
         }
-        long end = System.currentTimeMillis();
-        timeMeasure.addAndGet(end - start);
-        //Remove this after tracing is added
-//      if (currentDocId == Constants.EOF) {
-//        LOGGER.debug("OR took:" + timeMeasure.get());
-//      }
 
         return currentDocId;
       }
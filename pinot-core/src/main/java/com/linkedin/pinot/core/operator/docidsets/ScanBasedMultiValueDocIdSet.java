@@ -25,6 +25,8 @@ import com.linkedin.pinot.core.common.BlockMultiValIterator;
 import com.linkedin.pinot.core.common.BlockValSet;
 import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.common.FilterBlockDocIdSet;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import com.linkedin.pinot.core.operator.filter.predicate.RangePredicateEvaluator;
 
 
 public class ScanBasedMultiValueDocIdSet implements FilterBlockDocIdSet {
@@ -38,6 +40,13 @@ public class ScanBasedMultiValueDocIdSet implements FilterBlockDocIdSet {
     blockValSetBlockDocIdIterator = new BlockValSetBlockDocIdIterator(blockValSet, blockMetadata, dictIds);
   }
 
+  public ScanBasedMultiValueDocIdSet(BlockValSet blockValSet, BlockMetadata blockMetadata,
+      PredicateEvaluator evaluator) {
+    this.blockValSet = blockValSet;
+    this.blockMetadata = blockMetadata;
+    blockValSetBlockDocIdIterator = new BlockValSetBlockDocIdIterator(blockValSet, blockMetadata, evaluator);
+  }
+
   @Override
   public int getMinDocId() {
     return blockMetadata.getStartDocId();
@@ -73,11 +82,41 @@ public class ScanBasedMultiValueDocIdSet implements FilterBlockDocIdSet {
     BlockMultiValIterator valueIterator;
     int currentDocId = -1;
     private Set<Integer> dictIdSet;
-    final int[] intArray;
+    int[] intArray;
     private int startDocId;
     private int endDocId;
 
+    // Matching dictionary ids are either the [rangeStart, rangeEnd] interval, or the ones in dictIdSet
+    private boolean isRange;
+    private int rangeStart;
+    private int rangeEnd;
+
     public BlockValSetBlockDocIdIterator(BlockValSet blockValSet, BlockMetadata blockMetadata, int[] dictIds) {
+      init(blockMetadata, dictIds);
+      valueIterator = (BlockMultiValIterator) blockValSet.iterator();
+    }
+
+    public BlockValSetBlockDocIdIterator(BlockValSet blockValSet, BlockMetadata blockMetadata,
+        PredicateEvaluator evaluator) {
+      if (evaluator instanceof RangePredicateEvaluator) {
+        RangePredicateEvaluator rangeEvaluator = (RangePredicateEvaluator) evaluator;
+        isRange = true;
+        rangeStart = rangeEvaluator.getStartDictionaryId();
+        rangeEnd = rangeEvaluator.getEndDictionaryId();
+        if (rangeStart > rangeEnd) {
+          setEmpty();
+        } else {
+          this.intArray = new int[blockMetadata.getMaxNumberOfMultiValues()];
+          setStartDocId(blockMetadata.getStartDocId());
+          setEndDocId(blockMetadata.getEndDocId());
+        }
+      } else {
+        init(blockMetadata, evaluator.getDictionaryIds());
+      }
+      valueIterator = (BlockMultiValIterator) blockValSet.iterator();
+    }
+
+    private void init(BlockMetadata blockMetadata, int[] dictIds) {
       if (dictIds.length > 0) {
         this.dictIdSet = new HashSet<Integer>(dictIds.length);
         for (int dictId : dictIds) {
@@ -89,12 +128,15 @@ public class ScanBasedMultiValueDocIdSet implements FilterBlockDocIdSet {
         setEndDocId(blockMetadata.getEndDocId());
       } else {
         this.dictIdSet = null;
-        this.intArray = new int[0];
-        setStartDocId(Constants.EOF);
-        setEndDocId(Constants.EOF);
-        currentDocId = Constants.EOF;
+        setEmpty();
       }
-      valueIterator = (BlockMultiValIterator) blockValSet.iterator();
+    }
+
+    private void setEmpty() {
+      this.intArray = new int[0];
+      setStartDocId(Constants.EOF);
+      setEndDocId(Constants.EOF);
+      currentDocId = Constants.EOF;
     }
 
     /**
@@ -141,10 +183,19 @@ public class ScanBasedMultiValueDocIdSet implements FilterBlockDocIdSet {
         currentDocId = currentDocId + 1;
         int length = valueIterator.nextIntVal(intArray);
         boolean found = false;
-        for (int i = 0; i < length; i++) {
-          if (dictIdSet.contains(intArray[i])) {
-            found = true;
-            break;
+        if (isRange) {
+          for (int i = 0; i < length; i++) {
+            if (intArray[i] >= rangeStart && intArray[i] <= rangeEnd) {
+              found = true;
+              break;
+            }
+          }
+        } else {
+          for (int i = 0; i < length; i++) {
+            if (dictIdSet.contains(intArray[i])) {
+              found = true;
+              break;
+            }
           }
         }
         if (found) {
@@ -24,6 +24,8 @@ import com.linkedin.pinot.core.common.BlockSingleValIterator;
 import com.linkedin.pinot.core.common.BlockValSet;
 import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.common.FilterBlockDocIdSet;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import com.linkedin.pinot.core.operator.filter.predicate.RangePredicateEvaluator;
 
 
 public class ScanBasedSingleValueDocIdSet implements FilterBlockDocIdSet {
@@ -37,6 +39,13 @@ public class ScanBasedSingleValueDocIdSet implements FilterBlockDocIdSet {
     blockValSetBlockDocIdIterator = new BlockValSetBasedDocIdIterator(blockValSet, blockMetadata, dictIds);
   }
 
+  public ScanBasedSingleValueDocIdSet(BlockValSet blockValSet, BlockMetadata blockMetadata,
+      PredicateEvaluator evaluator) {
+    this.blockValSet = blockValSet;
+    this.blockMetadata = blockMetadata;
+    blockValSetBlockDocIdIterator = new BlockValSetBasedDocIdIterator(blockValSet, blockMetadata, evaluator);
+  }
+
   public int getMinDocId() {
     return blockMetadata.getStartDocId();
   }
@@ -73,12 +82,39 @@ public class ScanBasedSingleValueDocIdSet implements FilterBlockDocIdSet {
     private int startDocId;
     private int endDocId;
 
+    // Matching dictionary ids are either the [rangeStart, rangeEnd] interval, or the ones in dictIdSet
+    private boolean isRange;
+    private int rangeStart;
+    private int rangeEnd;
+
     public BlockValSetBasedDocIdIterator(BlockValSet blockValSet, BlockMetadata blockMetadata, int[] dictIds) {
+      init(blockMetadata, dictIds);
+      valueIterator = (BlockSingleValIterator) blockValSet.iterator();
+    }
+
+    public BlockValSetBasedDocIdIterator(BlockValSet blockValSet, BlockMetadata blockMetadata,
+        PredicateEvaluator evaluator) {
+      if (evaluator instanceof RangePredicateEvaluator) {
+        RangePredicateEvaluator rangeEvaluator = (RangePredicateEvaluator) evaluator;
+        isRange = true;
+        rangeStart = rangeEvaluator.getStartDictionaryId();
+        rangeEnd = rangeEvaluator.getEndDictionaryId();
+        if (rangeStart > rangeEnd) {
+          setEmpty();
+        } else {
+          setStartDocId(blockMetadata.getStartDocId());
+          setEndDocId(blockMetadata.getEndDocId());
+        }
+      } else {
+        init(blockMetadata, evaluator.getDictionaryIds());
+      }
+      valueIterator = (BlockSingleValIterator) blockValSet.iterator();
+    }
+
+    private void init(BlockMetadata blockMetadata, int[] dictIds) {
       if (dictIds.length < 1) {
         this.dictIdSet = null;
-        currentDocId = Constants.EOF;
-        setStartDocId(Constants.EOF);
-        setEndDocId(Constants.EOF);
+        setEmpty();
       } else {
         this.dictIdSet = new HashSet<Integer>(dictIds.length);
         for (int dictId : dictIds) {
@@ -87,7 +123,12 @@ public class ScanBasedSingleValueDocIdSet implements FilterBlockDocIdSet {
         setStartDocId(blockMetadata.getStartDocId());
         setEndDocId(blockMetadata.getEndDocId());
       }
-      valueIterator = (BlockSingleValIterator) blockValSet.iterator();
+    }
+
+    private void setEmpty() {
+      currentDocId = Constants.EOF;
+      setStartDocId(Constants.EOF);
+      setEndDocId(Constants.EOF);
     }
 
     /**
@@ -133,7 +174,11 @@ public class ScanBasedSingleValueDocIdSet implements FilterBlockDocIdSet {
       while (valueIterator.hasNext() && currentDocId <= endDocId) {
         currentDocId = currentDocId + 1;
         int dictIdForCurrentDoc = valueIterator.nextIntVal();
-        if (dictIdSet.contains(dictIdForCurrentDoc)) {
+        if (isRange) {
+          if (dictIdForCurrentDoc >= rangeStart && dictIdForCurrentDoc <= rangeEnd) {
+            return currentDocId;
+          }
+        } else if (dictIdSet.contains(dictIdForCurrentDoc)) {
           return currentDocId;
         }
       }
@@ -16,7 +16,6 @@
 package com.linkedin.pinot.core.operator.docidsets;
 
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.tuple.Pair;
 
@@ -29,7 +28,6 @@ import com.linkedin.pinot.core.segment.index.block.BlockUtils;
 public class SortedDocIdSet implements FilterBlockDocIdSet {
 
   private final List<Pair<Integer, Integer>> pairs;
-  public final AtomicLong timeMeasure = new AtomicLong(0);
   int startDocId;
   int endDocId;
 
@@ -86,7 +84,6 @@ public class SortedDocIdSet implements FilterBlockDocIdSet {
           pairPointer = pairs.size();
           return (currentDocId = Constants.EOF);
         }
-        long start = System.nanoTime();
 
         if (currentDocId >= targetDocId) {
           return currentDocId;
@@ -107,8 +104,6 @@ public class SortedDocIdSet implements FilterBlockDocIdSet {
         if (pairPointer == pairs.size()) {
           currentDocId = Constants.EOF;
         }
-        long end = System.nanoTime();
-        timeMeasure.addAndGet(end - start);
         return currentDocId;
       }
 
@@ -118,7 +113,6 @@ public class SortedDocIdSet implements FilterBlockDocIdSet {
           pairPointer = pairs.size();
           return (currentDocId = Constants.EOF);
         }
-        long start = System.nanoTime();
         currentDocId = currentDocId + 1;
         if (pairPointer < pairs.size() && currentDocId > pairs.get(pairPointer).getRight()) {
           pairPointer++;
@@ -130,8 +124,6 @@ public class SortedDocIdSet implements FilterBlockDocIdSet {
         } else if (currentDocId < pairs.get(pairPointer).getLeft()) {
           currentDocId = pairs.get(pairPointer).getLeft();
         }
-        long end = System.nanoTime();
-        timeMeasure.addAndGet(end - start);
         return currentDocId;
       }
 
@@ -18,6 +18,8 @@ package com.linkedin.pinot.core.operator.filter;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,6 +29,8 @@ import com.linkedin.pinot.core.common.BlockId;
 import com.linkedin.pinot.core.common.FilterBlockDocIdSet;
 import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.operator.blocks.AndBlock;
+import com.linkedin.pinot.core.operator.docidsets.BitmapDocIdSet;
+import com.linkedin.pinot.core.operator.filter.utils.BitmapUtils;
 
 
 public class AndOperator extends BaseFilterOperator {
@@ -55,16 +59,52 @@ public class AndOperator extends BaseFilterOperator {
       FilterBlockDocIdSet blockDocIdSet = (FilterBlockDocIdSet) block.getBlockDocIdSet();
       blockDocIdSets.add(blockDocIdSet);
     }
-    andBlock = new AndBlock(blockDocIdSets);
+    andBlock = new AndBlock(intersectBitmapDocIdSets(blockDocIdSets));
     return andBlock;
   }
 
+  /**
+   * Intersects the bitmap backed children up front into a single bitmap, which takes the place of the first of them
+   * (the children are ordered by estimated selectivity), so that only the other children are iterated doc by doc.
+   */
+  private static List<FilterBlockDocIdSet> intersectBitmapDocIdSets(List<FilterBlockDocIdSet> blockDocIdSets) {
+    List<ImmutableRoaringBitmap> bitmaps = new ArrayList<ImmutableRoaringBitmap>();
+    for (FilterBlockDocIdSet blockDocIdSet : blockDocIdSets) {
+      if (blockDocIdSet instanceof BitmapDocIdSet) {
+        bitmaps.add(((BitmapDocIdSet) blockDocIdSet).getUnion());
+      }
+    }
+    if (bitmaps.size() < 2) {
+      return blockDocIdSets;
+    }
+
+    List<FilterBlockDocIdSet> mergedBlockDocIdSets = new ArrayList<FilterBlockDocIdSet>();
+    int bitmapIndex = -1;
+    int minDocId = Integer.MIN_VALUE;
+    int maxDocId = Integer.MAX_VALUE;
+    for (FilterBlockDocIdSet blockDocIdSet : blockDocIdSets) {
+      if (blockDocIdSet instanceof BitmapDocIdSet) {
+        if (bitmapIndex == -1) {
+          bitmapIndex = mergedBlockDocIdSets.size();
+          mergedBlockDocIdSets.add(null);
+        }
+        minDocId = Math.max(minDocId, blockDocIdSet.getMinDocId());
+        maxDocId = Math.min(maxDocId, blockDocIdSet.getMaxDocId());
+      } else {
+        mergedBlockDocIdSets.add(blockDocIdSet);
+      }
+    }
+    MutableRoaringBitmap intersection =
+        BitmapUtils.fastBitmapsAnd(bitmaps.toArray(new ImmutableRoaringBitmap[bitmaps.size()]));
+    mergedBlockDocIdSets.set(bitmapIndex, new BitmapDocIdSet(minDocId, maxDocId, intersection));
+    return mergedBlockDocIdSets;
+  }
+
   @Override
   public boolean close() {
     for (Operator operator : operators) {
       operator.close();
     }
-    LOGGER.info("Time spent in AND operator:{} is {}", this, andBlock.andBlockDocIdSet.timeMeasure);
     return true;
   }
 }
@@ -20,6 +20,9 @@ import com.linkedin.pinot.core.common.Block;
 import com.linkedin.pinot.core.common.BlockId;
 import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.common.Predicate;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluatorProvider;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 
 
 /**
@@ -30,6 +33,7 @@ public abstract class BaseFilterOperator implements Operator {
 
   private FilterResultBlock resultBlock;
   private Predicate predicate;
+  private PredicateEvaluator predicateEvaluator;
   private int nextBlockCallCounter = 0;
 
   public void setInputBlock(FilterResultBlock block) {
@@ -42,12 +46,34 @@ public abstract class BaseFilterOperator implements Operator {
 
   public void setPredicate(Predicate predicate) {
     this.predicate = predicate;
+    this.predicateEvaluator = null;
   }
 
   public Predicate getPredicate() {
     return predicate;
   }
 
+  /**
+   * Sets the evaluator of the predicate on the dictionary of the data source, when the planner already built it.
+   * Must be called after setPredicate.
+   * @param predicateEvaluator
+   */
+  public void setPredicateEvaluator(PredicateEvaluator predicateEvaluator) {
+    this.predicateEvaluator = predicateEvaluator;
+  }
+
+  /**
+   * Returns the evaluator set by the planner, or builds the evaluator of the predicate on the given dictionary.
+   * @param dictionary
+   * @return
+   */
+  protected PredicateEvaluator getPredicateEvaluator(Dictionary dictionary) {
+    if (predicateEvaluator == null) {
+      predicateEvaluator = PredicateEvaluatorProvider.getPredicateFunctionFor(predicate, dictionary);
+    }
+    return predicateEvaluator;
+  }
+
   @Override
   public final BaseFilterBlock nextBlock() {
     return nextBlock(new BlockId(0));
@@ -15,7 +15,9 @@
  */
 package com.linkedin.pinot.core.operator.filter;
 
+import org.roaringbitmap.buffer.BufferFastAggregation;
 import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,7 +32,7 @@ import com.linkedin.pinot.core.common.FilterBlockDocIdSet;
 import com.linkedin.pinot.core.common.Predicate;
 import com.linkedin.pinot.core.operator.docidsets.BitmapDocIdSet;
 import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
-import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluatorProvider;
+import com.linkedin.pinot.core.operator.filter.predicate.RangePredicateEvaluator;
 import com.linkedin.pinot.core.segment.index.InvertedIndexReader;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 
@@ -52,24 +54,74 @@ public class BitmapBasedFilterOperator extends BaseFilterOperator {
 
   @Override
   public BaseFilterBlock nextFilterBlock(BlockId BlockId) {
-    Predicate predicate = getPredicate();
     InvertedIndexReader invertedIndex = dataSource.getInvertedIndex();
     Block dataSourceBlock = dataSource.nextBlock();
     Dictionary dictionary = dataSource.getDictionary();
-    PredicateEvaluator evaluator = PredicateEvaluatorProvider.getPredicateFunctionFor(predicate, dictionary);
-    int[] dictionaryIds = evaluator.getDictionaryIds();
-    ImmutableRoaringBitmap[] bitmaps = new ImmutableRoaringBitmap[dictionaryIds.length];
-    for (int i = 0; i < dictionaryIds.length; i++) {
-      bitmaps[i] = invertedIndex.getImmutable(dictionaryIds[i]);
+    PredicateEvaluator evaluator = getPredicateEvaluator(dictionary);
+    ImmutableRoaringBitmap[] bitmaps;
+    if (evaluator instanceof RangePredicateEvaluator) {
+      bitmaps =
+          getRangeBitmaps((RangePredicateEvaluator) evaluator, invertedIndex, dictionary.length(),
+              dataSourceBlock.getMetadata().getEndDocId());
+    } else {
+      int[] dictionaryIds = evaluator.getDictionaryIds();
+      bitmaps = new ImmutableRoaringBitmap[dictionaryIds.length];
+      for (int i = 0; i < dictionaryIds.length; i++) {
+        bitmaps[i] = invertedIndex.getImmutable(dictionaryIds[i]);
+      }
     }
     bitmapBlock = new BitmapBlock(dataSourceBlock.getMetadata(), bitmaps);
     return bitmapBlock;
   }
 
+  /**
+   * Merges the bitmaps of a range of dictionary ids into a single bitmap up front, rather than through one iterator
+   * per dictionary id. For single value columns, ranges covering most of the dictionary are computed as the complement
+   * of the bitmaps of the dictionary ids outside of the range.
+   */
+  private ImmutableRoaringBitmap[] getRangeBitmaps(RangePredicateEvaluator evaluator,
+      InvertedIndexReader invertedIndex, int cardinality, int endDocId) {
+    int startDictId = evaluator.getStartDictionaryId();
+    int endDictId = evaluator.getEndDictionaryId();
+    int numMatchingDictIds = endDictId - startDictId + 1;
+    if (numMatchingDictIds <= 0) {
+      return new ImmutableRoaringBitmap[0];
+    }
+    if (numMatchingDictIds == 1) {
+      return new ImmutableRoaringBitmap[] { invertedIndex.getImmutable(startDictId) };
+    }
+
+    MutableRoaringBitmap bitmap;
+    if (dataSource.getDataSourceMetadata().isSingleValue() && numMatchingDictIds > cardinality / 2) {
+      ImmutableRoaringBitmap[] nonMatchingBitmaps = new ImmutableRoaringBitmap[cardinality - numMatchingDictIds];
+      int index = 0;
+      for (int dictId = 0; dictId < startDictId; dictId++) {
+        nonMatchingBitmaps[index++] = invertedIndex.getImmutable(dictId);
+      }
+      for (int dictId = endDictId + 1; dictId < cardinality; dictId++) {
+        nonMatchingBitmaps[index++] = invertedIndex.getImmutable(dictId);
+      }
+      bitmap = union(nonMatchingBitmaps);
+      bitmap.flip(0, endDocId + 1);
+    } else {
+      ImmutableRoaringBitmap[] matchingBitmaps = new ImmutableRoaringBitmap[numMatchingDictIds];
+      for (int i = 0; i < numMatchingDictIds; i++) {
+        matchingBitmaps[i] = invertedIndex.getImmutable(startDictId + i);
+      }
+      bitmap = union(matchingBitmaps);
+    }
+    return new ImmutableRoaringBitmap[] { bitmap };
+  }
+
+  private static MutableRoaringBitmap union(ImmutableRoaringBitmap[] bitmaps) {
+    if (bitmaps.length == 0) {
+      return new MutableRoaringBitmap();
+    }
+    return BufferFastAggregation.or(bitmaps);
+  }
+
   @Override
   public boolean close() {
-    LOGGER.info("Time spent in BitmapBasedFilterOperator operator:{} is {}", this,
-        bitmapBlock.bitmapDocIdSet.timeMeasure);
     return true;
   }
 
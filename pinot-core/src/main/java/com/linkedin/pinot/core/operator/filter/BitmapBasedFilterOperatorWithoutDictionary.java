@@ -41,8 +41,8 @@ import com.linkedin.pinot.core.common.predicate.NEqPredicate;
 import com.linkedin.pinot.core.common.predicate.NotInPredicate;
 import com.linkedin.pinot.core.common.predicate.RangePredicate;
 import com.linkedin.pinot.core.operator.docidsets.BitmapDocIdSet;
-import com.linkedin.pinot.core.realtime.impl.invertedIndex.MetricInvertedIndex;
 import com.linkedin.pinot.core.realtime.impl.invertedIndex.RealtimeInvertedIndex;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 
 
 public class BitmapBasedFilterOperatorWithoutDictionary extends BaseFilterOperator {
@@ -105,23 +105,24 @@ public class BitmapBasedFilterOperatorWithoutDictionary extends BaseFilterOperat
   public BaseFilterBlock nextFilterBlock(BlockId BlockId) {
     Predicate predicate = getPredicate();
     RealtimeInvertedIndex invertedIndex = (RealtimeInvertedIndex) dataSource.getInvertedIndex();
+    Dictionary dictionary = dataSource.getDictionary();
     Block dataSourceBlock = dataSource.nextBlock();
     List<ImmutableRoaringBitmap> bitmapList = new ArrayList<ImmutableRoaringBitmap>();
     switch (predicate.getType()) {
       case EQ:
         MutableRoaringBitmap eqBitmapForInQueries;
         String equalsValueToLookup = ((EqPredicate) predicate).getEqualsValue();
-        eqBitmapForInQueries = invertedIndex.getDocIdSetFor(getNumberObjectFromString(equalsValueToLookup));
+        eqBitmapForInQueries =
+            invertedIndex.getDocIdSetFor(dictionary.indexOf(getNumberObjectFromString(equalsValueToLookup)));
         if (eqBitmapForInQueries != null) {
           bitmapList.add(eqBitmapForInQueries);
         }
         break;
       case NEQ:
         String neqValue = ((NEqPredicate) predicate).getNotEqualsValue();
-        MutableRoaringBitmap neqBitmap = invertedIndex.getDocIdSetFor(getNumberObjectFromString(neqValue));
-        if (neqBitmap == null) {
-          neqBitmap = new MutableRoaringBitmap();
-        }
+        // The bitmaps of the inverted index are shared snapshots, flip a copy
+        MutableRoaringBitmap neqBitmap =
+            invertedIndex.getDocIdSetFor(dictionary.indexOf(getNumberObjectFromString(neqValue))).clone();
         neqBitmap.flip(0, neqBitmap.getCardinality());
         bitmapList.add(neqBitmap);
         break;
@@ -129,7 +130,8 @@ public class BitmapBasedFilterOperatorWithoutDictionary extends BaseFilterOperat
         String[] inRangeStrings = ((InPredicate) predicate).getInRange();
         Set<String> inRangeStringSet = new HashSet<String>(Arrays.asList(inRangeStrings));
         for (String rawValueInString : inRangeStringSet) {
-          MutableRoaringBitmap bitmap = invertedIndex.getDocIdSetFor(getNumberObjectFromString(rawValueInString));
+          MutableRoaringBitmap bitmap =
+              invertedIndex.getDocIdSetFor(dictionary.indexOf(getNumberObjectFromString(rawValueInString)));
           if (bitmap != null) {
             bitmapList.add(bitmap);
           }
@@ -139,7 +141,8 @@ public class BitmapBasedFilterOperatorWithoutDictionary extends BaseFilterOperat
         final String[] notInValues = ((NotInPredicate) predicate).getNotInRange();
         final MutableRoaringBitmap notINHolder = new MutableRoaringBitmap();
         for (String notInValue : notInValues) {
-          MutableRoaringBitmap notBitmap = invertedIndex.getDocIdSetFor(getNumberObjectFromString(notInValue));
+          MutableRoaringBitmap notBitmap =
+              invertedIndex.getDocIdSetFor(dictionary.indexOf(getNumberObjectFromString(notInValue)));
           if (notBitmap != null) {
             notINHolder.or(notBitmap);
           }
@@ -170,10 +173,10 @@ public class BitmapBasedFilterOperatorWithoutDictionary extends BaseFilterOperat
             rangeEnd = getLargerDoubleValue(rangeEnd);
           }
         }
-        for (Object invKey : ((MetricInvertedIndex) invertedIndex).getKeys()) {
-          double invKeyDouble = ((Number) invKey).doubleValue();
-          if (rangeStart < invKeyDouble && invKeyDouble < rangeEnd) {
-            bitmapList.add(invertedIndex.getDocIdSetFor(invKey));
+        for (int dictId = 0; dictId < dictionary.length(); dictId++) {
+          double value = dictionary.getDoubleValue(dictId);
+          if (rangeStart < value && value < rangeEnd) {
+            bitmapList.add(invertedIndex.getDocIdSetFor(dictId));
           }
         }
         break;
@@ -188,7 +191,6 @@ public class BitmapBasedFilterOperatorWithoutDictionary extends BaseFilterOperat
 
   @Override
   public boolean close() {
-    LOG.info("Time spent in BitmapBasedFilterOperator operator:{} is {}", this, bitmapBlock.bitmapDocIdSet.timeMeasure);
     return true;
   }
 
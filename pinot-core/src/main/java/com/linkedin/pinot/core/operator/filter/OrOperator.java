@@ -16,8 +16,11 @@
 package com.linkedin.pinot.core.operator.filter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,6 +30,8 @@ import com.linkedin.pinot.core.common.BlockId;
 import com.linkedin.pinot.core.common.FilterBlockDocIdSet;
 import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.operator.blocks.OrBlock;
+import com.linkedin.pinot.core.operator.docidsets.BitmapDocIdSet;
+import com.linkedin.pinot.core.operator.filter.utils.BitmapUtils;
 
 
 public class OrOperator extends BaseFilterOperator {
@@ -55,16 +60,47 @@ public class OrOperator extends BaseFilterOperator {
       FilterBlockDocIdSet blockDocIdSet = (FilterBlockDocIdSet) block.getBlockDocIdSet();
       blockDocIdSets.add(blockDocIdSet);
     }
-    orBlock = new OrBlock(blockDocIdSets);
+    orBlock = new OrBlock(unionBitmapDocIdSets(blockDocIdSets));
     return orBlock;
   }
 
+  /**
+   * Unions the bitmap backed children up front into a single bitmap, so that only the other children are iterated doc
+   * by doc.
+   */
+  private static List<FilterBlockDocIdSet> unionBitmapDocIdSets(List<FilterBlockDocIdSet> blockDocIdSets) {
+    List<ImmutableRoaringBitmap> bitmaps = new ArrayList<ImmutableRoaringBitmap>();
+    List<FilterBlockDocIdSet> mergedBlockDocIdSets = new ArrayList<FilterBlockDocIdSet>();
+    int minDocId = Integer.MAX_VALUE;
+    int maxDocId = Integer.MIN_VALUE;
+    int numBitmapDocIdSets = 0;
+    for (FilterBlockDocIdSet blockDocIdSet : blockDocIdSets) {
+      if (blockDocIdSet instanceof BitmapDocIdSet) {
+        numBitmapDocIdSets++;
+        ImmutableRoaringBitmap[] raw = blockDocIdSet.getRaw();
+        bitmaps.addAll(Arrays.asList(raw));
+        minDocId = Math.min(minDocId, blockDocIdSet.getMinDocId());
+        maxDocId = Math.max(maxDocId, blockDocIdSet.getMaxDocId());
+      } else {
+        mergedBlockDocIdSets.add(blockDocIdSet);
+      }
+    }
+    if (numBitmapDocIdSets < 2) {
+      return blockDocIdSets;
+    }
+
+    MutableRoaringBitmap union =
+        bitmaps.isEmpty() ? new MutableRoaringBitmap() : BitmapUtils.fastBitmapOr(bitmaps
+            .toArray(new ImmutableRoaringBitmap[bitmaps.size()]));
+    mergedBlockDocIdSets.add(0, new BitmapDocIdSet(minDocId, maxDocId, union));
+    return mergedBlockDocIdSets;
+  }
+
   @Override
   public boolean close() {
     for (Operator operator : operators) {
       operator.close();
     }
-    LOGGER.info("Time spent in OrOperator operator:{} is {}", this, orBlock.orBlockDocIdSet.timeMeasure);
     return true;
   }
 }
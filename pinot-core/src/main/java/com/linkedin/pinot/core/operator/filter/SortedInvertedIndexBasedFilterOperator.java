@@ -35,7 +35,7 @@ import com.linkedin.pinot.core.common.FilterBlockDocIdSet;
 import com.linkedin.pinot.core.common.Predicate;
 import com.linkedin.pinot.core.operator.docidsets.SortedDocIdSet;
 import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
-import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluatorProvider;
+import com.linkedin.pinot.core.operator.filter.predicate.RangePredicateEvaluator;
 import com.linkedin.pinot.core.segment.index.SortedInvertedIndexReader;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 
@@ -59,16 +59,25 @@ public class SortedInvertedIndexBasedFilterOperator extends BaseFilterOperator {
 
   @Override
   public BaseFilterBlock nextFilterBlock(BlockId BlockId) {
-    Predicate predicate = getPredicate();
     final SortedInvertedIndexReader invertedIndex = (SortedInvertedIndexReader) dataSource.getInvertedIndex();
     Dictionary dictionary = dataSource.getDictionary();
     List<Pair<Integer, Integer>> pairs = new ArrayList<Pair<Integer, Integer>>();
-    PredicateEvaluator evaluator = PredicateEvaluatorProvider.getPredicateFunctionFor(predicate, dictionary);
-    int[] dictionaryIds = evaluator.getDictionaryIds();
-    Arrays.sort(dictionaryIds);
-    for (int i = 0; i < dictionaryIds.length; i++) {
-      int[] minMax = invertedIndex.getMinMaxRangeFor(dictionaryIds[i]);
-      pairs.add(ImmutablePair.of(minMax[0], minMax[1]));
+    PredicateEvaluator evaluator = getPredicateEvaluator(dictionary);
+    if (evaluator instanceof RangePredicateEvaluator) {
+      // The documents of a range of dictionary ids are contiguous in a sorted column
+      int startDictId = ((RangePredicateEvaluator) evaluator).getStartDictionaryId();
+      int endDictId = ((RangePredicateEvaluator) evaluator).getEndDictionaryId();
+      if (startDictId <= endDictId) {
+        pairs.add(ImmutablePair.of(invertedIndex.getMinMaxRangeFor(startDictId)[0],
+            invertedIndex.getMinMaxRangeFor(endDictId)[1]));
+      }
+    } else {
+      int[] dictionaryIds = evaluator.getDictionaryIds();
+      Arrays.sort(dictionaryIds);
+      for (int i = 0; i < dictionaryIds.length; i++) {
+        int[] minMax = invertedIndex.getMinMaxRangeFor(dictionaryIds[i]);
+        pairs.add(ImmutablePair.of(minMax[0], minMax[1]));
+      }
     }
     LOGGER.debug("Creating a Sorted Block with pairs: {}", pairs);
     sortedBlock = new SortedBlock(pairs);
@@ -77,8 +86,6 @@ public class SortedInvertedIndexBasedFilterOperator extends BaseFilterOperator {
 
   @Override
   public boolean close() {
-    LOGGER.info("Time spent in SortedInvertedIndexBasedFilterOperator operator:{} is {}", this,
-        sortedBlock.sortedDocIdSet.timeMeasure);
     return true;
   }
 
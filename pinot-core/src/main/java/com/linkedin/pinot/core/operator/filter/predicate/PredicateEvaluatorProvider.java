@@ -21,9 +21,13 @@ import com.linkedin.pinot.core.common.predicate.InPredicate;
 import com.linkedin.pinot.core.common.predicate.NEqPredicate;
 import com.linkedin.pinot.core.common.predicate.NotInPredicate;
 import com.linkedin.pinot.core.common.predicate.RangePredicate;
+import com.linkedin.pinot.core.common.predicate.RegexPredicate;
 import com.linkedin.pinot.core.realtime.impl.dictionary.MutableDictionaryReader;
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
+import com.linkedin.pinot.core.segment.index.readers.StringDictionary;
+import com.linkedin.pinot.core.segment.index.readers.VarLengthStringDictionary;
 
 
 public class PredicateEvaluatorProvider {
@@ -47,7 +51,17 @@ public class PredicateEvaluatorProvider {
               (MutableDictionaryReader) dictionary);
         }
       case REGEX:
-        throw new UnsupportedOperationException("regex is not supported");
+        final RegexPredicate regexPredicate = (RegexPredicate) predicate;
+        final String prefix = regexPredicate.getLiteralPrefix();
+        // The string dictionaries are sorted on values padded with STRING_PAD_CHAR, which must not be part of the prefix
+        if (prefix != null && dictionary instanceof StringDictionary
+            && prefix.indexOf(V1Constants.Str.STRING_PAD_CHAR) < 0) {
+          return new RegexPrefixPredicateEvaluator(prefix, (StringDictionary) dictionary);
+        }
+        if (prefix != null && dictionary instanceof VarLengthStringDictionary) {
+          return new RegexPrefixPredicateEvaluator(prefix, (VarLengthStringDictionary) dictionary);
+        }
+        return new RegexPredicateEvaluator(regexPredicate, dictionary);
       default:
         throw new UnsupportedOperationException("UnKnown predicate type");
     }
@@ -19,7 +19,11 @@ import com.linkedin.pinot.core.common.predicate.RangePredicate;
 import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
 
 
-public class RangeOfflineDictionaryPredicateEvaluator extends AbstractPredicateEvaluator {
+public class RangeOfflineDictionaryPredicateEvaluator extends AbstractPredicateEvaluator implements
+    RangePredicateEvaluator {
+
+  private final int rangeStartIndex;
+  private final int rangeEndIndex;
 
   public RangeOfflineDictionaryPredicateEvaluator(RangePredicate predicate, ImmutableDictionaryReader dictionary) {
     int rangeStartIndex = 0;
@@ -53,17 +57,48 @@ public class RangeOfflineDictionaryPredicateEvaluator extends AbstractPredicateE
       rangeEndIndex -= 1;
     }
 
-    int size = (rangeEndIndex - rangeStartIndex) + 1;
-    if (size < 0) {
-      size = 0;
-    }
+    this.rangeStartIndex = rangeStartIndex;
+    this.rangeEndIndex = rangeEndIndex;
+  }
+
+  @Override
+  public int getStartDictionaryId() {
+    return rangeStartIndex;
+  }
 
-    matchingIds = new int[size];
+  @Override
+  public int getEndDictionaryId() {
+    return rangeEndIndex;
+  }
+
+  @Override
+  public boolean apply(int dictionaryId) {
+    return dictionaryId >= rangeStartIndex && dictionaryId <= rangeEndIndex;
+  }
 
-    int counter = 0;
-    for (int i = rangeStartIndex; i <= rangeEndIndex; i++) {
-      matchingIds[counter++] = i;
+  @Override
+  public boolean apply(int[] dictionaryIds) {
+    for (int i = 0; i < dictionaryIds.length; i++) {
+      if (dictionaryIds[i] >= rangeStartIndex && dictionaryIds[i] <= rangeEndIndex) {
+        return true;
+      }
     }
+    return false;
+  }
 
+  /**
+   * Materializes the matching ids on first use only, the filter operators use the range directly.
+   */
+  @Override
+  public int[] getDictionaryIds() {
+    if (matchingIds == null) {
+      int size = Math.max(0, (rangeEndIndex - rangeStartIndex) + 1);
+      int[] ids = new int[size];
+      for (int i = 0; i < size; i++) {
+        ids[i] = rangeStartIndex + i;
+      }
+      matchingIds = ids;
+    }
+    return matchingIds;
   }
 }
@@ -0,0 +1,35 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.filter.predicate;
+
+/**
+ * Predicate evaluator matching a contiguous interval of dictionary ids, so that the matching ids do not need to be
+ * materialized: a dictionary id matches iff getStartDictionaryId() &lt;= id &lt;= getEndDictionaryId().
+ */
+public interface RangePredicateEvaluator extends PredicateEvaluator {
+
+  /**
+   *
+   * @return First matching dictionary id, inclusive
+   */
+  public int getStartDictionaryId();
+
+  /**
+   *
+   * @return Last matching dictionary id, inclusive. Lower than the start dictionary id if nothing matches.
+   */
+  public int getEndDictionaryId();
+}
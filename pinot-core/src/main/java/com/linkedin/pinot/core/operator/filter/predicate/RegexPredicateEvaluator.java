@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.filter.predicate;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.linkedin.pinot.core.common.predicate.RegexPredicate;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
+
+
+/**
+ * Evaluates a regular expression once per dictionary, by matching every dictionary value against the compiled
+ * pattern.
+ *
+ * The matching ids of the immutable dictionaries of offline segments are cached per dictionary and expression, so
+ * the dashboards running the same filters over and over do not scan the dictionaries again. The dictionaries are
+ * weakly referenced by the cache, their entries go away with the segments.
+ */
+public class RegexPredicateEvaluator extends AbstractPredicateEvaluator {
+
+  private static final int MAX_CACHED_REGEXES_PER_DICTIONARY = 100;
+
+  private static final Cache<ImmutableDictionaryReader, Cache<String, int[]>> MATCHING_IDS_CACHE = CacheBuilder
+      .newBuilder().weakKeys().build();
+
+  public RegexPredicateEvaluator(RegexPredicate predicate, Dictionary dictionary) {
+    final String regex = predicate.getRegex();
+    if (dictionary instanceof ImmutableDictionaryReader) {
+      final Cache<String, int[]> dictionaryCache = getDictionaryCache((ImmutableDictionaryReader) dictionary);
+      int[] cachedIds = dictionaryCache.getIfPresent(regex);
+      if (cachedIds == null) {
+        cachedIds = getMatchingDictionaryIds(Pattern.compile(regex), dictionary);
+        dictionaryCache.put(regex, cachedIds);
+      }
+      matchingIds = cachedIds;
+    } else {
+      matchingIds = getMatchingDictionaryIds(Pattern.compile(regex), dictionary);
+    }
+  }
+
+  private static Cache<String, int[]> getDictionaryCache(ImmutableDictionaryReader dictionary) {
+    try {
+      return MATCHING_IDS_CACHE.get(dictionary, new Callable<Cache<String, int[]>>() {
+        @Override
+        public Cache<String, int[]> call() {
+          return CacheBuilder.newBuilder().maximumSize(MAX_CACHED_REGEXES_PER_DICTIONARY).build();
+        }
+      });
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  /**
+   * Returns the sorted dictionary ids whose value matches the pattern.
+   */
+  private static int[] getMatchingDictionaryIds(Pattern pattern, Dictionary dictionary) {
+    final IntArrayList ids = new IntArrayList();
+    final Matcher matcher = pattern.matcher("");
+    final int length = dictionary.length();
+    for (int i = 0; i < length; i++) {
+      final String value = dictionary.toString(i);
+      if (value != null && matcher.reset(value).matches()) {
+        ids.add(i);
+      }
+    }
+    return ids.toIntArray();
+  }
+}
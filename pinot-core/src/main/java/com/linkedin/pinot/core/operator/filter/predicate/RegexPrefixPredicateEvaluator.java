@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.filter.predicate;
+
+import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
+
+
+/**
+ * Evaluates 'prefix.*' regular expressions on a sorted string dictionary: the matching values are contiguous, so
+ * the range of matching dictionary ids is found with two binary searches instead of matching every value.
+ */
+public class RegexPrefixPredicateEvaluator extends AbstractPredicateEvaluator implements RangePredicateEvaluator {
+
+  private final String prefix;
+  private final ImmutableDictionaryReader dictionary;
+  private final int rangeStartIndex;
+  private final int rangeEndIndex;
+
+  public RegexPrefixPredicateEvaluator(String prefix, ImmutableDictionaryReader dictionary) {
+    this.prefix = prefix;
+    this.dictionary = dictionary;
+    rangeStartIndex = firstIndexComparingAbove(-1);
+    rangeEndIndex = firstIndexComparingAbove(0) - 1;
+  }
+
+  /**
+   * Returns the first dictionary id whose value compares to the prefix above the given comparison result, or the
+   * dictionary length if there is none.
+   */
+  private int firstIndexComparingAbove(int comparison) {
+    int low = 0;
+    int high = dictionary.length();
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (comparePrefix(mid) > comparison) {
+        high = mid;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return low;
+  }
+
+  private int comparePrefix(int dictionaryId) {
+    // Padded value for the fixed width dictionaries, which are sorted on the padded values
+    final String value = dictionary.getStringValue(dictionaryId);
+    final String head = value.length() > prefix.length() ? value.substring(0, prefix.length()) : value;
+    return Integer.signum(head.compareTo(prefix));
+  }
+
+  @Override
+  public int getStartDictionaryId() {
+    return rangeStartIndex;
+  }
+
+  @Override
+  public int getEndDictionaryId() {
+    return rangeEndIndex;
+  }
+
+  @Override
+  public boolean apply(int dictionaryId) {
+    return dictionaryId >= rangeStartIndex && dictionaryId <= rangeEndIndex;
+  }
+
+  @Override
+  public boolean apply(int[] dictionaryIds) {
+    for (int i = 0; i < dictionaryIds.length; i++) {
+      if (dictionaryIds[i] >= rangeStartIndex && dictionaryIds[i] <= rangeEndIndex) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public int[] getDictionaryIds() {
+    if (matchingIds == null) {
+      int size = Math.max(0, (rangeEndIndex - rangeStartIndex) + 1);
+      int[] ids = new int[size];
+      for (int i = 0; i < size; i++) {
+        ids[i] = rangeStartIndex + i;
+      }
+      matchingIds = ids;
+    }
+    return matchingIds;
+  }
+}
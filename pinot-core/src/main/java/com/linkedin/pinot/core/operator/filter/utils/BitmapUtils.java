@@ -31,30 +31,30 @@ import com.linkedin.pinot.core.segment.index.InvertedIndexReader;
 public class BitmapUtils {
   private static final Logger LOGGER = LoggerFactory.getLogger(BitmapUtils.class);
 
+  /**
+   * Intersects the bitmaps, starting with the ones with the fewest documents so that the intermediate results stay
+   * small, and stopping as soon as the intersection is empty.
+   */
   public static MutableRoaringBitmap fastBitmapsAnd(final ImmutableRoaringBitmap[] bitmaps) {
-    long start = System.currentTimeMillis();
     MutableRoaringBitmap answer;
 
     if (bitmaps.length == 1) {
       answer = new MutableRoaringBitmap();
-      answer.and(bitmaps[0]);
+      answer.or(bitmaps[0]);
     } else if (bitmaps.length == 2) {
       answer = ImmutableRoaringBitmap.and(bitmaps[0], bitmaps[1]);
     } else {
       //if we have more than 2 bitmaps to intersect, re order them so that we use the bitmaps according to the number of bits set to 1
-      final Integer array[] = new Integer[bitmaps.length];
-      for (int i = 0; i < array.length; i++) {
-        array[i] = i;
-      }
-      Arrays.sort(array, new Comparator<Integer>() {
+      final ImmutableRoaringBitmap[] sortedBitmaps = bitmaps.clone();
+      Arrays.sort(sortedBitmaps, new Comparator<ImmutableRoaringBitmap>() {
         @Override
-        public int compare(Integer o1, Integer o2) {
-          return bitmaps[o1].getSizeInBytes() - bitmaps[o2].getSizeInBytes();
+        public int compare(ImmutableRoaringBitmap o1, ImmutableRoaringBitmap o2) {
+          return Integer.compare(o1.getCardinality(), o2.getCardinality());
         }
       });
-      answer = ImmutableRoaringBitmap.and(bitmaps[0], bitmaps[1]);
-      for (int srcId = 2; srcId < bitmaps.length; srcId++) {
-        answer.and(bitmaps[srcId]);
+      answer = ImmutableRoaringBitmap.and(sortedBitmaps[0], sortedBitmaps[1]);
+      for (int srcId = 2; srcId < sortedBitmaps.length && answer.getCardinality() > 0; srcId++) {
+        answer.and(sortedBitmaps[srcId]);
       }
     }
     boolean validate = false;
@@ -69,14 +69,10 @@ public class BitmapUtils {
             + " \n\t unoptimized: " + bit);
       }
     }
-    long end = System.currentTimeMillis();
-    LOGGER.info("And operator took: " + (end - start));
-
     return answer;
   }
 
   public static MutableRoaringBitmap fastBitmapOr(final ImmutableRoaringBitmap[] bitmaps) {
-    long start = System.currentTimeMillis();
     MutableRoaringBitmap answer;
     if (bitmaps.length == 1) {
       answer = new MutableRoaringBitmap();
@@ -112,9 +108,6 @@ public class BitmapUtils {
       }
 
     }
-    long end = System.currentTimeMillis();
-
-    LOGGER.info("time taken for fast Or : " + (end - start));
     return answer;
   }
 
@@ -34,6 +34,7 @@ import com.linkedin.pinot.core.common.BlockValIterator;
 import com.linkedin.pinot.core.common.BlockValSet;
 import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.operator.DocIdBatchIterator;
 import com.linkedin.pinot.core.operator.DocIdSetBlock;
 import com.linkedin.pinot.core.operator.MProjectionOperator;
 import com.linkedin.pinot.core.operator.UReplicatedProjectionOperator;
@@ -51,12 +52,21 @@ import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
  *
  * and do aggregation and groupBy.
  *
+ * The plan makers do not use this operator anymore, queries compute all their aggregation functions in a single pass
+ * with MAggregationGroupByWithDictionaryAndTrieTreeOperator.
+ * It is kept as the per aggregation function reference the single pass operator is tested against.
+ *
  *
  */
 public class MAggregationFunctionGroupByWithDictionaryAndTrieTreeOperator extends AggregationFunctionGroupByOperator {
 
   private final Dictionary[] _dictionaries;
   private final BlockValIterator[] _groupByBlockValIterators;
+  private final BlockValSet[] _groupByBlockValSets;
+
+  // Buffers holding the dictionary ids of a batch of docIds for each single value group by column
+  private final DocIdBatchIterator _docIdBatchIterator = new DocIdBatchIterator();
+  private final int[][] _batchDictionaryIds;
 
   private final TrieNode _rootNode;
   private final int[] _groupKeys;
@@ -71,6 +81,8 @@ public class MAggregationFunctionGroupByWithDictionaryAndTrieTreeOperator extend
       _dictionaries[i] = _groupByBlocks[i].getMetadata().getDictionary();
     }
     _groupByBlockValIterators = new BlockValIterator[_groupBy.getColumnsSize()];
+    _groupByBlockValSets = new BlockValSet[_groupBy.getColumnsSize()];
+    _batchDictionaryIds = new int[_groupBy.getColumnsSize()][_docIdBatchIterator.getMaxBatchSize()];
     _rootNode = new TrieNode();
   }
 
@@ -81,6 +93,11 @@ public class MAggregationFunctionGroupByWithDictionaryAndTrieTreeOperator extend
       return null;
     }
     DocIdSetBlock docIdSetBlock = (DocIdSetBlock) block.getDocIdSetBlock();
+    if (!_isGroupByColumnsContainMultiValueColumn) {
+      aggregateSingleValueGroupBy(block, docIdSetBlock);
+      return null;
+    }
+
     BlockDocIdIterator blockDocIdIterator = docIdSetBlock.getBlockDocIdSet().iterator();
     int docId = 0;
 
@@ -89,75 +106,55 @@ public class MAggregationFunctionGroupByWithDictionaryAndTrieTreeOperator extend
     }
 
     while ((docId = blockDocIdIterator.next()) != Constants.EOF) {
-      if (!_isGroupByColumnsContainMultiValueColumn) {
-
-        TrieNode currentNode = _rootNode;
-        for (int i = 0; i < _groupBy.getColumnsSize(); ++i) {
-          if (currentNode.getNextGroupedColumnValues() == null) {
-            currentNode.setNextGroupedColumnValues(new Int2ObjectOpenHashMap<TrieNode>());
+      List<TrieNode> currentNodesList = new ArrayList<TrieNode>();
+      currentNodesList.add(_rootNode);
+      for (int i = 0; i < _groupBy.getColumnsSize(); ++i) {
+        if (_isSingleValueGroupByColumn[i]) {
+          for (int j = 0; j < currentNodesList.size(); ++j) {
+            TrieNode currentNode = currentNodesList.get(j);
+            if (currentNode.getNextGroupedColumnValues() == null) {
+              currentNode.setNextGroupedColumnValues(new Int2ObjectOpenHashMap<TrieNode>());
+            }
+            BlockSingleValIterator blockValIterator = (BlockSingleValIterator) _groupByBlockValIterators[i];
+            blockValIterator.skipTo(docId);
+            final int groupKey = blockValIterator.nextIntVal();
+            if (!currentNode.getNextGroupedColumnValues().containsKey(groupKey)) {
+              currentNode.getNextGroupedColumnValues().put(groupKey, new TrieNode());
+            }
+            currentNode = currentNode.getNextGroupedColumnValues().get(groupKey);
+            currentNodesList.set(j, currentNode);
           }
-          BlockSingleValIterator blockValIterator = (BlockSingleValIterator) _groupByBlockValIterators[i];
+        } else {
+          BlockMultiValIterator blockValIterator = (BlockMultiValIterator) _groupByBlockValIterators[i];
           blockValIterator.skipTo(docId);
-          final int groupKey = blockValIterator.nextIntVal();
-
-          if (!currentNode.getNextGroupedColumnValues().containsKey(groupKey)) {
-            currentNode.getNextGroupedColumnValues().put(groupKey, new TrieNode());
+          final int maxValue = _groupByBlocks[i].getMetadata().getMaxNumberOfMultiValues();
+          final int[] entries = new int[maxValue];
+          int group = blockValIterator.nextIntVal(entries);
+          if (group == 0) {
+            group = 1;
+            entries[0] = -1;
           }
-          currentNode = currentNode.getNextGroupedColumnValues().get(groupKey);
-        }
-        currentNode.setAggregationResult(_aggregationFunction.aggregate(currentNode.getAggregationResult(), docId,
-            _aggregationFunctionBlocks));
-      } else {
-        List<TrieNode> currentNodesList = new ArrayList<TrieNode>();
-        currentNodesList.add(_rootNode);
-        for (int i = 0; i < _groupBy.getColumnsSize(); ++i) {
-          if (_isSingleValueGroupByColumn[i]) {
-            for (int j = 0; j < currentNodesList.size(); ++j) {
-              TrieNode currentNode = currentNodesList.get(j);
-              if (currentNode.getNextGroupedColumnValues() == null) {
-                currentNode.setNextGroupedColumnValues(new Int2ObjectOpenHashMap<TrieNode>());
-              }
-              BlockSingleValIterator blockValIterator = (BlockSingleValIterator) _groupByBlockValIterators[i];
-              blockValIterator.skipTo(docId);
-              final int groupKey = blockValIterator.nextIntVal();
-              if (!currentNode.getNextGroupedColumnValues().containsKey(groupKey)) {
-                currentNode.getNextGroupedColumnValues().put(groupKey, new TrieNode());
-              }
-              currentNode = currentNode.getNextGroupedColumnValues().get(groupKey);
-              currentNodesList.set(j, currentNode);
-            }
-          } else {
-            BlockMultiValIterator blockValIterator = (BlockMultiValIterator) _groupByBlockValIterators[i];
-            blockValIterator.skipTo(docId);
-            final int maxValue = _groupByBlocks[i].getMetadata().getMaxNumberOfMultiValues();
-            final int[] entries = new int[maxValue];
-            int group = blockValIterator.nextIntVal(entries);
-            if (group == 0) {
-              group = 1;
-              entries[0] = -1;
+          int originSize = currentNodesList.size();
+          for (int k = 0; k < group - 1; ++k) {
+            for (int l = 0; l < originSize; ++l) {
+              currentNodesList.add(currentNodesList.get(l));
             }
-            int originSize = currentNodesList.size();
-            for (int k = 0; k < group - 1; ++k) {
-              for (int l = 0; l < originSize; ++l) {
-                currentNodesList.add(currentNodesList.get(l));
-              }
+          }
+          for (int k = 0; k < currentNodesList.size(); ++k) {
+            TrieNode currentNode = currentNodesList.get(k);
+            if (currentNode.getNextGroupedColumnValues() == null) {
+              currentNode.setNextGroupedColumnValues(new Int2ObjectOpenHashMap<TrieNode>());
             }
-            for (int k = 0; k < currentNodesList.size(); ++k) {
-              TrieNode currentNode = currentNodesList.get(k);
-              if (currentNode.getNextGroupedColumnValues() == null) {
-                currentNode.setNextGroupedColumnValues(new Int2ObjectOpenHashMap<TrieNode>());
-              }
-              if (!currentNode.getNextGroupedColumnValues().containsKey(entries[k / originSize])) {
-                currentNode.getNextGroupedColumnValues().put(entries[k / originSize], new TrieNode());
-              }
-              currentNode = currentNode.getNextGroupedColumnValues().get(entries[k / originSize]);
-              currentNodesList.set(k, currentNode);
+            if (!currentNode.getNextGroupedColumnValues().containsKey(entries[k / originSize])) {
+              currentNode.getNextGroupedColumnValues().put(entries[k / originSize], new TrieNode());
             }
+            currentNode = currentNode.getNextGroupedColumnValues().get(entries[k / originSize]);
+            currentNodesList.set(k, currentNode);
           }
-          for (TrieNode currentNode : currentNodesList) {
-            currentNode.setAggregationResult(_aggregationFunction.aggregate(currentNode.getAggregationResult(), docId,
-                _aggregationFunctionBlocks));
-          }
+        }
+        for (TrieNode currentNode : currentNodesList) {
+          currentNode.setAggregationResult(_aggregationFunction.aggregate(currentNode.getAggregationResult(), docId,
+              _aggregationFunctionBlocks));
         }
       }
     }
@@ -165,6 +162,45 @@ public class MAggregationFunctionGroupByWithDictionaryAndTrieTreeOperator extend
     return null;
   }
 
+  /**
+   * Reads the dictionary ids of all the group by columns for a batch of docIds at once, then walks the
+   * trie for each doc of the batch.
+   */
+  private void aggregateSingleValueGroupBy(ProjectionBlock block, DocIdSetBlock docIdSetBlock) {
+    final int numGroupByColumns = _groupBy.getColumnsSize();
+    for (int i = 0; i < numGroupByColumns; ++i) {
+      _groupByBlockValSets[i] = block.getBlock(_groupBy.getColumns().get(i)).getBlockValueSet();
+    }
+
+    _docIdBatchIterator.init(docIdSetBlock);
+    while (_docIdBatchIterator.next()) {
+      final int[] docIds = _docIdBatchIterator.getDocIds();
+      final int startPos = _docIdBatchIterator.getBatchStartPos();
+      final int batchSize = _docIdBatchIterator.getBatchSize();
+      for (int i = 0; i < numGroupByColumns; ++i) {
+        _groupByBlockValSets[i].getDictionaryIds(docIds, startPos, batchSize, _batchDictionaryIds[i], 0);
+      }
+
+      for (int j = 0; j < batchSize; ++j) {
+        TrieNode currentNode = _rootNode;
+        for (int i = 0; i < numGroupByColumns; ++i) {
+          if (currentNode.getNextGroupedColumnValues() == null) {
+            currentNode.setNextGroupedColumnValues(new Int2ObjectOpenHashMap<TrieNode>());
+          }
+          final int groupKey = _batchDictionaryIds[i][j];
+          TrieNode nextNode = currentNode.getNextGroupedColumnValues().get(groupKey);
+          if (nextNode == null) {
+            nextNode = new TrieNode();
+            currentNode.getNextGroupedColumnValues().put(groupKey, nextNode);
+          }
+          currentNode = nextNode;
+        }
+        currentNode.setAggregationResult(_aggregationFunction.aggregate(currentNode.getAggregationResult(),
+            docIds[startPos + j], _aggregationFunctionBlocks));
+      }
+    }
+  }
+
   @Override
   public Block nextBlock(BlockId BlockId) {
     throw new UnsupportedOperationException(
@@ -19,6 +19,7 @@ import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -34,13 +35,15 @@ import com.linkedin.pinot.core.common.BlockValIterator;
 import com.linkedin.pinot.core.common.BlockValSet;
 import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.operator.DocIdBatchIterator;
 import com.linkedin.pinot.core.operator.DocIdSetBlock;
 import com.linkedin.pinot.core.operator.MProjectionOperator;
 import com.linkedin.pinot.core.operator.UReplicatedProjectionOperator;
 import com.linkedin.pinot.core.query.aggregation.groupby.BitHacks;
+import com.linkedin.pinot.core.query.aggregation.groupby.DenseGroupByAccumulator;
+import com.linkedin.pinot.core.query.aggregation.groupby.DenseGroupKeyGenerator;
 import com.linkedin.pinot.core.query.aggregation.groupby.GroupByConstants;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
-import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
 
 
 /**
@@ -50,26 +53,70 @@ import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
  *
  * GetAggregationGroupByResult will return the results.
  *
+ * When all the group by columns are single value columns of an offline segment and the product of their
+ * cardinalities is at most GroupByConstants.MAX_DENSE_GROUP_KEY_SPACE, docs are instead mapped to group ids through
+ * their dense group key (see DenseGroupKeyGenerator), and supported aggregation functions accumulate into primitive
+ * arrays indexed by group id (see DenseGroupByAccumulator).
+ *
+ * The plan makers do not use this operator anymore, queries compute all their aggregation functions in a single pass
+ * with MAggregationGroupByWithDictionaryOperator.
+ * It is kept as the per aggregation function reference the single pass operator is tested against.
+ *
  *
  */
 public class MAggregationFunctionGroupByWithDictionaryOperator extends AggregationFunctionGroupByOperator {
+  private static final int INITIAL_DENSE_GROUP_CAPACITY = 1024;
 
   private int[] _groupKeyBitSize;
   private final String[] _stringArray;
 
   private final Dictionary[] _dictionaries;
   private final BlockValIterator[] _groupByBlockValIterators;
+  private final BlockValSet[] _groupByBlockValSets;
 
   private final Long2ObjectOpenHashMap<Serializable> _tempAggregationResults =
       new Long2ObjectOpenHashMap<Serializable>();
 
+  // Buffers used to compute the group keys of a batch of docIds at once for single value group by columns
+  private final DocIdBatchIterator _docIdBatchIterator = new DocIdBatchIterator();
+  private final int[] _dictionaryIds = new int[_docIdBatchIterator.getMaxBatchSize()];
+  private final long[] _batchGroupKeys = new long[_docIdBatchIterator.getMaxBatchSize()];
+
+  // Dense group key mode, _denseAccumulator is null when not applicable
+  private DenseGroupKeyGenerator _denseGroupKeyGenerator;
+  private DenseGroupByAccumulator _denseAccumulator;
+  private int[] _groupIds;
+  private double[] _values;
+
   public MAggregationFunctionGroupByWithDictionaryOperator(AggregationInfo aggregationInfo, GroupBy groupBy,
       Operator projectionOperator, boolean hasDictionary) {
     super(aggregationInfo, groupBy, projectionOperator, hasDictionary);
     _dictionaries = new Dictionary[_groupBy.getColumnsSize()];
     _groupByBlockValIterators = new BlockValIterator[_groupBy.getColumnsSize()];
+    _groupByBlockValSets = new BlockValSet[_groupBy.getColumnsSize()];
     setGroupKeyOffset();
     _stringArray = new String[_groupKeyBitSize.length];
+    initDenseGroupKeyMode();
+  }
+
+  private void initDenseGroupKeyMode() {
+    if (_isGroupByColumnsContainMultiValueColumn) {
+      return;
+    }
+    _denseGroupKeyGenerator = DenseGroupKeyGenerator.create(_dictionaries, _docIdBatchIterator.getMaxBatchSize());
+    if (_denseGroupKeyGenerator == null) {
+      return;
+    }
+    // The accumulator grows with the number of groups actually seen
+    _denseAccumulator = DenseGroupByAccumulator.create(_aggregationFunction, INITIAL_DENSE_GROUP_CAPACITY);
+    if (_denseAccumulator == null) {
+      _denseGroupKeyGenerator = null;
+      return;
+    }
+    _groupIds = new int[_docIdBatchIterator.getMaxBatchSize()];
+    if (_denseAccumulator.needsValues()) {
+      _values = new double[_docIdBatchIterator.getMaxBatchSize()];
+    }
   }
 
   private void setGroupKeyOffset() {
@@ -94,6 +141,15 @@ public class MAggregationFunctionGroupByWithDictionaryOperator extends Aggregati
       return null;
     }
     DocIdSetBlock docIdSetBlock = (DocIdSetBlock) block.getDocIdSetBlock();
+    if (_denseAccumulator != null) {
+      aggregateDenseGroupBy(block, docIdSetBlock);
+      return null;
+    }
+    if (!_isGroupByColumnsContainMultiValueColumn) {
+      aggregateSingleValueGroupBy(block, docIdSetBlock);
+      return null;
+    }
+
     BlockDocIdIterator blockDocIdIterator = docIdSetBlock.getBlockDocIdSet().iterator();
     int docId = 0;
 
@@ -102,19 +158,89 @@ public class MAggregationFunctionGroupByWithDictionaryOperator extends Aggregati
     }
 
     while ((docId = blockDocIdIterator.next()) != Constants.EOF) {
-      if (!_isGroupByColumnsContainMultiValueColumn) {
-        final long groupKey = getGroupKey(docId);
+      for (long groupKey : getGroupKeys(docId)) {
         _tempAggregationResults.put(groupKey,
             _aggregationFunction.aggregate(_tempAggregationResults.get(groupKey), docId, _aggregationFunctionBlocks));
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Computes the group keys of a whole batch of docIds column by column from the batch dictionary id reads,
+   * then aggregates the docs of the batch into their groups.
+   */
+  private void aggregateSingleValueGroupBy(ProjectionBlock block, DocIdSetBlock docIdSetBlock) {
+    final int numGroupByColumns = _groupBy.getColumnsSize();
+    for (int i = 0; i < numGroupByColumns; ++i) {
+      _groupByBlockValSets[i] = block.getBlock(_groupBy.getColumns().get(i)).getBlockValueSet();
+    }
+
+    _docIdBatchIterator.init(docIdSetBlock);
+    while (_docIdBatchIterator.next()) {
+      final int[] docIds = _docIdBatchIterator.getDocIds();
+      final int startPos = _docIdBatchIterator.getBatchStartPos();
+      final int batchSize = _docIdBatchIterator.getBatchSize();
 
+      Arrays.fill(_batchGroupKeys, 0, batchSize, 0L);
+      for (int i = 0; i < numGroupByColumns; ++i) {
+        _groupByBlockValSets[i].getDictionaryIds(docIds, startPos, batchSize, _dictionaryIds, 0);
+        final int groupKeyBitSize = _groupKeyBitSize[i];
+        for (int j = 0; j < batchSize; ++j) {
+          _batchGroupKeys[j] = (_batchGroupKeys[j] << groupKeyBitSize) | _dictionaryIds[j];
+        }
+      }
+
+      for (int j = 0; j < batchSize; ++j) {
+        final long groupKey = _batchGroupKeys[j];
+        _tempAggregationResults.put(groupKey, _aggregationFunction.aggregate(_tempAggregationResults.get(groupKey),
+            docIds[startPos + j], _aggregationFunctionBlocks));
+      }
+    }
+  }
+
+  /**
+   * Same as aggregateSingleValueGroupBy, but with group ids mapped from dense group keys and primitive accumulators:
+   * the values of a whole batch are resolved at once and no partial result is boxed.
+   */
+  private void aggregateDenseGroupBy(ProjectionBlock block, DocIdSetBlock docIdSetBlock) {
+    final int numGroupByColumns = _groupBy.getColumnsSize();
+    for (int i = 0; i < numGroupByColumns; ++i) {
+      _groupByBlockValSets[i] = block.getBlock(_groupBy.getColumns().get(i)).getBlockValueSet();
+    }
+    BlockValSet valueBlockValSet = null;
+    Dictionary valueDictionary = null;
+    if (_denseAccumulator.needsValues()) {
+      valueBlockValSet = _aggregationFunctionBlocks[0].getBlockValueSet();
+      valueDictionary = _aggregationFunctionBlocks[0].getMetadata().getDictionary();
+    }
+
+    _docIdBatchIterator.init(docIdSetBlock);
+    while (_docIdBatchIterator.next()) {
+      final int[] docIds = _docIdBatchIterator.getDocIds();
+      final int startPos = _docIdBatchIterator.getBatchStartPos();
+      final int batchSize = _docIdBatchIterator.getBatchSize();
+
+      _denseGroupKeyGenerator.getGroupIds(_groupByBlockValSets, docIds, startPos, batchSize, _groupIds);
+      _denseAccumulator.ensureCapacity(_denseGroupKeyGenerator.getNumGroups());
+
+      if (valueBlockValSet == null) {
+        _denseAccumulator.aggregate(_groupIds, null, batchSize);
       } else {
-        for (long groupKey : getGroupKeys(docId)) {
-          _tempAggregationResults.put(groupKey,
-              _aggregationFunction.aggregate(_tempAggregationResults.get(groupKey), docId, _aggregationFunctionBlocks));
+        // Drop the docs without value, keeping group keys and dictionary ids aligned
+        valueBlockValSet.getDictionaryIds(docIds, startPos, batchSize, _dictionaryIds, 0);
+        int numValues = 0;
+        for (int j = 0; j < batchSize; ++j) {
+          final int dictionaryId = _dictionaryIds[j];
+          if (dictionaryId != Dictionary.NULL_VALUE_INDEX) {
+            _dictionaryIds[numValues] = dictionaryId;
+            _groupIds[numValues++] = _groupIds[j];
+          }
         }
+        valueDictionary.readDoubleValues(_dictionaryIds, 0, numValues, _values, 0);
+        _denseAccumulator.aggregate(_groupIds, _values, numValues);
       }
     }
-    return null;
   }
 
   private Long[] getGroupKeys(int docId) {
@@ -152,19 +278,6 @@ public class MAggregationFunctionGroupByWithDictionaryOperator extends Aggregati
     return groupKeysList.toArray(new Long[0]);
   }
 
-  private long getGroupKey(int docId) {
-    long ret = 0L;
-    int i = 0;
-    BlockSingleValIterator blockValIterator;
-    for (final int element : _groupKeyBitSize) {
-      blockValIterator = (BlockSingleValIterator) _groupByBlockValIterators[i++];
-      blockValIterator.skipTo(docId);
-      ret = ret << element;
-      ret |= blockValIterator.nextIntVal();
-    }
-    return ret;
-  }
-
   @Override
   public Block nextBlock(BlockId BlockId) {
     throw new UnsupportedOperationException(
@@ -174,6 +287,13 @@ public class MAggregationFunctionGroupByWithDictionaryOperator extends Aggregati
   @Override
   public Map<String, Serializable> getAggregationGroupByResult() {
     _aggregateGroupedValue.clear();
+    if (_denseAccumulator != null) {
+      for (int groupId = 0; groupId < _denseGroupKeyGenerator.getNumGroups(); ++groupId) {
+        _denseGroupKeyGenerator.getGroupKeyParts(groupId, _stringArray);
+        _aggregateGroupedValue.put(joinGroupKeyParts(), _denseAccumulator.getResult(groupId));
+      }
+      return _aggregateGroupedValue;
+    }
     for (final long key : _tempAggregationResults.keySet()) {
       _aggregateGroupedValue.put(decodeGroupedKeyFromLong(key), _tempAggregationResults.get(key));
     }
@@ -188,7 +308,10 @@ public class MAggregationFunctionGroupByWithDictionaryOperator extends Aggregati
       key >>>= _groupKeyBitSize[i];
       i--;
     }
+    return joinGroupKeyParts();
+  }
 
+  private String joinGroupKeyParts() {
     final StringBuilder builder = new StringBuilder();
     for (int j = 0; j < (_stringArray.length - 1); j++) {
       builder.append(_stringArray[j]).append(GroupByConstants.GroupByDelimiter.groupByMultiDelimeter.toString());
@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.query;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.common.request.GroupBy;
+import com.linkedin.pinot.core.common.BlockMultiValIterator;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.query.utils.TrieNode;
+
+
+/**
+ * Single pass version of MAggregationFunctionGroupByWithDictionaryAndTrieTreeOperator: each group by column value
+ * is a node in the Trie, and leaf nodes store the group id shared by all the aggregation functions.
+ */
+public class MAggregationGroupByWithDictionaryAndTrieTreeOperator extends SinglePassAggregationGroupByOperator {
+
+  private final TrieNode _rootNode = new TrieNode();
+  // Dictionary ids of the group by columns for each group id
+  private final List<int[]> _groupDictionaryIds = new ArrayList<int[]>();
+  private final String[] _stringArray;
+
+  // Buffers holding the dictionary ids of a batch of docIds for each single value group by column
+  private final int[][] _batchDictionaryIds;
+
+  // Buffers used to walk the trie for the combinations of values of a doc with multi value group by columns
+  private final List<TrieNode> _currentNodes = new ArrayList<TrieNode>();
+  private final List<int[]> _currentPaths = new ArrayList<int[]>();
+  private final int[][] _multiValueEntries;
+
+  public MAggregationGroupByWithDictionaryAndTrieTreeOperator(IndexSegment indexSegment,
+      List<AggregationInfo> aggregationInfoList, GroupBy groupBy, Operator projectionOperator) {
+    super(indexSegment, aggregationInfoList, groupBy, projectionOperator);
+    _stringArray = new String[_numGroupByColumns];
+    _batchDictionaryIds = new int[_numGroupByColumns][_docIdBatchIterator.getMaxBatchSize()];
+    _multiValueEntries = new int[_numGroupByColumns][];
+    for (int i = 0; i < _numGroupByColumns; ++i) {
+      if (!_isSingleValueGroupByColumn[i]) {
+        _multiValueEntries[i] = new int[_groupByBlocks[i].getMetadata().getMaxNumberOfMultiValues()];
+      }
+    }
+  }
+
+  @Override
+  protected void getGroupIds(int[] docIds, int startPos, int length, int[] outGroupIds) {
+    for (int i = 0; i < _numGroupByColumns; ++i) {
+      _groupByBlockValSets[i].getDictionaryIds(docIds, startPos, length, _batchDictionaryIds[i], 0);
+    }
+    for (int j = 0; j < length; ++j) {
+      TrieNode currentNode = _rootNode;
+      for (int i = 0; i < _numGroupByColumns; ++i) {
+        currentNode = getChildNode(currentNode, _batchDictionaryIds[i][j]);
+      }
+      int groupId = currentNode.getGroupId();
+      if (groupId == -1) {
+        final int[] dictionaryIds = new int[_numGroupByColumns];
+        for (int i = 0; i < _numGroupByColumns; ++i) {
+          dictionaryIds[i] = _batchDictionaryIds[i][j];
+        }
+        groupId = newGroup(currentNode, dictionaryIds);
+      }
+      outGroupIds[j] = groupId;
+    }
+  }
+
+  @Override
+  protected void getGroupIds(int docId, IntArrayList outGroupIds) {
+    _currentNodes.clear();
+    _currentPaths.clear();
+    _currentNodes.add(_rootNode);
+    _currentPaths.add(new int[_numGroupByColumns]);
+    for (int i = 0; i < _numGroupByColumns; ++i) {
+      if (_isSingleValueGroupByColumn[i]) {
+        BlockSingleValIterator blockValIterator = (BlockSingleValIterator) _groupByBlockValIterators[i];
+        blockValIterator.skipTo(docId);
+        final int dictId = blockValIterator.nextIntVal();
+        for (int k = 0; k < _currentNodes.size(); ++k) {
+          _currentNodes.set(k, getChildNode(_currentNodes.get(k), dictId));
+          _currentPaths.get(k)[i] = dictId;
+        }
+      } else {
+        BlockMultiValIterator blockValIterator = (BlockMultiValIterator) _groupByBlockValIterators[i];
+        blockValIterator.skipTo(docId);
+        final int[] entries = _multiValueEntries[i];
+        int numEntries = blockValIterator.nextIntVal(entries);
+        if (numEntries == 0) {
+          numEntries = 1;
+          entries[0] = -1;
+        }
+        final int originSize = _currentNodes.size();
+        for (int j = 1; j < numEntries; ++j) {
+          for (int k = 0; k < originSize; ++k) {
+            _currentNodes.add(_currentNodes.get(k));
+            _currentPaths.add(_currentPaths.get(k).clone());
+          }
+        }
+        for (int k = 0; k < _currentNodes.size(); ++k) {
+          final int dictId = entries[k / originSize];
+          _currentNodes.set(k, getChildNode(_currentNodes.get(k), dictId));
+          _currentPaths.get(k)[i] = dictId;
+        }
+      }
+    }
+    for (int k = 0; k < _currentNodes.size(); ++k) {
+      final TrieNode leafNode = _currentNodes.get(k);
+      int groupId = leafNode.getGroupId();
+      if (groupId == -1) {
+        groupId = newGroup(leafNode, _currentPaths.get(k));
+      }
+      outGroupIds.add(groupId);
+    }
+  }
+
+  private TrieNode getChildNode(TrieNode currentNode, int dictId) {
+    if (currentNode.getNextGroupedColumnValues() == null) {
+      currentNode.setNextGroupedColumnValues(new Int2ObjectOpenHashMap<TrieNode>());
+    }
+    TrieNode nextNode = currentNode.getNextGroupedColumnValues().get(dictId);
+    if (nextNode == null) {
+      nextNode = new TrieNode();
+      currentNode.getNextGroupedColumnValues().put(dictId, nextNode);
+    }
+    return nextNode;
+  }
+
+  private int newGroup(TrieNode leafNode, int[] dictionaryIds) {
+    final int groupId = newGroupId();
+    leafNode.setIsLeaf(true);
+    leafNode.setGroupId(groupId);
+    _groupDictionaryIds.add(dictionaryIds);
+    return groupId;
+  }
+
+  @Override
+  protected String getGroupKey(int groupId) {
+    final int[] dictionaryIds = _groupDictionaryIds.get(groupId);
+    for (int i = 0; i < _numGroupByColumns; ++i) {
+      _stringArray[i] = _dictionaries[i].get(dictionaryIds[i]).toString();
+    }
+    return joinGroupKeyParts(_stringArray);
+  }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.query;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.common.request.GroupBy;
+import com.linkedin.pinot.core.common.BlockMultiValIterator;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.query.aggregation.groupby.BitHacks;
+import com.linkedin.pinot.core.query.aggregation.groupby.DenseGroupKeyGenerator;
+
+
+/**
+ * Single pass version of MAggregationFunctionGroupByWithDictionaryOperator: the dictionary ids of the group by
+ * columns are packed into a long group key, which is mapped to a group id shared by all the aggregation functions.
+ *
+ * When all the group by columns are single value columns of an offline segment and the product of their
+ * cardinalities is at most GroupByConstants.MAX_DENSE_GROUP_KEY_SPACE, group ids are instead mapped from the dense
+ * group keys by a DenseGroupKeyGenerator, without hashing.
+ */
+public class MAggregationGroupByWithDictionaryOperator extends SinglePassAggregationGroupByOperator {
+
+  private final int[] _groupKeyBitSize;
+  private final String[] _stringArray;
+
+  // Long group key of each group id, and group id of each long group key
+  private final LongArrayList _groupKeys = new LongArrayList();
+  private final Long2IntOpenHashMap _groupIdForGroupKey = new Long2IntOpenHashMap();
+
+  private final int[] _dictionaryIds = new int[_docIdBatchIterator.getMaxBatchSize()];
+  private final long[] _batchGroupKeys = new long[_docIdBatchIterator.getMaxBatchSize()];
+
+  // Dense group key mode, null when not applicable
+  private final DenseGroupKeyGenerator _denseGroupKeyGenerator;
+
+  // Buffers used to expand the group keys of a doc over its multi value group by columns
+  private final LongArrayList _docGroupKeys = new LongArrayList();
+  private final int[][] _multiValueEntries;
+
+  public MAggregationGroupByWithDictionaryOperator(IndexSegment indexSegment, List<AggregationInfo> aggregationInfoList,
+      GroupBy groupBy, Operator projectionOperator) {
+    super(indexSegment, aggregationInfoList, groupBy, projectionOperator);
+    _groupKeyBitSize = new int[_numGroupByColumns];
+    int totalBitSet = 0;
+    for (int i = 0; i < _numGroupByColumns; i++) {
+      _groupKeyBitSize[i] = BitHacks.findLogBase2(_dictionaries[i].length()) + 1;
+      totalBitSet += _groupKeyBitSize[i];
+    }
+    if (totalBitSet > 64) {
+      throw new IllegalArgumentException("Too many columns for an efficient group by");
+    }
+    _stringArray = new String[_numGroupByColumns];
+    _groupIdForGroupKey.defaultReturnValue(-1);
+
+    _multiValueEntries = new int[_numGroupByColumns][];
+    for (int i = 0; i < _numGroupByColumns; ++i) {
+      if (!_isSingleValueGroupByColumn[i]) {
+        _multiValueEntries[i] = new int[_groupByBlocks[i].getMetadata().getMaxNumberOfMultiValues()];
+      }
+    }
+    if (_isGroupByColumnsContainMultiValueColumn) {
+      _denseGroupKeyGenerator = null;
+    } else {
+      _denseGroupKeyGenerator = DenseGroupKeyGenerator.create(_dictionaries, _docIdBatchIterator.getMaxBatchSize());
+    }
+  }
+
+  @Override
+  protected void getGroupIds(int[] docIds, int startPos, int length, int[] outGroupIds) {
+    if (_denseGroupKeyGenerator != null) {
+      _denseGroupKeyGenerator.getGroupIds(_groupByBlockValSets, docIds, startPos, length, outGroupIds);
+      // The generator assigns the group ids in the same order, only make room for the new groups
+      while (getNumGroups() < _denseGroupKeyGenerator.getNumGroups()) {
+        newGroupId();
+      }
+      return;
+    }
+    Arrays.fill(_batchGroupKeys, 0, length, 0L);
+    for (int i = 0; i < _numGroupByColumns; ++i) {
+      _groupByBlockValSets[i].getDictionaryIds(docIds, startPos, length, _dictionaryIds, 0);
+      final int groupKeyBitSize = _groupKeyBitSize[i];
+      for (int j = 0; j < length; ++j) {
+        _batchGroupKeys[j] = (_batchGroupKeys[j] << groupKeyBitSize) | _dictionaryIds[j];
+      }
+    }
+    for (int j = 0; j < length; ++j) {
+      outGroupIds[j] = getGroupIdForGroupKey(_batchGroupKeys[j]);
+    }
+  }
+
+  @Override
+  protected void getGroupIds(int docId, IntArrayList outGroupIds) {
+    _docGroupKeys.clear();
+    _docGroupKeys.add(0L);
+    for (int i = 0; i < _numGroupByColumns; ++i) {
+      final int groupKeyBitSize = _groupKeyBitSize[i];
+      if (_isSingleValueGroupByColumn[i]) {
+        BlockSingleValIterator blockValIterator = (BlockSingleValIterator) _groupByBlockValIterators[i];
+        blockValIterator.skipTo(docId);
+        final int dictId = blockValIterator.nextIntVal();
+        for (int j = 0; j < _docGroupKeys.size(); ++j) {
+          _docGroupKeys.set(j, (_docGroupKeys.getLong(j) << groupKeyBitSize) | dictId);
+        }
+      } else {
+        BlockMultiValIterator blockValIterator = (BlockMultiValIterator) _groupByBlockValIterators[i];
+        blockValIterator.skipTo(docId);
+        final int[] entries = _multiValueEntries[i];
+        final int numEntries = blockValIterator.nextIntVal(entries);
+        final int originSize = _docGroupKeys.size();
+        for (int j = 1; j < numEntries; ++j) {
+          for (int k = 0; k < originSize; ++k) {
+            _docGroupKeys.add(_docGroupKeys.getLong(k));
+          }
+        }
+        for (int j = 0; j < numEntries; ++j) {
+          for (int k = 0; k < originSize; ++k) {
+            final int index = j * originSize + k;
+            _docGroupKeys.set(index, (_docGroupKeys.getLong(index) << groupKeyBitSize) | entries[j]);
+          }
+        }
+      }
+    }
+    for (int j = 0; j < _docGroupKeys.size(); ++j) {
+      outGroupIds.add(getGroupIdForGroupKey(_docGroupKeys.getLong(j)));
+    }
+  }
+
+  private int getGroupIdForGroupKey(long groupKey) {
+    int groupId = _groupIdForGroupKey.get(groupKey);
+    if (groupId == -1) {
+      groupId = newGroupId();
+      _groupIdForGroupKey.put(groupKey, groupId);
+      _groupKeys.add(groupKey);
+    }
+    return groupId;
+  }
+
+  @Override
+  protected String getGroupKey(int groupId) {
+    if (_denseGroupKeyGenerator != null) {
+      _denseGroupKeyGenerator.getGroupKeyParts(groupId, _stringArray);
+      return joinGroupKeyParts(_stringArray);
+    }
+    long key = _groupKeys.getLong(groupId);
+    for (int i = _numGroupByColumns - 1; i >= 0; i--) {
+      final long number = key & (-1L >>> (64 - _groupKeyBitSize[i]));
+      _stringArray[i] = _dictionaries[i].get((int) number).toString();
+      key >>>= _groupKeyBitSize[i];
+    }
+    return joinGroupKeyParts(_stringArray);
+  }
+}
@@ -0,0 +1,323 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.query;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.common.request.GroupBy;
+import com.linkedin.pinot.core.block.query.IntermediateResultsBlock;
+import com.linkedin.pinot.core.block.query.ProjectionBlock;
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockDocIdIterator;
+import com.linkedin.pinot.core.common.BlockId;
+import com.linkedin.pinot.core.common.BlockValIterator;
+import com.linkedin.pinot.core.common.BlockValSet;
+import com.linkedin.pinot.core.common.Constants;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.DocIdBatchIterator;
+import com.linkedin.pinot.core.operator.DocIdSetBlock;
+import com.linkedin.pinot.core.operator.MProjectionOperator;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionFactory;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionUtils;
+import com.linkedin.pinot.core.query.aggregation.function.CountAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.groupby.DenseGroupByAccumulator;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupByConstants;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+
+
+/**
+ * Applies all the AggregationInfos of a GroupBy query to a given IndexSegment in a single pass.
+ * Unlike MAggregationGroupByOperator, which drives one AggregationFunctionGroupByOperator per aggregation
+ * function, the group of a doc is computed only once and all the aggregation functions are updated from it.
+ *
+ * Subclasses map each doc to a group id, ie a dense int in [0, number of groups) assigned through newGroupId()
+ * the first time the group is seen, and decode group ids back to group keys. Partial results are indexed by
+ * group id, either in the primitive arrays of a DenseGroupByAccumulator when the function supports it, or in
+ * an array of boxed partial results otherwise.
+ *
+ * nextBlock() will return an IntermediateResultBlock for the given IndexSegment.
+ */
+public abstract class SinglePassAggregationGroupByOperator implements Operator {
+  private static final int INITIAL_GROUP_CAPACITY = 1024;
+
+  private final IndexSegment _indexSegment;
+  private final List<AggregationInfo> _aggregationInfoList;
+  private final MProjectionOperator _projectionOperator;
+
+  protected final GroupBy _groupBy;
+  protected final int _numGroupByColumns;
+  protected final Block[] _groupByBlocks;
+  protected final Dictionary[] _dictionaries;
+  protected final boolean[] _isSingleValueGroupByColumn;
+  protected boolean _isGroupByColumnsContainMultiValueColumn = false;
+  // Value sets and iterators of the group by columns for the current projection block
+  protected final BlockValSet[] _groupByBlockValSets;
+  protected final BlockValIterator[] _groupByBlockValIterators;
+
+  private final AggregationFunction[] _aggregationFunctions;
+  private final Block[][] _aggregationFunctionBlocks;
+  private final DenseGroupByAccumulator[] _accumulators;
+  private final Serializable[][] _aggregationResults;
+  private int _numGroups = 0;
+  private int _groupCapacity = INITIAL_GROUP_CAPACITY;
+
+  // Buffers used to aggregate a batch of docIds at once when all the group by columns are single value
+  protected final DocIdBatchIterator _docIdBatchIterator = new DocIdBatchIterator();
+  private final int[] _groupIds = new int[_docIdBatchIterator.getMaxBatchSize()];
+  private final int[] _valueGroupIds = new int[_docIdBatchIterator.getMaxBatchSize()];
+  private final int[] _valueDictionaryIds = new int[_docIdBatchIterator.getMaxBatchSize()];
+  private final double[] _values = new double[_docIdBatchIterator.getMaxBatchSize()];
+  private final IntArrayList _docGroupIds = new IntArrayList();
+
+  public SinglePassAggregationGroupByOperator(IndexSegment indexSegment, List<AggregationInfo> aggregationInfoList,
+      GroupBy groupBy, Operator projectionOperator) {
+    _indexSegment = indexSegment;
+    _aggregationInfoList = aggregationInfoList;
+    _groupBy = groupBy;
+    _projectionOperator = (MProjectionOperator) projectionOperator;
+
+    _numGroupByColumns = _groupBy.getColumnsSize();
+    _groupByBlocks = new Block[_numGroupByColumns];
+    _dictionaries = new Dictionary[_numGroupByColumns];
+    _isSingleValueGroupByColumn = new boolean[_numGroupByColumns];
+    for (int i = 0; i < _numGroupByColumns; ++i) {
+      _groupByBlocks[i] = _projectionOperator.getDataSource(_groupBy.getColumns().get(i)).nextBlock(new BlockId(0));
+      _dictionaries[i] = _groupByBlocks[i].getMetadata().getDictionary();
+      _isSingleValueGroupByColumn[i] = _groupByBlocks[i].getMetadata().isSingleValue();
+      if (!_isSingleValueGroupByColumn[i]) {
+        _isGroupByColumnsContainMultiValueColumn = true;
+      }
+    }
+    _groupByBlockValSets = new BlockValSet[_numGroupByColumns];
+    _groupByBlockValIterators = new BlockValIterator[_numGroupByColumns];
+
+    final int numAggregationFunctions = _aggregationInfoList.size();
+    _aggregationFunctions = new AggregationFunction[numAggregationFunctions];
+    _aggregationFunctionBlocks = new Block[numAggregationFunctions][];
+    _accumulators = new DenseGroupByAccumulator[numAggregationFunctions];
+    _aggregationResults = new Serializable[numAggregationFunctions][];
+    for (int i = 0; i < numAggregationFunctions; ++i) {
+      AggregationInfo aggregationInfo = _aggregationInfoList.get(i);
+      _aggregationFunctions[i] =
+          AggregationFunctionFactory.get(aggregationInfo,
+              AggregationFunctionUtils.isAggregationFunctionWithDictionary(aggregationInfo, _indexSegment));
+      String[] aggregationColumns;
+      if (_aggregationFunctions[i] instanceof CountAggregationFunction) {
+        aggregationColumns = new String[0];
+      } else {
+        aggregationColumns = aggregationInfo.getAggregationParams().get("column").trim().split(",");
+      }
+      _aggregationFunctionBlocks[i] = new Block[aggregationColumns.length];
+      for (int j = 0; j < aggregationColumns.length; ++j) {
+        _aggregationFunctionBlocks[i][j] =
+            _projectionOperator.getDataSource(aggregationColumns[j]).nextBlock(new BlockId(0));
+      }
+      // Multi value group by columns put a doc in several groups, which is only handled doc by doc
+      if (!_isGroupByColumnsContainMultiValueColumn) {
+        _accumulators[i] = DenseGroupByAccumulator.create(_aggregationFunctions[i], _groupCapacity);
+      }
+      if (_accumulators[i] == null) {
+        _aggregationResults[i] = new Serializable[_groupCapacity];
+      }
+    }
+  }
+
+  /**
+   * Fills outGroupIds with the group ids of the docIds in [startPos, startPos + length). Only called when all
+   * the group by columns are single value, _groupByBlockValSets being set for the current projection block.
+   */
+  protected abstract void getGroupIds(int[] docIds, int startPos, int length, int[] outGroupIds);
+
+  /**
+   * Adds the group ids of the given docId to outGroupIds, a doc belonging to one group per combination of the
+   * values of its multi value group by columns. _groupByBlockValIterators are set for the current projection block.
+   */
+  protected abstract void getGroupIds(int docId, IntArrayList outGroupIds);
+
+  /**
+   * Decodes the group key of a group id previously returned by getGroupIds.
+   */
+  protected abstract String getGroupKey(int groupId);
+
+  /**
+   * Assigns the next group id, making room for its partial results.
+   */
+  protected int newGroupId() {
+    if (_numGroups == _groupCapacity) {
+      _groupCapacity *= 2;
+      for (int i = 0; i < _aggregationFunctions.length; ++i) {
+        if (_accumulators[i] != null) {
+          _accumulators[i].ensureCapacity(_groupCapacity);
+        } else {
+          _aggregationResults[i] = Arrays.copyOf(_aggregationResults[i], _groupCapacity);
+        }
+      }
+    }
+    return _numGroups++;
+  }
+
+  protected int getNumGroups() {
+    return _numGroups;
+  }
+
+  @Override
+  public boolean open() {
+    _projectionOperator.open();
+    return true;
+  }
+
+  @Override
+  public Block nextBlock() {
+    final long startTime = System.currentTimeMillis();
+    long numDocsScanned = 0;
+    ProjectionBlock block;
+    while ((block = (ProjectionBlock) _projectionOperator.nextBlock()) != null) {
+      DocIdSetBlock docIdSetBlock = (DocIdSetBlock) block.getDocIdSetBlock();
+      for (int i = 0; i < _numGroupByColumns; ++i) {
+        _groupByBlockValSets[i] = block.getBlock(_groupBy.getColumns().get(i)).getBlockValueSet();
+      }
+      if (_isGroupByColumnsContainMultiValueColumn) {
+        aggregateMultiValueGroupBy(docIdSetBlock);
+      } else {
+        aggregateSingleValueGroupBy(docIdSetBlock);
+      }
+      numDocsScanned += docIdSetBlock.getSearchableLength();
+    }
+
+    final IntermediateResultsBlock resultBlock =
+        new IntermediateResultsBlock(AggregationFunctionFactory.getAggregationFunction(_aggregationInfoList),
+            getAggregationGroupByResults(), true);
+    resultBlock.setNumDocsScanned(numDocsScanned);
+    resultBlock.setTotalDocs(_indexSegment.getTotalDocs());
+    resultBlock.setTimeUsedMs(System.currentTimeMillis() - startTime);
+    return resultBlock;
+  }
+
+  /**
+   * Computes the group ids of a whole batch of docIds once, then updates every aggregation function for the batch.
+   */
+  private void aggregateSingleValueGroupBy(DocIdSetBlock docIdSetBlock) {
+    _docIdBatchIterator.init(docIdSetBlock);
+    while (_docIdBatchIterator.next()) {
+      final int[] docIds = _docIdBatchIterator.getDocIds();
+      final int startPos = _docIdBatchIterator.getBatchStartPos();
+      final int batchSize = _docIdBatchIterator.getBatchSize();
+      getGroupIds(docIds, startPos, batchSize, _groupIds);
+
+      for (int i = 0; i < _aggregationFunctions.length; ++i) {
+        final DenseGroupByAccumulator accumulator = _accumulators[i];
+        if (accumulator == null) {
+          final AggregationFunction aggregationFunction = _aggregationFunctions[i];
+          final Serializable[] aggregationResults = _aggregationResults[i];
+          final Block[] aggregationFunctionBlocks = _aggregationFunctionBlocks[i];
+          for (int j = 0; j < batchSize; ++j) {
+            final int groupId = _groupIds[j];
+            aggregationResults[groupId] =
+                aggregationFunction.aggregate(aggregationResults[groupId], docIds[startPos + j],
+                    aggregationFunctionBlocks);
+          }
+        } else if (!accumulator.needsValues()) {
+          accumulator.aggregate(_groupIds, null, batchSize);
+        } else {
+          // Drop the docs without value, keeping group ids and dictionary ids aligned
+          final Block valueBlock = _aggregationFunctionBlocks[i][0];
+          valueBlock.getBlockValueSet().getDictionaryIds(docIds, startPos, batchSize, _valueDictionaryIds, 0);
+          int numValues = 0;
+          for (int j = 0; j < batchSize; ++j) {
+            final int dictionaryId = _valueDictionaryIds[j];
+            if (dictionaryId != Dictionary.NULL_VALUE_INDEX) {
+              _valueDictionaryIds[numValues] = dictionaryId;
+              _valueGroupIds[numValues++] = _groupIds[j];
+            }
+          }
+          valueBlock.getMetadata().getDictionary().readDoubleValues(_valueDictionaryIds, 0, numValues, _values, 0);
+          accumulator.aggregate(_valueGroupIds, _values, numValues);
+        }
+      }
+    }
+  }
+
+  private void aggregateMultiValueGroupBy(DocIdSetBlock docIdSetBlock) {
+    for (int i = 0; i < _numGroupByColumns; ++i) {
+      _groupByBlockValIterators[i] = _groupByBlockValSets[i].iterator();
+    }
+    BlockDocIdIterator blockDocIdIterator = docIdSetBlock.getBlockDocIdSet().iterator();
+    int docId;
+    while ((docId = blockDocIdIterator.next()) != Constants.EOF) {
+      _docGroupIds.clear();
+      getGroupIds(docId, _docGroupIds);
+      for (int i = 0; i < _aggregationFunctions.length; ++i) {
+        final AggregationFunction aggregationFunction = _aggregationFunctions[i];
+        final Serializable[] aggregationResults = _aggregationResults[i];
+        for (int j = 0; j < _docGroupIds.size(); ++j) {
+          final int groupId = _docGroupIds.getInt(j);
+          aggregationResults[groupId] =
+              aggregationFunction.aggregate(aggregationResults[groupId], docId, _aggregationFunctionBlocks[i]);
+        }
+      }
+    }
+  }
+
+  private List<Map<String, Serializable>> getAggregationGroupByResults() {
+    final String[] groupKeys = new String[_numGroups];
+    for (int groupId = 0; groupId < _numGroups; ++groupId) {
+      groupKeys[groupId] = getGroupKey(groupId);
+    }
+    List<Map<String, Serializable>> aggregationGroupByResults = new ArrayList<Map<String, Serializable>>();
+    for (int i = 0; i < _aggregationFunctions.length; ++i) {
+      Map<String, Serializable> aggregationGroupByResult = new HashMap<String, Serializable>();
+      for (int groupId = 0; groupId < _numGroups; ++groupId) {
+        if (_accumulators[i] != null) {
+          aggregationGroupByResult.put(groupKeys[groupId], _accumulators[i].getResult(groupId));
+        } else {
+          aggregationGroupByResult.put(groupKeys[groupId], _aggregationResults[i][groupId]);
+        }
+      }
+      aggregationGroupByResults.add(aggregationGroupByResult);
+    }
+    return aggregationGroupByResults;
+  }
+
+  protected String joinGroupKeyParts(String[] groupKeyParts) {
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < (groupKeyParts.length - 1); i++) {
+      builder.append(groupKeyParts[i]).append(GroupByConstants.GroupByDelimiter.groupByMultiDelimeter.toString());
+    }
+    builder.append(groupKeyParts[groupKeyParts.length - 1]);
+    return builder.toString();
+  }
+
+  @Override
+  public Block nextBlock(BlockId BlockId) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean close() {
+    _projectionOperator.close();
+    return true;
+  }
+}
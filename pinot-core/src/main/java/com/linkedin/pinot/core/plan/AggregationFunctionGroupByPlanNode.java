@@ -24,14 +24,13 @@ import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.operator.MProjectionOperator;
 import com.linkedin.pinot.core.operator.UReplicatedProjectionOperator;
 import com.linkedin.pinot.core.operator.query.MDefaultAggregationFunctionGroupByOperator;
-import com.linkedin.pinot.core.operator.query.MAggregationFunctionGroupByWithDictionaryAndTrieTreeOperator;
-import com.linkedin.pinot.core.operator.query.MAggregationFunctionGroupByWithDictionaryOperator;
-import com.linkedin.pinot.core.plan.AggregationGroupByOperatorPlanNode.AggregationGroupByImplementationType;
 
 
 /**
  * AggregationFunctionGroupByPlanNode takes care of how to apply one aggregation
- * function and the groupby query to an IndexSegment.
+ * function and the groupby query to an IndexSegment without dictionary.
+ * With dictionaries, all the aggregation functions are computed by a single operator planned by
+ * AggregationGroupByOperatorPlanNode.
  *
  *
  */
@@ -40,54 +39,26 @@ public class AggregationFunctionGroupByPlanNode implements PlanNode {
   private static final Logger LOGGER = LoggerFactory.getLogger("QueryPlanLog");
   private final AggregationInfo _aggregationInfo;
   private final GroupBy _groupBy;
-  private final AggregationGroupByImplementationType _aggregationGroupByImplementationType;
   private final ProjectionPlanNode _projectionPlanNode;
   private final boolean _hasDictionary;
 
   public AggregationFunctionGroupByPlanNode(AggregationInfo aggregationInfo, GroupBy groupBy,
-      ProjectionPlanNode projectionPlanNode, AggregationGroupByImplementationType aggregationGroupByImplementationType, boolean hasDictionary) {
+      ProjectionPlanNode projectionPlanNode, boolean hasDictionary) {
     _aggregationInfo = aggregationInfo;
     _groupBy = groupBy;
-    _aggregationGroupByImplementationType = aggregationGroupByImplementationType;
     _projectionPlanNode = projectionPlanNode;
     _hasDictionary = hasDictionary;
   }
 
   @Override
   public Operator run() {
-    switch (_aggregationGroupByImplementationType) {
-      case NoDictionary:
-        return new MDefaultAggregationFunctionGroupByOperator(_aggregationInfo, _groupBy, new UReplicatedProjectionOperator(
-            (MProjectionOperator) _projectionPlanNode.run()), _hasDictionary);
-      case Dictionary:
-        return new MAggregationFunctionGroupByWithDictionaryOperator(_aggregationInfo, _groupBy,
-            new UReplicatedProjectionOperator((MProjectionOperator) _projectionPlanNode.run()), _hasDictionary);
-      case DictionaryAndTrie:
-        return new MAggregationFunctionGroupByWithDictionaryAndTrieTreeOperator(_aggregationInfo, _groupBy,
-            new UReplicatedProjectionOperator((MProjectionOperator) _projectionPlanNode.run()), _hasDictionary);
-      default:
-        throw new UnsupportedOperationException("Not Support AggregationGroupBy implmentation: "
-            + _aggregationGroupByImplementationType);
-    }
+    return new MDefaultAggregationFunctionGroupByOperator(_aggregationInfo, _groupBy, new UReplicatedProjectionOperator(
+        (MProjectionOperator) _projectionPlanNode.run()), _hasDictionary);
   }
 
   @Override
   public void showTree(String prefix) {
-    switch (_aggregationGroupByImplementationType) {
-      case NoDictionary:
-        LOGGER.debug(prefix + "Operator: MAggregationFunctionGroupByOperator");
-        break;
-      case Dictionary:
-        LOGGER.debug(prefix + "Operator: MAggregationFunctionGroupByWithDictionaryOperator");
-        break;
-      case DictionaryAndTrie:
-        LOGGER.debug(prefix + "Operator: MAggregationFunctionGroupByWithDictionaryAndTrieTreeOperator");
-        break;
-      default:
-        throw new UnsupportedOperationException("Not Support AggregationGroupBy implmentation: "
-            + _aggregationGroupByImplementationType);
-    }
-
+    LOGGER.debug(prefix + "Operator: MAggregationFunctionGroupByOperator");
     LOGGER.debug(prefix + "Argument 0: Aggregation  - " + _aggregationInfo);
     LOGGER.debug(prefix + "Argument 1: GroupBy  - " + _groupBy);
     LOGGER.debug(prefix + "Argument 2: Projection - Shown Above");
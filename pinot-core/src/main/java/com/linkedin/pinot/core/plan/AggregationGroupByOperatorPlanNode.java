@@ -30,12 +30,16 @@ import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.operator.query.AggregationFunctionGroupByOperator;
 import com.linkedin.pinot.core.operator.query.MAggregationGroupByOperator;
+import com.linkedin.pinot.core.operator.query.MAggregationGroupByWithDictionaryAndTrieTreeOperator;
+import com.linkedin.pinot.core.operator.query.MAggregationGroupByWithDictionaryOperator;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunctionUtils;
 
 
 /**
  * AggregationGroupByOperatorPlanNode takes care of how to apply multiple aggregation
  * functions and groupBy query to an IndexSegment.
+ * With dictionaries, all the aggregation functions are computed in a single pass over the
+ * segment, otherwise each aggregation function has its own AggregationFunctionGroupByOperator.
  *
  *
  */
@@ -56,11 +60,15 @@ public class AggregationGroupByOperatorPlanNode implements PlanNode {
     _projectionPlanNode =
         new ProjectionPlanNode(_indexSegment, getAggregationGroupByRelatedColumns(), new DocIdSetPlanNode(
             _indexSegment, _brokerRequest, 10000));
-    for (int i = 0; i < _brokerRequest.getAggregationsInfo().size(); ++i) {
-      AggregationInfo aggregationInfo = _brokerRequest.getAggregationsInfo().get(i);
-      boolean hasDictionary = AggregationFunctionUtils.isAggregationFunctionWithDictionary(aggregationInfo, _indexSegment);
-      _aggregationFunctionGroupByPlanNodes.add(new AggregationFunctionGroupByPlanNode(aggregationInfo, _brokerRequest.getGroupBy(), _projectionPlanNode,
-          _aggregationGroupByImplementationType, hasDictionary));
+    // with dictionaries all the aggregation functions are computed by a single operator
+    if (_aggregationGroupByImplementationType == AggregationGroupByImplementationType.NoDictionary) {
+      for (int i = 0; i < _brokerRequest.getAggregationsInfo().size(); ++i) {
+        AggregationInfo aggregationInfo = _brokerRequest.getAggregationsInfo().get(i);
+        boolean hasDictionary =
+            AggregationFunctionUtils.isAggregationFunctionWithDictionary(aggregationInfo, _indexSegment);
+        _aggregationFunctionGroupByPlanNodes.add(new AggregationFunctionGroupByPlanNode(aggregationInfo,
+            _brokerRequest.getGroupBy(), _projectionPlanNode, hasDictionary));
+      }
     }
   }
 
@@ -79,6 +87,16 @@ public class AggregationGroupByOperatorPlanNode implements PlanNode {
 
   @Override
   public Operator run() {
+    switch (_aggregationGroupByImplementationType) {
+      case Dictionary:
+        return new MAggregationGroupByWithDictionaryOperator(_indexSegment, _brokerRequest.getAggregationsInfo(),
+            _brokerRequest.getGroupBy(), _projectionPlanNode.run());
+      case DictionaryAndTrie:
+        return new MAggregationGroupByWithDictionaryAndTrieTreeOperator(_indexSegment,
+            _brokerRequest.getAggregationsInfo(), _brokerRequest.getGroupBy(), _projectionPlanNode.run());
+      default:
+        break;
+    }
     List<AggregationFunctionGroupByOperator> aggregationFunctionOperatorList =
         new ArrayList<AggregationFunctionGroupByOperator>();
     for (AggregationFunctionGroupByPlanNode aggregationFunctionGroupByPlanNode : _aggregationFunctionGroupByPlanNodes) {
@@ -92,12 +110,26 @@ public class AggregationGroupByOperatorPlanNode implements PlanNode {
   @Override
   public void showTree(String prefix) {
     LOGGER.debug(prefix + "Inner-Segment Plan Node :");
-    LOGGER.debug(prefix + "Operator: MAggregationGroupByOperator");
+    switch (_aggregationGroupByImplementationType) {
+      case Dictionary:
+        LOGGER.debug(prefix + "Operator: MAggregationGroupByWithDictionaryOperator");
+        break;
+      case DictionaryAndTrie:
+        LOGGER.debug(prefix + "Operator: MAggregationGroupByWithDictionaryAndTrieTreeOperator");
+        break;
+      default:
+        LOGGER.debug(prefix + "Operator: MAggregationGroupByOperator");
+        break;
+    }
     LOGGER.debug(prefix + "Argument 0: Projection - ");
     _projectionPlanNode.showTree(prefix + "    ");
     for (int i = 0; i < _brokerRequest.getAggregationsInfo().size(); ++i) {
-      LOGGER.debug(prefix + "Argument " + (i + 1) + ": AggregationGroupBy  - ");
-      _aggregationFunctionGroupByPlanNodes.get(i).showTree(prefix + "    ");
+      if (_aggregationGroupByImplementationType == AggregationGroupByImplementationType.NoDictionary) {
+        LOGGER.debug(prefix + "Argument " + (i + 1) + ": AggregationGroupBy  - ");
+        _aggregationFunctionGroupByPlanNodes.get(i).showTree(prefix + "    ");
+      } else {
+        LOGGER.debug(prefix + "Argument " + (i + 1) + ": Aggregation  - " + _brokerRequest.getAggregationsInfo().get(i));
+      }
     }
   }
 
@@ -42,12 +42,25 @@ public class CombinePlanNode implements PlanNode {
   private final BrokerRequest _brokerRequest;
   private final ExecutorService _executorService;
   private final long _timeOutMs;
+  private final int _maxThreadsPerQuery;
+  private final int _minSegmentsPerThread;
 
   public CombinePlanNode(BrokerRequest brokerRequest, ExecutorService executorService, long timeOutMs) {
+    this(brokerRequest, executorService, timeOutMs, MCombineOperator.DEFAULT_MAX_THREADS_PER_QUERY);
+  }
+
+  public CombinePlanNode(BrokerRequest brokerRequest, ExecutorService executorService, long timeOutMs,
+      int maxThreadsPerQuery) {
+    this(brokerRequest, executorService, timeOutMs, maxThreadsPerQuery, MCombineOperator.DEFAULT_MIN_SEGMENTS_PER_THREAD);
+  }
+
+  public CombinePlanNode(BrokerRequest brokerRequest, ExecutorService executorService, long timeOutMs,
+      int maxThreadsPerQuery, int minSegmentsPerThread) {
     _brokerRequest = brokerRequest;
     _executorService = executorService;
     _timeOutMs = timeOutMs;
-
+    _maxThreadsPerQuery = maxThreadsPerQuery;
+    _minSegmentsPerThread = minSegmentsPerThread;
   }
 
   public void addPlanNode(PlanNode planNode) {
@@ -93,7 +106,8 @@ public class CombinePlanNode implements PlanNode {
       }
     }
     MCombineOperator mCombineOperator =
-        new MCombineOperator(retOperators, _executorService, _timeOutMs, _brokerRequest);
+        new MCombineOperator(retOperators, _executorService, _timeOutMs, _brokerRequest, _maxThreadsPerQuery,
+            _minSegmentsPerThread);
     long end = System.currentTimeMillis();
     LOGGER.info("CombinePlanNode.run took: " + (end - start));
     return mCombineOperator;
@@ -105,7 +119,9 @@ public class CombinePlanNode implements PlanNode {
     LOGGER.debug(prefix + "Operator: MCombineOperator");
     LOGGER.debug(prefix + "Argument 0: BrokerRequest - " + _brokerRequest);
     LOGGER.debug(prefix + "Argument 1: isParallel - " + ((_executorService == null) ? false : true));
-    int i = 2;
+    LOGGER.debug(prefix + "Argument 2: maxThreadsPerQuery - " + _maxThreadsPerQuery);
+    LOGGER.debug(prefix + "Argument 3: minSegmentsPerThread - " + _minSegmentsPerThread);
+    int i = 4;
     for (PlanNode planNode : _planNodeList) {
       LOGGER.debug(prefix + "Argument " + (i++) + ":");
       planNode.showTree(prefix + "    ");
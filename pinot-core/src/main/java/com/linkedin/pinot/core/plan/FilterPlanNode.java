@@ -43,16 +43,24 @@ import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.operator.filter.AndOperator;
 import com.linkedin.pinot.core.operator.filter.BaseFilterOperator;
 import com.linkedin.pinot.core.operator.filter.BitmapBasedFilterOperator;
-import com.linkedin.pinot.core.operator.filter.InvertedIndexBasedFilterOperator;
 import com.linkedin.pinot.core.operator.filter.OrOperator;
 import com.linkedin.pinot.core.operator.filter.ScanBasedFilterOperator;
 import com.linkedin.pinot.core.operator.filter.SortedInvertedIndexBasedFilterOperator;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluatorProvider;
+import com.linkedin.pinot.core.operator.filter.predicate.RangePredicateEvaluator;
+import com.linkedin.pinot.core.segment.index.InvertedIndexReader;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 
 
 public class FilterPlanNode implements PlanNode {
   private static final Logger LOGGER = LoggerFactory.getLogger(FilterPlanNode.class);
+  // Above this number of matching dictionary ids, the cardinality of their bitmaps is estimated rather than summed
+  private static final int MAX_BITMAPS_TO_ESTIMATE = 100;
+
   private final BrokerRequest _brokerRequest;
   private final IndexSegment _segment;
+  private final Map<Operator, FilterCost> _filterCostMap = new HashMap<Operator, FilterCost>();
 
   public FilterPlanNode(IndexSegment segment, BrokerRequest brokerRequest) {
     _segment = segment;
@@ -86,19 +94,33 @@ public class FilterPlanNode implements PlanNode {
         operators.add(childOperator);
       }
       final FilterOperator filterType = filterQueryTree.getOperator();
+      boolean requiresScan = false;
+      int estimatedNumDocs;
       switch (filterType) {
         case AND:
           reorder(operators);
+          estimatedNumDocs = Integer.MAX_VALUE;
+          for (Operator operator : operators) {
+            requiresScan |= _filterCostMap.get(operator).requiresScan;
+            estimatedNumDocs = Math.min(estimatedNumDocs, _filterCostMap.get(operator).estimatedNumDocs);
+          }
           ret = new AndOperator(operators);
           break;
         case OR:
           reorder(operators);
+          long sumOfNumDocs = 0;
+          for (Operator operator : operators) {
+            requiresScan |= _filterCostMap.get(operator).requiresScan;
+            sumOfNumDocs += _filterCostMap.get(operator).estimatedNumDocs;
+          }
+          estimatedNumDocs = (int) Math.min(sumOfNumDocs, _segment.getSegmentMetadata().getTotalDocs());
           ret = new OrOperator(operators);
           break;
         default:
           throw new UnsupportedOperationException("Not support filter type - " + filterType
               + " with children operators");
       }
+      _filterCostMap.put(ret, new FilterCost(requiresScan, estimatedNumDocs));
     } else {
       final FilterOperator filterType = filterQueryTree.getOperator();
       final String column = filterQueryTree.getColumn();
@@ -130,6 +152,10 @@ public class FilterPlanNode implements PlanNode {
       DataSource ds;
       ds = _segment.getDataSource(column);
       DataSourceMetadata dataSourceMetadata = ds.getDataSourceMetadata();
+      if (ds.getDictionary() == null) {
+        // Predicates are evaluated on dictionary ids, see PredicateEvaluatorProvider
+        throw new UnsupportedOperationException("Unsupported filter on column without dictionary : " + column);
+      }
       BaseFilterOperator baseFilterOperator;
 
       if (dataSourceMetadata.hasInvertedIndex()) {
@@ -143,44 +169,103 @@ public class FilterPlanNode implements PlanNode {
       } else {
         baseFilterOperator = new ScanBasedFilterOperator(ds);
       }
+      // The matching dictionary ids are resolved once, for both the estimate and the filter operator
+      PredicateEvaluator evaluator = PredicateEvaluatorProvider.getPredicateFunctionFor(predicate, ds.getDictionary());
       baseFilterOperator.setPredicate(predicate);
+      baseFilterOperator.setPredicateEvaluator(evaluator);
+      _filterCostMap.put(baseFilterOperator, new FilterCost(baseFilterOperator instanceof ScanBasedFilterOperator,
+          estimateNumMatchingDocs(ds, evaluator, baseFilterOperator)));
       ret = baseFilterOperator;
     }
     return ret;
   }
 
   /**
-   * Re orders operators, puts Sorted -> Inverted and then Raw scan. TODO: With Inverted, we can further optimize based on cardinality
+   * Re orders operators by estimated number of matching documents, with the operators scanning the forward index
+   * last: the first operators drive the iteration of the AND, the others are only advanced to the documents matching
+   * the first ones.
    * @param operators
    */
   private void reorder(List<Operator> operators) {
-
-    final Map<Operator, Integer> operatorPriorityMap = new HashMap<Operator, Integer>();
-    for (Operator operator : operators) {
-      Integer priority = Integer.MAX_VALUE;
-      if (operator instanceof SortedInvertedIndexBasedFilterOperator) {
-        priority = 0;
-      } else if (operator instanceof AndOperator) {
-        priority = 1;
-      } else if (operator instanceof InvertedIndexBasedFilterOperator) {
-        priority = 2;
-      } else if (operator instanceof ScanBasedFilterOperator) {
-        priority = 3;
-      } else if (operator instanceof OrOperator) {
-        priority = 4;
-      }
-      operatorPriorityMap.put(operator, priority);
-    }
-
     Comparator<? super Operator> comparator = new Comparator<Operator>() {
       @Override
       public int compare(Operator o1, Operator o2) {
-        return Integer.compare(operatorPriorityMap.get(o1), operatorPriorityMap.get(o2));
+        FilterCost cost1 = _filterCostMap.get(o1);
+        FilterCost cost2 = _filterCostMap.get(o2);
+        if (cost1.requiresScan != cost2.requiresScan) {
+          return cost1.requiresScan ? 1 : -1;
+        }
+        return Integer.compare(cost1.estimatedNumDocs, cost2.estimatedNumDocs);
       }
     };
     Collections.sort(operators, comparator);
   }
 
+  /**
+   * Estimates the number of documents matching a leaf predicate: exactly from the document ranges of sorted columns,
+   * from the bitmap cardinalities of the matching dictionary ids for columns with an inverted index, and assuming
+   * uniformly distributed values otherwise.
+   */
+  private int estimateNumMatchingDocs(DataSource dataSource, PredicateEvaluator evaluator,
+      BaseFilterOperator filterOperator) {
+    final int totalDocs = _segment.getSegmentMetadata().getTotalDocs();
+    final Dictionary dictionary = dataSource.getDictionary();
+    if (dictionary == null || dictionary.length() == 0) {
+      return totalDocs;
+    }
+    final int[] dictionaryIds;
+    final int numMatchingDictIds;
+    if (evaluator instanceof RangePredicateEvaluator) {
+      dictionaryIds = null;
+      numMatchingDictIds =
+          Math.max(0, ((RangePredicateEvaluator) evaluator).getEndDictionaryId()
+              - ((RangePredicateEvaluator) evaluator).getStartDictionaryId() + 1);
+    } else {
+      dictionaryIds = evaluator.getDictionaryIds();
+      numMatchingDictIds = dictionaryIds.length;
+    }
+    if (numMatchingDictIds == 0) {
+      return 0;
+    }
+
+    final InvertedIndexReader invertedIndex = dataSource.getInvertedIndex();
+    if (filterOperator instanceof SortedInvertedIndexBasedFilterOperator) {
+      if (dictionaryIds == null) {
+        return invertedIndex.getMinMaxRangeFor(((RangePredicateEvaluator) evaluator).getEndDictionaryId())[1]
+            - invertedIndex.getMinMaxRangeFor(((RangePredicateEvaluator) evaluator).getStartDictionaryId())[0] + 1;
+      }
+      int numDocs = 0;
+      for (int dictionaryId : dictionaryIds) {
+        final int[] minMax = invertedIndex.getMinMaxRangeFor(dictionaryId);
+        numDocs += minMax[1] - minMax[0] + 1;
+      }
+      return numDocs;
+    }
+    if (filterOperator instanceof BitmapBasedFilterOperator && numMatchingDictIds <= MAX_BITMAPS_TO_ESTIMATE) {
+      final int startDictId = dictionaryIds == null ? ((RangePredicateEvaluator) evaluator).getStartDictionaryId() : 0;
+      long numDocs = 0;
+      for (int i = 0; i < numMatchingDictIds; i++) {
+        final int dictionaryId = dictionaryIds == null ? startDictId + i : dictionaryIds[i];
+        numDocs += invertedIndex.getImmutable(dictionaryId).getCardinality();
+      }
+      return (int) Math.min(numDocs, totalDocs);
+    }
+    return (int) ((long) totalDocs * numMatchingDictIds / dictionary.length());
+  }
+
+  /**
+   * Estimated number of documents matched by a filter operator, and whether it has to scan the forward index.
+   */
+  private static class FilterCost {
+    private final boolean requiresScan;
+    private final int estimatedNumDocs;
+
+    private FilterCost(boolean requiresScan, int estimatedNumDocs) {
+      this.requiresScan = requiresScan;
+      this.estimatedNumDocs = estimatedNumDocs;
+    }
+  }
+
   @Override
   public void showTree(String prefix) {
     final String treeStructure =
@@ -22,6 +22,7 @@ import java.util.concurrent.ExecutorService;
 
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.MCombineOperator;
 import com.linkedin.pinot.core.plan.AggregationGroupByOperatorPlanNode;
 import com.linkedin.pinot.core.plan.AggregationGroupByOperatorPlanNode.AggregationGroupByImplementationType;
 import com.linkedin.pinot.core.plan.AggregationPlanNode;
@@ -31,6 +32,7 @@ import com.linkedin.pinot.core.plan.InstanceResponsePlanNode;
 import com.linkedin.pinot.core.plan.Plan;
 import com.linkedin.pinot.core.plan.PlanNode;
 import com.linkedin.pinot.core.plan.SelectionPlanNode;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
 
 
 /**
@@ -68,8 +70,31 @@ public class InstancePlanMakerImplV0 implements PlanMaker {
   @Override
   public Plan makeInterSegmentPlan(List<IndexSegment> indexSegmentList, BrokerRequest brokerRequest,
       ExecutorService executorService, long timeOutMs) {
+    return makeInterSegmentPlan(indexSegmentList, brokerRequest, executorService, timeOutMs,
+        MCombineOperator.DEFAULT_MAX_THREADS_PER_QUERY);
+  }
+
+  @Override
+  public Plan makeInterSegmentPlan(List<IndexSegment> indexSegmentList, BrokerRequest brokerRequest,
+      ExecutorService executorService, long timeOutMs, int maxThreadsPerQuery, int minSegmentsPerThread,
+      SegmentResultCache segmentResultCache) {
+    // Segment results are not cached with this plan maker
+    return makeInterSegmentPlan(indexSegmentList, brokerRequest, executorService, timeOutMs, maxThreadsPerQuery,
+        minSegmentsPerThread);
+  }
+
+  @Override
+  public Plan makeInterSegmentPlan(List<IndexSegment> indexSegmentList, BrokerRequest brokerRequest,
+      ExecutorService executorService, long timeOutMs, int maxThreadsPerQuery) {
+    return makeInterSegmentPlan(indexSegmentList, brokerRequest, executorService, timeOutMs, maxThreadsPerQuery,
+        MCombineOperator.DEFAULT_MIN_SEGMENTS_PER_THREAD);
+  }
+
+  private Plan makeInterSegmentPlan(List<IndexSegment> indexSegmentList, BrokerRequest brokerRequest,
+      ExecutorService executorService, long timeOutMs, int maxThreadsPerQuery, int minSegmentsPerThread) {
     InstanceResponsePlanNode rootNode = new InstanceResponsePlanNode();
-    CombinePlanNode combinePlanNode = new CombinePlanNode(brokerRequest, executorService, timeOutMs);
+    CombinePlanNode combinePlanNode =
+        new CombinePlanNode(brokerRequest, executorService, timeOutMs, maxThreadsPerQuery, minSegmentsPerThread);
     rootNode.setPlanNode(combinePlanNode);
     for (IndexSegment indexSegment : indexSegmentList) {
       combinePlanNode.addPlanNode(makeInnerSegmentPlan(indexSegment, brokerRequest));
@@ -22,6 +22,7 @@ import java.util.concurrent.ExecutorService;
 
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.MCombineOperator;
 import com.linkedin.pinot.core.plan.AggregationGroupByOperatorPlanNode;
 import com.linkedin.pinot.core.plan.AggregationGroupByOperatorPlanNode.AggregationGroupByImplementationType;
 import com.linkedin.pinot.core.plan.AggregationPlanNode;
@@ -30,8 +31,10 @@ import com.linkedin.pinot.core.plan.GlobalPlanImplV0;
 import com.linkedin.pinot.core.plan.InstanceResponsePlanNode;
 import com.linkedin.pinot.core.plan.Plan;
 import com.linkedin.pinot.core.plan.PlanNode;
+import com.linkedin.pinot.core.plan.SegmentResultCachePlanNode;
 import com.linkedin.pinot.core.plan.SelectionPlanNode;
 import com.linkedin.pinot.core.query.aggregation.groupby.BitHacks;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
 import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
 
 
@@ -54,7 +57,8 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
       } else {
         // Aggregation GroupBy
         PlanNode aggregationGroupByPlanNode;
-        if (indexSegment instanceof IndexSegmentImpl) {
+        // Group keys of the dictionary based implementations are built from dictionary ids
+        if (indexSegment instanceof IndexSegmentImpl && hasDictionaryForGroupByColumns(indexSegment, brokerRequest)) {
           if (isGroupKeyFitForLong(indexSegment, brokerRequest)) {
             aggregationGroupByPlanNode =
                 new AggregationGroupByOperatorPlanNode(indexSegment, brokerRequest, AggregationGroupByImplementationType.Dictionary);
@@ -78,16 +82,49 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
   }
 
   @Override
-  public Plan makeInterSegmentPlan(List<IndexSegment> indexSegmentList, BrokerRequest brokerRequest, ExecutorService executorService, long timeOutMs) {
+  public Plan makeInterSegmentPlan(List<IndexSegment> indexSegmentList, BrokerRequest brokerRequest,
+      ExecutorService executorService, long timeOutMs) {
+    return makeInterSegmentPlan(indexSegmentList, brokerRequest, executorService, timeOutMs,
+        MCombineOperator.DEFAULT_MAX_THREADS_PER_QUERY);
+  }
+
+  @Override
+  public Plan makeInterSegmentPlan(List<IndexSegment> indexSegmentList, BrokerRequest brokerRequest,
+      ExecutorService executorService, long timeOutMs, int maxThreadsPerQuery) {
+    return makeInterSegmentPlan(indexSegmentList, brokerRequest, executorService, timeOutMs, maxThreadsPerQuery,
+        MCombineOperator.DEFAULT_MIN_SEGMENTS_PER_THREAD, null);
+  }
+
+  @Override
+  public Plan makeInterSegmentPlan(List<IndexSegment> indexSegmentList, BrokerRequest brokerRequest,
+      ExecutorService executorService, long timeOutMs, int maxThreadsPerQuery, int minSegmentsPerThread,
+      SegmentResultCache segmentResultCache) {
     final InstanceResponsePlanNode rootNode = new InstanceResponsePlanNode();
-    final CombinePlanNode combinePlanNode = new CombinePlanNode(brokerRequest, executorService, timeOutMs);
+    final CombinePlanNode combinePlanNode =
+        new CombinePlanNode(brokerRequest, executorService, timeOutMs, maxThreadsPerQuery, minSegmentsPerThread);
     rootNode.setPlanNode(combinePlanNode);
     for (final IndexSegment indexSegment : indexSegmentList) {
-      combinePlanNode.addPlanNode(makeInnerSegmentPlan(indexSegment, brokerRequest));
+      final SegmentResultCache.CacheKey cacheKey =
+          (segmentResultCache == null) ? null : segmentResultCache.getCacheKey(indexSegment, brokerRequest);
+      if (cacheKey == null) {
+        combinePlanNode.addPlanNode(makeInnerSegmentPlan(indexSegment, brokerRequest));
+      } else {
+        combinePlanNode.addPlanNode(
+            new SegmentResultCachePlanNode(this, indexSegment, brokerRequest, segmentResultCache, cacheKey));
+      }
     }
     return new GlobalPlanImplV0(rootNode);
   }
 
+  private boolean hasDictionaryForGroupByColumns(IndexSegment indexSegment, BrokerRequest brokerRequest) {
+    for (final String column : brokerRequest.getGroupBy().getColumns()) {
+      if (!indexSegment.getDataSource(column).getDataSourceMetadata().hasDictionary()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private boolean isGroupKeyFitForLong(IndexSegment indexSegment, BrokerRequest brokerRequest) {
     final IndexSegmentImpl columnarSegment = (IndexSegmentImpl) indexSegment;
     int totalBitSet = 0;
@@ -22,6 +22,7 @@ import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.plan.Plan;
 import com.linkedin.pinot.core.plan.PlanNode;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
 
 
 public interface PlanMaker {
@@ -30,4 +31,19 @@ public interface PlanMaker {
 
   public Plan makeInterSegmentPlan(List<IndexSegment> indexSegmentList, BrokerRequest brokerRequest,
       ExecutorService executorService, long timeOutMs);
+
+  /**
+   * Same as above, with at most maxThreadsPerQuery segments processed concurrently for the query.
+   */
+  public Plan makeInterSegmentPlan(List<IndexSegment> indexSegmentList, BrokerRequest brokerRequest,
+      ExecutorService executorService, long timeOutMs, int maxThreadsPerQuery);
+
+  /**
+   * Same as above, with at least minSegmentsPerThread segments per thread, and the results of the segments served
+   * from (and stored into) the given cache when possible. The cache may be null, and is only used by
+   * InstancePlanMakerImplV2, the other plan makers ignore it.
+   */
+  public Plan makeInterSegmentPlan(List<IndexSegment> indexSegmentList, BrokerRequest brokerRequest,
+      ExecutorService executorService, long timeOutMs, int maxThreadsPerQuery, int minSegmentsPerThread,
+      SegmentResultCache segmentResultCache);
 }
@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation;
+
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockValSet;
+import com.linkedin.pinot.core.operator.DocIdBatchIterator;
+import com.linkedin.pinot.core.operator.DocIdSetBlock;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+
+
+/**
+ * Reads the values of a single value, dictionary encoded column for the docIds of a DocIdSetBlock
+ * one batch at a time: the dictionary ids of a whole batch are fetched from the forward index, the
+ * null dictionary ids are dropped, and the remaining ids can then be resolved through the dictionary
+ * in one call.
+ *
+ * Not thread safe, aggregation functions hold one instance and reuse it for all the blocks of a segment.
+ */
+public class DictionaryValueBatchReader {
+  private final DocIdBatchIterator _docIdBatchIterator;
+  private final int[] _dictionaryIds;
+  private final double[] _doubleValues;
+
+  private BlockValSet _blockValSet;
+  private Dictionary _dictionary;
+  private int _numValues;
+
+  public DictionaryValueBatchReader() {
+    this(DocIdBatchIterator.DEFAULT_MAX_BATCH_SIZE);
+  }
+
+  public DictionaryValueBatchReader(int maxBatchSize) {
+    _docIdBatchIterator = new DocIdBatchIterator(maxBatchSize);
+    _dictionaryIds = new int[maxBatchSize];
+    _doubleValues = new double[maxBatchSize];
+  }
+
+  public DictionaryValueBatchReader init(Block docIdSetBlock, Block valueBlock) {
+    _docIdBatchIterator.init((DocIdSetBlock) docIdSetBlock);
+    _blockValSet = valueBlock.getBlockValueSet();
+    _dictionary = valueBlock.getMetadata().getDictionary();
+    _numValues = 0;
+    return this;
+  }
+
+  /**
+   * Reads the dictionary ids of the next batch of docIds.
+   *
+   * @return false once all the docIds of the block have been read
+   */
+  public boolean next() {
+    if (!_docIdBatchIterator.next()) {
+      _numValues = 0;
+      return false;
+    }
+    int batchSize = _docIdBatchIterator.getBatchSize();
+    _blockValSet.getDictionaryIds(_docIdBatchIterator.getDocIds(), _docIdBatchIterator.getBatchStartPos(), batchSize,
+        _dictionaryIds, 0);
+
+    int numValues = 0;
+    for (int i = 0; i < batchSize; i++) {
+      int dictionaryId = _dictionaryIds[i];
+      if (dictionaryId != Dictionary.NULL_VALUE_INDEX) {
+        _dictionaryIds[numValues++] = dictionaryId;
+      }
+    }
+    _numValues = numValues;
+    return true;
+  }
+
+  /**
+   * @return number of non null values in the current batch, which may be 0 even if {@link #next()} returned true
+   */
+  public int getNumValues() {
+    return _numValues;
+  }
+
+  public int[] getDictionaryIds() {
+    return _dictionaryIds;
+  }
+
+  /**
+   * Resolves the dictionary ids of the current batch into double values.
+   *
+   * @return array holding the {@link #getNumValues()} values of the current batch
+   */
+  public double[] readDoubleValues() {
+    _dictionary.readDoubleValues(_dictionaryIds, 0, _numValues, _doubleValues, 0);
+    return _doubleValues;
+  }
+}
@@ -15,6 +15,9 @@
  */
 package com.linkedin.pinot.core.query.aggregation.function;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.util.List;
@@ -27,12 +30,12 @@ import org.slf4j.LoggerFactory;
 import com.linkedin.pinot.common.Utils;
 import com.linkedin.pinot.common.data.FieldSpec.DataType;
 import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.common.utils.DataTableObjectSerDe;
 import com.linkedin.pinot.core.common.Block;
-import com.linkedin.pinot.core.common.BlockDocIdIterator;
 import com.linkedin.pinot.core.common.BlockSingleValIterator;
-import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.CombineLevel;
+import com.linkedin.pinot.core.query.aggregation.DictionaryValueBatchReader;
 import com.linkedin.pinot.core.query.aggregation.function.AvgAggregationFunction.AvgPair;
 import com.linkedin.pinot.core.query.utils.Pair;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
@@ -46,6 +49,7 @@ public class AvgAggregationFunction implements AggregationFunction<AvgPair, Doub
   private static final Logger LOGGER = LoggerFactory.getLogger(AvgAggregationFunction.class);
 
   private String _avgByColumn;
+  private transient DictionaryValueBatchReader _batchReader;
 
   public AvgAggregationFunction() {
 
@@ -61,23 +65,25 @@ public class AvgAggregationFunction implements AggregationFunction<AvgPair, Doub
   public AvgPair aggregate(Block docIdSetBlock, Block[] block) {
     double ret = 0;
     long cnt = 0;
-    int docId = 0;
-    Dictionary dictionaryReader = block[0].getMetadata().getDictionary();
-    BlockDocIdIterator docIdIterator = docIdSetBlock.getBlockDocIdSet().iterator();
-    BlockSingleValIterator blockValIterator = (BlockSingleValIterator) block[0].getBlockValueSet().iterator();
-
-    while ((docId = docIdIterator.next()) != Constants.EOF) {
-      if (blockValIterator.skipTo(docId)) {
-        int dictionaryIndex = blockValIterator.nextIntVal();
-        if (dictionaryIndex != Dictionary.NULL_VALUE_INDEX) {
-          ret += dictionaryReader.getDoubleValue(dictionaryIndex);
-          cnt++;
-        }
+    DictionaryValueBatchReader batchReader = getBatchReader().init(docIdSetBlock, block[0]);
+    while (batchReader.next()) {
+      int numValues = batchReader.getNumValues();
+      double[] values = batchReader.readDoubleValues();
+      for (int i = 0; i < numValues; i++) {
+        ret += values[i];
       }
+      cnt += numValues;
     }
     return new AvgPair(ret, cnt);
   }
 
+  private DictionaryValueBatchReader getBatchReader() {
+    if (_batchReader == null) {
+      _batchReader = new DictionaryValueBatchReader();
+    }
+    return _batchReader;
+  }
+
   @Override
   public AvgPair aggregate(AvgPair mergedResult, int docId, Block[] block) {
     BlockSingleValIterator blockValIterator = (BlockSingleValIterator) block[0].getBlockValueSet().iterator();
@@ -200,4 +206,39 @@ public class AvgAggregationFunction implements AggregationFunction<AvgPair, Doub
   public Serializable getDefaultValue() {
     return new AvgPair(0.0, 0L);
   }
+
+  /**
+   * Binary encoding of AvgPair in DataTables: the sum as a double followed by the count as a long.
+   * Registered through META-INF/services, so that it is known to the brokers as well as to the servers.
+   */
+  public static class AvgPairSerDe implements DataTableObjectSerDe.CustomSerDe {
+    public static final byte TYPE = DataTableObjectSerDe.FIRST_CUSTOM_TYPE;
+
+    // AvgPair is an inner class, deserialized pairs are attached to this instance
+    private final AvgAggregationFunction _function = new AvgAggregationFunction();
+
+    @Override
+    public byte getType() {
+      return TYPE;
+    }
+
+    @Override
+    public Class<?> getValueClass() {
+      return AvgPair.class;
+    }
+
+    @Override
+    public void serialize(Object value, DataOutputStream out) throws IOException {
+      AvgPair avgPair = (AvgPair) value;
+      out.writeDouble(avgPair.getFirst());
+      out.writeLong(avgPair.getSecond());
+    }
+
+    @Override
+    public Object deserialize(DataInputStream in) throws IOException {
+      double sum = in.readDouble();
+      long count = in.readLong();
+      return _function.new AvgPair(sum, count);
+    }
+  }
 }
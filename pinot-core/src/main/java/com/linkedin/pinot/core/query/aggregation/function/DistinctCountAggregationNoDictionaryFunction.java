@@ -33,6 +33,16 @@ public class DistinctCountAggregationNoDictionaryFunction extends DistinctCountA
     BlockDocIdIterator docIdIterator = docIdSetBlock.getBlockDocIdSet().iterator();
     BlockSingleValIterator blockValIterator = (BlockSingleValIterator) block[0].getBlockValueSet().iterator();
 
+    if (block[0].getMetadata().getDictionary() == null) {
+      final DataType dataType = block[0].getMetadata().getDataType();
+      while ((docId = docIdIterator.next()) != Constants.EOF) {
+        if (blockValIterator.skipTo(docId)) {
+          ret.add(hashRawValue(blockValIterator, dataType));
+        }
+      }
+      return ret;
+    }
+
     // Assume dictionary is always there for String data type.
     // If data type is String, we shouldn't hit here.
     while ((docId = docIdIterator.next()) != Constants.EOF) {
@@ -51,7 +61,9 @@ public class DistinctCountAggregationNoDictionaryFunction extends DistinctCountA
     }
     BlockSingleValIterator blockValIterator = (BlockSingleValIterator) block[0].getBlockValueSet().iterator();
     if (blockValIterator.skipTo(docId)) {
-      if (block[0].getMetadata().getDataType() == DataType.STRING) {
+      if (block[0].getMetadata().getDictionary() == null) {
+        mergedResult.add(hashRawValue(blockValIterator, block[0].getMetadata().getDataType()));
+      } else if (block[0].getMetadata().getDataType() == DataType.STRING) {
         mergedResult.add(block[0].getMetadata().getDictionary().get(blockValIterator.nextIntVal()).hashCode());
       } else {
         mergedResult.add(((Number) block[0].getMetadata().getDictionary().get(blockValIterator.nextIntVal())).intValue());
@@ -60,4 +72,22 @@ public class DistinctCountAggregationNoDictionaryFunction extends DistinctCountA
     return mergedResult;
   }
 
+  /**
+   * Hashes the next value of a column without dictionary (see RawSingleValueBlock) the same way as the boxed values
+   * of dictionaries, so that the results of segments with and without dictionary can be merged.
+   */
+  private static int hashRawValue(BlockSingleValIterator blockValIterator, DataType dataType) {
+    switch (dataType) {
+      case INT:
+        return blockValIterator.nextIntVal();
+      case LONG:
+        final long longValue = blockValIterator.nextLongVal();
+        return (int) (longValue ^ (longValue >>> 32));
+      case FLOAT:
+        return Float.floatToIntBits(blockValIterator.nextFloatVal());
+      default:
+        final long doubleBits = Double.doubleToLongBits(blockValIterator.nextDoubleVal());
+        return (int) (doubleBits ^ (doubleBits >>> 32));
+    }
+  }
 }
@@ -26,11 +26,10 @@ import org.json.JSONObject;
 import com.linkedin.pinot.common.data.FieldSpec.DataType;
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.core.common.Block;
-import com.linkedin.pinot.core.common.BlockDocIdIterator;
 import com.linkedin.pinot.core.common.BlockSingleValIterator;
-import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.CombineLevel;
+import com.linkedin.pinot.core.query.aggregation.DictionaryValueBatchReader;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +40,7 @@ public class MinAggregationFunction implements AggregationFunction<Double, Doubl
   private static final Logger LOGGER = LoggerFactory.getLogger(MinAggregationFunction.class);
 
   private String _minColumnName;
+  private transient DictionaryValueBatchReader _batchReader;
 
   public MinAggregationFunction() {
 
@@ -54,27 +54,26 @@ public class MinAggregationFunction implements AggregationFunction<Double, Doubl
   @Override
   public Double aggregate(Block docIdSetBlock, Block[] block) {
     double ret = DEFAULT_VALUE;
-    double tmp = 0;
-    int docId = 0;
-    Dictionary dictionaryReader = block[0].getMetadata().getDictionary();
-    BlockDocIdIterator docIdIterator = docIdSetBlock.getBlockDocIdSet().iterator();
-    BlockSingleValIterator blockValIterator = (BlockSingleValIterator) block[0].getBlockValueSet().iterator();
-
-    while ((docId = docIdIterator.next()) != Constants.EOF) {
-      if (blockValIterator.skipTo(docId)) {
-
-        int dictionaryIndex = blockValIterator.nextIntVal();
-        if (dictionaryIndex != Dictionary.NULL_VALUE_INDEX) {
-          tmp = dictionaryReader.getDoubleValue(dictionaryIndex);
-          if (tmp < ret) {
-            ret = tmp;
-          }
+    DictionaryValueBatchReader batchReader = getBatchReader().init(docIdSetBlock, block[0]);
+    while (batchReader.next()) {
+      int numValues = batchReader.getNumValues();
+      double[] values = batchReader.readDoubleValues();
+      for (int i = 0; i < numValues; i++) {
+        if (values[i] < ret) {
+          ret = values[i];
         }
       }
     }
     return ret;
   }
 
+  private DictionaryValueBatchReader getBatchReader() {
+    if (_batchReader == null) {
+      _batchReader = new DictionaryValueBatchReader();
+    }
+    return _batchReader;
+  }
+
   @Override
   public Double aggregate(Double mergedResult, int docId, Block[] block) {
     BlockSingleValIterator blockValIterator = (BlockSingleValIterator) block[0].getBlockValueSet().iterator();
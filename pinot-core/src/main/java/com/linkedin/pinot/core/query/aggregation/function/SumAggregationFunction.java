@@ -25,11 +25,10 @@ import org.json.JSONObject;
 import com.linkedin.pinot.common.data.FieldSpec.DataType;
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.core.common.Block;
-import com.linkedin.pinot.core.common.BlockDocIdIterator;
 import com.linkedin.pinot.core.common.BlockSingleValIterator;
-import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.CombineLevel;
+import com.linkedin.pinot.core.query.aggregation.DictionaryValueBatchReader;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,6 +42,7 @@ public class SumAggregationFunction implements AggregationFunction<Double, Doubl
   private static final Logger LOGGER = LoggerFactory.getLogger(SumAggregationFunction.class);
 
   private String _sumByColumn;
+  private transient DictionaryValueBatchReader _batchReader;
 
   public SumAggregationFunction() {
 
@@ -57,22 +57,24 @@ public class SumAggregationFunction implements AggregationFunction<Double, Doubl
   @Override
   public Double aggregate(Block docIdSetBlock, Block[] block) {
     double ret = 0;
-    int docId = 0;
-    Dictionary dictionaryReader = block[0].getMetadata().getDictionary();
-    BlockDocIdIterator docIdIterator = docIdSetBlock.getBlockDocIdSet().iterator();
-    BlockSingleValIterator blockValIterator = (BlockSingleValIterator) block[0].getBlockValueSet().iterator();
-
-    while ((docId = docIdIterator.next()) != Constants.EOF) {
-      if (blockValIterator.skipTo(docId)) {
-        int dictionaryIndex = blockValIterator.nextIntVal();
-        if (dictionaryIndex != Dictionary.NULL_VALUE_INDEX) {
-          ret += dictionaryReader.getDoubleValue(dictionaryIndex);
-        }
+    DictionaryValueBatchReader batchReader = getBatchReader().init(docIdSetBlock, block[0]);
+    while (batchReader.next()) {
+      int numValues = batchReader.getNumValues();
+      double[] values = batchReader.readDoubleValues();
+      for (int i = 0; i < numValues; i++) {
+        ret += values[i];
       }
     }
     return ret;
   }
 
+  private DictionaryValueBatchReader getBatchReader() {
+    if (_batchReader == null) {
+      _batchReader = new DictionaryValueBatchReader();
+    }
+    return _batchReader;
+  }
+
   @Override
   public Double aggregate(Double mergedResult, int docId, Block[] block) {
     BlockSingleValIterator blockValIterator = (BlockSingleValIterator) block[0].getBlockValueSet().iterator();
@@ -0,0 +1,251 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.groupby;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.AvgAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.CountAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.MaxAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.MinAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.SumAggregationFunction;
+
+
+/**
+ * Primitive array backed accumulator holding the partial results of one aggregation function for every
+ * group, indexed by dense group ids in [0, capacity). It replaces the per doc boxed partial results of the
+ * map based group by, the boxed results are only created by {@link #getResult(int)} once the segment is done.
+ * The capacity grows as group ids are assigned on the fly.
+ */
+public abstract class DenseGroupByAccumulator {
+
+  /**
+   * Returns the accumulator for the given dictionary based aggregation function, or null if the function
+   * has no primitive accumulator.
+   */
+  public static DenseGroupByAccumulator create(AggregationFunction aggregationFunction, int capacity) {
+    Class<?> functionClass = aggregationFunction.getClass();
+    if (functionClass == CountAggregationFunction.class) {
+      return new CountAccumulator(capacity);
+    }
+    if (functionClass == SumAggregationFunction.class) {
+      return new SumAccumulator(capacity);
+    }
+    if (functionClass == MinAggregationFunction.class) {
+      return new MinAccumulator(capacity);
+    }
+    if (functionClass == MaxAggregationFunction.class) {
+      return new MaxAccumulator(capacity);
+    }
+    if (functionClass == AvgAggregationFunction.class) {
+      return new AvgAccumulator((AvgAggregationFunction) aggregationFunction, capacity);
+    }
+    return null;
+  }
+
+  /**
+   * @return true if {@link #aggregate(int[], double[], int)} needs the values of the aggregation column,
+   *         false if only the group ids of the docs matter
+   */
+  public boolean needsValues() {
+    return true;
+  }
+
+  /**
+   * Aggregates length values into their groups.
+   *
+   * @param groupIds group id of each value
+   * @param values values of the aggregation column, null if {@link #needsValues()} is false
+   * @param length number of values
+   */
+  public abstract void aggregate(int[] groupIds, double[] values, int length);
+
+  /**
+   * @return partial result of a group, in the same form as the one produced by the aggregation function
+   */
+  public abstract Serializable getResult(int groupId);
+
+  /**
+   * Makes room for group ids up to capacity - 1.
+   */
+  public abstract void ensureCapacity(int capacity);
+
+  protected static int grownCapacity(int currentCapacity, int capacity) {
+    return Math.max(capacity, currentCapacity * 2);
+  }
+
+  private static class CountAccumulator extends DenseGroupByAccumulator {
+    private long[] _counts;
+
+    private CountAccumulator(int capacity) {
+      _counts = new long[capacity];
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+      if (capacity > _counts.length) {
+        _counts = Arrays.copyOf(_counts, grownCapacity(_counts.length, capacity));
+      }
+    }
+
+    @Override
+    public boolean needsValues() {
+      return false;
+    }
+
+    @Override
+    public void aggregate(int[] groupIds, double[] values, int length) {
+      for (int i = 0; i < length; i++) {
+        _counts[groupIds[i]]++;
+      }
+    }
+
+    @Override
+    public Serializable getResult(int groupId) {
+      return _counts[groupId];
+    }
+  }
+
+  private static class SumAccumulator extends DenseGroupByAccumulator {
+    private double[] _sums;
+
+    private SumAccumulator(int capacity) {
+      _sums = new double[capacity];
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+      if (capacity > _sums.length) {
+        _sums = Arrays.copyOf(_sums, grownCapacity(_sums.length, capacity));
+      }
+    }
+
+    @Override
+    public void aggregate(int[] groupIds, double[] values, int length) {
+      for (int i = 0; i < length; i++) {
+        _sums[groupIds[i]] += values[i];
+      }
+    }
+
+    @Override
+    public Serializable getResult(int groupId) {
+      return _sums[groupId];
+    }
+  }
+
+  private static class MinAccumulator extends DenseGroupByAccumulator {
+    private double[] _mins;
+
+    private MinAccumulator(int capacity) {
+      _mins = new double[capacity];
+      Arrays.fill(_mins, Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+      if (capacity > _mins.length) {
+        int currentCapacity = _mins.length;
+        _mins = Arrays.copyOf(_mins, grownCapacity(currentCapacity, capacity));
+        Arrays.fill(_mins, currentCapacity, _mins.length, Double.POSITIVE_INFINITY);
+      }
+    }
+
+    @Override
+    public void aggregate(int[] groupIds, double[] values, int length) {
+      for (int i = 0; i < length; i++) {
+        int groupId = groupIds[i];
+        if (values[i] < _mins[groupId]) {
+          _mins[groupId] = values[i];
+        }
+      }
+    }
+
+    @Override
+    public Serializable getResult(int groupId) {
+      return _mins[groupId];
+    }
+  }
+
+  private static class MaxAccumulator extends DenseGroupByAccumulator {
+    private double[] _maxs;
+
+    private MaxAccumulator(int capacity) {
+      _maxs = new double[capacity];
+      Arrays.fill(_maxs, Double.NEGATIVE_INFINITY);
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+      if (capacity > _maxs.length) {
+        int currentCapacity = _maxs.length;
+        _maxs = Arrays.copyOf(_maxs, grownCapacity(currentCapacity, capacity));
+        Arrays.fill(_maxs, currentCapacity, _maxs.length, Double.NEGATIVE_INFINITY);
+      }
+    }
+
+    @Override
+    public void aggregate(int[] groupIds, double[] values, int length) {
+      for (int i = 0; i < length; i++) {
+        int groupId = groupIds[i];
+        if (values[i] > _maxs[groupId]) {
+          _maxs[groupId] = values[i];
+        }
+      }
+    }
+
+    @Override
+    public Serializable getResult(int groupId) {
+      return _maxs[groupId];
+    }
+  }
+
+  private static class AvgAccumulator extends DenseGroupByAccumulator {
+    private final AvgAggregationFunction _avgAggregationFunction;
+    private double[] _sums;
+    private long[] _counts;
+
+    private AvgAccumulator(AvgAggregationFunction avgAggregationFunction, int capacity) {
+      _avgAggregationFunction = avgAggregationFunction;
+      _sums = new double[capacity];
+      _counts = new long[capacity];
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+      if (capacity > _sums.length) {
+        int newCapacity = grownCapacity(_sums.length, capacity);
+        _sums = Arrays.copyOf(_sums, newCapacity);
+        _counts = Arrays.copyOf(_counts, newCapacity);
+      }
+    }
+
+    @Override
+    public void aggregate(int[] groupIds, double[] values, int length) {
+      for (int i = 0; i < length; i++) {
+        int groupId = groupIds[i];
+        _sums[groupId] += values[i];
+        _counts[groupId]++;
+      }
+    }
+
+    @Override
+    public Serializable getResult(int groupId) {
+      return _avgAggregationFunction.new AvgPair(_sums[groupId], _counts[groupId]);
+    }
+  }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.groupby;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.Arrays;
+
+import com.linkedin.pinot.core.common.BlockValSet;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
+
+
+/**
+ * Maps docs to group ids through dense group keys, ie the mixed radix combination of the dictionary ids of the group
+ * by columns, when all of them are single value columns of an offline segment and the product of their cardinalities
+ * is at most GroupByConstants.MAX_DENSE_GROUP_KEY_SPACE.
+ *
+ * Group ids are assigned in [0, number of groups) in the order the groups are first seen, so that partial results can
+ * be indexed by group id. The table mapping dense group keys to group ids is split into pages which are only allocated
+ * once one of their group keys is seen, hence a query matching a few docs does not pay for the whole key space.
+ */
+public class DenseGroupKeyGenerator {
+  private static final int PAGE_SIZE_BITS = 12;
+  private static final int PAGE_SIZE = 1 << PAGE_SIZE_BITS;
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+  private final Dictionary[] _dictionaries;
+  private final int[] _cardinalities;
+  private final int[][] _groupIdPages;
+  // Dense group key of each group id
+  private final IntArrayList _groupKeys = new IntArrayList();
+
+  private final int[] _dictionaryIds;
+  private final int[] _denseGroupKeys;
+
+  /**
+   * Returns the generator for the given single value group by columns, or null if their group key space does not
+   * qualify for dense group keys.
+   *
+   * @param dictionaries dictionaries of the group by columns
+   * @param maxBatchSize maximum number of docIds passed to {@link #getGroupIds}
+   */
+  public static DenseGroupKeyGenerator create(Dictionary[] dictionaries, int maxBatchSize) {
+    // Realtime dictionaries keep growing while the segment is queried, so their cardinality cannot be relied upon
+    long numGroupKeys = 1;
+    for (Dictionary dictionary : dictionaries) {
+      if (!(dictionary instanceof ImmutableDictionaryReader)) {
+        return null;
+      }
+      numGroupKeys *= dictionary.length();
+      if (numGroupKeys > GroupByConstants.MAX_DENSE_GROUP_KEY_SPACE) {
+        return null;
+      }
+    }
+    return new DenseGroupKeyGenerator(dictionaries, (int) numGroupKeys, maxBatchSize);
+  }
+
+  private DenseGroupKeyGenerator(Dictionary[] dictionaries, int numGroupKeys, int maxBatchSize) {
+    _dictionaries = dictionaries;
+    _cardinalities = new int[dictionaries.length];
+    for (int i = 0; i < dictionaries.length; ++i) {
+      _cardinalities[i] = dictionaries[i].length();
+    }
+    _groupIdPages = new int[(numGroupKeys + PAGE_SIZE - 1) >>> PAGE_SIZE_BITS][];
+    _dictionaryIds = new int[maxBatchSize];
+    _denseGroupKeys = new int[maxBatchSize];
+  }
+
+  /**
+   * Fills outGroupIds with the group ids of the docIds in [startPos, startPos + length).
+   *
+   * @param groupByBlockValSets value sets of the group by columns for the current projection block
+   */
+  public void getGroupIds(BlockValSet[] groupByBlockValSets, int[] docIds, int startPos, int length,
+      int[] outGroupIds) {
+    Arrays.fill(_denseGroupKeys, 0, length, 0);
+    for (int i = 0; i < _cardinalities.length; ++i) {
+      groupByBlockValSets[i].getDictionaryIds(docIds, startPos, length, _dictionaryIds, 0);
+      final int cardinality = _cardinalities[i];
+      for (int j = 0; j < length; ++j) {
+        _denseGroupKeys[j] = _denseGroupKeys[j] * cardinality + _dictionaryIds[j];
+      }
+    }
+    for (int j = 0; j < length; ++j) {
+      final int denseGroupKey = _denseGroupKeys[j];
+      int[] page = _groupIdPages[denseGroupKey >>> PAGE_SIZE_BITS];
+      if (page == null) {
+        page = new int[PAGE_SIZE];
+        Arrays.fill(page, -1);
+        _groupIdPages[denseGroupKey >>> PAGE_SIZE_BITS] = page;
+      }
+      int groupId = page[denseGroupKey & PAGE_MASK];
+      if (groupId == -1) {
+        groupId = _groupKeys.size();
+        page[denseGroupKey & PAGE_MASK] = groupId;
+        _groupKeys.add(denseGroupKey);
+      }
+      outGroupIds[j] = groupId;
+    }
+  }
+
+  public int getNumGroups() {
+    return _groupKeys.size();
+  }
+
+  /**
+   * Decodes the values of the group by columns for a group id previously returned by {@link #getGroupIds}.
+   */
+  public void getGroupKeyParts(int groupId, String[] outGroupKeyParts) {
+    int key = _groupKeys.getInt(groupId);
+    for (int i = _cardinalities.length - 1; i >= 0; i--) {
+      outGroupKeyParts[i] = _dictionaries[i].get(key % _cardinalities[i]).toString();
+      key /= _cardinalities[i];
+    }
+  }
+}
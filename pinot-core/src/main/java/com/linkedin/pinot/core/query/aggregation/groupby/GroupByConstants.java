@@ -16,6 +16,9 @@
 package com.linkedin.pinot.core.query.aggregation.groupby;
 
 public class GroupByConstants {
+  // Maximum number of group keys for which group by operators index their results by a dense group key
+  public static final int MAX_DENSE_GROUP_KEY_SPACE = 1 << 20;
+
   public enum GroupByDelimiter {
     groupByMultiDelimeter("\t");
 
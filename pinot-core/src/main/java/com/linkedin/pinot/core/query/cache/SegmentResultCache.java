@@ -0,0 +1,370 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.cache;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.FilterOperator;
+import com.linkedin.pinot.common.request.FilterQuery;
+import com.linkedin.pinot.common.request.FilterQueryMap;
+import com.linkedin.pinot.common.utils.DataTableObjectSerDe;
+import com.linkedin.pinot.core.block.query.IntermediateResultsBlock;
+import com.linkedin.pinot.core.common.predicate.RangePredicate;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionFactory;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
+import com.linkedin.pinot.serde.SerDe;
+
+
+/**
+ * Cache of the per segment intermediate results of the aggregation (and aggregation group by) queries on immutable
+ * segments, keyed by the segment name, the segment CRC and the serialized normalized query.
+ *
+ * The query is normalized to the fields that affect the result of a segment: filter, aggregations and group by.
+ * Range predicates matching all the values of the segment (eg. the time range of a dashboard query on any segment but
+ * the newest ones) are replaced with an unbounded range, so queries that only differ in such ranges share the cached
+ * results of the segments they fully cover.
+ *
+ * Results are stored serialized, as the combine phase merges the segment results in place, and are bounded by their
+ * size in bytes, least recently used results are evicted first. Selection queries are not cached.
+ *
+ * Each segment has a generation, bumped when its results are invalidated, and captured in the keys. The results of
+ * queries still running on a segment when it is invalidated are not cached, so they never outlive the invalidation.
+ */
+public class SegmentResultCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SegmentResultCache.class);
+
+  // Estimated overhead of a cache entry on top of its key and serialized results
+  private static final int ENTRY_OVERHEAD_BYTES = 128;
+  private static final String UNBOUNDED_RANGE = "[*\t\t*]";
+
+  private final Cache<CacheKey, CachedResult> _cache;
+  // One entry per segment name, kept once the segment is removed so results of queries still running are not cached
+  private final ConcurrentHashMap<String, AtomicLong> _segmentGenerations = new ConcurrentHashMap<String, AtomicLong>();
+
+  public SegmentResultCache(long maxSizeBytes) {
+    _cache = CacheBuilder.newBuilder().maximumWeight(maxSizeBytes).weigher(new Weigher<CacheKey, CachedResult>() {
+      @Override
+      public int weigh(CacheKey key, CachedResult value) {
+        return key._segmentName.length() * 2 + key._requestBytes.capacity() + value._sizeBytes
+            + ENTRY_OVERHEAD_BYTES;
+      }
+    }).build();
+  }
+
+  /**
+   * Return the key under which the results of the query on the segment are cached, null if they must not be cached.
+   *
+   * @param indexSegment
+   * @param brokerRequest
+   * @return
+   */
+  public CacheKey getCacheKey(IndexSegment indexSegment, BrokerRequest brokerRequest) {
+    if (!(indexSegment instanceof IndexSegmentImpl) || !brokerRequest.isSetAggregationsInfo()
+        || brokerRequest.isEnableTrace()) {
+      return null;
+    }
+    String crc = indexSegment.getSegmentMetadata().getCrc();
+    if (crc == null) {
+      return null;
+    }
+
+    BrokerRequest normalizedRequest = new BrokerRequest();
+    normalizedRequest.setAggregationsInfo(brokerRequest.getAggregationsInfo());
+    normalizedRequest.setGroupBy(brokerRequest.getGroupBy());
+    if (brokerRequest.isSetFilterQuery()) {
+      FilterQuery filterQuery = brokerRequest.getFilterQuery().deepCopy();
+      FilterQueryMap filterSubQueryMap =
+          brokerRequest.isSetFilterSubQueryMap() ? brokerRequest.getFilterSubQueryMap().deepCopy() : null;
+      normalizeFilter((IndexSegmentImpl) indexSegment, filterQuery, filterSubQueryMap);
+      normalizedRequest.setFilterQuery(filterQuery);
+      normalizedRequest.setFilterSubQueryMap(filterSubQueryMap);
+    }
+    byte[] requestBytes = new SerDe(new TCompactProtocol.Factory()).serialize(normalizedRequest);
+    if (requestBytes == null) {
+      return null;
+    }
+    String segmentName = indexSegment.getSegmentName();
+    return new CacheKey(segmentName, crc, ByteBuffer.wrap(requestBytes), getSegmentGeneration(segmentName).get());
+  }
+
+  private AtomicLong getSegmentGeneration(String segmentName) {
+    AtomicLong generation = _segmentGenerations.get(segmentName);
+    if (generation == null) {
+      AtomicLong newGeneration = new AtomicLong();
+      generation = _segmentGenerations.putIfAbsent(segmentName, newGeneration);
+      if (generation == null) {
+        generation = newGeneration;
+      }
+    }
+    return generation;
+  }
+
+  /**
+   * Replace the range predicates of the AND-ed top level filters matching all the values of the segment with an
+   * unbounded range.
+   */
+  private static void normalizeFilter(IndexSegmentImpl indexSegment, FilterQuery filterQuery,
+      FilterQueryMap filterSubQueryMap) {
+    if (filterQuery.getOperator() == FilterOperator.RANGE) {
+      normalizeRangeFilter(indexSegment, filterQuery);
+    } else if (filterQuery.getOperator() == FilterOperator.AND && filterSubQueryMap != null
+        && filterQuery.getNestedFilterQueryIds() != null) {
+      for (Integer childId : filterQuery.getNestedFilterQueryIds()) {
+        FilterQuery childFilterQuery = filterSubQueryMap.getFilterQueryMap().get(childId);
+        if (childFilterQuery != null && childFilterQuery.getOperator() == FilterOperator.RANGE) {
+          normalizeRangeFilter(indexSegment, childFilterQuery);
+        }
+      }
+    }
+  }
+
+  private static void normalizeRangeFilter(IndexSegmentImpl indexSegment, FilterQuery filterQuery) {
+    try {
+      String column = filterQuery.getColumn();
+      ColumnMetadata columnMetadata =
+          ((SegmentMetadataImpl) indexSegment.getSegmentMetadata()).getColumnMetadataFor(column);
+      if (columnMetadata == null || !isNumeric(columnMetadata.getDataType())) {
+        return;
+      }
+      ImmutableDictionaryReader dictionary = indexSegment.getDictionaryFor(column);
+      if (dictionary == null || dictionary.length() == 0) {
+        return;
+      }
+      RangePredicate rangePredicate = new RangePredicate(column, filterQuery.getValue());
+      BigDecimal min = new BigDecimal(dictionary.toString(0));
+      BigDecimal max = new BigDecimal(dictionary.toString(dictionary.length() - 1));
+      if (coversLowerBoundary(rangePredicate, min) && coversUpperBoundary(rangePredicate, max)) {
+        filterQuery.setValue(Arrays.asList(UNBOUNDED_RANGE));
+      }
+    } catch (Exception e) {
+      // Keep the range as it is, the cached results are only shared with the same range
+      LOGGER.debug("Caught exception while normalizing range filter {}", filterQuery, e);
+    }
+  }
+
+  private static boolean coversLowerBoundary(RangePredicate rangePredicate, BigDecimal min) {
+    if (rangePredicate.getLowerBoundary().equals("*")) {
+      return true;
+    }
+    int compare = new BigDecimal(rangePredicate.getLowerBoundary()).compareTo(min);
+    return rangePredicate.includeLowerBoundary() ? compare <= 0 : compare < 0;
+  }
+
+  private static boolean coversUpperBoundary(RangePredicate rangePredicate, BigDecimal max) {
+    if (rangePredicate.getUpperBoundary().equals("*")) {
+      return true;
+    }
+    int compare = new BigDecimal(rangePredicate.getUpperBoundary()).compareTo(max);
+    return rangePredicate.includeUpperBoundary() ? compare >= 0 : compare > 0;
+  }
+
+  private static boolean isNumeric(DataType dataType) {
+    switch (dataType) {
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Return a new results block holding the cached results for the key, null if there is none.
+   *
+   * @param key
+   * @param brokerRequest Request the key was computed for
+   * @return
+   */
+  @SuppressWarnings("unchecked")
+  public IntermediateResultsBlock get(CacheKey key, BrokerRequest brokerRequest) {
+    CachedResult cachedResult = _cache.getIfPresent(key);
+    if (cachedResult == null) {
+      return null;
+    }
+    try {
+      IntermediateResultsBlock block;
+      if (cachedResult._isGroupBy) {
+        List<Map<String, Serializable>> groupByResults =
+            new ArrayList<Map<String, Serializable>>(cachedResult._results.length);
+        for (byte[] bytes : cachedResult._results) {
+          groupByResults.add((Map<String, Serializable>) DataTableObjectSerDe.deserialize(bytes));
+        }
+        block =
+            new IntermediateResultsBlock(AggregationFunctionFactory.getAggregationFunction(brokerRequest),
+                groupByResults, true);
+      } else {
+        List<Serializable> aggregationResults = new ArrayList<Serializable>(cachedResult._results.length);
+        for (byte[] bytes : cachedResult._results) {
+          aggregationResults.add((Serializable) DataTableObjectSerDe.deserialize(bytes));
+        }
+        block =
+            new IntermediateResultsBlock(AggregationFunctionFactory.getAggregationFunction(brokerRequest),
+                aggregationResults);
+      }
+      block.setNumDocsScanned(cachedResult._numDocsScanned);
+      block.setTotalDocs(cachedResult._totalDocs);
+      return block;
+    } catch (IOException e) {
+      LOGGER.warn("Caught exception while deserializing cached results of segment {}", key._segmentName, e);
+      _cache.invalidate(key);
+      return null;
+    }
+  }
+
+  /**
+   * Cache the results of the segment for the key. Blocks with exceptions, and blocks computed on a segment invalidated
+   * since the key was computed are not cached.
+   *
+   * @param key
+   * @param brokerRequest Request the key was computed for
+   * @param block
+   */
+  public void put(CacheKey key, BrokerRequest brokerRequest, IntermediateResultsBlock block) {
+    if (block.getExceptions() != null && !block.getExceptions().isEmpty()) {
+      return;
+    }
+    AtomicLong generation = getSegmentGeneration(key._segmentName);
+    if (generation.get() != key._generation) {
+      return;
+    }
+    boolean isGroupBy = brokerRequest.isSetGroupBy();
+    List<?> results;
+    if (isGroupBy) {
+      results = block.getAggregationGroupByOperatorResult();
+    } else {
+      results = block.getAggregationResult();
+    }
+    if (results == null) {
+      return;
+    }
+    try {
+      byte[][] serializedResults = new byte[results.size()][];
+      for (int i = 0; i < serializedResults.length; i++) {
+        serializedResults[i] = DataTableObjectSerDe.serialize(results.get(i));
+      }
+      CachedResult cachedResult =
+          new CachedResult(serializedResults, isGroupBy, block.getNumDocsScanned(), block.getTotalDocs());
+      _cache.put(key, cachedResult);
+      // The generation is bumped before the results of the segment are evicted, so results put concurrently with an
+      // invalidation are either evicted by it or here
+      if (generation.get() != key._generation) {
+        _cache.asMap().remove(key, cachedResult);
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Caught exception while serializing results of segment {}, not caching them", key._segmentName, e);
+    }
+  }
+
+  /**
+   * Evict all the cached results of the segment, called when the segment is unloaded or refreshed.
+   */
+  public void invalidateSegment(String segmentName) {
+    getSegmentGeneration(segmentName).incrementAndGet();
+    Iterator<CacheKey> iterator = _cache.asMap().keySet().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next()._segmentName.equals(segmentName)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  public long size() {
+    return _cache.size();
+  }
+
+  public CacheStats stats() {
+    return _cache.stats();
+  }
+
+  public static class CacheKey {
+    private final String _segmentName;
+    private final String _crc;
+    private final ByteBuffer _requestBytes;
+    private final long _generation;
+
+    private CacheKey(String segmentName, String crc, ByteBuffer requestBytes, long generation) {
+      _segmentName = segmentName;
+      _crc = crc;
+      _requestBytes = requestBytes;
+      _generation = generation;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * (31 * _segmentName.hashCode() + _crc.hashCode()) + _requestBytes.hashCode())
+          + (int) (_generation ^ (_generation >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof CacheKey)) {
+        return false;
+      }
+      CacheKey other = (CacheKey) obj;
+      return _segmentName.equals(other._segmentName) && _crc.equals(other._crc)
+          && _requestBytes.equals(other._requestBytes) && _generation == other._generation;
+    }
+  }
+
+  private static class CachedResult {
+    private final byte[][] _results;
+    private final boolean _isGroupBy;
+    private final long _numDocsScanned;
+    private final long _totalDocs;
+    private final int _sizeBytes;
+
+    private CachedResult(byte[][] results, boolean isGroupBy, long numDocsScanned, long totalDocs) {
+      _results = results;
+      _isGroupBy = isGroupBy;
+      _numDocsScanned = numDocsScanned;
+      _totalDocs = totalDocs;
+      int sizeBytes = 0;
+      for (byte[] result : results) {
+        sizeBytes += result.length;
+      }
+      _sizeBytes = sizeBytes;
+    }
+  }
+}
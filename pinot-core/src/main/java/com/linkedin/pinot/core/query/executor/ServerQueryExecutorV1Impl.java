@@ -114,12 +114,16 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
         return null;
       }
       long startPlanTime = System.nanoTime();
+      final TableDataManager tableDataManager =
+          _instanceDataManager.getTableDataManager(brokerRequest.getQuerySource().getTableName());
       final Plan globalQueryPlan = _planMaker.makeInterSegmentPlan(
           queryableSegmentDataManagerList,
           brokerRequest,
-          _instanceDataManager.getTableDataManager(brokerRequest.getQuerySource().getTableName())
-              .getExecutorService(),
-          getResourceTimeOut(instanceRequest.getQuery()));
+          tableDataManager.getExecutorService(),
+          getResourceTimeOut(instanceRequest.getQuery()),
+          tableDataManager.getMaxThreadsPerQuery(),
+          tableDataManager.getMinSegmentsPerThread(),
+          tableDataManager.getSegmentResultCache());
       long planTime = System.nanoTime() - startPlanTime;
       _serverMetrics.addPhaseTiming(brokerRequest, ServerQueryPhase.BUILD_QUERY_PLAN, planTime);
 
@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.pruner;
+
+import java.math.BigDecimal;
+
+import org.apache.commons.configuration.Configuration;
+
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
+import com.linkedin.pinot.core.common.predicate.RangePredicate;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.segment.index.ColumnBloomFilter;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+
+
+/**
+ * An implementation of SegmentPruner.
+ * Pruner will prune segment if the filter of the query cannot match any document, based on the min/max values and
+ * the bloom filters of the columns recorded in the segment metadata.
+ *
+ *
+ */
+public class ColumnValueSegmentPruner implements SegmentPruner {
+
+  private static final String IN_VALUES_SEPARATOR = "\t\t";
+  private static final String UNBOUNDED = "*";
+
+  @Override
+  public boolean prune(IndexSegment segment, BrokerRequest brokerRequest) {
+    if (brokerRequest.getFilterQuery() == null || !(segment instanceof IndexSegmentImpl)
+        || !(segment.getSegmentMetadata() instanceof SegmentMetadataImpl)) {
+      return false;
+    }
+    FilterQueryTree filterQueryTree = RequestUtils.generateFilterQueryTree(brokerRequest);
+    return filterQueryTree != null && !canMatch((IndexSegmentImpl) segment, filterQueryTree);
+  }
+
+  private boolean canMatch(IndexSegmentImpl segment, FilterQueryTree filterQueryTree) {
+    switch (filterQueryTree.getOperator()) {
+      case AND:
+        for (FilterQueryTree child : filterQueryTree.getChildren()) {
+          if (!canMatch(segment, child)) {
+            return false;
+          }
+        }
+        return true;
+      case OR:
+        for (FilterQueryTree child : filterQueryTree.getChildren()) {
+          if (canMatch(segment, child)) {
+            return true;
+          }
+        }
+        return false;
+      default:
+        break;
+    }
+
+    final String column = filterQueryTree.getColumn();
+    final ColumnMetadata columnMetadata =
+        ((SegmentMetadataImpl) segment.getSegmentMetadata()).getColumnMetadataFor(column);
+    if (columnMetadata == null || filterQueryTree.getValue() == null || filterQueryTree.getValue().isEmpty()) {
+      return true;
+    }
+    final String value = filterQueryTree.getValue().get(0);
+
+    switch (filterQueryTree.getOperator()) {
+      case EQUALITY:
+        return canContain(segment, column, columnMetadata, value);
+      case IN:
+        for (String inValue : value.split(IN_VALUES_SEPARATOR)) {
+          if (canContain(segment, column, columnMetadata, inValue)) {
+            return true;
+          }
+        }
+        return false;
+      case RANGE:
+        return canOverlap(columnMetadata, new RangePredicate(column, filterQueryTree.getValue()));
+      default:
+        return true;
+    }
+  }
+
+  private boolean canContain(IndexSegmentImpl segment, String column, ColumnMetadata columnMetadata, String value) {
+    final BigDecimal minValue = toBigDecimal(columnMetadata.getMinValue());
+    final BigDecimal maxValue = toBigDecimal(columnMetadata.getMaxValue());
+    final BigDecimal decimalValue = toBigDecimal(value);
+    if (minValue != null && maxValue != null && decimalValue != null
+        && (decimalValue.compareTo(minValue) < 0 || decimalValue.compareTo(maxValue) > 0)) {
+      return false;
+    }
+    final ColumnBloomFilter bloomFilter = segment.getBloomFilterFor(column);
+    return bloomFilter == null || bloomFilter.mightContain(columnMetadata.getDataType(), value);
+  }
+
+  private boolean canOverlap(ColumnMetadata columnMetadata, RangePredicate rangePredicate) {
+    final BigDecimal minValue = toBigDecimal(columnMetadata.getMinValue());
+    final BigDecimal maxValue = toBigDecimal(columnMetadata.getMaxValue());
+    if (minValue == null || maxValue == null) {
+      return true;
+    }
+    if (!rangePredicate.getLowerBoundary().equals(UNBOUNDED)) {
+      final BigDecimal lowerBoundary = toBigDecimal(rangePredicate.getLowerBoundary());
+      if (lowerBoundary != null) {
+        final int comparison = lowerBoundary.compareTo(maxValue);
+        if (comparison > 0 || (comparison == 0 && !rangePredicate.includeLowerBoundary())) {
+          return false;
+        }
+      }
+    }
+    if (!rangePredicate.getUpperBoundary().equals(UNBOUNDED)) {
+      final BigDecimal upperBoundary = toBigDecimal(rangePredicate.getUpperBoundary());
+      if (upperBoundary != null) {
+        final int comparison = upperBoundary.compareTo(minValue);
+        if (comparison < 0 || (comparison == 0 && !rangePredicate.includeUpperBoundary())) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static BigDecimal toBigDecimal(String value) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      return new BigDecimal(value.trim());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public void init(Configuration config) {
+
+  }
+
+  @Override
+  public String toString() {
+    return "ColumnValueSegmentPruner";
+  }
+}
@@ -58,6 +58,7 @@ import com.linkedin.pinot.core.realtime.impl.dictionary.LongMutableDictionary;
 import com.linkedin.pinot.core.realtime.impl.dictionary.StringMutableDictionary;
 import com.linkedin.pinot.core.segment.index.data.source.mv.block.MultiValueBlock;
 import com.linkedin.pinot.core.segment.index.data.source.sv.block.UnSortedSingleValueBlock;
+import com.linkedin.pinot.core.segment.index.data.source.sv.block.RawSingleValueBlock;
 import com.linkedin.pinot.core.segment.index.data.source.sv.block.SortedSingleValueBlock;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import com.linkedin.pinot.core.segment.index.readers.DoubleDictionary;
@@ -640,7 +641,7 @@ public class SelectionOperatorService {
             break;
         }
       } else if (blocks[j] instanceof UnSortedSingleValueBlock
-          || blocks[j] instanceof SortedSingleValueBlock) {
+          || blocks[j] instanceof SortedSingleValueBlock || blocks[j] instanceof RawSingleValueBlock) {
         if (blocks[j].getMetadata().hasDictionary()) {
           Dictionary dictionaryReader = blocks[j].getMetadata().getDictionary();
           BlockSingleValIterator bvIter = (BlockSingleValIterator) blocks[j].getBlockValueSet().iterator();
@@ -26,6 +26,7 @@ public class TrieNode {
   private List<Serializable> _aggregationResults = null;
   private Serializable _aggregationResult = null;
   private boolean _isLeaf = false;
+  private int _groupId = -1;
 
   public Int2ObjectOpenHashMap<TrieNode> getNextGroupedColumnValues() {
     return _nextGroupedColumnValues;
@@ -59,4 +60,12 @@ public class TrieNode {
     this._isLeaf = isLeaf;
   }
 
+  public int getGroupId() {
+    return _groupId;
+  }
+
+  public void setGroupId(int groupId) {
+    _groupId = groupId;
+  }
+
 }
@@ -0,0 +1,44 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.realtime;
+
+import java.util.List;
+
+import com.linkedin.pinot.core.realtime.impl.kafka.KafkaMessageDecoder;
+
+
+/**
+ * Stream provider able to hand out the messages of the stream before they are decoded, so that they can be decoded by
+ * several threads while a single thread indexes the rows in the order of the stream.
+ *
+ * @see com.linkedin.pinot.core.realtime.impl.PipelinedStreamConsumer
+ */
+public interface RawMessageStreamProvider extends StreamProvider {
+
+  /**
+   * Adds up to maxNumMessages undecoded messages of the stream to the list. Returns early, possibly without any
+   * message, when no message comes in for a while, so that the caller can check whether to keep consuming.
+   *
+   * @return false once the stream has no more message
+   */
+  public boolean fetchMessages(List<byte[]> messages, int maxNumMessages);
+
+  /**
+   * Creates a new decoder for the messages of the stream, the decoders are not shared between threads.
+   */
+  public KafkaMessageDecoder createDecoder() throws Exception;
+
+}
@@ -16,18 +16,43 @@
 package com.linkedin.pinot.core.realtime.converter;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec.FieldType;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.common.data.TimeFieldSpec;
 import com.linkedin.pinot.common.data.TimeGranularitySpec;
-import com.linkedin.pinot.core.data.readers.RecordReader;
+import com.linkedin.pinot.core.index.readerwriter.impl.FixedByteSingleColumnMultiValueReaderWriter;
+import com.linkedin.pinot.core.index.readerwriter.impl.FixedByteSingleColumnSingleValueReaderWriter;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentVersion;
 import com.linkedin.pinot.core.realtime.impl.RealtimeSegmentImpl;
+import com.linkedin.pinot.core.realtime.impl.dictionary.MutableDictionaryReader;
+import com.linkedin.pinot.core.segment.creator.ColumnIndexCreationInfo;
+import com.linkedin.pinot.core.segment.creator.ForwardIndexType;
+import com.linkedin.pinot.core.segment.creator.InvertedIndexType;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentColumnarIndexCreator;
 import com.linkedin.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
 
 
+/**
+ * Converts a realtime segment which is done consuming into an offline segment.
+ *
+ * The columns are converted one after the other straight from the realtime dictionaries and forward indexes, without
+ * going through rows: the statistics of a column are derived from its realtime dictionary and a single scan of its
+ * forward index, the values of the realtime dictionary are sorted once into the segment dictionary, and the realtime
+ * dictionary ids are then remapped to the segment dictionary ids while writing the forward and inverted indexes.
+ */
 public class RealtimeSegmentConverter {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RealtimeSegmentConverter.class);
 
   private RealtimeSegmentImpl realtimeSegmentImpl;
   private String outputPath;
@@ -35,6 +60,8 @@ public class RealtimeSegmentConverter {
   private String tableName;
   private String segmentName;
   private String sortedColumn;
+  private String realtimeTimeColumnName;
+  private List<String> noDictionaryColumns;
 
   public RealtimeSegmentConverter(RealtimeSegmentImpl realtimeSegment, String outputPath, Schema schema,
       String tableName, String segmentName, String sortedColumn) {
@@ -62,17 +89,18 @@ public class RealtimeSegmentConverter {
     newSchema.addSchema(newTimeSpec.getName(), newTimeSpec);
     this.dataSchema = newSchema;
     this.sortedColumn = sortedColumn;
+    // The realtime segment indexes the time values under the outgoing time column of the original schema
+    this.realtimeTimeColumnName = original.getOutGoingTimeColumnName();
   }
 
-  public void build() throws Exception {
-    // lets create a record reader
-    RecordReader reader;
+  /**
+   * Numeric single value columns stored without dictionary in the converted segment.
+   */
+  public void setNoDictionaryColumns(List<String> noDictionaryColumns) {
+    this.noDictionaryColumns = noDictionaryColumns;
+  }
 
-    if (sortedColumn == null) {
-      reader = new RealtimeSegmentRecordReader(realtimeSegmentImpl, dataSchema);
-    } else {
-      reader = new RealtimeSegmentRecordReader(realtimeSegmentImpl, dataSchema, sortedColumn);
-    }
+  public void build() throws Exception {
     SegmentGeneratorConfig genConfig = new SegmentGeneratorConfig(dataSchema);
     genConfig.setInputFilePath(null);
 
@@ -83,8 +111,184 @@ public class RealtimeSegmentConverter {
     genConfig.setTableName(tableName);
     genConfig.setIndexOutputDir(outputPath);
     genConfig.setSegmentName(segmentName);
+    if (noDictionaryColumns != null) {
+      genConfig.setNoDictionaryColumns(noDictionaryColumns);
+    }
     final SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
-    driver.init(genConfig, reader);
-    driver.build();
+    driver.init(genConfig, dataSchema);
+
+    final long start = System.currentTimeMillis();
+    final int totalDocs = realtimeSegmentImpl.getAggregateDocumentCount();
+    if (totalDocs == 0) {
+      throw new IllegalStateException("Cannot convert realtime segment " + segmentName + " without any document");
+    }
+    final int[] docIds = getDocIdsInSegmentOrder(totalDocs);
+
+    final Map<String, ColumnIndexCreationInfo> indexCreationInfoMap = new HashMap<String, ColumnIndexCreationInfo>();
+    for (FieldSpec spec : dataSchema.getAllFieldSpecs()) {
+      indexCreationInfoMap.put(spec.getName(),
+          buildIndexCreationInfo(spec, !driver.isNoDictionaryColumn(spec), docIds, totalDocs));
+    }
+    final long statsTime = System.currentTimeMillis();
+
+    final SegmentColumnarIndexCreator indexCreator = driver.initIndexCreator(indexCreationInfoMap, totalDocs);
+    for (FieldSpec spec : dataSchema.getAllFieldSpecs()) {
+      indexColumn(spec, indexCreationInfoMap.get(spec.getName()).isCreateDictionary(), indexCreator, docIds,
+          totalDocs);
+    }
+    final long indexTime = System.currentTimeMillis();
+
+    driver.sealSegment();
+    LOGGER.info("Converted realtime segment {} with {} documents, stats time : {}, index time : {}, seal time : {}",
+        segmentName, totalDocs, statsTime - start, indexTime - statsTime, System.currentTimeMillis() - indexTime);
+  }
+
+  /**
+   * Returns the realtime document ids in the order of the converted segment, or null to keep the realtime order.
+   */
+  private int[] getDocIdsInSegmentOrder(int totalDocs) {
+    if (sortedColumn == null) {
+      return null;
+    }
+    final int[] docIds = new int[totalDocs];
+    final Iterator<Integer> iterator = realtimeSegmentImpl.getSortedDocIdIteratorOnColumn(sortedColumn);
+    int numDocs = 0;
+    while (iterator.hasNext()) {
+      docIds[numDocs++] = iterator.next();
+    }
+    if (numDocs != totalDocs) {
+      throw new IllegalStateException("Sorted column " + sortedColumn + " covers " + numDocs + " documents out of "
+          + totalDocs);
+    }
+    return docIds;
+  }
+
+  private String getRealtimeColumnName(FieldSpec spec) {
+    return spec.getFieldType() == FieldType.TIME ? realtimeTimeColumnName : spec.getName();
+  }
+
+  /**
+   * Computes the statistics of a column from its realtime dictionary, and from a scan of its forward index in the order
+   * of the converted segment to find the values actually used by the documents, whether the column is sorted, and the
+   * number of values of the multi value columns.
+   */
+  private ColumnIndexCreationInfo buildIndexCreationInfo(FieldSpec spec, boolean createDictionary, int[] docIds,
+      int totalDocs) {
+    final String realtimeColumn = getRealtimeColumnName(spec);
+    final MutableDictionaryReader dictionary = realtimeSegmentImpl.getDictionaryFor(realtimeColumn);
+    final int cardinality = dictionary.length();
+
+    // Rank of the value of each realtime dictionary id in the natural order of the values
+    final Object[] values = new Object[cardinality];
+    for (int i = 0; i < cardinality; i++) {
+      values[i] = dictionary.get(i);
+    }
+    final Object[] sortedValues = values.clone();
+    Arrays.sort(sortedValues);
+    final int[] ranks = new int[cardinality];
+    for (int i = 0; i < cardinality; i++) {
+      ranks[i] = Arrays.binarySearch(sortedValues, values[i]);
+    }
+
+    final boolean[] usedRanks = new boolean[cardinality];
+    boolean isSorted = spec.isSingleValueField();
+    int totalNumberOfEntries = 0;
+    int maxNumberOfMultiValues = 0;
+    if (spec.isSingleValueField()) {
+      final FixedByteSingleColumnSingleValueReaderWriter forwardIndex =
+          (FixedByteSingleColumnSingleValueReaderWriter) realtimeSegmentImpl.getForwardIndexFor(realtimeColumn);
+      int previousRank = -1;
+      for (int i = 0; i < totalDocs; i++) {
+        final int rank = ranks[forwardIndex.getInt(docIds == null ? i : docIds[i])];
+        usedRanks[rank] = true;
+        if (rank < previousRank) {
+          isSorted = false;
+        }
+        previousRank = rank;
+      }
+    } else {
+      final FixedByteSingleColumnMultiValueReaderWriter forwardIndex =
+          (FixedByteSingleColumnMultiValueReaderWriter) realtimeSegmentImpl.getForwardIndexFor(realtimeColumn);
+      final int[] dictionaryIds = new int[realtimeSegmentImpl.getMaxNumberOfMultiValues(realtimeColumn)];
+      for (int i = 0; i < totalDocs; i++) {
+        final int numValues = forwardIndex.getIntArray(docIds == null ? i : docIds[i], dictionaryIds);
+        for (int j = 0; j < numValues; j++) {
+          usedRanks[ranks[dictionaryIds[j]]] = true;
+        }
+        totalNumberOfEntries += numValues;
+        maxNumberOfMultiValues = Math.max(maxNumberOfMultiValues, numValues);
+      }
+    }
+
+    // Values indexed in the realtime dictionary by rows which failed to be indexed are left out
+    int numUsedValues = 0;
+    for (int rank = 0; rank < cardinality; rank++) {
+      if (usedRanks[rank]) {
+        numUsedValues++;
+      }
+    }
+    final Object[] sortedUniqueValues = new Object[numUsedValues];
+    numUsedValues = 0;
+    for (int rank = 0; rank < cardinality; rank++) {
+      if (usedRanks[rank]) {
+        sortedUniqueValues[numUsedValues++] = sortedValues[rank];
+      }
+    }
+
+    return new ColumnIndexCreationInfo(createDictionary, sortedUniqueValues[0],
+        sortedUniqueValues[sortedUniqueValues.length - 1], sortedUniqueValues,
+        createDictionary ? ForwardIndexType.FIXED_BIT_COMPRESSED : ForwardIndexType.FIXED_BYTE_RAW,
+        InvertedIndexType.P4_DELTA, createDictionary && isSorted, false, totalNumberOfEntries, maxNumberOfMultiValues);
+  }
+
+  /**
+   * Writes the forward and inverted indexes of a column, remapping the realtime dictionary ids to the ids of the
+   * segment dictionary.
+   */
+  private void indexColumn(FieldSpec spec, boolean createDictionary, SegmentColumnarIndexCreator indexCreator,
+      int[] docIds, int totalDocs) {
+    final String column = spec.getName();
+    final String realtimeColumn = getRealtimeColumnName(spec);
+    final MutableDictionaryReader dictionary = realtimeSegmentImpl.getDictionaryFor(realtimeColumn);
+    final int cardinality = dictionary.length();
+
+    if (!createDictionary) {
+      final Object[] values = new Object[cardinality];
+      for (int i = 0; i < cardinality; i++) {
+        values[i] = dictionary.get(i);
+      }
+      final FixedByteSingleColumnSingleValueReaderWriter forwardIndex =
+          (FixedByteSingleColumnSingleValueReaderWriter) realtimeSegmentImpl.getForwardIndexFor(realtimeColumn);
+      for (int i = 0; i < totalDocs; i++) {
+        indexCreator.indexRawValue(column, i, values[forwardIndex.getInt(docIds == null ? i : docIds[i])]);
+      }
+      return;
+    }
+
+    // Values left out of the segment dictionary are mapped to negative ids, but are not used by any document
+    final int[] dictionaryIdMap = new int[cardinality];
+    for (int i = 0; i < cardinality; i++) {
+      dictionaryIdMap[i] = indexCreator.getDictionaryId(column, dictionary.get(i));
+    }
+
+    if (spec.isSingleValueField()) {
+      final FixedByteSingleColumnSingleValueReaderWriter forwardIndex =
+          (FixedByteSingleColumnSingleValueReaderWriter) realtimeSegmentImpl.getForwardIndexFor(realtimeColumn);
+      for (int i = 0; i < totalDocs; i++) {
+        indexCreator.indexSingleValue(column, i, dictionaryIdMap[forwardIndex.getInt(docIds == null ? i : docIds[i])]);
+      }
+    } else {
+      final FixedByteSingleColumnMultiValueReaderWriter forwardIndex =
+          (FixedByteSingleColumnMultiValueReaderWriter) realtimeSegmentImpl.getForwardIndexFor(realtimeColumn);
+      final int[] realtimeDictionaryIds = new int[realtimeSegmentImpl.getMaxNumberOfMultiValues(realtimeColumn)];
+      for (int i = 0; i < totalDocs; i++) {
+        final int numValues = forwardIndex.getIntArray(docIds == null ? i : docIds[i], realtimeDictionaryIds);
+        final Integer[] dictionaryIds = new Integer[numValues];
+        for (int j = 0; j < numValues; j++) {
+          dictionaryIds[j] = dictionaryIdMap[realtimeDictionaryIds[j]];
+        }
+        indexCreator.indexMultiValue(column, i, dictionaryIds);
+      }
+    }
   }
 }
@@ -15,16 +15,28 @@
  */
 package com.linkedin.pinot.core.realtime.impl;
 
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+
 import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.data.extractors.FieldExtractor;
 import com.linkedin.pinot.core.data.extractors.FieldExtractorFactory;
 import com.linkedin.pinot.core.data.readers.RecordReader;
 import com.linkedin.pinot.core.data.readers.RecordReaderFactory;
-import com.linkedin.pinot.core.realtime.StreamProvider;
+import com.linkedin.pinot.core.realtime.RawMessageStreamProvider;
 import com.linkedin.pinot.core.realtime.StreamProviderConfig;
+import com.linkedin.pinot.core.realtime.impl.kafka.KafkaJSONMessageDecoder;
+import com.linkedin.pinot.core.realtime.impl.kafka.KafkaMessageDecoder;
 
 
-public class FileBasedStreamProviderImpl implements StreamProvider {
+/**
+ * Stream provider reading the rows of a file, standing in for Kafka locally.
+ *
+ * The undecoded messages fetched from it are the rows of the file serialized as JSON, as decoded by
+ * {@link KafkaJSONMessageDecoder}.
+ */
+public class FileBasedStreamProviderImpl implements RawMessageStreamProvider {
 
   private FileBasedStreamProviderConfig config;
   private RecordReader reader;
@@ -60,6 +72,26 @@ public class FileBasedStreamProviderImpl implements StreamProvider {
     return null;
   }
 
+  @Override
+  public boolean fetchMessages(List<byte[]> messages, int maxNumMessages) {
+    for (int i = 0; i < maxNumMessages && reader.hasNext(); i++) {
+      count++;
+      try {
+        messages.add(reader.next().toBytes());
+      } catch (IOException e) {
+        throw new RuntimeException("Caught exception while serializing row", e);
+      }
+    }
+    return reader.hasNext();
+  }
+
+  @Override
+  public KafkaMessageDecoder createDecoder() throws Exception {
+    KafkaMessageDecoder decoder = new KafkaJSONMessageDecoder();
+    decoder.init(new HashMap<String, String>(), config.getSchema(), null);
+    return decoder;
+  }
+
   @Override
   public GenericRow next(long offset) {
     throw new UnsupportedOperationException();
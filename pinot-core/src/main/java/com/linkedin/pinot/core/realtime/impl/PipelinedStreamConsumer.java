@@ -0,0 +1,269 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.realtime.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.Futures;
+import com.linkedin.pinot.common.utils.CommonConstants;
+import com.linkedin.pinot.common.utils.NamedThreadFactory;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.realtime.RawMessageStreamProvider;
+import com.linkedin.pinot.core.realtime.impl.kafka.KafkaMessageDecoder;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.Meter;
+import com.yammer.metrics.core.Timer;
+
+
+/**
+ * Consumes a stream whose messages are decoded in parallel, and hands out the decoded rows in the order of the stream
+ * to the single thread indexing them.
+ *
+ * A fetching thread fetches batches of undecoded messages from the stream provider, and submits them to a pool of
+ * decoding threads each decoding with its own decoder. The decoded batches are handed out in the order they were
+ * fetched, and are recycled once all their rows are handed out, so that at most numBatches batches of messages are
+ * fetched ahead of the indexing thread. At most maxNumMessages messages are fetched in total, so that a segment with
+ * room for that many rows indexes every row consumed from the stream.
+ *
+ * The rate of the rows handed out, the decode failures and the decode latency of the messages are reported as metrics
+ * named after the given name.
+ */
+public class PipelinedStreamConsumer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PipelinedStreamConsumer.class);
+  private static final Future<MessageBatch> END_OF_STREAM = Futures.immediateFuture(null);
+
+  private final RawMessageStreamProvider streamProvider;
+  private final int batchSize;
+  private final long maxNumMessages;
+  private final BlockingQueue<MessageBatch> freeBatches;
+  // Batches being decoded in the order of the stream, the end of the stream is marked by a null batch
+  private final BlockingQueue<Future<MessageBatch>> decodedBatches;
+  private final ExecutorService decodingExecutor;
+  private final ThreadLocal<KafkaMessageDecoder> decoders;
+  private final Thread fetchingThread;
+
+  private final String rowsConsumedMetricName;
+  private final String decodeFailedMetricName;
+  private final String decodeLatencyMetricName;
+  private final Meter rowsConsumedMeter;
+  private final Counter decodeFailedCounter;
+  private final Timer decodeLatencyTimer;
+
+  private volatile boolean stopped = false;
+  private MessageBatch currentBatch = null;
+  private int currentRow = 0;
+  private boolean endOfStream = false;
+
+  /**
+   * @param streamProvider Stream provider to fetch the messages from, already started
+   * @param name Name of the threads and prefix of the metrics of the consumer
+   * @param numDecodingThreads Number of threads decoding the messages
+   * @param batchSize Maximum number of messages of a batch
+   * @param numBatches Maximum number of batches fetched ahead of the indexing thread
+   */
+  public PipelinedStreamConsumer(RawMessageStreamProvider streamProvider, String name, int numDecodingThreads,
+      int batchSize, int numBatches) {
+    this(streamProvider, name, numDecodingThreads, batchSize, numBatches, Long.MAX_VALUE);
+  }
+
+  /**
+   * @param streamProvider Stream provider to fetch the messages from, already started
+   * @param name Name of the threads and prefix of the metrics of the consumer
+   * @param numDecodingThreads Number of threads decoding the messages
+   * @param batchSize Maximum number of messages of a batch
+   * @param numBatches Maximum number of batches fetched ahead of the indexing thread
+   * @param maxNumMessages Maximum number of messages fetched from the stream, after which the stream ends
+   */
+  public PipelinedStreamConsumer(RawMessageStreamProvider streamProvider, String name, int numDecodingThreads,
+      int batchSize, int numBatches, long maxNumMessages) {
+    this.streamProvider = streamProvider;
+    this.batchSize = batchSize;
+    this.maxNumMessages = maxNumMessages;
+    freeBatches = new ArrayBlockingQueue<MessageBatch>(numBatches);
+    for (int i = 0; i < numBatches; i++) {
+      freeBatches.add(new MessageBatch(batchSize));
+    }
+    // One more slot for the end of the stream
+    decodedBatches = new ArrayBlockingQueue<Future<MessageBatch>>(numBatches + 1);
+    decodingExecutor = Executors.newFixedThreadPool(numDecodingThreads, new NamedThreadFactory("decoder-" + name));
+    decoders = new ThreadLocal<KafkaMessageDecoder>() {
+      @Override
+      protected KafkaMessageDecoder initialValue() {
+        try {
+          return PipelinedStreamConsumer.this.streamProvider.createDecoder();
+        } catch (Exception e) {
+          throw new RuntimeException("Caught exception while creating message decoder", e);
+        }
+      }
+    };
+    fetchingThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        fetchMessages();
+      }
+    }, "fetcher-" + name);
+
+    rowsConsumedMetricName = name + "-" + CommonConstants.Metric.Server.REALTIME_ROWS_CONSUMED;
+    decodeFailedMetricName = name + "-" + CommonConstants.Metric.Server.REALTIME_ROWS_DECODE_FAILED;
+    decodeLatencyMetricName = name + "-" + CommonConstants.Metric.Server.REALTIME_DECODE_LATENCY;
+    rowsConsumedMeter = Metrics.newMeter(PipelinedStreamConsumer.class, rowsConsumedMetricName, "rows",
+        TimeUnit.SECONDS);
+    decodeFailedCounter = Metrics.newCounter(PipelinedStreamConsumer.class, decodeFailedMetricName);
+    decodeLatencyTimer = Metrics.newTimer(PipelinedStreamConsumer.class, decodeLatencyMetricName,
+        TimeUnit.MICROSECONDS, TimeUnit.SECONDS);
+  }
+
+  public void start() {
+    fetchingThread.start();
+  }
+
+  /**
+   * Returns the next row of the stream once decoded, or null once the stream has no more message or the consumer is
+   * stopped and all the messages fetched before are handed out. Rows failing to be decoded are skipped.
+   */
+  public GenericRow next() throws InterruptedException {
+    while (currentBatch == null || currentRow == currentBatch.numRows) {
+      if (currentBatch != null) {
+        currentBatch.clear();
+        freeBatches.add(currentBatch);
+        currentBatch = null;
+      }
+      if (endOfStream) {
+        return null;
+      }
+      MessageBatch batch;
+      try {
+        batch = decodedBatches.take().get();
+      } catch (ExecutionException e) {
+        throw new RuntimeException("Caught exception while decoding messages", e.getCause());
+      }
+      if (batch == null) {
+        endOfStream = true;
+        return null;
+      }
+      rowsConsumedMeter.mark(batch.numRows);
+      currentBatch = batch;
+      currentRow = 0;
+    }
+    return currentBatch.rows[currentRow++];
+  }
+
+  /**
+   * Stops fetching messages from the stream, the rows of the messages already fetched are still handed out.
+   */
+  public void stop() {
+    stopped = true;
+  }
+
+  /**
+   * Stops the threads of the consumer and removes its metrics.
+   */
+  public void shutdown() {
+    stopped = true;
+    fetchingThread.interrupt();
+    decodingExecutor.shutdownNow();
+    Metrics.defaultRegistry().removeMetric(PipelinedStreamConsumer.class, rowsConsumedMetricName);
+    Metrics.defaultRegistry().removeMetric(PipelinedStreamConsumer.class, decodeFailedMetricName);
+    Metrics.defaultRegistry().removeMetric(PipelinedStreamConsumer.class, decodeLatencyMetricName);
+  }
+
+  private void fetchMessages() {
+    try {
+      long numMessagesLeft = maxNumMessages;
+      boolean hasMoreMessages = numMessagesLeft > 0;
+      while (hasMoreMessages && !stopped) {
+        final MessageBatch batch = freeBatches.take();
+        final int maxBatchSize = (int) Math.min(batchSize, numMessagesLeft);
+        while (batch.messages.isEmpty() && hasMoreMessages && !stopped) {
+          hasMoreMessages = streamProvider.fetchMessages(batch.messages, maxBatchSize);
+        }
+        numMessagesLeft -= batch.messages.size();
+        if (numMessagesLeft == 0) {
+          hasMoreMessages = false;
+        }
+        // The messages fetched are decoded even when stopped, they are already consumed from the stream
+        if (!batch.messages.isEmpty()) {
+          decodedBatches.put(decodingExecutor.submit(new Callable<MessageBatch>() {
+            @Override
+            public MessageBatch call() {
+              decode(batch);
+              return batch;
+            }
+          }));
+        }
+      }
+    } catch (InterruptedException e) {
+      LOGGER.info("Interrupted while fetching messages");
+    } catch (Exception e) {
+      LOGGER.error("Caught exception while fetching messages", e);
+    } finally {
+      decodedBatches.offer(END_OF_STREAM);
+    }
+  }
+
+  private void decode(MessageBatch batch) {
+    final KafkaMessageDecoder decoder = decoders.get();
+    final long start = System.nanoTime();
+    int numRows = 0;
+    for (byte[] message : batch.messages) {
+      GenericRow row = null;
+      try {
+        row = decoder.decode(message);
+      } catch (Exception e) {
+        LOGGER.warn("Caught exception while decoding message", e);
+      }
+      if (row == null) {
+        decodeFailedCounter.inc();
+      } else {
+        batch.rows[numRows++] = row;
+      }
+    }
+    batch.numRows = numRows;
+    // Average decode time of the messages of the batch
+    decodeLatencyTimer.update((System.nanoTime() - start) / batch.messages.size(), TimeUnit.NANOSECONDS);
+  }
+
+  private static class MessageBatch {
+    private final List<byte[]> messages;
+    private final GenericRow[] rows;
+    private int numRows = 0;
+
+    private MessageBatch(int batchSize) {
+      messages = new ArrayList<byte[]>(batchSize);
+      rows = new GenericRow[batchSize];
+    }
+
+    private void clear() {
+      messages.clear();
+      Arrays.fill(rows, 0, numRows, null);
+      numRows = 0;
+    }
+  }
+}
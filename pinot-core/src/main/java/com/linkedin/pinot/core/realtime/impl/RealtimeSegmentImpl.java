@@ -54,12 +54,15 @@ import com.linkedin.pinot.core.realtime.impl.invertedIndex.DimensionInvertertedI
 import com.linkedin.pinot.core.realtime.impl.invertedIndex.MetricInvertedIndex;
 import com.linkedin.pinot.core.realtime.impl.invertedIndex.RealtimeInvertedIndex;
 import com.linkedin.pinot.core.realtime.impl.invertedIndex.TimeInvertedIndex;
-import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import com.linkedin.pinot.core.realtime.impl.memory.DirectMemoryManager;
+import com.linkedin.pinot.core.realtime.impl.memory.RealtimeMemoryManager;
 import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
 
 
 public class RealtimeSegmentImpl implements RealtimeSegment {
   private static final Logger LOGGER = LoggerFactory.getLogger(RealtimeSegmentImpl.class);
+  // Number of rows of the off-heap chunks the forward indexes grow by
+  private static final int ROWS_PER_CHUNK = 100000;
 
   private SegmentMetadataImpl _segmentMetadata;
   private final Schema dataSchema;
@@ -76,19 +79,31 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
 
   private Map<String, Integer> maxNumberOfMultivaluesMap;
 
-  private int docIdSearchableOffset = -1;
+  // Written by the indexing thread once a document is fully indexed, queries only read the documents up to it
+  private volatile int docIdSearchableOffset = -1;
   private int numDocsIndexed = 0;
   private int numSuccessIndexed = 0;
 
   // to compute the rolling interval
-  private long minTimeVal = Long.MAX_VALUE;
-  private long maxTimeVal = Long.MIN_VALUE;
+  private volatile long minTimeVal = Long.MAX_VALUE;
+  private volatile long maxTimeVal = Long.MIN_VALUE;
 
   private final int capacity;
 
   private final Map<String, DataFileReader> columnIndexReaderWriterMap;
 
+  private final RealtimeMemoryManager memoryManager;
+  private boolean destroyed = false;
+
   public RealtimeSegmentImpl(Schema schema, int capacity) throws IOException {
+    this(schema, capacity, new DirectMemoryManager());
+  }
+
+  /**
+   * Creates a segment indexing up to capacity documents, whose forward indexes and numeric dictionaries grow in chunks
+   * allocated from the memory manager. The memory manager is closed when the segment is destroyed.
+   */
+  public RealtimeSegmentImpl(Schema schema, int capacity, RealtimeMemoryManager memoryManager) throws IOException {
     // intial variable setup
     dataSchema = schema;
     dictionaryMap = new HashMap<String, MutableDictionaryReader>();
@@ -96,20 +111,24 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
     incomingTimeColumnName = dataSchema.getTimeFieldSpec().getIncomingTimeColumnName();
     outgoingTimeColumnName = dataSchema.getTimeFieldSpec().getOutGoingTimeColumnName();
     this.capacity = capacity;
+    this.memoryManager = memoryManager;
+    final int rowsPerChunk = Math.min(capacity, ROWS_PER_CHUNK);
 
     for (FieldSpec col : dataSchema.getAllFieldSpecs()) {
       maxNumberOfMultivaluesMap.put(col.getName(), 0);
     }
     // dictionary assignment for dimensions and time column
     for (String column : dataSchema.getDimensionNames()) {
-      dictionaryMap.put(column, RealtimeDictionaryProvider.getDictionaryFor(dataSchema.getFieldSpecFor(column)));
+      dictionaryMap.put(column, RealtimeDictionaryProvider.getDictionaryFor(dataSchema.getFieldSpecFor(column),
+          memoryManager));
     }
 
     dictionaryMap.put(outgoingTimeColumnName,
-        RealtimeDictionaryProvider.getDictionaryFor(dataSchema.getFieldSpecFor(outgoingTimeColumnName)));
+        RealtimeDictionaryProvider.getDictionaryFor(dataSchema.getFieldSpecFor(outgoingTimeColumnName), memoryManager));
 
     for (String metric : dataSchema.getMetricNames()) {
-      dictionaryMap.put(metric, RealtimeDictionaryProvider.getDictionaryFor(dataSchema.getFieldSpecFor(metric)));
+      dictionaryMap.put(metric, RealtimeDictionaryProvider.getDictionaryFor(dataSchema.getFieldSpecFor(metric),
+          memoryManager));
     }
 
     // docId generator and tiem granularity converter
@@ -123,23 +142,24 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
     for (String dimension : schema.getDimensionNames()) {
       invertedIndexMap.put(dimension, new DimensionInvertertedIndex(dimension));
       if (schema.getFieldSpecFor(dimension).isSingleValueField()) {
-        columnIndexReaderWriterMap.put(dimension, new FixedByteSingleColumnSingleValueReaderWriter(capacity,
-            V1Constants.Dict.INT_DICTIONARY_COL_SIZE));
+        columnIndexReaderWriterMap.put(dimension, new FixedByteSingleColumnSingleValueReaderWriter(rowsPerChunk,
+            Integer.SIZE / 8, memoryManager, dimension));
       } else {
-        columnIndexReaderWriterMap.put(dimension, new FixedByteSingleColumnMultiValueReaderWriter(capacity,
-            Integer.SIZE / 8, FixedByteSingleColumnMultiValueReaderWriter.DEFAULT_MAX_NUMBER_OF_MULTIVALUES));
+        columnIndexReaderWriterMap.put(dimension, new FixedByteSingleColumnMultiValueReaderWriter(rowsPerChunk,
+            Integer.SIZE / 8, FixedByteSingleColumnMultiValueReaderWriter.DEFAULT_MAX_NUMBER_OF_MULTIVALUES,
+            rowsPerChunk, memoryManager, dimension));
       }
     }
 
     for (String metric : schema.getMetricNames()) {
       invertedIndexMap.put(metric, new MetricInvertedIndex(metric));
-      columnIndexReaderWriterMap.put(metric, new FixedByteSingleColumnSingleValueReaderWriter(capacity,
-          V1Constants.Dict.INT_DICTIONARY_COL_SIZE));
+      columnIndexReaderWriterMap.put(metric, new FixedByteSingleColumnSingleValueReaderWriter(rowsPerChunk,
+          Integer.SIZE / 8, memoryManager, metric));
     }
 
     invertedIndexMap.put(outgoingTimeColumnName, new TimeInvertedIndex(outgoingTimeColumnName));
-    columnIndexReaderWriterMap.put(outgoingTimeColumnName, new FixedByteSingleColumnSingleValueReaderWriter(capacity,
-        V1Constants.Dict.INT_DICTIONARY_COL_SIZE));
+    columnIndexReaderWriterMap.put(outgoingTimeColumnName, new FixedByteSingleColumnSingleValueReaderWriter(
+        rowsPerChunk, Integer.SIZE / 8, memoryManager, outgoingTimeColumnName));
 
   }
 
@@ -159,8 +179,8 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
   }
 
   @Override
-  public boolean index(GenericRow row) {
-    if (numDocsIndexed >= capacity) {
+  public synchronized boolean index(GenericRow row) {
+    if (destroyed || numDocsIndexed >= capacity) {
       return false;
     }
     // updating dictionary for dimesions only
@@ -196,62 +216,41 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
     minTimeVal = Math.min(minTimeVal, timeValue);
     maxTimeVal = Math.max(maxTimeVal, timeValue);
 
-    // also lets collect all dicIds to update inverted index later
-    Map<String, Object> rawRowToDicIdMap = new HashMap<String, Object>();
-
-    // lets update forward index now
+    // lets update forward index and inverted index now, the document only becomes searchable once
+    // docIdSearchableOffset is updated below
     int docId = docIdGenerator.incrementAndGet();
 
     for (String dimension : dataSchema.getDimensionNames()) {
+      MutableDictionaryReader dictionary = dictionaryMap.get(dimension);
+      RealtimeInvertedIndex invertedIndex = invertedIndexMap.get(dimension);
       if (dataSchema.getFieldSpecFor(dimension).isSingleValueField()) {
-        int dicId = dictionaryMap.get(dimension).indexOf(row.getValue(dimension));
+        int dicId = dictionary.indexOf(row.getValue(dimension));
         ((FixedByteSingleColumnSingleValueReaderWriter) columnIndexReaderWriterMap.get(dimension)).setInt(docId, dicId);
-        rawRowToDicIdMap.put(dimension, dicId);
+        invertedIndex.add(dicId, docId);
       } else {
         Object[] mValues = (Object[]) row.getValue(dimension);
         int[] dicIds = new int[mValues.length];
         for (int i = 0; i < dicIds.length; i++) {
-          dicIds[i] = dictionaryMap.get(dimension).indexOf(mValues[i]);
+          dicIds[i] = dictionary.indexOf(mValues[i]);
         }
         ((FixedByteSingleColumnMultiValueReaderWriter) columnIndexReaderWriterMap.get(dimension)).setIntArray(docId,
             dicIds);
-        rawRowToDicIdMap.put(dimension, dicIds);
+        for (int dicId : dicIds) {
+          invertedIndex.add(dicId, docId);
+        }
       }
     }
 
     for (String metric : dataSchema.getMetricNames()) {
-      FixedByteSingleColumnSingleValueReaderWriter readerWriter =
-          (FixedByteSingleColumnSingleValueReaderWriter) columnIndexReaderWriterMap.get(metric);
       int dicId = dictionaryMap.get(metric).indexOf(row.getValue(metric));
-      readerWriter.setInt(docId, dicId);
-      rawRowToDicIdMap.put(metric, dicId);
+      ((FixedByteSingleColumnSingleValueReaderWriter) columnIndexReaderWriterMap.get(metric)).setInt(docId, dicId);
+      invertedIndexMap.get(metric).add(dicId, docId);
     }
 
     int timeDicId = dictionaryMap.get(outgoingTimeColumnName).indexOf(timeValueObj);
-
     ((FixedByteSingleColumnSingleValueReaderWriter) columnIndexReaderWriterMap.get(outgoingTimeColumnName)).setInt(
         docId, timeDicId);
-    rawRowToDicIdMap.put(outgoingTimeColumnName, timeDicId);
-
-    // lets update the inverted index now
-    // metrics
-    for (String metric : dataSchema.getMetricNames()) {
-      invertedIndexMap.get(metric).add(rawRowToDicIdMap.get(metric), docId);
-    }
-
-    //dimension
-    for (String dimension : dataSchema.getDimensionNames()) {
-      if (dataSchema.getFieldSpecFor(dimension).isSingleValueField()) {
-        invertedIndexMap.get(dimension).add(rawRowToDicIdMap.get(dimension), docId);
-      } else {
-        int[] dicIds = (int[]) rawRowToDicIdMap.get(dimension);
-        for (int dicId : dicIds) {
-          invertedIndexMap.get(dimension).add(dicId, docId);
-        }
-      }
-    }
-    //time
-    invertedIndexMap.get(outgoingTimeColumnName).add(rawRowToDicIdMap.get(outgoingTimeColumnName), docId);
+    invertedIndexMap.get(outgoingTimeColumnName).add(timeDicId, docId);
 
     docIdSearchableOffset = docId;
     numDocsIndexed += 1;
@@ -338,9 +337,26 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
     }
   }
 
+  /**
+   * Returns the number of bytes allocated off-heap for the forward indexes and dictionaries of the segment.
+   */
+  public long getOffHeapMemoryUsed() {
+    return memoryManager.getAllocatedBytes();
+  }
+
+  /**
+   * Releases the off-heap memory of the segment, which is reclaimed once the queries still reading the segment are done.
+   * Documents indexed afterwards are rejected.
+   */
   @Override
-  public void destroy() {
-    throw new UnsupportedOperationException("not implemented");
+  public synchronized void destroy() {
+    if (destroyed) {
+      return;
+    }
+    destroyed = true;
+    LOGGER.info("Releasing {} bytes of off-heap memory of realtime segment {}", memoryManager.getAllocatedBytes(),
+        segmentName);
+    memoryManager.close();
   }
 
   private IntIterator[] getSortedBitmapIntIteratorsForStringColumn(final String columnToSortOn) {
@@ -525,27 +541,10 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
       }
     }
 
+    // metrics are dictionary encoded as well
     for (String metric : dataSchema.getMetricNames()) {
-      switch (dataSchema.getFieldSpecFor(metric).getDataType()) {
-        case INT:
-          rowValues.put(metric,
-              ((FixedByteSingleColumnSingleValueReaderWriter) columnIndexReaderWriterMap.get(metric)).getInt(docId));
-          break;
-        case FLOAT:
-          rowValues.put(metric,
-              ((FixedByteSingleColumnSingleValueReaderWriter) columnIndexReaderWriterMap.get(metric)).getFloat(docId));
-          break;
-        case LONG:
-          rowValues.put(metric,
-              ((FixedByteSingleColumnSingleValueReaderWriter) columnIndexReaderWriterMap.get(metric)).getLong(docId));
-          break;
-        case DOUBLE:
-          rowValues.put(metric,
-              ((FixedByteSingleColumnSingleValueReaderWriter) columnIndexReaderWriterMap.get(metric)).getDouble(docId));
-          break;
-        default:
-          throw new UnsupportedOperationException("unsopported metric data type");
-      }
+      int dicId = ((FixedByteSingleColumnSingleValueReaderWriter) columnIndexReaderWriterMap.get(metric)).getInt(docId);
+      rowValues.put(metric, dictionaryMap.get(metric).get(dicId));
     }
 
     rowValues.put(
@@ -575,4 +574,23 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
   public boolean hasDictionary(String columnName) {
     return dictionaryMap.containsKey(columnName);
   }
+
+  /**
+   * Returns the mutable dictionary of a column, the dictionary ids of the documents are read from the forward index.
+   */
+  public MutableDictionaryReader getDictionaryFor(String columnName) {
+    return dictionaryMap.get(columnName);
+  }
+
+  /**
+   * Returns the forward index of a column, a {@link FixedByteSingleColumnSingleValueReaderWriter} for single value
+   * columns or a {@link FixedByteSingleColumnMultiValueReaderWriter} for multi value columns.
+   */
+  public DataFileReader getForwardIndexFor(String columnName) {
+    return columnIndexReaderWriterMap.get(columnName);
+  }
+
+  public int getMaxNumberOfMultiValues(String columnName) {
+    return maxNumberOfMultivaluesMap.get(columnName);
+  }
 }
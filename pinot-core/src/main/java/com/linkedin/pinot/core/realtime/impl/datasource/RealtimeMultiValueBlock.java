@@ -141,6 +141,12 @@ public class RealtimeMultiValueBlock implements Block {
       public DataType getValueType() {
         return spec.getDataType();
       }
+
+      @Override
+      public void getDictionaryIds(int[] inDocIds, int inStartPos, int inDocIdsSize, int[] outDictionaryIds,
+          int outStartPos) {
+        throw new UnsupportedOperationException("Batch dictionary id read is not supported on multi value columns");
+      }
     };
   }
 
@@ -142,6 +142,12 @@ public class RealtimeSingleValueBlock implements Block {
       public DataType getValueType() {
         return spec.getDataType();
       }
+
+      @Override
+      public void getDictionaryIds(int[] inDocIds, int inStartPos, int inDocIdsSize, int[] outDictionaryIds,
+          int outStartPos) {
+        reader.readValues(inDocIds, inStartPos, inDocIdsSize, outDictionaryIds, outStartPos);
+      }
     };
   }
 
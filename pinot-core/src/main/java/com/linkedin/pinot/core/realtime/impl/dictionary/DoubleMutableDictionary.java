@@ -16,15 +16,29 @@
 package com.linkedin.pinot.core.realtime.impl.dictionary;
 
 import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.core.index.readerwriter.impl.FixedByteSingleColumnSingleValueReaderWriter;
+import com.linkedin.pinot.core.realtime.impl.memory.DirectMemoryManager;
+import com.linkedin.pinot.core.realtime.impl.memory.RealtimeMemoryManager;
 
 
 public class DoubleMutableDictionary extends MutableDictionaryReader {
 
-  private Double min = Double.MAX_VALUE;
-  private Double max = Double.MIN_VALUE;
+  private final FixedByteSingleColumnSingleValueReaderWriter values;
+  private volatile double min = Double.POSITIVE_INFINITY;
+  private volatile double max = Double.NEGATIVE_INFINITY;
 
   public DoubleMutableDictionary(FieldSpec spec) {
-    super(spec);
+    this(spec, new DirectMemoryManager(), true);
+  }
+
+  public DoubleMutableDictionary(FieldSpec spec, RealtimeMemoryManager memoryManager) {
+    this(spec, memoryManager, false);
+  }
+
+  private DoubleMutableDictionary(FieldSpec spec, RealtimeMemoryManager memoryManager, boolean ownsMemoryManager) {
+    super(spec, memoryManager, ownsMemoryManager);
+    values =
+        new FixedByteSingleColumnSingleValueReaderWriter(VALUES_PER_CHUNK, Double.SIZE / 8, memoryManager, spec.getName());
   }
 
   @Override
@@ -34,37 +48,42 @@ public class DoubleMutableDictionary extends MutableDictionaryReader {
       return;
     }
 
-    if (rawValue instanceof String) {
-      Double entry = new Double(Double.parseDouble(rawValue.toString()));
-      addToDictionaryBiMap(entry);
-      updateMinMax(entry);
+    if (rawValue instanceof Object[]) {
+      for (Object value : (Object[]) rawValue) {
+        if (value != null) {
+          index(toDouble(value));
+        }
+      }
       return;
     }
 
-    if (rawValue instanceof Double) {
-      addToDictionaryBiMap(rawValue);
-      updateMinMax((Double) rawValue);
-      return;
+    index(toDouble(rawValue));
+  }
+
+  /**
+   * Adds the value to the dictionary if missing, and returns its dictionary id.
+   */
+  public int index(double value) {
+    int dictionaryId = indexOf(value);
+    if (dictionaryId != NULL_VALUE_INDEX) {
+      return dictionaryId;
     }
 
-    if (rawValue instanceof Object[]) {
-      for (Object o : (Object[]) rawValue) {
-        if (o instanceof String) {
-          addToDictionaryBiMap(new Double(Double.parseDouble(o.toString())));
-          updateMinMax(new Double(Double.parseDouble(o.toString())));
-          continue;
-        }
+    dictionaryId = length();
+    values.setDouble(dictionaryId, value);
+    updateMinMax(value);
+    publish(mix(Double.doubleToLongBits(value)));
+    return dictionaryId;
+  }
 
-        if (o instanceof Double) {
-          addToDictionaryBiMap(o);
-          updateMinMax((Double) o);
-          continue;
-        }
-      }
+  private static double toDouble(Object rawValue) {
+    if (rawValue instanceof Number) {
+      return ((Number) rawValue).doubleValue();
     }
+    return Double.parseDouble(rawValue.toString());
   }
 
-  private void updateMinMax(Double entry) {
+  private void updateMinMax(double entry) {
     if (entry < min) {
       min = entry;
     }
@@ -73,43 +92,68 @@ public class DoubleMutableDictionary extends MutableDictionaryReader {
     }
   }
 
+  @Override
+  protected int hash(int dictionaryId) {
+    return mix(Double.doubleToLongBits(values.getDouble(dictionaryId)));
+  }
+
   @Override
   public boolean contains(Object rawValue) {
     if (rawValue == null) {
       return hasNull;
     }
-    if (rawValue instanceof String) {
-      return dictionaryIdBiMap.inverse().containsKey(new Double(Double.parseDouble(rawValue.toString())));
-    }
-    return dictionaryIdBiMap.inverse().containsKey(rawValue);
+    return indexOf(rawValue) != NULL_VALUE_INDEX;
   }
 
   @Override
   public int indexOf(Object rawValue) {
-    if (rawValue instanceof String) {
-      return getIndexOfFromBiMap(new Double(Double.parseDouble(rawValue.toString())));
+    if (rawValue == null) {
+      return NULL_VALUE_INDEX;
     }
-    return getIndexOfFromBiMap(rawValue);
+    return indexOf(toDouble(rawValue));
+  }
+
+  public int indexOf(double value) {
+    final int length = length();
+    final int[] hashTable = getHashTable();
+    final int mask = hashTable.length - 1;
+    int slot = mix(Double.doubleToLongBits(value)) & mask;
+    int dictionaryId;
+    while ((dictionaryId = hashTable[slot] - 1) >= 0 && dictionaryId < length) {
+      if (Double.doubleToLongBits(values.getDouble(dictionaryId)) == Double.doubleToLongBits(value)) {
+        return dictionaryId;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return NULL_VALUE_INDEX;
   }
 
   @Override
   public Object get(int dictionaryId) {
-    return getRawValueFromBiMap(dictionaryId);
+    if (dictionaryId == NULL_VALUE_INDEX) {
+      return null;
+    }
+    return getDouble(dictionaryId);
   }
 
   @Override
   public long getLongValue(int dictionaryId) {
-    return ((Double) getRawValueFromBiMap(dictionaryId)).longValue();
+    return (long) getDouble(dictionaryId);
   }
 
   @Override
   public double getDoubleValue(int dictionaryId) {
-    return ((Double) getRawValueFromBiMap(dictionaryId)).doubleValue();
+    return getDouble(dictionaryId);
   }
 
   @Override
   public String toString(int dictionaryId) {
-    return ((Double) getRawValueFromBiMap(dictionaryId)).toString();
+    return Double.toString(getDouble(dictionaryId));
+  }
+
+  @Override
+  public String getStringValue(int dictionaryId) {
+    return Double.toString(getDouble(dictionaryId));
   }
 
   @Override
@@ -146,13 +190,8 @@ public class DoubleMutableDictionary extends MutableDictionaryReader {
     return ret;
   }
 
-  @Override
-  public String getStringValue(int dictionaryId) {
-    return ((Double) getRawValueFromBiMap(dictionaryId)).toString();
-  }
-
-  private double getDouble(int dictionaryId) {
-    return ((Double) dictionaryIdBiMap.get(new Integer(dictionaryId))).doubleValue();
+  public double getDouble(int dictionaryId) {
+    return values.getDouble(dictionaryId);
   }
 
   @Override
@@ -164,4 +203,5 @@ public class DoubleMutableDictionary extends MutableDictionaryReader {
   public Object getMaxVal() {
     return max;
   }
+
 }
@@ -16,15 +16,29 @@
 package com.linkedin.pinot.core.realtime.impl.dictionary;
 
 import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.core.index.readerwriter.impl.FixedByteSingleColumnSingleValueReaderWriter;
+import com.linkedin.pinot.core.realtime.impl.memory.DirectMemoryManager;
+import com.linkedin.pinot.core.realtime.impl.memory.RealtimeMemoryManager;
 
 
 public class FloatMutableDictionary extends MutableDictionaryReader {
 
-  private Float min = Float.MAX_VALUE;
-  private Float max = Float.MIN_VALUE;
+  private final FixedByteSingleColumnSingleValueReaderWriter values;
+  private volatile float min = Float.POSITIVE_INFINITY;
+  private volatile float max = Float.NEGATIVE_INFINITY;
 
   public FloatMutableDictionary(FieldSpec spec) {
-    super(spec);
+    this(spec, new DirectMemoryManager(), true);
+  }
+
+  public FloatMutableDictionary(FieldSpec spec, RealtimeMemoryManager memoryManager) {
+    this(spec, memoryManager, false);
+  }
+
+  private FloatMutableDictionary(FieldSpec spec, RealtimeMemoryManager memoryManager, boolean ownsMemoryManager) {
+    super(spec, memoryManager, ownsMemoryManager);
+    values =
+        new FixedByteSingleColumnSingleValueReaderWriter(VALUES_PER_CHUNK, Float.SIZE / 8, memoryManager, spec.getName());
   }
 
   @Override
@@ -33,38 +47,43 @@ public class FloatMutableDictionary extends MutableDictionaryReader {
       hasNull = true;
       return;
     }
-    if (rawValue instanceof String) {
-      Float e = new Float(Float.parseFloat(rawValue.toString()));
-      addToDictionaryBiMap(e);
-      updateMinMax(e);
-      return;
-    }
 
-    if (rawValue instanceof Float) {
-      addToDictionaryBiMap(rawValue);
-      updateMinMax((Float) rawValue);
+    if (rawValue instanceof Object[]) {
+      for (Object value : (Object[]) rawValue) {
+        if (value != null) {
+          index(toFloat(value));
+        }
+      }
       return;
     }
 
-    if (rawValue instanceof Object[]) {
+    index(toFloat(rawValue));
+  }
 
-      for (Object o : (Object[]) rawValue) {
-        if (o instanceof String) {
-          addToDictionaryBiMap(new Float(Float.parseFloat(o.toString())));
-          updateMinMax(new Float(Float.parseFloat(o.toString())));
-          continue;
-        }
+  /**
+   * Adds the value to the dictionary if missing, and returns its dictionary id.
+   */
+  public int index(float value) {
+    int dictionaryId = indexOf(value);
+    if (dictionaryId != NULL_VALUE_INDEX) {
+      return dictionaryId;
+    }
 
-        if (o instanceof Float) {
-          addToDictionaryBiMap(o);
-          updateMinMax((Float) o);
-          continue;
-        }
-      }
+    dictionaryId = length();
+    values.setFloat(dictionaryId, value);
+    updateMinMax(value);
+    publish(mix(Float.floatToIntBits(value)));
+    return dictionaryId;
+  }
+
+  private static float toFloat(Object rawValue) {
+    if (rawValue instanceof Number) {
+      return ((Number) rawValue).floatValue();
     }
+    return Float.parseFloat(rawValue.toString());
   }
 
-  private void updateMinMax(Float entry) {
+  private void updateMinMax(float entry) {
     if (entry < min) {
       min = entry;
     }
@@ -73,43 +92,68 @@ public class FloatMutableDictionary extends MutableDictionaryReader {
     }
   }
 
+  @Override
+  protected int hash(int dictionaryId) {
+    return mix(Float.floatToIntBits(values.getFloat(dictionaryId)));
+  }
+
   @Override
   public boolean contains(Object rawValue) {
     if (rawValue == null) {
       return hasNull;
     }
-    if (rawValue instanceof String) {
-      return dictionaryIdBiMap.inverse().containsKey(new Float(Float.parseFloat(rawValue.toString())));
-    }
-    return dictionaryIdBiMap.inverse().containsKey(rawValue);
+    return indexOf(rawValue) != NULL_VALUE_INDEX;
   }
 
   @Override
   public int indexOf(Object rawValue) {
-    if (rawValue instanceof String) {
-      return getIndexOfFromBiMap(new Float(Float.parseFloat(rawValue.toString())));
+    if (rawValue == null) {
+      return NULL_VALUE_INDEX;
     }
-    return getIndexOfFromBiMap(rawValue);
+    return indexOf(toFloat(rawValue));
+  }
+
+  public int indexOf(float value) {
+    final int length = length();
+    final int[] hashTable = getHashTable();
+    final int mask = hashTable.length - 1;
+    int slot = mix(Float.floatToIntBits(value)) & mask;
+    int dictionaryId;
+    while ((dictionaryId = hashTable[slot] - 1) >= 0 && dictionaryId < length) {
+      if (Float.floatToIntBits(values.getFloat(dictionaryId)) == Float.floatToIntBits(value)) {
+        return dictionaryId;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return NULL_VALUE_INDEX;
   }
 
   @Override
   public Object get(int dictionaryId) {
-    return getRawValueFromBiMap(dictionaryId);
+    if (dictionaryId == NULL_VALUE_INDEX) {
+      return null;
+    }
+    return getFloat(dictionaryId);
   }
 
   @Override
   public long getLongValue(int dictionaryId) {
-    return ((Float) getRawValueFromBiMap(dictionaryId)).longValue();
+    return (long) getFloat(dictionaryId);
   }
 
   @Override
   public double getDoubleValue(int dictionaryId) {
-    return ((Float) getRawValueFromBiMap(dictionaryId)).doubleValue();
+    return getFloat(dictionaryId);
   }
 
   @Override
   public String toString(int dictionaryId) {
-    return ((Float) getRawValueFromBiMap(dictionaryId)).toString();
+    return Float.toString(getFloat(dictionaryId));
+  }
+
+  @Override
+  public String getStringValue(int dictionaryId) {
+    return Float.toString(getFloat(dictionaryId));
   }
 
   @Override
@@ -146,13 +190,8 @@ public class FloatMutableDictionary extends MutableDictionaryReader {
     return ret;
   }
 
-  @Override
-  public String getStringValue(int dictionaryId) {
-    return ((Double) getRawValueFromBiMap(dictionaryId)).toString();
-  }
-
-  private float getFloat(int dictionaryId) {
-    return ((Float) dictionaryIdBiMap.get(new Integer(dictionaryId))).floatValue();
+  public float getFloat(int dictionaryId) {
+    return values.getFloat(dictionaryId);
   }
 
   @Override
@@ -164,4 +203,5 @@ public class FloatMutableDictionary extends MutableDictionaryReader {
   public Object getMaxVal() {
     return max;
   }
+
 }
@@ -16,15 +16,29 @@
 package com.linkedin.pinot.core.realtime.impl.dictionary;
 
 import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.core.index.readerwriter.impl.FixedByteSingleColumnSingleValueReaderWriter;
+import com.linkedin.pinot.core.realtime.impl.memory.DirectMemoryManager;
+import com.linkedin.pinot.core.realtime.impl.memory.RealtimeMemoryManager;
 
 
 public class IntMutableDictionary extends MutableDictionaryReader {
 
-  private Integer min = Integer.MAX_VALUE;
-  private Integer max = Integer.MIN_VALUE;
+  private final FixedByteSingleColumnSingleValueReaderWriter values;
+  private volatile int min = Integer.MAX_VALUE;
+  private volatile int max = Integer.MIN_VALUE;
 
   public IntMutableDictionary(FieldSpec spec) {
-    super(spec);
+    this(spec, new DirectMemoryManager(), true);
+  }
+
+  public IntMutableDictionary(FieldSpec spec, RealtimeMemoryManager memoryManager) {
+    this(spec, memoryManager, false);
+  }
+
+  private IntMutableDictionary(FieldSpec spec, RealtimeMemoryManager memoryManager, boolean ownsMemoryManager) {
+    super(spec, memoryManager, ownsMemoryManager);
+    values =
+        new FixedByteSingleColumnSingleValueReaderWriter(VALUES_PER_CHUNK, Integer.SIZE / 8, memoryManager, spec.getName());
   }
 
   @Override
@@ -34,40 +48,42 @@ public class IntMutableDictionary extends MutableDictionaryReader {
       return;
     }
 
-    if (rawValue instanceof String) {
-      Integer entry = new Integer(Integer.parseInt(rawValue.toString()));
-      addToDictionaryBiMap(entry);
-      updateMinMax(entry);
-      return;
-    }
-
-    if (rawValue instanceof Integer) {
-      addToDictionaryBiMap(rawValue);
-      updateMinMax((Integer) rawValue);
+    if (rawValue instanceof Object[]) {
+      for (Object value : (Object[]) rawValue) {
+        if (value != null) {
+          index(toInt(value));
+        }
+      }
       return;
     }
 
-    if (rawValue instanceof Object[]) {
-      Object[] multivalues = (Object[]) rawValue;
+    index(toInt(rawValue));
+  }
 
-      for (int i = 0; i < multivalues.length; i++) {
+  /**
+   * Adds the value to the dictionary if missing, and returns its dictionary id.
+   */
+  public int index(int value) {
+    int dictionaryId = indexOf(value);
+    if (dictionaryId != NULL_VALUE_INDEX) {
+      return dictionaryId;
+    }
 
-        if (multivalues[i] instanceof String) {
-          addToDictionaryBiMap(new Integer(Integer.parseInt(multivalues[i].toString())));
-          updateMinMax(Integer.parseInt(multivalues[i].toString()));
-          continue;
-        }
+    dictionaryId = length();
+    values.setInt(dictionaryId, value);
+    updateMinMax(value);
+    publish(mix(value));
+    return dictionaryId;
+  }
 
-        if (multivalues[i] instanceof Integer) {
-          addToDictionaryBiMap(multivalues[i]);
-          updateMinMax((Integer) multivalues[i]);
-          continue;
-        }
-      }
+  private static int toInt(Object rawValue) {
+    if (rawValue instanceof Number) {
+      return ((Number) rawValue).intValue();
     }
+    return Integer.parseInt(rawValue.toString());
   }
 
-  private void updateMinMax(Integer entry) {
+  private void updateMinMax(int entry) {
     if (entry < min) {
       min = entry;
     }
@@ -76,48 +92,68 @@ public class IntMutableDictionary extends MutableDictionaryReader {
     }
   }
 
+  @Override
+  protected int hash(int dictionaryId) {
+    return mix(values.getInt(dictionaryId));
+  }
+
   @Override
   public boolean contains(Object rawValue) {
     if (rawValue == null) {
       return hasNull;
     }
-    if (rawValue instanceof String) {
-      return dictionaryIdBiMap.inverse().containsKey(new Integer(Integer.parseInt(rawValue.toString())));
-    }
-    return dictionaryIdBiMap.inverse().containsKey(rawValue);
+    return indexOf(rawValue) != NULL_VALUE_INDEX;
   }
 
   @Override
   public int indexOf(Object rawValue) {
-    if (rawValue instanceof String) {
-      return getIndexOfFromBiMap(new Integer(Integer.parseInt(rawValue.toString())));
+    if (rawValue == null) {
+      return NULL_VALUE_INDEX;
+    }
+    return indexOf(toInt(rawValue));
+  }
+
+  public int indexOf(int value) {
+    final int length = length();
+    final int[] hashTable = getHashTable();
+    final int mask = hashTable.length - 1;
+    int slot = mix(value) & mask;
+    int dictionaryId;
+    while ((dictionaryId = hashTable[slot] - 1) >= 0 && dictionaryId < length) {
+      if (values.getInt(dictionaryId) == value) {
+        return dictionaryId;
+      }
+      slot = (slot + 1) & mask;
     }
-    return getIndexOfFromBiMap(rawValue);
+    return NULL_VALUE_INDEX;
   }
 
   @Override
   public Object get(int dictionaryId) {
-    return getRawValueFromBiMap(dictionaryId);
+    if (dictionaryId == NULL_VALUE_INDEX) {
+      return null;
+    }
+    return getInt(dictionaryId);
   }
 
   @Override
   public long getLongValue(int dictionaryId) {
-    return ((Integer) getRawValueFromBiMap(dictionaryId)).longValue();
+    return getInt(dictionaryId);
   }
 
   @Override
   public double getDoubleValue(int dictionaryId) {
-    return ((Integer) getRawValueFromBiMap(dictionaryId)).doubleValue();
+    return getInt(dictionaryId);
   }
 
   @Override
   public String toString(int dictionaryId) {
-    return ((Integer) getRawValueFromBiMap(dictionaryId)).toString();
+    return Integer.toString(getInt(dictionaryId));
   }
 
   @Override
   public String getStringValue(int dictionaryId) {
-    return ((Integer) getRawValueFromBiMap(dictionaryId)).toString();
+    return Integer.toString(getInt(dictionaryId));
   }
 
   @Override
@@ -155,7 +191,7 @@ public class IntMutableDictionary extends MutableDictionaryReader {
   }
 
   public int getInt(int dictionaryId) {
-    return ((Integer) dictionaryIdBiMap.get(new Integer(dictionaryId))).intValue();
+    return values.getInt(dictionaryId);
   }
 
   @Override
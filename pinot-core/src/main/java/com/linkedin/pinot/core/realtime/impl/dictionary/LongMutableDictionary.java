@@ -16,15 +16,29 @@
 package com.linkedin.pinot.core.realtime.impl.dictionary;
 
 import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.core.index.readerwriter.impl.FixedByteSingleColumnSingleValueReaderWriter;
+import com.linkedin.pinot.core.realtime.impl.memory.DirectMemoryManager;
+import com.linkedin.pinot.core.realtime.impl.memory.RealtimeMemoryManager;
 
 
 public class LongMutableDictionary extends MutableDictionaryReader {
 
-  private Long min = Long.MAX_VALUE;
-  private Long max = Long.MIN_VALUE;
+  private final FixedByteSingleColumnSingleValueReaderWriter values;
+  private volatile long min = Long.MAX_VALUE;
+  private volatile long max = Long.MIN_VALUE;
 
   public LongMutableDictionary(FieldSpec spec) {
-    super(spec);
+    this(spec, new DirectMemoryManager(), true);
+  }
+
+  public LongMutableDictionary(FieldSpec spec, RealtimeMemoryManager memoryManager) {
+    this(spec, memoryManager, false);
+  }
+
+  private LongMutableDictionary(FieldSpec spec, RealtimeMemoryManager memoryManager, boolean ownsMemoryManager) {
+    super(spec, memoryManager, ownsMemoryManager);
+    values =
+        new FixedByteSingleColumnSingleValueReaderWriter(VALUES_PER_CHUNK, Long.SIZE / 8, memoryManager, spec.getName());
   }
 
   @Override
@@ -34,37 +48,42 @@ public class LongMutableDictionary extends MutableDictionaryReader {
       return;
     }
 
-    if (rawValue instanceof String) {
-      Long e = new Long(Long.parseLong(rawValue.toString()));
-      addToDictionaryBiMap(e);
-      updateMinMax(e);
+    if (rawValue instanceof Object[]) {
+      for (Object value : (Object[]) rawValue) {
+        if (value != null) {
+          index(toLong(value));
+        }
+      }
       return;
     }
 
-    if (rawValue instanceof Long) {
-      addToDictionaryBiMap(rawValue);
-      updateMinMax((Long) rawValue);
-      return;
+    index(toLong(rawValue));
+  }
+
+  /**
+   * Adds the value to the dictionary if missing, and returns its dictionary id.
+   */
+  public int index(long value) {
+    int dictionaryId = indexOf(value);
+    if (dictionaryId != NULL_VALUE_INDEX) {
+      return dictionaryId;
     }
 
-    if (rawValue instanceof Object[]) {
-      for (Object o : (Object[]) rawValue) {
-        if (o instanceof String) {
-          addToDictionaryBiMap(new Long(Long.parseLong(o.toString())));
-          updateMinMax(new Long(Long.parseLong(o.toString())));
-          continue;
-        }
+    dictionaryId = length();
+    values.setLong(dictionaryId, value);
+    updateMinMax(value);
+    publish(mix(value));
+    return dictionaryId;
+  }
 
-        if (o instanceof Long) {
-          addToDictionaryBiMap(o);
-          updateMinMax((Long) o);
-          continue;
-        }
-      }
+  private static long toLong(Object rawValue) {
+    if (rawValue instanceof Number) {
+      return ((Number) rawValue).longValue();
     }
+    return Long.parseLong(rawValue.toString());
   }
 
-  private void updateMinMax(Long entry) {
+  private void updateMinMax(long entry) {
     if (entry < min) {
       min = entry;
     }
@@ -73,43 +92,68 @@ public class LongMutableDictionary extends MutableDictionaryReader {
     }
   }
 
+  @Override
+  protected int hash(int dictionaryId) {
+    return mix(values.getLong(dictionaryId));
+  }
+
   @Override
   public boolean contains(Object rawValue) {
     if (rawValue == null) {
       return hasNull;
     }
-    if (rawValue instanceof String) {
-      return dictionaryIdBiMap.inverse().containsKey(new Long(Long.parseLong(rawValue.toString())));
-    }
-    return dictionaryIdBiMap.inverse().containsKey(rawValue);
+    return indexOf(rawValue) != NULL_VALUE_INDEX;
   }
 
   @Override
   public int indexOf(Object rawValue) {
-    if (rawValue instanceof String) {
-      return getIndexOfFromBiMap(new Long(Long.parseLong(rawValue.toString())));
+    if (rawValue == null) {
+      return NULL_VALUE_INDEX;
     }
-    return getIndexOfFromBiMap(rawValue);
+    return indexOf(toLong(rawValue));
+  }
+
+  public int indexOf(long value) {
+    final int length = length();
+    final int[] hashTable = getHashTable();
+    final int mask = hashTable.length - 1;
+    int slot = mix(value) & mask;
+    int dictionaryId;
+    while ((dictionaryId = hashTable[slot] - 1) >= 0 && dictionaryId < length) {
+      if (values.getLong(dictionaryId) == value) {
+        return dictionaryId;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return NULL_VALUE_INDEX;
   }
 
   @Override
   public Object get(int dictionaryId) {
-    return getRawValueFromBiMap(dictionaryId);
+    if (dictionaryId == NULL_VALUE_INDEX) {
+      return null;
+    }
+    return getLong(dictionaryId);
   }
 
   @Override
   public long getLongValue(int dictionaryId) {
-    return ((Long) getRawValueFromBiMap(dictionaryId)).longValue();
+    return getLong(dictionaryId);
   }
 
   @Override
   public double getDoubleValue(int dictionaryId) {
-    return ((Long) getRawValueFromBiMap(dictionaryId)).doubleValue();
+    return getLong(dictionaryId);
   }
 
   @Override
   public String toString(int dictionaryId) {
-    return ((Long) getRawValueFromBiMap(dictionaryId)).toString();
+    return Long.toString(getLong(dictionaryId));
+  }
+
+  @Override
+  public String getStringValue(int dictionaryId) {
+    return Long.toString(getLong(dictionaryId));
   }
 
   @Override
@@ -146,13 +190,8 @@ public class LongMutableDictionary extends MutableDictionaryReader {
     return ret;
   }
 
-  @Override
-  public String getStringValue(int dictionaryId) {
-    return ((Long) getRawValueFromBiMap(dictionaryId)).toString();
-  }
-
-  private long getLong(int dictionaryId) {
-    return ((Long) dictionaryIdBiMap.get(new Integer(dictionaryId))).longValue();
+  public long getLong(int dictionaryId) {
+    return values.getLong(dictionaryId);
   }
 
   @Override
@@ -164,4 +203,5 @@ public class LongMutableDictionary extends MutableDictionaryReader {
   public Object getMaxVal() {
     return max;
   }
+
 }
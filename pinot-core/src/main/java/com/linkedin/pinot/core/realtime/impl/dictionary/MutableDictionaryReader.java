@@ -15,48 +15,102 @@
  */
 package com.linkedin.pinot.core.realtime.impl.dictionary;
 
-import java.util.concurrent.atomic.AtomicInteger;
-
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
 import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.core.realtime.impl.memory.RealtimeMemoryManager;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 
 
+/**
+ * Dictionary of a realtime segment, filled by the single indexing thread of the segment while queries read it.
+ *
+ * The values are appended by the subclasses to off-heap chunks for numeric values or to an array for strings, and are
+ * looked up through an open addressing hash table of dictionary ids, so that no object is allocated per value. A value
+ * and its hash table slot are written before the volatile length of the dictionary is incremented, readers only look
+ * at the dictionary ids below the length they read. The value chunks are never moved, and the value arrays and the
+ * hash table are never modified after being replaced by a larger copy.
+ */
 public abstract class MutableDictionaryReader implements Dictionary {
-  protected BiMap<Integer, Object> dictionaryIdBiMap;
+  protected static final int INITIAL_CAPACITY = 256;
+  // Number of values of the off-heap chunks of the numeric dictionaries
+  protected static final int VALUES_PER_CHUNK = 4096;
+
   protected FieldSpec spec;
-  protected boolean hasNull = false;
-  private final AtomicInteger dictionaryIdGenerator;
+  protected volatile boolean hasNull = false;
+
+  private volatile int length = 0;
+  // Dictionary id + 1 of the value hashed to each slot, 0 for empty slots
+  private volatile int[] hashTable = new int[INITIAL_CAPACITY * 2];
+
+  // Memory manager the values are allocated from, if it is not shared with the segment
+  private final RealtimeMemoryManager ownedMemoryManager;
 
   public MutableDictionaryReader(FieldSpec spec) {
-    this.spec = spec;
-    this.dictionaryIdBiMap = HashBiMap.<Integer, Object> create();
-    dictionaryIdGenerator = new AtomicInteger(-1);
+    this(spec, null, false);
   }
 
-  protected void addToDictionaryBiMap(Object val) {
-    if (!dictionaryIdBiMap.inverse().containsKey(val)) {
-      dictionaryIdBiMap.put(new Integer(dictionaryIdGenerator.incrementAndGet()), val);
-      return;
-    }
+  protected MutableDictionaryReader(FieldSpec spec, RealtimeMemoryManager memoryManager, boolean ownsMemoryManager) {
+    this.spec = spec;
+    this.ownedMemoryManager = ownsMemoryManager ? memoryManager : null;
   }
 
   @Override
   public int length() {
-    return dictionaryIdGenerator.get() + 1;
+    return length;
+  }
+
+  /**
+   * Returns the hash table to probe for the values of the dictionary ids below the given length, which must have been
+   * read before.
+   */
+  protected int[] getHashTable() {
+    return hashTable;
+  }
+
+  /**
+   * Adds the value just written at the next dictionary id to the hash table, then makes it visible to the readers.
+   */
+  protected void publish(int hash) {
+    final int dictionaryId = length;
+    int[] table = hashTable;
+    if ((dictionaryId + 1) * 2 > table.length) {
+      table = new int[table.length * 2];
+      for (int i = 0; i < dictionaryId; i++) {
+        insert(table, hash(i), i);
+      }
+      hashTable = table;
+    }
+    insert(table, hash, dictionaryId);
+    length = dictionaryId + 1;
   }
 
-  protected Integer getIndexOfFromBiMap(Object val) {
-    Integer ret = dictionaryIdBiMap.inverse().get(val);
-    if (ret == null) {
-      ret = -1;
+  private static void insert(int[] table, int hash, int dictionaryId) {
+    final int mask = table.length - 1;
+    int slot = hash & mask;
+    while (table[slot] != 0) {
+      slot = (slot + 1) & mask;
     }
-    return ret;
+    table[slot] = dictionaryId + 1;
+  }
+
+  /**
+   * Returns the hash of the value of a dictionary id, only called by the indexing thread when growing the hash table.
+   */
+  protected abstract int hash(int dictionaryId);
+
+  protected static int mix(int hash) {
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    return hash ^ (hash >>> 16);
   }
 
-  protected Object getRawValueFromBiMap(int dictionaryId) {
-    return dictionaryIdBiMap.get(new Integer(dictionaryId));
+  protected static int mix(long hash) {
+    return mix((int) (hash ^ (hash >>> 32)));
+  }
+
+  protected static int grownCapacity(int capacity) {
+    return capacity + (capacity >> 1);
   }
 
   public boolean hasNull() {
@@ -90,18 +144,37 @@ public abstract class MutableDictionaryReader implements Dictionary {
   @Override
   public abstract double getDoubleValue(int dictionaryId);
 
+  @Override
+  public void readDoubleValues(int[] dictionaryIds, int startPos, int limit, double[] outValues, int outStartPos) {
+    int endPos = startPos + limit;
+    for (int i = startPos; i < endPos; i++) {
+      outValues[outStartPos++] = getDoubleValue(dictionaryIds[i]);
+    }
+  }
+
   @Override
   public abstract String toString(int dictionaryId);
 
   public void print() {
     System.out.println("************* printing dictionary for column : " + spec.getName() + " ***************");
-    for (Integer key : dictionaryIdBiMap.keySet()) {
-      System.out.println(key + "," + dictionaryIdBiMap.get(key));
+    final int length = length();
+    for (int i = 0; i < length; i++) {
+      System.out.println(i + "," + toString(i));
     }
     System.out.println("************************************");
   }
 
   public boolean isEmpty() {
-    return dictionaryIdBiMap.isEmpty();
+    return length() == 0;
+  }
+
+  /**
+   * Releases the memory of the values if the dictionary allocated it itself, the values allocated from a memory manager
+   * shared with the segment are released along with it.
+   */
+  public void close() {
+    if (ownedMemoryManager != null) {
+      ownedMemoryManager.close();
+    }
   }
 }
@@ -16,10 +16,15 @@
 package com.linkedin.pinot.core.realtime.impl.dictionary;
 
 import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.core.realtime.impl.memory.RealtimeMemoryManager;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 
 public class RealtimeDictionaryProvider {
 
+  /**
+   * Returns a dictionary storing its numeric values in direct memory it allocates itself, released when the dictionary
+   * is closed.
+   */
   public static MutableDictionaryReader getDictionaryFor(FieldSpec spec) {
     switch (spec.getDataType()) {
       case INT:
@@ -36,4 +41,25 @@ public class RealtimeDictionaryProvider {
     }
     throw new UnsupportedOperationException();
   }
+
+  /**
+   * Returns a dictionary storing its numeric values in chunks allocated from the memory manager, string values are
+   * kept on heap.
+   */
+  public static MutableDictionaryReader getDictionaryFor(FieldSpec spec, RealtimeMemoryManager memoryManager) {
+    switch (spec.getDataType()) {
+      case INT:
+        return new IntMutableDictionary(spec, memoryManager);
+      case LONG:
+        return new LongMutableDictionary(spec, memoryManager);
+      case FLOAT:
+        return new FloatMutableDictionary(spec, memoryManager);
+      case DOUBLE:
+        return new DoubleMutableDictionary(spec, memoryManager);
+      case BOOLEAN:
+      case STRING:
+        return new StringMutableDictionary(spec);
+    }
+    throw new UnsupportedOperationException();
+  }
 }
@@ -15,13 +15,20 @@
  */
 package com.linkedin.pinot.core.realtime.impl.dictionary;
 
+import java.util.Arrays;
+
 import com.linkedin.pinot.common.data.FieldSpec;
 
 
+/**
+ * String dictionary of a realtime segment, each distinct value is kept as a single String instance shared by the
+ * documents, and is looked up through the hash table of the parent class.
+ */
 public class StringMutableDictionary extends MutableDictionaryReader {
 
-  private String min = null;
-  private String max = null;
+  private volatile String[] values = new String[INITIAL_CAPACITY];
+  private volatile String min = null;
+  private volatile String max = null;
 
   public StringMutableDictionary(FieldSpec spec) {
     super(spec);
@@ -29,16 +36,40 @@ public class StringMutableDictionary extends MutableDictionaryReader {
 
   @Override
   public void index(Object rawValue) {
+    if (rawValue == null) {
+      hasNull = true;
+      return;
+    }
+
     if (rawValue instanceof Object[]) {
       for (Object o : (Object[]) rawValue) {
-        addToDictionaryBiMap(o.toString());
-        updateMinMax(o.toString());
+        index(o.toString());
       }
       return;
     }
 
-    addToDictionaryBiMap(rawValue.toString());
-    updateMinMax(rawValue.toString());
+    index(rawValue.toString());
+  }
+
+  /**
+   * Adds the value to the dictionary if missing, and returns its dictionary id.
+   */
+  public int index(String value) {
+    int dictionaryId = indexOf(value);
+    if (dictionaryId != NULL_VALUE_INDEX) {
+      return dictionaryId;
+    }
+
+    dictionaryId = length();
+    String[] values = this.values;
+    if (dictionaryId == values.length) {
+      values = Arrays.copyOf(values, grownCapacity(values.length));
+      this.values = values;
+    }
+    values[dictionaryId] = value;
+    updateMinMax(value);
+    publish(mix(value.hashCode()));
+    return dictionaryId;
   }
 
   private void updateMinMax(String entry) {
@@ -57,22 +88,49 @@ public class StringMutableDictionary extends MutableDictionaryReader {
     }
   }
 
+  @Override
+  protected int hash(int dictionaryId) {
+    return mix(values[dictionaryId].hashCode());
+  }
+
   @Override
   public boolean contains(Object rawValue) {
     if (rawValue == null) {
       return hasNull;
     }
-    return dictionaryIdBiMap.inverse().containsKey(rawValue.toString());
+    return indexOf(rawValue) != NULL_VALUE_INDEX;
   }
 
   @Override
   public int indexOf(Object rawValue) {
-    return getIndexOfFromBiMap(rawValue.toString());
+    if (rawValue == null) {
+      return NULL_VALUE_INDEX;
+    }
+    return indexOf(rawValue.toString());
+  }
+
+  public int indexOf(String value) {
+    final int length = length();
+    final String[] values = this.values;
+    final int[] hashTable = getHashTable();
+    final int mask = hashTable.length - 1;
+    int slot = mix(value.hashCode()) & mask;
+    int dictionaryId;
+    while ((dictionaryId = hashTable[slot] - 1) >= 0 && dictionaryId < length) {
+      if (values[dictionaryId].equals(value)) {
+        return dictionaryId;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return NULL_VALUE_INDEX;
   }
 
   @Override
   public Object get(int dictionaryId) {
-    return getRawValueFromBiMap(dictionaryId);
+    if (dictionaryId == NULL_VALUE_INDEX) {
+      return null;
+    }
+    return getString(dictionaryId);
   }
 
   @Override
@@ -87,12 +145,12 @@ public class StringMutableDictionary extends MutableDictionaryReader {
 
   @Override
   public String toString(int dictionaryId) {
-    return (String) getRawValueFromBiMap(dictionaryId);
+    return getString(dictionaryId);
   }
 
   @Override
   public String getStringValue(int dictionaryId) {
-    return (String) getRawValueFromBiMap(dictionaryId);
+    return getString(dictionaryId);
   }
 
   @Override
@@ -126,7 +184,7 @@ public class StringMutableDictionary extends MutableDictionaryReader {
   }
 
   private String getString(int dictionaryId) {
-    return dictionaryIdBiMap.get(new Integer(dictionaryId)).toString();
+    return values[dictionaryId];
   }
 
   @Override
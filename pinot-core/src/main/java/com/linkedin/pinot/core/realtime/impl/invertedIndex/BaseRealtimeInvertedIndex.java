@@ -0,0 +1,196 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.realtime.impl.invertedIndex;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+
+/**
+ * Inverted index of a realtime segment, with one bitmap per dictionary id, filled by the single indexing thread of the
+ * segment while queries read it.
+ *
+ * The bitmaps being written cannot be iterated by the readers, so readers get a snapshot of them instead, without
+ * taking any lock the indexing thread waits on. Each bitmap publishes a generation made of chunks, holding the doc ids
+ * of consecutive ranges of doc ids, and of the doc ids added since the chunks were built: a reader merges the chunks
+ * and adds the pending doc ids to them. Once enough doc ids are pending, the indexing thread starts a new generation,
+ * copying only the chunks the pending doc ids belong to and sharing the other ones, which are never modified. As doc
+ * ids are added in increasing order, this is usually only the last chunk. A snapshot is shared by the readers until
+ * documents are added to the bitmap, so it must not be modified. Bitmaps only allocate their pending doc ids and
+ * chunks once documents are added to them. The bitmap array is indexed by dictionary id and replaced by a larger copy
+ * when needed.
+ */
+public abstract class BaseRealtimeInvertedIndex implements RealtimeInvertedIndex {
+  private static final int INITIAL_CAPACITY = 256;
+
+  private volatile DocIdBitmap[] bitmaps = new DocIdBitmap[INITIAL_CAPACITY];
+
+  @Override
+  public void add(int dictId, int docId) {
+    if (dictId < 0) {
+      // Null values are not indexed
+      return;
+    }
+    DocIdBitmap[] bitmaps = this.bitmaps;
+    if (dictId >= bitmaps.length) {
+      bitmaps = Arrays.copyOf(bitmaps, Math.max(dictId + 1, bitmaps.length * 2));
+    }
+    DocIdBitmap bitmap = bitmaps[dictId];
+    if (bitmap == null) {
+      bitmap = new DocIdBitmap();
+      bitmaps[dictId] = bitmap;
+      // Publishes the new bitmap to the readers
+      this.bitmaps = bitmaps;
+    }
+    bitmap.add(docId);
+  }
+
+  @Override
+  public MutableRoaringBitmap getDocIdSetFor(int dictId) {
+    final DocIdBitmap[] bitmaps = this.bitmaps;
+    if (dictId < 0 || dictId >= bitmaps.length || bitmaps[dictId] == null) {
+      return new MutableRoaringBitmap();
+    }
+    return bitmaps[dictId].getSnapshot();
+  }
+
+  @Override
+  public ImmutableRoaringBitmap getImmutable(int idx) {
+    return getDocIdSetFor(idx);
+  }
+
+  @Override
+  public int[] getMinMaxRangeFor(int docId) {
+    throw new UnsupportedOperationException("");
+  }
+
+  @Override
+  public void close() throws IOException {
+  }
+
+  private static final class DocIdBitmap {
+    private static final int INITIAL_PENDING_DOC_IDS = 4;
+    // Max number of doc ids added since the chunks were built, before the indexing thread builds them again
+    private static final int MAX_PENDING_DOC_IDS = 1024;
+
+    private volatile Generation generation = Generation.EMPTY;
+
+    void add(int docId) {
+      Generation current = generation;
+      final int numPendingDocIds = current.numPendingDocIds;
+      if (numPendingDocIds == current.pendingDocIds.length) {
+        if (numPendingDocIds == MAX_PENDING_DOC_IDS) {
+          current = new Generation(current.mergePendingDocIds(), new int[MAX_PENDING_DOC_IDS], 0);
+        } else {
+          // The readers of the current generation keep reading its array, which is never written again
+          current = new Generation(current.chunks,
+              Arrays.copyOf(current.pendingDocIds, Math.max(INITIAL_PENDING_DOC_IDS, numPendingDocIds * 2)),
+              numPendingDocIds);
+        }
+        generation = current;
+      }
+      final int index = current.numPendingDocIds;
+      current.pendingDocIds[index] = docId;
+      // Publishes the doc id written above
+      current.numPendingDocIds = index + 1;
+    }
+
+    MutableRoaringBitmap getSnapshot() {
+      final Generation current = generation;
+      final int numPendingDocIds = current.numPendingDocIds;
+      final Snapshot cachedSnapshot = current.snapshot;
+      if (cachedSnapshot != null && cachedSnapshot.numPendingDocIds == numPendingDocIds) {
+        return cachedSnapshot.bitmap;
+      }
+      final MutableRoaringBitmap snapshot = new MutableRoaringBitmap();
+      for (MutableRoaringBitmap chunk : current.chunks) {
+        if (chunk != null) {
+          snapshot.or(chunk);
+        }
+      }
+      for (int i = 0; i < numPendingDocIds; i++) {
+        snapshot.add(current.pendingDocIds[i]);
+      }
+      current.snapshot = new Snapshot(snapshot, numPendingDocIds);
+      return snapshot;
+    }
+  }
+
+  /**
+   * Chunks of a bitmap, which are never modified, along with the doc ids added to the bitmap since the chunks were
+   * built.
+   */
+  private static final class Generation {
+    // Chunks hold the doc ids of ranges aligned on the containers of the bitmaps, so merging them only appends them
+    private static final int CHUNK_SHIFT = 16;
+    private static final MutableRoaringBitmap[] NO_CHUNKS = new MutableRoaringBitmap[0];
+    // Generation of the bitmaps no document was added to yet, shared by all of them along with its empty snapshot
+    private static final Generation EMPTY = new Generation(NO_CHUNKS, new int[0], 0);
+
+    static {
+      EMPTY.snapshot = new Snapshot(new MutableRoaringBitmap(), 0);
+    }
+
+    private final MutableRoaringBitmap[] chunks;
+    private final int[] pendingDocIds;
+    private volatile int numPendingDocIds;
+    // Last snapshot built by a reader, shared by the readers seeing the same number of pending doc ids
+    private volatile Snapshot snapshot;
+
+    private Generation(MutableRoaringBitmap[] chunks, int[] pendingDocIds, int numPendingDocIds) {
+      this.chunks = chunks;
+      this.pendingDocIds = pendingDocIds;
+      this.numPendingDocIds = numPendingDocIds;
+    }
+
+    /**
+     * Return the chunks with the pending doc ids added, copying the chunks they belong to and sharing the other ones.
+     */
+    private MutableRoaringBitmap[] mergePendingDocIds() {
+      int maxChunkId = chunks.length - 1;
+      for (int i = 0; i < numPendingDocIds; i++) {
+        maxChunkId = Math.max(maxChunkId, pendingDocIds[i] >>> CHUNK_SHIFT);
+      }
+      final MutableRoaringBitmap[] mergedChunks = Arrays.copyOf(chunks, maxChunkId + 1);
+      for (int i = 0; i < numPendingDocIds; i++) {
+        final int chunkId = pendingDocIds[i] >>> CHUNK_SHIFT;
+        MutableRoaringBitmap chunk = mergedChunks[chunkId];
+        if (chunk == null) {
+          chunk = new MutableRoaringBitmap();
+          mergedChunks[chunkId] = chunk;
+        } else if (chunkId < chunks.length && chunk == chunks[chunkId]) {
+          chunk = chunk.clone();
+          mergedChunks[chunkId] = chunk;
+        }
+        chunk.add(pendingDocIds[i]);
+      }
+      return mergedChunks;
+    }
+  }
+
+  private static final class Snapshot {
+    private final MutableRoaringBitmap bitmap;
+    private final int numPendingDocIds;
+
+    private Snapshot(MutableRoaringBitmap bitmap, int numPendingDocIds) {
+      this.bitmap = bitmap;
+      this.numPendingDocIds = numPendingDocIds;
+    }
+  }
+}
@@ -21,8 +21,11 @@ import com.linkedin.pinot.core.segment.index.InvertedIndexReader;
 
 
 public interface RealtimeInvertedIndex extends InvertedIndexReader {
-  public void add(Object dictId, int docId);
+  public void add(int dictId, int docId);
 
-  public MutableRoaringBitmap getDocIdSetFor(Object dicId);
+  /**
+   * Returns a snapshot of the documents containing the dictionary id, which must not be modified.
+   */
+  public MutableRoaringBitmap getDocIdSetFor(int dictId);
 
 }
@@ -15,80 +15,160 @@
  */
 package com.linkedin.pinot.core.realtime.impl.kafka;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
+import org.apache.avro.Schema.Field;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericData.Array;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.util.Utf8;
 
+import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.data.FieldSpec.DataType;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.data.readers.AvroRecordReader;
 
 
+/**
+ * Converts Avro records into rows of the indexing schema.
+ *
+ * The position of the Avro field of each column is resolved once per Avro schema, and the values are written into rows
+ * backed by an array of value slots. The strings repeated across records are interned per column, so that the Utf8
+ * values of a reused Avro record do not cost a String per value. A generator must not be shared between threads.
+ */
 public class AvroRecordToPinotRowGenerator {
-  private final Schema indexingSchema;
+  // Columns with more distinct values than this are not interned anymore
+  private static final int MAX_NUM_INTERNED_STRINGS_PER_COLUMN = 10000;
+
+  private final String[] columns;
+  private final FieldSpec[] fieldSpecs;
+  private final boolean[] isStringColumn;
+  private final Object[] defaultNullValues;
+  private final List<Map<Utf8, String>> internedStrings;
+  private final GenericRow rowTemplate;
+
+  private final Map<org.apache.avro.Schema, int[]> fieldPositionsBySchema =
+      new IdentityHashMap<org.apache.avro.Schema, int[]>();
+  private org.apache.avro.Schema lastAvroSchema = null;
+  private int[] lastFieldPositions = null;
 
   public AvroRecordToPinotRowGenerator(Schema indexingSchema) {
-    this.indexingSchema = indexingSchema;
+    columns = indexingSchema.getColumnNames().toArray(new String[0]);
+    fieldSpecs = new FieldSpec[columns.length];
+    isStringColumn = new boolean[columns.length];
+    defaultNullValues = new Object[columns.length];
+    internedStrings = new ArrayList<Map<Utf8, String>>(columns.length);
+    for (int i = 0; i < columns.length; i++) {
+      fieldSpecs[i] = indexingSchema.getFieldSpecFor(columns[i]);
+      DataType dataType = fieldSpecs[i].getDataType();
+      isStringColumn[i] = dataType == DataType.STRING || dataType == DataType.STRING_ARRAY;
+      defaultNullValues[i] = AvroRecordReader.getDefaultNullValue(fieldSpecs[i]);
+      internedStrings.add(new HashMap<Utf8, String>());
+    }
+    rowTemplate = new GenericRow(columns);
+  }
+
+  /**
+   * Returns a new row to transform records into.
+   */
+  public GenericRow newRow() {
+    return rowTemplate.newRowWithSameFields();
   }
 
   public GenericRow transform(GenericData.Record record, org.apache.avro.Schema schema) {
-    Map<String, Object> rowEntries = new HashMap<String, Object>();
-    for (String column : indexingSchema.getColumnNames()) {
-      Object entry = record.get(column);
-      if (entry instanceof Array) {
-        entry = AvroRecordReader.transformAvroArrayToObjectArray((Array) entry, indexingSchema.getFieldSpecFor(column));
-        if (indexingSchema.getFieldSpecFor(column).getDataType() == DataType.STRING
-            || indexingSchema.getFieldSpecFor(column).getDataType() == DataType.STRING_ARRAY) {
-          for (int i = 0; i < ((Object[]) entry).length; ++i) {
-            if (((Object[]) entry)[i] != null) {
-              ((Object[]) entry)[i] = ((Object[]) entry)[i].toString();
-            }
-          }
+    return transform(record, schema, newRow());
+  }
+
+  public GenericRow transform(GenericRecord avroRecord) {
+    return transform(avroRecord, avroRecord.getSchema(), newRow());
+  }
+
+  /**
+   * Transforms the record into the given row, which must have been created by {@link #newRow()}. The row does not
+   * reference the record, which can be reused for the next record.
+   */
+  public GenericRow transform(GenericRecord avroRecord, GenericRow reuse) {
+    return transform(avroRecord, avroRecord.getSchema(), reuse);
+  }
+
+  private GenericRow transform(GenericRecord avroRecord, org.apache.avro.Schema schema, GenericRow row) {
+    int[] fieldPositions = getFieldPositions(schema);
+    for (int i = 0; i < columns.length; i++) {
+      Object value = fieldPositions[i] < 0 ? null : avroRecord.get(fieldPositions[i]);
+      if (fieldSpecs[i].isSingleValueField()) {
+        if (value == null) {
+          value = defaultNullValues[i];
+        } else if (isStringColumn[i] || value instanceof Utf8) {
+          value = toString(i, value);
         }
       } else {
-        if (entry instanceof Utf8) {
-          entry = ((Utf8) entry).toString();
-        }
-        if (indexingSchema.getFieldSpecFor(column).getDataType() == DataType.STRING) {
-          if (entry != null) {
-            entry = entry.toString();
-          }
-        }
+        value = toObjectArray(i, value);
       }
-      if (entry == null && indexingSchema.getFieldSpecFor(column).isSingleValueField()) {
-        entry = AvroRecordReader.getDefaultNullValue(indexingSchema.getFieldSpecFor(column));
-      }
-      rowEntries.put(column, entry);
+      row.setValue(i, value);
     }
-
-    GenericRow row = new GenericRow();
-    row.init(rowEntries);
     return row;
   }
 
-  public GenericRow transform(GenericRecord avroRecord) {
-    Map<String, Object> rowEntries = new HashMap<String, Object>();
-    for (String column : indexingSchema.getColumnNames()) {
-      Object entry = avroRecord.get(column);
-      if (entry instanceof Utf8) {
-        entry = ((Utf8) entry).toString();
+  private int[] getFieldPositions(org.apache.avro.Schema schema) {
+    if (schema == lastAvroSchema) {
+      return lastFieldPositions;
+    }
+    int[] fieldPositions = fieldPositionsBySchema.get(schema);
+    if (fieldPositions == null) {
+      fieldPositions = new int[columns.length];
+      for (int i = 0; i < columns.length; i++) {
+        Field field = schema.getField(columns[i]);
+        fieldPositions[i] = field == null ? -1 : field.pos();
       }
-      if (entry instanceof Array) {
-        entry = AvroRecordReader.transformAvroArrayToObjectArray((Array) entry, indexingSchema.getFieldSpecFor(column));
+      fieldPositionsBySchema.put(schema, fieldPositions);
+    }
+    lastAvroSchema = schema;
+    lastFieldPositions = fieldPositions;
+    return fieldPositions;
+  }
+
+  private Object[] toObjectArray(int columnIndex, Object value) {
+    if (!(value instanceof Array) || ((Array) value).size() == 0) {
+      return new Object[] { defaultNullValues[columnIndex] };
+    }
+    Array array = (Array) value;
+    Object[] values = new Object[array.size()];
+    Iterator iterator = array.iterator();
+    int i = 0;
+    while (iterator.hasNext()) {
+      Object element = iterator.next();
+      if (element instanceof GenericRecord) {
+        element = ((GenericRecord) element).get(0);
       }
-      if (entry == null && indexingSchema.getFieldSpecFor(column).isSingleValueField()) {
-        entry = AvroRecordReader.getDefaultNullValue(indexingSchema.getFieldSpecFor(column));
+      if (element == null) {
+        element = defaultNullValues[columnIndex];
+      } else if (isStringColumn[columnIndex] || element instanceof Utf8) {
+        element = toString(columnIndex, element);
       }
-      rowEntries.put(column, entry);
+      values[i++] = element;
     }
+    return values;
+  }
 
-    GenericRow row = new GenericRow();
-    row.init(rowEntries);
-    return row;
+  private String toString(int columnIndex, Object value) {
+    if (!(value instanceof Utf8)) {
+      return value.toString();
+    }
+    Map<Utf8, String> strings = internedStrings.get(columnIndex);
+    String string = strings.get(value);
+    if (string == null) {
+      string = value.toString();
+      // The Utf8 of the record can be reused, the key must be a copy
+      if (strings.size() < MAX_NUM_INTERNED_STRINGS_PER_COLUMN) {
+        strings.put(new Utf8((Utf8) value), string);
+      }
+    }
+    return string;
   }
 }
@@ -21,11 +21,12 @@ import java.io.InputStreamReader;
 import java.net.URL;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 
-import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericData.Record;
 import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.commons.lang.StringUtils;
@@ -36,12 +37,20 @@ import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.core.data.GenericRow;
 
 
+/**
+ * Decodes Avro messages whose schema is looked up from the schema registry by the MD5 of the schema written in the
+ * message. The datum readers, the binary decoder and the Avro record are reused across messages, a decoder must not be
+ * shared between threads.
+ */
 public class KafkaAvroMessageDecoder implements KafkaMessageDecoder {
   private static final Logger LOGGER = LoggerFactory.getLogger(KafkaAvroMessageDecoder.class);
 
   public static final String SCHEMA_REGISTRY_REST_URL = "schema.registry.rest.url";
   private org.apache.avro.Schema defaultAvroSchema;
   private Map<String, org.apache.avro.Schema> md5ToAvroSchemaMap;
+  private Map<org.apache.avro.Schema, DatumReader<Record>> schemaToDatumReaderMap;
+  private BinaryDecoder binaryDecoder;
+  private Record avroRecord;
 
   private String schemaRegistryBaseUrl;
   private String kafkaTopicName;
@@ -60,6 +69,7 @@ public class KafkaAvroMessageDecoder implements KafkaMessageDecoder {
     this.avroRecordConvetrer = new AvroRecordToPinotRowGenerator(indexingSchema);
     this.decoderFactory = new DecoderFactory();
     md5ToAvroSchemaMap = new HashMap<String, org.apache.avro.Schema>();
+    schemaToDatumReaderMap = new IdentityHashMap<org.apache.avro.Schema, DatumReader<Record>>();
   }
 
   @Override
@@ -88,10 +98,15 @@ public class KafkaAvroMessageDecoder implements KafkaMessageDecoder {
     }
     int start = 1 + md5.length;
     int length = payload.length - 1 - md5.length;
-    DatumReader<Record> reader = new GenericDatumReader<Record>(schema);
+    DatumReader<Record> reader = schemaToDatumReaderMap.get(schema);
+    if (reader == null) {
+      reader = new GenericDatumReader<Record>(schema);
+      schemaToDatumReaderMap.put(schema, reader);
+    }
     try {
-      GenericData.Record avroRecord =
-          reader.read(null, decoderFactory.createBinaryDecoder(payload, start, length, null));
+      // The values of the record are copied into the row, the record can be reused for the next message
+      binaryDecoder = decoderFactory.binaryDecoder(payload, start, length, binaryDecoder);
+      avroRecord = reader.read(avroRecord, binaryDecoder);
       return avroRecordConvetrer.transform(avroRecord, schema);
     } catch (IOException e) {
       LOGGER.error("Caught exception while reading message", e);
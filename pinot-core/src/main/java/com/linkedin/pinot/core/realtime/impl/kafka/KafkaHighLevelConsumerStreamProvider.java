@@ -20,11 +20,12 @@ import java.util.Map;
 
 import kafka.consumer.ConsumerConfig;
 import kafka.consumer.ConsumerIterator;
+import kafka.consumer.ConsumerTimeoutException;
 import kafka.consumer.KafkaStream;
 import kafka.javaapi.consumer.ConsumerConnector;
 
 import com.linkedin.pinot.core.data.GenericRow;
-import com.linkedin.pinot.core.realtime.StreamProvider;
+import com.linkedin.pinot.core.realtime.RawMessageStreamProvider;
 import com.linkedin.pinot.core.realtime.StreamProviderConfig;
 import com.yammer.metrics.Metrics;
 import com.yammer.metrics.core.Counter;
@@ -36,8 +37,11 @@ import org.slf4j.LoggerFactory;
 /**
  *
  */
-public class KafkaHighLevelConsumerStreamProvider implements StreamProvider {
+public class KafkaHighLevelConsumerStreamProvider implements RawMessageStreamProvider {
   private static final Logger LOGGER = LoggerFactory.getLogger(KafkaHighLevelConsumerStreamProvider.class);
+  // Maximum time spent filling a batch of messages, a batch is handed out earlier when no message comes in for the
+  // consumer timeout
+  private static final long MAX_FETCH_TIME_IN_MILLIS = 100;
 
   private static Counter kafkaEventsConsumedCount = Metrics.newCounter(new MetricName(KafkaHighLevelConsumerStreamProvider.class, "kafkaEventsConsumedCount"));
   private static Counter kafkaEventsFailedCount = Metrics.newCounter(new MetricName(KafkaHighLevelConsumerStreamProvider.class, "kafkaEventsFailedCount"));
@@ -75,7 +79,7 @@ public class KafkaHighLevelConsumerStreamProvider implements StreamProvider {
 
   @Override
   public GenericRow next() {
-    if (kafkaIterator.hasNext()) {
+    if (hasNext()) {
       try {
         GenericRow row = decoder.decode(kafkaIterator.next().message());
         kafkaEventsConsumedCount.inc();
@@ -88,6 +92,41 @@ public class KafkaHighLevelConsumerStreamProvider implements StreamProvider {
     return null;
   }
 
+  /**
+   * Waits for the next message, across the timeouts of the consumer.
+   */
+  private boolean hasNext() {
+    while (true) {
+      try {
+        return kafkaIterator.hasNext();
+      } catch (ConsumerTimeoutException e) {
+        // Keep waiting
+      }
+    }
+  }
+
+  @Override
+  public boolean fetchMessages(List<byte[]> messages, int maxNumMessages) {
+    final long deadline = System.currentTimeMillis() + MAX_FETCH_TIME_IN_MILLIS;
+    try {
+      while (messages.size() < maxNumMessages && System.currentTimeMillis() < deadline) {
+        if (!kafkaIterator.hasNext()) {
+          return false;
+        }
+        messages.add(kafkaIterator.next().message());
+        kafkaEventsConsumedCount.inc();
+      }
+    } catch (ConsumerTimeoutException e) {
+      // No message came in for the consumer timeout, hand out the messages fetched so far
+    }
+    return true;
+  }
+
+  @Override
+  public KafkaMessageDecoder createDecoder() throws Exception {
+    return streamProviderConfig.getDecoder();
+  }
+
   @Override
   public GenericRow next(long offset) {
     throw new UnsupportedOperationException();
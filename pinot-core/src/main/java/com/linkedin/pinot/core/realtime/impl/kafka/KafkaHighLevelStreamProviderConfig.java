@@ -40,6 +40,8 @@ public class KafkaHighLevelStreamProviderConfig implements StreamProviderConfig
     defaultProps.put("zookeeper.sync.time.ms", "200");
     defaultProps.put("auto.commit.enable", "false");
     defaultProps.put("auto.offset.reset", "largest");
+    // Lets the consumer hand out the messages it fetched when no more message comes in
+    defaultProps.put("consumer.timeout.ms", "100");
   }
 
   private String kafkaTopicName;
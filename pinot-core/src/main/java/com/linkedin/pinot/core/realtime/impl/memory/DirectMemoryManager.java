@@ -0,0 +1,30 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.realtime.impl.memory;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Memory manager allocating direct byte buffers, bounded by the maximum direct memory of the JVM.
+ */
+public class DirectMemoryManager extends RealtimeMemoryManager {
+
+  @Override
+  protected ByteBuffer allocateBuffer(int size, String context) {
+    return ByteBuffer.allocateDirect(size);
+  }
+}
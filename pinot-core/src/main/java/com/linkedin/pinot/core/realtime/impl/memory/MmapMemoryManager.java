@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.realtime.impl.memory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Memory manager mapping one scratch file per buffer in a directory, so that the memory of the consuming segments can
+ * be paged out by the OS instead of being bounded by the maximum direct memory of the JVM.
+ *
+ * The scratch files are unlinked as soon as they are mapped, their space is reclaimed when the buffers are garbage
+ * collected and they are not left behind if the server dies.
+ */
+public class MmapMemoryManager extends RealtimeMemoryManager {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MmapMemoryManager.class);
+
+  private final File dir;
+  private final String filePrefix;
+  private final List<File> undeletedFiles = new ArrayList<File>();
+  private int numFiles = 0;
+
+  public MmapMemoryManager(File dir, String filePrefix) {
+    this.dir = dir;
+    this.filePrefix = filePrefix;
+    if (!dir.exists()) {
+      dir.mkdirs();
+    }
+  }
+
+  @Override
+  protected ByteBuffer allocateBuffer(int size, String context) throws IOException {
+    File file = new File(dir, filePrefix + "." + numFiles++ + ".buf");
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    try {
+      randomAccessFile.setLength(size);
+      return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    } finally {
+      randomAccessFile.close();
+      if (!file.delete()) {
+        undeletedFiles.add(file);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    super.close();
+    for (File file : undeletedFiles) {
+      if (!FileUtils.deleteQuietly(file)) {
+        LOGGER.warn("Failed to delete scratch file {}", file);
+      }
+    }
+    undeletedFiles.clear();
+  }
+}
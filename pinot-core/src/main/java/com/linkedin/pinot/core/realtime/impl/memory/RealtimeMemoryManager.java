@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.realtime.impl.memory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Allocates the off-heap buffers backing the forward indexes and dictionaries of a consuming realtime segment.
+ *
+ * The buffers are allocated in chunks as the segment grows. They are never unmapped explicitly, since queries may still
+ * read a segment after it is released: closing the manager drops its references to the buffers, whose memory is
+ * reclaimed by the garbage collector once the readers of the segment are gone too. The allocated size is tracked so
+ * that it can be reported while the segment is consuming.
+ */
+public abstract class RealtimeMemoryManager implements Closeable {
+  private final List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+  private volatile long allocatedBytes = 0;
+  private boolean closed = false;
+
+  /**
+   * Allocates a zeroed buffer of the given size in native byte order.
+   *
+   * @param size Size of the buffer in bytes
+   * @param context Description of what the buffer is used for, for logging
+   */
+  public synchronized ByteBuffer allocate(int size, String context) {
+    if (closed) {
+      throw new IllegalStateException("Cannot allocate " + size + " bytes for " + context + ", memory manager is closed");
+    }
+    ByteBuffer buffer;
+    try {
+      buffer = allocateBuffer(size, context);
+    } catch (IOException e) {
+      throw new RuntimeException("Caught exception while allocating " + size + " bytes for " + context, e);
+    }
+    buffer.order(ByteOrder.nativeOrder());
+    buffers.add(buffer);
+    allocatedBytes += size;
+    return buffer;
+  }
+
+  protected abstract ByteBuffer allocateBuffer(int size, String context) throws IOException;
+
+  /**
+   * Returns the number of bytes currently allocated by this manager.
+   */
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  public synchronized int getNumBuffers() {
+    return buffers.size();
+  }
+
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    buffers.clear();
+    allocatedBytes = 0;
+  }
+}
@@ -20,5 +20,7 @@ package com.linkedin.pinot.core.segment.creator;
  */
 
 public enum ForwardIndexType {
-  FIXED_BIT_COMPRESSED;
+  FIXED_BIT_COMPRESSED,
+  // Values stored as they are with a fixed number of bytes, for numeric columns without dictionary
+  FIXED_BYTE_RAW;
 }
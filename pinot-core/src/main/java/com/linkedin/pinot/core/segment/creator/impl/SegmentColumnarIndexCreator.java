@@ -20,11 +20,15 @@ import static com.linkedin.pinot.core.segment.creator.impl.V1Constants.MetadataK
 import static com.linkedin.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Column.COLUMN_TYPE;
 import static com.linkedin.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Column.DATA_TYPE;
 import static com.linkedin.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Column.DICTIONARY_ELEMENT_SIZE;
+import static com.linkedin.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Column.HAS_BLOOM_FILTER;
 import static com.linkedin.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Column.HAS_INVERTED_INDEX;
 import static com.linkedin.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Column.HAS_NULL_VALUE;
+import static com.linkedin.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Column.HAS_VAR_LENGTH_DICTIONARY;
 import static com.linkedin.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Column.IS_SINGLE_VALUED;
 import static com.linkedin.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Column.IS_SORTED;
 import static com.linkedin.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Column.MAX_MULTI_VALUE_ELEMTS;
+import static com.linkedin.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Column.MAX_VALUE;
+import static com.linkedin.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Column.MIN_VALUE;
 import static com.linkedin.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Column.TOTAL_DOCS;
 import static com.linkedin.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Column.TOTAL_NUMBER_OF_ENTRIES;
 import static com.linkedin.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Segment.DIMENSIONS;
@@ -41,23 +45,29 @@ import static com.linkedin.pinot.core.segment.creator.impl.V1Constants.MetadataK
 import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
 
 import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
 import com.linkedin.pinot.core.segment.creator.ColumnIndexCreationInfo;
 import com.linkedin.pinot.core.segment.creator.ForwardIndexCreator;
+import com.linkedin.pinot.core.segment.creator.ForwardIndexType;
 import com.linkedin.pinot.core.segment.creator.InvertedIndexCreator;
 import com.linkedin.pinot.core.segment.creator.SegmentCreator;
 import com.linkedin.pinot.core.segment.creator.impl.fwd.MultiValueUnsortedForwardIndexCreator;
+import com.linkedin.pinot.core.segment.creator.impl.fwd.SingleValueRawForwardIndexCreator;
 import com.linkedin.pinot.core.segment.creator.impl.fwd.SingleValueSortedForwardIndexCreator;
 import com.linkedin.pinot.core.segment.creator.impl.fwd.SingleValueUnsortedForwardIndexCreator;
 import com.linkedin.pinot.core.segment.creator.impl.inv.BitmapInvertedIndexCreator;
+import com.linkedin.pinot.core.segment.index.ColumnBloomFilter;
 
 
 /**
@@ -73,6 +83,7 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
   private Map<String, SegmentDictionaryCreator> dictionaryCreatorMap;
   private Map<String, ForwardIndexCreator> forwardIndexCreatorMap;
   private Map<String, InvertedIndexCreator> invertedIndexCreatorMap;
+  private Map<String, SingleValueRawForwardIndexCreator> rawForwardIndexCreatorMap;
   private String segmentName;
 
   private Schema schema;
@@ -80,6 +91,7 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
   private int totalDocs;
   private int docIdCounter;
   private Map<String, Map<Object, Object>> dictionaryCache = new HashMap<String, Map<Object, Object>>();
+  private Set<String> bloomFilterColumns = new HashSet<String>();
 
   @Override
   public void init(SegmentGeneratorConfig segmentCreationSpec,
@@ -92,6 +104,7 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
     forwardIndexCreatorMap = new HashMap<String, ForwardIndexCreator>();
     this.indexCreationInfoMap = indexCreationInfoMap;
     invertedIndexCreatorMap = new HashMap<String, InvertedIndexCreator>();
+    rawForwardIndexCreatorMap = new HashMap<String, SingleValueRawForwardIndexCreator>();
     file = outDir;
 
     // Check that the output directory does not exist
@@ -109,10 +122,16 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
     for (final FieldSpec spec : schema.getAllFieldSpecs()) {
       final ColumnIndexCreationInfo info = indexCreationInfoMap.get(spec.getName());
       if (info.isCreateDictionary()) {
-        dictionaryCreatorMap.put(spec.getName(),
-            new SegmentDictionaryCreator(info.hasNulls(), info.getSortedUniqueElementsArray(), spec, file));
+        final boolean varLengthDictionary = spec.getDataType() == DataType.STRING
+            && config.getVarLengthDictionaryColumns() != null
+            && config.getVarLengthDictionaryColumns().contains(spec.getName());
+        dictionaryCreatorMap.put(spec.getName(), new SegmentDictionaryCreator(info.hasNulls(),
+            info.getSortedUniqueElementsArray(), spec, file, varLengthDictionary));
+      } else if (info.getForwardIndexType() == ForwardIndexType.FIXED_BYTE_RAW) {
+        rawForwardIndexCreatorMap.put(spec.getName(), new SingleValueRawForwardIndexCreator(spec, file, totalDocs));
       } else {
-        throw new RuntimeException("Creation of indices without dictionaries is not implemented!");
+        throw new RuntimeException("Creation of indices without dictionaries is only implemented for raw forward"
+            + " indexes, column : " + spec.getName());
       }
     }
 
@@ -167,9 +186,51 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
         invertedIndexCreatorMap.get(column).add(docIdCounter, dictionaryIndex);
       }
     }
+    for (final String column : rawForwardIndexCreatorMap.keySet()) {
+      rawForwardIndexCreatorMap.get(column).index(docIdCounter, row.getValue(column));
+    }
     docIdCounter++;
   }
 
+  /**
+   * Returns the dictionary id of a value of a dictionary encoded column, for single as well as multi value columns.
+   */
+  public int getDictionaryId(String column, Object value) {
+    final SegmentDictionaryCreator dictionaryCreator = dictionaryCreatorMap.get(column);
+    if (schema.getFieldSpecFor(column).isSingleValueField()) {
+      return (Integer) dictionaryCreator.indexOf(value);
+    }
+    return ((Integer[]) dictionaryCreator.indexOf(new Object[] { value }))[0];
+  }
+
+  /**
+   * Indexes the dictionary id of a single value column for a document, when the columns are indexed one after the
+   * other instead of row by row.
+   */
+  public void indexSingleValue(String column, int docId, int dictionaryId) {
+    forwardIndexCreatorMap.get(column).index(docId, dictionaryId);
+    if (config.createInvertedIndexEnabled()) {
+      invertedIndexCreatorMap.get(column).add(docId, dictionaryId);
+    }
+  }
+
+  /**
+   * Indexes the dictionary ids of a multi value column for a document, the array is sorted in place.
+   */
+  public void indexMultiValue(String column, int docId, Integer[] dictionaryIds) {
+    forwardIndexCreatorMap.get(column).index(docId, dictionaryIds);
+    if (config.createInvertedIndexEnabled()) {
+      invertedIndexCreatorMap.get(column).add(docId, dictionaryIds);
+    }
+  }
+
+  /**
+   * Indexes the value of a column stored without dictionary for a document.
+   */
+  public void indexRawValue(String column, int docId, Object value) {
+    rawForwardIndexCreatorMap.get(column).index(docId, value);
+  }
+
   @Override
   public void setSegmentName(String segmentName) {
     this.segmentName = segmentName;
@@ -184,9 +245,51 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
       }
       dictionaryCreatorMap.get(column).close();
     }
+    for (final String column : rawForwardIndexCreatorMap.keySet()) {
+      rawForwardIndexCreatorMap.get(column).close();
+    }
+    writeBloomFilters();
     writeMetadata();
   }
 
+  void writeBloomFilters() throws IOException {
+    if (config.getBloomFilterColumns() == null) {
+      return;
+    }
+    for (final String column : config.getBloomFilterColumns()) {
+      final ColumnIndexCreationInfo info = indexCreationInfoMap.get(column);
+      if (info == null) {
+        continue;
+      }
+      // All the values of the column are known from the dictionary
+      final Object[] values = info.getSortedUniqueElementsArray();
+      final ColumnBloomFilter bloomFilter =
+          ColumnBloomFilter.create(values.length, config.getBloomFilterFalsePositiveProbability());
+      for (final Object value : values) {
+        bloomFilter.add(value);
+      }
+      bloomFilter.writeTo(new File(file, column + V1Constants.Indexes.BLOOM_FILTER_FILE_EXTENSION));
+      bloomFilterColumns.add(column);
+    }
+  }
+
+  /**
+   * Min and max values are only recorded for numeric columns, string values would not survive the properties file
+   * as they are, and are not ordered the same way as in the padded dictionary.
+   */
+  private static boolean isRecordableMinMaxValue(Object value) {
+    if (value instanceof Integer || value instanceof Long) {
+      return true;
+    }
+    if (value instanceof Float) {
+      return !((Float) value).isNaN() && !((Float) value).isInfinite();
+    }
+    if (value instanceof Double) {
+      return !((Double) value).isNaN() && !((Double) value).isInfinite();
+    }
+    return false;
+  }
+
   void writeMetadata() throws ConfigurationException {
     final PropertiesConfiguration properties =
         new PropertiesConfiguration(new File(file, V1Constants.MetadataKeys.METADATA_FILE_NAME));
@@ -221,6 +324,7 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
     }
 
     for (final String column : indexCreationInfoMap.keySet()) {
+      final SegmentDictionaryCreator dictionaryCreator = dictionaryCreatorMap.get(column);
       properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, CARDINALITY),
           String.valueOf(indexCreationInfoMap.get(column).getSortedUniqueElementsArray().length));
       properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, TOTAL_DOCS), String.valueOf(totalDocs));
@@ -231,7 +335,7 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
               .getSortedUniqueElementsArray().length)));
 
       properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, DICTIONARY_ELEMENT_SIZE),
-          String.valueOf(dictionaryCreatorMap.get(column).getStringColumnMaxLength()));
+          String.valueOf(dictionaryCreator == null ? 0 : dictionaryCreator.getStringColumnMaxLength()));
 
       properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, COLUMN_TYPE),
           String.valueOf(schema.getFieldSpecFor(column).getFieldType().toString()));
@@ -246,7 +350,7 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
           String.valueOf(indexCreationInfoMap.get(column).isCreateDictionary()));
 
       properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, HAS_INVERTED_INDEX),
-          String.valueOf(true));
+          String.valueOf(dictionaryCreator != null));
 
       properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, IS_SINGLE_VALUED),
           String.valueOf(schema.getFieldSpecFor(column).isSingleValueField()));
@@ -257,6 +361,17 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
       properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, TOTAL_NUMBER_OF_ENTRIES),
           String.valueOf(indexCreationInfoMap.get(column).getTotalNumberOfEntries()));
 
+      final Object min = indexCreationInfoMap.get(column).getMin();
+      final Object max = indexCreationInfoMap.get(column).getMax();
+      if (isRecordableMinMaxValue(min) && isRecordableMinMaxValue(max)) {
+        properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, MIN_VALUE), String.valueOf(min));
+        properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, MAX_VALUE), String.valueOf(max));
+      }
+
+      properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, HAS_BLOOM_FILTER),
+          String.valueOf(bloomFilterColumns.contains(column)));
+      properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, HAS_VAR_LENGTH_DICTIONARY),
+          String.valueOf(dictionaryCreator != null && dictionaryCreator.isVarLengthDictionary()));
     }
 
     properties.save();
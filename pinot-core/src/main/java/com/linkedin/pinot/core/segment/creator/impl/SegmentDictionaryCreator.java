@@ -27,6 +27,7 @@ import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.core.index.reader.impl.FixedByteWidthRowColDataFileReader;
 import com.linkedin.pinot.core.index.writer.impl.FixedByteWidthRowColDataFileWriter;
 import com.linkedin.pinot.core.indexsegment.utils.ByteBufferBinarySearchUtil;
+import com.linkedin.pinot.core.segment.index.readers.VarLengthStringDictionary;
 
 
 public class SegmentDictionaryCreator implements Closeable {
@@ -36,18 +37,37 @@ public class SegmentDictionaryCreator implements Closeable {
   private FixedByteWidthRowColDataFileReader dataReader;
   private ByteBufferBinarySearchUtil searchableByteBuffer;
   private int stringColumnMaxLength = 0;
+  private final boolean varLengthDictionary;
+  // Sorted values of a variable length string dictionary
+  private String[] sortedStrings;
 
   public SegmentDictionaryCreator(boolean hasNulls, Object[] sortedList, FieldSpec spec, File indexDir)
       throws IOException {
+    this(hasNulls, sortedList, spec, indexDir, false);
+  }
+
+  /**
+   * @param varLengthDictionary true to store the values of a string column with their own length, see
+   *          {@link VarLengthStringDictionary}.
+   */
+  public SegmentDictionaryCreator(boolean hasNulls, Object[] sortedList, FieldSpec spec, File indexDir,
+      boolean varLengthDictionary) throws IOException {
     this.sortedList = sortedList;
     this.spec = spec;
+    this.varLengthDictionary = varLengthDictionary;
     dictionaryFile = new File(indexDir, spec.getName() + ".dict");
     FileUtils.touch(dictionaryFile);
   }
 
   @Override
   public void close() throws IOException {
-    dataReader.close();
+    if (dataReader != null) {
+      dataReader.close();
+    }
+  }
+
+  public boolean isVarLengthDictionary() {
+    return varLengthDictionary;
   }
 
   public void build() throws Exception {
@@ -114,6 +134,16 @@ public class SegmentDictionaryCreator implements Closeable {
           }
         }
 
+        if (varLengthDictionary) {
+          sortedStrings = new String[sortedList.length];
+          for (int i = 0; i < sortedList.length; i++) {
+            sortedStrings[i] = sortedList[i].toString();
+          }
+          Arrays.sort(sortedStrings);
+          VarLengthStringDictionary.write(dictionaryFile, sortedStrings);
+          return;
+        }
+
         final FixedByteWidthRowColDataFileWriter stringDictionaryWrite =
             new FixedByteWidthRowColDataFileWriter(dictionaryFile, sortedList.length, 1,
                 new int[] { stringColumnMaxLength });
@@ -160,6 +190,9 @@ public class SegmentDictionaryCreator implements Closeable {
   }
 
   private Integer indexOfSV(Object e) {
+    if (sortedStrings != null) {
+      return Arrays.binarySearch(sortedStrings, e.toString());
+    }
     switch (spec.getDataType()) {
       case INT:
         final int intValue = ((Integer) e).intValue();
@@ -193,6 +226,12 @@ public class SegmentDictionaryCreator implements Closeable {
 
     final Object[] multiValues = (Object[]) e;
     final Integer[] ret = new Integer[multiValues.length];
+    if (sortedStrings != null) {
+      for (int i = 0; i < multiValues.length; i++) {
+        ret[i] = Arrays.binarySearch(sortedStrings, multiValues[i].toString());
+      }
+      return ret;
+    }
 
     switch (spec.getDataType()) {
       case INT:
@@ -33,6 +33,7 @@ import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.data.readers.RecordReader;
 import com.linkedin.pinot.core.data.readers.RecordReaderFactory;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentVersion;
 import com.linkedin.pinot.core.segment.creator.ColumnIndexCreationInfo;
 import com.linkedin.pinot.core.segment.creator.ForwardIndexType;
 import com.linkedin.pinot.core.segment.creator.InvertedIndexType;
@@ -40,6 +41,7 @@ import com.linkedin.pinot.core.segment.creator.SegmentCreator;
 import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
 import com.linkedin.pinot.core.segment.creator.SegmentPreIndexStatsCollector;
 import com.linkedin.pinot.core.segment.creator.impl.stats.SegmentPreIndexStatsCollectorImpl;
+import com.linkedin.pinot.core.segment.index.converter.SegmentV1ToV2Converter;
 import com.linkedin.pinot.core.util.CrcUtils;
 
 
@@ -70,15 +72,26 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
   }
 
   public void init(SegmentGeneratorConfig config, RecordReader reader) throws Exception {
-    this.config = config;
     // Initialize the record reader
     recordReader = reader;
     recordReader.init();
-    dataSchema = recordReader.getSchema();
+    init(config, recordReader.getSchema());
 
     // Initialize stats collection
     statsCollector = new SegmentPreIndexStatsCollectorImpl(recordReader.getSchema());
     statsCollector.init();
+  }
+
+  /**
+   * Initializes the driver to build a segment whose columns are indexed by the caller instead of being read row by row
+   * from a record reader, the caller already knowing the statistics of the columns.
+   *
+   * @see #initIndexCreator(Map, int)
+   * @see #sealSegment()
+   */
+  public void init(SegmentGeneratorConfig config, Schema dataSchema) throws Exception {
+    this.config = config;
+    this.dataSchema = dataSchema;
 
     // Initialize index creation
     indexCreationInfoMap = new HashMap<String, ColumnIndexCreationInfo>();
@@ -130,6 +143,29 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     recordReader.close();
     LOGGER.info("Finished records indexing in IndexCreator!");
 
+    sealSegment();
+
+    LOGGER.info("Driver, record read time : {}", totalRecordReadTime);
+    LOGGER.info("Driver, stats collector time : {}", totalStatsCollectorTime);
+    LOGGER.info("Driver, indexing time : {}", totalIndexTime);
+  }
+
+  /**
+   * Initializes the index creator with the statistics of the columns, and builds their dictionaries. The forward and
+   * inverted indexes are then written by the caller through the returned index creator, before sealing the segment.
+   */
+  public SegmentColumnarIndexCreator initIndexCreator(Map<String, ColumnIndexCreationInfo> indexCreationInfoMap,
+      int totalDocs) throws Exception {
+    this.indexCreationInfoMap.putAll(indexCreationInfoMap);
+    this.totalDocs = totalDocs;
+    indexCreator.init(config, this.indexCreationInfoMap, dataSchema, totalDocs, tempIndexDir);
+    return (SegmentColumnarIndexCreator) indexCreator;
+  }
+
+  /**
+   * Names the segment once all the documents are indexed, and writes it to its final location.
+   */
+  public void sealSegment() throws Exception {
     // Build the segment name, if necessary
     final String timeColumn = config.getTimeColumnName();
 
@@ -137,8 +173,8 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
       segmentName = config.getSegmentName();
     } else {
       if (timeColumn != null && timeColumn.length() > 0) {
-        final Object minTimeValue = statsCollector.getColumnProfileFor(timeColumn).getMinValue();
-        final Object maxTimeValue = statsCollector.getColumnProfileFor(timeColumn).getMaxValue();
+        final Object minTimeValue = indexCreationInfoMap.get(timeColumn).getMin();
+        final Object maxTimeValue = indexCreationInfoMap.get(timeColumn).getMax();
         segmentName =
             SegmentNameBuilder.buildBasic(config.getTableName(), minTimeValue, maxTimeValue,
                 config.getSegmentNamePostfix());
@@ -166,15 +202,16 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     // Delete the temporary directory
     FileUtils.deleteQuietly(tempIndexDir);
 
+    // Pack the column indexes into a single file if asked for
+    if (config.getSegmentVersion() == SegmentVersion.v2) {
+      SegmentV1ToV2Converter.convertInPlace(segmentOutputDir);
+    }
+
     // Compute CRC
     final long crc = CrcUtils.forAllFilesInFolder(segmentOutputDir).computeCrc();
 
     // Persist creation metadata to disk
     persistCreationMeta(segmentOutputDir, crc);
-
-    LOGGER.info("Driver, record read time : {}", totalRecordReadTime);
-    LOGGER.info("Driver, stats collector time : {}", totalStatsCollectorTime);
-    LOGGER.info("Driver, indexing time : {}", totalIndexTime);
   }
 
   public void ovveriteSegmentName(String segmentName) {
@@ -212,15 +249,40 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     statsCollector.build();
     for (final FieldSpec spec : dataSchema.getAllFieldSpecs()) {
       final String column = spec.getName();
+      final boolean createDictionary = !isNoDictionaryColumn(spec);
       indexCreationInfoMap.put(
           column,
-          new ColumnIndexCreationInfo(true, // Use dictionary encoding
-              statsCollector.getColumnProfileFor(column).getMinValue(), statsCollector.getColumnProfileFor(column)
-                  .getMaxValue(), statsCollector.getColumnProfileFor(column).getUniqueValuesSet(),
-              ForwardIndexType.FIXED_BIT_COMPRESSED, InvertedIndexType.P4_DELTA, statsCollector.getColumnProfileFor(
-                  column).isSorted(), statsCollector.getColumnProfileFor(column).hasNull(), statsCollector
-                  .getColumnProfileFor(column).getTotalNumberOfEntries(), statsCollector.getColumnProfileFor(column)
-                  .getMaxNumberOfMultiValues()));
+          new ColumnIndexCreationInfo(createDictionary, statsCollector.getColumnProfileFor(column).getMinValue(),
+              statsCollector.getColumnProfileFor(column).getMaxValue(), statsCollector.getColumnProfileFor(column)
+                  .getUniqueValuesSet(), createDictionary ? ForwardIndexType.FIXED_BIT_COMPRESSED
+                  : ForwardIndexType.FIXED_BYTE_RAW, InvertedIndexType.P4_DELTA, createDictionary
+                  && statsCollector.getColumnProfileFor(column).isSorted(), statsCollector
+                  .getColumnProfileFor(column).hasNull(), statsCollector.getColumnProfileFor(column)
+                  .getTotalNumberOfEntries(), statsCollector.getColumnProfileFor(column).getMaxNumberOfMultiValues()));
+    }
+  }
+
+  /**
+   * Only numeric single value columns can be stored without dictionary, the others are dictionary encoded even when
+   * configured otherwise.
+   */
+  public boolean isNoDictionaryColumn(FieldSpec spec) {
+    if (config.getNoDictionaryColumns() == null || !config.getNoDictionaryColumns().contains(spec.getName())) {
+      return false;
+    }
+    if (!spec.isSingleValueField()) {
+      LOGGER.warn("Multi value column {} is dictionary encoded", spec.getName());
+      return false;
+    }
+    switch (spec.getDataType()) {
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+        return true;
+      default:
+        LOGGER.warn("Column {} of type {} is dictionary encoded", spec.getName(), spec.getDataType());
+        return false;
     }
   }
 
@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.creator.impl.fwd;
+
+import java.io.Closeable;
+import java.io.File;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.core.index.writer.impl.FixedByteWidthRowColDataFileWriter;
+import com.linkedin.pinot.core.segment.creator.ForwardIndexCreator;
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+
+
+/**
+ * Forward index of a numeric single value column without dictionary: the value of each document is stored as it is,
+ * with the fixed number of bytes of the data type of the column.
+ */
+public class SingleValueRawForwardIndexCreator implements Closeable, ForwardIndexCreator {
+
+  private final DataType dataType;
+  private final FixedByteWidthRowColDataFileWriter writer;
+
+  public SingleValueRawForwardIndexCreator(FieldSpec spec, File baseIndexDir, int numDocs) throws Exception {
+    dataType = spec.getDataType();
+    File forwardIndexFile = new File(baseIndexDir, spec.getName() + V1Constants.Indexes.RAW_SV_FWD_IDX_FILE_EXTENTION);
+    writer = new FixedByteWidthRowColDataFileWriter(forwardIndexFile, numDocs, 1, getColumnSizes(dataType));
+  }
+
+  /**
+   * @return the size in bytes of the values of a raw forward index of the given data type.
+   */
+  public static int[] getColumnSizes(DataType dataType) {
+    switch (dataType) {
+      case INT:
+        return V1Constants.Dict.INT_DICTIONARY_COL_SIZE;
+      case LONG:
+        return V1Constants.Dict.LONG_DICTIONARY_COL_SIZE;
+      case FLOAT:
+        return V1Constants.Dict.FLOAT_DICTIONARY_COL_SIZE;
+      case DOUBLE:
+        return V1Constants.Dict.DOUBLE_DICTIONARY_COL_SIZE;
+      default:
+        throw new UnsupportedOperationException("Unsupported data type for raw forward index : " + dataType);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * @see com.linkedin.pinot.core.segment.creator.ForwardIndexCreator#index(int, Object)
+   */
+  @Override
+  public void index(int docId, Object e) {
+    final Number value = (Number) e;
+    switch (dataType) {
+      case INT:
+        writer.setInt(docId, 0, value.intValue());
+        break;
+      case LONG:
+        writer.setLong(docId, 0, value.longValue());
+        break;
+      case FLOAT:
+        writer.setFloat(docId, 0, value.floatValue());
+        break;
+      case DOUBLE:
+        writer.setDouble(docId, 0, value.doubleValue());
+        break;
+      default:
+        throw new UnsupportedOperationException("Unsupported data type for raw forward index : " + dataType);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * @see com.linkedin.pinot.core.segment.creator.ForwardIndexCreator#close()
+   */
+  @Override
+  public void close() {
+    writer.close();
+  }
+}
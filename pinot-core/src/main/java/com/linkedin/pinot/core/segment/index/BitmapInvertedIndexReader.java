@@ -57,6 +57,14 @@ public class BitmapInvertedIndexReader implements InvertedIndexReader {
     load(file, isMmap);
   }
 
+  /**
+   * Constructs an inverted index on a buffer holding the content of an inverted index file.
+   */
+  public BitmapInvertedIndexReader(ByteBuffer buffer, int cardinality) {
+    numberOfBitmaps = cardinality;
+    this.buffer = buffer;
+  }
+
   /**
    * {@inheritDoc}
    * @see com.linkedin.pinot.core.segment.index.InvertedIndexReader#getImmutable(int)
@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+
+
+/**
+ * Bloom filter of the values of a column of a segment, persisted next to the column indexes.
+ *
+ * Values are added and looked up through their string form, with the numeric values of the lookups first parsed as the
+ * column data type so that eg. "1" and "1.0" hit the same bits of a float column.
+ */
+public class ColumnBloomFilter {
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+  private final long[] _bits;
+  private final long _numBits;
+  private final int _numHashFunctions;
+
+  private ColumnBloomFilter(long[] bits, int numHashFunctions) {
+    _bits = bits;
+    _numBits = (long) bits.length * 64;
+    _numHashFunctions = numHashFunctions;
+  }
+
+  /**
+   * Creates an empty bloom filter sized for the given number of values and false positive probability.
+   */
+  public static ColumnBloomFilter create(int expectedNumValues, double falsePositiveProbability) {
+    final int numValues = Math.max(expectedNumValues, 1);
+    final long numBits =
+        Math.max(64, (long) (-numValues * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2))));
+    // Optimal number of hash functions for the probability, rather than for the (possibly rounded up) number of bits
+    final int numHashFunctions = Math.max(1, (int) Math.round(-Math.log(falsePositiveProbability) / Math.log(2)));
+    return new ColumnBloomFilter(new long[(int) ((numBits + 63) / 64)], numHashFunctions);
+  }
+
+  public void add(Object value) {
+    final long[] hashes = hash(value.toString());
+    for (int i = 0; i < _numHashFunctions; i++) {
+      final long bit = bitIndex(hashes, i);
+      _bits[(int) (bit >>> 6)] |= 1L << bit;
+    }
+  }
+
+  /**
+   * Returns false if the value is definitely not in the column, true if it might be.
+   *
+   * @param dataType Data type of the column
+   * @param value String form of the value, as given in the query
+   */
+  public boolean mightContain(DataType dataType, String value) {
+    final String normalizedValue;
+    try {
+      switch (dataType) {
+        case INT:
+        case INT_ARRAY:
+          normalizedValue = String.valueOf(Integer.parseInt(value));
+          break;
+        case LONG:
+        case LONG_ARRAY:
+          normalizedValue = String.valueOf(Long.parseLong(value));
+          break;
+        case FLOAT:
+        case FLOAT_ARRAY:
+          normalizedValue = String.valueOf(Float.parseFloat(value));
+          break;
+        case DOUBLE:
+        case DOUBLE_ARRAY:
+          normalizedValue = String.valueOf(Double.parseDouble(value));
+          break;
+        default:
+          normalizedValue = value;
+          break;
+      }
+    } catch (NumberFormatException e) {
+      // Not a value of the column type, leave it to the query execution
+      return true;
+    }
+    final long[] hashes = hash(normalizedValue);
+    for (int i = 0; i < _numHashFunctions; i++) {
+      final long bit = bitIndex(hashes, i);
+      if ((_bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long[] hash(String value) {
+    final ByteBuffer buffer = ByteBuffer.wrap(HASH_FUNCTION.hashBytes(value.getBytes(UTF8)).asBytes());
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    // Odd second hash, so that the probes do not cycle over a few bits when the number of bits is a power of two
+    return new long[] { buffer.getLong(), buffer.getLong() | 1L };
+  }
+
+  private long bitIndex(long[] hashes, int i) {
+    final long combinedHash = hashes[0] + i * hashes[1];
+    return (combinedHash & Long.MAX_VALUE) % _numBits;
+  }
+
+  public void writeTo(File file) throws IOException {
+    final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    try {
+      out.writeInt(_numHashFunctions);
+      out.writeInt(_bits.length);
+      for (long word : _bits) {
+        out.writeLong(word);
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  public static ColumnBloomFilter readFrom(File file) throws IOException {
+    final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try {
+      final int numHashFunctions = in.readInt();
+      final long[] bits = new long[in.readInt()];
+      for (int i = 0; i < bits.length; i++) {
+        bits[i] = in.readLong();
+      }
+      return new ColumnBloomFilter(bits, numHashFunctions);
+    } finally {
+      in.close();
+    }
+  }
+
+  public static ColumnBloomFilter readFrom(ByteBuffer buffer) {
+    final ByteBuffer in = buffer.duplicate();
+    final int numHashFunctions = in.getInt();
+    final long[] bits = new long[in.getInt()];
+    for (int i = 0; i < bits.length; i++) {
+      bits[i] = in.getLong();
+    }
+    return new ColumnBloomFilter(bits, numHashFunctions);
+  }
+}
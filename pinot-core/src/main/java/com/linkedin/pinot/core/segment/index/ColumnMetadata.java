@@ -51,11 +51,34 @@ public class ColumnMetadata {
   private final TimeUnit timeunit;
   private final boolean hasDictionary;
   private final int totalNumberOfEntries;
+  private final String minValue;
+  private final String maxValue;
+  private final boolean hasBloomFilter;
+  private final boolean hasVarLengthDictionary;
 
   public ColumnMetadata(String columnName, int cardinality, int totalDocs, DataType dataType, int bitsPerElement,
       int stringColumnMaxLength, FieldType fieldType, boolean isSorted, boolean hasInvertedIndex,
       boolean insSingleValue, int maxNumberOfMultiValues, boolean hasNulls, boolean hasDictionary, TimeUnit timeunit,
       int totalNumberOfEntries) {
+    this(columnName, cardinality, totalDocs, dataType, bitsPerElement, stringColumnMaxLength, fieldType, isSorted,
+        hasInvertedIndex, insSingleValue, maxNumberOfMultiValues, hasNulls, hasDictionary, timeunit,
+        totalNumberOfEntries, null, null, false);
+  }
+
+  public ColumnMetadata(String columnName, int cardinality, int totalDocs, DataType dataType, int bitsPerElement,
+      int stringColumnMaxLength, FieldType fieldType, boolean isSorted, boolean hasInvertedIndex,
+      boolean insSingleValue, int maxNumberOfMultiValues, boolean hasNulls, boolean hasDictionary, TimeUnit timeunit,
+      int totalNumberOfEntries, String minValue, String maxValue, boolean hasBloomFilter) {
+    this(columnName, cardinality, totalDocs, dataType, bitsPerElement, stringColumnMaxLength, fieldType, isSorted,
+        hasInvertedIndex, insSingleValue, maxNumberOfMultiValues, hasNulls, hasDictionary, timeunit,
+        totalNumberOfEntries, minValue, maxValue, hasBloomFilter, false);
+  }
+
+  public ColumnMetadata(String columnName, int cardinality, int totalDocs, DataType dataType, int bitsPerElement,
+      int stringColumnMaxLength, FieldType fieldType, boolean isSorted, boolean hasInvertedIndex,
+      boolean insSingleValue, int maxNumberOfMultiValues, boolean hasNulls, boolean hasDictionary, TimeUnit timeunit,
+      int totalNumberOfEntries, String minValue, String maxValue, boolean hasBloomFilter,
+      boolean hasVarLengthDictionary) {
 
     this.columnName = columnName;
     this.cardinality = cardinality;
@@ -72,6 +95,10 @@ public class ColumnMetadata {
     this.timeunit = timeunit;
     this.hasDictionary = hasDictionary;
     this.totalNumberOfEntries = totalNumberOfEntries;
+    this.minValue = minValue;
+    this.maxValue = maxValue;
+    this.hasBloomFilter = hasBloomFilter;
+    this.hasVarLengthDictionary = hasVarLengthDictionary;
   }
 
   public int getTotalNumberOfEntries() {
@@ -170,4 +197,29 @@ public class ColumnMetadata {
   public boolean hasDictionary() {
     return hasDictionary;
   }
+
+  /**
+   * @return min value of the column, null if not recorded in the segment metadata (eg. for string columns).
+   */
+  public String getMinValue() {
+    return minValue;
+  }
+
+  /**
+   * @return max value of the column, null if not recorded in the segment metadata (eg. for string columns).
+   */
+  public String getMaxValue() {
+    return maxValue;
+  }
+
+  public boolean hasBloomFilter() {
+    return hasBloomFilter;
+  }
+
+  /**
+   * @return true if the values of the string dictionary are stored with their own length instead of being padded.
+   */
+  public boolean hasVarLengthDictionary() {
+    return hasVarLengthDictionary;
+  }
 }
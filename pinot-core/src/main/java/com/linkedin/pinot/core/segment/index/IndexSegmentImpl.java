@@ -16,11 +16,19 @@
 package com.linkedin.pinot.core.segment.index;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.linkedin.pinot.common.metadata.segment.IndexLoadingConfigMetadata;
+import com.linkedin.pinot.common.segment.ReadMode;
 import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.core.common.DataSource;
 import com.linkedin.pinot.core.common.Predicate;
@@ -34,6 +42,10 @@ import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
 
 /**
  * Nov 12, 2014
+ *
+ * The index containers of the columns are either all loaded along with the segment, or loaded on the first access to
+ * each column when the segment is created with {@link #createLazy}. Lazily loaded columns which are not accessed for a
+ * while can be released with {@link #releaseIdleColumns}, and are loaded again on their next access.
  */
 
 public class IndexSegmentImpl implements IndexSegment {
@@ -42,25 +54,316 @@ public class IndexSegmentImpl implements IndexSegment {
   private final File indexDir;
   private final SegmentMetadataImpl segmentMetadata;
   private final Map<String, ColumnIndexContainer> indexContainerMap;
+  private final Map<String, ColumnBloomFilter> bloomFilterMap;
+  private final SingleFileIndexDirectory singleFileIndex;
+
+  // Lazy loading of the columns, the loading config and read mode are null when all the columns are loaded upfront
+  private final IndexLoadingConfigMetadata indexLoadingConfigMetadata;
+  private final ReadMode readMode;
+  // One per column of the segment, also used as the lock to load, release and swap the index container of the column
+  private final Map<String, ColumnLoadStats> columnLoadStatsMap = new HashMap<String, ColumnLoadStats>();
+  // Released index containers to close, in release order. A column is not released again until its released index
+  // container is closed, so that there are at most two open index containers per column
+  private final List<ReleasedIndexContainer> releasedIndexContainers = new ArrayList<ReleasedIndexContainer>();
+  // Sequence number of the last released index container, guarded by releasedIndexContainers
+  private long lastReleaseSequence = 0;
+  private volatile boolean destroyed = false;
+  // Background tasks reading the segment (eg. the creation of the missing inverted indexes), destroy waits for them
+  private final Object backgroundTaskLock = new Object();
+  private int numBackgroundTasks = 0;
 
   public IndexSegmentImpl(File indexDir, SegmentMetadataImpl segmentMetadata,
       Map<String, ColumnIndexContainer> columnIndexContainerMap) throws Exception {
+    this(indexDir, segmentMetadata, columnIndexContainerMap, Collections.<String, ColumnBloomFilter> emptyMap());
+  }
+
+  public IndexSegmentImpl(File indexDir, SegmentMetadataImpl segmentMetadata,
+      Map<String, ColumnIndexContainer> columnIndexContainerMap, Map<String, ColumnBloomFilter> columnBloomFilterMap)
+      throws Exception {
+    this(indexDir, segmentMetadata, columnIndexContainerMap, columnBloomFilterMap, null);
+  }
+
+  /**
+   * @param singleFileIndex index file of a v2 segment, which the readers of the columns are slices of, null for v1.
+   */
+  public IndexSegmentImpl(File indexDir, SegmentMetadataImpl segmentMetadata,
+      Map<String, ColumnIndexContainer> columnIndexContainerMap, Map<String, ColumnBloomFilter> columnBloomFilterMap,
+      SingleFileIndexDirectory singleFileIndex) throws Exception {
+    this(indexDir, segmentMetadata, columnIndexContainerMap, columnBloomFilterMap, singleFileIndex, null, null);
+    LOGGER.info("successfully loaded the index segment : " + indexDir.getName());
+  }
+
+  private IndexSegmentImpl(File indexDir, SegmentMetadataImpl segmentMetadata,
+      Map<String, ColumnIndexContainer> columnIndexContainerMap, Map<String, ColumnBloomFilter> columnBloomFilterMap,
+      SingleFileIndexDirectory singleFileIndex, IndexLoadingConfigMetadata indexLoadingConfigMetadata,
+      ReadMode readMode) {
     this.indexDir = indexDir;
     this.segmentMetadata = segmentMetadata;
     this.indexContainerMap = columnIndexContainerMap;
-    LOGGER.info("successfully loaded the index segment : " + indexDir.getName());
+    this.bloomFilterMap = columnBloomFilterMap;
+    this.singleFileIndex = singleFileIndex;
+    this.indexLoadingConfigMetadata = indexLoadingConfigMetadata;
+    this.readMode = readMode;
+    for (String column : segmentMetadata.getColumnMetadataMap().keySet()) {
+      columnLoadStatsMap.put(column, new ColumnLoadStats());
+    }
+  }
+
+  /**
+   * Creates a segment which loads the index container of each column on the first access to the column.
+   */
+  public static IndexSegmentImpl createLazy(File indexDir, SegmentMetadataImpl segmentMetadata,
+      Map<String, ColumnBloomFilter> columnBloomFilterMap, SingleFileIndexDirectory singleFileIndex,
+      IndexLoadingConfigMetadata indexLoadingConfigMetadata, ReadMode readMode) {
+    IndexSegmentImpl indexSegment =
+        new IndexSegmentImpl(indexDir, segmentMetadata, new ConcurrentHashMap<String, ColumnIndexContainer>(),
+            columnBloomFilterMap, singleFileIndex, indexLoadingConfigMetadata, readMode);
+    LOGGER.info("successfully opened the index segment : " + indexDir.getName() + ", columns are loaded on demand");
+    return indexSegment;
+  }
+
+  public boolean isLazyLoadingColumns() {
+    return readMode != null;
+  }
+
+  private ColumnIndexContainer getIndexContainer(String column) {
+    ColumnIndexContainer indexContainer = indexContainerMap.get(column);
+    if (readMode == null) {
+      return indexContainer;
+    }
+    ColumnLoadStats columnLoadStats = columnLoadStatsMap.get(column);
+    if (columnLoadStats == null) {
+      return null;
+    }
+    columnLoadStats.lastAccessTimeMs = System.currentTimeMillis();
+    if (indexContainer != null) {
+      return indexContainer;
+    }
+    synchronized (columnLoadStats) {
+      indexContainer = indexContainerMap.get(column);
+      if (indexContainer != null) {
+        return indexContainer;
+      }
+      if (destroyed) {
+        throw new IllegalStateException("Segment " + getSegmentName() + " has been destroyed");
+      }
+      final long start = System.currentTimeMillis();
+      try {
+        indexContainer =
+            ColumnIndexContainer.init(column, indexDir, singleFileIndex, segmentMetadata.getColumnMetadataFor(column),
+                indexLoadingConfigMetadata, readMode);
+      } catch (Exception e) {
+        throw new RuntimeException("Caught exception while loading column " + column + " of segment "
+            + getSegmentName(), e);
+      }
+      indexContainerMap.put(column, indexContainer);
+      final long loadTimeMs = System.currentTimeMillis() - start;
+      columnLoadStats.numLoads++;
+      columnLoadStats.totalLoadTimeMs += loadTimeMs;
+      LOGGER.debug("Loaded column {} of segment {} in {}ms", column, getSegmentName(), loadTimeMs);
+      return indexContainer;
+    }
   }
 
   public ImmutableDictionaryReader getDictionaryFor(String column) {
-    return indexContainerMap.get(column).getDictionary();
+    return getIndexContainer(column).getDictionary();
   }
 
   public DataFileReader getForwardIndexReaderFor(String column) {
-    return indexContainerMap.get(column).getForwardIndex();
+    return getIndexContainer(column).getForwardIndex();
   }
 
   public InvertedIndexReader getInvertedIndexFor(String column) {
-    return indexContainerMap.get(column).getInvertedIndex();
+    return getIndexContainer(column).getInvertedIndex();
+  }
+
+  /**
+   * Swaps the index container of a column, e.g. once its inverted index has been created after the segment was loaded.
+   * The forward index and the dictionary of the replaced container are kept open, as they are shared.
+   *
+   * @return false if the segment has been destroyed in the meantime.
+   */
+  public boolean replaceColumnIndexContainer(String column, ColumnIndexContainer indexContainer) {
+    ColumnLoadStats columnLoadStats = columnLoadStatsMap.get(column);
+    if (columnLoadStats == null) {
+      return false;
+    }
+    synchronized (columnLoadStats) {
+      if (destroyed) {
+        return false;
+      }
+      ColumnIndexContainer replacedIndexContainer = indexContainerMap.put(column, indexContainer);
+      // A container loaded again after a release does not share its readers, close it once no query uses it
+      if (replacedIndexContainer != null
+          && replacedIndexContainer.getForwardIndex() != indexContainer.getForwardIndex()) {
+        addReleasedIndexContainer(column, replacedIndexContainer);
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Prevents a lazily loaded column from being released as idle, eg. while a background task reads its forward index.
+   * Must be followed by {@link #unpinColumn(String)}.
+   *
+   * @return false if the segment has no such column.
+   */
+  public boolean pinColumn(String column) {
+    ColumnLoadStats columnLoadStats = columnLoadStatsMap.get(column);
+    if (columnLoadStats == null) {
+      return false;
+    }
+    synchronized (columnLoadStats) {
+      columnLoadStats.numPins++;
+    }
+    return true;
+  }
+
+  public void unpinColumn(String column) {
+    ColumnLoadStats columnLoadStats = columnLoadStatsMap.get(column);
+    synchronized (columnLoadStats) {
+      columnLoadStats.numPins--;
+    }
+  }
+
+  /**
+   * Registers a background task reading the indexes of the segment, so that they are not closed while the task runs.
+   * The task must check {@link #isDestroyed()} regularly and stop once the segment is destroyed, then call
+   * {@link #releaseForBackgroundTask()}.
+   *
+   * @return false if the segment has been destroyed, in which case the task must not run.
+   */
+  public boolean acquireForBackgroundTask() {
+    synchronized (backgroundTaskLock) {
+      if (destroyed) {
+        return false;
+      }
+      numBackgroundTasks++;
+      return true;
+    }
+  }
+
+  public void releaseForBackgroundTask() {
+    synchronized (backgroundTaskLock) {
+      numBackgroundTasks--;
+      backgroundTaskLock.notifyAll();
+    }
+  }
+
+  public boolean isDestroyed() {
+    return destroyed;
+  }
+
+  /**
+   * Releases the lazily loaded columns which have not been accessed for the given time. The readers of the released
+   * columns are not closed, as running queries may still use them: they are closed by {@link #closeReleasedColumns}
+   * or when the segment is destroyed. Pinned columns, and columns whose previously released readers are not closed
+   * yet, are not released.
+   *
+   * @return the number of released columns.
+   */
+  public int releaseIdleColumns(long idleTimeMs) {
+    if (readMode == null) {
+      return 0;
+    }
+    final long releaseTimeMs = System.currentTimeMillis() - idleTimeMs;
+    int numReleasedColumns = 0;
+    for (Map.Entry<String, ColumnLoadStats> entry : columnLoadStatsMap.entrySet()) {
+      ColumnLoadStats columnLoadStats = entry.getValue();
+      synchronized (columnLoadStats) {
+        if (columnLoadStats.lastAccessTimeMs < releaseTimeMs && columnLoadStats.numPins == 0
+            && !hasReleasedIndexContainer(entry.getKey())) {
+          ColumnIndexContainer indexContainer = indexContainerMap.remove(entry.getKey());
+          if (indexContainer != null) {
+            addReleasedIndexContainer(entry.getKey(), indexContainer);
+            columnLoadStats.numReleases++;
+            numReleasedColumns++;
+          }
+        }
+      }
+    }
+    if (numReleasedColumns > 0) {
+      LOGGER.info("Released {} idle columns of segment {}", numReleasedColumns, getSegmentName());
+    }
+    return numReleasedColumns;
+  }
+
+  private boolean hasReleasedIndexContainer(String column) {
+    synchronized (releasedIndexContainers) {
+      for (ReleasedIndexContainer releasedIndexContainer : releasedIndexContainers) {
+        if (releasedIndexContainer.column.equals(column)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private void addReleasedIndexContainer(String column, ColumnIndexContainer indexContainer) {
+    synchronized (releasedIndexContainers) {
+      releasedIndexContainers.add(new ReleasedIndexContainer(column, indexContainer, ++lastReleaseSequence));
+    }
+  }
+
+  /**
+   * @return the sequence number of the last released index container, to pass to {@link #closeReleasedColumns(long)}.
+   */
+  public long getLastReleaseSequence() {
+    synchronized (releasedIndexContainers) {
+      return lastReleaseSequence;
+    }
+  }
+
+  /**
+   * @return the number of released index containers which are not closed yet.
+   */
+  public int getNumReleasedIndexContainers() {
+    synchronized (releasedIndexContainers) {
+      return releasedIndexContainers.size();
+    }
+  }
+
+  /**
+   * Closes the readers of all the released columns. Must only be called once the queries which may have accessed the
+   * columns before their release are done.
+   */
+  public void closeReleasedColumns() {
+    closeReleasedColumns(Long.MAX_VALUE);
+  }
+
+  /**
+   * Closes the readers of the columns released up to the given sequence number. Callers read the sequence number
+   * before checking that no query holds the segment, so that a column released after the check is not closed.
+   */
+  public void closeReleasedColumns(long maxReleaseSequence) {
+    List<ReleasedIndexContainer> indexContainers = new ArrayList<ReleasedIndexContainer>();
+    synchronized (releasedIndexContainers) {
+      Iterator<ReleasedIndexContainer> iterator = releasedIndexContainers.iterator();
+      while (iterator.hasNext()) {
+        ReleasedIndexContainer releasedIndexContainer = iterator.next();
+        if (releasedIndexContainer.releaseSequence <= maxReleaseSequence) {
+          indexContainers.add(releasedIndexContainer);
+          iterator.remove();
+        }
+      }
+    }
+    for (ReleasedIndexContainer releasedIndexContainer : indexContainers) {
+      closeIndexContainer(releasedIndexContainer.column, releasedIndexContainer.indexContainer);
+    }
+  }
+
+  /**
+   * @return the load statistics of a column, null if the segment has no such column.
+   */
+  public ColumnLoadStats getColumnLoadStats(String column) {
+    return columnLoadStatsMap.get(column);
+  }
+
+  /**
+   * @return bloom filter of the column, null if the segment has none for it.
+   */
+  public ColumnBloomFilter getBloomFilterFor(String column) {
+    return bloomFilterMap.get(column);
   }
 
   @Override
@@ -85,7 +388,7 @@ public class IndexSegmentImpl implements IndexSegment {
 
   @Override
   public DataSource getDataSource(String columnName) {
-    final DataSource d = new ColumnDataSourceImpl(indexContainerMap.get(columnName));
+    final DataSource d = new ColumnDataSourceImpl(getIndexContainer(columnName));
     return d;
   }
 
@@ -100,25 +403,59 @@ public class IndexSegmentImpl implements IndexSegment {
 
   @Override
   public void destroy() {
-    for (String column : indexContainerMap.keySet()) {
-
-      try {
-        indexContainerMap.get(column).getDictionary().close();
-      } catch (Exception e) {
-        LOGGER.error("Error when close dictionary index for column : " + column, e);
+    // Background tasks stop as soon as they see the segment destroyed, wait for them before closing the readers
+    synchronized (backgroundTaskLock) {
+      destroyed = true;
+      while (numBackgroundTasks > 0) {
+        try {
+          backgroundTaskLock.wait();
+        } catch (InterruptedException e) {
+          LOGGER.warn("Interrupted while waiting for the background tasks of segment {}", getSegmentName());
+          Thread.currentThread().interrupt();
+          break;
+        }
       }
-      try {
-        indexContainerMap.get(column).getForwardIndex().close();
-      } catch (Exception e) {
-        LOGGER.error("Error when close forward index for column : " + column, e);
+    }
+    for (Map.Entry<String, ColumnLoadStats> entry : columnLoadStatsMap.entrySet()) {
+      ColumnIndexContainer indexContainer;
+      synchronized (entry.getValue()) {
+        indexContainer = indexContainerMap.remove(entry.getKey());
+      }
+      if (indexContainer != null) {
+        closeIndexContainer(entry.getKey(), indexContainer);
       }
+    }
+    indexContainerMap.clear();
+    closeReleasedColumns();
+    if (singleFileIndex != null) {
       try {
-        indexContainerMap.get(column).getInvertedIndex().close();
+        singleFileIndex.close();
       } catch (Exception e) {
-        LOGGER.error("Error when close inverted index for column : " + column, e);
+        LOGGER.error("Error when close the index file of segment : " + getSegmentName(), e);
       }
     }
-    indexContainerMap.clear();
+  }
+
+  private static void closeIndexContainer(String column, ColumnIndexContainer indexContainer) {
+    try {
+      if (indexContainer.getDictionary() != null) {
+        indexContainer.getDictionary().close();
+      }
+    } catch (Exception e) {
+      LOGGER.error("Error when close dictionary index for column : " + column, e);
+    }
+    try {
+      indexContainer.getForwardIndex().close();
+    } catch (Exception e) {
+      LOGGER.error("Error when close forward index for column : " + column, e);
+    }
+    try {
+      if (indexContainer.getInvertedIndex() != null) {
+        indexContainer.getInvertedIndex().close();
+      }
+    } catch (Exception e) {
+      LOGGER.error("Error when close inverted index for column : " + column, e);
+    }
   }
 
   @Override
@@ -126,4 +463,43 @@ public class IndexSegmentImpl implements IndexSegment {
     return segmentMetadata.getTotalDocs();
   }
 
+  /**
+   * Number of loads and releases of a lazily loaded column, along with the time spent loading it and its last access.
+   */
+  public static class ColumnLoadStats {
+    private volatile int numLoads;
+    private volatile int numReleases;
+    private volatile long totalLoadTimeMs;
+    private volatile long lastAccessTimeMs;
+    // Guarded by the stats, which are the lock of the column
+    private int numPins;
+
+    public int getNumLoads() {
+      return numLoads;
+    }
+
+    public int getNumReleases() {
+      return numReleases;
+    }
+
+    public long getTotalLoadTimeMs() {
+      return totalLoadTimeMs;
+    }
+
+    public long getLastAccessTimeMs() {
+      return lastAccessTimeMs;
+    }
+  }
+
+  private static class ReleasedIndexContainer {
+    private final String column;
+    private final ColumnIndexContainer indexContainer;
+    private final long releaseSequence;
+
+    private ReleasedIndexContainer(String column, ColumnIndexContainer indexContainer, long releaseSequence) {
+      this.column = column;
+      this.indexContainer = indexContainer;
+      this.releaseSequence = releaseSequence;
+    }
+  }
 }
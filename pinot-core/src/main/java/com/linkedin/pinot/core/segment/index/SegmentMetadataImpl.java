@@ -301,9 +301,24 @@ public class SegmentMetadataImpl implements SegmentMetadata {
         _segmentMetadataPropertiesConfiguration.getInt(V1Constants.MetadataKeys.Column.getKeyFor(column,
             V1Constants.MetadataKeys.Column.TOTAL_NUMBER_OF_ENTRIES));
 
+    final String minValue =
+        _segmentMetadataPropertiesConfiguration.getString(V1Constants.MetadataKeys.Column.getKeyFor(column,
+            V1Constants.MetadataKeys.Column.MIN_VALUE), null);
+    final String maxValue =
+        _segmentMetadataPropertiesConfiguration.getString(V1Constants.MetadataKeys.Column.getKeyFor(column,
+            V1Constants.MetadataKeys.Column.MAX_VALUE), null);
+
+    final boolean hasBloomFilter =
+        _segmentMetadataPropertiesConfiguration.getBoolean(
+            V1Constants.MetadataKeys.Column.getKeyFor(column, V1Constants.MetadataKeys.Column.HAS_BLOOM_FILTER), false);
+
+    final boolean hasVarLengthDictionary =
+        _segmentMetadataPropertiesConfiguration.getBoolean(V1Constants.MetadataKeys.Column.getKeyFor(column,
+            V1Constants.MetadataKeys.Column.HAS_VAR_LENGTH_DICTIONARY), false);
+
     return new ColumnMetadata(column, cardinality, totalDocs, dataType, bitsPerElement, stringColumnMaxLength,
         fieldType, isSorted, hasInvertedIndex, insSingleValue, maxNumberOfMultiValues, hasNulls, hasDictionary,
-        segmentTimeUnit, totalNumberOfEntries);
+        segmentTimeUnit, totalNumberOfEntries, minValue, maxValue, hasBloomFilter, hasVarLengthDictionary);
 
   }
 
@@ -342,7 +357,7 @@ public class SegmentMetadataImpl implements SegmentMetadata {
 
   @Override
   public String getVersion() {
-    return SegmentVersion.v1.toString();
+    return _segmentMetadataPropertiesConfiguration.getString(V1Constants.VERSION, SegmentVersion.v1.toString());
   }
 
   @Override
@@ -0,0 +1,209 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.common.utils.MmapUtils;
+
+
+/**
+ * Single file holding all the index buffers of a v2 segment, which are stored in one file per column index in v1.
+ *
+ * The file starts with a directory of the buffers, keyed by the name of the v1 file they come from:
+ * <pre>
+ *   int magic marker, int number of buffers,
+ *   for each buffer: UTF name, long offset in the file, long size in bytes
+ * </pre>
+ * followed by the buffers themselves. The file is opened and mapped (or read, in heap mode) once, and the readers of
+ * the columns are handed slices of it. Files larger than 2GB, the limit of a ByteBuffer, are mapped one buffer at a
+ * time from the same channel.
+ */
+public class SingleFileIndexDirectory implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SingleFileIndexDirectory.class);
+
+  public static final String INDEX_FILE_NAME = "columns.psf";
+  private static final int MAGIC_MARKER = 0x50534632;
+
+  private final RandomAccessFile _file;
+  private final Map<String, BufferEntry> _entries = new HashMap<String, BufferEntry>();
+  private final List<ByteBuffer> _loadedBuffers = new ArrayList<ByteBuffer>();
+  private final ReadMode _readMode;
+
+  public SingleFileIndexDirectory(File indexDir, ReadMode readMode) throws IOException {
+    final File indexFile = new File(indexDir, INDEX_FILE_NAME);
+    _readMode = readMode;
+
+    final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+    try {
+      if (in.readInt() != MAGIC_MARKER) {
+        throw new IOException("Not a segment index file: " + indexFile);
+      }
+      final int numBuffers = in.readInt();
+      for (int i = 0; i < numBuffers; i++) {
+        final String name = in.readUTF();
+        _entries.put(name, new BufferEntry(in.readLong(), in.readLong()));
+      }
+    } finally {
+      in.close();
+    }
+
+    _file = new RandomAccessFile(indexFile, "r");
+    final long fileLength = _file.length();
+    if (fileLength <= Integer.MAX_VALUE) {
+      final ByteBuffer fileBuffer = load(0, fileLength);
+      for (BufferEntry entry : _entries.values()) {
+        entry._baseBuffer = fileBuffer;
+        entry._baseOffset = (int) entry._offset;
+      }
+    } else {
+      for (BufferEntry entry : _entries.values()) {
+        entry._baseBuffer = load(entry._offset, entry._size);
+        entry._baseOffset = 0;
+      }
+    }
+    if (readMode == ReadMode.heap) {
+      _file.close();
+    }
+    LOGGER.debug("Loaded {} index buffers from {} in {} mode", _entries.size(), indexFile, readMode);
+  }
+
+  private ByteBuffer load(long offset, long size) throws IOException {
+    final ByteBuffer buffer;
+    if (_readMode == ReadMode.mmap) {
+      buffer = _file.getChannel().map(FileChannel.MapMode.READ_ONLY, offset, size);
+    } else {
+      buffer = ByteBuffer.allocateDirect((int) size);
+      while (buffer.hasRemaining()) {
+        if (_file.getChannel().read(buffer, offset + buffer.position()) < 0) {
+          throw new IOException("Unexpected end of the segment index file");
+        }
+      }
+      buffer.clear();
+    }
+    _loadedBuffers.add(buffer);
+    return buffer;
+  }
+
+  public boolean hasBuffer(String name) {
+    return _entries.containsKey(name);
+  }
+
+  public Set<String> getBufferNames() {
+    return _entries.keySet();
+  }
+
+  /**
+   * Returns a new slice of the buffer stored for a v1 file name, with its own position and limit.
+   */
+  public ByteBuffer getBuffer(String name) throws IOException {
+    final BufferEntry entry = _entries.get(name);
+    if (entry == null) {
+      throw new IOException("No buffer " + name + " in the segment index file");
+    }
+    final ByteBuffer duplicate = entry._baseBuffer.duplicate();
+    duplicate.position(entry._baseOffset);
+    duplicate.limit(entry._baseOffset + (int) entry._size);
+    return duplicate.slice();
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (ByteBuffer buffer : _loadedBuffers) {
+      MmapUtils.unloadByteBuffer(buffer);
+    }
+    _loadedBuffers.clear();
+    if (_readMode == ReadMode.mmap) {
+      _file.close();
+    }
+  }
+
+  public static boolean exists(File indexDir) {
+    return new File(indexDir, INDEX_FILE_NAME).exists();
+  }
+
+  /**
+   * Writes the given files into the single index file of a directory, each keyed by its file name.
+   */
+  public static void write(File indexDir, List<File> files) throws IOException {
+    // The buffers start right after the directory
+    final DataOutputStream directory = new DataOutputStream(new ByteArrayOutputStream());
+    for (File file : files) {
+      directory.writeUTF(file.getName());
+      directory.writeLong(0L);
+      directory.writeLong(0L);
+    }
+    long offset = 8 + directory.size();
+
+    final DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(indexDir, INDEX_FILE_NAME))));
+    try {
+      out.writeInt(MAGIC_MARKER);
+      out.writeInt(files.size());
+      for (File file : files) {
+        out.writeUTF(file.getName());
+        out.writeLong(offset);
+        out.writeLong(file.length());
+        offset += file.length();
+      }
+      for (File file : files) {
+        final InputStream in = new FileInputStream(file);
+        try {
+          IOUtils.copyLarge(in, out);
+        } finally {
+          in.close();
+        }
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  private static class BufferEntry {
+    private final long _offset;
+    private final long _size;
+    private ByteBuffer _baseBuffer;
+    private int _baseOffset;
+
+    private BufferEntry(long offset, long size) {
+      _offset = offset;
+      _size = size;
+    }
+  }
+}
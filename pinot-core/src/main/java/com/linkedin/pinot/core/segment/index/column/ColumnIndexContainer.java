@@ -17,6 +17,7 @@ package com.linkedin.pinot.core.segment.index.column;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import com.linkedin.pinot.common.metadata.segment.IndexLoadingConfigMetadata;
 import com.linkedin.pinot.common.segment.ReadMode;
@@ -27,19 +28,31 @@ import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
 import com.linkedin.pinot.core.segment.index.BitmapInvertedIndexReader;
 import com.linkedin.pinot.core.segment.index.ColumnMetadata;
 import com.linkedin.pinot.core.segment.index.InvertedIndexReader;
+import com.linkedin.pinot.core.segment.index.SingleFileIndexDirectory;
 import com.linkedin.pinot.core.segment.index.readers.DoubleDictionary;
 import com.linkedin.pinot.core.segment.index.readers.FixedBitCompressedSVForwardIndexReader;
+import com.linkedin.pinot.core.segment.index.readers.FixedByteRawSVForwardIndexReader;
 import com.linkedin.pinot.core.segment.index.readers.FloatDictionary;
 import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
 import com.linkedin.pinot.core.segment.index.readers.IntDictionary;
 import com.linkedin.pinot.core.segment.index.readers.LongDictionary;
 import com.linkedin.pinot.core.segment.index.readers.StringDictionary;
+import com.linkedin.pinot.core.segment.index.readers.VarLengthStringDictionary;
 
 
 public abstract class ColumnIndexContainer {
 
   public static ColumnIndexContainer init(String column, File indexDir,
       ColumnMetadata metadata, IndexLoadingConfigMetadata indexLoadingConfigMetadata, ReadMode mode) throws Exception {
+    return init(column, indexDir, null, metadata, indexLoadingConfigMetadata, mode);
+  }
+
+  /**
+   * Loads the indexes of a column from the single index file of a v2 segment when it holds them, otherwise from the
+   * per column index files of the segment directory (v1 segments, or indexes created after the segment).
+   */
+  public static ColumnIndexContainer init(String column, File indexDir, SingleFileIndexDirectory singleFileIndex,
+      ColumnMetadata metadata, IndexLoadingConfigMetadata indexLoadingConfigMetadata, ReadMode mode) throws Exception {
 
     boolean loadInverted = false;
     if (indexLoadingConfigMetadata != null) {
@@ -48,68 +61,131 @@ public abstract class ColumnIndexContainer {
       }
     }
 
-    File dictionaryFile = new File(indexDir, column + V1Constants.Dict.FILE_EXTENTION);
-    ImmutableDictionaryReader dictionary = load(metadata, dictionaryFile, mode);
+    if (!metadata.hasDictionary()) {
+      return loadRaw(column, indexDir, singleFileIndex, metadata, mode);
+    }
+
+    String dictionaryFileName = column + V1Constants.Dict.FILE_EXTENTION;
+    ImmutableDictionaryReader dictionary;
+    if (singleFileIndex != null && singleFileIndex.hasBuffer(dictionaryFileName)) {
+      dictionary = load(metadata, singleFileIndex.getBuffer(dictionaryFileName));
+    } else {
+      dictionary = load(metadata, new File(indexDir, dictionaryFileName), mode);
+    }
 
     if (metadata.isSorted() && metadata.isSingleValue()) {
-      return loadSorted(column, indexDir, metadata, dictionary, mode);
+      return loadSorted(column, indexDir, singleFileIndex, metadata, dictionary, mode);
     }
 
     if (metadata.isSingleValue()) {
-      return loadUnsorted(column, indexDir, metadata, dictionary, mode, loadInverted);
+      return loadUnsorted(column, indexDir, singleFileIndex, metadata, dictionary, mode, loadInverted);
     }
-    return loadMultiValue(column, indexDir, metadata, dictionary, mode, loadInverted);
+    return loadMultiValue(column, indexDir, singleFileIndex, metadata, dictionary, mode, loadInverted);
   }
 
-  private static ColumnIndexContainer loadSorted(String column, File indexDir, ColumnMetadata metadata,
-      ImmutableDictionaryReader dictionary, ReadMode mode) throws IOException {
-    File fwdIndexFile = new File(indexDir, column + V1Constants.Indexes.SORTED_FWD_IDX_FILE_EXTENTION);
+  private static ColumnIndexContainer loadSorted(String column, File indexDir, SingleFileIndexDirectory singleFileIndex,
+      ColumnMetadata metadata, ImmutableDictionaryReader dictionary, ReadMode mode) throws IOException {
+    String fwdIndexFileName = column + V1Constants.Indexes.SORTED_FWD_IDX_FILE_EXTENTION;
 
-    FixedByteWidthRowColDataFileReader indexReader =
-        new FixedByteWidthRowColDataFileReader(fwdIndexFile, metadata.getCardinality(), 2, new int[] { 4, 4 },
-            mode == ReadMode.mmap);
+    FixedByteWidthRowColDataFileReader indexReader;
+    if (singleFileIndex != null && singleFileIndex.hasBuffer(fwdIndexFileName)) {
+      indexReader =
+          new FixedByteWidthRowColDataFileReader(singleFileIndex.getBuffer(fwdIndexFileName),
+              metadata.getCardinality(), 2, new int[] { 4, 4 });
+    } else {
+      indexReader =
+          new FixedByteWidthRowColDataFileReader(new File(indexDir, fwdIndexFileName), metadata.getCardinality(), 2,
+              new int[] { 4, 4 }, mode == ReadMode.mmap);
+    }
 
     return new SortedSVColumnIndexContainer(column, metadata, indexReader, dictionary);
   }
 
-  private static ColumnIndexContainer loadUnsorted(String column, File indexDir, ColumnMetadata metadata,
-      ImmutableDictionaryReader dictionary, ReadMode mode, boolean loadInverted) throws IOException {
-    File fwdIndexFile = new File(indexDir, column + V1Constants.Indexes.UN_SORTED_SV_FWD_IDX_FILE_EXTENTION);
-    File invertedIndexFile = new File(indexDir, column + V1Constants.Indexes.BITMAP_INVERTED_INDEX_FILE_EXTENSION);
+  private static ColumnIndexContainer loadRaw(String column, File indexDir, SingleFileIndexDirectory singleFileIndex,
+      ColumnMetadata metadata, ReadMode mode) throws IOException {
+    String fwdIndexFileName = column + V1Constants.Indexes.RAW_SV_FWD_IDX_FILE_EXTENTION;
 
-    FixedBitCompressedSVForwardIndexReader fwdIndexReader =
-        new FixedBitCompressedSVForwardIndexReader(fwdIndexFile, metadata.getTotalDocs(), metadata.getBitsPerElement(),
-            mode == ReadMode.mmap, metadata.hasNulls());
+    FixedByteRawSVForwardIndexReader fwdIndexReader;
+    if (singleFileIndex != null && singleFileIndex.hasBuffer(fwdIndexFileName)) {
+      fwdIndexReader =
+          new FixedByteRawSVForwardIndexReader(singleFileIndex.getBuffer(fwdIndexFileName), metadata.getTotalDocs(),
+              metadata.getDataType());
+    } else {
+      fwdIndexReader =
+          new FixedByteRawSVForwardIndexReader(new File(indexDir, fwdIndexFileName), metadata.getTotalDocs(),
+              metadata.getDataType(), mode == ReadMode.mmap);
+    }
+
+    return new RawSVColumnIndexContainer(column, metadata, fwdIndexReader);
+  }
+
+  private static ColumnIndexContainer loadUnsorted(String column, File indexDir,
+      SingleFileIndexDirectory singleFileIndex, ColumnMetadata metadata, ImmutableDictionaryReader dictionary,
+      ReadMode mode, boolean loadInverted) throws IOException {
+    String fwdIndexFileName = column + V1Constants.Indexes.UN_SORTED_SV_FWD_IDX_FILE_EXTENTION;
+
+    FixedBitCompressedSVForwardIndexReader fwdIndexReader;
+    if (singleFileIndex != null && singleFileIndex.hasBuffer(fwdIndexFileName)) {
+      fwdIndexReader =
+          new FixedBitCompressedSVForwardIndexReader(singleFileIndex.getBuffer(fwdIndexFileName),
+              metadata.getTotalDocs(), metadata.getBitsPerElement(), metadata.hasNulls());
+    } else {
+      fwdIndexReader =
+          new FixedBitCompressedSVForwardIndexReader(new File(indexDir, fwdIndexFileName), metadata.getTotalDocs(),
+              metadata.getBitsPerElement(), mode == ReadMode.mmap, metadata.hasNulls());
+    }
 
     BitmapInvertedIndexReader invertedIndex = null;
 
-    if (invertedIndexFile.exists() && loadInverted) {
-      invertedIndex =
-          new BitmapInvertedIndexReader(invertedIndexFile, metadata.getCardinality(), mode == ReadMode.mmap);
+    if (loadInverted) {
+      invertedIndex = loadInvertedIndex(column, indexDir, singleFileIndex, metadata, mode);
     }
 
     return new UnsortedSVColumnIndexContainer(column, metadata, fwdIndexReader, dictionary, invertedIndex);
   }
 
-  private static ColumnIndexContainer loadMultiValue(String column, File indexDir, ColumnMetadata metadata,
-      ImmutableDictionaryReader dictionary, ReadMode mode, boolean loadInverted) throws Exception {
-    File fwdIndexFile = new File(indexDir, column + V1Constants.Indexes.UN_SORTED_MV_FWD_IDX_FILE_EXTENTION);
-    File invertedIndexFile = new File(indexDir, column + V1Constants.Indexes.BITMAP_INVERTED_INDEX_FILE_EXTENSION);
+  private static ColumnIndexContainer loadMultiValue(String column, File indexDir,
+      SingleFileIndexDirectory singleFileIndex, ColumnMetadata metadata, ImmutableDictionaryReader dictionary,
+      ReadMode mode, boolean loadInverted) throws Exception {
+    String fwdIndexFileName = column + V1Constants.Indexes.UN_SORTED_MV_FWD_IDX_FILE_EXTENTION;
 
-    FixedBitSkipListSCMVReader fwdIndexReader =
-        new FixedBitSkipListSCMVReader(fwdIndexFile, metadata.getTotalDocs(), metadata.getTotalNumberOfEntries(),
-            metadata.getBitsPerElement(), false, mode == ReadMode.mmap);
+    FixedBitSkipListSCMVReader fwdIndexReader;
+    if (singleFileIndex != null && singleFileIndex.hasBuffer(fwdIndexFileName)) {
+      fwdIndexReader =
+          new FixedBitSkipListSCMVReader(singleFileIndex.getBuffer(fwdIndexFileName), metadata.getTotalDocs(),
+              metadata.getTotalNumberOfEntries(), metadata.getBitsPerElement(), false);
+    } else {
+      fwdIndexReader =
+          new FixedBitSkipListSCMVReader(new File(indexDir, fwdIndexFileName), metadata.getTotalDocs(),
+              metadata.getTotalNumberOfEntries(), metadata.getBitsPerElement(), false, mode == ReadMode.mmap);
+    }
 
     BitmapInvertedIndexReader invertedIndex = null;
 
-    if (invertedIndexFile.exists() && loadInverted) {
-      invertedIndex =
-          new BitmapInvertedIndexReader(invertedIndexFile, metadata.getCardinality(), mode == ReadMode.mmap);
+    if (loadInverted) {
+      invertedIndex = loadInvertedIndex(column, indexDir, singleFileIndex, metadata, mode);
     }
 
     return new UnSortedMVColumnIndexContainer(column, metadata, fwdIndexReader, dictionary, invertedIndex);
   }
 
+  /**
+   * @return the bitmap inverted index of the column, null if the segment has none.
+   */
+  private static BitmapInvertedIndexReader loadInvertedIndex(String column, File indexDir,
+      SingleFileIndexDirectory singleFileIndex, ColumnMetadata metadata, ReadMode mode) throws IOException {
+    String invertedIndexFileName = column + V1Constants.Indexes.BITMAP_INVERTED_INDEX_FILE_EXTENSION;
+    if (singleFileIndex != null && singleFileIndex.hasBuffer(invertedIndexFileName)) {
+      return new BitmapInvertedIndexReader(singleFileIndex.getBuffer(invertedIndexFileName),
+          metadata.getCardinality());
+    }
+    File invertedIndexFile = new File(indexDir, invertedIndexFileName);
+    if (invertedIndexFile.exists()) {
+      return new BitmapInvertedIndexReader(invertedIndexFile, metadata.getCardinality(), mode == ReadMode.mmap);
+    }
+    return null;
+  }
+
   @SuppressWarnings("incomplete-switch")
   private static ImmutableDictionaryReader load(ColumnMetadata metadata, File dictionaryFile, ReadMode loadMode)
       throws IOException {
@@ -124,12 +200,38 @@ public abstract class ColumnIndexContainer {
         return new DoubleDictionary(dictionaryFile, metadata, loadMode);
       case STRING:
       case BOOLEAN:
+        if (metadata.hasVarLengthDictionary()) {
+          return new VarLengthStringDictionary(dictionaryFile, metadata, loadMode);
+        }
         return new StringDictionary(dictionaryFile, metadata, loadMode);
     }
 
     throw new UnsupportedOperationException("unsupported data type : " + metadata.getDataType());
   }
 
+  @SuppressWarnings("incomplete-switch")
+  private static ImmutableDictionaryReader load(ColumnMetadata metadata, ByteBuffer dictionaryBuffer)
+      throws IOException {
+    switch (metadata.getDataType()) {
+      case INT:
+        return new IntDictionary(dictionaryBuffer, metadata);
+      case LONG:
+        return new LongDictionary(dictionaryBuffer, metadata);
+      case FLOAT:
+        return new FloatDictionary(dictionaryBuffer, metadata);
+      case DOUBLE:
+        return new DoubleDictionary(dictionaryBuffer, metadata);
+      case STRING:
+      case BOOLEAN:
+        if (metadata.hasVarLengthDictionary()) {
+          return new VarLengthStringDictionary(dictionaryBuffer, metadata);
+        }
+        return new StringDictionary(dictionaryBuffer, metadata);
+    }
+
+    throw new UnsupportedOperationException("unsupported data type : " + metadata.getDataType());
+  }
+
   /**
    *
    * @return
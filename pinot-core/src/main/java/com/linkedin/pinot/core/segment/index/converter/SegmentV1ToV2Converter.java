@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.index.converter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.linkedin.pinot.core.indexsegment.generator.SegmentVersion;
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.index.SingleFileIndexDirectory;
+
+
+/**
+ * Converts v1 segments, with one file per column index, into v2 segments with all the column indexes packed into a
+ * single file.
+ *
+ * The metadata and the creation metadata are kept as separate files. The creation metadata, hence the CRC of the
+ * segment, is unchanged, so that servers do not download the converted segment again.
+ */
+public class SegmentV1ToV2Converter {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SegmentV1ToV2Converter.class);
+
+  private static final String TMP_DIR_SUFFIX = ".v2.tmp";
+  private static final String BACKUP_DIR_SUFFIX = ".v1.bak";
+
+  /**
+   * Writes the v2 version of a v1 segment into a new directory.
+   */
+  public static void convert(File v1Dir, File v2Dir) throws Exception {
+    if (v2Dir.exists()) {
+      throw new IllegalArgumentException("Output directory " + v2Dir + " already exists");
+    }
+    final SegmentMetadataImpl segmentMetadata = new SegmentMetadataImpl(v1Dir);
+    if (!SegmentVersion.v1.toString().equals(segmentMetadata.getVersion())) {
+      throw new IllegalArgumentException("Segment " + v1Dir + " is not a v1 segment: " + segmentMetadata.getVersion());
+    }
+    if (!v2Dir.mkdirs()) {
+      throw new IOException("Failed to create directory " + v2Dir);
+    }
+
+    try {
+      final List<File> indexFiles = new ArrayList<File>();
+      final File[] files = v1Dir.listFiles();
+      Arrays.sort(files);
+      for (File file : files) {
+        final String fileName = file.getName();
+        if (file.isDirectory()) {
+          continue;
+        }
+        if (fileName.equals(V1Constants.MetadataKeys.METADATA_FILE_NAME)
+            || fileName.equals(V1Constants.SEGMENT_CREATION_META)) {
+          FileUtils.copyFileToDirectory(file, v2Dir);
+        } else {
+          indexFiles.add(file);
+        }
+      }
+      SingleFileIndexDirectory.write(v2Dir, indexFiles);
+
+      final PropertiesConfiguration properties =
+          new PropertiesConfiguration(new File(v2Dir, V1Constants.MetadataKeys.METADATA_FILE_NAME));
+      properties.setProperty(V1Constants.VERSION, SegmentVersion.v2.toString());
+      properties.save();
+      LOGGER.info("Converted segment {} with {} index files to v2 in {}", segmentMetadata.getName(),
+          indexFiles.size(), v2Dir);
+    } catch (Exception e) {
+      FileUtils.deleteQuietly(v2Dir);
+      throw e;
+    }
+  }
+
+  /**
+   * Replaces a v1 segment directory with its v2 version.
+   */
+  public static void convertInPlace(File indexDir) throws Exception {
+    final File tmpDir = new File(indexDir.getParentFile(), indexDir.getName() + TMP_DIR_SUFFIX);
+    final File backupDir = new File(indexDir.getParentFile(), indexDir.getName() + BACKUP_DIR_SUFFIX);
+    FileUtils.deleteQuietly(tmpDir);
+    FileUtils.deleteQuietly(backupDir);
+
+    convert(indexDir, tmpDir);
+    if (!indexDir.renameTo(backupDir)) {
+      FileUtils.deleteQuietly(tmpDir);
+      throw new IOException("Failed to move " + indexDir + " to " + backupDir);
+    }
+    if (!tmpDir.renameTo(indexDir)) {
+      backupDir.renameTo(indexDir);
+      FileUtils.deleteQuietly(tmpDir);
+      throw new IOException("Failed to move " + tmpDir + " to " + indexDir);
+    }
+    FileUtils.deleteQuietly(backupDir);
+  }
+}
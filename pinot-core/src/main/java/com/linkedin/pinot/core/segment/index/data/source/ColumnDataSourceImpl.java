@@ -29,10 +29,12 @@ import com.linkedin.pinot.core.index.reader.impl.FixedBitSkipListSCMVReader;
 import com.linkedin.pinot.core.segment.index.InvertedIndexReader;
 import com.linkedin.pinot.core.segment.index.column.ColumnIndexContainer;
 import com.linkedin.pinot.core.segment.index.data.source.mv.block.MultiValueBlock;
+import com.linkedin.pinot.core.segment.index.data.source.sv.block.RawSingleValueBlock;
 import com.linkedin.pinot.core.segment.index.data.source.sv.block.SortedSingleValueBlock;
 import com.linkedin.pinot.core.segment.index.data.source.sv.block.UnSortedSingleValueBlock;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import com.linkedin.pinot.core.segment.index.readers.FixedBitCompressedSVForwardIndexReader;
+import com.linkedin.pinot.core.segment.index.readers.FixedByteRawSVForwardIndexReader;
 import com.linkedin.pinot.core.segment.index.readers.SortedForwardIndexReader;
 
 
@@ -72,7 +74,11 @@ public class ColumnDataSourceImpl implements DataSource {
   public Block nextBlock(BlockId blockId) {
     Block b = null;
 
-    if (indexContainer.getColumnMetadata().isSingleValue()) {
+    if (!indexContainer.getColumnMetadata().hasDictionary()) {
+      b =
+          new RawSingleValueBlock(blockId, (FixedByteRawSVForwardIndexReader) indexContainer.getForwardIndex(),
+              indexContainer.getColumnMetadata());
+    } else if (indexContainer.getColumnMetadata().isSingleValue()) {
       if (indexContainer.getColumnMetadata().isSorted()) {
         b =
             new SortedSingleValueBlock(blockId, (SortedForwardIndexReader) indexContainer.getForwardIndex(),
@@ -116,7 +122,8 @@ public class ColumnDataSourceImpl implements DataSource {
         if (indexContainer.getColumnMetadata().isSorted()) {
           return true;
         }
-        return indexContainer.getColumnMetadata().isHasInvertedIndex() && indexContainer.getInvertedIndex() != null;
+        // The inverted index may have been created after the segment, see BackgroundInvertedIndexCreator
+        return indexContainer.getInvertedIndex() != null;
       }
 
       @Override
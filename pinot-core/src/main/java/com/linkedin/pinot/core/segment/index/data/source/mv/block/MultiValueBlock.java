@@ -147,6 +147,12 @@ public class MultiValueBlock implements Block {
       public DataType getValueType() {
         return columnMetadata.getDataType();
       }
+
+      @Override
+      public void getDictionaryIds(int[] inDocIds, int inStartPos, int inDocIdsSize, int[] outDictionaryIds,
+          int outStartPos) {
+        throw new UnsupportedOperationException("Batch dictionary id read is not supported on multi value columns");
+      }
     };
   }
 
@@ -134,6 +134,12 @@ public class SortedSingleValueBlock implements Block {
         // TODO Auto-generated method stub
         return null;
       }
+
+      @Override
+      public void getDictionaryIds(int[] inDocIds, int inStartPos, int inDocIdsSize, int[] outDictionaryIds,
+          int outStartPos) {
+        sVReader.readValues(inDocIds, inStartPos, inDocIdsSize, outDictionaryIds, outStartPos);
+      }
     };
   }
 
@@ -136,6 +136,12 @@ public class UnSortedSingleValueBlock implements Block {
         // TODO Auto-generated method stub
         return null;
       }
+
+      @Override
+      public void getDictionaryIds(int[] inDocIds, int inStartPos, int inDocIdsSize, int[] outDictionaryIds,
+          int outStartPos) {
+        sVReader.readValues(inDocIds, inStartPos, inDocIdsSize, outDictionaryIds, outStartPos);
+      }
     };
   }
 
@@ -0,0 +1,269 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.index.loader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.linkedin.pinot.common.metadata.segment.IndexLoadingConfigMetadata;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.core.index.reader.DataFileReader;
+import com.linkedin.pinot.core.index.reader.impl.FixedBitSkipListSCMVReader;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import com.linkedin.pinot.core.segment.creator.impl.inv.BitmapInvertedIndexCreator;
+import com.linkedin.pinot.core.segment.index.BitmapInvertedIndexReader;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.index.column.ColumnIndexContainer;
+import com.linkedin.pinot.core.segment.index.column.UnSortedMVColumnIndexContainer;
+import com.linkedin.pinot.core.segment.index.column.UnsortedSVColumnIndexContainer;
+import com.linkedin.pinot.core.segment.index.readers.FixedBitCompressedSVForwardIndexReader;
+
+
+/**
+ * Creates the bitmap inverted indexes that the index loading config asks for, but that were not created along with
+ * a segment, from the forward index of the loaded segment.
+ *
+ * The indexes are created one at a time by a single low priority thread shared by all the tables of the server, so
+ * that loading a lot of segments does not compete with the query execution. Once an index is created, it is written
+ * next to the other index files of the segment, so that it is loaded directly the next time, and the index container
+ * of the column is swapped in the loaded segment. Until then, the filters on the column scan the forward index.
+ */
+public class BackgroundInvertedIndexCreator {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BackgroundInvertedIndexCreator.class);
+
+  private static final String TMP_DIR_SUFFIX = ".inv.tmp";
+  // Number of documents between two checks that the segment is still loaded
+  private static final int DESTROYED_CHECK_INTERVAL = 1 << 14;
+
+  private static final ExecutorService EXECUTOR_SERVICE = Executors.newSingleThreadExecutor(new ThreadFactory() {
+    private final AtomicInteger _threadNumber = new AtomicInteger(1);
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "background-inverted-index-creator-" + _threadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    }
+  });
+
+  /**
+   * Schedules the creation of the missing inverted indexes of a loaded segment.
+   *
+   * @return the future of the number of created indexes, null if the segment has no missing inverted index.
+   */
+  public static Future<Integer> submit(final IndexSegment indexSegment,
+      final IndexLoadingConfigMetadata indexLoadingConfigMetadata, final ReadMode readMode) {
+    if (!(indexSegment instanceof IndexSegmentImpl)) {
+      return null;
+    }
+    final List<String> columns = getColumnsMissingInvertedIndex((IndexSegmentImpl) indexSegment,
+        indexLoadingConfigMetadata);
+    if (columns.isEmpty()) {
+      return null;
+    }
+    LOGGER.info("Scheduling the creation of inverted indexes for columns {} of segment {}", columns,
+        indexSegment.getSegmentName());
+    return EXECUTOR_SERVICE.submit(new Callable<Integer>() {
+      @Override
+      public Integer call() throws Exception {
+        final IndexSegmentImpl segment = (IndexSegmentImpl) indexSegment;
+        // Keeps the readers of the segment open until the task is done, destroying the segment cancels the task
+        if (!segment.acquireForBackgroundTask()) {
+          return 0;
+        }
+        int numCreatedIndexes = 0;
+        try {
+          for (String column : columns) {
+            if (segment.isDestroyed()) {
+              break;
+            }
+            // The forward index being read must not be released as idle in the meantime
+            if (!segment.pinColumn(column)) {
+              continue;
+            }
+            try {
+              if (createInvertedIndex(segment, column, readMode)) {
+                numCreatedIndexes++;
+              }
+            } catch (Exception e) {
+              LOGGER.error("Caught exception while creating the inverted index for column " + column + " of segment "
+                  + indexSegment.getSegmentName(), e);
+            } finally {
+              segment.unpinColumn(column);
+            }
+          }
+        } finally {
+          segment.releaseForBackgroundTask();
+        }
+        return numCreatedIndexes;
+      }
+    });
+  }
+
+  /**
+   * @return the columns of the segment which should have an inverted index loaded, but have none.
+   */
+  public static List<String> getColumnsMissingInvertedIndex(IndexSegmentImpl indexSegment,
+      IndexLoadingConfigMetadata indexLoadingConfigMetadata) {
+    List<String> columns = new ArrayList<String>();
+    if (indexLoadingConfigMetadata == null || indexLoadingConfigMetadata.getLoadingInvertedIndexColumns() == null) {
+      return columns;
+    }
+    SegmentMetadataImpl segmentMetadata = (SegmentMetadataImpl) indexSegment.getSegmentMetadata();
+    for (String column : indexLoadingConfigMetadata.getLoadingInvertedIndexColumns()) {
+      ColumnMetadata columnMetadata = segmentMetadata.getColumnMetadataFor(column);
+      // Sorted columns are already looked up by their document ranges
+      if (columnMetadata != null && columnMetadata.hasDictionary()
+          && !(columnMetadata.isSorted() && columnMetadata.isSingleValue())
+          && indexSegment.getInvertedIndexFor(column) == null) {
+        columns.add(column);
+      }
+    }
+    return columns;
+  }
+
+  /**
+   * Creates the inverted index of a column, unless it was already created by a previous load of the segment, and
+   * swaps it in the segment. Must be called with the segment acquired for a background task and the column pinned.
+   *
+   * @return false if the segment was destroyed or replaced on disk in the meantime.
+   */
+  static boolean createInvertedIndex(IndexSegmentImpl indexSegment, String column, ReadMode readMode)
+      throws IOException {
+    final long start = System.currentTimeMillis();
+    final File indexDir = new File(indexSegment.getAssociatedDirectory());
+    final ColumnMetadata columnMetadata =
+        ((SegmentMetadataImpl) indexSegment.getSegmentMetadata()).getColumnMetadataFor(column);
+    final File invertedIndexFile =
+        new File(indexDir, column + V1Constants.Indexes.BITMAP_INVERTED_INDEX_FILE_EXTENSION);
+    final DataFileReader forwardIndex = indexSegment.getForwardIndexReaderFor(column);
+
+    if (!invertedIndexFile.exists()) {
+      // Write the index in a temporary directory first, so that a partially written index is never loaded
+      final File tmpDir = new File(indexDir, column + TMP_DIR_SUFFIX);
+      FileUtils.deleteQuietly(tmpDir);
+      if (!tmpDir.mkdir()) {
+        throw new IOException("Failed to create temporary directory " + tmpDir);
+      }
+      try {
+        final BitmapInvertedIndexCreator creator =
+            new BitmapInvertedIndexCreator(tmpDir, columnMetadata.getCardinality(), columnMetadata.toFieldSpec());
+        final int totalDocs = columnMetadata.getTotalDocs();
+        if (columnMetadata.isSingleValue()) {
+          final FixedBitCompressedSVForwardIndexReader reader = (FixedBitCompressedSVForwardIndexReader) forwardIndex;
+          for (int docId = 0; docId < totalDocs; docId++) {
+            if (docId % DESTROYED_CHECK_INTERVAL == 0 && indexSegment.isDestroyed()) {
+              return false;
+            }
+            final int dictionaryId = reader.getInt(docId);
+            if (dictionaryId >= 0) {
+              creator.add(docId, dictionaryId);
+            }
+          }
+        } else {
+          final FixedBitSkipListSCMVReader reader = (FixedBitSkipListSCMVReader) forwardIndex;
+          final int[] dictionaryIds = new int[columnMetadata.getMaxNumberOfMultiValues()];
+          for (int docId = 0; docId < totalDocs; docId++) {
+            if (docId % DESTROYED_CHECK_INTERVAL == 0 && indexSegment.isDestroyed()) {
+              return false;
+            }
+            final int numValues = reader.getIntArray(docId, dictionaryIds);
+            for (int i = 0; i < numValues; i++) {
+              if (dictionaryIds[i] >= 0) {
+                creator.add(docId, dictionaryIds[i]);
+              }
+            }
+          }
+        }
+        creator.seal();
+        if (!isLoadedSegment(indexSegment, indexDir)) {
+          return false;
+        }
+        final File tmpFile = new File(tmpDir, invertedIndexFile.getName());
+        if (!tmpFile.renameTo(invertedIndexFile)) {
+          throw new IOException("Failed to move " + tmpFile + " to " + invertedIndexFile);
+        }
+      } finally {
+        FileUtils.deleteQuietly(tmpDir);
+      }
+    }
+
+    if (!isLoadedSegment(indexSegment, indexDir)) {
+      return false;
+    }
+    final BitmapInvertedIndexReader invertedIndex =
+        new BitmapInvertedIndexReader(invertedIndexFile, columnMetadata.getCardinality(), readMode == ReadMode.mmap);
+    final ColumnIndexContainer indexContainer;
+    if (columnMetadata.isSingleValue()) {
+      indexContainer =
+          new UnsortedSVColumnIndexContainer(column, columnMetadata, (FixedBitCompressedSVForwardIndexReader) forwardIndex,
+              indexSegment.getDictionaryFor(column), invertedIndex);
+    } else {
+      indexContainer =
+          new UnSortedMVColumnIndexContainer(column, columnMetadata, (FixedBitSkipListSCMVReader) forwardIndex,
+              indexSegment.getDictionaryFor(column), invertedIndex);
+    }
+    if (!indexSegment.replaceColumnIndexContainer(column, indexContainer)) {
+      invertedIndex.close();
+      LOGGER.info("Segment {} was unloaded while creating the inverted index for column {}",
+          indexSegment.getSegmentName(), column);
+      return false;
+    }
+    LOGGER.info("Created the inverted index for column {} of segment {} in {}ms", column,
+        indexSegment.getSegmentName(), System.currentTimeMillis() - start);
+    return true;
+  }
+
+  /**
+   * Checks that the segment directory still holds the loaded segment, and not a refreshed version of it that the
+   * index created from the loaded segment does not match.
+   */
+  private static boolean isLoadedSegment(IndexSegmentImpl indexSegment, File indexDir) {
+    if (indexSegment.isDestroyed()) {
+      return false;
+    }
+    final SegmentMetadataImpl loadedMetadata = (SegmentMetadataImpl) indexSegment.getSegmentMetadata();
+    try {
+      final SegmentMetadataImpl diskMetadata = new SegmentMetadataImpl(indexDir);
+      if (diskMetadata.getCrc().equals(loadedMetadata.getCrc())
+          && diskMetadata.getIndexCreationTime() == loadedMetadata.getIndexCreationTime()) {
+        return true;
+      }
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while reading the metadata of segment {} from {}", indexSegment.getSegmentName(),
+          indexDir, e);
+    }
+    LOGGER.info("Segment {} was replaced in {} while creating its inverted indexes", indexSegment.getSegmentName(),
+        indexDir);
+    return false;
+  }
+}
@@ -18,11 +18,16 @@ package com.linkedin.pinot.core.segment.index.loader;
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.linkedin.pinot.common.metadata.segment.IndexLoadingConfigMetadata;
 import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentVersion;
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import com.linkedin.pinot.core.segment.index.ColumnBloomFilter;
 import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
 import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.index.SingleFileIndexDirectory;
 import com.linkedin.pinot.core.segment.index.column.ColumnIndexContainer;
 
 
@@ -40,14 +45,40 @@ public class Loaders {
     public static com.linkedin.pinot.core.indexsegment.IndexSegment load(File indexDir, ReadMode readMode,
         IndexLoadingConfigMetadata indexLoadingConfigMetadata) throws Exception {
       SegmentMetadataImpl metadata = new SegmentMetadataImpl(indexDir);
+      SingleFileIndexDirectory singleFileIndex = null;
+      if (SegmentVersion.v2.toString().equals(metadata.getVersion())) {
+        singleFileIndex = new SingleFileIndexDirectory(indexDir, readMode);
+      }
+
+      // Columns of mmap segments are only mapped on their first access when loading lazily, which keeps the load of
+      // wide segments cheap when the queries only touch a few of their columns
+      boolean lazyLoadingColumns = readMode == ReadMode.mmap && indexLoadingConfigMetadata != null
+          && indexLoadingConfigMetadata.isLazyLoadingColumns();
 
-      Map<String, ColumnIndexContainer> indexContainerMap = new HashMap<String, ColumnIndexContainer>();
+      // Concurrent, as the index containers can be swapped once the segment is loaded
+      Map<String, ColumnIndexContainer> indexContainerMap = new ConcurrentHashMap<String, ColumnIndexContainer>();
+      Map<String, ColumnBloomFilter> bloomFilterMap = new HashMap<String, ColumnBloomFilter>();
 
       for (String column : metadata.getColumnMetadataMap().keySet()) {
-        indexContainerMap.put(column, ColumnIndexContainer.init(column, indexDir,
-            metadata.getColumnMetadataFor(column), indexLoadingConfigMetadata, readMode));
+        if (!lazyLoadingColumns) {
+          indexContainerMap.put(column, ColumnIndexContainer.init(column, indexDir, singleFileIndex,
+              metadata.getColumnMetadataFor(column), indexLoadingConfigMetadata, readMode));
+        }
+        if (metadata.getColumnMetadataFor(column).hasBloomFilter()) {
+          String bloomFilterFileName = column + V1Constants.Indexes.BLOOM_FILTER_FILE_EXTENSION;
+          File bloomFilterFile = new File(indexDir, bloomFilterFileName);
+          if (singleFileIndex != null && singleFileIndex.hasBuffer(bloomFilterFileName)) {
+            bloomFilterMap.put(column, ColumnBloomFilter.readFrom(singleFileIndex.getBuffer(bloomFilterFileName)));
+          } else if (bloomFilterFile.exists()) {
+            bloomFilterMap.put(column, ColumnBloomFilter.readFrom(bloomFilterFile));
+          }
+        }
+      }
+      if (lazyLoadingColumns) {
+        return IndexSegmentImpl.createLazy(indexDir, metadata, bloomFilterMap, singleFileIndex,
+            indexLoadingConfigMetadata, readMode);
       }
-      return new IndexSegmentImpl(indexDir, metadata, indexContainerMap);
+      return new IndexSegmentImpl(indexDir, metadata, indexContainerMap, bloomFilterMap, singleFileIndex);
     }
   }
 }
@@ -33,6 +33,13 @@ public interface Dictionary {
 
   double getDoubleValue(int dictionaryId);
 
+  /**
+   * Batch version of {@link #getDoubleValue(int)}, reads the values of limit dictionary ids starting
+   * at startPos into outValues starting at outStartPos. The dictionary ids must be valid, ie callers
+   * have to filter out {@link #NULL_VALUE_INDEX} beforehand.
+   */
+  void readDoubleValues(int[] dictionaryIds, int startPos, int limit, double[] outValues, int outStartPos);
+
   String getStringValue(int dictionaryId);
 
   String toString(int dictionaryId);
@@ -17,6 +17,7 @@ package com.linkedin.pinot.core.segment.index.readers;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import com.linkedin.pinot.common.segment.ReadMode;
 import com.linkedin.pinot.core.segment.index.ColumnMetadata;
@@ -32,6 +33,10 @@ public class DoubleDictionary extends ImmutableDictionaryReader  {
     super(dictFile, columnMetadata.getCardinality(), Double.SIZE/8, loadMode == ReadMode.mmap);
   }
 
+  public DoubleDictionary(ByteBuffer buffer, ColumnMetadata columnMetadata) throws IOException {
+    super(buffer, columnMetadata.getCardinality(), Double.SIZE / 8);
+  }
+
   @Override
   public int indexOf(Object rawValue) {
     Double lookup;
@@ -59,6 +64,14 @@ public class DoubleDictionary extends ImmutableDictionaryReader  {
     return new Double(getDouble(dictionaryId));
   }
 
+  @Override
+  public void readDoubleValues(int[] dictionaryIds, int startPos, int limit, double[] outValues, int outStartPos) {
+    int endPos = startPos + limit;
+    for (int i = startPos; i < endPos; i++) {
+      outValues[outStartPos++] = dataFileReader.getDouble(dictionaryIds[i], 0);
+    }
+  }
+
   @Override
   public String toString(int dictionaryId) {
     return (new Double(getDouble(dictionaryId))).toString();
@@ -17,6 +17,7 @@ package com.linkedin.pinot.core.segment.index.readers;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import com.linkedin.pinot.core.index.reader.DataFileMetadata;
 import com.linkedin.pinot.core.index.reader.SingleColumnSingleValueReader;
@@ -44,6 +45,15 @@ public class FixedBitCompressedSVForwardIndexReader implements SingleColumnSingl
     this.rows = rows;
   }
 
+  public FixedBitCompressedSVForwardIndexReader(ByteBuffer buffer, int rows, int columnSize, boolean hasNulls)
+      throws IOException {
+    indexFile = null;
+    dataFileReader =
+        FixedBitWidthRowColDataFileReader.forByteBuffer(buffer, rows, 1, new int[] { columnSize },
+            new boolean[] { hasNulls });
+    this.rows = rows;
+  }
+
   public int getLength() {
     return rows;
   }
@@ -73,6 +83,11 @@ public class FixedBitCompressedSVForwardIndexReader implements SingleColumnSingl
     return dataFileReader.getInt(row, 0);
   }
 
+  @Override
+  public void readValues(int[] rows, int rowStartPos, int rowSize, int[] values, int valuesStartPos) {
+    dataFileReader.getIntArray(rows, 0, rowStartPos, rowSize, values, valuesStartPos);
+  }
+
   @Override
   public long getLong(int row) {
     throw new UnsupportedOperationException();
@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.index.readers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.core.index.reader.DataFileMetadata;
+import com.linkedin.pinot.core.index.reader.SingleColumnSingleValueReader;
+import com.linkedin.pinot.core.index.reader.impl.FixedByteWidthRowColDataFileReader;
+import com.linkedin.pinot.core.segment.creator.impl.fwd.SingleValueRawForwardIndexCreator;
+
+
+/**
+ * Reads the values of a numeric single value column without dictionary, stored as they are by
+ * {@link SingleValueRawForwardIndexCreator}.
+ *
+ * Values can be read as any numeric type, converted the same way as {@link Number} does, so that the values of
+ * raw columns can be used where dictionary values are expected.
+ */
+public class FixedByteRawSVForwardIndexReader implements SingleColumnSingleValueReader {
+
+  private final FixedByteWidthRowColDataFileReader dataFileReader;
+  private final DataType dataType;
+  private final int rows;
+
+  public FixedByteRawSVForwardIndexReader(File file, int rows, DataType dataType, boolean isMMap) throws IOException {
+    dataFileReader =
+        new FixedByteWidthRowColDataFileReader(file, rows, 1,
+            SingleValueRawForwardIndexCreator.getColumnSizes(dataType), isMMap);
+    this.dataType = dataType;
+    this.rows = rows;
+  }
+
+  public FixedByteRawSVForwardIndexReader(ByteBuffer buffer, int rows, DataType dataType) throws IOException {
+    dataFileReader =
+        new FixedByteWidthRowColDataFileReader(buffer, rows, 1,
+            SingleValueRawForwardIndexCreator.getColumnSizes(dataType));
+    this.dataType = dataType;
+    this.rows = rows;
+  }
+
+  public int getLength() {
+    return rows;
+  }
+
+  public DataType getDataType() {
+    return dataType;
+  }
+
+  @Override
+  public DataFileMetadata getMetadata() {
+    return null;
+  }
+
+  @Override
+  public void close() throws IOException {
+    dataFileReader.close();
+  }
+
+  @Override
+  public char getChar(int row) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public short getShort(int row) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int getInt(int row) {
+    switch (dataType) {
+      case INT:
+        return dataFileReader.getInt(row, 0);
+      case LONG:
+        return (int) dataFileReader.getLong(row, 0);
+      case FLOAT:
+        return (int) dataFileReader.getFloat(row, 0);
+      default:
+        return (int) dataFileReader.getDouble(row, 0);
+    }
+  }
+
+  @Override
+  public void readValues(int[] rows, int rowStartPos, int rowSize, int[] values, int valuesStartPos) {
+    final int rowEndPos = rowStartPos + rowSize;
+    for (int i = rowStartPos; i < rowEndPos; i++) {
+      values[valuesStartPos++] = getInt(rows[i]);
+    }
+  }
+
+  @Override
+  public long getLong(int row) {
+    switch (dataType) {
+      case INT:
+        return dataFileReader.getInt(row, 0);
+      case LONG:
+        return dataFileReader.getLong(row, 0);
+      case FLOAT:
+        return (long) dataFileReader.getFloat(row, 0);
+      default:
+        return (long) dataFileReader.getDouble(row, 0);
+    }
+  }
+
+  @Override
+  public float getFloat(int row) {
+    switch (dataType) {
+      case INT:
+        return dataFileReader.getInt(row, 0);
+      case LONG:
+        return dataFileReader.getLong(row, 0);
+      case FLOAT:
+        return dataFileReader.getFloat(row, 0);
+      default:
+        return (float) dataFileReader.getDouble(row, 0);
+    }
+  }
+
+  @Override
+  public double getDouble(int row) {
+    switch (dataType) {
+      case INT:
+        return dataFileReader.getInt(row, 0);
+      case LONG:
+        return dataFileReader.getLong(row, 0);
+      case FLOAT:
+        return dataFileReader.getFloat(row, 0);
+      default:
+        return dataFileReader.getDouble(row, 0);
+    }
+  }
+
+  /**
+   * @return the value of the row, as the boxed type of the column.
+   */
+  public Object get(int row) {
+    switch (dataType) {
+      case INT:
+        return dataFileReader.getInt(row, 0);
+      case LONG:
+        return dataFileReader.getLong(row, 0);
+      case FLOAT:
+        return dataFileReader.getFloat(row, 0);
+      default:
+        return dataFileReader.getDouble(row, 0);
+    }
+  }
+
+  @Override
+  public String getString(int row) {
+    return get(row).toString();
+  }
+
+  @Override
+  public byte[] getBytes(int row) {
+    throw new UnsupportedOperationException();
+  }
+}
@@ -17,6 +17,7 @@ package com.linkedin.pinot.core.segment.index.readers;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import com.linkedin.pinot.core.index.reader.impl.FixedByteWidthRowColDataFileReader;
 import com.linkedin.pinot.core.indexsegment.utils.ByteBufferBinarySearchUtil;
@@ -42,6 +43,21 @@ public abstract class ImmutableDictionaryReader implements Dictionary {
     fileSearcher = new ByteBufferBinarySearchUtil(dataFileReader);
   }
 
+  protected ImmutableDictionaryReader(ByteBuffer buffer, int rows, int columnSize) throws IOException {
+    dataFileReader = new FixedByteWidthRowColDataFileReader(buffer, rows, 1, new int[] { columnSize });
+    this.rows = rows;
+    fileSearcher = new ByteBufferBinarySearchUtil(dataFileReader);
+  }
+
+  /**
+   * For the dictionaries which are not stored with fixed width entries, and implement their own lookups.
+   */
+  protected ImmutableDictionaryReader(int rows) {
+    dataFileReader = null;
+    this.rows = rows;
+    fileSearcher = null;
+  }
+
   protected int intIndexOf(int actualValue) {
     return fileSearcher.binarySearch(0, actualValue);
   }
@@ -74,11 +90,17 @@ public abstract class ImmutableDictionaryReader implements Dictionary {
   @Override
   public abstract double getDoubleValue(int dictionaryId);
 
+  @Override
+  public abstract void readDoubleValues(int[] dictionaryIds, int startPos, int limit, double[] outValues,
+      int outStartPos);
+
   @Override
   public abstract String toString(int dictionaryId);
 
   public void close() throws IOException {
-    dataFileReader.close();
+    if (dataFileReader != null) {
+      dataFileReader.close();
+    }
   }
 
   @Override
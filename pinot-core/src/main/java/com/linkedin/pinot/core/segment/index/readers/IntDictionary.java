@@ -17,6 +17,7 @@ package com.linkedin.pinot.core.segment.index.readers;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import com.linkedin.pinot.common.segment.ReadMode;
 import com.linkedin.pinot.core.segment.index.ColumnMetadata;
@@ -32,6 +33,10 @@ public class IntDictionary extends ImmutableDictionaryReader {
     super(dictFile, metadata.getCardinality(), Integer.SIZE / 8, mode == ReadMode.mmap);
   }
 
+  public IntDictionary(ByteBuffer buffer, ColumnMetadata metadata) throws IOException {
+    super(buffer, metadata.getCardinality(), Integer.SIZE / 8);
+  }
+
   @Override
   public int indexOf(Object rawValue) {
     Integer lookup;
@@ -58,6 +63,14 @@ public class IntDictionary extends ImmutableDictionaryReader {
   public double getDoubleValue(int dictionaryId) {
     return new Double(getInt(dictionaryId));
   }
+
+  @Override
+  public void readDoubleValues(int[] dictionaryIds, int startPos, int limit, double[] outValues, int outStartPos) {
+    int endPos = startPos + limit;
+    for (int i = startPos; i < endPos; i++) {
+      outValues[outStartPos++] = dataFileReader.getInt(dictionaryIds[i], 0);
+    }
+  }
   
   @Override
   public String getStringValue(int dictionaryId) {
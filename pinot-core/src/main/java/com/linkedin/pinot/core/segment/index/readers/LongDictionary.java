@@ -17,6 +17,7 @@ package com.linkedin.pinot.core.segment.index.readers;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import com.linkedin.pinot.common.segment.ReadMode;
 import com.linkedin.pinot.core.segment.index.ColumnMetadata;
@@ -32,6 +33,10 @@ public class LongDictionary extends ImmutableDictionaryReader {
     super(dictFile, metadata.getCardinality(), Long.SIZE / 8, loadMode == ReadMode.mmap);
   }
 
+  public LongDictionary(ByteBuffer buffer, ColumnMetadata metadata) throws IOException {
+    super(buffer, metadata.getCardinality(), Long.SIZE / 8);
+  }
+
   @Override
   public int indexOf(Object rawValue) {
     Long lookup;
@@ -58,6 +63,14 @@ public class LongDictionary extends ImmutableDictionaryReader {
     return new Double(getLong(dictionaryId));
   }
 
+  @Override
+  public void readDoubleValues(int[] dictionaryIds, int startPos, int limit, double[] outValues, int outStartPos) {
+    int endPos = startPos + limit;
+    for (int i = startPos; i < endPos; i++) {
+      outValues[outStartPos++] = dataFileReader.getLong(dictionaryIds[i], 0);
+    }
+  }
+
   @Override
   public String getStringValue(int dictionaryId) {
     return new Long(getLong(dictionaryId)).toString();
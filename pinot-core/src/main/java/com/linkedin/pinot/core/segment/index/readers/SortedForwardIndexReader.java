@@ -76,6 +76,39 @@ public class SortedForwardIndexReader implements SingleColumnSingleValueReader {
     return Constants.EOF;
   }
 
+  /**
+   * Docs sharing a dictionary id are contiguous, so consecutive docIds of a batch mostly resolve to the
+   * dictionary id of the previous doc or to the next one. The binary search is only needed when a docId
+   * jumps past the next dictionary id range.
+   */
+  @Override
+  public void readValues(int[] rows, int rowStartPos, int rowSize, int[] values, int valuesStartPos) {
+    int numDictionaryIds = indexReader.getNumberOfRows();
+    int dictionaryId = Constants.EOF;
+    int rangeStart = 0;
+    int rangeEnd = -1;
+    int rowEndPos = rowStartPos + rowSize;
+    for (int i = rowStartPos; i < rowEndPos; i++) {
+      int docId = rows[i];
+      if (docId < rangeStart || docId > rangeEnd) {
+        if (docId > rangeEnd && dictionaryId != Constants.EOF && dictionaryId + 1 < numDictionaryIds
+            && docId <= indexReader.getInt(dictionaryId + 1, 1)) {
+          dictionaryId++;
+        } else {
+          dictionaryId = getInt(docId);
+        }
+        if (dictionaryId == Constants.EOF) {
+          rangeStart = 0;
+          rangeEnd = -1;
+        } else {
+          rangeStart = indexReader.getInt(dictionaryId, 0);
+          rangeEnd = indexReader.getInt(dictionaryId, 1);
+        }
+      }
+      values[valuesStartPos++] = dictionaryId;
+    }
+  }
+
   @Override
   public long getLong(int row) {
     throw new UnsupportedOperationException("not allowed in sorted reader");
@@ -17,6 +17,7 @@ package com.linkedin.pinot.core.segment.index.readers;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.apache.commons.lang.StringUtils;
 
@@ -37,6 +38,11 @@ public class StringDictionary extends ImmutableDictionaryReader {
     lengthofMaxEntry = metadata.getStringColumnMaxLength();
   }
 
+  public StringDictionary(ByteBuffer buffer, ColumnMetadata metadata) throws IOException {
+    super(buffer, metadata.getCardinality(), metadata.getStringColumnMaxLength());
+    lengthofMaxEntry = metadata.getStringColumnMaxLength();
+  }
+
   @Override
   public int indexOf(Object rawValue) {
     final String lookup = rawValue.toString();
@@ -67,6 +73,11 @@ public class StringDictionary extends ImmutableDictionaryReader {
     throw new RuntimeException("cannot converted string to double");
   }
 
+  @Override
+  public void readDoubleValues(int[] dictionaryIds, int startPos, int limit, double[] outValues, int outStartPos) {
+    throw new RuntimeException("cannot converted string to double");
+  }
+
   @Override
   public String getStringValue(int dictionaryId) {
     return getString(dictionaryId);
@@ -0,0 +1,255 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.index.readers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.common.utils.MmapUtils;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+
+
+/**
+ * String dictionary storing each value with its own length, instead of padding all of them to the longest one.
+ *
+ * The dictionary starts with the offsets of the cardinality + 1 values, relative to the end of the offsets, followed
+ * by the concatenated UTF-8 bytes of the values sorted in their natural String order. Lookups compare the stored bytes
+ * to the looked up value without decoding them into Strings, and the recently decoded values are kept in a cache of
+ * bounded size, so that large dictionaries do not hold all of their values on the heap.
+ */
+public class VarLengthStringDictionary extends ImmutableDictionaryReader {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  // Max number of decoded values kept per dictionary, must be a power of 2
+  private static final int MAX_CACHE_SIZE = 1 << 12;
+
+  private final ByteBuffer buffer;
+  private final boolean ownsBuffer;
+  private final int cardinality;
+  private final int valuesStart;
+  // Direct mapped cache of the decoded values, indexed by the low bits of the dictionary id
+  private final CachedValue[] cache;
+  private final int cacheMask;
+
+  public VarLengthStringDictionary(File dictFile, ColumnMetadata metadata, ReadMode mode) throws IOException {
+    this(readFile(dictFile, mode), metadata.getCardinality(), true);
+  }
+
+  public VarLengthStringDictionary(ByteBuffer buffer, ColumnMetadata metadata) {
+    this(buffer, metadata.getCardinality(), false);
+  }
+
+  /**
+   * @param ownsBuffer whether the buffer was mapped or allocated for this dictionary, and must be released on close.
+   */
+  private VarLengthStringDictionary(ByteBuffer buffer, int cardinality, boolean ownsBuffer) {
+    super(cardinality);
+    this.buffer = buffer;
+    this.ownsBuffer = ownsBuffer;
+    this.cardinality = cardinality;
+    valuesStart = (cardinality + 1) * 4;
+    int cacheSize = 1;
+    while (cacheSize < Math.min(cardinality, MAX_CACHE_SIZE)) {
+      cacheSize <<= 1;
+    }
+    cache = new CachedValue[cacheSize];
+    cacheMask = cacheSize - 1;
+  }
+
+  private static ByteBuffer readFile(File dictFile, ReadMode mode) throws IOException {
+    final RandomAccessFile file = new RandomAccessFile(dictFile, "r");
+    try {
+      final FileChannel channel = file.getChannel();
+      if (mode == ReadMode.mmap) {
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+      final ByteBuffer buffer = ByteBuffer.allocateDirect((int) channel.size());
+      while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+        // Read the whole file
+      }
+      buffer.flip();
+      return buffer;
+    } finally {
+      file.close();
+    }
+  }
+
+  /**
+   * Writes the dictionary of the given values, which must be sorted.
+   */
+  public static void write(File dictFile, String[] sortedValues) throws IOException {
+    final byte[][] values = new byte[sortedValues.length][];
+    int size = 0;
+    for (int i = 0; i < sortedValues.length; i++) {
+      values[i] = sortedValues[i].getBytes(UTF_8);
+      size += values[i].length;
+    }
+    final ByteBuffer buffer = ByteBuffer.allocate((sortedValues.length + 1) * 4 + size);
+    int offset = 0;
+    for (int i = 0; i < values.length; i++) {
+      buffer.putInt(offset);
+      offset += values[i].length;
+    }
+    buffer.putInt(offset);
+    for (byte[] value : values) {
+      buffer.put(value);
+    }
+    buffer.flip();
+
+    final RandomAccessFile file = new RandomAccessFile(dictFile, "rw");
+    try {
+      file.setLength(0);
+      final FileChannel channel = file.getChannel();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    } finally {
+      file.close();
+    }
+  }
+
+  @Override
+  public int indexOf(Object rawValue) {
+    final String value = rawValue.toString();
+    int low = 0;
+    int high = cardinality - 1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      final int comparison = compareTo(mid, value);
+      if (comparison < 0) {
+        low = mid + 1;
+      } else if (comparison > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  /**
+   * Compares a stored value to the given one in the String order, decoding the UTF-8 bytes one char at a time.
+   */
+  private int compareTo(int dictionaryId, String value) {
+    int position = valuesStart + buffer.getInt(dictionaryId * 4);
+    final int end = valuesStart + buffer.getInt((dictionaryId + 1) * 4);
+    final int length = value.length();
+    int index = 0;
+    char lowSurrogate = 0;
+    while (true) {
+      final char c;
+      if (lowSurrogate != 0) {
+        c = lowSurrogate;
+        lowSurrogate = 0;
+      } else if (position < end) {
+        final int b = buffer.get(position) & 0xFF;
+        if (b < 0x80) {
+          c = (char) b;
+          position++;
+        } else if (b < 0xE0) {
+          c = (char) (((b & 0x1F) << 6) | (buffer.get(position + 1) & 0x3F));
+          position += 2;
+        } else if (b < 0xF0) {
+          c = (char) (((b & 0x0F) << 12) | ((buffer.get(position + 1) & 0x3F) << 6) | (buffer.get(position + 2) & 0x3F));
+          position += 3;
+        } else {
+          final int codePoint = ((b & 0x07) << 18) | ((buffer.get(position + 1) & 0x3F) << 12)
+              | ((buffer.get(position + 2) & 0x3F) << 6) | (buffer.get(position + 3) & 0x3F);
+          c = Character.highSurrogate(codePoint);
+          lowSurrogate = Character.lowSurrogate(codePoint);
+          position += 4;
+        }
+      } else {
+        return index < length ? -1 : 0;
+      }
+      if (index == length) {
+        return 1;
+      }
+      final char other = value.charAt(index++);
+      if (c != other) {
+        return c - other;
+      }
+    }
+  }
+
+  @Override
+  public String get(int dictionaryId) {
+    if ((dictionaryId == -1) || (dictionaryId >= length())) {
+      return DEFAULT_NULL_STRING_VALUE;
+    }
+    return getStringValue(dictionaryId);
+  }
+
+  @Override
+  public long getLongValue(int dictionaryId) {
+    throw new RuntimeException("cannot converted string to long");
+  }
+
+  @Override
+  public double getDoubleValue(int dictionaryId) {
+    throw new RuntimeException("cannot converted string to double");
+  }
+
+  @Override
+  public void readDoubleValues(int[] dictionaryIds, int startPos, int limit, double[] outValues, int outStartPos) {
+    throw new RuntimeException("cannot converted string to double");
+  }
+
+  @Override
+  public String getStringValue(int dictionaryId) {
+    final int slot = dictionaryId & cacheMask;
+    final CachedValue cachedValue = cache[slot];
+    if (cachedValue != null && cachedValue.dictionaryId == dictionaryId) {
+      return cachedValue.value;
+    }
+    final int start = valuesStart + buffer.getInt(dictionaryId * 4);
+    final byte[] bytes = new byte[valuesStart + buffer.getInt((dictionaryId + 1) * 4) - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(start + i);
+    }
+    final String value = new String(bytes, UTF_8);
+    // The entries are immutable, concurrent readers see either the previous or the new entry of the slot
+    cache[slot] = new CachedValue(dictionaryId, value);
+    return value;
+  }
+
+  @Override
+  public String toString(int dictionaryId) {
+    return get(dictionaryId);
+  }
+
+  @Override
+  public void close() throws IOException {
+    // Releases the mapped file, or the direct buffer the file was read into in heap mode
+    if (ownsBuffer) {
+      MmapUtils.unloadByteBuffer(buffer);
+    }
+  }
+
+  private static class CachedValue {
+    private final int dictionaryId;
+    private final String value;
+
+    private CachedValue(int dictionaryId, String value) {
+      this.dictionaryId = dictionaryId;
+      this.value = value;
+    }
+  }
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.core.block.query.IntermediateResultsBlock;
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockId;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionFactory;
+
+
+public class MCombineOperatorTest {
+  private ExecutorService _executorService;
+  private BrokerRequest _brokerRequest;
+
+  @BeforeClass
+  public void setup() {
+    _executorService = Executors.newFixedThreadPool(4);
+    AggregationInfo countAggregationInfo = new AggregationInfo();
+    countAggregationInfo.setAggregationType("count");
+    Map<String, String> params = new HashMap<String, String>();
+    params.put("column", "*");
+    countAggregationInfo.setAggregationParams(params);
+    _brokerRequest = new BrokerRequest();
+    _brokerRequest.setAggregationsInfo(Collections.singletonList(countAggregationInfo));
+  }
+
+  @AfterClass
+  public void tearDown() {
+    _executorService.shutdownNow();
+  }
+
+  @Test
+  public void testCombineAllSegments() {
+    AtomicInteger numStartedOperators = new AtomicInteger(0);
+    List<Operator> operators = new ArrayList<Operator>();
+    long expectedCount = 0;
+    for (int i = 0; i < 57; i++) {
+      // Make one segment much slower than the others, the other workers keep draining the remaining segments
+      operators.add(new CountOperator(i + 1, (i == 0) ? 200 : 0, numStartedOperators));
+      expectedCount += i + 1;
+    }
+    MCombineOperator combineOperator = new MCombineOperator(operators, _executorService, 10000, _brokerRequest, 4);
+    IntermediateResultsBlock resultBlock = (IntermediateResultsBlock) combineOperator.nextBlock();
+
+    Assert.assertEquals(numStartedOperators.get(), 57);
+    Assert.assertEquals(resultBlock.getAggregationResult().get(0), expectedCount);
+    Assert.assertEquals(resultBlock.getNumDocsScanned(), expectedCount);
+  }
+
+  @Test
+  public void testCombineSerially() {
+    AtomicInteger numStartedOperators = new AtomicInteger(0);
+    List<Operator> operators = new ArrayList<Operator>();
+    long expectedCount = 0;
+    for (int i = 0; i < 5; i++) {
+      operators.add(new CountOperator(i + 1, 0, numStartedOperators));
+      expectedCount += i + 1;
+    }
+    // Any operator producing intermediate results is accepted without executor as well
+    MCombineOperator combineOperator = new MCombineOperator(operators, _brokerRequest);
+    IntermediateResultsBlock resultBlock = (IntermediateResultsBlock) combineOperator.nextBlock();
+
+    Assert.assertEquals(numStartedOperators.get(), 5);
+    Assert.assertEquals(resultBlock.getAggregationResult().get(0), expectedCount);
+  }
+
+  @Test
+  public void testMinSegmentsPerThread() {
+    AtomicInteger numStartedOperators = new AtomicInteger(0);
+    List<Operator> operators = new ArrayList<Operator>();
+    for (int i = 0; i < 8; i++) {
+      operators.add(new CountOperator(1, 100, numStartedOperators));
+    }
+    // One segment per thread, the 8 segments are processed concurrently instead of sequentially by a single thread
+    MCombineOperator combineOperator = new MCombineOperator(operators, _executorService, 10000, _brokerRequest, 8, 1);
+    long startTime = System.currentTimeMillis();
+    IntermediateResultsBlock resultBlock = (IntermediateResultsBlock) combineOperator.nextBlock();
+    long elapsedTime = System.currentTimeMillis() - startTime;
+
+    Assert.assertEquals(resultBlock.getAggregationResult().get(0), 8L);
+    Assert.assertTrue(elapsedTime < 600, "Took " + elapsedTime + "ms");
+  }
+
+  @Test
+  public void testTimeoutStopsOutstandingSegments() throws Exception {
+    AtomicInteger numStartedOperators = new AtomicInteger(0);
+    List<Operator> operators = new ArrayList<Operator>();
+    for (int i = 0; i < 40; i++) {
+      operators.add(new CountOperator(1, 100, numStartedOperators));
+    }
+    MCombineOperator combineOperator = new MCombineOperator(operators, _executorService, 150, _brokerRequest, 2);
+    IntermediateResultsBlock resultBlock = (IntermediateResultsBlock) combineOperator.nextBlock();
+
+    Assert.assertEquals(resultBlock.getExceptions().size(), 1);
+    Assert.assertTrue(resultBlock.getExceptions().get(0).getMessage().contains("TimeoutException"));
+    Assert.assertNull(resultBlock.getAggregationResult());
+
+    // The segments already running complete, but no new segment is picked up after the timeout
+    Thread.sleep(500);
+    int numStartedAfterTimeout = numStartedOperators.get();
+    Assert.assertTrue(numStartedAfterTimeout <= 6, "Started " + numStartedAfterTimeout + " segments");
+    Thread.sleep(300);
+    Assert.assertEquals(numStartedOperators.get(), numStartedAfterTimeout);
+  }
+
+  /**
+   * Operator returning a count aggregation result after sleeping for the given time.
+   */
+  private class CountOperator implements Operator {
+    private final long _count;
+    private final long _sleepTimeMs;
+    private final AtomicInteger _numStartedOperators;
+
+    private CountOperator(long count, long sleepTimeMs, AtomicInteger numStartedOperators) {
+      _count = count;
+      _sleepTimeMs = sleepTimeMs;
+      _numStartedOperators = numStartedOperators;
+    }
+
+    @Override
+    public boolean open() {
+      return true;
+    }
+
+    @Override
+    public Block nextBlock() {
+      _numStartedOperators.incrementAndGet();
+      if (_sleepTimeMs > 0) {
+        try {
+          Thread.sleep(_sleepTimeMs);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      List<Serializable> aggregationResults = new ArrayList<Serializable>();
+      aggregationResults.add(_count);
+      IntermediateResultsBlock block =
+          new IntermediateResultsBlock(AggregationFunctionFactory.getAggregationFunction(_brokerRequest),
+              aggregationResults);
+      block.setNumDocsScanned(_count);
+      return block;
+    }
+
+    @Override
+    public Block nextBlock(BlockId blockId) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean close() {
+      return true;
+    }
+  }
+}
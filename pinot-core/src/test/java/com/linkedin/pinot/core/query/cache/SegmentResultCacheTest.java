@@ -0,0 +1,231 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.cache;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.FilterOperator;
+import com.linkedin.pinot.common.request.GroupBy;
+import com.linkedin.pinot.common.request.Selection;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
+import com.linkedin.pinot.core.block.query.IntermediateResultsBlock;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.plan.SegmentResultCachePlanNode;
+import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
+import com.linkedin.pinot.core.plan.maker.PlanMaker;
+import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
+import com.linkedin.pinot.segments.v1.creator.SegmentTestUtils;
+import com.linkedin.pinot.util.TestUtils;
+
+
+public class SegmentResultCacheTest {
+  private static final String AVRO_DATA = "data/simpleData200001.avro";
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "SegmentResultCacheTest");
+
+  private IndexSegment _indexSegment;
+  private final PlanMaker _planMaker = new InstancePlanMakerImplV2();
+
+  @BeforeClass
+  public void setup() throws Exception {
+    final String filePath =
+        TestUtils.getFileFromResourceUrl(SegmentResultCacheTest.class.getClassLoader().getResource(AVRO_DATA));
+    FileUtils.deleteQuietly(INDEX_DIR);
+
+    final SegmentGeneratorConfig config =
+        SegmentTestUtils.getSegmentGenSpecWithSchemAndProjectedColumns(new File(filePath), INDEX_DIR, "dim1",
+            TimeUnit.DAYS, "test");
+    final SegmentIndexCreationDriver driver = SegmentCreationDriverFactory.get(null);
+    driver.init(config);
+    driver.build();
+    _indexSegment = ColumnarSegmentLoader.load(new File(INDEX_DIR, driver.getSegmentName()), ReadMode.heap);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  @Test
+  public void testAggregation() {
+    SegmentResultCache cache = new SegmentResultCache(1024 * 1024);
+    BrokerRequest brokerRequest = getAggregationBrokerRequest(null);
+
+    IntermediateResultsBlock computedBlock = runWithCache(cache, brokerRequest);
+    Assert.assertEquals(cache.size(), 1);
+    Assert.assertEquals(cache.stats().missCount(), 1);
+
+    IntermediateResultsBlock cachedBlock = runWithCache(cache, brokerRequest);
+    Assert.assertEquals(cache.stats().hitCount(), 1);
+    Assert.assertNotSame(cachedBlock, computedBlock);
+    Assert.assertEquals(cachedBlock.getAggregationResult(), computedBlock.getAggregationResult());
+    Assert.assertEquals(cachedBlock.getNumDocsScanned(), computedBlock.getNumDocsScanned());
+    Assert.assertEquals(cachedBlock.getTotalDocs(), computedBlock.getTotalDocs());
+
+    // Trace and bucket hash key do not change the results
+    BrokerRequest otherRequest = getAggregationBrokerRequest(null);
+    otherRequest.setBucketHashKey("key");
+    Assert.assertEquals(cache.getCacheKey(_indexSegment, otherRequest),
+        cache.getCacheKey(_indexSegment, brokerRequest));
+    otherRequest.setEnableTrace(true);
+    Assert.assertNull(cache.getCacheKey(_indexSegment, otherRequest));
+
+    // Selection queries are not cached
+    BrokerRequest selectionRequest = new BrokerRequest();
+    selectionRequest.setSelections(new Selection());
+    Assert.assertNull(cache.getCacheKey(_indexSegment, selectionRequest));
+
+    cache.invalidateSegment(_indexSegment.getSegmentName());
+    Assert.assertEquals(cache.size(), 0);
+  }
+
+  @Test
+  public void testInvalidationDuringQuery() {
+    SegmentResultCache cache = new SegmentResultCache(1024 * 1024);
+    BrokerRequest brokerRequest = getAggregationBrokerRequest(null);
+
+    // The segment is invalidated while the query runs, its results are not cached
+    SegmentResultCache.CacheKey key = cache.getCacheKey(_indexSegment, brokerRequest);
+    IntermediateResultsBlock block =
+        (IntermediateResultsBlock) _planMaker.makeInnerSegmentPlan(_indexSegment, brokerRequest).run().nextBlock();
+    cache.invalidateSegment(_indexSegment.getSegmentName());
+    cache.put(key, brokerRequest, block);
+    Assert.assertEquals(cache.size(), 0);
+    Assert.assertNull(cache.get(key, brokerRequest));
+
+    // Queries starting after the invalidation cache their results again
+    SegmentResultCache.CacheKey newKey = cache.getCacheKey(_indexSegment, brokerRequest);
+    Assert.assertFalse(newKey.equals(key));
+    cache.put(newKey, brokerRequest, block);
+    Assert.assertEquals(cache.size(), 1);
+    Assert.assertNotNull(cache.get(newKey, brokerRequest));
+  }
+
+  @Test
+  public void testAggregationGroupBy() {
+    SegmentResultCache cache = new SegmentResultCache(1024 * 1024);
+    BrokerRequest brokerRequest = getAggregationBrokerRequest(null);
+    GroupBy groupBy = new GroupBy();
+    groupBy.setColumns(Arrays.asList("dim0"));
+    groupBy.setTopN(15);
+    brokerRequest.setGroupBy(groupBy);
+
+    IntermediateResultsBlock computedBlock = runWithCache(cache, brokerRequest);
+    List<Map<String, Serializable>> computedResults = computedBlock.getAggregationGroupByOperatorResult();
+    IntermediateResultsBlock cachedBlock = runWithCache(cache, brokerRequest);
+    Assert.assertEquals(cache.stats().hitCount(), 1);
+    Assert.assertEquals(cachedBlock.getAggregationGroupByOperatorResult(), computedResults);
+
+    // The cached results are not shared with the blocks merged by the combine phase
+    cachedBlock.getAggregationGroupByOperatorResult().get(0).clear();
+    Assert.assertEquals(runWithCache(cache, brokerRequest).getAggregationGroupByOperatorResult(), computedResults);
+  }
+
+  @Test
+  public void testRangeNormalization() {
+    SegmentResultCache cache = new SegmentResultCache(1024 * 1024);
+    ImmutableDictionaryReader dictionary = ((IndexSegmentImpl) _indexSegment).getDictionaryFor("dim1");
+    long min = dictionary.getLongValue(0);
+    long max = dictionary.getLongValue(dictionary.length() - 1);
+
+    // Ranges covering all the values of the segment share the cached results
+    SegmentResultCache.CacheKey key =
+        cache.getCacheKey(_indexSegment, getAggregationBrokerRequest("[" + min + "\t\t" + max + "]"));
+    Assert.assertEquals(cache.getCacheKey(_indexSegment, getAggregationBrokerRequest("(" + (min - 1) + "\t\t*)")), key);
+    Assert.assertEquals(cache.getCacheKey(_indexSegment, getAggregationBrokerRequest("[*\t\t" + (max + 10) + ")")),
+        key);
+
+    // Ranges excluding some values of the segment do not
+    Assert.assertFalse(key.equals(cache.getCacheKey(_indexSegment,
+        getAggregationBrokerRequest("(" + min + "\t\t" + max + "]"))));
+    Assert.assertFalse(key.equals(cache.getCacheKey(_indexSegment,
+        getAggregationBrokerRequest("[" + min + "\t\t" + (max - 1) + "]"))));
+
+    IntermediateResultsBlock computedBlock =
+        runWithCache(cache, getAggregationBrokerRequest("[" + min + "\t\t" + max + "]"));
+    IntermediateResultsBlock cachedBlock = runWithCache(cache, getAggregationBrokerRequest("[*\t\t*]"));
+    Assert.assertEquals(cache.stats().hitCount(), 1);
+    Assert.assertEquals(cachedBlock.getAggregationResult(), computedBlock.getAggregationResult());
+  }
+
+  @Test
+  public void testSizeBound() {
+    SegmentResultCache cache = new SegmentResultCache(4 * 1024);
+    for (int i = 0; i < 100; i++) {
+      runWithCache(cache, getAggregationBrokerRequest("[" + i + "\t\t" + (i + 10) + "]"));
+    }
+    Assert.assertTrue(cache.size() > 0);
+    Assert.assertTrue(cache.size() < 100, "Size: " + cache.size());
+  }
+
+  private IntermediateResultsBlock runWithCache(SegmentResultCache cache, BrokerRequest brokerRequest) {
+    SegmentResultCache.CacheKey key = cache.getCacheKey(_indexSegment, brokerRequest);
+    Assert.assertNotNull(key);
+    Operator operator = new SegmentResultCachePlanNode(_planMaker, _indexSegment, brokerRequest, cache, key).run();
+    operator.open();
+    IntermediateResultsBlock block = (IntermediateResultsBlock) operator.nextBlock();
+    operator.close();
+    return block;
+  }
+
+  private static BrokerRequest getAggregationBrokerRequest(String dim1Range) {
+    BrokerRequest brokerRequest = new BrokerRequest();
+    List<AggregationInfo> aggregationsInfo = new ArrayList<AggregationInfo>();
+    aggregationsInfo.add(getAggregationInfo("count", "met"));
+    aggregationsInfo.add(getAggregationInfo("sum", "met"));
+    aggregationsInfo.add(getAggregationInfo("distinctCount", "dim0"));
+    brokerRequest.setAggregationsInfo(aggregationsInfo);
+    if (dim1Range != null) {
+      List<FilterQueryTree> children = new ArrayList<FilterQueryTree>();
+      children.add(new FilterQueryTree(1, "dim1", Arrays.asList(dim1Range), FilterOperator.RANGE, null));
+      children.add(new FilterQueryTree(2, "dim0", Arrays.asList("[0\t\t5]"), FilterOperator.RANGE, null));
+      RequestUtils.generateFilterFromTree(new FilterQueryTree(0, null, null, FilterOperator.AND, children),
+          brokerRequest);
+    }
+    return brokerRequest;
+  }
+
+  private static AggregationInfo getAggregationInfo(String type, String column) {
+    Map<String, String> params = new HashMap<String, String>();
+    params.put("column", column);
+    AggregationInfo aggregationInfo = new AggregationInfo();
+    aggregationInfo.setAggregationType(type);
+    aggregationInfo.setAggregationParams(params);
+    return aggregationInfo;
+  }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.realtime;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.generic.GenericData.Array;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.data.DimensionFieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.common.data.FieldSpec.FieldType;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.readers.AvroRecordReader;
+import com.linkedin.pinot.core.realtime.impl.kafka.AvroRecordToPinotRowGenerator;
+import com.linkedin.pinot.segments.v1.creator.SegmentTestUtils;
+import com.linkedin.pinot.util.TestUtils;
+
+
+public class AvroRecordToPinotRowGeneratorTest {
+  private static final String AVRO_DATA = "data/test_data-sv.avro";
+  private static final String MISSING_COLUMN = "missingColumn";
+
+  private File _avroFile;
+  private Schema _schema;
+
+  @BeforeClass
+  public void setup() throws Exception {
+    _avroFile = new File(TestUtils.getFileFromResourceUrl(getClass().getClassLoader().getResource(AVRO_DATA)));
+    Map<String, FieldType> fieldTypeMap = new HashMap<String, FieldType>();
+    DataFileStream<GenericRecord> avroReader =
+        new DataFileStream<GenericRecord>(new FileInputStream(_avroFile), new GenericDatumReader<GenericRecord>());
+    for (org.apache.avro.Schema.Field field : avroReader.getSchema().getFields()) {
+      fieldTypeMap.put(field.name(), FieldType.DIMENSION);
+    }
+    avroReader.close();
+    _schema = SegmentTestUtils.extractSchemaFromAvro(_avroFile, fieldTypeMap, TimeUnit.DAYS);
+
+    DimensionFieldSpec missingFieldSpec = new DimensionFieldSpec();
+    missingFieldSpec.setName(MISSING_COLUMN);
+    missingFieldSpec.setDataType(DataType.STRING);
+    missingFieldSpec.setSingleValueField(true);
+    _schema.addSchema(MISSING_COLUMN, missingFieldSpec);
+  }
+
+  @Test
+  public void testTransformReusedRecordIntoReusedRow() throws Exception {
+    AvroRecordToPinotRowGenerator rowGenerator = new AvroRecordToPinotRowGenerator(_schema);
+    GenericRow row = rowGenerator.newRow();
+    Map<String, Object> firstValues = new HashMap<String, Object>();
+
+    DataFileStream<GenericRecord> avroReader =
+        new DataFileStream<GenericRecord>(new FileInputStream(_avroFile), new GenericDatumReader<GenericRecord>());
+    GenericRecord avroRecord = null;
+    int numRecords = 0;
+    int numInternedStrings = 0;
+    while (avroReader.hasNext()) {
+      avroRecord = avroReader.next(avroRecord);
+      Assert.assertSame(rowGenerator.transform(avroRecord, row), row);
+      Assert.assertEquals(row.getFieldNames().length, _schema.size());
+
+      for (String column : _schema.getColumnNames()) {
+        FieldSpec fieldSpec = _schema.getFieldSpecFor(column);
+        Object value = row.getValue(column);
+        if (column.equals(MISSING_COLUMN)) {
+          Assert.assertEquals(value, AvroRecordReader.getDefaultNullValue(fieldSpec));
+        } else if (fieldSpec.isSingleValueField()) {
+          Object expected = avroRecord.get(column);
+          if (expected == null) {
+            expected = AvroRecordReader.getDefaultNullValue(fieldSpec);
+          } else if (fieldSpec.getDataType() == DataType.STRING) {
+            expected = expected.toString();
+            Assert.assertTrue(value instanceof String);
+            // The same string values are the same instances across records
+            if (numRecords == 0) {
+              firstValues.put(column, value);
+            } else if (value.equals(firstValues.get(column))) {
+              Assert.assertSame(value, firstValues.get(column));
+              numInternedStrings++;
+            }
+          }
+          Assert.assertEquals(value, expected, column);
+        } else {
+          Assert.assertEquals((Object[]) value,
+              AvroRecordReader.transformAvroArrayToObjectArray((Array) avroRecord.get(column), fieldSpec), column);
+        }
+      }
+      numRecords++;
+    }
+    avroReader.close();
+    Assert.assertTrue(numRecords > 0);
+    Assert.assertTrue(numInternedStrings > 0);
+  }
+
+  @Test
+  public void testTransformIntoNewRows() throws Exception {
+    AvroRecordToPinotRowGenerator rowGenerator = new AvroRecordToPinotRowGenerator(_schema);
+    DataFileStream<GenericRecord> avroReader =
+        new DataFileStream<GenericRecord>(new FileInputStream(_avroFile), new GenericDatumReader<GenericRecord>());
+    GenericRecord avroRecord = avroReader.next();
+    GenericRow firstRow = rowGenerator.transform(avroRecord);
+    String firstRowString = firstRow.toString();
+    avroRecord = avroReader.next(avroRecord);
+    GenericRow secondRow = rowGenerator.transform(avroRecord);
+    avroReader.close();
+
+    // Rows share their field names but not their values, the rows do not reference the reused record
+    Assert.assertNotSame(firstRow, secondRow);
+    Assert.assertSame(firstRow.getFieldNames(), secondRow.getFieldNames());
+    Assert.assertEquals(firstRow.toString(), firstRowString);
+    Assert.assertEquals(GenericRow.fromBytes(firstRow.toBytes()).getFieldNames().length, _schema.size());
+  }
+}
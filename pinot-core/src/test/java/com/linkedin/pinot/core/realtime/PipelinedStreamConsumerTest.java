@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.realtime;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.data.FieldSpec.FieldType;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.common.utils.CommonConstants;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.readers.FileFormat;
+import com.linkedin.pinot.core.realtime.impl.FileBasedStreamProviderConfig;
+import com.linkedin.pinot.core.realtime.impl.FileBasedStreamProviderImpl;
+import com.linkedin.pinot.core.realtime.impl.PipelinedStreamConsumer;
+import com.linkedin.pinot.segments.v1.creator.SegmentTestUtils;
+import com.linkedin.pinot.util.TestUtils;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Meter;
+import com.yammer.metrics.core.MetricName;
+
+
+public class PipelinedStreamConsumerTest {
+  private static final String AVRO_DATA = "data/test_sample_data.avro";
+
+  private String _avroFilePath;
+  private Schema _schema;
+  private List<String> _expectedRows;
+
+  @BeforeClass
+  public void setup() throws Exception {
+    _avroFilePath = TestUtils.getFileFromResourceUrl(getClass().getClassLoader().getResource(AVRO_DATA));
+    Map<String, FieldType> fieldTypeMap = new HashMap<String, FieldType>();
+    for (String column : Arrays.asList("column1", "column2", "column3", "column4", "column5", "column7", "column8",
+        "column9", "column10", "column11", "column12", "column13", "column14", "column15")) {
+      fieldTypeMap.put(column, FieldType.DIMENSION);
+    }
+    fieldTypeMap.put("time_day", FieldType.TIME);
+    fieldTypeMap.put("met_impressionCount", FieldType.METRIC);
+    _schema = SegmentTestUtils.extractSchemaFromAvro(new File(_avroFilePath), fieldTypeMap, TimeUnit.DAYS);
+
+    // Rows as read directly from the file, in order
+    _expectedRows = new ArrayList<String>();
+    StreamProvider provider = createStreamProvider();
+    GenericRow row;
+    while ((row = provider.next()) != null) {
+      _expectedRows.add(toString(row));
+    }
+    provider.shutdown();
+  }
+
+  @Test
+  public void testRowsInStreamOrder() throws Exception {
+    String name = "testRowsInStreamOrder";
+    PipelinedStreamConsumer consumer = new PipelinedStreamConsumer(createStreamProvider(), name, 4, 7, 3);
+    consumer.start();
+    List<String> rows = new ArrayList<String>();
+    GenericRow row;
+    while ((row = consumer.next()) != null) {
+      rows.add(toString(row));
+    }
+    Assert.assertNull(consumer.next());
+    Assert.assertEquals(rows, _expectedRows);
+
+    Meter rowsConsumed = (Meter) Metrics.defaultRegistry().allMetrics().get(
+        new MetricName(PipelinedStreamConsumer.class, name + "-" + CommonConstants.Metric.Server.REALTIME_ROWS_CONSUMED));
+    Assert.assertEquals(rowsConsumed.count(), _expectedRows.size());
+
+    consumer.shutdown();
+    Assert.assertFalse(Metrics.defaultRegistry().allMetrics().containsKey(
+        new MetricName(PipelinedStreamConsumer.class, name + "-" + CommonConstants.Metric.Server.REALTIME_ROWS_CONSUMED)));
+  }
+
+  @Test
+  public void testStopHandsOutFetchedRows() throws Exception {
+    PipelinedStreamConsumer consumer =
+        new PipelinedStreamConsumer(createStreamProvider(), "testStopHandsOutFetchedRows", 2, 10, 2);
+    consumer.start();
+    List<String> rows = new ArrayList<String>();
+    GenericRow row = consumer.next();
+    rows.add(toString(row));
+    consumer.stop();
+    while ((row = consumer.next()) != null) {
+      rows.add(toString(row));
+    }
+    consumer.shutdown();
+
+    // At most the batches in flight are handed out after stopping, and they are the first rows of the stream
+    Assert.assertTrue(rows.size() >= 10);
+    Assert.assertTrue(rows.size() <= 30);
+    Assert.assertEquals(rows, _expectedRows.subList(0, rows.size()));
+  }
+
+  @Test
+  public void testMaxNumMessages() throws Exception {
+    PipelinedStreamConsumer consumer =
+        new PipelinedStreamConsumer(createStreamProvider(), "testMaxNumMessages", 2, 10, 2, 25);
+    consumer.start();
+    List<String> rows = new ArrayList<String>();
+    GenericRow row;
+    while ((row = consumer.next()) != null) {
+      rows.add(toString(row));
+    }
+    consumer.shutdown();
+
+    // The stream ends once the maximum number of messages is fetched, with a partial last batch
+    Assert.assertEquals(rows, _expectedRows.subList(0, 25));
+  }
+
+  private RawMessageStreamProvider createStreamProvider() throws Exception {
+    FileBasedStreamProviderImpl provider = new FileBasedStreamProviderImpl();
+    provider.init(new FileBasedStreamProviderConfig(FileFormat.AVRO, _avroFilePath, _schema));
+    return provider;
+  }
+
+  // Compares the values through their string representation, numbers do not keep their exact type through JSON
+  private static String toString(GenericRow row) {
+    StringBuilder builder = new StringBuilder();
+    for (String column : new TreeSet<String>(Arrays.asList(row.getFieldNames()))) {
+      Object value = row.getValue(column);
+      builder.append(column).append('=');
+      if (value instanceof Object[]) {
+        builder.append(Arrays.toString((Object[]) value));
+      } else {
+        builder.append(value);
+      }
+      builder.append(',');
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,319 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.realtime;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.data.DimensionFieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.common.data.FieldSpec.FieldType;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.core.common.BlockDocIdIterator;
+import com.linkedin.pinot.core.common.Constants;
+import com.linkedin.pinot.core.common.predicate.EqPredicate;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.readers.FileFormat;
+import com.linkedin.pinot.core.operator.filter.BitmapBasedFilterOperator;
+import com.linkedin.pinot.core.realtime.impl.FileBasedStreamProviderConfig;
+import com.linkedin.pinot.core.realtime.impl.FileBasedStreamProviderImpl;
+import com.linkedin.pinot.core.realtime.impl.RealtimeSegmentImpl;
+import com.linkedin.pinot.core.realtime.impl.dictionary.DoubleMutableDictionary;
+import com.linkedin.pinot.core.realtime.impl.dictionary.IntMutableDictionary;
+import com.linkedin.pinot.core.realtime.impl.dictionary.MutableDictionaryReader;
+import com.linkedin.pinot.core.realtime.impl.dictionary.RealtimeDictionaryProvider;
+import com.linkedin.pinot.core.realtime.impl.dictionary.StringMutableDictionary;
+import com.linkedin.pinot.core.realtime.impl.invertedIndex.DimensionInvertertedIndex;
+import com.linkedin.pinot.core.realtime.impl.invertedIndex.RealtimeInvertedIndex;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import com.linkedin.pinot.segments.v1.creator.SegmentTestUtils;
+import com.linkedin.pinot.util.TestUtils;
+
+
+public class RealtimeMutableIndexTest {
+  private static final String AVRO_DATA = "data/test_sample_data.avro";
+  private static final int NUM_VALUES = 10000;
+
+  @Test
+  public void testNumericDictionaries() {
+    for (DataType dataType : new DataType[] { DataType.INT, DataType.LONG, DataType.FLOAT, DataType.DOUBLE }) {
+      MutableDictionaryReader dictionary =
+          RealtimeDictionaryProvider.getDictionaryFor(new DimensionFieldSpec("column", dataType, true));
+      Assert.assertTrue(dictionary.isEmpty());
+
+      // Values are indexed twice, from numbers then from strings, and keep their first dictionary id
+      for (int i = 0; i < NUM_VALUES; i++) {
+        dictionary.index(getValue(dataType, i - NUM_VALUES / 2));
+      }
+      for (int i = 0; i < NUM_VALUES; i++) {
+        dictionary.index(Integer.toString(i - NUM_VALUES / 2));
+      }
+      Assert.assertEquals(dictionary.length(), NUM_VALUES, dataType.toString());
+
+      for (int i = 0; i < NUM_VALUES; i++) {
+        Object value = getValue(dataType, i - NUM_VALUES / 2);
+        Assert.assertEquals(dictionary.indexOf(value), i);
+        Assert.assertEquals(dictionary.get(i), value);
+        Assert.assertEquals(dictionary.getLongValue(i), i - NUM_VALUES / 2);
+        Assert.assertTrue(dictionary.contains(value));
+      }
+      Assert.assertEquals(dictionary.indexOf(getValue(dataType, NUM_VALUES)), Dictionary.NULL_VALUE_INDEX);
+      Assert.assertFalse(dictionary.contains(getValue(dataType, NUM_VALUES)));
+      Assert.assertEquals(dictionary.getMinVal(), getValue(dataType, -NUM_VALUES / 2));
+      Assert.assertEquals(dictionary.getMaxVal(), getValue(dataType, NUM_VALUES / 2 - 1));
+
+      Assert.assertFalse(dictionary.hasNull());
+      dictionary.index(null);
+      Assert.assertTrue(dictionary.hasNull());
+      Assert.assertEquals(dictionary.indexOf(null), Dictionary.NULL_VALUE_INDEX);
+      Assert.assertNull(dictionary.get(Dictionary.NULL_VALUE_INDEX));
+      dictionary.close();
+    }
+  }
+
+  @Test
+  public void testDoubleDictionary() {
+    DoubleMutableDictionary dictionary = new DoubleMutableDictionary(new DimensionFieldSpec("column", DataType.DOUBLE,
+        true));
+    // Values are compared as in Double.equals()
+    dictionary.index(new Object[] { 0.0, -0.0, Double.NaN, -1.5 });
+    dictionary.index(Double.NaN);
+    Assert.assertEquals(dictionary.length(), 4);
+    Assert.assertEquals(dictionary.indexOf(-0.0), 1);
+    Assert.assertEquals(dictionary.indexOf(Double.NaN), 2);
+    Assert.assertEquals(dictionary.getMinVal(), -1.5);
+    Assert.assertTrue(dictionary.inRange("-2", "0", 3));
+    Assert.assertFalse(dictionary.inRange("-1.5", "0", 3, false, true));
+    dictionary.close();
+  }
+
+  @Test
+  public void testStringDictionary() {
+    StringMutableDictionary dictionary = new StringMutableDictionary(new DimensionFieldSpec("column", DataType.STRING,
+        false));
+    for (int i = 0; i < NUM_VALUES; i++) {
+      dictionary.index(new Object[] { "value" + i, "value" + (i / 2) });
+    }
+    Assert.assertEquals(dictionary.length(), NUM_VALUES);
+    for (int i = 0; i < NUM_VALUES; i++) {
+      Assert.assertEquals(dictionary.indexOf("value" + i), i == 0 ? 0 : i);
+      Assert.assertEquals(dictionary.getStringValue(i), "value" + i);
+    }
+    Assert.assertEquals(dictionary.indexOf("missing"), Dictionary.NULL_VALUE_INDEX);
+    Assert.assertEquals(dictionary.getMinVal(), "value0");
+    Assert.assertEquals(dictionary.getMaxVal(), "value9999");
+  }
+
+  @Test
+  public void testConcurrentReads() throws Exception {
+    final int numDocs = 200000;
+    final int cardinality = 50000;
+    final IntMutableDictionary dictionary = new IntMutableDictionary(new DimensionFieldSpec("column", DataType.INT,
+        true));
+    final RealtimeInvertedIndex invertedIndex = new DimensionInvertertedIndex("column");
+    final int[] values = new int[numDocs];
+    Random random = new Random(0);
+    for (int docId = 0; docId < numDocs; docId++) {
+      values[docId] = random.nextInt(cardinality) * 7;
+    }
+
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    final Thread writer = new Thread() {
+      @Override
+      public void run() {
+        for (int docId = 0; docId < numDocs; docId++) {
+          invertedIndex.add(dictionary.index(values[docId]), docId);
+        }
+      }
+    };
+    Thread[] readers = new Thread[2];
+    for (int i = 0; i < readers.length; i++) {
+      readers[i] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            Random random = new Random();
+            while (writer.isAlive()) {
+              int length = dictionary.length();
+              if (length == 0) {
+                continue;
+              }
+              int dictionaryId = random.nextInt(length);
+              int value = dictionary.getInt(dictionaryId);
+              Assert.assertEquals(value % 7, 0);
+              Assert.assertEquals(dictionary.indexOf(value), dictionaryId);
+              MutableRoaringBitmap docIds = invertedIndex.getDocIdSetFor(dictionaryId);
+              IntIterator iterator = docIds.getIntIterator();
+              while (iterator.hasNext()) {
+                Assert.assertEquals(values[iterator.next()], value);
+              }
+            }
+          } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+          }
+        }
+      };
+    }
+
+    writer.start();
+    for (Thread reader : readers) {
+      reader.start();
+    }
+    writer.join();
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    if (failure.get() != null) {
+      throw new AssertionError(failure.get());
+    }
+
+    int numIndexedDocs = 0;
+    for (int dictionaryId = 0; dictionaryId < dictionary.length(); dictionaryId++) {
+      numIndexedDocs += invertedIndex.getDocIdSetFor(dictionaryId).getCardinality();
+    }
+    Assert.assertEquals(numIndexedDocs, numDocs);
+  }
+
+  @Test
+  public void testSnapshots() {
+    RealtimeInvertedIndex invertedIndex = new DimensionInvertertedIndex("column");
+    MutableRoaringBitmap previousSnapshot = invertedIndex.getDocIdSetFor(0);
+    Assert.assertTrue(previousSnapshot.isEmpty());
+    for (int docId = 0; docId < 5000; docId++) {
+      invertedIndex.add(0, 2 * docId);
+      MutableRoaringBitmap snapshot = invertedIndex.getDocIdSetFor(0);
+      Assert.assertEquals(snapshot.getCardinality(), docId + 1);
+      Assert.assertTrue(snapshot.contains(2 * docId));
+      Assert.assertSame(invertedIndex.getDocIdSetFor(0), snapshot);
+      // Snapshots handed out earlier are not modified
+      Assert.assertEquals(previousSnapshot.getCardinality(), docId);
+      previousSnapshot = snapshot;
+    }
+  }
+
+  @Test
+  public void testSnapshotsAcrossChunks() {
+    RealtimeInvertedIndex invertedIndex = new DimensionInvertertedIndex("column");
+    MutableRoaringBitmap expected = new MutableRoaringBitmap();
+    List<MutableRoaringBitmap> snapshots = new ArrayList<MutableRoaringBitmap>();
+    List<MutableRoaringBitmap> expectedSnapshots = new ArrayList<MutableRoaringBitmap>();
+    for (int i = 0; i < 10000; i++) {
+      // Doc ids spread over several ranges of 65536 doc ids, with some of them added to earlier ranges
+      int docId = (i % 100 == 99) ? 37 * i - 200000 : 37 * i;
+      if (docId < 0) {
+        continue;
+      }
+      invertedIndex.add(0, docId);
+      expected.add(docId);
+      if (i % 1500 == 0) {
+        MutableRoaringBitmap snapshot = invertedIndex.getDocIdSetFor(0);
+        Assert.assertEquals(snapshot, expected);
+        snapshots.add(snapshot);
+        expectedSnapshots.add(expected.clone());
+      }
+    }
+    Assert.assertEquals(invertedIndex.getDocIdSetFor(0), expected);
+    // Snapshots handed out earlier are not modified by the chunks built since
+    Assert.assertEquals(snapshots, expectedSnapshots);
+  }
+
+  @Test
+  public void testRealtimeSegment() throws Exception {
+    File avroFile = new File(TestUtils.getFileFromResourceUrl(getClass().getClassLoader().getResource(AVRO_DATA)));
+    Map<String, FieldType> fieldTypeMap = new HashMap<String, FieldType>();
+    for (String column : Arrays.asList("column1", "column2", "column3", "column4", "column5", "column7", "column8",
+        "column9", "column10", "column11", "column12", "column13", "column14", "column15")) {
+      fieldTypeMap.put(column, FieldType.DIMENSION);
+    }
+    fieldTypeMap.put("time_day", FieldType.TIME);
+    fieldTypeMap.put("met_impressionCount", FieldType.METRIC);
+    Schema schema = SegmentTestUtils.extractSchemaFromAvro(avroFile, fieldTypeMap, TimeUnit.DAYS);
+
+    StreamProvider provider = new FileBasedStreamProviderImpl();
+    provider.init(new FileBasedStreamProviderConfig(FileFormat.AVRO, avroFile.getAbsolutePath(), schema));
+    RealtimeSegmentImpl segment = new RealtimeSegmentImpl(schema, 100000);
+    List<Object> column3Values = new ArrayList<Object>();
+    List<Object> metricValues = new ArrayList<Object>();
+    GenericRow row;
+    GenericRow lastRow = null;
+    while ((row = provider.next()) != null) {
+      lastRow = row;
+      column3Values.add(row.getValue("column3"));
+      metricValues.add(row.getValue("met_impressionCount"));
+      Assert.assertTrue(segment.index(row));
+    }
+    provider.shutdown();
+    Assert.assertEquals(segment.getTotalDocs(), column3Values.size());
+
+    for (int docId = 0; docId < column3Values.size(); docId += 97) {
+      GenericRow rawRow = segment.getRawValueRowAt(docId);
+      Assert.assertEquals(rawRow.getValue("column3"), column3Values.get(docId));
+      Assert.assertEquals(rawRow.getValue("met_impressionCount"), metricValues.get(docId));
+    }
+
+    Object value = column3Values.get(column3Values.size() / 2);
+    BitmapBasedFilterOperator filterOperator = new BitmapBasedFilterOperator(segment.getDataSource("column3"));
+    filterOperator.setPredicate(new EqPredicate("column3", Arrays.asList(value.toString())));
+    BlockDocIdIterator iterator = filterOperator.nextBlock().getBlockDocIdSet().iterator();
+    List<Integer> expectedDocIds = new ArrayList<Integer>();
+    for (int docId = 0; docId < column3Values.size(); docId++) {
+      if (column3Values.get(docId).equals(value)) {
+        expectedDocIds.add(docId);
+      }
+    }
+    List<Integer> docIds = new ArrayList<Integer>();
+    int docId;
+    while ((docId = iterator.next()) != Constants.EOF) {
+      docIds.add(docId);
+    }
+    Assert.assertEquals(docIds, expectedDocIds);
+
+    // The forward indexes and numeric dictionaries grew off-heap, and are released with the segment
+    Assert.assertTrue(segment.getOffHeapMemoryUsed() >= column3Values.size() * 16L * (Integer.SIZE / 8));
+    segment.destroy();
+    Assert.assertEquals(segment.getOffHeapMemoryUsed(), 0L);
+    Assert.assertFalse(segment.index(lastRow));
+    // Queries which still hold the segment keep reading it, its memory is reclaimed once they are done
+    Assert.assertEquals(segment.getRawValueRowAt(0).getValue("column3"), column3Values.get(0));
+  }
+
+  private static Object getValue(DataType dataType, int value) {
+    switch (dataType) {
+      case INT:
+        return value;
+      case LONG:
+        return (long) value;
+      case FLOAT:
+        return (float) value;
+      case DOUBLE:
+        return (double) value;
+      default:
+        throw new UnsupportedOperationException();
+    }
+  }
+}
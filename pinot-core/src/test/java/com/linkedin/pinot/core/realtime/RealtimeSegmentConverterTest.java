@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.realtime;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec.FieldType;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.core.common.BlockMultiValIterator;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
+import com.linkedin.pinot.core.common.DataSource;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.readers.FileFormat;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.realtime.converter.RealtimeSegmentConverter;
+import com.linkedin.pinot.core.realtime.impl.FileBasedStreamProviderConfig;
+import com.linkedin.pinot.core.realtime.impl.FileBasedStreamProviderImpl;
+import com.linkedin.pinot.core.realtime.impl.RealtimeSegmentImpl;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import com.linkedin.pinot.segments.v1.creator.SegmentTestUtils;
+import com.linkedin.pinot.util.TestUtils;
+
+
+public class RealtimeSegmentConverterTest {
+  private static final String AVRO_DATA = "data/test_sample_data.avro";
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "RealtimeSegmentConverterTest");
+  private static final String RAW_COLUMN = "met_impressionCount";
+  private static final String SORTED_COLUMN = "column3";
+
+  private Schema _schema;
+  private RealtimeSegmentImpl _realtimeSegment;
+
+  @BeforeClass
+  public void setup() throws Exception {
+    FileUtils.deleteQuietly(INDEX_DIR);
+    File avroFile = new File(TestUtils.getFileFromResourceUrl(getClass().getClassLoader().getResource(AVRO_DATA)));
+    Map<String, FieldType> fieldTypeMap = new HashMap<String, FieldType>();
+    for (String column : Arrays.asList("column1", "column2", "column3", "column4", "column5", "column7", "column8",
+        "column9", "column10", "column11", "column12", "column13", "column14", "column15")) {
+      fieldTypeMap.put(column, FieldType.DIMENSION);
+    }
+    fieldTypeMap.put("time_day", FieldType.TIME);
+    fieldTypeMap.put(RAW_COLUMN, FieldType.METRIC);
+    _schema = SegmentTestUtils.extractSchemaFromAvro(avroFile, fieldTypeMap, TimeUnit.DAYS);
+
+    StreamProvider provider = new FileBasedStreamProviderImpl();
+    provider.init(new FileBasedStreamProviderConfig(FileFormat.AVRO, avroFile.getAbsolutePath(), _schema));
+    _realtimeSegment = new RealtimeSegmentImpl(_schema, 100000);
+    GenericRow row;
+    while ((row = provider.next()) != null) {
+      _realtimeSegment.index(row);
+    }
+    provider.shutdown();
+  }
+
+  @AfterClass
+  public void tearDown() {
+    _realtimeSegment.destroy();
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  @Test
+  public void testConversion() throws Exception {
+    File segmentDir = convert("unsorted", null, Arrays.asList(RAW_COLUMN));
+    SegmentMetadataImpl metadata = new SegmentMetadataImpl(segmentDir);
+    Assert.assertEquals(metadata.getTotalDocs(), _realtimeSegment.getAggregateDocumentCount());
+    Assert.assertFalse(metadata.getColumnMetadataFor(RAW_COLUMN).hasDictionary());
+
+    for (FieldSpec spec : _schema.getAllFieldSpecs()) {
+      String column = spec.getName();
+      Set<Object> uniqueValues = new HashSet<Object>();
+      for (int docId = 0; docId < _realtimeSegment.getAggregateDocumentCount(); docId++) {
+        Object value = _realtimeSegment.getRawValueRowAt(docId).getValue(column);
+        if (value instanceof Object[]) {
+          uniqueValues.addAll(Arrays.asList((Object[]) value));
+        } else {
+          uniqueValues.add(value);
+        }
+      }
+      ColumnMetadata columnMetadata = metadata.getColumnMetadataFor(column);
+      Assert.assertEquals(columnMetadata.getCardinality(), uniqueValues.size(), column);
+      // Min and max values are only recorded for numeric columns
+      if (uniqueValues.iterator().next() instanceof Number) {
+        Object[] sortedArray = uniqueValues.toArray();
+        Arrays.sort(sortedArray);
+        Assert.assertEquals(columnMetadata.getMinValue(), sortedArray[0].toString(), column);
+        Assert.assertEquals(columnMetadata.getMaxValue(), sortedArray[sortedArray.length - 1].toString(), column);
+      }
+    }
+
+    IndexSegment segment = ColumnarSegmentLoader.load(segmentDir, ReadMode.heap);
+    try {
+      assertValues(segment, null);
+    } finally {
+      segment.destroy();
+    }
+  }
+
+  @Test
+  public void testSortedConversion() throws Exception {
+    File segmentDir = convert("sorted", SORTED_COLUMN, null);
+    Assert.assertTrue(new SegmentMetadataImpl(segmentDir).getColumnMetadataFor(SORTED_COLUMN).isSorted());
+
+    List<Integer> docIds = new ArrayList<Integer>();
+    Iterator<Integer> iterator = _realtimeSegment.getSortedDocIdIteratorOnColumn(SORTED_COLUMN);
+    while (iterator.hasNext()) {
+      docIds.add(iterator.next());
+    }
+    IndexSegment segment = ColumnarSegmentLoader.load(segmentDir, ReadMode.mmap);
+    try {
+      assertValues(segment, docIds);
+    } finally {
+      segment.destroy();
+    }
+  }
+
+  private File convert(String name, String sortedColumn, List<String> noDictionaryColumns) throws Exception {
+    File outputDir = new File(INDEX_DIR, name);
+    RealtimeSegmentConverter converter =
+        new RealtimeSegmentConverter(_realtimeSegment, outputDir.getAbsolutePath(), _schema, "testTable", name,
+            sortedColumn);
+    converter.setNoDictionaryColumns(noDictionaryColumns);
+    converter.build();
+    return new File(outputDir, name);
+  }
+
+  /**
+   * Checks that each document of the converted segment has the values of the realtime document at the same position in
+   * the given order, or in the realtime order.
+   */
+  private void assertValues(IndexSegment segment, List<Integer> docIds) {
+    Assert.assertEquals(segment.getTotalDocs(), _realtimeSegment.getAggregateDocumentCount());
+    for (FieldSpec spec : _schema.getAllFieldSpecs()) {
+      String column = spec.getName();
+      DataSource dataSource = segment.getDataSource(column);
+      Dictionary dictionary = dataSource.getDictionary();
+      if (spec.isSingleValueField()) {
+        BlockSingleValIterator valueIterator =
+            (BlockSingleValIterator) dataSource.nextBlock().getBlockValueSet().iterator();
+        for (int i = 0; i < segment.getTotalDocs(); i++) {
+          Object expected = _realtimeSegment.getRawValueRowAt(docIds == null ? i : docIds.get(i)).getValue(column);
+          Object actual = dictionary == null ? valueIterator.nextLongVal() : dictionary.get(valueIterator.nextIntVal());
+          Assert.assertEquals(actual, expected, column + " " + i);
+        }
+        Assert.assertFalse(valueIterator.hasNext(), column);
+      } else {
+        BlockMultiValIterator valueIterator =
+            (BlockMultiValIterator) dataSource.nextBlock().getBlockValueSet().iterator();
+        int[] dictionaryIds = new int[((SegmentMetadataImpl) segment.getSegmentMetadata()).getColumnMetadataFor(column)
+            .getMaxNumberOfMultiValues()];
+        for (int i = 0; i < segment.getTotalDocs(); i++) {
+          Object[] expected =
+              (Object[]) _realtimeSegment.getRawValueRowAt(docIds == null ? i : docIds.get(i)).getValue(column);
+          int numValues = valueIterator.nextIntVal(dictionaryIds);
+          Set<Object> actual = new HashSet<Object>();
+          for (int j = 0; j < numValues; j++) {
+            actual.add(dictionary.get(dictionaryIds[j]));
+          }
+          Assert.assertEquals(actual, new HashSet<Object>(Arrays.asList(expected)), column + " " + i);
+        }
+      }
+    }
+  }
+}
@@ -189,6 +189,16 @@ public class FixedBitWidthRowColDataFileReaderTest {
           System.out.println(i + "  Expected:" + values[i] + " Actual:" + readInt);
           Assert.assertEquals(readInt, values[i]);
         }
+        // Batch read of every other row, written at an offset in the output array
+        int[] rows = new int[numElements / 2];
+        for (int i = 0; i < rows.length; i++) {
+          rows[i] = i * 2;
+        }
+        int[] batchValues = new int[rows.length + 1];
+        heapReader.getIntArray(rows, 0, 0, rows.length, batchValues, 1);
+        for (int i = 0; i < rows.length; i++) {
+          Assert.assertEquals(batchValues[i + 1], values[rows[i]]);
+        }
         // Assert.assertEquals(FileReaderTestUtils.getNumOpenFiles(file), 0);
         heapReader.close();
         // Assert.assertEquals(FileReaderTestUtils.getNumOpenFiles(file), 0);
@@ -19,12 +19,19 @@ import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import com.linkedin.pinot.core.index.reader.impl.FixedByteWidthRowColDataFileReader;
+import com.linkedin.pinot.core.operator.DocIdBatchIterator;
+import com.linkedin.pinot.core.operator.DocIdSetBlock;
+import com.linkedin.pinot.core.operator.MatchEntireSegmentDocIdSetBlock;
+import com.linkedin.pinot.core.segment.index.readers.SortedForwardIndexReader;
 
 
 @Test
@@ -116,4 +123,72 @@ public class FixedByteWidthRowColDataFileReaderTest {
 
     f.delete();
   }
+
+  @Test
+  void testSortedReadValues() throws Exception {
+    // Runs of docs sharing a dictionary id, stored as (start docId, end docId) rows, with single doc runs and runs
+    // longer than a batch
+    Random r = new Random(0);
+    int numDictionaryIds = 200;
+    int[] expectedDictionaryIds = new int[numDictionaryIds * 20];
+    ByteBuffer buffer = ByteBuffer.allocate(numDictionaryIds * 8);
+    int numDocs = 0;
+    for (int dictionaryId = 0; dictionaryId < numDictionaryIds; dictionaryId++) {
+      int runLength = (dictionaryId % 10 == 0) ? 15 + r.nextInt(5) : 1 + r.nextInt(3);
+      buffer.putInt(numDocs);
+      buffer.putInt(numDocs + runLength - 1);
+      for (int i = 0; i < runLength; i++) {
+        expectedDictionaryIds[numDocs++] = dictionaryId;
+      }
+    }
+    // Not a multiple of the batch size, the last batch is partial
+    int maxBatchSize = 7;
+    Assert.assertTrue(numDocs % maxBatchSize != 0);
+    buffer.flip();
+    SortedForwardIndexReader reader =
+        new SortedForwardIndexReader(new FixedByteWidthRowColDataFileReader(buffer, numDictionaryIds, 2,
+            new int[] { 4, 4 }), numDocs);
+
+    // All the docs, each batch spanning several runs or part of a long one
+    checkSortedReadValues(reader, new MatchEntireSegmentDocIdSetBlock(numDocs), maxBatchSize, expectedDictionaryIds,
+        numDocs);
+
+    // Sparse docIds, skipping whole runs and resolving the following ones through a binary search
+    List<Integer> docIdList = new ArrayList<Integer>();
+    for (int docId = 0; docId < numDocs; docId += 1 + r.nextInt(12)) {
+      docIdList.add(docId);
+    }
+    docIdList.add(numDocs - 1);
+    int[] docIds = new int[docIdList.size() + 5];
+    for (int i = 0; i < docIdList.size(); i++) {
+      docIds[i] = docIdList.get(i);
+    }
+    checkSortedReadValues(reader, new DocIdSetBlock(docIds, docIdList.size()), maxBatchSize, expectedDictionaryIds,
+        docIdList.size());
+
+    // A single docId per batch
+    checkSortedReadValues(reader, new DocIdSetBlock(docIds, docIdList.size()), 1, expectedDictionaryIds,
+        docIdList.size());
+  }
+
+  private static void checkSortedReadValues(SortedForwardIndexReader reader, DocIdSetBlock docIdSetBlock,
+      int maxBatchSize, int[] expectedDictionaryIds, int expectedNumDocs) {
+    DocIdBatchIterator batchIterator = new DocIdBatchIterator(maxBatchSize).init(docIdSetBlock);
+    int[] dictionaryIds = new int[maxBatchSize];
+    int numDocs = 0;
+    while (batchIterator.next()) {
+      int batchSize = batchIterator.getBatchSize();
+      int remainingDocs = expectedNumDocs - numDocs;
+      Assert.assertEquals(batchSize, Math.min(maxBatchSize, remainingDocs));
+      reader.readValues(batchIterator.getDocIds(), batchIterator.getBatchStartPos(), batchSize, dictionaryIds, 0);
+      for (int i = 0; i < batchSize; i++) {
+        int docId = batchIterator.getDocIds()[batchIterator.getBatchStartPos() + i];
+        Assert.assertEquals(dictionaryIds[i], expectedDictionaryIds[docId], "docId " + docId);
+        Assert.assertEquals(reader.getInt(docId), expectedDictionaryIds[docId]);
+      }
+      numDocs += batchSize;
+    }
+    Assert.assertEquals(numDocs, expectedNumDocs);
+    Assert.assertFalse(batchIterator.next());
+  }
 }
@@ -25,6 +25,7 @@ import org.testng.annotations.Test;
 
 import com.linkedin.pinot.core.index.readerwriter.impl.FixedByteSingleColumnMultiValueReaderWriter;
 import com.linkedin.pinot.core.index.readerwriter.impl.FixedByteSingleColumnSingleValueReaderWriter;
+import com.linkedin.pinot.core.realtime.impl.memory.DirectMemoryManager;
 
 
 public class FixedByteSingleColumnMultiValueReaderWriterTest {
@@ -57,6 +58,36 @@ public class FixedByteSingleColumnMultiValueReaderWriterTest {
     }
     readerWriter.close();
   }
-  
- 
+
+  @Test
+  public void testChunkedDoubleArray() throws IOException {
+    DirectMemoryManager memoryManager = new DirectMemoryManager();
+    int rowsPerChunk = 100;
+    int rows = 1000;
+    int maxNumberOfMultiValuesPerRow = 50;
+    FixedByteSingleColumnMultiValueReaderWriter readerWriter =
+        new FixedByteSingleColumnMultiValueReaderWriter(rowsPerChunk, Double.SIZE / 8, maxNumberOfMultiValuesPerRow,
+            500, memoryManager, "column");
+
+    Random r = new Random();
+    double[][] data = new double[rows][];
+    for (int i = 0; i < rows; i++) {
+      data[i] = new double[r.nextInt(maxNumberOfMultiValuesPerRow)];
+      for (int j = 0; j < data[i].length; j++) {
+        data[i][j] = r.nextDouble();
+      }
+      readerWriter.setDoubleArray(i, data[i]);
+    }
+    // 10 header chunks, and data chunks of 500 values for about 25 values per row
+    Assert.assertTrue(memoryManager.getNumBuffers() > 10 + rows * 20 / 500);
+
+    double[] ret = new double[maxNumberOfMultiValuesPerRow];
+    for (int i = 0; i < rows; i++) {
+      int length = readerWriter.getDoubleArray(i, ret);
+      Assert.assertEquals(data[i].length, length);
+      Assert.assertTrue(Arrays.equals(data[i], Arrays.copyOf(ret, length)));
+    }
+    readerWriter.close();
+    memoryManager.close();
+  }
 }
@@ -15,14 +15,19 @@
  */
 package com.linkedin.pinot.index.readerwriter;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Random;
 
 import junit.framework.Assert;
 
+import org.apache.commons.io.FileUtils;
 import org.testng.annotations.Test;
 
 import com.linkedin.pinot.core.index.readerwriter.impl.FixedByteSingleColumnSingleValueReaderWriter;
+import com.linkedin.pinot.core.realtime.impl.memory.DirectMemoryManager;
+import com.linkedin.pinot.core.realtime.impl.memory.MmapMemoryManager;
+import com.linkedin.pinot.core.realtime.impl.memory.RealtimeMemoryManager;
 
 
 public class FixedByteSingleColumnSingleValueReaderWriterTest {
@@ -61,4 +66,51 @@ public class FixedByteSingleColumnSingleValueReaderWriterTest {
     }
     readerWriter.close();
   }
+
+  @Test
+  public void testChunkedDirect() throws IOException {
+    testChunked(new DirectMemoryManager());
+  }
+
+  @Test
+  public void testChunkedMmap() throws IOException {
+    File dir = new File(FileUtils.getTempDirectory(), "FixedByteSingleColumnSingleValueReaderWriterTest");
+    FileUtils.deleteQuietly(dir);
+    try {
+      testChunked(new MmapMemoryManager(dir, "testSegment"));
+      // The scratch files are unlinked once mapped
+      Assert.assertEquals(0, dir.list().length);
+    } finally {
+      FileUtils.deleteQuietly(dir);
+    }
+  }
+
+  private void testChunked(RealtimeMemoryManager memoryManager) throws IOException {
+    int rowsPerChunk = 100;
+    int rows = 1050;
+    FixedByteSingleColumnSingleValueReaderWriter readerWriter =
+        new FixedByteSingleColumnSingleValueReaderWriter(rowsPerChunk, Long.SIZE / 8, memoryManager, "column");
+    // Nothing is allocated before the first row is written
+    Assert.assertEquals(0, memoryManager.getAllocatedBytes());
+    Assert.assertEquals(0, readerWriter.getCapacity());
+
+    Random r = new Random();
+    long[] data = new long[rows];
+    for (int i = 0; i < rows; i++) {
+      data[i] = r.nextLong();
+      readerWriter.setLong(i, data[i]);
+    }
+    Assert.assertEquals(11, memoryManager.getNumBuffers());
+    Assert.assertEquals(11 * rowsPerChunk * Long.SIZE / 8, memoryManager.getAllocatedBytes());
+    Assert.assertEquals(1100, readerWriter.getCapacity());
+    for (int i = 0; i < rows; i++) {
+      Assert.assertEquals(data[i], readerWriter.getLong(i));
+    }
+
+    // The chunks of a shared memory manager are only released along with it
+    readerWriter.close();
+    Assert.assertEquals(11, memoryManager.getNumBuffers());
+    memoryManager.close();
+    Assert.assertEquals(0, memoryManager.getAllocatedBytes());
+  }
 }
@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.operator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.metadata.segment.IndexLoadingConfigMetadata;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.FilterOperator;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
+import com.linkedin.pinot.core.common.BlockDocIdIterator;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
+import com.linkedin.pinot.core.common.Constants;
+import com.linkedin.pinot.core.common.DataSource;
+import com.linkedin.pinot.core.common.FilterBlockDocIdSet;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.operator.docidsets.BitmapDocIdSet;
+import com.linkedin.pinot.core.operator.docidsets.ScanBasedSingleValueDocIdSet;
+import com.linkedin.pinot.core.operator.filter.BaseFilterOperator;
+import com.linkedin.pinot.core.plan.FilterPlanNode;
+import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
+import com.linkedin.pinot.segments.v1.creator.SegmentTestUtils;
+import com.linkedin.pinot.util.TestUtils;
+
+
+public class AndOrFilterOperatorTest {
+  private static final String AVRO_DATA = "data/simpleData200001.avro";
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "AndOrFilterOperatorTest");
+
+  private IndexSegment _indexSegment;
+  private long[][] _values;
+
+  @BeforeClass
+  public void setup() throws Exception {
+    final String filePath =
+        TestUtils.getFileFromResourceUrl(AndOrFilterOperatorTest.class.getClassLoader().getResource(AVRO_DATA));
+    FileUtils.deleteQuietly(INDEX_DIR);
+
+    final SegmentGeneratorConfig config =
+        SegmentTestUtils.getSegmentGenSpecWithSchemAndProjectedColumns(new File(filePath), INDEX_DIR, "dim1",
+            TimeUnit.DAYS, "test");
+    config.setCreateInvertedIndex(true);
+    final SegmentIndexCreationDriver driver = SegmentCreationDriverFactory.get(null);
+    driver.init(config);
+    driver.build();
+    // met is sorted, dim0 has a bitmap inverted index and dim1 is scanned
+    IndexLoadingConfigMetadata indexLoadingConfigMetadata = new IndexLoadingConfigMetadata(new PropertiesConfiguration());
+    indexLoadingConfigMetadata.initLoadingInvertedIndexColumnSet(new String[] { "dim0", "met" });
+    _indexSegment =
+        ColumnarSegmentLoader.load(new File(INDEX_DIR, driver.getSegmentName()), ReadMode.heap,
+            indexLoadingConfigMetadata);
+
+    String[] columns = { "dim0", "dim1", "met" };
+    _values = new long[columns.length][];
+    for (int i = 0; i < columns.length; i++) {
+      DataSource dataSource = _indexSegment.getDataSource(columns[i]);
+      BlockSingleValIterator valueIterator =
+          (BlockSingleValIterator) dataSource.nextBlock().getBlockValueSet().iterator();
+      _values[i] = new long[_indexSegment.getSegmentMetadata().getTotalDocs()];
+      int docId = 0;
+      while (valueIterator.hasNext()) {
+        _values[i][docId++] = dataSource.getDictionary().getLongValue(valueIterator.nextIntVal());
+      }
+    }
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  @Test
+  public void testAndOfBitmapsIsIntersectedUpFront() {
+    FilterQueryTree filter =
+        and(predicate("dim0", FilterOperator.IN, "1\t\t3\t\t5"), predicate("dim0", FilterOperator.NOT, "3"));
+    BaseFilterOperator filterOperator = getFilterOperator(filter);
+    List<FilterBlockDocIdSet> childDocIdSets = filterOperator.nextBlock().getBlockDocIdSet().getRaw();
+    Assert.assertEquals(childDocIdSets.size(), 1);
+    Assert.assertTrue(childDocIdSets.get(0) instanceof BitmapDocIdSet);
+
+    assertMatchingDocIds(filter, new DocMatcher() {
+      @Override
+      public boolean matches(int docId) {
+        return _values[0][docId] == 1 || _values[0][docId] == 5;
+      }
+    });
+  }
+
+  @Test
+  public void testAndWithScannedColumn() {
+    FilterQueryTree filter =
+        and(predicate("dim1", FilterOperator.RANGE, "[10\t\t90)"), predicate("met", FilterOperator.RANGE,
+            "(*\t\t20000]"), predicate("dim0", FilterOperator.IN, "1\t\t4\t\t7"));
+    BaseFilterOperator filterOperator = getFilterOperator(filter);
+    List<FilterBlockDocIdSet> childDocIdSets = filterOperator.nextBlock().getBlockDocIdSet().getRaw();
+    // The scan of dim1 comes last, only advanced to the documents matching the inverted indexes
+    Assert.assertEquals(childDocIdSets.size(), 3);
+    Assert.assertTrue(childDocIdSets.get(2) instanceof ScanBasedSingleValueDocIdSet);
+
+    assertMatchingDocIds(filter, new DocMatcher() {
+      @Override
+      public boolean matches(int docId) {
+        return _values[1][docId] >= 10 && _values[1][docId] < 90 && _values[2][docId] <= 20000
+            && (_values[0][docId] == 1 || _values[0][docId] == 4 || _values[0][docId] == 7);
+      }
+    });
+  }
+
+  @Test
+  public void testOrAndNestedFilters() {
+    FilterQueryTree filter =
+        or(predicate("met", FilterOperator.RANGE, "[190000\t\t*)"), predicate("dim0", FilterOperator.EQUALITY, "9"),
+            predicate("dim0", FilterOperator.IN, "0\t\t6"), and(predicate("dim1", FilterOperator.EQUALITY, "5"), predicate("dim0", FilterOperator.NOT, "2")));
+    BaseFilterOperator filterOperator = getFilterOperator(filter);
+    List<FilterBlockDocIdSet> childDocIdSets = filterOperator.nextBlock().getBlockDocIdSet().getRaw();
+    // The bitmaps of dim0 are unioned up front
+    Assert.assertEquals(childDocIdSets.size(), 3);
+    Assert.assertTrue(childDocIdSets.get(0) instanceof BitmapDocIdSet);
+
+    assertMatchingDocIds(filter, new DocMatcher() {
+      @Override
+      public boolean matches(int docId) {
+        return _values[2][docId] >= 190000 || _values[0][docId] == 9 || _values[0][docId] == 0
+            || _values[0][docId] == 6
+            || (_values[1][docId] == 5 && _values[0][docId] != 2);
+      }
+    });
+
+    // No matching document
+    filter = and(predicate("dim0", FilterOperator.EQUALITY, "3"), predicate("dim0", FilterOperator.EQUALITY, "4"));
+    assertMatchingDocIds(filter, new DocMatcher() {
+      @Override
+      public boolean matches(int docId) {
+        return false;
+      }
+    });
+  }
+
+  private interface DocMatcher {
+    boolean matches(int docId);
+  }
+
+  private void assertMatchingDocIds(FilterQueryTree filter, DocMatcher matcher) {
+    List<Integer> expectedDocIds = new ArrayList<Integer>();
+    for (int docId = 0; docId < _values[0].length; docId++) {
+      if (matcher.matches(docId)) {
+        expectedDocIds.add(docId);
+      }
+    }
+    BlockDocIdIterator iterator = getFilterOperator(filter).nextBlock().getBlockDocIdSet().iterator();
+    List<Integer> docIds = new ArrayList<Integer>();
+    int docId;
+    while ((docId = iterator.next()) != Constants.EOF) {
+      docIds.add(docId);
+    }
+    Assert.assertEquals(docIds, expectedDocIds);
+  }
+
+  private BaseFilterOperator getFilterOperator(FilterQueryTree filter) {
+    BrokerRequest brokerRequest = new BrokerRequest();
+    RequestUtils.generateFilterFromTree(filter, brokerRequest);
+    return (BaseFilterOperator) new FilterPlanNode(_indexSegment, brokerRequest).run();
+  }
+
+  private static FilterQueryTree and(FilterQueryTree... children) {
+    return new FilterQueryTree(null, null, FilterOperator.AND, Arrays.asList(children));
+  }
+
+  private static FilterQueryTree or(FilterQueryTree... children) {
+    return new FilterQueryTree(null, null, FilterOperator.OR, Arrays.asList(children));
+  }
+
+  private static FilterQueryTree predicate(String column, FilterOperator operator, String value) {
+    List<String> values = new ArrayList<String>();
+    values.add(value);
+    return new FilterQueryTree(column, values, operator, null);
+  }
+}
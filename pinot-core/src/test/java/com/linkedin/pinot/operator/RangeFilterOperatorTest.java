@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.operator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.metadata.segment.IndexLoadingConfigMetadata;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.core.common.BlockDocIdIterator;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
+import com.linkedin.pinot.core.common.Constants;
+import com.linkedin.pinot.core.common.DataSource;
+import com.linkedin.pinot.core.common.predicate.RangePredicate;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.operator.filter.BaseFilterOperator;
+import com.linkedin.pinot.core.operator.filter.BitmapBasedFilterOperator;
+import com.linkedin.pinot.core.operator.filter.ScanBasedFilterOperator;
+import com.linkedin.pinot.core.operator.filter.SortedInvertedIndexBasedFilterOperator;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluatorProvider;
+import com.linkedin.pinot.core.operator.filter.predicate.RangePredicateEvaluator;
+import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
+import com.linkedin.pinot.segments.v1.creator.SegmentTestUtils;
+import com.linkedin.pinot.util.TestUtils;
+
+
+public class RangeFilterOperatorTest {
+  private static final String AVRO_DATA = "data/simpleData200001.avro";
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "RangeFilterOperatorTest");
+
+  private IndexSegment _indexSegment;
+
+  @BeforeClass
+  public void setup() throws Exception {
+    final String filePath =
+        TestUtils.getFileFromResourceUrl(RangeFilterOperatorTest.class.getClassLoader().getResource(AVRO_DATA));
+    FileUtils.deleteQuietly(INDEX_DIR);
+
+    final SegmentGeneratorConfig config =
+        SegmentTestUtils.getSegmentGenSpecWithSchemAndProjectedColumns(new File(filePath), INDEX_DIR, "dim1",
+            TimeUnit.DAYS, "test");
+    config.setCreateInvertedIndex(true);
+    final SegmentIndexCreationDriver driver = SegmentCreationDriverFactory.get(null);
+    driver.init(config);
+    driver.build();
+    IndexLoadingConfigMetadata indexLoadingConfigMetadata = new IndexLoadingConfigMetadata(new PropertiesConfiguration());
+    indexLoadingConfigMetadata.initLoadingInvertedIndexColumnSet(new String[] { "dim0", "dim1", "met" });
+    _indexSegment =
+        ColumnarSegmentLoader.load(new File(INDEX_DIR, driver.getSegmentName()), ReadMode.heap,
+            indexLoadingConfigMetadata);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  @Test
+  public void testRangePredicateEvaluator() {
+    DataSource dataSource = _indexSegment.getDataSource("dim0");
+    PredicateEvaluator evaluator =
+        PredicateEvaluatorProvider.getPredicateFunctionFor(getRangePredicate("dim0", "(2\t\t7]"),
+            dataSource.getDictionary());
+    Assert.assertTrue(evaluator instanceof RangePredicateEvaluator);
+    int startDictId = ((RangePredicateEvaluator) evaluator).getStartDictionaryId();
+    int endDictId = ((RangePredicateEvaluator) evaluator).getEndDictionaryId();
+    Assert.assertEquals(dataSource.getDictionary().get(startDictId), 3);
+    Assert.assertEquals(dataSource.getDictionary().get(endDictId), 7);
+    Assert.assertTrue(evaluator.apply(startDictId));
+    Assert.assertFalse(evaluator.apply(startDictId - 1));
+    Assert.assertFalse(evaluator.apply(endDictId + 1));
+    Assert.assertTrue(evaluator.apply(new int[] { startDictId - 1, endDictId }));
+    Assert.assertEquals(evaluator.getDictionaryIds().length, 5);
+  }
+
+  @Test
+  public void testRangeFilterOperators() {
+    String[] metRanges = { "[100\t\t150000]", "(10\t\t20)", "[*\t\t5]", "(199990\t\t*)", "[300000\t\t*)", "[*\t\t*]" };
+    for (String range : metRanges) {
+      assertFilterOperators("met", range);
+    }
+    String[] dimRanges = { "[2\t\t7]", "(2\t\t3)", "(3\t\t*)", "(*\t\t0]" };
+    for (String range : dimRanges) {
+      assertFilterOperators("dim0", range);
+      assertFilterOperators("dim1", range);
+    }
+  }
+
+  private void assertFilterOperators(String column, String range) {
+    List<Integer> expectedDocIds = getMatchingDocIdsByScan(column, range);
+
+    BaseFilterOperator scanOperator = new ScanBasedFilterOperator(_indexSegment.getDataSource(column));
+    Assert.assertEquals(getFilteredDocIds(scanOperator, column, range), expectedDocIds, column + " " + range);
+
+    DataSource dataSource = _indexSegment.getDataSource(column);
+    Assert.assertTrue(dataSource.getDataSourceMetadata().hasInvertedIndex());
+    BaseFilterOperator invertedIndexOperator;
+    if (dataSource.getDataSourceMetadata().isSorted()) {
+      invertedIndexOperator = new SortedInvertedIndexBasedFilterOperator(dataSource);
+    } else {
+      invertedIndexOperator = new BitmapBasedFilterOperator(dataSource);
+    }
+    Assert.assertEquals(getFilteredDocIds(invertedIndexOperator, column, range), expectedDocIds, column + " " + range);
+  }
+
+  private List<Integer> getFilteredDocIds(BaseFilterOperator filterOperator, String column, String range) {
+    filterOperator.setPredicate(getRangePredicate(column, range));
+    BlockDocIdIterator iterator = filterOperator.nextBlock().getBlockDocIdSet().iterator();
+    List<Integer> docIds = new ArrayList<Integer>();
+    int docId;
+    while ((docId = iterator.next()) != Constants.EOF) {
+      docIds.add(docId);
+    }
+    return docIds;
+  }
+
+  private List<Integer> getMatchingDocIdsByScan(String column, String range) {
+    RangePredicate predicate = getRangePredicate(column, range);
+    long lower = predicate.getLowerBoundary().equals("*") ? Long.MIN_VALUE : Long.parseLong(predicate.getLowerBoundary());
+    long upper = predicate.getUpperBoundary().equals("*") ? Long.MAX_VALUE : Long.parseLong(predicate.getUpperBoundary());
+
+    DataSource dataSource = _indexSegment.getDataSource(column);
+    BlockSingleValIterator valueIterator =
+        (BlockSingleValIterator) dataSource.nextBlock().getBlockValueSet().iterator();
+    List<Integer> docIds = new ArrayList<Integer>();
+    int docId = 0;
+    while (valueIterator.hasNext()) {
+      long value = dataSource.getDictionary().getLongValue(valueIterator.nextIntVal());
+      if ((value > lower || (value == lower && predicate.includeLowerBoundary()))
+          && (value < upper || (value == upper && predicate.includeUpperBoundary()))) {
+        docIds.add(docId);
+      }
+      docId++;
+    }
+    return docIds;
+  }
+
+  private static RangePredicate getRangePredicate(String column, String range) {
+    List<String> values = new ArrayList<String>();
+    values.add(range);
+    return new RangePredicate(column, values);
+  }
+}
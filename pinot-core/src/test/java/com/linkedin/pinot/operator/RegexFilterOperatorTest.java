@@ -0,0 +1,217 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.operator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.client.request.RequestConverter;
+import com.linkedin.pinot.common.metadata.segment.IndexLoadingConfigMetadata;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.FilterOperator;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
+import com.linkedin.pinot.core.common.BlockDocIdIterator;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
+import com.linkedin.pinot.core.common.Constants;
+import com.linkedin.pinot.core.common.DataSource;
+import com.linkedin.pinot.core.common.predicate.RegexPredicate;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.operator.filter.BaseFilterOperator;
+import com.linkedin.pinot.core.operator.filter.BitmapBasedFilterOperator;
+import com.linkedin.pinot.core.operator.filter.ScanBasedFilterOperator;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluatorProvider;
+import com.linkedin.pinot.core.operator.filter.predicate.RegexPrefixPredicateEvaluator;
+import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import com.linkedin.pinot.pql.parsers.PQLCompiler;
+import com.linkedin.pinot.segments.v1.creator.SegmentTestUtils;
+import com.linkedin.pinot.util.TestUtils;
+
+
+public class RegexFilterOperatorTest {
+  private static final String AVRO_DATA = "data/test_data-sv.avro";
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "RegexFilterOperatorTest");
+  private static final String COLUMN = "column12";
+  private static final PQLCompiler REQUEST_COMPILER = new PQLCompiler(new HashMap<String, String[]>());
+
+  private IndexSegment _indexSegment;
+
+  @BeforeClass
+  public void setup() throws Exception {
+    final String filePath =
+        TestUtils.getFileFromResourceUrl(RegexFilterOperatorTest.class.getClassLoader().getResource(AVRO_DATA));
+    FileUtils.deleteQuietly(INDEX_DIR);
+
+    final SegmentGeneratorConfig config =
+        SegmentTestUtils.getSegmentGenSpecWithSchemAndProjectedColumns(new File(filePath), INDEX_DIR,
+            "daysSinceEpoch", TimeUnit.DAYS, "test");
+    config.setCreateInvertedIndex(true);
+    final SegmentIndexCreationDriver driver = SegmentCreationDriverFactory.get(null);
+    driver.init(config);
+    driver.build();
+    IndexLoadingConfigMetadata indexLoadingConfigMetadata = new IndexLoadingConfigMetadata(new PropertiesConfiguration());
+    indexLoadingConfigMetadata.initLoadingInvertedIndexColumnSet(new String[] { COLUMN });
+    _indexSegment =
+        ColumnarSegmentLoader.load(new File(INDEX_DIR, driver.getSegmentName()), ReadMode.heap,
+            indexLoadingConfigMetadata);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  @Test
+  public void testLikeCompilation() throws Exception {
+    BrokerRequest brokerRequest =
+        RequestConverter.fromJSON(REQUEST_COMPILER.compile("select count(*) from test where " + COLUMN
+            + " like 'a.b_c%'"));
+    FilterQueryTree filterQueryTree = RequestUtils.generateFilterQueryTree(brokerRequest);
+    Assert.assertEquals(filterQueryTree.getOperator(), FilterOperator.REGEX);
+    Assert.assertEquals(filterQueryTree.getColumn(), COLUMN);
+    Assert.assertEquals(filterQueryTree.getValue().get(0), "a\\.b.c.*");
+
+    brokerRequest =
+        RequestConverter.fromJSON(REQUEST_COMPILER.compile("select count(*) from test where column11 = 't' and "
+            + COLUMN + " like 'a%'"));
+    filterQueryTree = RequestUtils.generateFilterQueryTree(brokerRequest);
+    Assert.assertEquals(filterQueryTree.getOperator(), FilterOperator.AND);
+    Assert.assertEquals(filterQueryTree.getChildren().size(), 2);
+    Assert.assertEquals(filterQueryTree.getChildren().get(1).getOperator(), FilterOperator.REGEX);
+    Assert.assertEquals(filterQueryTree.getChildren().get(1).getValue().get(0), "a.*");
+
+    Assert.assertEquals(getRegexPredicate("a\\.b.*").getLiteralPrefix(), "a.b");
+    Assert.assertEquals(getRegexPredicate(".*").getLiteralPrefix(), "");
+    Assert.assertNull(getRegexPredicate("a\\.b.c.*").getLiteralPrefix());
+    Assert.assertNull(getRegexPredicate("ab?.*").getLiteralPrefix());
+    Assert.assertNull(getRegexPredicate("\\d.*").getLiteralPrefix());
+  }
+
+  @Test
+  public void testPredicateEvaluators() {
+    Dictionary dictionary = _indexSegment.getDataSource(COLUMN).getDictionary();
+    Assert.assertTrue(dictionary.length() > 1);
+    for (String regex : getTestRegexes(dictionary)) {
+      PredicateEvaluator evaluator =
+          PredicateEvaluatorProvider.getPredicateFunctionFor(getRegexPredicate(regex), dictionary);
+      Assert.assertEquals(evaluator instanceof RegexPrefixPredicateEvaluator,
+          getRegexPredicate(regex).getLiteralPrefix() != null, regex);
+
+      List<Integer> expectedIds = new ArrayList<Integer>();
+      for (int i = 0; i < dictionary.length(); i++) {
+        if (Pattern.matches(regex, dictionary.toString(i))) {
+          expectedIds.add(i);
+        }
+      }
+      List<Integer> actualIds = new ArrayList<Integer>();
+      for (int dictId : evaluator.getDictionaryIds()) {
+        actualIds.add(dictId);
+      }
+      Assert.assertEquals(actualIds, expectedIds, regex);
+      for (int i = 0; i < dictionary.length(); i++) {
+        Assert.assertEquals(evaluator.apply(i), expectedIds.contains(i), regex);
+      }
+    }
+
+    // Matching ids of scanned dictionaries are cached
+    RegexPredicate predicate = getRegexPredicate(".*" + Pattern.quote(dictionary.toString(0)));
+    Assert.assertSame(PredicateEvaluatorProvider.getPredicateFunctionFor(predicate, dictionary).getDictionaryIds(),
+        PredicateEvaluatorProvider.getPredicateFunctionFor(predicate, dictionary).getDictionaryIds());
+  }
+
+  @Test
+  public void testRegexFilterOperators() {
+    DataSource dataSource = _indexSegment.getDataSource(COLUMN);
+    for (String regex : getTestRegexes(dataSource.getDictionary())) {
+      List<Integer> expectedDocIds = getMatchingDocIdsByScan(regex);
+
+      BaseFilterOperator scanOperator = new ScanBasedFilterOperator(_indexSegment.getDataSource(COLUMN));
+      Assert.assertEquals(getFilteredDocIds(scanOperator, regex), expectedDocIds, regex);
+
+      BaseFilterOperator bitmapOperator = new BitmapBasedFilterOperator(_indexSegment.getDataSource(COLUMN));
+      Assert.assertEquals(getFilteredDocIds(bitmapOperator, regex), expectedDocIds, regex);
+    }
+  }
+
+  private static List<String> getTestRegexes(Dictionary dictionary) {
+    String firstValue = dictionary.toString(0);
+    String lastValue = dictionary.toString(dictionary.length() - 1);
+    return Arrays.asList(".*", escape(firstValue.substring(0, 1)) + ".*",
+        escape(lastValue.substring(0, lastValue.length() / 2)) + ".*", escape(lastValue) + ".*", "zzz.*",
+        ".*" + escape(lastValue.substring(lastValue.length() / 2)), "[a-m].*", "no match");
+  }
+
+  private static String escape(String literal) {
+    StringBuilder escaped = new StringBuilder();
+    for (char c : literal.toCharArray()) {
+      if (!Character.isLetterOrDigit(c)) {
+        escaped.append('\\');
+      }
+      escaped.append(c);
+    }
+    return escaped.toString();
+  }
+
+  private List<Integer> getFilteredDocIds(BaseFilterOperator filterOperator, String regex) {
+    filterOperator.setPredicate(getRegexPredicate(regex));
+    BlockDocIdIterator iterator = filterOperator.nextBlock().getBlockDocIdSet().iterator();
+    List<Integer> docIds = new ArrayList<Integer>();
+    int docId;
+    while ((docId = iterator.next()) != Constants.EOF) {
+      docIds.add(docId);
+    }
+    return docIds;
+  }
+
+  private List<Integer> getMatchingDocIdsByScan(String regex) {
+    DataSource dataSource = _indexSegment.getDataSource(COLUMN);
+    BlockSingleValIterator valueIterator =
+        (BlockSingleValIterator) dataSource.nextBlock().getBlockValueSet().iterator();
+    List<Integer> docIds = new ArrayList<Integer>();
+    int docId = 0;
+    while (valueIterator.hasNext()) {
+      if (Pattern.matches(regex, dataSource.getDictionary().toString(valueIterator.nextIntVal()))) {
+        docIds.add(docId);
+      }
+      docId++;
+    }
+    return docIds;
+  }
+
+  private static RegexPredicate getRegexPredicate(String regex) {
+    List<String> values = new ArrayList<String>();
+    values.add(regex);
+    return new RegexPredicate(COLUMN, values);
+  }
+}
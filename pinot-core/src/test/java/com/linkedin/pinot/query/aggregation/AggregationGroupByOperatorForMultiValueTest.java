@@ -49,6 +49,7 @@ import com.linkedin.pinot.common.utils.request.FilterQueryTree;
 import com.linkedin.pinot.common.utils.request.RequestUtils;
 import com.linkedin.pinot.core.block.query.IntermediateResultsBlock;
 import com.linkedin.pinot.core.common.DataSource;
+import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
@@ -319,7 +320,7 @@ public class AggregationGroupByOperatorForMultiValueTest {
     final PlanNode rootPlanNode = instancePlanMaker.makeInnerSegmentPlan(_indexSegment, brokerRequest);
     rootPlanNode.showTree("");
     // UAggregationGroupByOperator operator = (UAggregationGroupByOperator) rootPlanNode.run();
-    final MAggregationGroupByOperator operator = (MAggregationGroupByOperator) rootPlanNode.run();
+    final Operator operator = rootPlanNode.run();
     final IntermediateResultsBlock resultBlock = (IntermediateResultsBlock) operator.nextBlock();
     LOGGER.info("RunningTime : {}", resultBlock.getTimeUsedMs());
     LOGGER.info("NumDocsScanned : {}", resultBlock.getNumDocsScanned());
@@ -352,7 +353,7 @@ public class AggregationGroupByOperatorForMultiValueTest {
     final PlanNode rootPlanNode = instancePlanMaker.makeInnerSegmentPlan(_indexSegment, brokerRequest);
     rootPlanNode.showTree("");
     // UAggregationGroupByOperator operator = (UAggregationGroupByOperator) rootPlanNode.run();
-    final MAggregationGroupByOperator operator = (MAggregationGroupByOperator) rootPlanNode.run();
+    final Operator operator = rootPlanNode.run();
     final IntermediateResultsBlock resultBlock = (IntermediateResultsBlock) operator.nextBlock();
     LOGGER.info("RunningTime : {}", resultBlock.getTimeUsedMs());
     LOGGER.info("NumDocsScanned : {}", resultBlock.getNumDocsScanned());
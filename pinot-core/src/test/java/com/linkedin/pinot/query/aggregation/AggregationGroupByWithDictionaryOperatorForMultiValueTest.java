@@ -49,6 +49,7 @@ import com.linkedin.pinot.common.utils.request.FilterQueryTree;
 import com.linkedin.pinot.common.utils.request.RequestUtils;
 import com.linkedin.pinot.core.block.query.IntermediateResultsBlock;
 import com.linkedin.pinot.core.common.DataSource;
+import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
@@ -58,6 +59,8 @@ import com.linkedin.pinot.core.operator.UReplicatedProjectionOperator;
 import com.linkedin.pinot.core.operator.query.AggregationFunctionGroupByOperator;
 import com.linkedin.pinot.core.operator.query.MAggregationFunctionGroupByWithDictionaryOperator;
 import com.linkedin.pinot.core.operator.query.MAggregationGroupByOperator;
+import com.linkedin.pinot.core.operator.query.MAggregationGroupByWithDictionaryAndTrieTreeOperator;
+import com.linkedin.pinot.core.operator.query.MAggregationGroupByWithDictionaryOperator;
 import com.linkedin.pinot.core.plan.Plan;
 import com.linkedin.pinot.core.plan.PlanNode;
 import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
@@ -65,6 +68,7 @@ import com.linkedin.pinot.core.plan.maker.PlanMaker;
 import com.linkedin.pinot.core.query.aggregation.CombineService;
 import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByOperatorService;
 import com.linkedin.pinot.core.query.reduce.DefaultReduceService;
+import com.linkedin.pinot.core.query.utils.Pair;
 import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
 import com.linkedin.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
 import com.linkedin.pinot.core.segment.index.ColumnMetadata;
@@ -194,6 +198,51 @@ public class AggregationGroupByWithDictionaryOperatorForMultiValueTest {
     }
   }
 
+  @Test
+  public void testSinglePassMatchesPerFunctionOperators() {
+    final List<AggregationFunctionGroupByOperator> aggregationFunctionGroupByOperatorList =
+        new ArrayList<AggregationFunctionGroupByOperator>();
+    final MProjectionOperator projectionOperator = new MProjectionOperator(getDataSourceMap(),
+        new BReusableFilteredDocIdSetOperator(null, _indexSegment.getTotalDocs(), 5000));
+    for (int i = 0; i < _numAggregations; ++i) {
+      aggregationFunctionGroupByOperatorList.add(new MAggregationFunctionGroupByWithDictionaryOperator(
+          _aggregationInfos.get(i), _groupBy, new UReplicatedProjectionOperator(projectionOperator), true));
+    }
+    final List<Map<String, Serializable>> expectedResults =
+        ((IntermediateResultsBlock) new MAggregationGroupByOperator(_indexSegment, _aggregationInfos, _groupBy,
+            projectionOperator, aggregationFunctionGroupByOperatorList).nextBlock()).getAggregationGroupByOperatorResult();
+
+    for (final boolean useTrieTree : new boolean[] { false, true }) {
+      final MProjectionOperator singlePassProjectionOperator = new MProjectionOperator(getDataSourceMap(),
+          new BReusableFilteredDocIdSetOperator(null, _indexSegment.getTotalDocs(), 5000));
+      final Operator singlePassOperator;
+      if (useTrieTree) {
+        singlePassOperator = new MAggregationGroupByWithDictionaryAndTrieTreeOperator(_indexSegment,
+            _aggregationInfos, _groupBy, singlePassProjectionOperator);
+      } else {
+        singlePassOperator = new MAggregationGroupByWithDictionaryOperator(_indexSegment, _aggregationInfos,
+            _groupBy, singlePassProjectionOperator);
+      }
+      final List<Map<String, Serializable>> actualResults =
+          ((IntermediateResultsBlock) singlePassOperator.nextBlock()).getAggregationGroupByOperatorResult();
+      for (int i = 0; i < _numAggregations; ++i) {
+        final Map<String, Serializable> expectedResult = expectedResults.get(i);
+        final Map<String, Serializable> actualResult = actualResults.get(i);
+        Assert.assertEquals(actualResult.keySet(), expectedResult.keySet());
+        for (final String groupKey : expectedResult.keySet()) {
+          final Serializable expected = expectedResult.get(groupKey);
+          final Serializable actual = actualResult.get(groupKey);
+          if (expected instanceof Pair) {
+            Assert.assertEquals(((Pair) actual).getFirst(), ((Pair) expected).getFirst());
+            Assert.assertEquals(((Pair) actual).getSecond(), ((Pair) expected).getSecond());
+          } else {
+            Assert.assertEquals(actual, expected);
+          }
+        }
+      }
+    }
+  }
+
   @Test
   public void testAggregationGroupBysWithCombine() {
     final List<AggregationFunctionGroupByOperator> aggregationFunctionGroupByOperatorList =
@@ -325,7 +374,7 @@ public class AggregationGroupByWithDictionaryOperatorForMultiValueTest {
     final PlanNode rootPlanNode = instancePlanMaker.makeInnerSegmentPlan(_indexSegment, brokerRequest);
     rootPlanNode.showTree("");
     // UAggregationGroupByOperator operator = (UAggregationGroupByOperator) rootPlanNode.run();
-    final MAggregationGroupByOperator operator = (MAggregationGroupByOperator) rootPlanNode.run();
+    final Operator operator = rootPlanNode.run();
     final IntermediateResultsBlock resultBlock = (IntermediateResultsBlock) operator.nextBlock();
     LOGGER.info("RunningTime : {}", resultBlock.getTimeUsedMs());
     LOGGER.info("NumDocsScanned : {}", resultBlock.getNumDocsScanned());
@@ -358,7 +407,7 @@ public class AggregationGroupByWithDictionaryOperatorForMultiValueTest {
     final PlanNode rootPlanNode = instancePlanMaker.makeInnerSegmentPlan(_indexSegment, brokerRequest);
     rootPlanNode.showTree("");
     // UAggregationGroupByOperator operator = (UAggregationGroupByOperator) rootPlanNode.run();
-    final MAggregationGroupByOperator operator = (MAggregationGroupByOperator) rootPlanNode.run();
+    final Operator operator = rootPlanNode.run();
     final IntermediateResultsBlock resultBlock = (IntermediateResultsBlock) operator.nextBlock();
     LOGGER.info("RunningTime : {}", resultBlock.getTimeUsedMs());
     LOGGER.info("NumDocsScanned : {}", resultBlock.getNumDocsScanned());
@@ -18,6 +18,7 @@ package com.linkedin.pinot.query.aggregation;
 import java.io.File;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -49,6 +50,7 @@ import com.linkedin.pinot.common.utils.request.FilterQueryTree;
 import com.linkedin.pinot.common.utils.request.RequestUtils;
 import com.linkedin.pinot.core.block.query.IntermediateResultsBlock;
 import com.linkedin.pinot.core.common.DataSource;
+import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
@@ -56,8 +58,11 @@ import com.linkedin.pinot.core.operator.BReusableFilteredDocIdSetOperator;
 import com.linkedin.pinot.core.operator.MProjectionOperator;
 import com.linkedin.pinot.core.operator.UReplicatedProjectionOperator;
 import com.linkedin.pinot.core.operator.query.AggregationFunctionGroupByOperator;
+import com.linkedin.pinot.core.operator.query.MAggregationFunctionGroupByWithDictionaryAndTrieTreeOperator;
 import com.linkedin.pinot.core.operator.query.MAggregationFunctionGroupByWithDictionaryOperator;
 import com.linkedin.pinot.core.operator.query.MAggregationGroupByOperator;
+import com.linkedin.pinot.core.operator.query.MAggregationGroupByWithDictionaryAndTrieTreeOperator;
+import com.linkedin.pinot.core.operator.query.MAggregationGroupByWithDictionaryOperator;
 import com.linkedin.pinot.core.plan.Plan;
 import com.linkedin.pinot.core.plan.PlanNode;
 import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
@@ -65,6 +70,7 @@ import com.linkedin.pinot.core.plan.maker.PlanMaker;
 import com.linkedin.pinot.core.query.aggregation.CombineService;
 import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByOperatorService;
 import com.linkedin.pinot.core.query.reduce.DefaultReduceService;
+import com.linkedin.pinot.core.query.utils.Pair;
 import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
 import com.linkedin.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
 import com.linkedin.pinot.core.segment.index.ColumnMetadata;
@@ -195,6 +201,88 @@ public class AggregationGroupByWithDictionaryOperatorTest {
     }
   }
 
+  @Test
+  public void testDenseGroupKeysMatchTrieTree() {
+    final GroupBy groupBy = new GroupBy();
+    groupBy.setColumns(Arrays.asList("column11", "column12"));
+    groupBy.setTopN(10);
+
+    final List<Map<String, Serializable>> denseResults = runAggregationGroupBy(groupBy, false);
+    final List<Map<String, Serializable>> trieTreeResults = runAggregationGroupBy(groupBy, true);
+    assertAggregationGroupByResultsEqual(denseResults, trieTreeResults);
+  }
+
+  @Test
+  public void testSinglePassMatchesPerFunctionOperators() {
+    final GroupBy denseGroupBy = new GroupBy();
+    denseGroupBy.setColumns(Arrays.asList("column11", "column12"));
+    denseGroupBy.setTopN(10);
+
+    for (final GroupBy groupBy : Arrays.asList(_groupBy, denseGroupBy)) {
+      final List<Map<String, Serializable>> expectedResults = runAggregationGroupBy(groupBy, true);
+      for (final boolean useTrieTree : new boolean[] { false, true }) {
+        final MProjectionOperator projectionOperator = new MProjectionOperator(getDataSourceMap(),
+            new BReusableFilteredDocIdSetOperator(null, _indexSegment.getTotalDocs(), 5000));
+        final Operator singlePassOperator;
+        if (useTrieTree) {
+          singlePassOperator = new MAggregationGroupByWithDictionaryAndTrieTreeOperator(_indexSegment,
+              _aggregationInfos, groupBy, projectionOperator);
+        } else {
+          singlePassOperator = new MAggregationGroupByWithDictionaryOperator(_indexSegment, _aggregationInfos,
+              groupBy, projectionOperator);
+        }
+        final IntermediateResultsBlock block = (IntermediateResultsBlock) singlePassOperator.nextBlock();
+        Assert.assertEquals(block.getNumDocsScanned(), _indexSegment.getTotalDocs());
+        assertAggregationGroupByResultsEqual(block.getAggregationGroupByOperatorResult(), expectedResults);
+      }
+    }
+  }
+
+  private void assertAggregationGroupByResultsEqual(List<Map<String, Serializable>> actualResults,
+      List<Map<String, Serializable>> expectedResults) {
+    for (int i = 0; i < _numAggregations; ++i) {
+      final Map<String, Serializable> actualResult = actualResults.get(i);
+      final Map<String, Serializable> expectedResult = expectedResults.get(i);
+      Assert.assertEquals(actualResult.keySet(), expectedResult.keySet());
+      for (final String groupKey : expectedResult.keySet()) {
+        final Serializable expected = expectedResult.get(groupKey);
+        final Serializable actual = actualResult.get(groupKey);
+        if (expected instanceof Pair) {
+          Assert.assertEquals(((Pair) actual).getFirst(), ((Pair) expected).getFirst());
+          Assert.assertEquals(((Pair) actual).getSecond(), ((Pair) expected).getSecond());
+        } else {
+          Assert.assertEquals(actual, expected);
+        }
+      }
+    }
+  }
+
+  private List<Map<String, Serializable>> runAggregationGroupBy(GroupBy groupBy, boolean useTrieTree) {
+    final List<AggregationFunctionGroupByOperator> aggregationFunctionGroupByOperatorList =
+        new ArrayList<AggregationFunctionGroupByOperator>();
+    final BReusableFilteredDocIdSetOperator docIdSetOperator =
+        new BReusableFilteredDocIdSetOperator(null, _indexSegment.getTotalDocs(), 5000);
+    final MProjectionOperator projectionOperator = new MProjectionOperator(getDataSourceMap(), docIdSetOperator);
+
+    for (int i = 0; i < _numAggregations; ++i) {
+      final UReplicatedProjectionOperator replicatedProjectionOperator =
+          new UReplicatedProjectionOperator(projectionOperator);
+      if (useTrieTree) {
+        aggregationFunctionGroupByOperatorList.add(new MAggregationFunctionGroupByWithDictionaryAndTrieTreeOperator(
+            _aggregationInfos.get(i), groupBy, replicatedProjectionOperator, true));
+      } else {
+        aggregationFunctionGroupByOperatorList.add(new MAggregationFunctionGroupByWithDictionaryOperator(
+            _aggregationInfos.get(i), groupBy, replicatedProjectionOperator, true));
+      }
+    }
+
+    final MAggregationGroupByOperator aggregationGroupByOperator =
+        new MAggregationGroupByOperator(_indexSegment, _aggregationInfos, groupBy, projectionOperator,
+            aggregationFunctionGroupByOperatorList);
+    final IntermediateResultsBlock block = (IntermediateResultsBlock) aggregationGroupByOperator.nextBlock();
+    return block.getAggregationGroupByOperatorResult();
+  }
+
   @Test
   public void testAggregationGroupBysWithCombine() {
     final List<AggregationFunctionGroupByOperator> aggregationFunctionGroupByOperatorList =
@@ -326,7 +414,7 @@ public class AggregationGroupByWithDictionaryOperatorTest {
     final PlanNode rootPlanNode = instancePlanMaker.makeInnerSegmentPlan(_indexSegment, brokerRequest);
     rootPlanNode.showTree("");
     // UAggregationGroupByOperator operator = (UAggregationGroupByOperator) rootPlanNode.run();
-    final MAggregationGroupByOperator operator = (MAggregationGroupByOperator) rootPlanNode.run();
+    final Operator operator = rootPlanNode.run();
     final IntermediateResultsBlock resultBlock = (IntermediateResultsBlock) operator.nextBlock();
     LOGGER.info("RunningTime : {}", resultBlock.getTimeUsedMs());
     LOGGER.info("NumDocsScanned : {}", resultBlock.getNumDocsScanned());
@@ -359,7 +447,7 @@ public class AggregationGroupByWithDictionaryOperatorTest {
     final PlanNode rootPlanNode = instancePlanMaker.makeInnerSegmentPlan(_indexSegment, brokerRequest);
     rootPlanNode.showTree("");
     // UAggregationGroupByOperator operator = (UAggregationGroupByOperator) rootPlanNode.run();
-    final MAggregationGroupByOperator operator = (MAggregationGroupByOperator) rootPlanNode.run();
+    final Operator operator = rootPlanNode.run();
     final IntermediateResultsBlock resultBlock = (IntermediateResultsBlock) operator.nextBlock();
     LOGGER.info("RunningTime : {}", resultBlock.getTimeUsedMs());
     LOGGER.info("NumDocsScanned : {}", resultBlock.getNumDocsScanned());
@@ -28,6 +28,7 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.common.utils.DataTableObjectSerDe;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.CombineLevel;
 import com.linkedin.pinot.core.query.aggregation.function.AvgAggregationFunction;
@@ -176,6 +177,22 @@ public class SimpleAggregationFunctionsTest {
     }
   }
 
+  @Test
+  public void testAvgPairSerDe() throws Exception {
+    // The AvgPair serializer is registered from META-INF/services, without going through the aggregation functions
+    AvgPair avgPair = new AvgAggregationFunction().getAvgPair(12.5, 3L);
+    byte[] bytes = DataTableObjectSerDe.serialize(avgPair);
+    assertEquals(bytes.length, 1 + 8 + 8);
+
+    Map<String, Serializable> groupByResult = new HashMap<String, Serializable>();
+    groupByResult.put("a\tb", avgPair);
+    Map<String, Serializable> deserialized =
+        DataTableObjectSerDe.deserialize(DataTableObjectSerDe.serialize(groupByResult));
+    AvgPair deserializedAvgPair = (AvgPair) deserialized.get("a\tb");
+    assertEquals(deserializedAvgPair.getFirst(), 12.5);
+    assertEquals(deserializedAvgPair.getSecond(), Long.valueOf(3L));
+  }
+
   @Test
   public void testDistinctCountAggregation() {
     AggregationFunction aggregationFunction = new DistinctCountAggregationFunction();
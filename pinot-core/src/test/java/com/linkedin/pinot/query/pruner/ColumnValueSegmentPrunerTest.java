@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.query.pruner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.FilterOperator;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
+import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.query.pruner.ColumnValueSegmentPruner;
+import com.linkedin.pinot.core.query.pruner.SegmentPruner;
+import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
+import com.linkedin.pinot.segments.v1.creator.SegmentTestUtils;
+import com.linkedin.pinot.util.TestUtils;
+
+
+public class ColumnValueSegmentPrunerTest {
+  private static final String AVRO_DATA = "data/test_sample_data.avro";
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "ColumnValueSegmentPrunerTest");
+
+  private IndexSegmentImpl _indexSegment;
+  private final SegmentPruner _pruner = new ColumnValueSegmentPruner();
+  private long _minValue;
+  private long _maxValue;
+
+  @BeforeClass
+  public void setup() throws Exception {
+    final String filePath =
+        TestUtils.getFileFromResourceUrl(ColumnValueSegmentPrunerTest.class.getClassLoader().getResource(AVRO_DATA));
+    FileUtils.deleteQuietly(INDEX_DIR);
+
+    final SegmentGeneratorConfig config =
+        SegmentTestUtils.getSegmentGenSpecWithSchemAndProjectedColumns(new File(filePath), INDEX_DIR, "time_day",
+            TimeUnit.DAYS, "test");
+    config.setBloomFilterColumns(Arrays.asList("column3"));
+    final SegmentIndexCreationDriver driver = SegmentCreationDriverFactory.get(null);
+    driver.init(config);
+    driver.build();
+    _indexSegment =
+        (IndexSegmentImpl) ColumnarSegmentLoader.load(new File(INDEX_DIR, driver.getSegmentName()), ReadMode.heap);
+
+    ImmutableDictionaryReader dictionary = _indexSegment.getDictionaryFor("column1");
+    _minValue = dictionary.getLongValue(0);
+    _maxValue = dictionary.getLongValue(dictionary.length() - 1);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  @Test
+  public void testColumnMetadata() {
+    SegmentMetadataImpl segmentMetadata = (SegmentMetadataImpl) _indexSegment.getSegmentMetadata();
+    ColumnMetadata columnMetadata = segmentMetadata.getColumnMetadataFor("column1");
+    Assert.assertEquals(columnMetadata.getMinValue(), String.valueOf(_minValue));
+    Assert.assertEquals(columnMetadata.getMaxValue(), String.valueOf(_maxValue));
+    Assert.assertFalse(columnMetadata.hasBloomFilter());
+    Assert.assertNull(_indexSegment.getBloomFilterFor("column1"));
+
+    // Min and max values are not recorded for string columns
+    Assert.assertNull(segmentMetadata.getColumnMetadataFor("column3").getMinValue());
+    Assert.assertTrue(segmentMetadata.getColumnMetadataFor("column3").hasBloomFilter());
+    Assert.assertNotNull(_indexSegment.getBloomFilterFor("column3"));
+  }
+
+  @Test
+  public void testMinMaxPruning() {
+    Assert.assertFalse(prune(getPredicate("column1", FilterOperator.EQUALITY, String.valueOf(_minValue))));
+    Assert.assertTrue(prune(getPredicate("column1", FilterOperator.EQUALITY, String.valueOf(_maxValue + 1))));
+    Assert.assertTrue(prune(getPredicate("column1", FilterOperator.EQUALITY, String.valueOf(_minValue - 1))));
+
+    Assert.assertTrue(prune(getPredicate("column1", FilterOperator.IN, (_minValue - 2) + "\t\t" + (_maxValue + 2))));
+    Assert.assertFalse(prune(getPredicate("column1", FilterOperator.IN, (_minValue - 2) + "\t\t" + _maxValue)));
+
+    Assert.assertFalse(prune(getPredicate("column1", FilterOperator.RANGE, "[" + _maxValue + "\t\t*)")));
+    Assert.assertTrue(prune(getPredicate("column1", FilterOperator.RANGE, "(" + _maxValue + "\t\t*)")));
+    Assert.assertFalse(prune(getPredicate("column1", FilterOperator.RANGE, "(*\t\t" + _minValue + "]")));
+    Assert.assertTrue(prune(getPredicate("column1", FilterOperator.RANGE, "(*\t\t" + _minValue + ")")));
+    Assert.assertTrue(prune(getPredicate("column1", FilterOperator.RANGE,
+        "[" + (_maxValue + 1) + "\t\t" + (_maxValue + 10) + "]")));
+
+    // Values not parsable as numbers are left to the query execution
+    Assert.assertFalse(prune(getPredicate("column1", FilterOperator.EQUALITY, "abc")));
+    // Unknown columns are left to the other pruners
+    Assert.assertFalse(prune(getPredicate("unknown", FilterOperator.EQUALITY, "1")));
+  }
+
+  @Test
+  public void testBloomFilterPruning() {
+    ImmutableDictionaryReader dictionary = _indexSegment.getDictionaryFor("column3");
+    for (int i = 0; i < dictionary.length(); i++) {
+      Assert.assertFalse(prune(getPredicate("column3", FilterOperator.EQUALITY, dictionary.toString(i))));
+    }
+
+    // Values missing from the segment are pruned, up to the false positive probability
+    int numPruned = 0;
+    for (int i = 0; i < 1000; i++) {
+      if (prune(getPredicate("column3", FilterOperator.EQUALITY, "missingValue" + i))) {
+        numPruned++;
+      }
+    }
+    Assert.assertTrue(numPruned > 900, "Pruned: " + numPruned);
+    Assert.assertFalse(prune(getPredicate("column3", FilterOperator.IN, "missingValue\t\t" + dictionary.toString(0))));
+  }
+
+  @Test
+  public void testNestedFilters() {
+    FilterQueryTree matching = getPredicate("column1", FilterOperator.EQUALITY, String.valueOf(_minValue));
+    FilterQueryTree notMatching = getPredicate("column1", FilterOperator.EQUALITY, String.valueOf(_maxValue + 1));
+
+    Assert.assertTrue(prune(new FilterQueryTree(null, null, FilterOperator.AND, Arrays.asList(matching, notMatching))));
+    Assert.assertFalse(prune(new FilterQueryTree(null, null, FilterOperator.OR, Arrays.asList(matching, notMatching))));
+    Assert.assertTrue(prune(new FilterQueryTree(null, null, FilterOperator.OR,
+        Arrays.asList(notMatching, getPredicate("column1", FilterOperator.EQUALITY, String.valueOf(_minValue - 1))))));
+
+    // No filter
+    Assert.assertFalse(_pruner.prune(_indexSegment, new BrokerRequest()));
+  }
+
+  private boolean prune(FilterQueryTree filterQueryTree) {
+    BrokerRequest brokerRequest = new BrokerRequest();
+    RequestUtils.generateFilterFromTree(filterQueryTree, brokerRequest);
+    return _pruner.prune(_indexSegment, brokerRequest);
+  }
+
+  private static FilterQueryTree getPredicate(String column, FilterOperator operator, String value) {
+    List<String> values = new ArrayList<String>();
+    values.add(value);
+    return new FilterQueryTree(column, values, operator, null);
+  }
+}
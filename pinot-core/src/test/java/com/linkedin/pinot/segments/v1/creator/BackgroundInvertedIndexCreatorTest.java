@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.segments.v1.creator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.metadata.segment.IndexLoadingConfigMetadata;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.core.index.reader.impl.FixedBitSkipListSCMVReader;
+import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import com.linkedin.pinot.core.segment.index.InvertedIndexReader;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.index.loader.BackgroundInvertedIndexCreator;
+import com.linkedin.pinot.core.segment.index.readers.FixedBitCompressedSVForwardIndexReader;
+import com.linkedin.pinot.util.TestUtils;
+
+
+public class BackgroundInvertedIndexCreatorTest {
+  private static final String AVRO_DATA = "data/test_sample_data.avro";
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "BackgroundInvertedIndexCreatorTest");
+
+  private File _segmentDir;
+  private IndexLoadingConfigMetadata _indexLoadingConfigMetadata;
+  private List<String> _unsortedColumns;
+
+  @BeforeClass
+  public void setup() throws Exception {
+    final String filePath =
+        TestUtils.getFileFromResourceUrl(BackgroundInvertedIndexCreatorTest.class.getClassLoader()
+            .getResource(AVRO_DATA));
+    FileUtils.deleteQuietly(INDEX_DIR);
+
+    // The segment is created without inverted index
+    final SegmentGeneratorConfig config =
+        SegmentTestUtils.getSegmentGenSpecWithSchemAndProjectedColumns(new File(filePath), INDEX_DIR, "time_day",
+            TimeUnit.DAYS, "test");
+    final SegmentIndexCreationDriver driver = SegmentCreationDriverFactory.get(null);
+    driver.init(config);
+    driver.build();
+    _segmentDir = new File(INDEX_DIR, driver.getSegmentName());
+
+    SegmentMetadataImpl segmentMetadata = new SegmentMetadataImpl(_segmentDir);
+    _unsortedColumns = new ArrayList<String>();
+    for (String column : segmentMetadata.getColumnMetadataMap().keySet()) {
+      if (!segmentMetadata.getColumnMetadataFor(column).isSorted()) {
+        _unsortedColumns.add(column);
+      }
+    }
+    Assert.assertFalse(_unsortedColumns.isEmpty());
+
+    _indexLoadingConfigMetadata = new IndexLoadingConfigMetadata(new PropertiesConfiguration());
+    _indexLoadingConfigMetadata.initLoadingInvertedIndexColumnSet(segmentMetadata.getColumnMetadataMap().keySet()
+        .toArray(new String[0]));
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  @Test
+  public void testCreateMissingInvertedIndexes() throws Exception {
+    IndexSegmentImpl indexSegment =
+        (IndexSegmentImpl) ColumnarSegmentLoader.load(_segmentDir, ReadMode.heap, _indexLoadingConfigMetadata);
+    Assert.assertEquals(
+        BackgroundInvertedIndexCreator.getColumnsMissingInvertedIndex(indexSegment, _indexLoadingConfigMetadata),
+        _unsortedColumns);
+    for (String column : _unsortedColumns) {
+      Assert.assertFalse(indexSegment.getDataSource(column).getDataSourceMetadata().hasInvertedIndex());
+    }
+
+    Future<Integer> future =
+        BackgroundInvertedIndexCreator.submit(indexSegment, _indexLoadingConfigMetadata, ReadMode.heap);
+    Assert.assertEquals(future.get().intValue(), _unsortedColumns.size());
+    for (String column : _unsortedColumns) {
+      Assert.assertTrue(indexSegment.getDataSource(column).getDataSourceMetadata().hasInvertedIndex());
+      Assert.assertTrue(new File(_segmentDir, column + V1Constants.Indexes.BITMAP_INVERTED_INDEX_FILE_EXTENSION)
+          .exists());
+      assertInvertedIndex(indexSegment, column);
+    }
+    Assert.assertNull(BackgroundInvertedIndexCreator.submit(indexSegment, _indexLoadingConfigMetadata, ReadMode.heap));
+    indexSegment.destroy();
+
+    // The created indexes are loaded along with the segment
+    indexSegment =
+        (IndexSegmentImpl) ColumnarSegmentLoader.load(_segmentDir, ReadMode.mmap, _indexLoadingConfigMetadata);
+    Assert.assertTrue(BackgroundInvertedIndexCreator.getColumnsMissingInvertedIndex(indexSegment,
+        _indexLoadingConfigMetadata).isEmpty());
+    for (String column : _unsortedColumns) {
+      assertInvertedIndex(indexSegment, column);
+    }
+    indexSegment.destroy();
+  }
+
+  @Test
+  public void testDestroyCancelsCreation() throws Exception {
+    // Works on a copy of the segment without the inverted indexes created by the other tests
+    File segmentDir = new File(INDEX_DIR, "destroyed_" + _segmentDir.getName());
+    FileUtils.copyDirectory(_segmentDir, segmentDir);
+    for (String column : _unsortedColumns) {
+      FileUtils.deleteQuietly(new File(segmentDir, column + V1Constants.Indexes.BITMAP_INVERTED_INDEX_FILE_EXTENSION));
+    }
+    IndexSegmentImpl indexSegment =
+        (IndexSegmentImpl) ColumnarSegmentLoader.load(segmentDir, ReadMode.mmap, _indexLoadingConfigMetadata);
+    Future<Integer> future =
+        BackgroundInvertedIndexCreator.submit(indexSegment, _indexLoadingConfigMetadata, ReadMode.mmap);
+
+    // Destroying the segment waits for the creation to stop, so that it never reads unmapped indexes
+    indexSegment.destroy();
+    int numCreatedIndexes = future.get();
+    Assert.assertTrue(numCreatedIndexes <= _unsortedColumns.size());
+    Assert.assertFalse(indexSegment.acquireForBackgroundTask());
+    for (String column : _unsortedColumns) {
+      Assert.assertFalse(new File(segmentDir, column + ".inv.tmp").exists());
+    }
+  }
+
+  @Test
+  public void testDestroyedSegment() throws Exception {
+    IndexSegmentImpl indexSegment =
+        (IndexSegmentImpl) ColumnarSegmentLoader.load(_segmentDir, ReadMode.heap, new IndexLoadingConfigMetadata(
+            new PropertiesConfiguration()));
+    indexSegment.destroy();
+    Assert.assertFalse(indexSegment.replaceColumnIndexContainer(_unsortedColumns.get(0), null));
+  }
+
+  private void assertInvertedIndex(IndexSegmentImpl indexSegment, String column) {
+    ColumnMetadata columnMetadata =
+        ((SegmentMetadataImpl) indexSegment.getSegmentMetadata()).getColumnMetadataFor(column);
+    InvertedIndexReader invertedIndex = indexSegment.getInvertedIndexFor(column);
+    int numEntries = 0;
+    for (int dictionaryId = 0; dictionaryId < columnMetadata.getCardinality(); dictionaryId++) {
+      numEntries += invertedIndex.getImmutable(dictionaryId).getCardinality();
+    }
+    Assert.assertEquals(numEntries, columnMetadata.isSingleValue() ? columnMetadata.getTotalDocs()
+        : columnMetadata.getTotalNumberOfEntries(), column);
+
+    int[] dictionaryIds = new int[columnMetadata.getMaxNumberOfMultiValues()];
+    for (int docId = 0; docId < columnMetadata.getTotalDocs(); docId++) {
+      if (columnMetadata.isSingleValue()) {
+        int dictionaryId = ((FixedBitCompressedSVForwardIndexReader) indexSegment.getForwardIndexReaderFor(column))
+            .getInt(docId);
+        Assert.assertTrue(invertedIndex.getImmutable(dictionaryId).contains(docId), column);
+      } else {
+        int numValues =
+            ((FixedBitSkipListSCMVReader) indexSegment.getForwardIndexReaderFor(column)).getIntArray(docId,
+                dictionaryIds);
+        for (int i = 0; i < numValues; i++) {
+          Assert.assertTrue(invertedIndex.getImmutable(dictionaryIds[i]).contains(docId), column);
+        }
+      }
+    }
+  }
+}
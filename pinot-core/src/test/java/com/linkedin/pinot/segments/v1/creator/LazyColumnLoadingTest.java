@@ -0,0 +1,200 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.segments.v1.creator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.metadata.segment.IndexLoadingConfigMetadata;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
+import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl.ColumnLoadStats;
+import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
+import com.linkedin.pinot.util.TestUtils;
+
+
+public class LazyColumnLoadingTest {
+  private static final String AVRO_DATA = "data/test_sample_data.avro";
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "LazyColumnLoadingTest");
+
+  private File _segmentDir;
+  private IndexLoadingConfigMetadata _indexLoadingConfigMetadata;
+
+  @BeforeClass
+  public void setup() throws Exception {
+    final String filePath =
+        TestUtils.getFileFromResourceUrl(LazyColumnLoadingTest.class.getClassLoader().getResource(AVRO_DATA));
+    FileUtils.deleteQuietly(INDEX_DIR);
+
+    final SegmentGeneratorConfig config =
+        SegmentTestUtils.getSegmentGenSpecWithSchemAndProjectedColumns(new File(filePath), INDEX_DIR, "time_day",
+            TimeUnit.DAYS, "test");
+    final SegmentIndexCreationDriver driver = SegmentCreationDriverFactory.get(null);
+    driver.init(config);
+    driver.build();
+    _segmentDir = new File(INDEX_DIR, driver.getSegmentName());
+
+    PropertiesConfiguration properties = new PropertiesConfiguration();
+    properties.setProperty(IndexLoadingConfigMetadata.KEY_OF_LAZY_LOADING_COLUMNS, true);
+    _indexLoadingConfigMetadata = new IndexLoadingConfigMetadata(properties);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  @Test
+  public void testLazyLoading() throws Exception {
+    IndexSegmentImpl eagerSegment = (IndexSegmentImpl) ColumnarSegmentLoader.load(_segmentDir, ReadMode.mmap);
+    IndexSegmentImpl lazySegment =
+        (IndexSegmentImpl) ColumnarSegmentLoader.load(_segmentDir, ReadMode.mmap, _indexLoadingConfigMetadata);
+    Assert.assertFalse(eagerSegment.isLazyLoadingColumns());
+    Assert.assertTrue(lazySegment.isLazyLoadingColumns());
+    Assert.assertEquals(lazySegment.getColumnLoadStats("column1").getNumLoads(), 0);
+    Assert.assertEquals(lazySegment.getColumnLoadStats("column3").getNumLoads(), 0);
+
+    assertSameValues(lazySegment, eagerSegment, "column1");
+    Assert.assertEquals(lazySegment.getColumnLoadStats("column1").getNumLoads(), 1);
+    Assert.assertEquals(lazySegment.getColumnLoadStats("column3").getNumLoads(), 0);
+    Assert.assertNull(lazySegment.getColumnLoadStats("unknownColumn"));
+
+    // Heap segments are always loaded upfront
+    IndexSegmentImpl heapSegment =
+        (IndexSegmentImpl) ColumnarSegmentLoader.load(_segmentDir, ReadMode.heap, _indexLoadingConfigMetadata);
+    Assert.assertFalse(heapSegment.isLazyLoadingColumns());
+
+    heapSegment.destroy();
+    lazySegment.destroy();
+    eagerSegment.destroy();
+  }
+
+  @Test
+  public void testReleaseIdleColumns() throws Exception {
+    IndexSegmentImpl eagerSegment = (IndexSegmentImpl) ColumnarSegmentLoader.load(_segmentDir, ReadMode.mmap);
+    IndexSegmentImpl lazySegment =
+        (IndexSegmentImpl) ColumnarSegmentLoader.load(_segmentDir, ReadMode.mmap, _indexLoadingConfigMetadata);
+    lazySegment.getDataSource("column1");
+    lazySegment.getDataSource("column3");
+    Assert.assertEquals(eagerSegment.releaseIdleColumns(0), 0);
+    Assert.assertEquals(lazySegment.releaseIdleColumns(TimeUnit.HOURS.toMillis(1)), 0);
+
+    Thread.sleep(10);
+    Assert.assertEquals(lazySegment.releaseIdleColumns(0), 2);
+    // Readers obtained before the release stay usable until the released columns are closed
+    ImmutableDictionaryReader dictionary = lazySegment.getDictionaryFor("column3");
+    Assert.assertEquals(lazySegment.getColumnLoadStats("column3").getNumLoads(), 2);
+    Assert.assertEquals(lazySegment.getColumnLoadStats("column3").getNumReleases(), 1);
+    lazySegment.closeReleasedColumns();
+    Assert.assertEquals(dictionary.length(), eagerSegment.getDictionaryFor("column3").length());
+    assertSameValues(lazySegment, eagerSegment, "column1");
+    Assert.assertEquals(lazySegment.getColumnLoadStats("column1").getNumLoads(), 2);
+
+    lazySegment.destroy();
+    eagerSegment.destroy();
+  }
+
+  @Test
+  public void testReleaseBounds() throws Exception {
+    IndexSegmentImpl lazySegment =
+        (IndexSegmentImpl) ColumnarSegmentLoader.load(_segmentDir, ReadMode.mmap, _indexLoadingConfigMetadata);
+    lazySegment.getDataSource("column1");
+    lazySegment.getDataSource("column3");
+    Assert.assertTrue(lazySegment.pinColumn("column3"));
+    Assert.assertFalse(lazySegment.pinColumn("unknownColumn"));
+
+    // Pinned columns are not released
+    Thread.sleep(10);
+    Assert.assertEquals(lazySegment.releaseIdleColumns(0), 1);
+    Assert.assertEquals(lazySegment.getColumnLoadStats("column3").getNumReleases(), 0);
+    long firstReleaseSequence = lazySegment.getLastReleaseSequence();
+
+    // A column is not released again until its released readers are closed
+    lazySegment.unpinColumn("column3");
+    lazySegment.getDataSource("column1");
+    Thread.sleep(10);
+    Assert.assertEquals(lazySegment.releaseIdleColumns(0), 1);
+    Assert.assertEquals(lazySegment.getColumnLoadStats("column1").getNumReleases(), 1);
+    Assert.assertEquals(lazySegment.getColumnLoadStats("column3").getNumReleases(), 1);
+    Assert.assertEquals(lazySegment.getNumReleasedIndexContainers(), 2);
+
+    // Only the columns released up to the given sequence number are closed
+    lazySegment.closeReleasedColumns(firstReleaseSequence);
+    Assert.assertEquals(lazySegment.getNumReleasedIndexContainers(), 1);
+    Assert.assertEquals(lazySegment.releaseIdleColumns(0), 1);
+    Assert.assertEquals(lazySegment.getColumnLoadStats("column1").getNumReleases(), 2);
+
+    lazySegment.destroy();
+    Assert.assertEquals(lazySegment.getNumReleasedIndexContainers(), 0);
+  }
+
+  @Test
+  public void testConcurrentLoading() throws Exception {
+    final IndexSegmentImpl lazySegment =
+        (IndexSegmentImpl) ColumnarSegmentLoader.load(_segmentDir, ReadMode.mmap, _indexLoadingConfigMetadata);
+    ExecutorService executorService = Executors.newFixedThreadPool(8);
+    List<Future<ImmutableDictionaryReader>> futures = new ArrayList<Future<ImmutableDictionaryReader>>();
+    for (int i = 0; i < 32; i++) {
+      futures.add(executorService.submit(new Callable<ImmutableDictionaryReader>() {
+        @Override
+        public ImmutableDictionaryReader call() throws Exception {
+          return lazySegment.getDictionaryFor("column5");
+        }
+      }));
+    }
+    for (Future<ImmutableDictionaryReader> future : futures) {
+      Assert.assertSame(future.get(), futures.get(0).get());
+    }
+    executorService.shutdown();
+
+    ColumnLoadStats columnLoadStats = lazySegment.getColumnLoadStats("column5");
+    Assert.assertEquals(columnLoadStats.getNumLoads(), 1);
+    Assert.assertTrue(columnLoadStats.getLastAccessTimeMs() > 0);
+    lazySegment.destroy();
+  }
+
+  private static void assertSameValues(IndexSegmentImpl actual, IndexSegmentImpl expected, String column) {
+    BlockSingleValIterator expectedIterator =
+        (BlockSingleValIterator) expected.getDataSource(column).nextBlock().getBlockValueSet().iterator();
+    BlockSingleValIterator actualIterator =
+        (BlockSingleValIterator) actual.getDataSource(column).nextBlock().getBlockValueSet().iterator();
+    ImmutableDictionaryReader expectedDictionary = expected.getDictionaryFor(column);
+    ImmutableDictionaryReader actualDictionary = actual.getDictionaryFor(column);
+    while (expectedIterator.hasNext()) {
+      Assert.assertEquals(actualDictionary.get(actualIterator.nextIntVal()),
+          expectedDictionary.get(expectedIterator.nextIntVal()));
+    }
+    Assert.assertFalse(actualIterator.hasNext());
+  }
+}
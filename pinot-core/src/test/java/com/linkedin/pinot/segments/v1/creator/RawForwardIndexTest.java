@@ -0,0 +1,255 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.segments.v1.creator;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.FilterOperator;
+import com.linkedin.pinot.common.request.GroupBy;
+import com.linkedin.pinot.common.request.Selection;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
+import com.linkedin.pinot.core.block.query.IntermediateResultsBlock;
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
+import com.linkedin.pinot.core.common.DataSource;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentVersion;
+import com.linkedin.pinot.core.plan.PlanNode;
+import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
+import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.index.data.source.sv.block.RawSingleValueBlock;
+import com.linkedin.pinot.util.TestUtils;
+
+
+public class RawForwardIndexTest {
+  private static final String AVRO_DATA = "data/test_sample_data.avro";
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "RawForwardIndexTest");
+  private static final String RAW_COLUMN = "met_impressionCount";
+  // String columns are dictionary encoded even when configured without dictionary
+  private static final String STRING_COLUMN = "column3";
+
+  private File _dictionarySegmentDir;
+  private File _rawSegmentDir;
+  private File _rawV2SegmentDir;
+  private IndexSegment _dictionarySegment;
+
+  @BeforeClass
+  public void setup() throws Exception {
+    FileUtils.deleteQuietly(INDEX_DIR);
+    _dictionarySegmentDir = buildSegment(new File(INDEX_DIR, "dictionary"), new ArrayList<String>(), SegmentVersion.v1);
+    _rawSegmentDir =
+        buildSegment(new File(INDEX_DIR, "raw"), Arrays.asList(RAW_COLUMN, STRING_COLUMN), SegmentVersion.v1);
+    _rawV2SegmentDir =
+        buildSegment(new File(INDEX_DIR, "rawV2"), Arrays.asList(RAW_COLUMN, STRING_COLUMN), SegmentVersion.v2);
+    _dictionarySegment = ColumnarSegmentLoader.load(_dictionarySegmentDir, ReadMode.heap);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    _dictionarySegment.destroy();
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  private File buildSegment(File outDir, List<String> noDictionaryColumns, SegmentVersion segmentVersion)
+      throws Exception {
+    final String filePath =
+        TestUtils.getFileFromResourceUrl(RawForwardIndexTest.class.getClassLoader().getResource(AVRO_DATA));
+    final SegmentGeneratorConfig config =
+        SegmentTestUtils.getSegmentGenSpecWithSchemAndProjectedColumns(new File(filePath), outDir, "time_day",
+            TimeUnit.DAYS, "test");
+    config.setNoDictionaryColumns(noDictionaryColumns);
+    config.setSegmentVersion(segmentVersion);
+    final SegmentIndexCreationDriver driver = SegmentCreationDriverFactory.get(null);
+    driver.init(config);
+    driver.build();
+    return new File(outDir, driver.getSegmentName());
+  }
+
+  @Test
+  public void testSegmentFiles() throws Exception {
+    SegmentMetadataImpl metadata = new SegmentMetadataImpl(_rawSegmentDir);
+    ColumnMetadata columnMetadata = metadata.getColumnMetadataFor(RAW_COLUMN);
+    Assert.assertFalse(columnMetadata.hasDictionary());
+    Assert.assertFalse(columnMetadata.isSorted());
+    Assert.assertFalse(columnMetadata.isHasInvertedIndex());
+    Assert.assertTrue(metadata.getColumnMetadataFor(STRING_COLUMN).hasDictionary());
+
+    Assert.assertFalse(new File(_rawSegmentDir, RAW_COLUMN + V1Constants.Dict.FILE_EXTENTION).exists());
+    Assert.assertFalse(new File(_rawSegmentDir, RAW_COLUMN + V1Constants.Indexes.UN_SORTED_SV_FWD_IDX_FILE_EXTENTION)
+        .exists());
+    File rawIndexFile = new File(_rawSegmentDir, RAW_COLUMN + V1Constants.Indexes.RAW_SV_FWD_IDX_FILE_EXTENTION);
+    Assert.assertEquals(rawIndexFile.length(), (long) metadata.getTotalDocs()
+        * V1Constants.Dict.getSingleValueColumnSizeFor(metadata.getSchema().getFieldSpecFor(RAW_COLUMN))[0]);
+
+    // The min and max values are still recorded for pruning
+    ColumnMetadata dictionaryColumnMetadata =
+        new SegmentMetadataImpl(_dictionarySegmentDir).getColumnMetadataFor(RAW_COLUMN);
+    Assert.assertEquals(columnMetadata.getMinValue(), dictionaryColumnMetadata.getMinValue());
+    Assert.assertEquals(columnMetadata.getMaxValue(), dictionaryColumnMetadata.getMaxValue());
+  }
+
+  @Test
+  public void testValues() throws Exception {
+    for (File segmentDir : new File[] { _rawSegmentDir, _rawV2SegmentDir }) {
+      for (ReadMode readMode : ReadMode.values()) {
+        IndexSegment rawSegment = ColumnarSegmentLoader.load(segmentDir, readMode);
+        try {
+          DataSource dictionaryDataSource = _dictionarySegment.getDataSource(RAW_COLUMN);
+          DataSource rawDataSource = rawSegment.getDataSource(RAW_COLUMN);
+          Assert.assertNull(rawDataSource.getDictionary());
+          Assert.assertFalse(rawDataSource.getDataSourceMetadata().hasDictionary());
+          Block rawBlock = rawDataSource.nextBlock();
+          Assert.assertTrue(rawBlock instanceof RawSingleValueBlock);
+          Assert.assertFalse(rawBlock.getMetadata().hasDictionary());
+
+          BlockSingleValIterator dictionaryIterator =
+              (BlockSingleValIterator) dictionaryDataSource.nextBlock().getBlockValueSet().iterator();
+          BlockSingleValIterator rawIterator = (BlockSingleValIterator) rawBlock.getBlockValueSet().iterator();
+          BlockSingleValIterator rawDoubleIterator = (BlockSingleValIterator) rawBlock.getBlockValueSet().iterator();
+          int numDocs = 0;
+          while (dictionaryIterator.hasNext()) {
+            Assert.assertTrue(rawIterator.hasNext());
+            long expected = dictionaryDataSource.getDictionary().getLongValue(dictionaryIterator.nextIntVal());
+            Assert.assertEquals(rawIterator.nextLongVal(), expected);
+            Assert.assertEquals(rawDoubleIterator.nextDoubleVal(), (double) expected);
+            numDocs++;
+          }
+          Assert.assertFalse(rawIterator.hasNext());
+          Assert.assertEquals(numDocs, rawSegment.getTotalDocs());
+
+          // Random access
+          Assert.assertTrue(rawIterator.skipTo(numDocs / 2));
+          dictionaryIterator.skipTo(numDocs / 2);
+          Assert.assertEquals(rawIterator.nextLongVal(),
+              dictionaryDataSource.getDictionary().getLongValue(dictionaryIterator.nextIntVal()));
+          Assert.assertFalse(rawIterator.skipTo(numDocs));
+        } finally {
+          rawSegment.destroy();
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testQueries() throws Exception {
+    IndexSegment rawSegment = ColumnarSegmentLoader.load(_rawSegmentDir, ReadMode.mmap);
+    try {
+      // Aggregations
+      BrokerRequest aggregationRequest = new BrokerRequest();
+      aggregationRequest.setAggregationsInfo(getAggregationsInfo());
+      List<Serializable> expectedResults = runQuery(_dictionarySegment, aggregationRequest).getAggregationResult();
+      List<Serializable> results = runQuery(rawSegment, aggregationRequest).getAggregationResult();
+      Assert.assertEquals(results.size(), expectedResults.size());
+      for (int i = 0; i < results.size(); i++) {
+        Assert.assertEquals(results.get(i).toString(), expectedResults.get(i).toString(), "Aggregation " + i);
+      }
+
+      // Aggregations grouped by a dictionary encoded column
+      BrokerRequest groupByRequest = new BrokerRequest();
+      groupByRequest.setAggregationsInfo(getAggregationsInfo().subList(0, 4));
+      GroupBy groupBy = new GroupBy();
+      groupBy.setColumns(Arrays.asList(STRING_COLUMN));
+      groupBy.setTopN(10);
+      groupByRequest.setGroupBy(groupBy);
+      Assert.assertEquals(runQuery(rawSegment, groupByRequest).getAggregationGroupByOperatorResult().toString(),
+          runQuery(_dictionarySegment, groupByRequest).getAggregationGroupByOperatorResult().toString());
+
+      // Aggregations grouped by the column without dictionary
+      groupBy.setColumns(Arrays.asList(RAW_COLUMN));
+      List<Map<String, Serializable>> expectedGroupByResults =
+          runQuery(_dictionarySegment, groupByRequest).getAggregationGroupByOperatorResult();
+      List<Map<String, Serializable>> groupByResults =
+          runQuery(rawSegment, groupByRequest).getAggregationGroupByOperatorResult();
+      Assert.assertEquals(groupByResults.size(), expectedGroupByResults.size());
+      for (int i = 0; i < groupByResults.size(); i++) {
+        Assert.assertEquals(new TreeMap<String, Serializable>(groupByResults.get(i)).toString(),
+            new TreeMap<String, Serializable>(expectedGroupByResults.get(i)).toString(), "Aggregation " + i);
+      }
+
+      // Selection
+      BrokerRequest selectionRequest = new BrokerRequest();
+      Selection selection = new Selection();
+      selection.setSelectionColumns(Arrays.asList(STRING_COLUMN, RAW_COLUMN));
+      selection.setOffset(0);
+      selection.setSize(20);
+      selectionRequest.setSelections(selection);
+      List<Serializable[]> expectedRows =
+          new ArrayList<Serializable[]>(runQuery(_dictionarySegment, selectionRequest).getSelectionResult());
+      List<Serializable[]> rows =
+          new ArrayList<Serializable[]>(runQuery(rawSegment, selectionRequest).getSelectionResult());
+      Assert.assertEquals(rows.size(), expectedRows.size());
+      for (int i = 0; i < rows.size(); i++) {
+        Assert.assertEquals(rows.get(i), expectedRows.get(i));
+      }
+
+      // Predicates are evaluated on dictionary ids
+      BrokerRequest filterRequest = new BrokerRequest();
+      filterRequest.setAggregationsInfo(getAggregationsInfo().subList(0, 1));
+      RequestUtils.generateFilterFromTree(new FilterQueryTree(RAW_COLUMN, Arrays.asList("1"),
+          FilterOperator.EQUALITY, null), filterRequest);
+      try {
+        runQuery(rawSegment, filterRequest);
+        Assert.fail("Filter on column without dictionary should not be supported");
+      } catch (UnsupportedOperationException e) {
+        // Expected
+      }
+    } finally {
+      rawSegment.destroy();
+    }
+  }
+
+  private static IntermediateResultsBlock runQuery(IndexSegment indexSegment, BrokerRequest brokerRequest) {
+    PlanNode planNode = new InstancePlanMakerImplV2().makeInnerSegmentPlan(indexSegment, brokerRequest);
+    return (IntermediateResultsBlock) planNode.run().nextBlock();
+  }
+
+  private static List<AggregationInfo> getAggregationsInfo() {
+    List<AggregationInfo> aggregationsInfo = new ArrayList<AggregationInfo>();
+    for (String type : new String[] { "sum", "min", "max", "avg", "distinctCount" }) {
+      Map<String, String> params = new HashMap<String, String>();
+      params.put("column", RAW_COLUMN);
+      AggregationInfo aggregationInfo = new AggregationInfo();
+      aggregationInfo.setAggregationType(type);
+      aggregationInfo.setAggregationParams(params);
+      aggregationsInfo.add(aggregationInfo);
+    }
+    return aggregationsInfo;
+  }
+}
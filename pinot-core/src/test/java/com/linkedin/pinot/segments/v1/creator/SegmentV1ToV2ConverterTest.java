@@ -0,0 +1,195 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.segments.v1.creator;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.metadata.segment.IndexLoadingConfigMetadata;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.core.common.BlockMultiValIterator;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
+import com.linkedin.pinot.core.common.BlockValIterator;
+import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentVersion;
+import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import com.linkedin.pinot.core.segment.index.InvertedIndexReader;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.index.SingleFileIndexDirectory;
+import com.linkedin.pinot.core.segment.index.converter.SegmentV1ToV2Converter;
+import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
+import com.linkedin.pinot.util.TestUtils;
+
+
+public class SegmentV1ToV2ConverterTest {
+  private static final String AVRO_DATA = "data/test_sample_data.avro";
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "SegmentV1ToV2ConverterTest");
+
+  private File _v1SegmentDir;
+  private File _v2SegmentDir;
+  private IndexLoadingConfigMetadata _indexLoadingConfigMetadata;
+
+  @BeforeClass
+  public void setup() throws Exception {
+    FileUtils.deleteQuietly(INDEX_DIR);
+    _v1SegmentDir = buildSegment(SegmentVersion.v1, new File(INDEX_DIR, "v1"));
+    _v2SegmentDir = new File(INDEX_DIR, "converted");
+    SegmentV1ToV2Converter.convert(_v1SegmentDir, _v2SegmentDir);
+
+    _indexLoadingConfigMetadata = new IndexLoadingConfigMetadata(new PropertiesConfiguration());
+    _indexLoadingConfigMetadata.initLoadingInvertedIndexColumnSet(new SegmentMetadataImpl(_v1SegmentDir)
+        .getColumnMetadataMap().keySet().toArray(new String[0]));
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  private File buildSegment(SegmentVersion segmentVersion, File outputDir) throws Exception {
+    final String filePath =
+        TestUtils.getFileFromResourceUrl(SegmentV1ToV2ConverterTest.class.getClassLoader().getResource(AVRO_DATA));
+    final SegmentGeneratorConfig config =
+        SegmentTestUtils.getSegmentGenSpecWithSchemAndProjectedColumns(new File(filePath), outputDir, "time_day",
+            TimeUnit.DAYS, "test");
+    config.setSegmentVersion(segmentVersion);
+    config.setCreateInvertedIndex(true);
+    config.setBloomFilterColumns(Arrays.asList("column3"));
+    final SegmentIndexCreationDriver driver = SegmentCreationDriverFactory.get(segmentVersion);
+    driver.init(config);
+    driver.build();
+    return new File(outputDir, driver.getSegmentName());
+  }
+
+  @Test
+  public void testSegmentFiles() throws Exception {
+    Assert.assertEquals(new HashSet<String>(Arrays.asList(_v2SegmentDir.list())), new HashSet<String>(Arrays.asList(
+        SingleFileIndexDirectory.INDEX_FILE_NAME, V1Constants.MetadataKeys.METADATA_FILE_NAME,
+        V1Constants.SEGMENT_CREATION_META)));
+
+    SegmentMetadataImpl v1Metadata = new SegmentMetadataImpl(_v1SegmentDir);
+    SegmentMetadataImpl v2Metadata = new SegmentMetadataImpl(_v2SegmentDir);
+    Assert.assertEquals(v1Metadata.getVersion(), SegmentVersion.v1.toString());
+    Assert.assertEquals(v2Metadata.getVersion(), SegmentVersion.v2.toString());
+    Assert.assertEquals(v2Metadata.getCrc(), v1Metadata.getCrc());
+    Assert.assertEquals(v2Metadata.getTotalDocs(), v1Metadata.getTotalDocs());
+
+    SingleFileIndexDirectory singleFileIndex = new SingleFileIndexDirectory(_v2SegmentDir, ReadMode.heap);
+    Assert.assertTrue(singleFileIndex.hasBuffer("column3" + V1Constants.Indexes.BLOOM_FILTER_FILE_EXTENSION));
+    for (String fileName : singleFileIndex.getBufferNames()) {
+      Assert.assertEquals(singleFileIndex.getBuffer(fileName).capacity(), new File(_v1SegmentDir, fileName).length());
+    }
+    singleFileIndex.close();
+
+    // Only v1 segments can be converted
+    try {
+      SegmentV1ToV2Converter.convert(_v2SegmentDir, new File(INDEX_DIR, "other"));
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testLoadConvertedSegment() throws Exception {
+    IndexSegmentImpl v1Segment =
+        (IndexSegmentImpl) ColumnarSegmentLoader.load(_v1SegmentDir, ReadMode.heap, _indexLoadingConfigMetadata);
+    for (ReadMode readMode : ReadMode.values()) {
+      IndexSegmentImpl v2Segment =
+          (IndexSegmentImpl) ColumnarSegmentLoader.load(_v2SegmentDir, readMode, _indexLoadingConfigMetadata);
+      assertSameSegment(v2Segment, v1Segment);
+      v2Segment.destroy();
+    }
+    v1Segment.destroy();
+  }
+
+  @Test
+  public void testBuildV2Segment() throws Exception {
+    File segmentDir = buildSegment(SegmentVersion.v2, new File(INDEX_DIR, "v2"));
+    Assert.assertTrue(SingleFileIndexDirectory.exists(segmentDir));
+    Assert.assertFalse(new File(segmentDir, "column3" + V1Constants.Dict.FILE_EXTENTION).exists());
+
+    IndexSegmentImpl v1Segment =
+        (IndexSegmentImpl) ColumnarSegmentLoader.load(_v1SegmentDir, ReadMode.heap, _indexLoadingConfigMetadata);
+    IndexSegmentImpl v2Segment =
+        (IndexSegmentImpl) ColumnarSegmentLoader.load(segmentDir, ReadMode.mmap, _indexLoadingConfigMetadata);
+    assertSameSegment(v2Segment, v1Segment);
+    v2Segment.destroy();
+    v1Segment.destroy();
+  }
+
+  private void assertSameSegment(IndexSegmentImpl actual, IndexSegmentImpl expected) {
+    SegmentMetadataImpl segmentMetadata = (SegmentMetadataImpl) expected.getSegmentMetadata();
+    for (String column : segmentMetadata.getColumnMetadataMap().keySet()) {
+      ColumnMetadata columnMetadata = segmentMetadata.getColumnMetadataFor(column);
+
+      ImmutableDictionaryReader expectedDictionary = expected.getDictionaryFor(column);
+      ImmutableDictionaryReader actualDictionary = actual.getDictionaryFor(column);
+      Assert.assertEquals(actualDictionary.length(), expectedDictionary.length());
+      for (int dictionaryId = 0; dictionaryId < expectedDictionary.length(); dictionaryId++) {
+        Assert.assertEquals(actualDictionary.get(dictionaryId), expectedDictionary.get(dictionaryId), column);
+      }
+
+      BlockValIterator expectedIterator =
+          expected.getDataSource(column).nextBlock().getBlockValueSet().iterator();
+      BlockValIterator actualIterator = actual.getDataSource(column).nextBlock().getBlockValueSet().iterator();
+      int[] expectedValues = new int[columnMetadata.getMaxNumberOfMultiValues()];
+      int[] actualValues = new int[columnMetadata.getMaxNumberOfMultiValues()];
+      while (expectedIterator.hasNext()) {
+        Assert.assertTrue(actualIterator.hasNext());
+        if (columnMetadata.isSingleValue()) {
+          Assert.assertEquals(((BlockSingleValIterator) actualIterator).nextIntVal(),
+              ((BlockSingleValIterator) expectedIterator).nextIntVal(), column);
+        } else {
+          int numValues = ((BlockMultiValIterator) expectedIterator).nextIntVal(expectedValues);
+          Assert.assertEquals(((BlockMultiValIterator) actualIterator).nextIntVal(actualValues), numValues, column);
+          for (int i = 0; i < numValues; i++) {
+            Assert.assertEquals(actualValues[i], expectedValues[i], column);
+          }
+        }
+      }
+      Assert.assertFalse(actualIterator.hasNext());
+
+      InvertedIndexReader expectedInvertedIndex = expected.getInvertedIndexFor(column);
+      InvertedIndexReader actualInvertedIndex = actual.getInvertedIndexFor(column);
+      if (!columnMetadata.isSorted()) {
+        Assert.assertNotNull(expectedInvertedIndex, column);
+        for (int dictionaryId = 0; dictionaryId < expectedDictionary.length(); dictionaryId++) {
+          Assert.assertEquals(actualInvertedIndex.getImmutable(dictionaryId),
+              expectedInvertedIndex.getImmutable(dictionaryId), column);
+        }
+      }
+
+      Assert.assertEquals(actual.getBloomFilterFor(column) != null, expected.getBloomFilterFor(column) != null);
+    }
+    Assert.assertTrue(actual.getBloomFilterFor("column3").mightContain(
+        segmentMetadata.getColumnMetadataFor("column3").getDataType(), expected.getDictionaryFor("column3").toString(0)));
+  }
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.segments.v1.creator;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.common.data.FieldSpec.FieldType;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
+import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
+import com.linkedin.pinot.core.segment.index.readers.StringDictionary;
+import com.linkedin.pinot.core.segment.index.readers.VarLengthStringDictionary;
+import com.linkedin.pinot.util.TestUtils;
+
+
+public class VarLengthStringDictionaryTest {
+  private static final String AVRO_DATA = "data/test_sample_data.avro";
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "VarLengthStringDictionaryTest");
+
+  private File _fixedWidthSegmentDir;
+  private File _varLengthSegmentDir;
+  private String[] _stringColumns;
+
+  @BeforeClass
+  public void setup() throws Exception {
+    FileUtils.deleteQuietly(INDEX_DIR);
+    INDEX_DIR.mkdirs();
+    _fixedWidthSegmentDir = buildSegment(new File(INDEX_DIR, "fixed"), null);
+    SegmentMetadataImpl segmentMetadata = new SegmentMetadataImpl(_fixedWidthSegmentDir);
+    _stringColumns = getStringColumns(segmentMetadata);
+    Assert.assertTrue(_stringColumns.length > 0);
+    _varLengthSegmentDir = buildSegment(new File(INDEX_DIR, "varLength"), _stringColumns);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  private static String[] getStringColumns(SegmentMetadataImpl segmentMetadata) {
+    int numStringColumns = 0;
+    String[] columns = new String[segmentMetadata.getColumnMetadataMap().size()];
+    for (String column : segmentMetadata.getColumnMetadataMap().keySet()) {
+      if (segmentMetadata.getColumnMetadataFor(column).getDataType() == DataType.STRING) {
+        columns[numStringColumns++] = column;
+      }
+    }
+    return Arrays.copyOf(columns, numStringColumns);
+  }
+
+  private static File buildSegment(File outputDir, String[] varLengthDictionaryColumns) throws Exception {
+    final String filePath =
+        TestUtils.getFileFromResourceUrl(VarLengthStringDictionaryTest.class.getClassLoader().getResource(AVRO_DATA));
+    final SegmentGeneratorConfig config =
+        SegmentTestUtils.getSegmentGenSpecWithSchemAndProjectedColumns(new File(filePath), outputDir, "time_day",
+            TimeUnit.DAYS, "test");
+    if (varLengthDictionaryColumns != null) {
+      config.setVarLengthDictionaryColumns(Arrays.asList(varLengthDictionaryColumns));
+    }
+    final SegmentIndexCreationDriver driver = SegmentCreationDriverFactory.get(null);
+    driver.init(config);
+    driver.build();
+    return new File(outputDir, driver.getSegmentName());
+  }
+
+  @Test
+  public void testLookups() throws Exception {
+    // Multi-byte values, including a supplementary character which sorts before U+E000 in the String order
+    String[] values = { "", "a", "ab", "abc", "b", "http://www.linkedin.com/some/much/longer/value?with=parameters",
+        "été", "中文", "😀", "", "�", "z" };
+    Arrays.sort(values);
+    File dictionaryFile = new File(INDEX_DIR, "test.dict");
+    VarLengthStringDictionary.write(dictionaryFile, values);
+
+    ColumnMetadata columnMetadata =
+        new ColumnMetadata("test", values.length, 1, DataType.STRING, 4, 0, FieldType.DIMENSION, false, false, true,
+            0, false, true, TimeUnit.DAYS, 0, null, null, false, true);
+    for (ReadMode readMode : ReadMode.values()) {
+      VarLengthStringDictionary dictionary = new VarLengthStringDictionary(dictionaryFile, columnMetadata, readMode);
+      Assert.assertEquals(dictionary.length(), values.length);
+      for (int i = 0; i < values.length; i++) {
+        Assert.assertEquals(dictionary.indexOf(values[i]), i);
+        Assert.assertEquals(dictionary.get(i), values[i]);
+        // Cached value
+        Assert.assertSame(dictionary.getStringValue(i), dictionary.getStringValue(i));
+      }
+      for (String missingValue : new String[] { "0", "aa", "abcd", "c", "中", "😁", "￿" }) {
+        Assert.assertEquals(dictionary.indexOf(missingValue), Arrays.binarySearch(values, missingValue), missingValue);
+      }
+      Assert.assertEquals(dictionary.get(-1), Dictionary.DEFAULT_NULL_STRING_VALUE);
+      dictionary.close();
+    }
+  }
+
+  @Test
+  public void testBoundedCache() throws Exception {
+    // More values than the cache holds, the dictionary ids sharing a cache slot evict each other
+    String[] values = new String[10000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = String.format("value%05d", i);
+    }
+    File dictionaryFile = new File(INDEX_DIR, "bounded.dict");
+    VarLengthStringDictionary.write(dictionaryFile, values);
+
+    ColumnMetadata columnMetadata =
+        new ColumnMetadata("bounded", values.length, 1, DataType.STRING, 4, 0, FieldType.DIMENSION, false, false, true,
+            0, false, true, TimeUnit.DAYS, 0, null, null, false, true);
+    for (ReadMode readMode : ReadMode.values()) {
+      VarLengthStringDictionary dictionary = new VarLengthStringDictionary(dictionaryFile, columnMetadata, readMode);
+      for (int pass = 0; pass < 2; pass++) {
+        for (int i = 0; i < values.length; i++) {
+          Assert.assertEquals(dictionary.getStringValue(i), values[i]);
+        }
+      }
+      for (int i = values.length - 1; i >= 0; i -= 7) {
+        Assert.assertEquals(dictionary.getStringValue(i), values[i]);
+        Assert.assertEquals(dictionary.indexOf(values[i]), i);
+      }
+      dictionary.close();
+    }
+  }
+
+  @Test
+  public void testSegment() throws Exception {
+    IndexSegmentImpl fixedWidthSegment =
+        (IndexSegmentImpl) ColumnarSegmentLoader.load(_fixedWidthSegmentDir, ReadMode.heap);
+    for (ReadMode readMode : ReadMode.values()) {
+      IndexSegmentImpl varLengthSegment = (IndexSegmentImpl) ColumnarSegmentLoader.load(_varLengthSegmentDir, readMode);
+      SegmentMetadataImpl segmentMetadata = (SegmentMetadataImpl) varLengthSegment.getSegmentMetadata();
+      for (String column : _stringColumns) {
+        Assert.assertTrue(segmentMetadata.getColumnMetadataFor(column).hasVarLengthDictionary());
+        ImmutableDictionaryReader fixedWidthDictionary = fixedWidthSegment.getDictionaryFor(column);
+        ImmutableDictionaryReader varLengthDictionary = varLengthSegment.getDictionaryFor(column);
+        Assert.assertTrue(fixedWidthDictionary instanceof StringDictionary);
+        Assert.assertTrue(varLengthDictionary instanceof VarLengthStringDictionary);
+        Assert.assertEquals(varLengthDictionary.length(), fixedWidthDictionary.length());
+        Assert.assertTrue(new File(_varLengthSegmentDir, column + V1Constants.Dict.FILE_EXTENTION).length() <= new File(
+            _fixedWidthSegmentDir, column + V1Constants.Dict.FILE_EXTENTION).length() + 4 * (varLengthDictionary
+            .length() + 1));
+
+        for (int i = 0; i < varLengthDictionary.length(); i++) {
+          String value = varLengthDictionary.getStringValue(i);
+          Assert.assertEquals(varLengthDictionary.indexOf(value), i);
+          if (i > 0) {
+            Assert.assertTrue(varLengthDictionary.getStringValue(i - 1).compareTo(value) < 0);
+          }
+        }
+
+        BlockSingleValIterator fixedWidthIterator =
+            (BlockSingleValIterator) fixedWidthSegment.getDataSource(column).nextBlock().getBlockValueSet().iterator();
+        BlockSingleValIterator varLengthIterator =
+            (BlockSingleValIterator) varLengthSegment.getDataSource(column).nextBlock().getBlockValueSet().iterator();
+        while (fixedWidthIterator.hasNext()) {
+          Assert.assertEquals(varLengthDictionary.get(varLengthIterator.nextIntVal()),
+              fixedWidthDictionary.get(fixedWidthIterator.nextIntVal()), column);
+        }
+      }
+      varLengthSegment.destroy();
+    }
+    fixedWidthSegment.destroy();
+  }
+}
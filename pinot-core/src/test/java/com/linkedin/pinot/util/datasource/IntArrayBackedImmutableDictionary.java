@@ -64,4 +64,11 @@ public class IntArrayBackedImmutableDictionary extends ImmutableDictionaryReader
   public double getDoubleValue(int dictionaryId) {
     return dictionary[dictionaryId];
   }
+
+  @Override
+  public void readDoubleValues(int[] dictionaryIds, int startPos, int limit, double[] outValues, int outStartPos) {
+    for (int i = startPos; i < startPos + limit; i++) {
+      outValues[outStartPos++] = dictionary[dictionaryIds[i]];
+    }
+  }
 }
@@ -115,6 +115,14 @@ public class SingleValueBlock implements Block {
       public DataType getValueType() {
         return DataType.INT;
       }
+
+      @Override
+      public void getDictionaryIds(int[] inDocIds, int inStartPos, int inDocIdsSize, int[] outDictionaryIds,
+          int outStartPos) {
+        for (int i = inStartPos; i < inStartPos + inDocIdsSize; i++) {
+          outDictionaryIds[outStartPos++] = values[inDocIds[i]];
+        }
+      }
     };
   }
 
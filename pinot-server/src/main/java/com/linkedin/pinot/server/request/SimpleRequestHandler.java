@@ -17,30 +17,31 @@ package com.linkedin.pinot.server.request;
 
 import io.netty.buffer.ByteBuf;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import org.apache.thrift.protocol.TCompactProtocol;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.linkedin.pinot.common.exception.QueryException;
 import com.linkedin.pinot.common.metrics.ServerMeter;
 import com.linkedin.pinot.common.metrics.ServerMetrics;
 import com.linkedin.pinot.common.metrics.ServerQueryPhase;
-import com.linkedin.pinot.common.query.QueryExecutor;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.request.InstanceRequest;
 import com.linkedin.pinot.common.response.ProcessingException;
 import com.linkedin.pinot.common.utils.DataTable;
-import com.linkedin.pinot.common.utils.DataTableBuilder;
 import com.linkedin.pinot.serde.SerDe;
+import com.linkedin.pinot.server.request.scheduler.QueryScheduler;
 import com.linkedin.pinot.transport.netty.NettyServer.RequestHandler;
 
 
 /**
  * A simple implementation of RequestHandler.
  *
+ * The request is deserialized on the netty thread and then handed off to the query scheduler,
+ * so the netty thread is free to serve other connections while the query executes.
  *
  */
 public class SimpleRequestHandler implements RequestHandler {
@@ -49,49 +50,49 @@ public class SimpleRequestHandler implements RequestHandler {
 
   private ServerMetrics _serverMetrics;
 
-  QueryExecutor _queryExecutor = null;
+  QueryScheduler _queryScheduler = null;
 
-  public SimpleRequestHandler(QueryExecutor queryExecutor, ServerMetrics serverMetrics) {
-    _queryExecutor = queryExecutor;
+  public SimpleRequestHandler(QueryScheduler queryScheduler, ServerMetrics serverMetrics) {
+    _queryScheduler = queryScheduler;
     _serverMetrics = serverMetrics;
   }
 
   @Override
-  public byte[] processRequest(ByteBuf request) {
-    long queryStartTime = System.nanoTime();
+  public ListenableFuture<byte[]> processRequest(ByteBuf request) {
+    final long queryStartTime = System.nanoTime();
     _serverMetrics.addMeteredValue(null, ServerMeter.QUERIES, 1);
 
     LOGGER.debug("processing request : {}", request);
 
-    DataTable instanceResponse = null;
-
     byte[] byteArray = new byte[request.readableBytes()];
     request.readBytes(byteArray);
     SerDe serDe = new SerDe(new TCompactProtocol.Factory());
-    BrokerRequest brokerRequest = null;
+    final InstanceRequest queryRequest = new InstanceRequest();
+    ListenableFuture<DataTable> queryResponse;
     try {
-      final InstanceRequest queryRequest = new InstanceRequest();
       serDe.deserialize(queryRequest, byteArray);
-      long deserRequestTime = System.nanoTime();
-      _serverMetrics.addPhaseTiming(brokerRequest, ServerQueryPhase.TOTAL_QUERY_TIME, deserRequestTime - queryStartTime);
       LOGGER.info("instance request : {}", queryRequest);
-      brokerRequest = queryRequest.getQuery();
-
-      long startTime = System.nanoTime();
-      instanceResponse = _queryExecutor.processQuery(queryRequest);
-      long totalNanos = System.nanoTime() - startTime;
-      _serverMetrics.addPhaseTiming(brokerRequest, ServerQueryPhase.QUERY_PROCESSING, totalNanos);
+      queryResponse = _queryScheduler.submit(queryRequest);
     } catch (Exception e) {
       LOGGER.error("Got exception while processing request. Returning error response", e);
       _serverMetrics.addMeteredValue(null, ServerMeter.UNCAUGHT_EXCEPTIONS, 1);
-      DataTableBuilder dataTableBuilder = new DataTableBuilder(null);
-      List<ProcessingException> exceptions = new ArrayList<ProcessingException>();
+      DataTable instanceResponse = new DataTable();
       ProcessingException exception = QueryException.INTERNAL_ERROR.deepCopy();
       exception.setMessage(e.getMessage());
-      exceptions.add(exception);
-      instanceResponse = dataTableBuilder.buildExceptions();
+      instanceResponse.addException(exception);
+      queryResponse = Futures.immediateFuture(instanceResponse);
     }
 
+    final BrokerRequest brokerRequest = queryRequest.getQuery();
+    return Futures.transform(queryResponse, new Function<DataTable, byte[]>() {
+      @Override
+      public byte[] apply(DataTable instanceResponse) {
+        return serializeDataTable(brokerRequest, instanceResponse, queryStartTime);
+      }
+    });
+  }
+
+  private byte[] serializeDataTable(BrokerRequest brokerRequest, DataTable instanceResponse, long queryStartTime) {
     byte[] responseByte;
     long serializationStartTime = System.nanoTime();
     try {
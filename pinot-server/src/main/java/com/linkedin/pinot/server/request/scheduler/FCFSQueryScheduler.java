@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.server.request.scheduler;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.query.QueryExecutor;
+import com.linkedin.pinot.common.request.InstanceRequest;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.common.utils.NamedThreadFactory;
+
+
+/**
+ * First come first served scheduler. Queries are executed in arrival order by a fixed
+ * size thread pool, and are rejected once the bounded wait queue is full.
+ */
+public class FCFSQueryScheduler extends QueryScheduler {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FCFSQueryScheduler.class);
+
+  private final ListeningExecutorService _executorService;
+
+  public FCFSQueryScheduler(Configuration schedulerConfig, QueryExecutor queryExecutor, ServerMetrics serverMetrics) {
+    super(schedulerConfig, queryExecutor, serverMetrics);
+    ThreadPoolExecutor threadPoolExecutor =
+        new ThreadPoolExecutor(_numThreads, _numThreads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(_maxPendingQueries), new NamedThreadFactory("pinot-query-scheduler"),
+            new ThreadPoolExecutor.AbortPolicy());
+    _executorService = MoreExecutors.listeningDecorator(threadPoolExecutor);
+    LOGGER.info("Initialized FCFS query scheduler with {} threads and {} max pending queries", _numThreads,
+        _maxPendingQueries);
+  }
+
+  @Override
+  public ListenableFuture<DataTable> submit(InstanceRequest instanceRequest) {
+    try {
+      return _executorService.submit(createQueryCallable(instanceRequest));
+    } catch (RejectedExecutionException e) {
+      if (_executorService.isShutdown()) {
+        return rejectQuery(instanceRequest, QueryException.SERVER_SCHEDULER_DOWN_ERROR);
+      }
+      return rejectQuery(instanceRequest, QueryException.SERVER_OUT_OF_CAPACITY_ERROR);
+    }
+  }
+
+  @Override
+  public void shutDown() {
+    LOGGER.info("Shutting down FCFS query scheduler");
+    _executorService.shutdown();
+  }
+}
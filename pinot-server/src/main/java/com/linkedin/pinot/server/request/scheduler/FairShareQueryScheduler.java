@@ -0,0 +1,226 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.server.request.scheduler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.query.QueryExecutor;
+import com.linkedin.pinot.common.request.InstanceRequest;
+import com.linkedin.pinot.common.response.ProcessingException;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.common.utils.NamedThreadFactory;
+
+
+/**
+ * Scheduler sharing the query threads fairly between tables. Each table has its own bounded
+ * queue, and whenever a thread becomes free it picks the oldest query of the next table in a
+ * round robin order. Hence a table flooding the server with expensive queries only delays its
+ * own queries instead of every query on the server.
+ *
+ * The number of threads a single table can occupy at once can additionally be capped.
+ */
+public class FairShareQueryScheduler extends QueryScheduler {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FairShareQueryScheduler.class);
+
+  // Maximum number of queries of a single table waiting for a thread
+  public static final String MAX_PENDING_QUERIES_PER_TABLE = "table.queue.size";
+  // Maximum number of threads concurrently executing queries of a single table
+  public static final String MAX_THREADS_PER_TABLE = "table.threads";
+
+  private final int _maxPendingQueriesPerTable;
+  private final int _maxThreadsPerTable;
+
+  private final ReentrantLock _lock = new ReentrantLock();
+  private final Condition _queryAvailable = _lock.newCondition();
+  private final Map<String, TableQueue> _tableQueues = new HashMap<String, TableQueue>();
+  private final List<TableQueue> _tableRotation = new ArrayList<TableQueue>();
+  private int _nextTableIndex = 0;
+  private int _numPendingQueries = 0;
+  private boolean _isRunning = true;
+
+  private final ExecutorService _workers;
+
+  public FairShareQueryScheduler(Configuration schedulerConfig, QueryExecutor queryExecutor,
+      ServerMetrics serverMetrics) {
+    super(schedulerConfig, queryExecutor, serverMetrics);
+    _maxPendingQueriesPerTable =
+        Math.max(1, schedulerConfig.getInt(MAX_PENDING_QUERIES_PER_TABLE, _maxPendingQueries));
+    _maxThreadsPerTable = Math.max(1, Math.min(_numThreads, schedulerConfig.getInt(MAX_THREADS_PER_TABLE, _numThreads)));
+
+    _workers = Executors.newFixedThreadPool(_numThreads, new NamedThreadFactory("pinot-query-scheduler"));
+    for (int i = 0; i < _numThreads; i++) {
+      _workers.submit(new Worker());
+    }
+    LOGGER.info("Initialized fair share query scheduler with {} threads, {} max pending queries, "
+        + "{} max pending queries per table and {} max threads per table", _numThreads, _maxPendingQueries,
+        _maxPendingQueriesPerTable, _maxThreadsPerTable);
+  }
+
+  @Override
+  public ListenableFuture<DataTable> submit(InstanceRequest instanceRequest) {
+    String tableName = instanceRequest.getQuery().getQuerySource().getTableName();
+    ListenableFutureTask<DataTable> queryTask = ListenableFutureTask.create(createQueryCallable(instanceRequest));
+
+    ProcessingException rejection = null;
+    _lock.lock();
+    try {
+      if (!_isRunning) {
+        rejection = QueryException.SERVER_SCHEDULER_DOWN_ERROR;
+      } else if (_numPendingQueries >= _maxPendingQueries) {
+        rejection = QueryException.SERVER_OUT_OF_CAPACITY_ERROR;
+      } else {
+        TableQueue tableQueue = _tableQueues.get(tableName);
+        if (tableQueue == null) {
+          tableQueue = new TableQueue(tableName);
+          _tableQueues.put(tableName, tableQueue);
+          _tableRotation.add(tableQueue);
+        }
+        if (tableQueue._pendingQueries.size() >= _maxPendingQueriesPerTable) {
+          rejection = QueryException.SERVER_OUT_OF_CAPACITY_ERROR;
+        } else {
+          tableQueue._pendingQueries.add(queryTask);
+          _numPendingQueries++;
+          _queryAvailable.signal();
+        }
+      }
+    } finally {
+      _lock.unlock();
+    }
+
+    if (rejection != null) {
+      return rejectQuery(instanceRequest, rejection);
+    }
+    return queryTask;
+  }
+
+  @Override
+  public void shutDown() {
+    LOGGER.info("Shutting down fair share query scheduler");
+    _lock.lock();
+    try {
+      _isRunning = false;
+      _queryAvailable.signalAll();
+    } finally {
+      _lock.unlock();
+    }
+    _workers.shutdown();
+  }
+
+  /**
+   * Picks the next table in round robin order which has a pending query and is below its thread cap.
+   * Must be called with the lock held.
+   */
+  private TableQueue nextRunnableTable() {
+    int numTables = _tableRotation.size();
+    for (int i = 0; i < numTables; i++) {
+      int index = (_nextTableIndex + i) % numTables;
+      TableQueue tableQueue = _tableRotation.get(index);
+      if (!tableQueue._pendingQueries.isEmpty() && tableQueue._numRunningQueries < _maxThreadsPerTable) {
+        _nextTableIndex = (index + 1) % numTables;
+        return tableQueue;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Drops the queue of a table which has neither pending nor running queries.
+   * Must be called with the lock held.
+   */
+  private void removeIfIdle(TableQueue tableQueue) {
+    if (tableQueue._numRunningQueries > 0 || !tableQueue._pendingQueries.isEmpty()) {
+      return;
+    }
+    _tableQueues.remove(tableQueue._tableName);
+    int index = _tableRotation.indexOf(tableQueue);
+    _tableRotation.remove(index);
+    if (index < _nextTableIndex) {
+      _nextTableIndex--;
+    }
+    if (_nextTableIndex >= _tableRotation.size()) {
+      _nextTableIndex = 0;
+    }
+  }
+
+  private class Worker implements Runnable {
+    @Override
+    public void run() {
+      while (true) {
+        TableQueue tableQueue;
+        ListenableFutureTask<DataTable> queryTask;
+        _lock.lock();
+        try {
+          while ((tableQueue = nextRunnableTable()) == null) {
+            if (!_isRunning && _numPendingQueries == 0) {
+              return;
+            }
+            _queryAvailable.await();
+          }
+          queryTask = tableQueue._pendingQueries.poll();
+          tableQueue._numRunningQueries++;
+          _numPendingQueries--;
+        } catch (InterruptedException e) {
+          LOGGER.warn("Query scheduler worker interrupted, exiting", e);
+          Thread.currentThread().interrupt();
+          return;
+        } finally {
+          _lock.unlock();
+        }
+
+        try {
+          queryTask.run();
+        } finally {
+          _lock.lock();
+          try {
+            tableQueue._numRunningQueries--;
+            removeIfIdle(tableQueue);
+            // A slot for this table just freed up, wake up everyone since the waiting query may belong to any table
+            _queryAvailable.signalAll();
+          } finally {
+            _lock.unlock();
+          }
+        }
+      }
+    }
+  }
+
+  private static class TableQueue {
+    private final String _tableName;
+    private final ArrayDeque<ListenableFutureTask<DataTable>> _pendingQueries =
+        new ArrayDeque<ListenableFutureTask<DataTable>>();
+    private int _numRunningQueries = 0;
+
+    private TableQueue(String tableName) {
+      _tableName = tableName;
+    }
+  }
+}
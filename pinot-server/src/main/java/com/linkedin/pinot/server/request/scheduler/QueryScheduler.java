@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.server.request.scheduler;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.metrics.ServerMeter;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.metrics.ServerQueryPhase;
+import com.linkedin.pinot.common.query.QueryExecutor;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.InstanceRequest;
+import com.linkedin.pinot.common.response.ProcessingException;
+import com.linkedin.pinot.common.utils.DataTable;
+
+
+/**
+ * Abstract class providing the common scaffolding for query schedulers. A query scheduler
+ * decides when and on which thread an incoming instance request is executed, so that query
+ * processing never runs on the netty event loop threads.
+ *
+ * Implementations are expected to bound the number of queued queries and reject new
+ * queries with an error response instead of queueing them indefinitely. Queries which waited
+ * longer than the queue timeout for a thread are answered with an error response without
+ * being executed, since the broker has most likely given up on them already.
+ */
+public abstract class QueryScheduler {
+  private static final Logger LOGGER = LoggerFactory.getLogger(QueryScheduler.class);
+
+  // Number of threads executing queries
+  public static final String NUM_THREADS = "threads";
+  // Maximum number of queries waiting for a thread
+  public static final String MAX_PENDING_QUERIES = "queue.size";
+  // Maximum time in milliseconds a query can wait for a thread
+  public static final String QUEUE_TIMEOUT_MS = "queue.timeout.ms";
+
+  public static final int DEFAULT_NUM_THREADS = Runtime.getRuntime().availableProcessors();
+  public static final int DEFAULT_MAX_PENDING_QUERIES = 1000;
+  public static final long DEFAULT_QUEUE_TIMEOUT_MS = 10000L;
+
+  protected final QueryExecutor _queryExecutor;
+  protected final ServerMetrics _serverMetrics;
+  protected final int _numThreads;
+  protected final int _maxPendingQueries;
+  protected final long _queueTimeoutNs;
+
+  public QueryScheduler(Configuration schedulerConfig, QueryExecutor queryExecutor, ServerMetrics serverMetrics) {
+    _queryExecutor = queryExecutor;
+    _serverMetrics = serverMetrics;
+    _numThreads = Math.max(1, schedulerConfig.getInt(NUM_THREADS, DEFAULT_NUM_THREADS));
+    _maxPendingQueries = Math.max(1, schedulerConfig.getInt(MAX_PENDING_QUERIES, DEFAULT_MAX_PENDING_QUERIES));
+    _queueTimeoutNs =
+        TimeUnit.MILLISECONDS.toNanos(Math.max(1L, schedulerConfig.getLong(QUEUE_TIMEOUT_MS, DEFAULT_QUEUE_TIMEOUT_MS)));
+  }
+
+  /**
+   * Schedules the execution of the given request.
+   *
+   * The returned future is completed with the query response (which may be null if no segment
+   * matched the request), or with an error response if the query was rejected by the scheduler.
+   *
+   * @param instanceRequest Deserialized request to execute
+   * @return Future for the query response
+   */
+  public abstract ListenableFuture<DataTable> submit(InstanceRequest instanceRequest);
+
+  /**
+   * Stops accepting new queries and releases the scheduler threads. Queries already
+   * scheduled are allowed to complete.
+   */
+  public abstract void shutDown();
+
+  public QueryExecutor getQueryExecutor() {
+    return _queryExecutor;
+  }
+
+  /**
+   * Wraps the query execution into a callable which also records the time spent waiting for a thread, and answers
+   * with an error response instead of executing the query if it waited longer than the queue timeout.
+   */
+  protected Callable<DataTable> createQueryCallable(final InstanceRequest instanceRequest) {
+    final long enqueueTime = System.nanoTime();
+    return new Callable<DataTable>() {
+      @Override
+      public DataTable call() throws Exception {
+        BrokerRequest brokerRequest = instanceRequest.getQuery();
+        long startTime = System.nanoTime();
+        _serverMetrics.addPhaseTiming(brokerRequest, ServerQueryPhase.SCHEDULER_WAIT, startTime - enqueueTime);
+        if (startTime - enqueueTime > _queueTimeoutNs) {
+          return createRejectionResponse(instanceRequest, QueryException.SERVER_SCHEDULER_TIMEOUT_ERROR);
+        }
+        DataTable instanceResponse = _queryExecutor.processQuery(instanceRequest);
+        _serverMetrics.addPhaseTiming(brokerRequest, ServerQueryPhase.QUERY_PROCESSING, System.nanoTime() - startTime);
+        return instanceResponse;
+      }
+    };
+  }
+
+  /**
+   * Builds an already completed future holding an error response for a query that the scheduler refused to run.
+   */
+  protected ListenableFuture<DataTable> rejectQuery(InstanceRequest instanceRequest, ProcessingException error) {
+    return Futures.immediateFuture(createRejectionResponse(instanceRequest, error));
+  }
+
+  private DataTable createRejectionResponse(InstanceRequest instanceRequest, ProcessingException error) {
+    LOGGER.warn("Rejecting request id {} : {}", instanceRequest.getRequestId(), error.getMessage());
+    _serverMetrics.addMeteredValue(instanceRequest.getQuery(), ServerMeter.SCHEDULER_REJECTED_QUERIES, 1);
+    DataTable instanceResponse = new DataTable();
+    instanceResponse.addException(error.deepCopy());
+    instanceResponse.getMetadata().put("requestId", Long.toString(instanceRequest.getRequestId()));
+    return instanceResponse;
+  }
+}
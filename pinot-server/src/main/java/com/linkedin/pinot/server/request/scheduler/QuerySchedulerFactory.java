@@ -0,0 +1,47 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.server.request.scheduler;
+
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.query.QueryExecutor;
+
+
+/**
+ * Builds the query scheduler configured under pinot.server.query.scheduler.
+ */
+public class QuerySchedulerFactory {
+  private static final Logger LOGGER = LoggerFactory.getLogger(QuerySchedulerFactory.class);
+
+  public static final String SCHEDULER_NAME = "name";
+  public static final String FCFS_SCHEDULER = "fcfs";
+  public static final String FAIR_SHARE_SCHEDULER = "fairshare";
+
+  public static QueryScheduler create(Configuration schedulerConfig, QueryExecutor queryExecutor,
+      ServerMetrics serverMetrics) {
+    String schedulerName = schedulerConfig.getString(SCHEDULER_NAME, FCFS_SCHEDULER);
+    if (FAIR_SHARE_SCHEDULER.equalsIgnoreCase(schedulerName)) {
+      return new FairShareQueryScheduler(schedulerConfig, queryExecutor, serverMetrics);
+    }
+    if (!FCFS_SCHEDULER.equalsIgnoreCase(schedulerName)) {
+      LOGGER.warn("Unknown query scheduler {}, falling back to {}", schedulerName, FCFS_SCHEDULER);
+    }
+    return new FCFSQueryScheduler(schedulerConfig, queryExecutor, serverMetrics);
+  }
+}
@@ -28,6 +28,7 @@ import org.slf4j.LoggerFactory;
 
 import com.linkedin.pinot.common.data.DataManager;
 import com.linkedin.pinot.common.query.QueryExecutor;
+import com.linkedin.pinot.server.request.scheduler.QueryScheduler;
 import com.linkedin.pinot.transport.netty.NettyServer;
 import com.linkedin.pinot.transport.netty.NettyServer.RequestHandlerFactory;
 import com.linkedin.pinot.transport.netty.NettyTCPServer;
@@ -90,8 +91,11 @@ public class FileBasedServer {
     LOGGER.info("Trying to build QueryExecutor");
     final QueryExecutor queryExecutor = serverBuilder.buildQueryExecutor(instanceDataManager);
 
+    LOGGER.info("Trying to build QueryScheduler");
+    final QueryScheduler queryScheduler = serverBuilder.buildQueryScheduler(queryExecutor);
+
     LOGGER.info("Trying to build RequestHandlerFactory");
-    RequestHandlerFactory simpleRequestHandlerFactory = serverBuilder.buildRequestHandlerFactory(queryExecutor);
+    RequestHandlerFactory simpleRequestHandlerFactory = serverBuilder.buildRequestHandlerFactory(queryScheduler);
     LOGGER.info("Trying to build NettyServer");
 
     NettyServer nettyServer = new NettyTCPServer(_serverPort, simpleRequestHandlerFactory, null);
@@ -31,6 +31,8 @@ import com.linkedin.pinot.common.query.QueryExecutor;
 import com.linkedin.pinot.server.conf.NettyServerConfig;
 import com.linkedin.pinot.server.conf.ServerConf;
 import com.linkedin.pinot.server.request.SimpleRequestHandlerFactory;
+import com.linkedin.pinot.server.request.scheduler.QueryScheduler;
+import com.linkedin.pinot.server.request.scheduler.QuerySchedulerFactory;
 import com.linkedin.pinot.transport.netty.NettyServer;
 import com.linkedin.pinot.transport.netty.NettyServer.RequestHandlerFactory;
 import com.linkedin.pinot.transport.netty.NettyTCPServer;
@@ -155,18 +157,27 @@ public class ServerBuilder {
   }
 
   /**
-   * Build RequestHandlerFactory
+   * Build QueryScheduler
    * @param queryExecutor
    * @return
+   */
+  public QueryScheduler buildQueryScheduler(QueryExecutor queryExecutor) {
+    return QuerySchedulerFactory.create(_serverConf.getQuerySchedulerConfig(), queryExecutor, _serverMetrics);
+  }
+
+  /**
+   * Build RequestHandlerFactory
+   * @param queryScheduler
+   * @return
    * @throws InstantiationException
    * @throws IllegalAccessException
    * @throws ClassNotFoundException
    */
-  public RequestHandlerFactory buildRequestHandlerFactory(QueryExecutor queryExecutor) throws InstantiationException,
+  public RequestHandlerFactory buildRequestHandlerFactory(QueryScheduler queryScheduler) throws InstantiationException,
       IllegalAccessException, ClassNotFoundException {
     String className = _serverConf.getRequestHandlerFactoryClassName();
     LOGGER.info("Trying to Load Request Handler Factory by Class : " + className);
-    RequestHandlerFactory requestHandlerFactory = new SimpleRequestHandlerFactory(queryExecutor, _serverMetrics);
+    RequestHandlerFactory requestHandlerFactory = new SimpleRequestHandlerFactory(queryScheduler, _serverMetrics);
     return requestHandlerFactory;
   }
 
@@ -0,0 +1,179 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.server.request.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.linkedin.pinot.common.data.DataManager;
+import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.query.QueryExecutor;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.InstanceRequest;
+import com.linkedin.pinot.common.request.QuerySource;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.yammer.metrics.core.MetricsRegistry;
+
+
+public class QuerySchedulerTest {
+
+  @Test
+  public void testFCFSRejectsWhenSaturated() throws Exception {
+    Configuration config = new PropertiesConfiguration();
+    config.setProperty(QueryScheduler.NUM_THREADS, 1);
+    config.setProperty(QueryScheduler.MAX_PENDING_QUERIES, 1);
+    BlockingQueryExecutor queryExecutor = new BlockingQueryExecutor();
+    QueryScheduler scheduler =
+        new FCFSQueryScheduler(config, queryExecutor, new ServerMetrics(new MetricsRegistry()));
+
+    ListenableFuture<DataTable> running = scheduler.submit(createRequest(1, "table"));
+    Assert.assertTrue(queryExecutor._started.await(10, TimeUnit.SECONDS));
+    ListenableFuture<DataTable> queued = scheduler.submit(createRequest(2, "table"));
+    ListenableFuture<DataTable> rejected = scheduler.submit(createRequest(3, "table"));
+
+    Assert.assertTrue(rejected.isDone());
+    assertRejected(rejected.get(), QueryException.SERVER_OUT_OF_CAPACITY_ERROR.getErrorCode());
+
+    queryExecutor._release.countDown();
+    Assert.assertEquals(running.get(10, TimeUnit.SECONDS).getMetadata().get("requestId"), "1");
+    Assert.assertEquals(queued.get(10, TimeUnit.SECONDS).getMetadata().get("requestId"), "2");
+
+    scheduler.shutDown();
+    assertRejected(scheduler.submit(createRequest(4, "table")).get(),
+        QueryException.SERVER_SCHEDULER_DOWN_ERROR.getErrorCode());
+  }
+
+  @Test
+  public void testQueueTimeout() throws Exception {
+    Configuration config = new PropertiesConfiguration();
+    config.setProperty(QueryScheduler.NUM_THREADS, 1);
+    config.setProperty(QueryScheduler.QUEUE_TIMEOUT_MS, 50);
+    BlockingQueryExecutor queryExecutor = new BlockingQueryExecutor();
+    QueryScheduler scheduler =
+        new FCFSQueryScheduler(config, queryExecutor, new ServerMetrics(new MetricsRegistry()));
+
+    ListenableFuture<DataTable> running = scheduler.submit(createRequest(1, "table"));
+    Assert.assertTrue(queryExecutor._started.await(10, TimeUnit.SECONDS));
+    ListenableFuture<DataTable> queued = scheduler.submit(createRequest(2, "table"));
+    Thread.sleep(100);
+    queryExecutor._release.countDown();
+
+    Assert.assertEquals(running.get(10, TimeUnit.SECONDS).getMetadata().get("requestId"), "1");
+    assertRejected(queued.get(10, TimeUnit.SECONDS), QueryException.SERVER_SCHEDULER_TIMEOUT_ERROR.getErrorCode());
+    Assert.assertEquals(queryExecutor._executionOrder.size(), 1);
+    scheduler.shutDown();
+  }
+
+  @Test
+  public void testFairShareRoundRobinAcrossTables() throws Exception {
+    Configuration config = new PropertiesConfiguration();
+    config.setProperty(QueryScheduler.NUM_THREADS, 1);
+    config.setProperty(FairShareQueryScheduler.MAX_PENDING_QUERIES_PER_TABLE, 3);
+    BlockingQueryExecutor queryExecutor = new BlockingQueryExecutor();
+    QueryScheduler scheduler =
+        new FairShareQueryScheduler(config, queryExecutor, new ServerMetrics(new MetricsRegistry()));
+
+    // Occupy the only thread so that the following queries pile up in the table queues
+    List<ListenableFuture<DataTable>> futures = new ArrayList<ListenableFuture<DataTable>>();
+    futures.add(scheduler.submit(createRequest(0, "blocker")));
+    Assert.assertTrue(queryExecutor._started.await(10, TimeUnit.SECONDS));
+
+    futures.add(scheduler.submit(createRequest(1, "heavy")));
+    futures.add(scheduler.submit(createRequest(2, "heavy")));
+    futures.add(scheduler.submit(createRequest(3, "heavy")));
+    ListenableFuture<DataTable> rejected = scheduler.submit(createRequest(4, "heavy"));
+    futures.add(scheduler.submit(createRequest(5, "light")));
+
+    assertRejected(rejected.get(), QueryException.SERVER_OUT_OF_CAPACITY_ERROR.getErrorCode());
+
+    queryExecutor._release.countDown();
+    for (ListenableFuture<DataTable> future : futures) {
+      future.get(10, TimeUnit.SECONDS);
+    }
+    scheduler.shutDown();
+
+    // The light table query must not wait behind all the queued heavy table queries
+    List<Long> executionOrder = queryExecutor._executionOrder;
+    Assert.assertEquals(executionOrder.size(), 5);
+    Assert.assertTrue(executionOrder.indexOf(5L) < executionOrder.indexOf(3L), executionOrder.toString());
+  }
+
+  private static void assertRejected(DataTable response, int errorCode) {
+    Assert.assertTrue(response.getMetadata().containsKey("Exception" + errorCode), response.getMetadata().toString());
+  }
+
+  private static InstanceRequest createRequest(long requestId, String tableName) {
+    BrokerRequest brokerRequest = new BrokerRequest();
+    QuerySource querySource = new QuerySource();
+    querySource.setTableName(tableName);
+    brokerRequest.setQuerySource(querySource);
+    return new InstanceRequest(requestId, brokerRequest);
+  }
+
+  /**
+   * Query executor blocking every query until released, recording the order in which queries ran.
+   */
+  private static class BlockingQueryExecutor implements QueryExecutor {
+    private final CountDownLatch _started = new CountDownLatch(1);
+    private final CountDownLatch _release = new CountDownLatch(1);
+    private final List<Long> _executionOrder = Collections.synchronizedList(new ArrayList<Long>());
+
+    @Override
+    public void init(Configuration queryExecutorConfig, DataManager dataManager, ServerMetrics serverMetrics) {
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public DataTable processQuery(InstanceRequest instanceRequest) {
+      _executionOrder.add(instanceRequest.getRequestId());
+      _started.countDown();
+      try {
+        _release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      DataTable dataTable = new DataTable();
+      dataTable.getMetadata().put("requestId", Long.toString(instanceRequest.getRequestId()));
+      return dataTable;
+    }
+
+    @Override
+    public void shutDown() {
+    }
+
+    @Override
+    public boolean isStarted() {
+      return true;
+    }
+
+    @Override
+    public void updateResourceTimeOutInMs(String resource, long timeOutMs) {
+    }
+  }
+}
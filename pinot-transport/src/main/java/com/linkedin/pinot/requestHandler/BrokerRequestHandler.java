@@ -18,6 +18,7 @@ package com.linkedin.pinot.requestHandler;
 import io.netty.buffer.ByteBuf;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -79,20 +80,44 @@ public class BrokerRequestHandler {
   private final BrokerMetrics _brokerMetrics;
   private final TimeBoundaryService _timeBoundaryService;
   private final long _brokerTimeOut;
+  private final int _numSpeculativeRequests;
 
-  //TODO: Currently only using RoundRobin selection. But, this can be allowed to be configured.
-  private RoundRobinReplicaSelection _replicaSelection;
+  private final ReplicaSelection _replicaSelection;
+  private final BrokerResultCache _resultCache;
 
   public BrokerRequestHandler(RoutingTable table, TimeBoundaryService timeBoundaryService,
       ScatterGather scatterGatherer, ReduceService reduceService, BrokerMetrics brokerMetrics, long brokerTimeOut) {
+    this(table, timeBoundaryService, scatterGatherer, reduceService, brokerMetrics, brokerTimeOut, 0);
+  }
+
+  /**
+   * @param numSpeculativeRequests Maximum number of speculative requests sent to other replicas of a segment-set
+   *                               when its server is slow to respond, 0 to disable speculative requests.
+   */
+  public BrokerRequestHandler(RoutingTable table, TimeBoundaryService timeBoundaryService,
+      ScatterGather scatterGatherer, ReduceService reduceService, BrokerMetrics brokerMetrics, long brokerTimeOut,
+      int numSpeculativeRequests) {
+    this(table, timeBoundaryService, scatterGatherer, reduceService, brokerMetrics, brokerTimeOut,
+        numSpeculativeRequests, new RoundRobinReplicaSelection(), null);
+  }
+
+  /**
+   * @param replicaSelection Policy for selecting the server of a segment-set among its replicas
+   * @param resultCache Cache of the broker responses, null to not cache them
+   */
+  public BrokerRequestHandler(RoutingTable table, TimeBoundaryService timeBoundaryService,
+      ScatterGather scatterGatherer, ReduceService reduceService, BrokerMetrics brokerMetrics, long brokerTimeOut,
+      int numSpeculativeRequests, ReplicaSelection replicaSelection, BrokerResultCache resultCache) {
     _routingTable = table;
     _timeBoundaryService = timeBoundaryService;
     _scatterGatherer = scatterGatherer;
     _requestIdGen = new AtomicLong(0);
-    _replicaSelection = new RoundRobinReplicaSelection();
+    _replicaSelection = replicaSelection;
     _reduceService = reduceService;
     _brokerMetrics = brokerMetrics;
     _brokerTimeOut = brokerTimeOut;
+    _numSpeculativeRequests = numSpeculativeRequests;
+    _resultCache = resultCache;
   }
 
   /**
@@ -111,18 +136,40 @@ public class BrokerRequestHandler {
   //TODO: Define a broker response class and return
   public Object processBrokerRequest(final BrokerRequest request, BucketingSelection overriddenSelection)
       throws InterruptedException {
+    long startTime = System.currentTimeMillis();
     if (request == null || request.getQuerySource() == null || request.getQuerySource().getTableName() == null) {
       LOGGER.info("Query contains null table.");
       return BrokerResponse.getNullBrokerResponse();
     }
     List<String> matchedTables = getMatchedTables(request);
+    if (matchedTables.isEmpty()) {
+      return BrokerResponse.getNullBrokerResponse();
+    }
+
+    BrokerResultCache.CacheKey cacheKey = null;
+    if (_resultCache != null) {
+      cacheKey = _resultCache.getCacheKey(request, matchedTables, _routingTable);
+      if (cacheKey != null) {
+        BrokerResponse cachedResponse = _resultCache.get(cacheKey);
+        if (cachedResponse != null) {
+          cachedResponse.setTimeUsedMs(System.currentTimeMillis() - startTime);
+          _brokerMetrics.addMeteredValue(request, BrokerMeter.RESULT_CACHE_HITS, 1);
+          return cachedResponse;
+        }
+        _brokerMetrics.addMeteredValue(request, BrokerMeter.RESULT_CACHE_MISSES, 1);
+      }
+    }
+
+    Object response;
     if (matchedTables.size() > 1) {
-      return processFederatedBrokerRequest(request, overriddenSelection);
+      response = processFederatedBrokerRequest(request, overriddenSelection);
+    } else {
+      response = processSingleTableBrokerRequest(request, matchedTables.get(0), overriddenSelection);
     }
-    if (matchedTables.size() == 1) {
-      return processSingleTableBrokerRequest(request, matchedTables.get(0), overriddenSelection);
+    if ((cacheKey != null) && (response instanceof BrokerResponse)) {
+      _resultCache.put(cacheKey, (BrokerResponse) response);
     }
-    return BrokerResponse.getNullBrokerResponse();
+    return response;
   }
 
   /**
@@ -234,7 +281,8 @@ public class BrokerRequestHandler {
       throws InterruptedException {
     // Step1
     final long routingStartTime = System.nanoTime();
-    RoutingTableLookupRequest rtRequest = new RoutingTableLookupRequest(request.getQuerySource().getTableName());
+    RoutingTableLookupRequest rtRequest =
+        new RoutingTableLookupRequest(request.getQuerySource().getTableName(), request);
     Map<ServerInstance, SegmentIdSet> segmentServices = _routingTable.findServers(rtRequest);
     if (segmentServices == null || segmentServices.isEmpty()) {
       LOGGER.warn("Not found ServerInstances to Segments Mapping:");
@@ -248,8 +296,8 @@ public class BrokerRequestHandler {
     final long scatterGatherStartTime = System.nanoTime();
     ScatterGatherRequestImpl scatterRequest =
         new ScatterGatherRequestImpl(request, segmentServices, _replicaSelection,
-            ReplicaSelectionGranularity.SEGMENT_ID_SET, request.getBucketHashKey(), 0, //TODO: Speculative Requests not yet supported
-            overriddenSelection, _requestIdGen.incrementAndGet(), _brokerTimeOut);
+            ReplicaSelectionGranularity.SEGMENT_ID_SET, request.getBucketHashKey(), _numSpeculativeRequests,
+            overriddenSelection, _requestIdGen.incrementAndGet(), _brokerTimeOut, _routingTable, rtRequest);
     CompositeFuture<ServerInstance, ByteBuf> response = _scatterGatherer.scatterGather(scatterRequest);
 
     //Step 5 - Deserialize Responses and build instance response map
@@ -324,7 +372,8 @@ public class BrokerRequestHandler {
         new HashMap<BrokerRequest, CompositeFuture<ServerInstance, ByteBuf>>();
     for (BrokerRequest request : requests) {
       final long routingStartTime = System.nanoTime();
-      RoutingTableLookupRequest rtRequest = new RoutingTableLookupRequest(request.getQuerySource().getTableName());
+      RoutingTableLookupRequest rtRequest =
+          new RoutingTableLookupRequest(request.getQuerySource().getTableName(), request);
       Map<ServerInstance, SegmentIdSet> segmentServices = _routingTable.findServers(rtRequest);
       if (segmentServices == null || segmentServices.isEmpty()) {
         LOGGER.info("Not found ServerInstances to Segments Mapping for Table - " + rtRequest.getTableName());
@@ -340,8 +389,8 @@ public class BrokerRequestHandler {
       scatterGatherStartTime = System.nanoTime();
       ScatterGatherRequestImpl scatterRequest =
           new ScatterGatherRequestImpl(request, segmentServices, _replicaSelection,
-              ReplicaSelectionGranularity.SEGMENT_ID_SET, request.getBucketHashKey(), 0, //TODO: Speculative Requests not yet supported
-              overriddenSelection, _requestIdGen.incrementAndGet(), _brokerTimeOut);
+              ReplicaSelectionGranularity.SEGMENT_ID_SET, request.getBucketHashKey(), _numSpeculativeRequests,
+              overriddenSelection, _requestIdGen.incrementAndGet(), _brokerTimeOut, _routingTable, rtRequest);
       responseFuturesList.put(request, _scatterGatherer.scatterGather(scatterRequest));
     }
     _brokerMetrics.addPhaseTiming(federatedBrokerRequest, BrokerQueryPhase.QUERY_ROUTING, queryRoutingTime);
@@ -432,10 +481,23 @@ public class BrokerRequestHandler {
     private final BucketingSelection _bucketingSelection;
     private final long _requestId;
     private final long _requestTimeoutMs;
+    private final RoutingTable _routingTable;
+    private final RoutingTableLookupRequest _routingTableLookupRequest;
 
     public ScatterGatherRequestImpl(BrokerRequest request, Map<ServerInstance, SegmentIdSet> segmentServices,
         ReplicaSelection replicaSelection, ReplicaSelectionGranularity replicaSelectionGranularity, Object hashKey,
         int numSpeculativeRequests, BucketingSelection bucketingSelection, long requestId, long requestTimeoutMs) {
+      this(request, segmentServices, replicaSelection, replicaSelectionGranularity, hashKey, numSpeculativeRequests,
+          bucketingSelection, requestId, requestTimeoutMs, null, null);
+    }
+
+    /**
+     * The routing table is used to look up the replicas of a segment-set when sending speculative requests.
+     */
+    public ScatterGatherRequestImpl(BrokerRequest request, Map<ServerInstance, SegmentIdSet> segmentServices,
+        ReplicaSelection replicaSelection, ReplicaSelectionGranularity replicaSelectionGranularity, Object hashKey,
+        int numSpeculativeRequests, BucketingSelection bucketingSelection, long requestId, long requestTimeoutMs,
+        RoutingTable routingTable, RoutingTableLookupRequest routingTableLookupRequest) {
       _brokerRequest = request;
       _segmentServices = segmentServices;
       _replicaSelection = replicaSelection;
@@ -445,6 +507,8 @@ public class BrokerRequestHandler {
       _bucketingSelection = bucketingSelection;
       _requestId = requestId;
       _requestTimeoutMs = requestTimeoutMs;
+      _routingTable = routingTable;
+      _routingTableLookupRequest = routingTableLookupRequest;
     }
 
     @Override
@@ -485,6 +549,14 @@ public class BrokerRequestHandler {
       return _numSpeculativeRequests;
     }
 
+    @Override
+    public List<ServerInstance> getReplicaServers(ServerInstance service, SegmentIdSet querySegments) {
+      if (_routingTable == null) {
+        return Collections.emptyList();
+      }
+      return _routingTable.findReplicaServers(_routingTableLookupRequest, querySegments);
+    }
+
     @Override
     public BucketingSelection getPredefinedSelection() {
       return _bucketingSelection;
@@ -0,0 +1,222 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.requestHandler;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.http.annotation.ThreadSafe;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.linkedin.pinot.common.config.TableNameBuilder;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.BrokerResponse;
+import com.linkedin.pinot.common.response.ResponseStatistics;
+import com.linkedin.pinot.common.utils.CommonConstants.Helix.TableType;
+import com.linkedin.pinot.routing.RoutingTable;
+import com.linkedin.pinot.serde.SerDe;
+
+
+/**
+ * Cache of the broker responses, keyed by the serialized broker request.
+ *
+ * Each cached response records the versions of the routing of the tables it was computed from, and is discarded
+ * when looked up after the routing of any of these tables has changed (eg. segments added, replaced or removed).
+ *
+ * Responses of realtime (and hybrid) tables change as events are consumed without any routing change, so they are
+ * only cached when a staleness bound is configured, and are discarded once older than that bound.
+ *
+ * The cache is bounded by the estimated size in bytes of the cached responses, least recently used responses are
+ * evicted first.
+ */
+@ThreadSafe
+public class BrokerResultCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BrokerResultCache.class);
+
+  // Estimated overhead of a cache entry on top of its request and response
+  private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+  private final Cache<ByteBuffer, CachedResponse> _cache;
+  private final long _realtimeStalenessMs;
+
+  /**
+   *
+   * @param maxSizeBytes Maximum estimated size of the cached responses
+   * @param realtimeStalenessMs Maximum age of the cached responses of realtime tables, 0 to not cache them
+   */
+  public BrokerResultCache(long maxSizeBytes, long realtimeStalenessMs) {
+    _cache = CacheBuilder.newBuilder().maximumWeight(maxSizeBytes).weigher(new Weigher<ByteBuffer, CachedResponse>() {
+      @Override
+      public int weigh(ByteBuffer key, CachedResponse value) {
+        return key.capacity() + value._sizeBytes + ENTRY_OVERHEAD_BYTES;
+      }
+    }).build();
+    _realtimeStalenessMs = realtimeStalenessMs;
+  }
+
+  /**
+   * Return the key under which the response of the request is cached, null if the response must not be cached.
+   *
+   * The versions of the routing of the tables are captured in the key, so a response computed while the routing
+   * changes is discarded on the next lookup.
+   *
+   * @param request Broker request, before being rewritten for the tables it is sent to
+   * @param tableNames Tables the request is sent to
+   * @param routingTable Routing table of the tables
+   * @return
+   */
+  public CacheKey getCacheKey(BrokerRequest request, List<String> tableNames, RoutingTable routingTable) {
+    if (request.isEnableTrace()) {
+      return null;
+    }
+    boolean isRealtime = false;
+    for (String tableName : tableNames) {
+      if (TableNameBuilder.getTableTypeFromTableName(tableName) != TableType.OFFLINE) {
+        isRealtime = true;
+      }
+    }
+    if (isRealtime && _realtimeStalenessMs <= 0) {
+      return null;
+    }
+
+    long[] routingTableVersions = new long[tableNames.size()];
+    for (int i = 0; i < routingTableVersions.length; i++) {
+      routingTableVersions[i] = routingTable.getRoutingTableVersion(tableNames.get(i));
+      if (routingTableVersions[i] < 0) {
+        return null;
+      }
+    }
+
+    // The bucket hash key only affects the servers queried, not the response
+    BrokerRequest normalizedRequest = request.deepCopy();
+    normalizedRequest.unsetBucketHashKey();
+    byte[] requestBytes = new SerDe(new TCompactProtocol.Factory()).serialize(normalizedRequest);
+    if (requestBytes == null) {
+      return null;
+    }
+    return new CacheKey(ByteBuffer.wrap(requestBytes), routingTableVersions, isRealtime);
+  }
+
+  /**
+   * Return a copy of the cached response for the key, null if there is none or if it is no longer valid.
+   *
+   * Each request hitting the cache gets its own copy, which it is free to modify (eg. to set its time used).
+   */
+  public BrokerResponse get(CacheKey key) {
+    CachedResponse cachedResponse = _cache.getIfPresent(key._requestBytes);
+    if (cachedResponse == null) {
+      return null;
+    }
+    if (!Arrays.equals(cachedResponse._routingTableVersions, key._routingTableVersions)
+        || (key._isRealtime && (System.currentTimeMillis() - cachedResponse._creationTimeMs > _realtimeStalenessMs))) {
+      _cache.asMap().remove(key._requestBytes, cachedResponse);
+      return null;
+    }
+    try {
+      return copy(cachedResponse._response);
+    } catch (JSONException e) {
+      LOGGER.warn("Caught exception while copying the cached response, discarding it", e);
+      _cache.asMap().remove(key._requestBytes, cachedResponse);
+      return null;
+    }
+  }
+
+  private static BrokerResponse copy(BrokerResponse response) throws JSONException {
+    BrokerResponse copy = new BrokerResponse();
+    copy.setTotalDocs(response.getTotalDocs());
+    copy.setNumDocsScanned(response.getNumDocsScanned());
+    copy.setTimeUsedMs(response.getTimeUsedMs());
+    List<JSONObject> aggregationResults = new ArrayList<JSONObject>(response.getAggregationResultsSize());
+    for (int i = 0; i < response.getAggregationResultsSize(); i++) {
+      aggregationResults.add(new JSONObject(response.getAggregationResults().get(i).toString()));
+    }
+    copy.setAggregationResults(aggregationResults);
+    if (response.getSelectionResults() != null) {
+      copy.setSelectionResults(new JSONObject(response.getSelectionResults().toString()));
+    }
+    List<ResponseStatistics> segmentStatistics = new ArrayList<ResponseStatistics>(response.getSegmentStatisticsSize());
+    for (int i = 0; i < response.getSegmentStatisticsSize(); i++) {
+      segmentStatistics.add(response.getSegmentStatistics().get(i).deepCopy());
+    }
+    copy.setSegmentStatistics(segmentStatistics);
+    if (response.getTraceInfo() != null) {
+      copy.setTraceInfo(new HashMap<String, String>(response.getTraceInfo()));
+    }
+    return copy;
+  }
+
+  /**
+   * Cache the response for the key. Responses with exceptions are not cached, as they are usually partial.
+   */
+  public void put(CacheKey key, BrokerResponse response) {
+    if (response.getExceptionsSize() > 0) {
+      return;
+    }
+    int sizeBytes;
+    try {
+      // Java strings use 2 bytes per character
+      sizeBytes = 2 * response.toJson().toString().length();
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while estimating the size of the response, not caching it", e);
+      return;
+    }
+    _cache.put(key._requestBytes, new CachedResponse(response, key._routingTableVersions, sizeBytes));
+  }
+
+  public long size() {
+    return _cache.size();
+  }
+
+  public void invalidateAll() {
+    _cache.invalidateAll();
+  }
+
+  public static class CacheKey {
+    private final ByteBuffer _requestBytes;
+    private final long[] _routingTableVersions;
+    private final boolean _isRealtime;
+
+    private CacheKey(ByteBuffer requestBytes, long[] routingTableVersions, boolean isRealtime) {
+      _requestBytes = requestBytes;
+      _routingTableVersions = routingTableVersions;
+      _isRealtime = isRealtime;
+    }
+  }
+
+  private static class CachedResponse {
+    private final BrokerResponse _response;
+    private final long[] _routingTableVersions;
+    private final int _sizeBytes;
+    private final long _creationTimeMs;
+
+    private CachedResponse(BrokerResponse response, long[] routingTableVersions, int sizeBytes) {
+      _response = response;
+      _routingTableVersions = routingTableVersions;
+      _sizeBytes = sizeBytes;
+      _creationTimeMs = System.currentTimeMillis();
+    }
+  }
+}
@@ -15,6 +15,8 @@
  */
 package com.linkedin.pinot.routing;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import com.linkedin.pinot.common.response.ServerInstance;
@@ -50,6 +52,18 @@ public class CfgBasedRouting implements RoutingTable {
     return cfg.buildRequestRoutingMap();
   }
 
+  @Override
+  public List<ServerInstance> findReplicaServers(RoutingTableLookupRequest request, SegmentIdSet segmentIdSet) {
+    // Config based routing has a single server per segment-set
+    return Collections.emptyList();
+  }
+
+  @Override
+  public long getRoutingTableVersion(String tableName) {
+    // Config based routing never changes
+    return 0;
+  }
+
   @Override
   public void start() {
     // Nothing to be done here
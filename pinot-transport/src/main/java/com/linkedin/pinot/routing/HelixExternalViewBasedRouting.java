@@ -15,13 +15,17 @@
  */
 package com.linkedin.pinot.routing;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.helix.ZNRecord;
 import org.apache.helix.model.ExternalView;
@@ -36,6 +40,8 @@ import com.linkedin.pinot.common.utils.CommonConstants.Helix.TableType;
 import com.linkedin.pinot.routing.builder.BalancedRandomRoutingTableBuilder;
 import com.linkedin.pinot.routing.builder.KafkaHighLevelConsumerBasedRoutingTableBuilder;
 import com.linkedin.pinot.routing.builder.RoutingTableBuilder;
+import com.linkedin.pinot.routing.builder.RoutingTableInstancePruner;
+import com.linkedin.pinot.transport.common.SegmentId;
 import com.linkedin.pinot.transport.common.SegmentIdSet;
 
 
@@ -54,14 +60,22 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
 
   private final Map<String, List<ServerToSegmentSetMap>> _brokerRoutingTable =
       new ConcurrentHashMap<String, List<ServerToSegmentSetMap>>();
+  // ONLINE servers of each segment, for each table
+  private final Map<String, Map<String, Set<ServerInstance>>> _segmentToServersMap =
+      new ConcurrentHashMap<String, Map<String, Set<ServerInstance>>>();
   private final Map<String, Long> _routingTableModifiedTimeStampMap = new HashMap<String, Long>();
+  // Version of the routing of each table, bumped every time its external view is processed
+  private final Map<String, Long> _routingTableVersionMap = new ConcurrentHashMap<String, Long>();
+  private final AtomicLong _routingTableVersionGenerator = new AtomicLong(0);
   private final Random _random = new Random(System.currentTimeMillis());
   private final HelixExternalViewBasedTimeBoundaryService _timeBoundaryService;
+  private final HelixSegmentZKMetadataBasedPruner _segmentPruner;
 
   public HelixExternalViewBasedRouting(RoutingTableBuilder defaultOfflineRoutingTableBuilder,
       RoutingTableBuilder defaultRealtimeRoutingTableBuilder, Map<String, RoutingTableBuilder> routingTableBuilderMap,
       ZkHelixPropertyStore<ZNRecord> propertyStore) {
     _timeBoundaryService = new HelixExternalViewBasedTimeBoundaryService(propertyStore);
+    _segmentPruner = new HelixSegmentZKMetadataBasedPruner(propertyStore);
     if (defaultOfflineRoutingTableBuilder != null) {
       _defaultOfflineRoutingTableBuilder = defaultOfflineRoutingTableBuilder;
     } else {
@@ -87,7 +101,49 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
       return null;
     }
     List<ServerToSegmentSetMap> serverToSegmentSetMaps = _brokerRoutingTable.get(tableName);
-    return serverToSegmentSetMaps.get(_random.nextInt(serverToSegmentSetMaps.size())).getRouting();
+    Map<ServerInstance, SegmentIdSet> routing =
+        serverToSegmentSetMaps.get(_random.nextInt(serverToSegmentSetMaps.size())).getRouting();
+    if (request.getBrokerRequest() != null) {
+      return _segmentPruner.prune(tableName, request.getBrokerRequest(), routing);
+    }
+    return routing;
+  }
+
+  @Override
+  public List<ServerInstance> findReplicaServers(RoutingTableLookupRequest request, SegmentIdSet segmentIdSet) {
+    Map<String, Set<ServerInstance>> segmentToServersMap = _segmentToServersMap.get(request.getTableName());
+    if (segmentToServersMap == null) {
+      return Collections.emptyList();
+    }
+
+    Set<ServerInstance> replicaServers = null;
+    Iterator<SegmentId> segmentIds = segmentIdSet.getSegments().iterator();
+    while (segmentIds.hasNext() && (replicaServers == null || !replicaServers.isEmpty())) {
+      Set<ServerInstance> servers = segmentToServersMap.get(segmentIds.next().getSegmentId());
+      if (servers == null) {
+        return Collections.emptyList();
+      }
+      if (replicaServers == null) {
+        replicaServers = new HashSet<ServerInstance>(servers);
+      } else {
+        replicaServers.retainAll(servers);
+      }
+    }
+    if (replicaServers == null) {
+      return Collections.emptyList();
+    }
+    List<ServerInstance> orderedServers = new ArrayList<ServerInstance>(replicaServers);
+    Collections.sort(orderedServers);
+    return orderedServers;
+  }
+
+  @Override
+  public long getRoutingTableVersion(String tableName) {
+    Long version = _routingTableVersionMap.get(tableName);
+    if (version == null) {
+      return -1;
+    }
+    return version;
   }
 
   @Override
@@ -141,6 +197,8 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
     if (_routingTableBuilderMap.containsKey(tableName) && (_routingTableBuilderMap.get(tableName) != null)) {
       routingTableBuilder = _routingTableBuilderMap.get(tableName);
     }
+    // Computed before the routing table, as routing table builders may remove the offline instances from the view
+    _segmentToServersMap.put(tableName, computeSegmentToServersMap(externalView, instanceConfigList));
     LOGGER.info("Trying to compute routing table for table : " + tableName + ",by : " + routingTableBuilder);
     try {
       List<ServerToSegmentSetMap> serverToSegmentSetMap =
@@ -156,6 +214,15 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
     } catch (Exception e) {
       LOGGER.error("Failed to update the TimeBoundaryService : " + e.getCause(), e);
     }
+    try {
+      LOGGER.info("Trying to update the segment metadata used for pruning for table : " + tableName);
+      _segmentPruner.updateSegmentMetadata(externalView);
+    } catch (Exception e) {
+      // Segments are not pruned rather than pruned with stale metadata
+      _segmentPruner.remove(tableName);
+      LOGGER.error("Failed to update the segment metadata used for pruning : " + e.getCause(), e);
+    }
+    _routingTableVersionMap.put(tableName, _routingTableVersionGenerator.incrementAndGet());
 
   }
 
@@ -164,9 +231,28 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
     if (_dataTableSet.contains(tableName)) {
       _dataTableSet.remove(tableName);
       _brokerRoutingTable.remove(tableName);
+      _segmentToServersMap.remove(tableName);
       _routingTableModifiedTimeStampMap.remove(tableName);
+      _routingTableVersionMap.remove(tableName);
       _timeBoundaryService.remove(tableName);
+      _segmentPruner.remove(tableName);
+    }
+  }
+
+  private Map<String, Set<ServerInstance>> computeSegmentToServersMap(ExternalView externalView,
+      List<InstanceConfig> instanceConfigList) {
+    RoutingTableInstancePruner pruner = new RoutingTableInstancePruner(instanceConfigList);
+    Map<String, Set<ServerInstance>> segmentToServersMap = new HashMap<String, Set<ServerInstance>>();
+    for (String segment : externalView.getPartitionSet()) {
+      Set<ServerInstance> servers = new HashSet<ServerInstance>();
+      for (Map.Entry<String, String> entry : externalView.getStateMap(segment).entrySet()) {
+        if (entry.getValue().equals("ONLINE") && !pruner.isShuttingDown(entry.getKey())) {
+          servers.add(ServerToSegmentSetMap.getServerInstance(entry.getKey()));
+        }
+      }
+      segmentToServersMap.put(segment, servers);
     }
+    return segmentToServersMap;
   }
 
   public boolean contains(String tableName) {
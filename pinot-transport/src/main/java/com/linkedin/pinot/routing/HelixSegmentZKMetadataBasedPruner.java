@@ -0,0 +1,271 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.routing;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.ZNRecord;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.store.zk.ZkHelixPropertyStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.linkedin.pinot.common.config.AbstractTableConfig;
+import com.linkedin.pinot.common.config.TableNameBuilder;
+import com.linkedin.pinot.common.metadata.ZKMetadataProvider;
+import com.linkedin.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.common.utils.CommonConstants.Helix.TableType;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
+import com.linkedin.pinot.transport.common.SegmentId;
+import com.linkedin.pinot.transport.common.SegmentIdSet;
+
+
+/**
+ * Prunes the segments of a routing table that cannot match the filter of a query, based on the time interval of the
+ * segments cached from their ZK metadata.
+ *
+ * The segment metadata is refreshed along with the routing table, every time the external view of a table changes.
+ * Only offline tables are pruned, as the consuming segments of realtime tables do not have an end time yet.
+ */
+public class HelixSegmentZKMetadataBasedPruner {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(HelixSegmentZKMetadataBasedPruner.class);
+
+  private static final String VALUES_SEPARATOR = "\t\t";
+  private static final String UNBOUNDED = "*";
+
+  private final ZkHelixPropertyStore<ZNRecord> _propertyStore;
+  private final Map<String, TableSegmentsTimeInfo> _tableSegmentsTimeInfoMap =
+      new ConcurrentHashMap<String, TableSegmentsTimeInfo>();
+
+  public HelixSegmentZKMetadataBasedPruner(ZkHelixPropertyStore<ZNRecord> propertyStore) {
+    _propertyStore = propertyStore;
+  }
+
+  public void updateSegmentMetadata(ExternalView externalView) {
+    if (_propertyStore == null) {
+      return;
+    }
+    String tableName = externalView.getResourceName();
+    if (TableNameBuilder.getTableTypeFromTableName(tableName) == TableType.REALTIME) {
+      return;
+    }
+    AbstractTableConfig offlineTableConfig = ZKMetadataProvider.getOfflineTableConfig(_propertyStore, tableName);
+    if (offlineTableConfig == null || offlineTableConfig.getValidationConfig().getTimeColumnName() == null
+        || offlineTableConfig.getValidationConfig().getTimeType() == null) {
+      _tableSegmentsTimeInfoMap.remove(tableName);
+      return;
+    }
+    TimeUnit tableTimeUnit =
+        HelixExternalViewBasedTimeBoundaryService.getTimeUnitFromString(offlineTableConfig.getValidationConfig()
+            .getTimeType());
+
+    Map<String, TimeRange> segmentTimeRangeMap = new HashMap<String, TimeRange>();
+    for (OfflineSegmentZKMetadata offlineSegmentZKMetadata : ZKMetadataProvider
+        .getOfflineSegmentZKMetadataListForTable(_propertyStore, tableName)) {
+      long startTime = offlineSegmentZKMetadata.getStartTime();
+      long endTime = offlineSegmentZKMetadata.getEndTime();
+      if (startTime < 0 || endTime < startTime) {
+        continue;
+      }
+      if (offlineSegmentZKMetadata.getTimeUnit() != null) {
+        startTime = tableTimeUnit.convert(startTime, offlineSegmentZKMetadata.getTimeUnit());
+        endTime = tableTimeUnit.convert(endTime, offlineSegmentZKMetadata.getTimeUnit());
+      }
+      segmentTimeRangeMap.put(offlineSegmentZKMetadata.getSegmentName(), new TimeRange(startTime, endTime));
+    }
+    updateSegmentTimeRanges(tableName, offlineTableConfig.getValidationConfig().getTimeColumnName(),
+        segmentTimeRangeMap);
+  }
+
+  /**
+   * Replaces the time ranges of the segments of a table, expressed in the time unit of the table time column.
+   */
+  public void updateSegmentTimeRanges(String tableName, String timeColumn, Map<String, TimeRange> segmentTimeRangeMap) {
+    _tableSegmentsTimeInfoMap.put(tableName, new TableSegmentsTimeInfo(timeColumn, segmentTimeRangeMap));
+  }
+
+  public void remove(String tableName) {
+    _tableSegmentsTimeInfoMap.remove(tableName);
+  }
+
+  /**
+   * Returns the routing without the segments that cannot match the filter of the query, and without the servers left
+   * with no segment. The given routing is not modified.
+   *
+   * When no segment can match, one segment is kept so that the servers still answer with the shape of the results.
+   */
+  public Map<ServerInstance, SegmentIdSet> prune(String tableName, BrokerRequest brokerRequest,
+      Map<ServerInstance, SegmentIdSet> routing) {
+    TableSegmentsTimeInfo tableSegmentsTimeInfo = _tableSegmentsTimeInfoMap.get(tableName);
+    if (tableSegmentsTimeInfo == null || routing == null || brokerRequest.getFilterQuery() == null) {
+      return routing;
+    }
+    FilterQueryTree filterQueryTree = RequestUtils.generateFilterQueryTree(brokerRequest);
+    if (filterQueryTree == null) {
+      return routing;
+    }
+
+    Map<ServerInstance, SegmentIdSet> prunedRouting = new HashMap<ServerInstance, SegmentIdSet>();
+    int numPrunedSegments = 0;
+    ServerInstance keptServer = null;
+    SegmentId keptSegment = null;
+    for (Map.Entry<ServerInstance, SegmentIdSet> entry : routing.entrySet()) {
+      SegmentIdSet segmentIdSet = new SegmentIdSet();
+      for (SegmentId segmentId : entry.getValue().getSegments()) {
+        TimeRange timeRange = tableSegmentsTimeInfo._segmentTimeRangeMap.get(segmentId.getSegmentId());
+        if (timeRange == null || canMatch(filterQueryTree, tableSegmentsTimeInfo._timeColumn, timeRange)) {
+          segmentIdSet.addSegment(segmentId);
+        } else {
+          numPrunedSegments++;
+          keptServer = entry.getKey();
+          keptSegment = segmentId;
+        }
+      }
+      if (!segmentIdSet.getSegments().isEmpty()) {
+        prunedRouting.put(entry.getKey(), segmentIdSet);
+      }
+    }
+
+    if (numPrunedSegments == 0) {
+      return routing;
+    }
+    if (prunedRouting.isEmpty()) {
+      SegmentIdSet segmentIdSet = new SegmentIdSet();
+      segmentIdSet.addSegment(keptSegment);
+      prunedRouting.put(keptServer, segmentIdSet);
+    }
+    LOGGER.debug("Pruned {} segments of table {}, routing to {} servers", numPrunedSegments, tableName,
+        prunedRouting.size());
+    return prunedRouting;
+  }
+
+  private static boolean canMatch(FilterQueryTree filterQueryTree, String timeColumn, TimeRange timeRange) {
+    switch (filterQueryTree.getOperator()) {
+      case AND:
+        for (FilterQueryTree child : filterQueryTree.getChildren()) {
+          if (!canMatch(child, timeColumn, timeRange)) {
+            return false;
+          }
+        }
+        return true;
+      case OR:
+        for (FilterQueryTree child : filterQueryTree.getChildren()) {
+          if (canMatch(child, timeColumn, timeRange)) {
+            return true;
+          }
+        }
+        return false;
+      default:
+        break;
+    }
+
+    if (!timeColumn.equals(filterQueryTree.getColumn()) || filterQueryTree.getValue() == null
+        || filterQueryTree.getValue().isEmpty()) {
+      return true;
+    }
+    String value = filterQueryTree.getValue().get(0).trim();
+    switch (filterQueryTree.getOperator()) {
+      case EQUALITY:
+        return canContain(timeRange, value);
+      case IN:
+        for (String inValue : value.split(VALUES_SEPARATOR)) {
+          if (canContain(timeRange, inValue)) {
+            return true;
+          }
+        }
+        return false;
+      case RANGE:
+        return canOverlap(timeRange, value);
+      default:
+        return true;
+    }
+  }
+
+  private static boolean canContain(TimeRange timeRange, String value) {
+    BigDecimal decimalValue = toBigDecimal(value);
+    return decimalValue == null
+        || (decimalValue.compareTo(BigDecimal.valueOf(timeRange._startTime)) >= 0 && decimalValue.compareTo(BigDecimal
+            .valueOf(timeRange._endTime)) <= 0);
+  }
+
+  private static boolean canOverlap(TimeRange timeRange, String range) {
+    String[] boundaries = range.split(VALUES_SEPARATOR);
+    if (boundaries.length != 2 || boundaries[0].isEmpty() || boundaries[1].isEmpty()) {
+      return true;
+    }
+    String lowerBoundary = boundaries[0].substring(1);
+    String upperBoundary = boundaries[1].substring(0, boundaries[1].length() - 1);
+
+    if (!lowerBoundary.equals(UNBOUNDED)) {
+      BigDecimal lower = toBigDecimal(lowerBoundary);
+      if (lower != null) {
+        int comparison = lower.compareTo(BigDecimal.valueOf(timeRange._endTime));
+        if (comparison > 0 || (comparison == 0 && boundaries[0].startsWith("("))) {
+          return false;
+        }
+      }
+    }
+    if (!upperBoundary.equals(UNBOUNDED)) {
+      BigDecimal upper = toBigDecimal(upperBoundary);
+      if (upper != null) {
+        int comparison = upper.compareTo(BigDecimal.valueOf(timeRange._startTime));
+        if (comparison < 0 || (comparison == 0 && boundaries[1].endsWith(")"))) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static BigDecimal toBigDecimal(String value) {
+    try {
+      return new BigDecimal(value.trim());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Time range of a segment, with inclusive start and end times.
+   */
+  public static class TimeRange {
+    private final long _startTime;
+    private final long _endTime;
+
+    public TimeRange(long startTime, long endTime) {
+      _startTime = startTime;
+      _endTime = endTime;
+    }
+  }
+
+  private static class TableSegmentsTimeInfo {
+    private final String _timeColumn;
+    private final Map<String, TimeRange> _segmentTimeRangeMap;
+
+    private TableSegmentsTimeInfo(String timeColumn, Map<String, TimeRange> segmentTimeRangeMap) {
+      _timeColumn = timeColumn;
+      _segmentTimeRangeMap = segmentTimeRangeMap;
+    }
+  }
+}
@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.routing;
 
+import java.util.List;
 import java.util.Map;
 
 import com.linkedin.pinot.common.response.ServerInstance;
@@ -32,6 +33,22 @@ public interface RoutingTable {
    */
   public Map<ServerInstance, SegmentIdSet> findServers(RoutingTableLookupRequest request);
 
+  /**
+   * Return the servers hosting all the given segments, ordered so that replica-selection strategy can be
+   * applied to them. Used to send speculative requests to other replicas of a segment-set.
+   *
+   * @return Servers hosting all the segments, empty if there are none or if replicas are not tracked.
+   */
+  public List<ServerInstance> findReplicaServers(RoutingTableLookupRequest request, SegmentIdSet segmentIdSet);
+
+  /**
+   * Return the version of the routing of a table, which changes every time the routing of the table is updated.
+   * Used to invalidate the query results cached for the table.
+   *
+   * @return Version of the routing of the table, -1 if the table is unknown.
+   */
+  public long getRoutingTableVersion(String tableName);
+
   /**
    * Initialize and start the Routing table population
    */
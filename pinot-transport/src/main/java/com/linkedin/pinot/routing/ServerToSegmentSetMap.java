@@ -41,16 +41,7 @@ public class ServerToSegmentSetMap {
     _serverToSegmentSetMap = serverToSegmentSetMap;
     _routingTable = new HashMap<ServerInstance, SegmentIdSet>();
     for (Entry<String, Set<String>> entry : _serverToSegmentSetMap.entrySet()) {
-      String namePortStr = entry.getKey().split(CommonConstants.Helix.PREFIX_OF_SERVER_INSTANCE)[1];
-      String hostName = namePortStr.split(NAME_PORT_DELIMITER)[0];
-      int port;
-      try {
-        port = Integer.parseInt(namePortStr.split(NAME_PORT_DELIMITER)[1]);
-      } catch (Exception e) {
-        port = CommonConstants.Helix.DEFAULT_SERVER_NETTY_PORT;
-      }
-
-      ServerInstance serverInstance = new ServerInstance(hostName, port);
+      ServerInstance serverInstance = getServerInstance(entry.getKey());
       SegmentIdSet segmentIdSet = new SegmentIdSet();
       for (String segmentId : entry.getValue()) {
         segmentIdSet.addSegment(new SegmentId(segmentId));
@@ -59,6 +50,24 @@ public class ServerToSegmentSetMap {
     }
   }
 
+  /**
+   * Build the server instance of a helix server instance name.
+   *
+   * @param instanceName
+   * @return
+   */
+  public static ServerInstance getServerInstance(String instanceName) {
+    String namePortStr = instanceName.split(CommonConstants.Helix.PREFIX_OF_SERVER_INSTANCE)[1];
+    String hostName = namePortStr.split(NAME_PORT_DELIMITER)[0];
+    int port;
+    try {
+      port = Integer.parseInt(namePortStr.split(NAME_PORT_DELIMITER)[1]);
+    } catch (Exception e) {
+      port = CommonConstants.Helix.DEFAULT_SERVER_NETTY_PORT;
+    }
+    return new ServerInstance(hostName, port);
+  }
+
   public Set<String> getServerSet() {
     return _serverToSegmentSetMap.keySet();
   }
@@ -0,0 +1,199 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.transport.common;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.annotation.ThreadSafe;
+
+import com.linkedin.pinot.common.response.ServerInstance;
+
+
+/**
+ * Selects replicas based on the load of the servers, as observed from the responses flowing through the
+ * scatter-gather layer.
+ *
+ * For each server, an exponentially weighted moving average (EWMA) of the response latency and the number of
+ * outstanding requests are tracked. The cost of a server is its latency average times its number of outstanding
+ * requests (plus the one about to be sent). Picking the cheapest of all the replicas would make every broker send
+ * its requests to the same server until its cost goes up, so two distinct replicas are picked at random and the
+ * cheapest of the two is selected (power of two choices).
+ *
+ * The latency average of a server decays towards zero while the server is not receiving responses, so that a server
+ * which was slow at some point gets probed again after a while. Errors count as a response taking
+ * ERROR_PENALTY_MS, unless the response actually took longer.
+ */
+@ThreadSafe
+public class LatencyAwareReplicaSelection extends ReplicaSelection {
+  public static final double DEFAULT_EWMA_ALPHA = 0.3;
+  public static final long DEFAULT_DECAY_TIME_MS = 10000L;
+  public static final long ERROR_PENALTY_MS = 5000L;
+
+  private final ConcurrentMap<ServerInstance, ServerStats> _serverStatsMap =
+      new ConcurrentHashMap<ServerInstance, ServerStats>();
+  private final Random _rand;
+  private final double _ewmaAlpha;
+  private final long _decayTimeMs;
+
+  public LatencyAwareReplicaSelection() {
+    this(new Random(), DEFAULT_EWMA_ALPHA, DEFAULT_DECAY_TIME_MS);
+  }
+
+  /**
+   *
+   * @param rand Random used to pick the two candidate replicas
+   * @param ewmaAlpha Weight (between 0 and 1) of a new latency in the latency average
+   * @param decayTimeMs Time constant of the decay of the latency average when there is no response
+   */
+  public LatencyAwareReplicaSelection(Random rand, double ewmaAlpha, long decayTimeMs) {
+    _rand = rand;
+    _ewmaAlpha = ewmaAlpha;
+    _decayTimeMs = decayTimeMs;
+  }
+
+  @Override
+  public void reset(SegmentId p) {
+    // Nothing to be done here, stats are kept per server
+  }
+
+  @Override
+  public void reset(SegmentIdSet p) {
+    // Nothing to be done here, stats are kept per server
+  }
+
+  @Override
+  public ServerInstance selectServer(SegmentId p, List<ServerInstance> orderedServers, Object hashKey) {
+    int size = orderedServers.size();
+
+    if (size <= 0) {
+      return null;
+    }
+    if (size == 1) {
+      return orderedServers.get(0);
+    }
+
+    int first;
+    int second;
+    synchronized (_rand) {
+      first = _rand.nextInt(size);
+      second = _rand.nextInt(size - 1);
+    }
+    if (second >= first) {
+      second++;
+    }
+    ServerInstance firstServer = orderedServers.get(first);
+    ServerInstance secondServer = orderedServers.get(second);
+    long now = System.currentTimeMillis();
+    return (getCost(firstServer, now) <= getCost(secondServer, now)) ? firstServer : secondServer;
+  }
+
+  @Override
+  public boolean isLoadAware() {
+    return true;
+  }
+
+  @Override
+  public void onRequestSent(ServerInstance server) {
+    getServerStats(server)._numPendingRequests.incrementAndGet();
+  }
+
+  @Override
+  public void onRequestCompleted(ServerInstance server, long latencyMs, boolean isError, boolean isCancelled) {
+    ServerStats stats = getServerStats(server);
+    stats._numPendingRequests.decrementAndGet();
+    if (isCancelled) {
+      // Cancelled requests (eg. the loser of a speculative request) tell nothing about the latency of the server
+      return;
+    }
+    if (isError) {
+      latencyMs = Math.max(latencyMs, ERROR_PENALTY_MS);
+    }
+    stats.update(latencyMs, System.currentTimeMillis());
+  }
+
+  /**
+   * Return the latency average of the server in MS, 0 if no response has been received from it.
+   */
+  public double getLatencyMs(ServerInstance server) {
+    ServerStats stats = _serverStatsMap.get(server);
+    if (null == stats) {
+      return 0;
+    }
+    return stats.getLatencyMs(System.currentTimeMillis());
+  }
+
+  /**
+   * Return the number of requests sent to the server which have not completed yet.
+   */
+  public int getNumPendingRequests(ServerInstance server) {
+    ServerStats stats = _serverStatsMap.get(server);
+    if (null == stats) {
+      return 0;
+    }
+    return stats._numPendingRequests.get();
+  }
+
+  private double getCost(ServerInstance server, long now) {
+    ServerStats stats = _serverStatsMap.get(server);
+    if (null == stats) {
+      // Unknown servers are tried first, so that they get some stats
+      return 0;
+    }
+    // Servers without any response yet are only ranked by their outstanding requests
+    return Math.max(stats.getLatencyMs(now), 1) * (stats._numPendingRequests.get() + 1);
+  }
+
+  private ServerStats getServerStats(ServerInstance server) {
+    ServerStats stats = _serverStatsMap.get(server);
+    if (null == stats) {
+      ServerStats newStats = new ServerStats();
+      stats = _serverStatsMap.putIfAbsent(server, newStats);
+      if (null == stats) {
+        stats = newStats;
+      }
+    }
+    return stats;
+  }
+
+  private class ServerStats {
+    private final AtomicInteger _numPendingRequests = new AtomicInteger(0);
+
+    // Latency average and the time it was last updated, guarded by this
+    private double _latencyMs = -1;
+    private long _lastUpdateTimeMs;
+
+    private synchronized void update(long latencyMs, long now) {
+      if (_latencyMs < 0) {
+        _latencyMs = latencyMs;
+      } else {
+        _latencyMs = _ewmaAlpha * latencyMs + (1 - _ewmaAlpha) * getLatencyMs(now);
+      }
+      _lastUpdateTimeMs = now;
+    }
+
+    private synchronized double getLatencyMs(long now) {
+      if (_latencyMs < 0) {
+        return 0;
+      }
+      long elapsedTimeMs = Math.max(0, now - _lastUpdateTimeMs);
+      return _latencyMs * Math.exp(-(double) elapsedTimeMs / _decayTimeMs);
+    }
+  }
+}
@@ -51,6 +51,12 @@ public abstract class ReplicaSelection {
           (ascending) order. A key ( in the request) is hashed
           to determine the replica
     **/
+    LATENCY_AWARE,
+    /**
+          Least loaded of two replicas picked at random, based
+          on the latencies and outstanding requests of the
+          servers
+    **/
 
   };
 
@@ -85,4 +91,34 @@ public abstract class ReplicaSelection {
    */
   public abstract ServerInstance selectServer(SegmentId p, List<ServerInstance> orderedServers, Object hashKey);
 
+  /**
+   * Whether this policy selects servers based on their load, as tracked through the request notifications below.
+   * If so, the scatter-gather layer offers it all the replicas of a segment-set instead of only the server picked
+   * by the routing table.
+   */
+  public boolean isLoadAware() {
+    return false;
+  }
+
+  /**
+   * This is a notification by the scatter-gather layer that a request is sent to the server. It is notified as soon as
+   * the server is selected, so that the servers selected next for the same query see the request.
+   * @param server Server the request is sent to
+   */
+  public void onRequestSent(ServerInstance server) {
+    // Nothing to be done by default
+  }
+
+  /**
+   * This is a notification by the scatter-gather layer that a request sent to the server has completed. Each
+   * request notified through {@link #onRequestSent(ServerInstance)} is notified exactly once here.
+   * @param server Server the request was sent to
+   * @param latencyMs Time between sending the request and its completion
+   * @param isError True if the server failed to respond, false if it responded or the request was cancelled
+   * @param isCancelled True if the request was cancelled before the server responded
+   */
+  public void onRequestCompleted(ServerInstance server, long latencyMs, boolean isError, boolean isCancelled) {
+    // Nothing to be done by default
+  }
+
 }
@@ -31,6 +31,9 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.linkedin.pinot.common.metrics.AggregatedMetricsRegistry;
 import com.linkedin.pinot.common.metrics.MetricsHelper;
 import com.linkedin.pinot.common.metrics.MetricsHelper.TimerContext;
@@ -54,24 +57,28 @@ public abstract class NettyServer implements Runnable {
 
   /**
    * The request handler callback which processes the incoming request.
-   * This method is executed by the Netty worker thread.
+   * This method is executed by the Netty worker thread, so implementations are expected
+   * to hand off any expensive processing to their own threads and return a future
+   * for the response instead of blocking the event loop.
    */
   public static interface RequestHandler {
     /**
      * Callback for Servers to process the request and return the response.
      * The ownership of the request bytebuf resides with the caler (NettyServer).
      * This callback is not expected to call {@link ByteBuf#release()} on request
-     * The ownership of the request byteBuf lies with the caller.
+     * The ownership of the request byteBuf lies with the caller, which releases it
+     * as soon as this method returns. Hence, the request needs to be fully read
+     * before returning, even if the response is computed asynchronously.
      *
      * The implementation MUST not throw any runtime exceptions. In case of errors,
      * the implementation is expected to construct and return an error response.
-     * If the implementation throws runtime exceptions, then the underlying connection
-     * will be terminated.
+     * If the implementation throws runtime exceptions or the returned future fails,
+     * then the underlying connection will be terminated.
      *
      * @param request Serialized request
-     * @return Serialized response
+     * @return Future for the serialized response
      */
-    public byte[] processRequest(ByteBuf request);
+    public ListenableFuture<byte[]> processRequest(ByteBuf request);
   }
 
   public static interface RequestHandlerFactory {
@@ -170,18 +177,11 @@ public abstract class NettyServer implements Runnable {
    * |                    ...............                       |
    * ------------------------------------------------------------
    */
-  public static class NettyChannelInboundHandler extends ChannelInboundHandlerAdapter implements ChannelFutureListener {
+  public static class NettyChannelInboundHandler extends ChannelInboundHandlerAdapter {
     private final long _defaultLargeQueryLatencyMs;
     private final RequestHandler _handler;
     private final NettyServerMetrics _metric;
 
-    //Metrics Related
-    private long _lastRequsetSizeInBytes;
-    private long _lastResponseSizeInBytes;
-    private TimerContext _lastSendResponseLatency;
-    private TimerContext _lastProcessingLatency;
-    private long _requestStartTime;
-
     public NettyChannelInboundHandler(RequestHandler handler, NettyServerMetrics metric, long defaultLargeQueryLatencyMs) {
       _handler = handler;
       _metric = metric;
@@ -203,28 +203,63 @@ public abstract class NettyServer implements Runnable {
     /**
      * Server Channel Handler State
      */
-    private State _state = State.INIT;
+    private volatile State _state = State.INIT;
 
     @Override
-    public void channelRead(ChannelHandlerContext ctx, Object msg) {
-      _requestStartTime = System.currentTimeMillis();
+    public void channelRead(final ChannelHandlerContext ctx, Object msg) {
+      final long requestStartTime = System.currentTimeMillis();
       LOGGER.debug("Request received by server !!");
       _state = State.REQUEST_RECEIVED;
       ByteBuf request = (ByteBuf) msg;
-      _lastRequsetSizeInBytes = request.readableBytes();
+      final long requestSizeInBytes = request.readableBytes();
+
+      //Call processing handler. The response is computed off the event loop and written back once ready.
+      final TimerContext processingLatency = MetricsHelper.startTimer();
+      ListenableFuture<byte[]> responseFuture;
+      try {
+        responseFuture = _handler.processRequest(request);
+      } finally {
+        request.release();
+      }
 
-      //Call processing handler
-      _lastProcessingLatency = MetricsHelper.startTimer();
-      byte[] response = _handler.processRequest(request);
-      _lastProcessingLatency.stop();
+      Futures.addCallback(responseFuture, new FutureCallback<byte[]>() {
+        @Override
+        public void onSuccess(byte[] response) {
+          processingLatency.stop();
+          sendResponse(ctx, response, requestStartTime, requestSizeInBytes, processingLatency);
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+          processingLatency.stop();
+          exceptionCaught(ctx, t);
+        }
+      });
+    }
 
+    private void sendResponse(ChannelHandlerContext ctx, byte[] response, final long requestStartTime,
+        final long requestSizeInBytes, final TimerContext processingLatency) {
       // Send Response
       ByteBuf responseBuf = Unpooled.wrappedBuffer(response);
-      _lastSendResponseLatency = MetricsHelper.startTimer();
+      final long responseSizeInBytes = responseBuf.readableBytes();
+      final TimerContext sendResponseLatency = MetricsHelper.startTimer();
       ChannelFuture f = ctx.writeAndFlush(responseBuf);
       _state = State.RESPONSE_WRITTEN;
-      f.addListener(this);
-      request.release();
+      f.addListener(new ChannelFutureListener() {
+        @Override
+        public void operationComplete(ChannelFuture future) throws Exception {
+          LOGGER.debug("Response has been sent !!");
+          sendResponseLatency.stop();
+          _metric.addServingStats(requestSizeInBytes, responseSizeInBytes, 1L, false,
+              processingLatency.getLatencyMs(), sendResponseLatency.getLatencyMs());
+          long totalQueryTime = System.currentTimeMillis() - requestStartTime;
+          if (totalQueryTime > _defaultLargeQueryLatencyMs) {
+            LOGGER.info("Trace Info: request handler processing time : {}, send response latency: {}, total time to handle request: {}",
+                processingLatency.getLatencyMs(), sendResponseLatency.getLatencyMs(), totalQueryTime);
+          }
+          _state = State.RESPONSE_SENT;
+        }
+      });
     }
 
     @Override
@@ -235,26 +270,9 @@ public abstract class NettyServer implements Runnable {
       ctx.close();
     }
 
-    @Override
-    public void operationComplete(ChannelFuture future) throws Exception {
-      LOGGER.debug("Response has been sent !!");
-      _lastSendResponseLatency.stop();
-      _metric.addServingStats(_lastRequsetSizeInBytes, _lastResponseSizeInBytes, 1L, false,
-          _lastProcessingLatency.getLatencyMs(), _lastSendResponseLatency.getLatencyMs());
-      long totalQueryTime = System.currentTimeMillis() - _requestStartTime;
-      if (totalQueryTime > _defaultLargeQueryLatencyMs) {
-        LOGGER.info("Trace Info: request handler processing time : {}, send response latency: {}, total time to handle request: {}", _lastProcessingLatency.getLatencyMs(),
-            _lastSendResponseLatency.getLatencyMs(), totalQueryTime);
-      }
-      _state = State.RESPONSE_SENT;
-    }
-
     @Override
     public String toString() {
-      return "NettyChannelInboundHandler [_handler=" + _handler + ", _metric=" + _metric + ", _lastRequsetSizeInBytes="
-          + _lastRequsetSizeInBytes + ", _lastResponseSizeInBytes=" + _lastResponseSizeInBytes
-          + ", _lastSendResponseLatency=" + _lastSendResponseLatency + ", _lastProcessingLatency="
-          + _lastProcessingLatency + ", _state=" + _state + "]";
+      return "NettyChannelInboundHandler [_handler=" + _handler + ", _metric=" + _metric + ", _state=" + _state + "]";
     }
   }
 
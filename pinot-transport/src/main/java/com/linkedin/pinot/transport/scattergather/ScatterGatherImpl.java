@@ -20,12 +20,16 @@ import io.netty.buffer.Unpooled;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -37,7 +41,9 @@ import com.google.common.util.concurrent.MoreExecutors;
 import com.linkedin.pinot.common.metrics.MetricsHelper;
 import com.linkedin.pinot.common.metrics.MetricsHelper.TimerContext;
 import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.transport.common.AsyncResponseFuture;
 import com.linkedin.pinot.transport.common.BucketingSelection;
+import com.linkedin.pinot.transport.common.Cancellable;
 import com.linkedin.pinot.transport.common.CompositeFuture;
 import com.linkedin.pinot.transport.common.CompositeFuture.GatherModeOnError;
 import com.linkedin.pinot.transport.common.KeyedFuture;
@@ -61,19 +67,49 @@ public class ScatterGatherImpl implements ScatterGather {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ScatterGatherImpl.class);
 
+  public static final double DEFAULT_SPECULATIVE_REQUEST_LATENCY_PERCENTILE = 0.95;
+
+  // Speculative requests are only sent once enough responses have been seen to estimate the latency percentile
+  private static final long MIN_RESPONSE_LATENCY_SAMPLES = 100;
+  private static final long MIN_SPECULATIVE_REQUEST_DELAY_MS = 10;
+
   private final ExecutorService _executorService;
 
   private final Histogram _latency = MetricsHelper.newHistogram(null, new MetricName(ScatterGatherImpl.class,
       "ScatterGatherLatency"), false);
 
+  // Latency of the successful server responses, biased towards the recent ones
+  private final Histogram _responseLatency = MetricsHelper.newHistogram(null, new MetricName(ScatterGatherImpl.class,
+      "ScatterGatherResponseLatency"), true);
+
   /**
    * Connection Pool for sending scatter-gather requests
    */
   private final KeyedPool<ServerInstance, NettyClientConnection> _connPool;
 
+  // Scheduler for speculative requests, null if speculative requests are turned off
+  private final ScheduledExecutorService _speculativeRequestScheduler;
+
+  private final double _speculativeRequestLatencyPercentile;
+
   public ScatterGatherImpl(KeyedPool<ServerInstance, NettyClientConnection> pool, ExecutorService service) {
+    this(pool, service, null, DEFAULT_SPECULATIVE_REQUEST_LATENCY_PERCENTILE);
+  }
+
+  /**
+   *
+   * @param pool Connection Pool for sending scatter-gather requests
+   * @param service Executor for checking-out connections and sending requests
+   * @param speculativeRequestScheduler Scheduler for speculative requests
+   * @param speculativeRequestLatencyPercentile Response latency percentile (between 0 and 1) after which speculative
+   *          requests are sent to other replicas of a segment-set whose server has not responded yet
+   */
+  public ScatterGatherImpl(KeyedPool<ServerInstance, NettyClientConnection> pool, ExecutorService service,
+      ScheduledExecutorService speculativeRequestScheduler, double speculativeRequestLatencyPercentile) {
     _connPool = pool;
     _executorService = service;
+    _speculativeRequestScheduler = speculativeRequestScheduler;
+    _speculativeRequestLatencyPercentile = speculativeRequestLatencyPercentile;
   }
 
   @Override
@@ -107,6 +143,7 @@ public class ScatterGatherImpl implements ScatterGather {
     // Servers are expected to be selected at this stage
     Map<ServerInstance, SegmentIdSet> mp = ctxt.getSelectedServers();
 
+    final long dispatchStartTimeMs = System.currentTimeMillis();
     CountDownLatch requestDispatchLatch = new CountDownLatch(mp.size());
 
     //Use same thread to send request once the connection is available
@@ -134,10 +171,22 @@ public class ScatterGatherImpl implements ScatterGather {
     boolean sentSuccessfully = requestDispatchLatch.await(timeRemaining, TimeUnit.MILLISECONDS);
 
     if (sentSuccessfully) {
+      long speculativeRequestDelayMs = getSpeculativeRequestDelayMs();
       List<KeyedFuture<ServerInstance, ByteBuf>> responseFutures =
           new ArrayList<KeyedFuture<ServerInstance, ByteBuf>>();
       for (SingleRequestHandler h : handlers) {
-        responseFutures.add(h.getResponseFuture());
+        trackResponse(ctxt, h.getServer(), h.getResponseFuture(), dispatchStartTimeMs, true);
+        List<ServerInstance> speculativeServers = Collections.emptyList();
+        if (speculativeRequestDelayMs >= 0) {
+          speculativeServers = selectSpeculativeServers(ctxt, h);
+        }
+        if (speculativeServers.isEmpty()) {
+          responseFutures.add(h.getResponseFuture());
+        } else {
+          SpeculativeResponseFuture responseFuture = new SpeculativeResponseFuture(ctxt, h, speculativeServers);
+          responseFuture.start(speculativeRequestDelayMs);
+          responseFutures.add(responseFuture);
+        }
       }
       response.start(responseFutures);
     } else {
@@ -149,6 +198,7 @@ public class ScatterGatherImpl implements ScatterGather {
       // and so we cancel all of them here
       for (SingleRequestHandler h : handlers) {
         h.cancel();
+        trackResponse(ctxt, h.getServer(), h.getResponseFuture(), dispatchStartTimeMs, true);
       }
     }
     t.stop();
@@ -156,10 +206,85 @@ public class ScatterGatherImpl implements ScatterGather {
     return response;
   }
 
+  /**
+   * Return the time in MS after which speculative requests are sent for the segment-sets whose server has not
+   * responded yet, or a negative value if no speculative request should be sent.
+   */
+  protected long getSpeculativeRequestDelayMs() {
+    if ((null == _speculativeRequestScheduler) || (_responseLatency.count() < MIN_RESPONSE_LATENCY_SAMPLES)) {
+      return -1;
+    }
+    long latencyPercentileMs = (long) _responseLatency.getSnapshot().getValue(_speculativeRequestLatencyPercentile);
+    return Math.max(MIN_SPECULATIVE_REQUEST_DELAY_MS, latencyPercentileMs);
+  }
+
+  /**
+   * Select the servers, among the other replicas of the segment-set sent by the handler, to which speculative
+   * requests are sent.
+   */
+  private List<ServerInstance> selectSpeculativeServers(ScatterGatherRequestContext ctxt, SingleRequestHandler h) {
+    ScatterGatherRequest request = ctxt.getRequest();
+    int numSpeculativeRequests = request.getNumSpeculativeRequests();
+    if (numSpeculativeRequests <= 0) {
+      return Collections.emptyList();
+    }
+    List<ServerInstance> replicas = request.getReplicaServers(h.getServer(), h.getSegmentIds());
+    if ((null == replicas) || replicas.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    List<ServerInstance> candidates = new ArrayList<ServerInstance>(replicas);
+    candidates.remove(h.getServer());
+    List<ServerInstance> speculativeServers = new ArrayList<ServerInstance>(numSpeculativeRequests);
+    ReplicaSelection selection = request.getReplicaSelection();
+    SegmentId segmentId = h.getSegmentIds().getOneSegment();
+    while ((speculativeServers.size() < numSpeculativeRequests) && !candidates.isEmpty()) {
+      ServerInstance s = selection.selectServer(segmentId, candidates, request.getHashKey());
+      candidates.remove(s);
+      speculativeServers.add(s);
+    }
+    return speculativeServers;
+  }
+
+  /**
+   * Record the latency of the response of a server, and notify the replica selection of the request. The requests to
+   * the servers selected for the query are notified as sent at selection time already.
+   */
+  private void trackResponse(ScatterGatherRequestContext ctxt, final ServerInstance server,
+      final KeyedFuture<ServerInstance, ByteBuf> responseFuture, final long startTimeMs, boolean notifiedAtSelection) {
+    final ReplicaSelection selection = ctxt.getRequest().getReplicaSelection();
+    if (null == responseFuture) {
+      if (notifiedAtSelection) {
+        // The request was cancelled before being sent
+        selection.onRequestCompleted(server, 0, false, true);
+      }
+      return;
+    }
+    if (!notifiedAtSelection) {
+      selection.onRequestSent(server);
+    }
+    responseFuture.addListener(new Runnable() {
+      @Override
+      public void run() {
+        long latencyMs = System.currentTimeMillis() - startTimeMs;
+        boolean isCancelled = responseFuture.isCancelled();
+        Map<ServerInstance, Throwable> errors = responseFuture.getError();
+        boolean isError = !isCancelled && (null != errors) && !errors.isEmpty();
+        if (!isCancelled && !isError) {
+          _responseLatency.update(latencyMs);
+        }
+        selection.onRequestCompleted(server, latencyMs, isError, isCancelled);
+      }
+    }, null);
+  }
+
   /**
    * Merge segment-sets which have the same set of servers. If 2 segmentIds have overlapping
    * set of servers, they are not merged. If there is predefined-selection for a segmentId,
    * a separate entry is added for those in the inverted map.
+   * When the replica selection is load aware, each segment-set is mapped to all of its replicas instead of only the
+   * server picked by the routing table. The segment-sets of the routing table are kept apart even when they have the
+   * same replicas, so that the query still fans out to as many servers.
    * @param requestContext Scatter gather request
    */
   protected void buildInvertedMap(ScatterGatherRequestContext requestContext) {
@@ -170,12 +295,39 @@ public class ScatterGatherImpl implements ScatterGather {
 
     BucketingSelection sel = request.getPredefinedSelection();
 
+    boolean isLoadAware = request.getReplicaSelection().isLoadAware();
     for (ServerInstance serverInstance : segmentIdToInstanceMap.keySet()) {
-      instanceToSegmentMap.put(Arrays.asList(serverInstance), segmentIdToInstanceMap.get(serverInstance));
+      SegmentIdSet segmentIds = segmentIdToInstanceMap.get(serverInstance);
+      if (isLoadAware) {
+        // Let the replica selection choose among all the servers hosting the segment-set
+        mergePartitionGroup(instanceToSegmentMap, getOrderedReplicas(request, serverInstance, segmentIds), segmentIds);
+      } else {
+        instanceToSegmentMap.put(Arrays.asList(serverInstance), segmentIds);
+      }
     }
     requestContext.setInvertedMap(instanceToSegmentMap);
   }
 
+  /**
+   * Return the server picked by the routing table for the segment-set followed by its other replicas in ascending
+   * order, which is unique to the segment-set as the routing table picks a distinct server for each of them.
+   */
+  private List<ServerInstance> getOrderedReplicas(ScatterGatherRequest request, ServerInstance serverInstance,
+      SegmentIdSet segmentIds) {
+    List<ServerInstance> replicas = request.getReplicaServers(serverInstance, segmentIds);
+    List<ServerInstance> otherReplicas = new ArrayList<ServerInstance>(replicas.size());
+    for (ServerInstance replica : replicas) {
+      if (!replica.equals(serverInstance)) {
+        otherReplicas.add(replica);
+      }
+    }
+    Collections.sort(otherReplicas);
+    List<ServerInstance> orderedReplicas = new ArrayList<ServerInstance>(otherReplicas.size() + 1);
+    orderedReplicas.add(serverInstance);
+    orderedReplicas.addAll(otherReplicas);
+    return orderedReplicas;
+  }
+
   private <T> void mergePartitionGroup(Map<T, SegmentIdSet> instanceToSegmentMap, T instances, SegmentIdSet pg) {
 
     SegmentIdSet pg2 = instanceToSegmentMap.get(instances);
@@ -208,7 +360,8 @@ public class ScatterGatherImpl implements ScatterGather {
   }
 
   /**
-   * For each segment-set in the instanceToSegmentMap, we select one (or more speculative) servers
+   * For each segment-set in the instanceToSegmentMap, we select one server. Speculative servers are selected
+   * in sendRequest, among the replicas returned by the request.
    *
    * @param requestContext
    */
@@ -216,35 +369,11 @@ public class ScatterGatherImpl implements ScatterGather {
     Map<ServerInstance, SegmentIdSet> selectedServers = new HashMap<ServerInstance, SegmentIdSet>();
     ScatterGatherRequest request = requestContext.getRequest();
     Map<List<ServerInstance>, SegmentIdSet> instanceToSegmentMap = requestContext.getInvertedMap();
-    //int numDuplicateRequests = request.getNumSpeculativeRequests();
     ReplicaSelection selection = request.getReplicaSelection();
     for (Entry<List<ServerInstance>, SegmentIdSet> e : instanceToSegmentMap.entrySet()) {
       ServerInstance s = selection.selectServer(e.getValue().getOneSegment(), e.getKey(), request.getHashKey());
+      notifySelection(selection, selectedServers, s);
       mergePartitionGroup(selectedServers, s, e.getValue());
-
-      /**
-       * TODO:
-       * We can easily add speculative execution here. The below code will pick a distinct server
-       * for the segmentId, This entry needs to be maintained in a separate container in ScatterGatherRequestContext
-       * Then in sndRequest, we need to construct SelectingFuture for the pairs of Future corresponding to original
-       * and speculative(duplicate) request.
-       *
-       int numServers = e.getKey().size();
-
-      // Pick Unique servers for speculative request
-      int numIterations = Math.min(numServers - 1, numDuplicateRequests);
-      for (int i = 0, c = 0; i < numIterations; i++, c++)
-      {
-        ServerInstance s1 = e.getKey().get(c);
-        if ( s.equals(s1))
-        {
-          c++;
-          s1 = e.getKey().get(c);
-        }
-        mergePartitionGroup(selectedServers, s1, e.getValue());
-        //TODO: speculative servers need to be maintained in a separate entry in ScatterGatherRequestContext
-      }
-       **/
     }
     requestContext.setSelectedServers(selectedServers);
   }
@@ -270,7 +399,7 @@ public class ScatterGatherImpl implements ScatterGather {
           firstPartition = p;
         }
         ServerInstance s = selection.selectServer(firstPartition, e.getKey(), request.getHashKey());
-
+        notifySelection(selection, selectedServers, s);
         mergePartitionGroup(selectedServers, s, p);
       }
     }
@@ -278,6 +407,17 @@ public class ScatterGatherImpl implements ScatterGather {
     requestContext.setSelectedServers(selectedServers);
   }
 
+  /**
+   * Notify the replica selection of the request to a newly selected server before selecting the next one, so that
+   * load aware selections spread the segment-sets of the query, and of concurrent queries, over the replicas.
+   */
+  private void notifySelection(ReplicaSelection selection, Map<ServerInstance, SegmentIdSet> selectedServers,
+      ServerInstance server) {
+    if (!selectedServers.containsKey(server)) {
+      selection.onRequestSent(server);
+    }
+  }
+
   public static class ScatterGatherRequestContext {
     private final long _startTimeMs;
 
@@ -376,7 +516,8 @@ public class ScatterGatherImpl implements ScatterGather {
     public synchronized void run() {
 
       if (_isCancelled.get()) {
-        LOGGER.error("Request {} to server {} cancelled even before request is sent !! Not sending request",
+        // Expected for the speculative requests losing to another replica
+        LOGGER.debug("Request {} to server {} cancelled even before request is sent, not sending request",
             _request.getRequestId(), _server);
 
         _requestDispatchLatch.countDown();
@@ -399,6 +540,10 @@ public class ScatterGatherImpl implements ScatterGather {
         _responseFuture = conn.sendRequest(req, _request.getRequestId(), _timeoutMS);
         _isSent.set(true);
         LOGGER.debug("Response Future is : {}", _responseFuture);
+      } catch (CancellationException e) {
+        LOGGER.debug("Connection checkout for request {} to server {} cancelled, not sending request",
+            _request.getRequestId(), _server);
+        _responseFuture = new ResponseFuture(_server, e, "Error Future for request " + _request.getRequestId());
       } catch (TimeoutException e1) {
         LOGGER.error("Timed out waiting for connection for server (" + _server + ") (" + _request.getRequestId()
             + "). Setting error future", e1);
@@ -436,11 +581,187 @@ public class ScatterGatherImpl implements ScatterGather {
       return _server;
     }
 
+    public SegmentIdSet getSegmentIds() {
+      return _segmentIds;
+    }
+
     public ResponseFuture getResponseFuture() {
       return _responseFuture;
     }
   }
 
+  /**
+   * Future for the response of a segment-set which is also requested from other replicas when its server has not
+   * responded (or has failed) within the speculative request delay.
+   *
+   * The future completes with the first successful response and cancels the other requests, and only fails when
+   * all the requests fail. The response is keyed by the originally selected server, so that it never collides with
+   * the response of another segment-set that was sent to one of the replicas.
+   */
+  private class SpeculativeResponseFuture extends AsyncResponseFuture<ServerInstance, ByteBuf> implements
+      Cancellable {
+    private final ScatterGatherRequestContext _ctxt;
+    private final SingleRequestHandler _primaryHandler;
+    private final List<ServerInstance> _speculativeServers;
+    private final List<SingleRequestHandler> _speculativeHandlers = new ArrayList<SingleRequestHandler>();
+
+    // State below is guarded by this
+    private int _numPendingRequests = 1;
+    private boolean _speculativeRequestsSent = false;
+    private boolean _cancelled = false;
+    private ScheduledFuture<?> _speculativeRequestTask;
+
+    public SpeculativeResponseFuture(ScatterGatherRequestContext ctxt, SingleRequestHandler primaryHandler,
+        List<ServerInstance> speculativeServers) {
+      super(primaryHandler.getServer(), "Speculative response future for request "
+          + ctxt.getRequest().getRequestId() + " to server " + primaryHandler.getServer());
+      _ctxt = ctxt;
+      _primaryHandler = primaryHandler;
+      _speculativeServers = speculativeServers;
+      setCancellable(this);
+    }
+
+    public void start(long speculativeRequestDelayMs) {
+      listen(_primaryHandler.getResponseFuture());
+      synchronized (this) {
+        if (!_speculativeRequestsSent && !_cancelled && !isDone()) {
+          _speculativeRequestTask = _speculativeRequestScheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+              sendSpeculativeRequests();
+            }
+          }, speculativeRequestDelayMs, TimeUnit.MILLISECONDS);
+        }
+      }
+    }
+
+    private void sendSpeculativeRequests() {
+      List<SingleRequestHandler> handlers;
+      synchronized (this) {
+        if (_speculativeRequestsSent || _cancelled || isDone()) {
+          return;
+        }
+        _speculativeRequestsSent = true;
+        for (ServerInstance server : _speculativeServers) {
+          _speculativeHandlers.add(new SingleRequestHandler(_connPool, server, _ctxt.getRequest(), _primaryHandler
+              .getSegmentIds(), _ctxt.getTimeRemaining(), new CountDownLatch(1)));
+        }
+        _numPendingRequests += _speculativeHandlers.size();
+        handlers = new ArrayList<SingleRequestHandler>(_speculativeHandlers);
+      }
+
+      LOGGER.info("Sending speculative requests for request {} to servers {} in place of server {}", _ctxt
+          .getRequest().getRequestId(), _speculativeServers, _primaryHandler.getServer());
+      for (final SingleRequestHandler handler : handlers) {
+        _executorService.submit(new Runnable() {
+          @Override
+          public void run() {
+            long startTimeMs = System.currentTimeMillis();
+            handler.run();
+            ResponseFuture responseFuture = handler.getResponseFuture();
+            if (null == responseFuture) {
+              // Cancelled before being sent
+              onRequestFailed(new CancellationException("Speculative request to server " + handler.getServer()
+                  + " cancelled"));
+              return;
+            }
+            trackResponse(_ctxt, handler.getServer(), responseFuture, startTimeMs, false);
+            listen(responseFuture);
+          }
+        });
+      }
+    }
+
+    private void listen(final KeyedFuture<ServerInstance, ByteBuf> responseFuture) {
+      responseFuture.addListener(new Runnable() {
+        @Override
+        public void run() {
+          onRequestDone(responseFuture);
+        }
+      }, null);
+    }
+
+    private void onRequestDone(KeyedFuture<ServerInstance, ByteBuf> responseFuture) {
+      if (responseFuture.isCancelled()) {
+        onRequestFailed(new CancellationException(responseFuture.getName() + " cancelled"));
+        return;
+      }
+
+      ByteBuf response = null;
+      Throwable error = null;
+      try {
+        response = responseFuture.getOne();
+      } catch (Exception e) {
+        error = e;
+      }
+      if (null != response) {
+        onSuccess(response);
+        cancelRequests();
+        return;
+      }
+      if (null == error) {
+        Map<ServerInstance, Throwable> errors = responseFuture.getError();
+        if ((null != errors) && !errors.isEmpty()) {
+          error = errors.values().iterator().next();
+        } else {
+          error = new IllegalStateException("No response from " + responseFuture.getName());
+        }
+      }
+      onRequestFailed(error);
+    }
+
+    private void onRequestFailed(Throwable error) {
+      boolean failOver = false;
+      boolean failed = false;
+      synchronized (this) {
+        _numPendingRequests--;
+        if (!_speculativeRequestsSent) {
+          failOver = true;
+        } else if (_numPendingRequests == 0) {
+          failed = true;
+        }
+      }
+      if (failOver) {
+        // No need to wait for the speculative request delay when the server has already failed
+        sendSpeculativeRequests();
+      } else if (failed) {
+        onError(error);
+      }
+    }
+
+    @Override
+    public boolean cancel() {
+      synchronized (this) {
+        _cancelled = true;
+        if (null != _speculativeRequestTask) {
+          _speculativeRequestTask.cancel(false);
+        }
+      }
+      cancelRequests();
+      return true;
+    }
+
+    /**
+     * Cancel the outstanding requests. This is done in a separate thread as this is called while holding the lock
+     * of a response future, and cancelling another response future requires its lock.
+     */
+    private void cancelRequests() {
+      final List<SingleRequestHandler> handlers = new ArrayList<SingleRequestHandler>();
+      synchronized (this) {
+        handlers.add(_primaryHandler);
+        handlers.addAll(_speculativeHandlers);
+      }
+      _executorService.submit(new Runnable() {
+        @Override
+        public void run() {
+          for (SingleRequestHandler handler : handlers) {
+            handler.cancel();
+          }
+        }
+      });
+    }
+  }
+
   public Histogram getLatency() {
     return _latency;
   }
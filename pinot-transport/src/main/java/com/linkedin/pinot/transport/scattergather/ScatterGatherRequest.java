@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.transport.scattergather;
 
+import java.util.List;
 import java.util.Map;
 
 import com.linkedin.pinot.common.response.ServerInstance;
@@ -74,10 +75,21 @@ public interface ScatterGatherRequest {
    * to be sent foe each scattered request. To turn off speculative requests, this method should
    * return 0.
    *
-   * TODO: Currently Not implemented
+   * Speculative requests are only sent when the server selected for a segment-set has not responded
+   * within the speculative request delay of the scatter-gather.
    */
   public int getNumSpeculativeRequests();
 
+  /**
+   * Return the servers which host all the segments of the segment-set, other than the given one (which may or may
+   * not be part of the returned list). They are the candidates for speculative requests, and for load aware
+   * replica selection.
+   * @param service Service to which the segment-set is sent
+   * @param querySegments Segments to be queried in the service identified by Service.
+   * @return Replicas of the segment-set, empty if there are none.
+   */
+  public List<ServerInstance> getReplicaServers(ServerInstance service, SegmentIdSet querySegments);
+
   /**
    * Used for diagnostics, A predefined selection of service can be chosen for each segments
    * and sent to the Scatter-Gather. Scatter-Gather will honor such selection and do not override them.
@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.requestHandler;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.QuerySource;
+import com.linkedin.pinot.common.response.BrokerResponse;
+import com.linkedin.pinot.common.response.ProcessingException;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.routing.RoutingTable;
+import com.linkedin.pinot.routing.RoutingTableLookupRequest;
+import com.linkedin.pinot.transport.common.SegmentIdSet;
+
+
+public class BrokerResultCacheTest {
+  private static final String OFFLINE_TABLE = "myTable_OFFLINE";
+  private static final String REALTIME_TABLE = "myTable_REALTIME";
+
+  @Test
+  public void testOfflineTable() throws Exception {
+    TestRoutingTable routingTable = new TestRoutingTable();
+    routingTable._versions.put(OFFLINE_TABLE, 1L);
+    BrokerResultCache cache = new BrokerResultCache(1024 * 1024, 0);
+    List<String> tables = Collections.singletonList(OFFLINE_TABLE);
+
+    BrokerResultCache.CacheKey key = cache.getCacheKey(getRequest("myTable", "key1"), tables, routingTable);
+    Assert.assertNotNull(key);
+    Assert.assertNull(cache.get(key));
+    BrokerResponse response = getResponse(10);
+    cache.put(key, response);
+
+    // Same request, with another bucket hash key
+    BrokerResponse cachedResponse = cache.get(cache.getCacheKey(getRequest("myTable", "key2"), tables, routingTable));
+    Assert.assertEquals(cachedResponse.toJson().toString(), response.toJson().toString());
+
+    // Each hit gets its own copy of the response
+    Assert.assertNotSame(cachedResponse, response);
+    cachedResponse.setTimeUsedMs(42);
+    cachedResponse.getAggregationResults().get(0).put("value", "0");
+    BrokerResponse otherCachedResponse = cache.get(key);
+    Assert.assertNotSame(otherCachedResponse, cachedResponse);
+    Assert.assertEquals(otherCachedResponse.toJson().toString(), response.toJson().toString());
+
+    // Another request
+    Assert.assertNull(cache.get(cache.getCacheKey(getRequest("otherTable", "key1"), tables, routingTable)));
+
+    // Traced requests are not cached
+    BrokerRequest tracedRequest = getRequest("myTable", "key1");
+    tracedRequest.setEnableTrace(true);
+    Assert.assertNull(cache.getCacheKey(tracedRequest, tables, routingTable));
+
+    // The routing of the table changes
+    routingTable._versions.put(OFFLINE_TABLE, 2L);
+    Assert.assertNull(cache.get(cache.getCacheKey(getRequest("myTable", "key1"), tables, routingTable)));
+    Assert.assertEquals(cache.size(), 0);
+
+    // Responses with exceptions are not cached
+    key = cache.getCacheKey(getRequest("myTable", "key1"), tables, routingTable);
+    response = getResponse(10);
+    response.setExceptions(Arrays.asList(new ProcessingException(250)));
+    cache.put(key, response);
+    Assert.assertNull(cache.get(key));
+  }
+
+  @Test
+  public void testRealtimeTable() throws Exception {
+    TestRoutingTable routingTable = new TestRoutingTable();
+    routingTable._versions.put(OFFLINE_TABLE, 1L);
+    routingTable._versions.put(REALTIME_TABLE, 1L);
+    List<String> tables = Arrays.asList(OFFLINE_TABLE, REALTIME_TABLE);
+
+    // Not cached without staleness bound
+    BrokerResultCache cache = new BrokerResultCache(1024 * 1024, 0);
+    Assert.assertNull(cache.getCacheKey(getRequest("myTable", "key1"), tables, routingTable));
+
+    cache = new BrokerResultCache(1024 * 1024, 200);
+    BrokerResultCache.CacheKey key = cache.getCacheKey(getRequest("myTable", "key1"), tables, routingTable);
+    BrokerResponse response = getResponse(10);
+    cache.put(key, response);
+    Assert.assertEquals(cache.get(key).getNumDocsScanned(), 10);
+    Thread.sleep(300);
+    Assert.assertNull(cache.get(key));
+  }
+
+  @Test
+  public void testSizeBound() throws Exception {
+    TestRoutingTable routingTable = new TestRoutingTable();
+    routingTable._versions.put(OFFLINE_TABLE, 1L);
+    List<String> tables = Collections.singletonList(OFFLINE_TABLE);
+    BrokerResultCache cache = new BrokerResultCache(64 * 1024, 0);
+
+    for (int i = 0; i < 1000; i++) {
+      BrokerResultCache.CacheKey key = cache.getCacheKey(getRequest("myTable" + i, "key"), tables, routingTable);
+      cache.put(key, getResponse(i));
+    }
+    Assert.assertTrue(cache.size() > 0);
+    Assert.assertTrue(cache.size() < 1000, "Size: " + cache.size());
+
+    // Most recent responses are kept
+    BrokerResultCache.CacheKey key = cache.getCacheKey(getRequest("myTable999", "key"), tables, routingTable);
+    Assert.assertEquals(cache.get(key).getNumDocsScanned(), 999);
+  }
+
+  private static BrokerRequest getRequest(String tableName, String bucketHashKey) {
+    BrokerRequest request = new BrokerRequest();
+    QuerySource querySource = new QuerySource();
+    querySource.setTableName(tableName);
+    request.setQuerySource(querySource);
+    request.setBucketHashKey(bucketHashKey);
+    return request;
+  }
+
+  private static BrokerResponse getResponse(long numDocsScanned) throws JSONException {
+    BrokerResponse response = new BrokerResponse();
+    response.setNumDocsScanned(numDocsScanned);
+    response.setTotalDocs(1000);
+    JSONObject aggregationResult = new JSONObject();
+    aggregationResult.put("function", "count_star");
+    aggregationResult.put("value", Long.toString(numDocsScanned));
+    response.addToAggregationResults(aggregationResult);
+    return response;
+  }
+
+  private static class TestRoutingTable implements RoutingTable {
+    private final Map<String, Long> _versions = new HashMap<String, Long>();
+
+    @Override
+    public Map<ServerInstance, SegmentIdSet> findServers(RoutingTableLookupRequest request) {
+      return null;
+    }
+
+    @Override
+    public List<ServerInstance> findReplicaServers(RoutingTableLookupRequest request, SegmentIdSet segmentIdSet) {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public long getRoutingTableVersion(String tableName) {
+      Long version = _versions.get(tableName);
+      return (version == null) ? -1 : version;
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void shutdown() {
+    }
+  }
+}
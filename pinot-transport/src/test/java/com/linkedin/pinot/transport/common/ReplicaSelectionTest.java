@@ -18,6 +18,7 @@ package com.linkedin.pinot.transport.common;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -90,6 +91,53 @@ public class ReplicaSelectionTest {
 
   }
 
+  @Test
+  public void testLatencyAwareSelection() {
+    LatencyAwareReplicaSelection sel1 = new LatencyAwareReplicaSelection(new Random(0), 0.5, 600000L);
+
+    ServerInstance s1 = new ServerInstance("localhost", 8080);
+    ServerInstance s2 = new ServerInstance("localhost", 8081);
+    ServerInstance s3 = new ServerInstance("localhost", 8082);
+
+    ServerInstance[] servers = { s1, s2, s3 };
+
+    // Verify for an empty list, selectServer returns null
+    List<ServerInstance> candidates = new ArrayList<ServerInstance>();
+    Assert.assertNull(sel1.selectServer(new SegmentId("1"), candidates, null));
+    candidates.addAll(Arrays.asList(servers));
+
+    // s2 is much slower than the others
+    for (ServerInstance server : servers) {
+      sel1.onRequestSent(server);
+      sel1.onRequestCompleted(server, server == s2 ? 1000 : 10, false, false);
+    }
+    Assert.assertEquals(sel1.getLatencyMs(s2), 1000, 10);
+    Assert.assertEquals(sel1.getNumPendingRequests(s2), 0);
+    for (int i = 0; i < 100; i++) {
+      Assert.assertTrue(sel1.selectServer(new SegmentId("0"), candidates, null) != s2, "Round :" + i);
+    }
+
+    // s1 has many outstanding requests, and s3 is selected over it
+    for (int i = 0; i < 10; i++) {
+      sel1.onRequestSent(s1);
+    }
+    List<ServerInstance> twoCandidates = Arrays.asList(s1, s3);
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(sel1.selectServer(new SegmentId("0"), twoCandidates, null), s3, "Round :" + i);
+    }
+
+    // Cancelled requests only release the outstanding requests, errors are penalized
+    for (int i = 0; i < 10; i++) {
+      sel1.onRequestCompleted(s1, 1000, false, true);
+    }
+    Assert.assertEquals(sel1.getNumPendingRequests(s1), 0);
+    Assert.assertEquals(sel1.getLatencyMs(s1), 10, 1);
+    sel1.onRequestSent(s3);
+    sel1.onRequestCompleted(s3, 10, true, false);
+    Assert.assertTrue(sel1.getLatencyMs(s3) > 1000);
+    Assert.assertEquals(sel1.selectServer(new SegmentId("0"), twoCandidates, null), s1);
+  }
+
   public static class BucketKey {
     private final int _key;
 
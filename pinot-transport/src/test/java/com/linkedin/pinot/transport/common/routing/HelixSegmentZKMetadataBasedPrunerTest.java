@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2014-2015 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.transport.common.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.FilterOperator;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
+import com.linkedin.pinot.routing.HelixSegmentZKMetadataBasedPruner;
+import com.linkedin.pinot.routing.HelixSegmentZKMetadataBasedPruner.TimeRange;
+import com.linkedin.pinot.transport.common.SegmentId;
+import com.linkedin.pinot.transport.common.SegmentIdSet;
+
+
+public class HelixSegmentZKMetadataBasedPrunerTest {
+  private static final String TABLE_NAME = "testTable_OFFLINE";
+  private static final ServerInstance SERVER_0 = new ServerInstance("localhost", 8000);
+  private static final ServerInstance SERVER_1 = new ServerInstance("localhost", 8001);
+
+  private HelixSegmentZKMetadataBasedPruner _pruner;
+  private Map<ServerInstance, SegmentIdSet> _routing;
+
+  @BeforeMethod
+  public void setup() {
+    _pruner = new HelixSegmentZKMetadataBasedPruner(null);
+    // One day per segment, days 0-1 on server 0 and days 2-3 on server 1
+    Map<String, TimeRange> segmentTimeRangeMap = new HashMap<String, TimeRange>();
+    for (int day = 0; day < 4; day++) {
+      segmentTimeRangeMap.put("segment" + day, new TimeRange(day, day));
+    }
+    _pruner.updateSegmentTimeRanges(TABLE_NAME, "daysSinceEpoch", segmentTimeRangeMap);
+
+    _routing = new HashMap<ServerInstance, SegmentIdSet>();
+    _routing.put(SERVER_0, getSegmentIdSet("segment0", "segment1"));
+    _routing.put(SERVER_1, getSegmentIdSet("segment2", "segment3", "segmentWithoutMetadata"));
+  }
+
+  @Test
+  public void testTimeRangePruning() {
+    Map<ServerInstance, SegmentIdSet> routing = prune(getPredicate(FilterOperator.RANGE, "[2\t\t*)"));
+    Assert.assertEquals(routing.size(), 1);
+    Assert.assertEquals(routing.get(SERVER_1), _routing.get(SERVER_1));
+
+    routing = prune(getPredicate(FilterOperator.RANGE, "(1\t\t3)"));
+    Assert.assertEquals(routing.size(), 1);
+    Assert.assertEquals(routing.get(SERVER_1), getSegmentIdSet("segment2", "segmentWithoutMetadata"));
+
+    routing = prune(getPredicate(FilterOperator.EQUALITY, "1"));
+    Assert.assertEquals(routing.get(SERVER_0), getSegmentIdSet("segment1"));
+    Assert.assertEquals(routing.get(SERVER_1), getSegmentIdSet("segmentWithoutMetadata"));
+
+    routing = prune(getPredicate(FilterOperator.IN, "0\t\t3"));
+    Assert.assertEquals(routing.get(SERVER_0), getSegmentIdSet("segment0"));
+    Assert.assertEquals(routing.get(SERVER_1), getSegmentIdSet("segment3", "segmentWithoutMetadata"));
+
+    // The routing table itself is not modified
+    Assert.assertEquals(_routing.get(SERVER_0), getSegmentIdSet("segment0", "segment1"));
+  }
+
+  @Test
+  public void testNestedFilters() {
+    FilterQueryTree timeFilter = getPredicate(FilterOperator.RANGE, "[3\t\t5]");
+    FilterQueryTree otherColumnFilter = new FilterQueryTree("column", Arrays.asList("10"), FilterOperator.EQUALITY, null);
+
+    Map<ServerInstance, SegmentIdSet> routing =
+        prune(new FilterQueryTree(null, null, FilterOperator.AND, Arrays.asList(timeFilter, otherColumnFilter)));
+    Assert.assertEquals(routing.size(), 1);
+    Assert.assertEquals(routing.get(SERVER_1), getSegmentIdSet("segment3", "segmentWithoutMetadata"));
+
+    // Filters on other columns can match any segment
+    routing = prune(new FilterQueryTree(null, null, FilterOperator.OR, Arrays.asList(timeFilter, otherColumnFilter)));
+    Assert.assertSame(routing, _routing);
+  }
+
+  @Test
+  public void testNoMatchingSegment() {
+    _routing.get(SERVER_1).removeSegment(new SegmentId("segmentWithoutMetadata"));
+
+    // One segment is kept so that the servers still answer the query
+    Map<ServerInstance, SegmentIdSet> routing = prune(getPredicate(FilterOperator.RANGE, "[10\t\t20]"));
+    Assert.assertEquals(routing.size(), 1);
+    Assert.assertEquals(routing.values().iterator().next().getSegments().size(), 1);
+  }
+
+  @Test
+  public void testNoPruning() {
+    // No filter
+    Assert.assertSame(_pruner.prune(TABLE_NAME, new BrokerRequest(), _routing), _routing);
+    // Unknown table
+    BrokerRequest brokerRequest = new BrokerRequest();
+    RequestUtils.generateFilterFromTree(getPredicate(FilterOperator.EQUALITY, "1"), brokerRequest);
+    Assert.assertSame(_pruner.prune("otherTable_OFFLINE", brokerRequest, _routing), _routing);
+    // Removed table
+    _pruner.remove(TABLE_NAME);
+    Assert.assertSame(_pruner.prune(TABLE_NAME, brokerRequest, _routing), _routing);
+  }
+
+  private Map<ServerInstance, SegmentIdSet> prune(FilterQueryTree filterQueryTree) {
+    BrokerRequest brokerRequest = new BrokerRequest();
+    RequestUtils.generateFilterFromTree(filterQueryTree, brokerRequest);
+    return _pruner.prune(TABLE_NAME, brokerRequest, _routing);
+  }
+
+  private static FilterQueryTree getPredicate(FilterOperator operator, String value) {
+    List<String> values = new ArrayList<String>();
+    values.add(value);
+    return new FilterQueryTree("daysSinceEpoch", values, operator, null);
+  }
+
+  private static SegmentIdSet getSegmentIdSet(String... segments) {
+    SegmentIdSet segmentIdSet = new SegmentIdSet();
+    for (String segment : segments) {
+      segmentIdSet.addSegment(new SegmentId(segment));
+    }
+    return segmentIdSet;
+  }
+}
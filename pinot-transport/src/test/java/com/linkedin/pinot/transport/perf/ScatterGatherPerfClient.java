@@ -25,6 +25,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -473,6 +474,11 @@ public class ScatterGatherPerfClient implements Runnable {
       return 0;
     }
 
+    @Override
+    public List<ServerInstance> getReplicaServers(ServerInstance service, SegmentIdSet querySegments) {
+      return Collections.emptyList();
+    }
+
     @Override
     public BucketingSelection getPredefinedSelection() {
       return null;
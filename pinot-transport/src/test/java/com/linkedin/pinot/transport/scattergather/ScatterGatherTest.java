@@ -22,6 +22,7 @@ import io.netty.util.HashedWheelTimer;
 import io.netty.util.ResourceLeakDetector;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -38,10 +39,13 @@ import org.slf4j.LoggerFactory;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.linkedin.pinot.common.response.ServerInstance;
 import com.linkedin.pinot.transport.common.BucketingSelection;
 import com.linkedin.pinot.transport.common.CompositeFuture;
+import com.linkedin.pinot.transport.common.LatencyAwareReplicaSelection;
 import com.linkedin.pinot.transport.common.ReplicaSelection;
 import com.linkedin.pinot.transport.common.ReplicaSelectionGranularity;
 import com.linkedin.pinot.transport.common.RoundRobinReplicaSelection;
@@ -212,6 +216,47 @@ public class ScatterGatherTest {
     }
   }
 
+  @Test
+  public void testLoadAwareSelectionFansOut() throws Exception {
+    ScatterGatherImpl scImpl = new ScatterGatherImpl(null, MoreExecutors.sameThreadExecutor());
+
+    // Fully replicated table, the routing table spreads the segments over the 3 servers
+    List<ServerInstance> servers = new ArrayList<ServerInstance>();
+    Map<ServerInstance, SegmentIdSet> pgMap = new HashMap<ServerInstance, SegmentIdSet>();
+    Map<ServerInstance, List<ServerInstance>> replicasMap = new HashMap<ServerInstance, List<ServerInstance>>();
+    for (int i = 0; i < 3; i++) {
+      servers.add(new ServerInstance("localhost", 1011 + i));
+    }
+    for (int i = 0; i < 3; i++) {
+      SegmentIdSet pg = new SegmentIdSet();
+      pg.addSegment(new SegmentId(Integer.toString(2 * i)));
+      pg.addSegment(new SegmentId(Integer.toString(2 * i + 1)));
+      pgMap.put(servers.get(i), pg);
+      replicasMap.put(servers.get(i), servers);
+    }
+    LatencyAwareReplicaSelection selection = new LatencyAwareReplicaSelection();
+    ScatterGatherRequest req =
+        new TestScatterGatherRequest(pgMap, new HashMap<SegmentIdSet, String>(), selection, 0, replicasMap);
+    ScatterGatherRequestContext ctxt = new ScatterGatherRequestContext(req);
+    scImpl.buildInvertedMap(ctxt);
+    scImpl.selectServices(ctxt);
+
+    // Each segment-set of the routing table is selected on its own, and each pick is counted before the next one
+    Assert.assertEquals(ctxt.getInvertedMap().size(), 3);
+    Map<ServerInstance, SegmentIdSet> resultMap = ctxt.getSelectedServers();
+    Assert.assertTrue(resultMap.size() >= 2, "Fan out");
+    int numSegments = 0;
+    for (SegmentIdSet pg : resultMap.values()) {
+      numSegments += pg.getSegments().size();
+    }
+    Assert.assertEquals(numSegments, 6);
+    int numPendingRequests = 0;
+    for (ServerInstance server : servers) {
+      numPendingRequests += selection.getNumPendingRequests(server);
+    }
+    Assert.assertEquals(numPendingRequests, resultMap.size());
+  }
+
   @Test
   public void testSingleServer() throws Exception {
 
@@ -599,6 +644,77 @@ public class ScatterGatherTest {
     server4.shutdownGracefully();
   }
 
+  @Test
+  public void testSpeculativeRequest() throws Exception {
+
+    MetricsRegistry registry = new MetricsRegistry();
+
+    // Server start, the primary server is much slower than its replica
+    int serverPort1 = 7091;
+    int serverPort2 = 7092;
+    NettyTCPServer server1 = new NettyTCPServer(serverPort1, new TestRequestHandlerFactory(0, 1, 2000, false), null);
+    NettyTCPServer server2 = new NettyTCPServer(serverPort2, new TestRequestHandlerFactory(1, 1), null);
+    Thread t1 = new Thread(server1);
+    Thread t2 = new Thread(server2);
+    t1.start();
+    t2.start();
+
+    //Client setup
+    ScheduledExecutorService timedExecutor = new ScheduledThreadPoolExecutor(1);
+    ExecutorService poolExecutor = MoreExecutors.sameThreadExecutor();
+    ExecutorService service = new ThreadPoolExecutor(2, 2, 1, TimeUnit.DAYS, new LinkedBlockingDeque<Runnable>());
+    EventLoopGroup eventLoopGroup = new NioEventLoopGroup();
+    NettyClientMetrics clientMetrics = new NettyClientMetrics(registry, "client_");
+    PooledNettyClientResourceManager rm =
+        new PooledNettyClientResourceManager(eventLoopGroup, new HashedWheelTimer(), clientMetrics);
+    KeyedPoolImpl<ServerInstance, NettyClientConnection> pool =
+        new KeyedPoolImpl<ServerInstance, NettyClientConnection>(1, 1, 300000, 1, rm, timedExecutor, poolExecutor,
+            registry);
+    rm.setPool(pool);
+
+    ScatterGatherImpl scImpl = new ScatterGatherImpl(pool, service, timedExecutor, 0.95) {
+      @Override
+      protected long getSpeculativeRequestDelayMs() {
+        return 100;
+      }
+    };
+
+    SegmentIdSet pg = new SegmentIdSet();
+    pg.addSegment(new SegmentId("0"));
+    ServerInstance serverInstance1 = new ServerInstance("localhost", serverPort1);
+    ServerInstance serverInstance2 = new ServerInstance("localhost", serverPort2);
+    Map<ServerInstance, SegmentIdSet> pgMap = new HashMap<ServerInstance, SegmentIdSet>();
+    pgMap.put(serverInstance1, pg);
+    Map<ServerInstance, List<ServerInstance>> speculativeServersMap =
+        new HashMap<ServerInstance, List<ServerInstance>>();
+    speculativeServersMap.put(serverInstance1, Collections.singletonList(serverInstance2));
+
+    String request = "request_0";
+    Map<SegmentIdSet, String> pgMapStr = new HashMap<SegmentIdSet, String>();
+    pgMapStr.put(pg, request);
+    ScatterGatherRequest req = new TestScatterGatherRequest(pgMap, pgMapStr, 1, speculativeServersMap);
+
+    long startTime = System.currentTimeMillis();
+    CompositeFuture<ServerInstance, ByteBuf> fut = scImpl.scatterGather(req);
+    Map<ServerInstance, ByteBuf> v = fut.get();
+    long elapsedTime = System.currentTimeMillis() - startTime;
+
+    // The response of the replica is returned for the primary server
+    Assert.assertEquals(v.size(), 1);
+    ByteBuf b = v.get(serverInstance1);
+    byte[] b2 = new byte[b.readableBytes()];
+    b.readBytes(b2);
+    String response = new String(b2);
+    Assert.assertEquals(response, "response_1_0");
+    Assert.assertTrue(elapsedTime < 1500, "Took " + elapsedTime + " ms");
+
+    server1.shutdownGracefully();
+    server2.shutdownGracefully();
+    pool.shutdown();
+    service.shutdown();
+    eventLoopGroup.shutdownGracefully();
+  }
+
   public static class TestRequestHandlerFactory implements RequestHandlerFactory {
     public final int _numRequests;
     public final int _id;
@@ -646,7 +762,7 @@ public class ScatterGatherTest {
     }
 
     @Override
-    public byte[] processRequest(ByteBuf request) {
+    public ListenableFuture<byte[]> processRequest(ByteBuf request) {
 
       if (_sleepTimeMS > 0) {
         try {
@@ -664,7 +780,7 @@ public class ScatterGatherTest {
       _request.add(new String(dst));
       int index = _index.incrementAndGet();
       String res = _responses.get(index);
-      return res.getBytes();
+      return Futures.immediateFuture(res.getBytes());
     }
 
     public List<String> getRequest() {
@@ -679,6 +795,7 @@ public class ScatterGatherTest {
     private final ReplicaSelectionGranularity _granularity;
     private final int _numSpeculativeRequests;
     private final int _timeoutMS;
+    private final Map<ServerInstance, List<ServerInstance>> _speculativeServersMap;
 
     public TestScatterGatherRequest(Map<ServerInstance, SegmentIdSet> partitionServicesMap,
         Map<SegmentIdSet, String> responsesMap) {
@@ -688,6 +805,7 @@ public class ScatterGatherTest {
       _granularity = ReplicaSelectionGranularity.SEGMENT_ID_SET;
       _numSpeculativeRequests = 0;
       _timeoutMS = 10000;
+      _speculativeServersMap = Collections.emptyMap();
     }
 
     public TestScatterGatherRequest(Map<ServerInstance, SegmentIdSet> partitionServicesMap,
@@ -699,6 +817,26 @@ public class ScatterGatherTest {
       _granularity = granularity;
       _numSpeculativeRequests = numSpeculativeRequests;
       _timeoutMS = timeoutMS;
+      _speculativeServersMap = Collections.emptyMap();
+    }
+
+    public TestScatterGatherRequest(Map<ServerInstance, SegmentIdSet> partitionServicesMap,
+        Map<SegmentIdSet, String> responsesMap, int numSpeculativeRequests,
+        Map<ServerInstance, List<ServerInstance>> speculativeServersMap) {
+      this(partitionServicesMap, responsesMap, new MyReplicaSelection(), numSpeculativeRequests,
+          speculativeServersMap);
+    }
+
+    public TestScatterGatherRequest(Map<ServerInstance, SegmentIdSet> partitionServicesMap,
+        Map<SegmentIdSet, String> responsesMap, ReplicaSelection replicaSelection, int numSpeculativeRequests,
+        Map<ServerInstance, List<ServerInstance>> speculativeServersMap) {
+      _partitionServicesMap = partitionServicesMap;
+      _responsesMap = responsesMap;
+      _replicaSelection = replicaSelection;
+      _granularity = ReplicaSelectionGranularity.SEGMENT_ID_SET;
+      _numSpeculativeRequests = numSpeculativeRequests;
+      _timeoutMS = 10000;
+      _speculativeServersMap = speculativeServersMap;
     }
 
     @Override
@@ -732,6 +870,15 @@ public class ScatterGatherTest {
       return _numSpeculativeRequests;
     }
 
+    @Override
+    public List<ServerInstance> getReplicaServers(ServerInstance service, SegmentIdSet querySegments) {
+      List<ServerInstance> servers = _speculativeServersMap.get(service);
+      if (servers == null) {
+        return Collections.emptyList();
+      }
+      return servers;
+    }
+
     @Override
     public BucketingSelection getPredefinedSelection() {
       return null;